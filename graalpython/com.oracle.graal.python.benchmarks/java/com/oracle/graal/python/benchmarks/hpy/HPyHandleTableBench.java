@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.benchmarks.hpy;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.oracle.graal.python.builtins.objects.cext.hpy.GraalHPyHandle;
+import com.oracle.graal.python.builtins.objects.cext.hpy.GraalHPyHandleTable;
+
+/**
+ * Measures the throughput of creating and closing HPy handles in the handle table, without the
+ * native transition. Every benchmark method creates and closes {@link #BATCH} handles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HPyHandleTableBench {
+
+    private static final int BATCH = 1024;
+
+    /** Run with and without generation checks. */
+    @Param({"false", "true"}) public boolean debug;
+
+    /** Number of handles that are alive in the background while measuring. */
+    @Param({"0", "100000"}) public int live;
+
+    private GraalHPyHandleTable table;
+    private GraalHPyHandle[] objects;
+    private int[] handles;
+
+    @Setup
+    public void setup() {
+        table = new GraalHPyHandleTable(debug);
+        for (int i = 0; i < live; i++) {
+            table.allocate(new GraalHPyHandle(i));
+        }
+        objects = new GraalHPyHandle[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            objects[i] = new GraalHPyHandle(i);
+        }
+        handles = new int[BATCH];
+    }
+
+    /**
+     * A handle is closed right after it was created, e.g., a temporary result.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int createClose() {
+        int sum = 0;
+        for (int i = 0; i < BATCH; i++) {
+            int handle = table.allocate(objects[i]);
+            sum += handle;
+            table.release(handle);
+        }
+        return sum;
+    }
+
+    /**
+     * A batch of handles is created and then closed one by one with {@code HPy_Close}.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int createBatchCloseEach() {
+        for (int i = 0; i < BATCH; i++) {
+            handles[i] = table.allocate(objects[i]);
+        }
+        for (int i = 0; i < BATCH; i++) {
+            table.release(handles[i]);
+        }
+        return table.size();
+    }
+
+    /**
+     * A batch of handles is created and then closed at once, like the argument handles of a call.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int createBatchCloseAll() {
+        for (int i = 0; i < BATCH; i++) {
+            handles[i] = table.allocate(objects[i]);
+        }
+        table.releaseAll(handles, BATCH);
+        return table.size();
+    }
+
+    /**
+     * Handle lookup including the validity check done in debug mode.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int lookup() {
+        for (int i = 0; i < BATCH; i++) {
+            handles[i] = table.allocate(objects[i]);
+        }
+        int valid = 0;
+        for (int i = 0; i < BATCH; i++) {
+            if (table.isValid(handles[i]) && table.get(handles[i]) == objects[i]) {
+                valid++;
+            }
+        }
+        table.releaseAll(handles, BATCH);
+        return valid;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.benchmarks.interop;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Calls into one context from a varying number of threads. Every call looks up the calling thread's
+ * state (to store the top frame reference and the caught exception), so this measures how the
+ * thread-state lookup scales once the context is multi-threaded. The total number of calls is fixed
+ * and split among the threads.
+ * <p>
+ * The context from {@link BenchRunner} does not allow multi-threaded access, so this benchmark
+ * builds its own with {@code python.WithThread}.
+ */
+public class PyThreadStateLookup extends BenchRunner {
+
+    @Param({"1", "2", "4", "8", "16", "32", "64"}) public int threads;
+
+    @Param({"640000"}) public int calls;
+
+    private Context threadedContext;
+    private Value func;
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() throws Exception {
+        System.out.println("### setup ...");
+        this.threadedContext = Context.newBuilder("python").allowIO(true).option("python.WithThread", "true").build();
+        this.func = this.threadedContext.eval("python", "def f(i):\n" +
+                        "    try:\n" +
+                        "        raise KeyError(i)\n" +
+                        "    except KeyError:\n" +
+                        "        return i\n" +
+                        "f");
+        this.executor = Executors.newFixedThreadPool(threads);
+        // attach all worker threads to the context before measuring
+        runOnAllThreads(1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+        threadedContext.close(true);
+    }
+
+    @Benchmark
+    public long lookup() throws Exception {
+        return runOnAllThreads(calls / threads);
+    }
+
+    private long runOnAllThreads(int callsPerThread) throws Exception {
+        List<Future<Long>> results = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                long sum = 0;
+                for (int i = 0; i < callsPerThread; i++) {
+                    sum += func.execute(i).asLong();
+                }
+                return sum;
+            }));
+        }
+        long total = 0;
+        for (Future<Long> result : results) {
+            total += result.get();
+        }
+        return total;
+    }
+}
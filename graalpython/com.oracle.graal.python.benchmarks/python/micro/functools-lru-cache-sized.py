@@ -1,4 +1,4 @@
-# Copyright (c) 2018, 2020, Oracle and/or its affiliates. All rights reserved.
+# Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
 # DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
 #
 # The Universal Permissive License (UPL), Version 1.0
@@ -37,23 +37,41 @@
 # OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
 # SOFTWARE.
 
+import functools
 
-def _sort(self, key=None, reverse=False):
-    if reverse:
-        if key:
-            lt = lambda a,b: key(a) > key(b)
-        else:
-            lt = lambda a,b: a > b
-    else:
-        if key:
-            lt = lambda a,b: key(a) < key(b)
-        else:
-            lt = lambda a,b: a < b
-    origLen = len(self)
-    TimSort(self, lt=lt).sort()
-    if(origLen != len(self)):
-        raise ValueError("list modified during sort")
-    return None
-
-
-list._sort = _sort
+
+@functools.lru_cache(maxsize=256)
+def cached_square(x):
+    return x * x
+
+
+def scale(factor, x):
+    return factor * x
+
+
+def call_cached(num):
+    # mostly hits, with an occasional miss that evicts the oldest entry
+    total = 0
+    for i in range(num):
+        total += cached_square(i % 200)
+        if i % 1000 == 0:
+            total += cached_square(i)
+    return total
+
+
+def call_partial(num):
+    double = functools.partial(scale, 2)
+    total = 0
+    for i in range(num):
+        total += double(i)
+    return total
+
+
+def measure(num):
+    print(call_cached(num))
+    print(call_partial(num))
+    print(cached_square.cache_info())
+
+
+def __benchmark__(num=10000000):
+    measure(num)
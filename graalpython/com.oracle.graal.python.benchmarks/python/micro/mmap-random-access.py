@@ -1,4 +1,4 @@
-# Copyright (c) 2018, 2020, Oracle and/or its affiliates. All rights reserved.
+# Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
 # DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
 #
 # The Universal Permissive License (UPL), Version 1.0
@@ -37,30 +37,37 @@
 # OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
 # SOFTWARE.
 
-@__graalpython__.builtin
-def reduce(function, iterable, initializer=None):
-    it = iter(iterable)
-    if initializer is None:
-        value = next(it)
-    else:
-        value = initializer
-    for element in it:
-        value = function(value, element)
-    return value
+import mmap
+import os
+import tempfile
 
+SIZE = 1024 * 1024
 
-class partial:
-    def __init__(self, func, *args, **keywords):
-        def newfunc(*fargs, **fkeywords):
-            newkeywords = keywords.copy()
-            newkeywords.update(fkeywords)
-            return func(*args, *fargs, **newkeywords)
-        self.func = func
-        self.args = args
-        self.keywords = keywords
-        self.newfunc = newfunc
 
-    def __call__(self, *args, **keywords):
-        return self.newfunc(*args, **keywords)
+def access(mm, num):
+    # pseudo-random single-byte and slice reads spread over the whole map
+    idx = 0
+    checksum = 0
+    for i in range(num):
+        idx = (idx * 1103515245 + 12345) % SIZE
+        checksum += mm[idx]
+        checksum += len(mm[idx:idx + 16])
+        mm[idx] = checksum & 0xFF
+    return checksum
 
-    # TODO: correctly implement '__reduce__' and '__setstate__'
+
+def measure(num):
+    fd, path = tempfile.mkstemp()
+    try:
+        with open(path, "wb") as f:
+            f.write(bytes(range(256)) * (SIZE // 256))
+        with open(path, "r+b") as f:
+            with mmap.mmap(f.fileno(), 0) as mm:
+                print(access(mm, num))
+    finally:
+        os.close(fd)
+        os.unlink(path)
+
+
+def __benchmark__(num=1000000):
+    measure(num)
@@ -1449,7 +1449,13 @@ memory_toreadonly(PyMemoryViewObject *self, PyObject *noargs)
 /**************************************************************************/
 
 static PyMemoryViewObject* PyTruffle_MemoryView_GetDelegate(PyObject* managed_self) {
-    return (PyMemoryViewObject*) PyObject_GetAttrString(managed_self, "__c_memoryview");
+    PyObject* delegate = PyObject_GetAttrString(managed_self, "__c_memoryview");
+    if (delegate == Py_None) {
+        // zero-copy managed memoryviews create their native delegate lazily
+        Py_DECREF(delegate);
+        delegate = PyObject_CallMethod(managed_self, "__materialize_native__", NULL);
+    }
+    return (PyMemoryViewObject*) delegate;
 }
 
 static int
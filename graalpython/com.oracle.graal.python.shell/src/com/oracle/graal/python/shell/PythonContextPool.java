@@ -0,0 +1,530 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.shell;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.Source;
+
+/**
+ * A pool of pre-initialized Python contexts that share one {@link Engine}, for embedders that
+ * serve concurrent requests.
+ * <p>
+ * Each context is only ever used by one thread at a time, so contexts never switch to
+ * multi-threaded mode and requests do not contend on a context-wide lock. Because all contexts
+ * share the engine, parsed sources and the code of core modules are cached once and reused by every
+ * context. The optional warm-up sources are evaluated in every new context before it is handed out.
+ * <p>
+ * Idle contexts are kept in several shards; a thread first looks in the shard it is mapped to and
+ * returns contexts there. This keeps checkout and checkin contention low when many threads use the
+ * pool, and a thread usually gets back the context it used last.
+ *
+ * <pre>
+ * try (PythonContextPool pool = PythonContextPool.newBuilder().size(8).warmup("import json").build()) {
+ *     try (PythonContextPool.Lease lease = pool.checkout()) {
+ *         lease.getContext().eval("python", "json.dumps([1, 2])");
+ *     }
+ * }
+ * </pre>
+ */
+public final class PythonContextPool implements AutoCloseable {
+    private static final String LANGUAGE_ID = "python";
+
+    private final Engine engine;
+    private final boolean ownsEngine;
+    private final Map<String, String> options;
+    private final Consumer<Context.Builder> configurer;
+    private final List<Source> warmupSources;
+    private final int size;
+    private final int maxUses;
+    private final Semaphore available;
+    private final ConcurrentLinkedDeque<PooledContext>[] shards;
+    private final AtomicInteger created = new AtomicInteger();
+    private volatile boolean closed;
+    private final AtomicBoolean engineClosed = new AtomicBoolean();
+
+    private final AtomicLong checkouts = new AtomicLong();
+    private final AtomicLong contextsCreated = new AtomicLong();
+    private final AtomicLong contextsDiscarded = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong warmupNanos = new AtomicLong();
+
+    private static final class PooledContext {
+        final Context context;
+        int uses;
+
+        PooledContext(Context context) {
+            this.context = context;
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private PythonContextPool(Builder builder) {
+        this.ownsEngine = builder.engine == null;
+        this.engine = ownsEngine ? Engine.newBuilder().build() : builder.engine;
+        this.options = new HashMap<>(builder.options);
+        this.configurer = builder.configurer;
+        this.warmupSources = new ArrayList<>(builder.warmupSources);
+        this.size = builder.size;
+        this.maxUses = builder.maxUses;
+        this.available = new Semaphore(size, true);
+        this.shards = new ConcurrentLinkedDeque[builder.shards];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new ConcurrentLinkedDeque<>();
+        }
+        for (int i = 0; i < builder.prestart; i++) {
+            created.incrementAndGet();
+            shards[i % shards.length].add(createContext());
+        }
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Takes a context from the pool, waiting until one becomes available.
+     */
+    public Lease checkout() throws InterruptedException {
+        checkOpen();
+        long start = System.nanoTime();
+        available.acquire();
+        waitNanos.addAndGet(System.nanoTime() - start);
+        return lease();
+    }
+
+    /**
+     * Takes a context from the pool, waiting at most the given time. Returns {@code null} if no
+     * context became available in time.
+     */
+    public Lease checkout(long timeout, TimeUnit unit) throws InterruptedException {
+        checkOpen();
+        long start = System.nanoTime();
+        boolean acquired = available.tryAcquire(timeout, unit);
+        waitNanos.addAndGet(System.nanoTime() - start);
+        if (!acquired) {
+            timeouts.incrementAndGet();
+            return null;
+        }
+        return lease();
+    }
+
+    private Lease lease() {
+        try {
+            PooledContext pooled = takeIdle();
+            checkouts.incrementAndGet();
+            pooled.uses++;
+            return new Lease(pooled);
+        } catch (RuntimeException | Error e) {
+            available.release();
+            if (closed) {
+                closeEngineIfUnused();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Finds an idle context, preferring the current thread's shard, or creates a new one. Holding a
+     * permit guarantees that either an idle context exists or the pool is not yet full, unless the
+     * pool was closed in the meantime.
+     */
+    private PooledContext takeIdle() {
+        int home = shardIndex();
+        for (;;) {
+            checkOpen();
+            for (int i = 0; i < shards.length; i++) {
+                PooledContext pooled = shards[(home + i) % shards.length].pollFirst();
+                if (pooled != null) {
+                    return pooled;
+                }
+            }
+            int current = created.get();
+            if (current < size && created.compareAndSet(current, current + 1)) {
+                try {
+                    return createContext();
+                } catch (RuntimeException | Error e) {
+                    created.decrementAndGet();
+                    throw e;
+                }
+            }
+            Thread.yield();
+        }
+    }
+
+    private void checkin(PooledContext pooled, boolean discard) {
+        if (closed) {
+            created.decrementAndGet();
+            pooled.context.close();
+            available.release();
+            closeEngineIfUnused();
+            return;
+        }
+        if (discard || (maxUses > 0 && pooled.uses >= maxUses)) {
+            discard(pooled);
+        } else {
+            shards[shardIndex()].addFirst(pooled);
+        }
+        available.release();
+        if (closed) {
+            // close() ran after the check above and may have missed this context
+            closeIdle();
+            closeEngineIfUnused();
+        }
+    }
+
+    private void discard(PooledContext pooled) {
+        contextsDiscarded.incrementAndGet();
+        created.decrementAndGet();
+        try {
+            pooled.context.close(true);
+        } catch (RuntimeException e) {
+            // the context is gone either way
+        }
+    }
+
+    private PooledContext createContext() {
+        Context.Builder builder = Context.newBuilder(LANGUAGE_ID).engine(engine).options(options);
+        if (configurer != null) {
+            configurer.accept(builder);
+        }
+        Context context = builder.build();
+        try {
+            context.initialize(LANGUAGE_ID);
+            long start = System.nanoTime();
+            for (Source source : warmupSources) {
+                context.eval(source);
+            }
+            warmupNanos.addAndGet(System.nanoTime() - start);
+        } catch (RuntimeException e) {
+            context.close(true);
+            throw e;
+        }
+        contextsCreated.incrementAndGet();
+        return new PooledContext(context);
+    }
+
+    private int shardIndex() {
+        return (int) (Thread.currentThread().getId() % shards.length);
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("context pool is closed");
+        }
+    }
+
+    /**
+     * Returns a snapshot of the pool's counters.
+     */
+    public Metrics getMetrics() {
+        int idle = 0;
+        for (ConcurrentLinkedDeque<PooledContext> shard : shards) {
+            idle += shard.size();
+        }
+        return new Metrics(size, created.get(), idle, size - available.availablePermits(), checkouts.get(), contextsCreated.get(), contextsDiscarded.get(), timeouts.get(), waitNanos.get(),
+                        warmupNanos.get());
+    }
+
+    /**
+     * Closes all idle contexts and, if the pool created it, the engine. Contexts that are checked out
+     * are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        closeIdle();
+        closeEngineIfUnused();
+    }
+
+    private void closeIdle() {
+        for (ConcurrentLinkedDeque<PooledContext> shard : shards) {
+            PooledContext pooled;
+            while ((pooled = shard.pollFirst()) != null) {
+                created.decrementAndGet();
+                pooled.context.close();
+            }
+        }
+    }
+
+    private void closeEngineIfUnused() {
+        if (ownsEngine && available.availablePermits() == size && engineClosed.compareAndSet(false, true)) {
+            engine.close();
+        }
+    }
+
+    /**
+     * Exclusive use of one pooled context. Closing the lease returns the context to the pool.
+     */
+    public final class Lease implements AutoCloseable {
+        private final PooledContext pooled;
+        private boolean returned;
+        private boolean invalid;
+
+        private Lease(PooledContext pooled) {
+            this.pooled = pooled;
+        }
+
+        public Context getContext() {
+            if (returned) {
+                throw new IllegalStateException("lease was already returned");
+            }
+            return pooled.context;
+        }
+
+        /**
+         * Marks the context as unusable (e.g. because a request left it in a bad state). It is
+         * closed instead of being returned to the pool, and a fresh context is created on demand.
+         */
+        public void invalidate() {
+            invalid = true;
+        }
+
+        @Override
+        public void close() {
+            if (!returned) {
+                returned = true;
+                checkin(pooled, invalid);
+            }
+        }
+    }
+
+    /**
+     * Counters of a {@link PythonContextPool} at one point in time.
+     */
+    public static final class Metrics {
+        private final int size;
+        private final int contexts;
+        private final int idle;
+        private final int inUse;
+        private final long checkouts;
+        private final long created;
+        private final long discarded;
+        private final long timeouts;
+        private final long waitNanos;
+        private final long warmupNanos;
+
+        Metrics(int size, int contexts, int idle, int inUse, long checkouts, long created, long discarded, long timeouts, long waitNanos, long warmupNanos) {
+            this.size = size;
+            this.contexts = contexts;
+            this.idle = idle;
+            this.inUse = inUse;
+            this.checkouts = checkouts;
+            this.created = created;
+            this.discarded = discarded;
+            this.timeouts = timeouts;
+            this.waitNanos = waitNanos;
+            this.warmupNanos = warmupNanos;
+        }
+
+        /** The maximal number of contexts. */
+        public int getSize() {
+            return size;
+        }
+
+        /** The number of live contexts, idle or checked out. */
+        public int getContexts() {
+            return contexts;
+        }
+
+        public int getIdle() {
+            return idle;
+        }
+
+        public int getInUse() {
+            return inUse;
+        }
+
+        public long getCheckouts() {
+            return checkouts;
+        }
+
+        /** The number of contexts created over the pool's lifetime. */
+        public long getCreated() {
+            return created;
+        }
+
+        /** The number of contexts closed because they were invalidated or reached their use limit. */
+        public long getDiscarded() {
+            return discarded;
+        }
+
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        /** The total time threads spent waiting for a context. */
+        public long getWaitNanos() {
+            return waitNanos;
+        }
+
+        /** The total time spent evaluating warm-up sources. */
+        public long getWarmupNanos() {
+            return warmupNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("PythonContextPool.Metrics[size=%d, contexts=%d, idle=%d, inUse=%d, checkouts=%d, created=%d, discarded=%d, timeouts=%d, waitMillis=%d, warmupMillis=%d]",
+                            size, contexts, idle, inUse, checkouts, created, discarded, timeouts, TimeUnit.NANOSECONDS.toMillis(waitNanos), TimeUnit.NANOSECONDS.toMillis(warmupNanos));
+        }
+    }
+
+    public static final class Builder {
+        private Engine engine;
+        private final Map<String, String> options = new HashMap<>();
+        private Consumer<Context.Builder> configurer;
+        private final List<Source> warmupSources = new ArrayList<>();
+        private int size = Runtime.getRuntime().availableProcessors();
+        private int shards = -1;
+        private int prestart = -1;
+        private int maxUses;
+
+        private Builder() {
+        }
+
+        /**
+         * Uses the given engine instead of creating one. The engine is not closed with the pool.
+         */
+        public Builder engine(Engine sharedEngine) {
+            this.engine = sharedEngine;
+            return this;
+        }
+
+        /** The maximal number of contexts; defaults to the number of available processors. */
+        public Builder size(int maxContexts) {
+            if (maxContexts <= 0) {
+                throw new IllegalArgumentException("pool size must be positive");
+            }
+            this.size = maxContexts;
+            return this;
+        }
+
+        /** The number of shards idle contexts are spread over; defaults to the pool size. */
+        public Builder shards(int count) {
+            if (count <= 0) {
+                throw new IllegalArgumentException("shard count must be positive");
+            }
+            this.shards = count;
+            return this;
+        }
+
+        /** The number of contexts created eagerly by {@link #build()}; defaults to the pool size. */
+        public Builder prestart(int count) {
+            if (count < 0) {
+                throw new IllegalArgumentException("prestart count must not be negative");
+            }
+            this.prestart = count;
+            return this;
+        }
+
+        /**
+         * Closes and replaces a context after it was checked out the given number of times. Zero
+         * (the default) means contexts are reused indefinitely.
+         */
+        public Builder maxUses(int uses) {
+            if (uses < 0) {
+                throw new IllegalArgumentException("max uses must not be negative");
+            }
+            this.maxUses = uses;
+            return this;
+        }
+
+        /** Sets a context option, e.g. {@code python.PythonPath}, for every pooled context. */
+        public Builder option(String key, String value) {
+            this.options.put(key, value);
+            return this;
+        }
+
+        /** Allows further configuration (access rights, streams, ...) of every context. */
+        public Builder configure(Consumer<Context.Builder> contextConfigurer) {
+            this.configurer = contextConfigurer;
+            return this;
+        }
+
+        /**
+         * Adds code that is evaluated in every new context, typically imports of the modules the
+         * requests need.
+         */
+        public Builder warmup(String code) {
+            return warmup(Source.create(LANGUAGE_ID, code));
+        }
+
+        public Builder warmup(Source source) {
+            this.warmupSources.add(source);
+            return this;
+        }
+
+        public PythonContextPool build() {
+            if (shards < 0) {
+                shards = size;
+            }
+            if (prestart < 0) {
+                prestart = size;
+            }
+            if (prestart > size) {
+                throw new IllegalArgumentException("cannot prestart more contexts than the pool size");
+            }
+            return new PythonContextPool(this);
+        }
+    }
+}
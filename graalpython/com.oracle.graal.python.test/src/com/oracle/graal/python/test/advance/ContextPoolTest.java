@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.test.advance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.graalvm.polyglot.Context;
+import org.junit.Test;
+
+import com.oracle.graal.python.shell.PythonContextPool;
+
+public class ContextPoolTest {
+
+    private static PythonContextPool.Builder newPool() {
+        return PythonContextPool.newBuilder().configure(b -> b.allowExperimentalOptions(true).allowAllAccess(true));
+    }
+
+    @Test
+    public void testWarmupIsVisible() throws InterruptedException {
+        try (PythonContextPool pool = newPool().size(2).warmup("import json\nwarm = 42").build()) {
+            assertEquals(2, pool.getMetrics().getCreated());
+            try (PythonContextPool.Lease lease = pool.checkout()) {
+                assertEquals(42, lease.getContext().eval("python", "warm").asInt());
+                assertEquals("[1, 2]", lease.getContext().eval("python", "json.dumps([1, 2])").asString());
+            }
+            assertEquals(1, pool.getMetrics().getCheckouts());
+            assertEquals(0, pool.getMetrics().getInUse());
+        }
+    }
+
+    @Test
+    public void testContextIsReused() throws InterruptedException {
+        try (PythonContextPool pool = newPool().size(1).build()) {
+            Context first;
+            try (PythonContextPool.Lease lease = pool.checkout()) {
+                first = lease.getContext();
+                first.eval("python", "counter = 1");
+            }
+            try (PythonContextPool.Lease lease = pool.checkout()) {
+                assertSame(first, lease.getContext());
+                assertEquals(1, lease.getContext().eval("python", "counter").asInt());
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidateAndMaxUses() throws InterruptedException {
+        try (PythonContextPool pool = newPool().size(1).maxUses(2).build()) {
+            Context first;
+            try (PythonContextPool.Lease lease = pool.checkout()) {
+                first = lease.getContext();
+                lease.invalidate();
+            }
+            Context second;
+            try (PythonContextPool.Lease lease = pool.checkout()) {
+                second = lease.getContext();
+                assertNotSame(first, second);
+            }
+            try (PythonContextPool.Lease lease = pool.checkout()) {
+                assertSame(second, lease.getContext());
+            }
+            try (PythonContextPool.Lease lease = pool.checkout()) {
+                assertNotSame(second, lease.getContext());
+            }
+            assertEquals(2, pool.getMetrics().getDiscarded());
+            assertEquals(1, pool.getMetrics().getContexts());
+        }
+    }
+
+    @Test
+    public void testCheckoutTimeout() throws InterruptedException {
+        try (PythonContextPool pool = newPool().size(1).build()) {
+            try (PythonContextPool.Lease lease = pool.checkout()) {
+                assertNotNull(lease);
+                assertNull(pool.checkout(10, TimeUnit.MILLISECONDS));
+            }
+            assertEquals(1, pool.getMetrics().getTimeouts());
+            try (PythonContextPool.Lease lease = pool.checkout(10, TimeUnit.MILLISECONDS)) {
+                assertNotNull(lease);
+            }
+        }
+    }
+
+    @Test
+    public void testCheckinAfterCloseWakesWaiter() throws Exception {
+        PythonContextPool pool = newPool().size(1).build();
+        PythonContextPool.Lease lease = pool.checkout();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch waiting = new CountDownLatch(1);
+            Future<?> waiter = executor.submit(() -> {
+                waiting.countDown();
+                pool.checkout().close();
+                fail("checkout succeeded on a closed pool");
+                return null;
+            });
+            waiting.await();
+            // give the waiter time to block on the permit
+            Thread.sleep(100);
+            pool.close();
+            lease.close();
+            try {
+                waiter.get(10, TimeUnit.SECONDS);
+                fail("expected IllegalStateException");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+            assertEquals(0, pool.getMetrics().getContexts());
+            assertEquals(0, pool.getMetrics().getInUse());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCheckinRacingClose() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            for (int i = 0; i < 10; i++) {
+                PythonContextPool pool = newPool().size(1).build();
+                PythonContextPool.Lease lease = pool.checkout();
+                CountDownLatch start = new CountDownLatch(1);
+                Future<?> closer = executor.submit(() -> {
+                    start.await();
+                    pool.close();
+                    return null;
+                });
+                start.countDown();
+                lease.close();
+                closer.get(10, TimeUnit.SECONDS);
+                assertEquals(0, pool.getMetrics().getContexts());
+                assertEquals(0, pool.getMetrics().getIdle());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testConcurrentRequests() throws Exception {
+        int threads = 4;
+        try (PythonContextPool pool = newPool().size(threads).prestart(0).warmup("def handle(n):\n    return sum(range(n))\n").build()) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads * 2);
+            try {
+                List<Future<Integer>> results = new ArrayList<>();
+                for (int i = 0; i < 64; i++) {
+                    final int n = i;
+                    results.add(executor.submit(() -> {
+                        try (PythonContextPool.Lease lease = pool.checkout()) {
+                            return lease.getContext().eval("python", "handle(" + n + ")").asInt();
+                        }
+                    }));
+                }
+                for (int i = 0; i < results.size(); i++) {
+                    assertEquals(i * (i - 1) / 2, (int) results.get(i).get());
+                }
+            } finally {
+                executor.shutdown();
+            }
+            PythonContextPool.Metrics metrics = pool.getMetrics();
+            assertEquals(64, metrics.getCheckouts());
+            assertEquals(0, metrics.getInUse());
+            assertEquals(metrics.getContexts(), metrics.getIdle());
+        }
+    }
+}
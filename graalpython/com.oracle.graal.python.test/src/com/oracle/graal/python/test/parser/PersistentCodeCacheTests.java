@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.test.parser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Source;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.oracle.graal.python.parser.PersistentCodeCache;
+
+public class PersistentCodeCacheTests {
+    private static final String MODULE = "def f(a, *args, b=2, **kw):\n" +
+                    "    return [a + b + x for x in args if x % 2]\n" +
+                    "class C:\n" +
+                    "    def g(self):\n" +
+                    "        return f(1, 1, 2, 3, b=10)\n" +
+                    "result = sum(C().g())\n";
+
+    private Path tmpDir;
+    private Path cacheDir;
+    private Path module;
+
+    @Before
+    public void setUp() throws IOException {
+        tmpDir = Files.createTempDirectory("graalpython-code-cache");
+        cacheDir = tmpDir.resolve("cache");
+        module = tmpDir.resolve("cached_module.py");
+        Files.write(module, MODULE.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(tmpDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private int runModule() throws IOException {
+        try (Context context = Context.newBuilder("python").allowExperimentalOptions(true).allowAllAccess(true).option("python.PersistentCodeCache", "true").option("python.PyCachePrefix",
+                        cacheDir.toString()).build()) {
+            context.eval(Source.newBuilder("python", module.toFile()).build());
+            return context.getBindings("python").getMember("result").asInt();
+        }
+    }
+
+    private Path findEntry() throws IOException {
+        String name = PersistentCodeCache.computeKey(MODULE) + ".sst";
+        try (Stream<Path> files = Files.walk(cacheDir)) {
+            return files.filter(p -> p.getFileName().toString().equals(name)).findFirst().orElse(null);
+        }
+    }
+
+    private static Object fileKey(Path entry) throws IOException {
+        return Files.readAttributes(entry, BasicFileAttributes.class).fileKey();
+    }
+
+    @Test
+    public void entryIsWrittenAndReused() throws IOException {
+        assertEquals(26, runModule());
+        Path entry = findEntry();
+        assertTrue(entry != null && Files.size(entry) > 0);
+        byte[] data = Files.readAllBytes(entry);
+        // a miss stores the entry again by moving a new file in place, which changes the file key
+        Object key = fileKey(entry);
+        assumeNotNull(key);
+        assertEquals(26, runModule());
+        assertEquals(key, fileKey(entry));
+        assertArrayEquals(data, Files.readAllBytes(entry));
+    }
+
+    @Test
+    public void damagedEntryIsReplaced() throws IOException {
+        assertEquals(26, runModule());
+        Path entry = findEntry();
+        byte[] data = Files.readAllBytes(entry);
+        byte[] damaged = Arrays.copyOf(data, data.length / 2);
+        Files.write(entry, damaged);
+        assertEquals(26, runModule());
+        byte[] replaced = Files.readAllBytes(entry);
+        assertFalse(Arrays.equals(damaged, replaced));
+        assertArrayEquals(data, replaced);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.test.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.oracle.graal.python.builtins.objects.cext.hpy.GraalHPyHandle;
+import com.oracle.graal.python.builtins.objects.cext.hpy.GraalHPyHandleTable;
+
+public class HPyHandleTableTests {
+
+    @Test
+    public void allocateAndGet() {
+        GraalHPyHandleTable table = new GraalHPyHandleTable(false);
+        GraalHPyHandle[] objects = new GraalHPyHandle[100];
+        int[] handles = new int[objects.length];
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = new GraalHPyHandle(i);
+            handles[i] = table.allocate(objects[i]);
+            assertNotEquals(0, handles[i]);
+        }
+        for (int i = 0; i < objects.length; i++) {
+            assertSame(objects[i], table.get(handles[i]));
+        }
+        assertEquals(objects.length, table.size());
+        assertSame(GraalHPyHandle.NULL_HANDLE, table.get(0));
+    }
+
+    @Test
+    public void releasedSlotsAreReused() {
+        GraalHPyHandleTable table = new GraalHPyHandleTable(false);
+        int h1 = table.allocate(new GraalHPyHandle(1));
+        int h2 = table.allocate(new GraalHPyHandle(2));
+        table.release(h1);
+        assertFalse(table.isValid(h1));
+        assertEquals(h1, table.allocate(new GraalHPyHandle(3)));
+        assertTrue(table.isValid(h2));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    public void releaseAll() {
+        GraalHPyHandleTable table = new GraalHPyHandleTable(false);
+        int[] handles = new int[50];
+        for (int i = 0; i < handles.length; i++) {
+            handles[i] = table.allocate(new GraalHPyHandle(i));
+        }
+        int capacity = table.capacity();
+        table.releaseAll(handles, handles.length);
+        assertEquals(0, table.size());
+        for (int i = 0; i < handles.length; i++) {
+            table.allocate(new GraalHPyHandle(i));
+        }
+        // all slots came from the free-list
+        assertEquals(capacity, table.capacity());
+    }
+
+    @Test
+    public void debugDetectsStaleHandles() {
+        GraalHPyHandleTable table = new GraalHPyHandleTable(true);
+        GraalHPyHandle first = new GraalHPyHandle(1);
+        GraalHPyHandle second = new GraalHPyHandle(2);
+        int stale = table.allocate(first);
+        table.release(stale);
+        int fresh = table.allocate(second);
+        // same slot but different generation
+        assertNotEquals(stale, fresh);
+        assertFalse(table.isValid(stale));
+        assertTrue(table.isValid(fresh));
+        assertSame(second, table.get(fresh));
+        assertTrue(table.isValid(0));
+    }
+}
@@ -265,3 +265,39 @@ class TestMisc(CPyExtTestCase):
         callfunction="wrap_PyEval_GetBuiltins",
         cmpfunc=unhandled_error_compare
     )
+
+    test_many_handles = CPyExtFunction(
+        lambda args: 2 * len(args[0]),
+        lambda: (
+            ([object() for _ in range(1000)],),
+            (tuple(str(i) for i in range(2000)),),
+        ),
+        code="""
+        Py_ssize_t wrap_many_handles(PyObject* seq) {
+            Py_ssize_t i, n = PySequence_Size(seq), result = 0;
+            PyObject* items = PySequence_Fast(seq, "not a sequence");
+            int round;
+            for (round = 0; round < 2; round++) {
+                for (i = 0; i < n; i++) {
+                    result += PyObject_IsTrue(PySequence_Fast_GET_ITEM(items, i));
+                }
+            }
+            Py_DECREF(items);
+            return result;
+        }
+        """,
+        resultspec="n",
+        argspec="O",
+        arguments=["PyObject* seq"],
+        callfunction="wrap_many_handles",
+    )
+
+    def test_handle_cache_stats(self):
+        if GRAALPYTHON:
+            import __graalpython__
+            stats = __graalpython__.handle_cache_stats()
+            if stats is not None:
+                hits, misses, size, capacity = stats
+                self.assertGreaterEqual(hits, 0)
+                self.assertGreaterEqual(misses, 0)
+                self.assertLessEqual(size, capacity)
@@ -0,0 +1,215 @@
+# Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+# DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+#
+# The Universal Permissive License (UPL), Version 1.0
+#
+# Subject to the condition set forth below, permission is hereby granted to any
+# person obtaining a copy of this software, associated documentation and/or
+# data (collectively the "Software"), free of charge and under any and all
+# copyright rights in the Software, and any and all patent rights owned or
+# freely licensable by each licensor hereunder covering either (i) the
+# unmodified Software as contributed to or provided by such licensor, or (ii)
+# the Larger Works (as defined below), to deal in both
+#
+# (a) the Software, and
+#
+# (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+# one is included with the Software each a "Larger Work" to which the Software
+# is contributed by such licensors),
+#
+# without restriction, including without limitation the rights to copy, create
+# derivative works of, display, perform, and distribute the Software and make,
+# use, sell, offer for sale, import, export, have made, and have sold the
+# Software and the Larger Work(s), and to sublicense the foregoing rights on
+# either these or other terms.
+#
+# This license is subject to the following condition:
+#
+# The above copyright notice and either this complete permission notice or at a
+# minimum a reference to the UPL must be included in all copies or substantial
+# portions of the Software.
+#
+# THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+# IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+# FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+# AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+# LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+# OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+# SOFTWARE.
+
+import asyncio
+import collections.abc
+import unittest
+
+
+class Coro(collections.abc.Coroutine):
+    """Wraps a generator that uses 'yield from' into a coroutine object."""
+
+    def __init__(self, gen):
+        self.gen = gen
+
+    def send(self, value):
+        return self.gen.send(value)
+
+    def throw(self, *args):
+        return self.gen.throw(*args)
+
+    def close(self):
+        self.gen.close()
+
+    def __await__(self):
+        return self.gen
+
+
+class AsyncioTest(unittest.TestCase):
+    def setUp(self):
+        self.loop = asyncio.new_event_loop()
+
+    def tearDown(self):
+        self.loop.close()
+
+    def test_future_result(self):
+        fut = self.loop.create_future()
+        self.assertFalse(fut.done())
+        self.assertIs(fut.get_loop(), self.loop)
+        self.assertRaises(asyncio.InvalidStateError, fut.result)
+        fut.set_result(42)
+        self.assertTrue(fut.done())
+        self.assertFalse(fut.cancelled())
+        self.assertEqual(42, fut.result())
+        self.assertIsNone(fut.exception())
+        self.assertRaises(asyncio.InvalidStateError, fut.set_result, 1)
+
+    def test_future_exception(self):
+        fut = self.loop.create_future()
+        fut.set_exception(ValueError)
+        self.assertIsInstance(fut.exception(), ValueError)
+        self.assertRaises(ValueError, fut.result)
+        self.assertRaises(TypeError, self.loop.create_future().set_exception, 42)
+        self.assertRaises(TypeError, self.loop.create_future().set_exception, StopIteration())
+
+    def test_future_cancel(self):
+        fut = self.loop.create_future()
+        self.assertTrue(fut.cancel())
+        self.assertTrue(fut.cancelled())
+        self.assertFalse(fut.cancel())
+        self.assertRaises(asyncio.CancelledError, fut.result)
+        self.assertRaises(asyncio.CancelledError, fut.exception)
+
+    def test_future_callbacks(self):
+        fut = self.loop.create_future()
+        called = []
+        cb1 = lambda f: called.append(("cb1", f.result()))
+        cb2 = lambda f: called.append(("cb2", f.result()))
+        fut.add_done_callback(cb1)
+        fut.add_done_callback(cb2)
+        fut.add_done_callback(cb2)
+        self.assertEqual(2, fut.remove_done_callback(cb2))
+        fut.set_result("x")
+        self.assertEqual([], called)
+        self.loop.run_until_complete(fut)
+        self.assertEqual([("cb1", "x")], called)
+
+    def test_future_await(self):
+        fut = self.loop.create_future()
+        it = fut.__await__()
+        self.assertIs(fut, next(it))
+        fut.set_result(7)
+        with self.assertRaises(StopIteration) as cm:
+            next(it)
+        self.assertEqual(7, cm.exception.value)
+
+    def test_run_until_complete(self):
+        fut = self.loop.create_future()
+        self.loop.call_soon(fut.set_result, "done")
+        self.assertEqual("done", self.loop.run_until_complete(fut))
+
+    def test_task_result(self):
+        def gen():
+            fut = self.loop.create_future()
+            self.loop.call_soon(fut.set_result, 20)
+            value = yield from fut
+            return value + 1
+
+        task = self.loop.create_task(Coro(gen()))
+        self.assertIsInstance(task, asyncio.Future)
+        self.assertTrue(task.get_name().startswith("Task-"))
+        self.assertEqual(21, self.loop.run_until_complete(task))
+        self.assertTrue(task.done())
+        self.assertRaises(RuntimeError, task.set_result, 1)
+
+    def test_task_exception(self):
+        def gen():
+            fut = self.loop.create_future()
+            self.loop.call_soon(fut.set_exception, KeyError("k"))
+            yield from fut
+
+        task = self.loop.create_task(Coro(gen()))
+        self.assertRaises(KeyError, self.loop.run_until_complete, task)
+        self.assertIsInstance(task.exception(), KeyError)
+
+    def test_task_cancel(self):
+        caught = []
+
+        def gen():
+            try:
+                yield from self.loop.create_future()
+            except asyncio.CancelledError:
+                caught.append(True)
+                raise
+
+        task = self.loop.create_task(Coro(gen()))
+        self.loop.call_soon(task.cancel)
+        self.assertRaises(asyncio.CancelledError, self.loop.run_until_complete, task)
+        self.assertTrue(task.cancelled())
+        self.assertEqual([True], caught)
+
+    def test_task_name(self):
+        def gen():
+            return 1
+            yield
+
+        task = self.loop.create_task(Coro(gen()), name="worker")
+        self.assertEqual("worker", task.get_name())
+        task.set_name(5)
+        self.assertEqual("5", task.get_name())
+        self.assertEqual(1, self.loop.run_until_complete(task))
+
+    def test_running_loop(self):
+        self.assertRaises(RuntimeError, asyncio.get_running_loop)
+        loops = []
+
+        def gen():
+            loops.append(asyncio.get_running_loop())
+            return None
+            yield
+
+        self.loop.run_until_complete(self.loop.create_task(Coro(gen())))
+        self.assertEqual([self.loop], loops)
+
+    def test_current_task_threads(self):
+        import threading
+        errors = []
+
+        def run():
+            loop = asyncio.new_event_loop()
+            tasks = []
+
+            def gen():
+                for _ in range(200):
+                    if asyncio.current_task() is not tasks[0]:
+                        errors.append(asyncio.current_task())
+                    yield
+
+            try:
+                tasks.append(loop.create_task(Coro(gen())))
+                loop.run_until_complete(tasks[0])
+            finally:
+                loop.close()
+
+        threads = [threading.Thread(target=run) for _ in range(4)]
+        for t in threads:
+            t.start()
+        for t in threads:
+            t.join()
+        self.assertEqual([], errors)
@@ -0,0 +1,154 @@
+# Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+# DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+#
+# The Universal Permissive License (UPL), Version 1.0
+#
+# Subject to the condition set forth below, permission is hereby granted to any
+# person obtaining a copy of this software, associated documentation and/or
+# data (collectively the "Software"), free of charge and under any and all
+# copyright rights in the Software, and any and all patent rights owned or
+# freely licensable by each licensor hereunder covering either (i) the
+# unmodified Software as contributed to or provided by such licensor, or (ii)
+# the Larger Works (as defined below), to deal in both
+#
+# (a) the Software, and
+#
+# (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+# one is included with the Software each a "Larger Work" to which the Software
+# is contributed by such licensors),
+#
+# without restriction, including without limitation the rights to copy, create
+# derivative works of, display, perform, and distribute the Software and make,
+# use, sell, offer for sale, import, export, have made, and have sold the
+# Software and the Larger Work(s), and to sublicense the foregoing rights on
+# either these or other terms.
+#
+# This license is subject to the following condition:
+#
+# The above copyright notice and either this complete permission notice or at a
+# minimum a reference to the UPL must be included in all copies or substantial
+# portions of the Software.
+#
+# THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+# IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+# FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+# AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+# LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+# OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+# SOFTWARE.
+
+import concurrent.futures
+import threading
+import unittest
+
+try:
+    from _concurrent import ThreadPoolExecutor
+except ImportError:
+    from concurrent.futures import ThreadPoolExecutor
+
+
+class ThreadPoolExecutorTest(unittest.TestCase):
+    def test_submit(self):
+        with ThreadPoolExecutor(max_workers=4) as executor:
+            futures = [executor.submit(pow, 2, i) for i in range(100)]
+            self.assertEqual([2 ** i for i in range(100)], [f.result() for f in futures])
+            self.assertEqual("ab", executor.submit(str.__add__, "a", "b").result())
+            self.assertEqual(8, executor.submit(int, "10", base=8).result())
+
+    def test_exception(self):
+        def fail():
+            raise KeyError("k")
+
+        with ThreadPoolExecutor(max_workers=2) as executor:
+            future = executor.submit(fail)
+            self.assertRaises(KeyError, future.result)
+            self.assertIsInstance(future.exception(), KeyError)
+            self.assertTrue(future.done())
+            self.assertFalse(future.cancelled())
+            self.assertIn("raised KeyError", repr(future))
+
+    def test_map(self):
+        with ThreadPoolExecutor(max_workers=3) as executor:
+            self.assertEqual([i * i for i in range(50)], list(executor.map(lambda x: x * x, range(50))))
+            self.assertEqual([5, 7, 9], list(executor.map(lambda a, b: a + b, [1, 2, 3], [4, 5, 6])))
+
+    def test_wait_and_as_completed(self):
+        event = threading.Event()
+        with ThreadPoolExecutor(max_workers=2) as executor:
+            blocked = executor.submit(event.wait)
+            quick = executor.submit(lambda: 42)
+            done, not_done = concurrent.futures.wait([blocked, quick], return_when=concurrent.futures.FIRST_COMPLETED)
+            self.assertEqual({quick}, done)
+            self.assertEqual({blocked}, not_done)
+            self.assertRaises(concurrent.futures.TimeoutError, blocked.result, 0.01)
+            event.set()
+            completed = list(concurrent.futures.as_completed([blocked, quick], timeout=10))
+            self.assertEqual({blocked, quick}, set(completed))
+            self.assertTrue(blocked.result())
+
+    def test_done_callbacks(self):
+        called = []
+        event = threading.Event()
+        with ThreadPoolExecutor(max_workers=1) as executor:
+            future = executor.submit(event.wait)
+            future.add_done_callback(lambda f: called.append(f.result()))
+            event.set()
+            future.result()
+        self.assertEqual([True], called)
+        future.add_done_callback(lambda f: called.append("late"))
+        self.assertEqual([True, "late"], called)
+
+    def test_cancel(self):
+        started = threading.Event()
+        event = threading.Event()
+
+        def block():
+            started.set()
+            return event.wait()
+
+        with ThreadPoolExecutor(max_workers=1) as executor:
+            running = executor.submit(block)
+            started.wait()
+            pending = executor.submit(lambda: 1)
+            self.assertTrue(pending.cancel())
+            self.assertTrue(pending.cancelled())
+            self.assertFalse(running.cancel())
+            event.set()
+            self.assertRaises(concurrent.futures.CancelledError, pending.result)
+        self.assertTrue(running.result())
+
+    def test_shutdown(self):
+        executor = ThreadPoolExecutor(max_workers=2)
+        future = executor.submit(lambda: "x")
+        executor.shutdown(wait=True)
+        self.assertEqual("x", future.result())
+        self.assertRaises(RuntimeError, executor.submit, lambda: None)
+
+    def test_initializer(self):
+        local = threading.local()
+
+        def init(value):
+            local.value = value
+
+        with ThreadPoolExecutor(max_workers=2, initializer=init, initargs=(7,)) as executor:
+            self.assertEqual(7, executor.submit(lambda: local.value).result())
+
+        def fail():
+            raise ValueError
+
+        import logging
+        logger = logging.getLogger("concurrent.futures")
+        level = logger.level
+        logger.setLevel(logging.CRITICAL + 1)
+        try:
+            executor = ThreadPoolExecutor(max_workers=1, initializer=fail)
+            future = executor.submit(lambda: 1)
+            self.assertRaises(concurrent.futures.thread.BrokenThreadPool, future.result, 10)
+            self.assertRaises(concurrent.futures.thread.BrokenThreadPool, executor.submit, lambda: 1)
+            executor.shutdown()
+        finally:
+            logger.setLevel(level)
+
+    def test_arguments(self):
+        self.assertRaises(ValueError, ThreadPoolExecutor, 0)
+        self.assertRaises(TypeError, ThreadPoolExecutor, 1, initializer=1)
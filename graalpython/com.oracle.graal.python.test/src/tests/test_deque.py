@@ -39,6 +39,7 @@
 import copy
 import random
 import sys
+import threading
 import unittest
 from collections import deque
 
@@ -629,3 +630,70 @@ class TestBasic(unittest.TestCase):
         klass = type(reversed(deque()))
         for s in ('abcd', range(2000)):
             self.assertEqual(list(klass(deque(s))), list(reversed(s)))
+
+    def test_iterator_new_with_index(self):
+        d = deque(range(10))
+        self.assertEqual(list(type(iter(d))(d, 3)), list(range(3, 10)))
+        self.assertEqual(list(type(reversed(d))(d, 3)), list(range(6, -1, -1)))
+        self.assertEqual(list(type(iter(d))(d, 20)), [])
+
+    def test_mixed_item_types(self):
+        d = deque([1, 2, 3])
+        d.append(2 ** 40)
+        d.appendleft(0.5)
+        d.insert(2, 'x')
+        d[1] = None
+        self.assertEqual(list(d), [0.5, None, 'x', 2, 3, 2 ** 40])
+        d = deque([1.5, 2.5])
+        d.append(3)
+        self.assertEqual(list(d), [1.5, 2.5, 3])
+        self.assertIs(type(d[2]), int)
+
+    def test_wraparound(self):
+        d = deque(maxlen=100)
+        ref = []
+        for i in range(1000):
+            d.append(i)
+            ref = (ref + [i])[-100:]
+            if i % 3 == 0:
+                self.assertEqual(d.popleft(), ref.pop(0))
+            if i % 7 == 0:
+                d.rotate(5)
+                ref = ref[-5:] + ref[:-5]
+            self.assertEqual(list(d), ref)
+        for i in range(len(ref)):
+            self.assertEqual(d[i], ref[i])
+            self.assertEqual(d[-i - 1], ref[-i - 1])
+        del d[40]
+        del ref[40]
+        d.insert(70, 'x')
+        ref.insert(70, 'x')
+        self.assertEqual(list(d), ref)
+        self.assertEqual(list(reversed(d)), list(reversed(ref)))
+
+    def test_threaded_producer_consumer(self):
+        d = deque()
+        n = 20000
+        received = []
+
+        def producer(start):
+            # switch from int to object storage halfway through
+            for i in range(start, start + n):
+                d.append(i if i < start + n // 2 else str(i))
+
+        def consumer():
+            while len(received) < 2 * n:
+                try:
+                    received.append(d.popleft())
+                except IndexError:
+                    pass
+
+        threads = [threading.Thread(target=producer, args=(0,)),
+                   threading.Thread(target=producer, args=(n,)),
+                   threading.Thread(target=consumer)]
+        for t in threads:
+            t.start()
+        for t in threads:
+            t.join()
+        self.assertEqual(len(d), 0)
+        self.assertEqual(sorted(int(x) for x in received), list(range(2 * n)))
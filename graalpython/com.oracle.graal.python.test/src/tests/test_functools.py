@@ -0,0 +1,297 @@
+# Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+# DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+#
+# The Universal Permissive License (UPL), Version 1.0
+#
+# Subject to the condition set forth below, permission is hereby granted to any
+# person obtaining a copy of this software, associated documentation and/or
+# data (collectively the "Software"), free of charge and under any and all
+# copyright rights in the Software, and any and all patent rights owned or
+# freely licensable by each licensor hereunder covering either (i) the
+# unmodified Software as contributed to or provided by such licensor, or (ii)
+# the Larger Works (as defined below), to deal in both
+#
+# (a) the Software, and
+#
+# (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+# one is included with the Software each a "Larger Work" to which the Software
+# is contributed by such licensors),
+#
+# without restriction, including without limitation the rights to copy, create
+# derivative works of, display, perform, and distribute the Software and make,
+# use, sell, offer for sale, import, export, have made, and have sold the
+# Software and the Larger Work(s), and to sublicense the foregoing rights on
+# either these or other terms.
+#
+# This license is subject to the following condition:
+#
+# The above copyright notice and either this complete permission notice or at a
+# minimum a reference to the UPL must be included in all copies or substantial
+# portions of the Software.
+#
+# THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+# IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+# FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+# AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+# LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+# OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+# SOFTWARE.
+
+import functools
+import pickle
+import unittest
+
+
+def capture(*args, **kwargs):
+    return args, kwargs
+
+
+class ReduceTests(unittest.TestCase):
+
+    def test_reduce(self):
+        self.assertEqual(functools.reduce(lambda a, b: a + b, [1, 2, 3, 4]), 10)
+        self.assertEqual(functools.reduce(lambda a, b: a + b, iter(["a", "b", "c"])), "abc")
+        self.assertEqual(functools.reduce(lambda a, b: a * b, [], 7), 7)
+        self.assertEqual(functools.reduce(lambda a, b: a + b, [1], 5), 6)
+
+    def test_reduce_none_initial(self):
+        self.assertEqual(functools.reduce(lambda a, b: [a, b], [1, 2], None), [[None, 1], 2])
+
+    def test_reduce_empty(self):
+        self.assertRaises(TypeError, functools.reduce, lambda a, b: a, [])
+        self.assertRaises(TypeError, functools.reduce, lambda a, b: a, 42)
+
+
+class PartialTests(unittest.TestCase):
+
+    def test_call(self):
+        p = functools.partial(capture, 1, 2, a=3)
+        self.assertEqual(p(), ((1, 2), {"a": 3}))
+        self.assertEqual(p(4, b=5), ((1, 2, 4), {"a": 3, "b": 5}))
+        self.assertEqual(p(a=6), ((1, 2), {"a": 6}))
+        # the frozen keywords are not changed by a call
+        self.assertEqual(p.keywords, {"a": 3})
+
+    def test_attributes(self):
+        p = functools.partial(capture, 1, a=2)
+        self.assertIs(p.func, capture)
+        self.assertEqual(p.args, (1,))
+        self.assertEqual(p.keywords, {"a": 2})
+        self.assertRaises(AttributeError, setattr, p, "func", len)
+        p.attr = 42
+        self.assertEqual(p.attr, 42)
+        self.assertEqual(p.__dict__, {"attr": 42})
+
+    def test_not_callable(self):
+        self.assertRaises(TypeError, functools.partial)
+        self.assertRaises(TypeError, functools.partial, 1)
+
+    def test_nested(self):
+        inner = functools.partial(capture, 1, a=2)
+        outer = functools.partial(inner, 3, a=4, b=5)
+        self.assertIs(outer.func, capture)
+        self.assertEqual(outer.args, (1, 3))
+        self.assertEqual(outer.keywords, {"a": 4, "b": 5})
+        self.assertEqual(outer(6), ((1, 3, 6), {"a": 4, "b": 5}))
+
+    def test_subclass(self):
+        class MyPartial(functools.partial):
+            pass
+
+        p = MyPartial(capture, 1)
+        self.assertEqual(p(2), ((1, 2), {}))
+        q = MyPartial(p, 3)
+        self.assertEqual(q(4), ((1, 3, 4), {}))
+        self.assertEqual(repr(q).split("(")[0], "MyPartial")
+
+    def test_repr(self):
+        p = functools.partial(capture, 1, "x", a=3)
+        self.assertEqual(repr(p), "functools.partial(%r, 1, 'x', a=3)" % capture)
+
+    def test_pickle(self):
+        p = functools.partial(capture, 1, a=2)
+        p.attr = "value"
+        q = pickle.loads(pickle.dumps(p))
+        self.assertEqual(q(3), ((1, 3), {"a": 2}))
+        self.assertEqual(q.attr, "value")
+
+    def test_setstate(self):
+        p = functools.partial(capture)
+        p.__setstate__((capture, (1,), None, None))
+        self.assertEqual(p(), ((1,), {}))
+        self.assertRaises(TypeError, p.__setstate__, [capture, (), None, None])
+        self.assertRaises(TypeError, p.__setstate__, (capture, (), None))
+        self.assertRaises(TypeError, p.__setstate__, (1, (), None, None))
+
+
+class LruCacheTests(unittest.TestCase):
+
+    def test_hits_and_misses(self):
+        calls = []
+
+        @functools.lru_cache(maxsize=2)
+        def f(x):
+            calls.append(x)
+            return x * 10
+
+        self.assertEqual(f(1), 10)
+        self.assertEqual(f(1), 10)
+        self.assertEqual(f(2), 20)
+        self.assertEqual(calls, [1, 2])
+        info = f.cache_info()
+        self.assertEqual((info.hits, info.misses, info.maxsize, info.currsize), (1, 2, 2, 2))
+
+    def test_eviction_order(self):
+        calls = []
+
+        @functools.lru_cache(maxsize=2)
+        def f(x):
+            calls.append(x)
+            return x
+
+        f(1)
+        f(2)
+        f(1)  # 2 is now the least recently used entry
+        f(3)  # evicts 2
+        f(1)
+        f(2)
+        self.assertEqual(calls, [1, 2, 3, 2])
+        self.assertEqual(f.cache_info().currsize, 2)
+
+    def test_keywords_and_typed(self):
+        calls = []
+
+        @functools.lru_cache(maxsize=None, typed=True)
+        def f(*args, **kwargs):
+            calls.append((args, kwargs))
+            return len(calls)
+
+        self.assertEqual(f(1, 2), 1)
+        self.assertEqual(f(1, b=2), 2)
+        self.assertEqual(f(1, b=2), 2)
+        self.assertEqual(f(1.0, b=2), 3)
+        self.assertEqual(f(1, 2), 1)
+        info = f.cache_info()
+        self.assertEqual((info.hits, info.misses, info.maxsize, info.currsize), (2, 3, None, 3))
+
+    def test_equal_keys(self):
+        calls = []
+
+        @functools.lru_cache()
+        def f(x, y=None):
+            calls.append(x)
+            return x
+
+        first = (1, "a")
+        self.assertIs(f(first), first)
+        self.assertIs(f((1, "a")), first)
+        self.assertIs(f(x=first), first)
+        self.assertIs(f(x=(1, "a")), first)
+        self.assertEqual(len(calls), 2)
+
+    def test_unhashable(self):
+        @functools.lru_cache()
+        def f(x):
+            return x
+
+        self.assertRaises(TypeError, f, [])
+
+    def test_maxsize_zero(self):
+        @functools.lru_cache(maxsize=0)
+        def f(x):
+            return x
+
+        f(1)
+        f(1)
+        info = f.cache_info()
+        self.assertEqual((info.hits, info.misses, info.currsize), (0, 2, 0))
+
+    def test_cache_clear(self):
+        @functools.lru_cache()
+        def f(x):
+            return x
+
+        f(1)
+        f(1)
+        f.cache_clear()
+        self.assertEqual(f.cache_info(), (0, 0, 128, 0))
+        f(1)
+        self.assertEqual(f.cache_info().misses, 1)
+
+    def test_wrapper_attributes(self):
+        def f(x):
+            "docstring"
+            return x
+
+        g = functools.lru_cache()(f)
+        self.assertIs(g.__wrapped__, f)
+        self.assertEqual(g.__name__, "f")
+        self.assertEqual(g.__doc__, "docstring")
+        self.assertRaises(TypeError, functools.lru_cache(), 1)
+        self.assertRaises(TypeError, functools.lru_cache, "x")
+
+    def test_method(self):
+        class A:
+            def __init__(self, value):
+                self.value = value
+
+            @functools.lru_cache()
+            def get(self, x):
+                return self.value + x
+
+        self.assertEqual(A(1).get(2), 3)
+        self.assertEqual(A(10).get(2), 12)
+        self.assertIsInstance(A.__dict__["get"], type(A.get))
+
+    def test_recursive(self):
+        @functools.lru_cache()
+        def fib(n):
+            return n if n < 2 else fib(n - 1) + fib(n - 2)
+
+        self.assertEqual(fib(80), 23416728348467685)
+        self.assertEqual(fib.cache_info().currsize, 81)
+
+    def test_threads(self):
+        import threading
+
+        @functools.lru_cache(maxsize=16)
+        def square(n):
+            return n * n
+
+        errors = []
+
+        def worker():
+            for i in range(2000):
+                n = i % 32
+                if square(n) != n * n:
+                    errors.append(n)
+
+        threads = [threading.Thread(target=worker) for _ in range(4)]
+        for t in threads:
+            t.start()
+        for t in threads:
+            t.join()
+        self.assertEqual(errors, [])
+        info = square.cache_info()
+        self.assertEqual(info.hits + info.misses, 8000)
+        self.assertLessEqual(info.currsize, 16)
+
+    def test_eq_changes_cache(self):
+        class Key:
+            def __init__(self, value):
+                self.value = value
+
+            def __hash__(self):
+                return hash(self.value)
+
+            def __eq__(self, other):
+                square.cache_clear()
+                return self.value == other.value
+
+        @functools.lru_cache(maxsize=2)
+        def square(key):
+            return key.value * key.value
+
+        for i in [1, 1, 2, 1, 3, 3, 2]:
+            self.assertEqual(square(Key(i)), i * i)
+            self.assertLessEqual(square.cache_info().currsize, 2)
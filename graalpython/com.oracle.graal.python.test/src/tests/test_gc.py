@@ -39,6 +39,7 @@
 
 from _weakref import ref, getweakrefcount
 import gc
+import sys
 
 
 def test_gc_collect():
@@ -48,3 +49,16 @@ def test_gc_collect():
 def test_gc_count():
     c0, c1, c2 = gc.get_count()
     assert c0 + c1 + c2 > 0, "we definitely had something collected"
+
+
+def test_gc_stats():
+    stats = gc.get_stats()
+    assert len(stats) == 3
+    for generation in stats:
+        assert generation["collections"] >= 0
+        assert generation["collected"] >= 0
+        assert generation["uncollectable"] >= 0
+    if sys.implementation.name == "graalpython":
+        assert stats[0]["native_reference_batches"] >= 0
+        assert stats[0]["native_reference_max_batch_size"] >= 0
+        assert stats[0]["native_reference_cleaner_time"] >= 0
@@ -0,0 +1,174 @@
+# Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+# DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+#
+# The Universal Permissive License (UPL), Version 1.0
+#
+# Subject to the condition set forth below, permission is hereby granted to any
+# person obtaining a copy of this software, associated documentation and/or
+# data (collectively the "Software"), free of charge and under any and all
+# copyright rights in the Software, and any and all patent rights owned or
+# freely licensable by each licensor hereunder covering either (i) the
+# unmodified Software as contributed to or provided by such licensor, or (ii)
+# the Larger Works (as defined below), to deal in both
+#
+# (a) the Software, and
+#
+# (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+# one is included with the Software each a "Larger Work" to which the Software
+# is contributed by such licensors),
+#
+# without restriction, including without limitation the rights to copy, create
+# derivative works of, display, perform, and distribute the Software and make,
+# use, sell, offer for sale, import, export, have made, and have sold the
+# Software and the Larger Work(s), and to sublicense the foregoing rights on
+# either these or other terms.
+#
+# This license is subject to the following condition:
+#
+# The above copyright notice and either this complete permission notice or at a
+# minimum a reference to the UPL must be included in all copies or substantial
+# portions of the Software.
+#
+# THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+# IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+# FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+# AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+# LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+# OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+# SOFTWARE.
+
+import unittest
+import heapq
+import bisect
+
+
+def check_invariant(test, heap, reverse=False):
+    for pos in range(1, len(heap)):
+        parent = (pos - 1) >> 1
+        if reverse:
+            test.assertTrue(heap[pos] <= heap[parent])
+        else:
+            test.assertTrue(heap[parent] <= heap[pos])
+
+
+class HeapqTests(unittest.TestCase):
+
+    def test_push_pop_ints(self):
+        import random
+        data = [random.randrange(-1000, 1000) for _ in range(256)]
+        heap = []
+        for x in data:
+            heapq.heappush(heap, x)
+            check_invariant(self, heap)
+        self.assertEqual([heapq.heappop(heap) for _ in range(len(data))], sorted(data))
+        self.assertRaises(IndexError, heapq.heappop, heap)
+
+    def test_heapify(self):
+        for data in ([5, 3, 8, 1, 9, 2], [5.5, 3.25, -1.0, 8.0], [2**70, 3, 2**65, -2**80], ["pear", "apple", "fig", "kiwi"], [(2, "b"), (1, "z"), (1, "a")]):
+            heap = list(data)
+            heapq.heapify(heap)
+            check_invariant(self, heap)
+            self.assertEqual([heapq.heappop(heap) for _ in range(len(data))], sorted(data))
+
+    def test_generalize(self):
+        heap = [3, 1, 2]
+        heapq.heapify(heap)
+        heapq.heappush(heap, 0.5)
+        heapq.heappush(heap, 2**100)
+        self.assertEqual(heapq.heapreplace(heap, 1.5), 0.5)
+        check_invariant(self, heap)
+        self.assertEqual(sorted(heap), [1, 1.5, 2, 3, 2**100])
+
+    def test_replace_pushpop(self):
+        heap = [1, 4, 2]
+        self.assertEqual(heapq.heappushpop(heap, 0), 0)
+        self.assertEqual(heap, [1, 4, 2])
+        self.assertEqual(heapq.heappushpop(heap, 3), 1)
+        check_invariant(self, heap)
+        self.assertEqual(heapq.heappushpop([], "x"), "x")
+        self.assertRaises(IndexError, heapq.heapreplace, [], 1)
+
+    def test_max_variants(self):
+        heap = [3, 9, 1, 7, 5]
+        heapq._heapify_max(heap)
+        check_invariant(self, heap, reverse=True)
+        self.assertEqual(heapq._heapreplace_max(heap, 4), 9)
+        self.assertEqual(heapq._heappop_max(heap), 7)
+        self.assertEqual(heapq.nlargest(2, [4, 8, 1, 6]), [8, 6])
+        self.assertEqual(heapq.nsmallest(2, [4, 8, 1, 6]), [1, 4])
+        self.assertEqual(list(heapq.merge([1, 3, 5], [2, 4])), [1, 2, 3, 4, 5])
+
+    def test_errors(self):
+        self.assertRaises(TypeError, heapq.heappush, (), 1)
+        self.assertRaises(TypeError, heapq.heapify, None)
+        self.assertRaises(TypeError, heapq.heappop, "abc")
+        heap = [1, "a"]
+        self.assertRaises(TypeError, heapq.heapify, heap)
+
+    def test_mutation_during_compare(self):
+        class Evil:
+            def __init__(self, heap):
+                self.heap = heap
+
+            def __lt__(self, other):
+                self.heap.clear()
+                return False
+
+        heap = []
+        heap.append(Evil(heap))
+        heap.append(Evil(heap))
+        heap.append(Evil(heap))
+        self.assertRaises((RuntimeError, IndexError), heapq.heappop, heap)
+
+
+class BisectTests(unittest.TestCase):
+
+    def test_bisect_storages(self):
+        for data, x in (([1, 2, 2, 3, 5], 2), ([1.0, 2.0, 2.0, 3.5], 2.0), ([2**65, 2**66, 2**66], 2**66), (["a", "b", "b", "d"], "b"), ([1, 2.5, 2.5, 4], 2.5)):
+            self.assertEqual(bisect.bisect_left(data, x), data.index(x))
+            self.assertEqual(bisect.bisect_right(data, x), data.index(x) + data.count(x))
+            self.assertEqual(bisect.bisect(data, x), bisect.bisect_right(data, x))
+
+    def test_mixed_types(self):
+        self.assertEqual(bisect.bisect_left([1, 2, 3], 2.5), 2)
+        self.assertEqual(bisect.bisect_right([1.0, 2.0, 3.0], 2), 2)
+        self.assertEqual(bisect.bisect_left([1, 2, 3], 2**80), 3)
+
+    def test_lo_hi(self):
+        data = [0, 1, 2, 3, 4, 5, 6]
+        self.assertEqual(bisect.bisect_left(data, 3, 4), 4)
+        self.assertEqual(bisect.bisect_right(data, 3, 0, 2), 2)
+        self.assertEqual(bisect.bisect_right(data, 3, hi=len(data)), 4)
+        self.assertEqual(bisect.bisect_left(data, 3, lo=1, hi=-1), 3)
+        self.assertRaises(ValueError, bisect.bisect_left, data, 3, -1)
+        self.assertRaises(IndexError, bisect.bisect_left, data, 100, 0, 20)
+
+    def test_sequences(self):
+        self.assertEqual(bisect.bisect_left((1, 3, 5), 4), 2)
+        self.assertEqual(bisect.bisect_right(range(10), 4), 5)
+        self.assertEqual(bisect.bisect_right("acegi", "d"), 2)
+
+    def test_insort(self):
+        data = []
+        for x in [5, 1, 4, 2.5, 3, 2**70, 2]:
+            bisect.insort(data, x)
+        self.assertEqual(data, [1, 2, 2.5, 3, 4, 5, 2**70])
+        bisect.insort_left(data, 3)
+        self.assertEqual(data.count(3), 2)
+
+        class MyList(list):
+            def insert(self, index, item):
+                self.inserted = (index, item)
+                list.insert(self, index, item)
+
+        ml = MyList([1, 3])
+        bisect.insort_right(ml, 2)
+        self.assertEqual(ml.inserted, (1, 2))
+        self.assertEqual(ml, [1, 2, 3])
+
+    def test_list_subclass_getitem(self):
+        class Reversed(list):
+            def __getitem__(self, i):
+                return -list.__getitem__(self, i)
+
+        self.assertEqual(bisect.bisect_left(Reversed([3, 2, 1]), -2), 1)
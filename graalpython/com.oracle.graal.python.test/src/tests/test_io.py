@@ -0,0 +1,209 @@
+# Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+# DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+#
+# The Universal Permissive License (UPL), Version 1.0
+#
+# Subject to the condition set forth below, permission is hereby granted to any
+# person obtaining a copy of this software, associated documentation and/or
+# data (collectively the "Software"), free of charge and under any and all
+# copyright rights in the Software, and any and all patent rights owned or
+# freely licensable by each licensor hereunder covering either (i) the
+# unmodified Software as contributed to or provided by such licensor, or (ii)
+# the Larger Works (as defined below), to deal in both
+#
+# (a) the Software, and
+#
+# (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+# one is included with the Software each a "Larger Work" to which the Software
+# is contributed by such licensors),
+#
+# without restriction, including without limitation the rights to copy, create
+# derivative works of, display, perform, and distribute the Software and make,
+# use, sell, offer for sale, import, export, have made, and have sold the
+# Software and the Larger Work(s), and to sublicense the foregoing rights on
+# either these or other terms.
+#
+# This license is subject to the following condition:
+#
+# The above copyright notice and either this complete permission notice or at a
+# minimum a reference to the UPL must be included in all copies or substantial
+# portions of the Software.
+#
+# THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+# IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+# FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+# AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+# LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+# OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+# SOFTWARE.
+
+import _io
+import os
+import tempfile
+import threading
+
+
+def assert_raises(err, fn, *args, **kwargs):
+    raised = False
+    try:
+        fn(*args, **kwargs)
+    except err:
+        raised = True
+    assert raised
+
+
+def with_temp_file(content, fn):
+    fd, file_name = tempfile.mkstemp()
+    try:
+        os.write(fd, content)
+        os.close(fd)
+        fn(file_name)
+    finally:
+        os.unlink(file_name)
+
+
+def test_fileio():
+    def check(file_name):
+        f = _io.FileIO(file_name, "r")
+        assert f.mode == "rb"
+        assert f.name == file_name
+        assert f.readable() and not f.writable() and f.seekable()
+        assert f.read(5) == b"hello"
+        assert f.tell() == 5
+        buf = bytearray(3)
+        assert f.readinto(buf) == 3
+        assert buf == b" wo"
+        assert f.readall() == b"rld\n"
+        assert f.read(10) == b""
+        assert f.seek(-4, 2) == 8
+        assert f.read() == b"rld\n"
+        assert_raises(_io.UnsupportedOperation, f.write, b"x")
+        f.close()
+        assert f.closed
+        assert_raises(ValueError, f.read)
+        f.close()
+
+        with _io.FileIO(file_name, "a+") as f:
+            assert f.mode == "ab+"
+            assert f.tell() == 12
+            f.write(b"more")
+            f.seek(0)
+            assert f.read() == b"hello world\nmore"
+            f.truncate(5)
+        with _io.FileIO(file_name, "rb") as f:
+            assert f.read() == b"hello"
+
+    with_temp_file(b"hello world\n", check)
+
+
+def test_fileio_errors():
+    assert_raises(ValueError, _io.FileIO, ".", "rw")
+    assert_raises(ValueError, _io.FileIO, -1)
+    assert_raises(TypeError, _io.FileIO, 1.0)
+    assert_raises(FileNotFoundError, _io.FileIO, "/this/file/does/not/exist")
+    assert_raises(IsADirectoryError, _io.FileIO, tempfile.gettempdir())
+
+
+def test_buffered_reader():
+    def check(file_name):
+        with _io.BufferedReader(_io.FileIO(file_name, "r"), 4) as f:
+            assert f.peek(1).startswith(b"l")
+            assert f.readline() == b"line1\n"
+            assert f.read(2) == b"li"
+            assert f.tell() == 8
+            assert f.readline() == b"ne2\n"
+            assert list(f) == [b"a long line that does not fit into the buffer\n", b"last"]
+            assert f.read() == b""
+            f.seek(2)
+            assert f.read1(3) == b"ne1"
+            f.seek(1, 1)
+            buf = bytearray(5)
+            assert f.readinto(buf) == 5
+            assert buf == b"line2"
+            assert_raises(_io.UnsupportedOperation, f.write, b"x")
+        assert f.closed
+        assert_raises(ValueError, f.read)
+
+    with_temp_file(b"line1\nline2\na long line that does not fit into the buffer\nlast", check)
+
+
+def test_buffered_writer():
+    def check(file_name):
+        raw = _io.FileIO(file_name, "w")
+        f = _io.BufferedWriter(raw, 8)
+        assert f.write(b"abc") == 3
+        assert f.tell() == 3
+        with open(file_name, "rb") as r:
+            assert r.read() == b""
+        f.write(b"defghijklmnop")
+        f.write(b"q")
+        f.flush()
+        with open(file_name, "rb") as r:
+            assert r.read() == b"abcdefghijklmnopq"
+        f.seek(1)
+        f.write(b"X")
+        f.close()
+        assert raw.closed
+        with open(file_name, "rb") as r:
+            assert r.read() == b"aXcdefghijklmnopq"
+
+    with_temp_file(b"", check)
+
+
+def test_buffered_writer_threads():
+    def check(file_name):
+        f = _io.BufferedWriter(_io.FileIO(file_name, "w"), 64)
+        lines_per_thread = 500
+
+        def writer(tag):
+            for i in range(lines_per_thread):
+                f.write(b"%c%04d\n" % (tag, i))
+
+        threads = [threading.Thread(target=writer, args=(ord("a") + i,)) for i in range(4)]
+        for t in threads:
+            t.start()
+        for t in threads:
+            t.join()
+        f.close()
+        with open(file_name, "rb") as r:
+            lines = r.read().splitlines()
+        assert len(lines) == 4 * lines_per_thread
+        for i in range(4):
+            tag = b"%c" % (ord("a") + i)
+            assert [l for l in lines if l.startswith(tag)] == [b"%s%04d" % (tag, j) for j in range(lines_per_thread)]
+
+    with_temp_file(b"", check)
+
+
+def test_buffered_random():
+    def check(file_name):
+        with _io.BufferedRandom(_io.FileIO(file_name, "r+")) as f:
+            assert f.read(3) == b"012"
+            f.write(b"abc")
+            assert f.tell() == 6
+            assert f.read(2) == b"67"
+            f.seek(0)
+            assert f.read() == b"012abc6789"
+            f.seek(0)
+            f.truncate(4)
+            assert f.read() == b"012a"
+
+    with_temp_file(b"0123456789", check)
+
+
+def test_text_readline():
+    def check(file_name):
+        with open(file_name, "r") as f:
+            assert f.readline() == "first\n"
+            assert f.readline() == "zweite überlange Zeile\n"
+            pos = f.tell()
+            assert f.readline() == "mac\n"
+            assert f.readline() == "windows\n"
+            assert f.readline() == "last"
+            assert f.readline() == ""
+            f.seek(pos)
+            assert f.readline() == "mac\n"
+        with open(file_name, "r", newline="") as f:
+            assert f.readlines() == ["first\n", "zweite überlange Zeile\n", "mac\r", "windows\r\n", "last"]
+
+    with_temp_file("first\nzweite überlange Zeile\nmac\rwindows\r\nlast".encode("utf-8"), check)
@@ -98,3 +98,61 @@ class CombinationsTests(unittest.TestCase):
         self.assertRaises(ExpectedError, gulp, [None], keyfunc)
         keyfunc.skip = 1
         self.assertRaises(ExpectedError, gulp, [None, None], keyfunc)
+
+
+class BuiltinIteratorTests(unittest.TestCase):
+
+    def test_chain(self):
+        self.assertEqual(list(chain()), [])
+        self.assertEqual(list(chain('abc', [], range(3))), ['a', 'b', 'c', 0, 1, 2])
+        self.assertEqual(list(chain.from_iterable(['ab', '', 'cd'])), ['a', 'b', 'c', 'd'])
+        self.assertRaises(TypeError, list, chain('ab', 1))
+        it = chain([1])
+        self.assertEqual(list(it), [1])
+        self.assertEqual(list(it), [])
+
+    def test_islice(self):
+        for args in [(10,), (2, 10), (2, 10, 3), (0, None), (3, None, 2), (None,), (20,), (5, 3)]:
+            self.assertEqual(list(islice(range(10), *args)), list(range(10))[slice(*args)])
+        self.assertRaises(ValueError, islice, range(10), -1)
+        self.assertRaises(ValueError, islice, range(10), 1, 5, 0)
+        self.assertRaises(ValueError, islice, range(10), 'a')
+        self.assertRaises(TypeError, islice, range(10))
+        it = iter(range(10))
+        self.assertEqual(list(islice(it, 3)), [0, 1, 2])
+        self.assertEqual(next(it), 3)
+
+    def test_product(self):
+        self.assertEqual(list(product()), [()])
+        self.assertEqual(list(product('ab', range(2))), [('a', 0), ('a', 1), ('b', 0), ('b', 1)])
+        self.assertEqual(list(product('ab', repeat=2)), [('a', 'a'), ('a', 'b'), ('b', 'a'), ('b', 'b')])
+        self.assertEqual(list(product('ab', [])), [])
+        self.assertEqual(list(product('ab', repeat=0)), [()])
+        self.assertRaises(ValueError, product, 'ab', repeat=-1)
+
+    def test_accumulate(self):
+        self.assertEqual(list(accumulate([])), [])
+        self.assertEqual(list(accumulate(range(5))), [0, 1, 3, 6, 10])
+        self.assertEqual(list(accumulate([3, 1, 4, 1, 5], max)), [3, 3, 4, 4, 5])
+        self.assertEqual(list(accumulate('abc')), ['a', 'ab', 'abc'])
+        self.assertEqual(list(accumulate([1, 2], initial=10)), [10, 11, 13])
+
+    def test_combinations(self):
+        self.assertEqual(list(combinations('abc', 2)), [('a', 'b'), ('a', 'c'), ('b', 'c')])
+        self.assertEqual(list(combinations(range(4), 3)), [(0, 1, 2), (0, 1, 3), (0, 2, 3), (1, 2, 3)])
+        self.assertEqual(list(combinations('abc', 0)), [()])
+        self.assertEqual(list(combinations('abc', 4)), [])
+        self.assertRaises(ValueError, combinations, 'abc', -1)
+        self.assertRaises(TypeError, combinations, 'abc')
+
+    def test_groupby_invalidated_group(self):
+        groups = list(groupby('aabbb'))
+        self.assertEqual([k for k, g in groups], ['a', 'b'])
+        self.assertEqual(list(groups[0][1]), [])
+        self.assertEqual(list(groups[1][1]), [])
+        it = groupby('aabbb')
+        _, first = next(it)
+        self.assertEqual(next(first), 'a')
+        _, second = next(it)
+        self.assertEqual(list(first), [])
+        self.assertEqual(list(second), ['b', 'b', 'b'])
@@ -83,3 +83,96 @@ class JsonTest(unittest.TestCase):
             1521583201347000000,
             10,
         }
+
+    def test_roundtrip(self):
+        import json
+        data = {"a": [1, -2, 3.5, 1e100, -0.0, 2**70], "b": {"c": None, "d": True, "e": False},
+                "f": "téxt \"quoted\" \\ \n\t\x01 \U0001F600", "g": [], "h": {}}
+        for ensure_ascii in (True, False):
+            for separators in (None, (',', ':')):
+                s = json.dumps(data, ensure_ascii=ensure_ascii, separators=separators)
+                self.assertEqual(json.loads(s), data)
+        self.assertEqual(json.dumps(data["f"]), '"t\\u00e9xt \\"quoted\\" \\\\ \\n\\t\\u0001 \\ud83d\\ude00"')
+        self.assertEqual(json.dumps(data["f"], ensure_ascii=False), '"téxt \\"quoted\\" \\\\ \\n\\t\\u0001 \U0001F600"')
+        self.assertEqual(json.dumps([1.0, 0.1, 1e22, 2**70]), '[1.0, 0.1, 1e+22, 1180591620717411303424]')
+
+    def test_scanstring(self):
+        from json.decoder import scanstring
+        self.assertEqual(scanstring('"abc" x', 1), ('abc', 5))
+        self.assertEqual(scanstring('"\\ud83d\\ude00\\u00e9\\/"', 1), ('\U0001F600é/', 22))
+        self.assertEqual(scanstring('"\\ud83d"', 1), ('\ud83d', 8))
+        self.assertEqual(scanstring('"a\tb"', 1, False), ('a\tb', 5))
+        self.assertRaises(ValueError, scanstring, '"a\tb"', 1, True)
+        self.assertRaises(ValueError, scanstring, '"abc', 1)
+
+    def test_decode_errors(self):
+        import json
+        for doc, msg, pos in (('', 'Expecting value', 0),
+                              ('[1,]', 'Expecting value', 3),
+                              ('{"a" 1}', "Expecting ':' delimiter", 5),
+                              ('{"a": 1 "b": 2}', "Expecting ',' delimiter", 8),
+                              ('{1: 2}', 'Expecting property name enclosed in double quotes', 1),
+                              ('["a\\x"]', 'Invalid \\escape', 3),
+                              ('["\\u12x4"]', 'Invalid \\uXXXX escape', 3),
+                              ('"abc', 'Unterminated string starting at', 0),
+                              ('[1] x', 'Extra data', 4)):
+            with self.assertRaises(json.JSONDecodeError) as cm:
+                json.loads(doc)
+            self.assertEqual(cm.exception.msg, msg)
+            self.assertEqual(cm.exception.pos, pos)
+
+    def test_decode_hooks(self):
+        import json
+        from collections import OrderedDict
+        from decimal import Decimal
+        doc = '{"b": 1.5, "a": [2, NaN, -Infinity], "c": {"b": 3}}'
+        self.assertEqual(list(json.loads(doc, object_pairs_hook=OrderedDict).keys()), ["b", "a", "c"])
+        self.assertEqual(json.loads(doc, object_hook=lambda d: sorted(d)), ["a", "b", "c"])
+        self.assertEqual(json.loads(doc, parse_float=Decimal)["b"], Decimal("1.5"))
+        self.assertEqual(json.loads(doc, parse_int=str)["a"][0], "2")
+        self.assertEqual(json.loads(doc, parse_constant=lambda c: c)["a"][1:], ["NaN", "-Infinity"])
+        self.assertEqual(json.loads('[-0, 1E2, 2e-1, 12345678901234567890]'), [0, 100.0, 0.2, 12345678901234567890])
+
+    def test_decode_shares_keys(self):
+        import json
+        objs = json.loads('[{"name": 1}, {"name": 2}]')
+        self.assertEqual(objs, [{"name": 1}, {"name": 2}])
+        self.assertIs(list(objs[0])[0], list(objs[1])[0])
+
+    def test_encode_options(self):
+        import json
+        self.assertEqual(json.dumps({"b": 1, "a": 2}, sort_keys=True), '{"a": 2, "b": 1}')
+        self.assertEqual(json.dumps({7: 1, 2.5: 2, True: 3, None: 4}), '{"7": 1, "2.5": 2, "true": 3, "null": 4}')
+        self.assertEqual(json.dumps({(1,): 1, "a": 2}, skipkeys=True), '{"a": 2}')
+        self.assertRaises(TypeError, json.dumps, {(1,): 1})
+        self.assertEqual(json.dumps([float("nan"), float("inf"), -float("inf")]), '[NaN, Infinity, -Infinity]')
+        self.assertRaises(ValueError, json.dumps, [float("inf")], allow_nan=False)
+        self.assertEqual(json.dumps([{"a"}], default=sorted), '[["a"]]')
+        self.assertRaises(TypeError, json.dumps, object())
+
+    def test_encode_subclasses(self):
+        import json
+        from collections import OrderedDict
+
+        class MyInt(int):
+            def __repr__(self):
+                return "bad"
+
+        class MyDict(dict):
+            def items(self):
+                return reversed(list(dict.items(self)))
+
+        self.assertEqual(json.dumps([MyInt(3), OrderedDict([("b", 1), ("a", 2)])]), '[3, {"b": 1, "a": 2}]')
+        self.assertEqual(json.dumps(MyDict([("a", 1), ("b", 2)])), '{"b": 2, "a": 1}')
+
+    def test_encode_circular(self):
+        import json
+        lst = []
+        lst.append(lst)
+        self.assertRaises(ValueError, json.dumps, lst)
+        dct = {}
+        dct["a"] = dct
+        self.assertRaises(ValueError, json.dumps, dct)
+        shared = [1]
+        self.assertEqual(json.dumps([shared, shared]), '[[1], [1]]')
+        self.assertRaises(RecursionError, json.dumps, lst, check_circular=False)
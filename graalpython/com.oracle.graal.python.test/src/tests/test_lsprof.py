@@ -0,0 +1,155 @@
+# Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+# DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+#
+# The Universal Permissive License (UPL), Version 1.0
+#
+# Subject to the condition set forth below, permission is hereby granted to any
+# person obtaining a copy of this software, associated documentation and/or
+# data (collectively the "Software"), free of charge and under any and all
+# copyright rights in the Software, and any and all patent rights owned or
+# freely licensable by each licensor hereunder covering either (i) the
+# unmodified Software as contributed to or provided by such licensor, or (ii)
+# the Larger Works (as defined below), to deal in both
+#
+# (a) the Software, and
+#
+# (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+# one is included with the Software each a "Larger Work" to which the Software
+# is contributed by such licensors),
+#
+# without restriction, including without limitation the rights to copy, create
+# derivative works of, display, perform, and distribute the Software and make,
+# use, sell, offer for sale, import, export, have made, and have sold the
+# Software and the Larger Work(s), and to sublicense the foregoing rights on
+# either these or other terms.
+#
+# This license is subject to the following condition:
+#
+# The above copyright notice and either this complete permission notice or at a
+# minimum a reference to the UPL must be included in all copies or substantial
+# portions of the Software.
+#
+# THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+# IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+# FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+# AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+# LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+# OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+# SOFTWARE.
+
+import cProfile
+import pstats
+import sys
+import threading
+
+
+def fib(n):
+    if n < 2:
+        return n
+    return fib(n - 1) + fib(n - 2)
+
+
+def leaf():
+    return 1
+
+
+def caller(n):
+    for _ in range(n):
+        leaf()
+
+
+def stats_by_name(prof):
+    stats = pstats.Stats(prof).stats
+    return {func[2]: value for func, value in stats.items()}
+
+
+def test_exact_call_counts():
+    prof = cProfile.Profile()
+    prof.enable()
+    caller(25)
+    prof.disable()
+    stats = stats_by_name(prof)
+    # primitive calls, total calls, inline time, total time, callers
+    cc, nc, tt, ct, callers = stats["leaf"]
+    assert cc == 25, cc
+    assert nc == 25, nc
+    assert tt <= ct
+    assert [(key[2], value[0]) for key, value in callers.items()] == [("caller", 25)], callers
+    assert stats["caller"][1] == 1
+
+
+def test_recursive_call_counts():
+    prof = cProfile.Profile()
+    prof.enable()
+    fib(10)
+    prof.disable()
+    cc, nc, _, _, _ = stats_by_name(prof)["fib"]
+    # fib(10) makes 177 calls, only the outermost is not recursive
+    assert nc == 177, nc
+    assert cc == 1, cc
+
+
+def test_enable_twice_accumulates():
+    prof = cProfile.Profile()
+    for _ in range(2):
+        prof.enable()
+        caller(3)
+        prof.disable()
+    assert stats_by_name(prof)["leaf"][1] == 6
+
+
+def test_clear():
+    prof = cProfile.Profile()
+    prof.enable()
+    caller(3)
+    prof.disable()
+    prof.clear()
+    prof.enable()
+    leaf()
+    prof.disable()
+    stats = stats_by_name(prof)
+    assert "caller" not in stats
+    assert stats["leaf"][1] == 1
+
+
+def test_getstats_entries():
+    prof = cProfile.Profile()
+    prof.enable()
+    caller(4)
+    prof.disable()
+    entries = {getattr(e.code, "co_name", e.code): e for e in prof.getstats()}
+    entry = entries["caller"]
+    assert entry.callcount == 1
+    assert entry.totaltime >= entry.inlinetime >= 0
+    subcalls = {getattr(c.code, "co_name", c.code): c for c in entry.calls}
+    assert subcalls["leaf"].callcount == 4
+
+
+def test_getstats_while_other_thread_runs():
+    prof = cProfile.Profile()
+    stop = threading.Event()
+
+    def worker():
+        prof.enable()
+        while not stop.is_set():
+            caller(10)
+        prof.disable()
+
+    t = threading.Thread(target=worker)
+    t.start()
+    try:
+        for _ in range(20):
+            prof.getstats()
+            prof.clear()
+    finally:
+        stop.set()
+        t.join()
+
+
+if sys.implementation.name == "graalpython":
+    def test_sampling_mode():
+        prof = cProfile.Profile(deterministic=False)
+        prof.enable()
+        caller(3)
+        prof.disable()
+        assert isinstance(prof.getstats(), list)
@@ -50,3 +50,72 @@ def test_tobytes():
     b = b"\xff\x00\x00"
     v = memoryview(b)
     assert v.tobytes() == b
+
+
+def test_slice_shares_memory():
+    data = bytearray(b'abcdef')
+    v = memoryview(data)[1:5]
+    assert v.obj is data
+    assert len(v) == 4
+    assert v.tobytes() == b'bcde'
+    data[2] = ord('X')
+    assert v.tobytes() == b'bXde'
+    v[0] = ord('Y')
+    assert data == bytearray(b'aYXdef')
+    stepped = memoryview(data)[::2]
+    assert stepped.tobytes() == b'aXe'
+    assert stepped.strides == (2,)
+    assert not stepped.contiguous
+
+
+def test_readonly_bytes():
+    v = memoryview(b'abc')
+    assert v.readonly
+    try:
+        v[0] = 1
+    except TypeError:
+        pass
+    else:
+        assert False
+
+
+def test_cast_and_attributes():
+    import struct
+    data = bytearray(struct.pack('=ii', 7, -3))
+    v = memoryview(data)
+    assert v.format == 'B'
+    assert v.itemsize == 1
+    assert v.ndim == 1
+    assert v.shape == (8,)
+    ints = v.cast('i')
+    assert ints.format == 'i'
+    assert ints.itemsize == 4
+    assert ints.shape == (2,)
+    assert ints.tolist() == [7, -3]
+    ints[1] = 42
+    assert struct.unpack('=ii', data) == (7, 42)
+
+
+def test_release():
+    v = memoryview(bytearray(b'abc'))
+    with v as entered:
+        assert entered is v
+    try:
+        len(v)
+    except ValueError:
+        pass
+    else:
+        assert False
+    assert repr(v).startswith('<released memory')
+
+
+def test_shrunk_owner():
+    data = bytearray(b'abcdef')
+    v = memoryview(data)
+    try:
+        del data[2:]
+        bytes(v)
+    except BufferError:
+        pass
+    else:
+        assert False
@@ -179,6 +179,64 @@ class MmapTests(unittest.TestCase):
         self.assertTrue(m.closed, "context manager failed")
 
 
+    def test_access_modes(self):
+        with open(TESTFN, "wb") as f:
+            f.write(b"abcdefgh")
+
+        with open(TESTFN, "rb") as f:
+            with mmap.mmap(f.fileno(), 0, access=mmap.ACCESS_READ) as m:
+                self.assertEqual(m[:], b"abcdefgh")
+                with self.assertRaises(TypeError):
+                    m[0] = 0x41
+                with self.assertRaises(TypeError):
+                    m.write(b"x")
+
+        with open(TESTFN, "r+b") as f:
+            with mmap.mmap(f.fileno(), 0, access=mmap.ACCESS_COPY) as m:
+                m[0:3] = b"XYZ"
+                self.assertEqual(m[0:4], b"XYZd")
+        with open(TESTFN, "rb") as f:
+            self.assertEqual(f.read(), b"abcdefgh")
+
+        with open(TESTFN, "r+b") as f:
+            with mmap.mmap(f.fileno(), 0, access=mmap.ACCESS_WRITE) as m:
+                m[0:3] = b"XYZ"
+                m.flush()
+        with open(TESTFN, "rb") as f:
+            self.assertEqual(f.read(), b"XYZdefgh")
+
+    def test_length_and_offset_checks(self):
+        with open(TESTFN, "wb") as f:
+            f.write(b"x" * 16)
+        with open(TESTFN, "r+b") as f:
+            self.assertRaises(ValueError, mmap.mmap, f.fileno(), 32)
+        with open(TESTFN, "wb") as f:
+            pass
+        with open(TESTFN, "r+b") as f:
+            self.assertRaises(ValueError, mmap.mmap, f.fileno(), 0)
+
+    def test_file_like_access(self):
+        m = mmap.mmap(-1, 16)
+        m.write(b"one\ntwo\nthree")
+        self.assertEqual(m.tell(), 13)
+        self.assertRaises(ValueError, m.write, b"0123")
+        m.seek(0)
+        self.assertEqual(m.readline(), b"one\n")
+        self.assertEqual(m.read_byte(), ord("t"))
+        self.assertEqual(m.find(b"t"), 8)
+        m.write_byte(ord("W"))
+        self.assertEqual(m[5], ord("W"))
+        self.assertEqual(m[::4], b"otte")
+        m[1:8:2] = b"ABCD"
+        self.assertEqual(m[0:8], b"oAeBtCoD")
+        self.assertRaises(IndexError, m.__setitem__, slice(0, 2), b"abc")
+        m.seek(0, 2)
+        self.assertEqual(m.readline(), b"")
+        self.assertRaises(ValueError, m.read_byte)
+        self.assertRaises(ValueError, m.write_byte, 0)
+        m.close()
+        self.assertRaises(ValueError, m.read, 1)
+
 
 def test_main():
     #run_unittest(MmapTests, LargeMmapTests)
@@ -57,5 +57,166 @@ class TestPickle(unittest.TestCase):
         r_obj = pickle.loads(b_obj)
         self.assertEqual(r_obj, obj)
 
+    def test_roundtrip_all_protocols(self):
+        data = [None, True, False, 0, -1, 255, 65535, -2**31, 2**31, 2**100, -2**100, 1.5, -0.0,
+                1+2j, "", "abc", "\u20ac\U0001f600", b"", b"abc", bytearray(b"xyz"),
+                (), (1,), (1, 2), (1, 2, 3), (1, 2, 3, 4), [], [1, [2, [3]]],
+                {}, {"a": 1, 2: "b"}, set(), {1, 2, 3}, frozenset(), frozenset({"x"}),
+                Ellipsis, NotImplemented, type(None), int, len, ValueError("msg")]
+        for proto in range(pickle.HIGHEST_PROTOCOL + 1):
+            for obj in data:
+                r = pickle.loads(pickle.dumps(obj, proto))
+                if isinstance(obj, BaseException):
+                    self.assertEqual(type(r), type(obj))
+                    self.assertEqual(r.args, obj.args)
+                else:
+                    self.assertEqual(r, obj, (proto, obj))
+                    self.assertEqual(type(r), type(obj))
+
+    def test_large_framed_data(self):
+        obj = [bytes(range(256)) * 1000, "x" * 200000, list(range(100000)), {str(i): i for i in range(5000)}]
+        for proto in range(pickle.HIGHEST_PROTOCOL + 1):
+            self.assertEqual(pickle.loads(pickle.dumps(obj, proto)), obj)
+
+    def test_file_roundtrip(self):
+        import io
+        obj = {"data": b"y" * 100000, "items": list(range(1000))}
+        for proto in range(pickle.HIGHEST_PROTOCOL + 1):
+            f = io.BytesIO()
+            pickle.dump(obj, f, proto)
+            pickle.dump("second", f, proto)
+            f.seek(0)
+            self.assertEqual(pickle.load(f), obj)
+            self.assertEqual(pickle.load(f), "second")
+
+    def test_shared_and_recursive(self):
+        shared = [1, 2]
+        lst = [shared, shared]
+        lst.append(lst)
+        d = {}
+        d["self"] = d
+        for proto in range(pickle.HIGHEST_PROTOCOL + 1):
+            r = pickle.loads(pickle.dumps(lst, proto))
+            self.assertIs(r[0], r[1])
+            self.assertIs(r[2], r)
+            r = pickle.loads(pickle.dumps(d, proto))
+            self.assertIs(r["self"], r)
+
+    def test_custom_classes(self):
+        for proto in range(pickle.HIGHEST_PROTOCOL + 1):
+            p = Point(1, 2)
+            p.extra = "e"
+            r = pickle.loads(pickle.dumps(p, proto))
+            self.assertEqual((r.x, r.y, r.extra), (1, 2, "e"))
+            if proto >= 2:
+                r = pickle.loads(pickle.dumps(Slotted(3), proto))
+                self.assertEqual(r.a, 3)
+            r = pickle.loads(pickle.dumps(KwOnly(1, b=2), proto))
+            self.assertEqual((r.a, r.b), (1, 2))
+            r = pickle.loads(pickle.dumps(MyList([1, 2]), proto))
+            self.assertEqual(type(r), MyList)
+            self.assertEqual(r, [1, 2])
+
+    def test_pickle_buffer(self):
+        buf = pickle.PickleBuffer(b"abc")
+        self.assertEqual(bytes(buf.raw()), b"abc")
+        self.assertEqual(bytes(memoryview(buf)), b"abc")
+        buf.release()
+        self.assertRaises(ValueError, buf.raw)
+        ba = bytearray(b"data" * 1000)
+        r = pickle.loads(pickle.dumps(pickle.PickleBuffer(ba), 5))
+        self.assertEqual(r, ba)
+        self.assertEqual(type(r), bytearray)
+        self.assertRaises(pickle.PicklingError, pickle.dumps, pickle.PickleBuffer(b"x"), 4)
+
+    def test_out_of_band(self):
+        buffers = []
+        ba = bytearray(b"out of band")
+        data = pickle.dumps(pickle.PickleBuffer(ba), 5, buffer_callback=buffers.append)
+        self.assertEqual(len(buffers), 1)
+        r = pickle.loads(data, buffers=buffers)
+        self.assertEqual(bytes(r), b"out of band")
+        self.assertRaises(pickle.UnpicklingError, pickle.loads, data)
+        self.assertRaises(ValueError, pickle.dumps, 1, 4, buffer_callback=buffers.append)
+
+    def test_persistent_id(self):
+        import io
+
+        class P(pickle.Pickler):
+            def persistent_id(self, obj):
+                return "ref" if obj is Point else None
+
+        class U(pickle.Unpickler):
+            def persistent_load(self, pid):
+                return "loaded " + pid
+
+        for proto in range(pickle.HIGHEST_PROTOCOL + 1):
+            f = io.BytesIO()
+            P(f, proto).dump([1, Point, 2])
+            f.seek(0)
+            self.assertEqual(U(f).load(), [1, "loaded ref", 2])
+
+    def test_reducer_override_and_dispatch_table(self):
+        import io
+
+        class P(pickle.Pickler):
+            def reducer_override(self, obj):
+                if type(obj) is Point:
+                    return complex, (obj.x, obj.y)
+                return NotImplemented
+
+        f = io.BytesIO()
+        P(f).dump([1, Point(2, 3)])
+        self.assertEqual(pickle.loads(f.getvalue()), [1, 2+3j])
+
+        f = io.BytesIO()
+        p = pickle.Pickler(f)
+        p.dispatch_table = {Point: lambda pt: (tuple, ((pt.x, pt.y),))}
+        p.dump(Point(5, 6))
+        self.assertEqual(pickle.loads(f.getvalue()), (5, 6))
+
+    def test_errors(self):
+        self.assertRaises((pickle.PicklingError, AttributeError), pickle.dumps, lambda: 1)
+        self.assertRaises(ValueError, pickle.dumps, 1, pickle.HIGHEST_PROTOCOL + 1)
+        self.assertRaises(EOFError, pickle.loads, b"")
+        self.assertRaises(pickle.UnpicklingError, pickle.loads, b"\xff")
+        self.assertRaises(TypeError, pickle.loads, "str")
+        self.assertRaises(TypeError, pickle.Pickler, object())
+        self.assertTrue(issubclass(pickle.UnpicklingError, pickle.PickleError))
+
+    def test_protocol_0_compat(self):
+        self.assertEqual(pickle.loads(b"(lp0\nI1\naI2\na."), [1, 2])
+        self.assertEqual(pickle.loads(b"S'abc'\np0\n."), "abc")
+        self.assertEqual(pickle.loads(b"c__builtin__\nlen\np0\n."), len)
+
+
+class Point:
+    def __init__(self, x, y):
+        self.x = x
+        self.y = y
+
+
+class Slotted:
+    __slots__ = ("a",)
+
+    def __init__(self, a):
+        self.a = a
+
+
+class KwOnly:
+    def __new__(cls, a, *, b):
+        obj = object.__new__(cls)
+        obj.a = a
+        obj.b = b
+        return obj
+
+    def __getnewargs_ex__(self):
+        return (self.a,), {"b": self.b}
+
+
+class MyList(list):
+    pass
+
+
 if __name__ == '__main__':
     unittest.main()
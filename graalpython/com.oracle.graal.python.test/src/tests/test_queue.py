@@ -0,0 +1,164 @@
+# Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+# DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+#
+# The Universal Permissive License (UPL), Version 1.0
+#
+# Subject to the condition set forth below, permission is hereby granted to any
+# person obtaining a copy of this software, associated documentation and/or
+# data (collectively the "Software"), free of charge and under any and all
+# copyright rights in the Software, and any and all patent rights owned or
+# freely licensable by each licensor hereunder covering either (i) the
+# unmodified Software as contributed to or provided by such licensor, or (ii)
+# the Larger Works (as defined below), to deal in both
+#
+# (a) the Software, and
+#
+# (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+# one is included with the Software each a "Larger Work" to which the Software
+# is contributed by such licensors),
+#
+# without restriction, including without limitation the rights to copy, create
+# derivative works of, display, perform, and distribute the Software and make,
+# use, sell, offer for sale, import, export, have made, and have sold the
+# Software and the Larger Work(s), and to sublicense the foregoing rights on
+# either these or other terms.
+#
+# This license is subject to the following condition:
+#
+# The above copyright notice and either this complete permission notice or at a
+# minimum a reference to the UPL must be included in all copies or substantial
+# portions of the Software.
+#
+# THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+# IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+# FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+# AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+# LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+# OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+# SOFTWARE.
+
+import queue
+import threading
+import time
+import unittest
+
+import _queue
+
+Queue = getattr(_queue, "Queue", queue.Queue)
+
+
+class SimpleQueueTest(unittest.TestCase):
+
+    def test_fifo(self):
+        q = _queue.SimpleQueue()
+        self.assertTrue(q.empty())
+        for i in range(5):
+            q.put(i)
+        self.assertEqual(q.qsize(), 5)
+        self.assertFalse(q.empty())
+        self.assertEqual([q.get() for _ in range(5)], list(range(5)))
+        self.assertTrue(q.empty())
+
+    def test_stdlib_uses_builtin(self):
+        self.assertIs(queue.SimpleQueue, _queue.SimpleQueue)
+
+    def test_none_item(self):
+        q = _queue.SimpleQueue()
+        q.put(None)
+        q.put_nowait(None)
+        self.assertIsNone(q.get_nowait())
+        self.assertIsNone(q.get(block=False))
+
+    def test_empty(self):
+        q = _queue.SimpleQueue()
+        self.assertRaises(queue.Empty, q.get_nowait)
+        self.assertRaises(queue.Empty, q.get, False)
+        start = time.monotonic()
+        self.assertRaises(queue.Empty, q.get, timeout=0.1)
+        self.assertGreaterEqual(time.monotonic() - start, 0.09)
+
+    def test_negative_timeout(self):
+        q = _queue.SimpleQueue()
+        self.assertRaises(ValueError, q.get, timeout=-1)
+
+    def test_threads(self):
+        q = _queue.SimpleQueue()
+        results = []
+
+        def consumer():
+            while True:
+                item = q.get()
+                if item is None:
+                    break
+                results.append(item)
+
+        t = threading.Thread(target=consumer)
+        t.start()
+        for i in range(100):
+            q.put(i)
+        q.put(None)
+        t.join()
+        self.assertEqual(results, list(range(100)))
+
+
+class QueueTest(unittest.TestCase):
+
+    def test_bounded(self):
+        q = Queue(2)
+        self.assertEqual(q.maxsize, 2)
+        q.put(1)
+        q.put_nowait(2)
+        self.assertTrue(q.full())
+        self.assertRaises(queue.Full, q.put_nowait, 3)
+        self.assertRaises(queue.Full, q.put, 3, False)
+        self.assertRaises(queue.Full, q.put, 3, timeout=0.05)
+        self.assertEqual(q.get(), 1)
+        q.put(3)
+        self.assertEqual([q.get(), q.get()], [2, 3])
+        self.assertRaises(queue.Empty, q.get_nowait)
+
+    def test_unbounded(self):
+        q = Queue()
+        self.assertEqual(q.maxsize, 0)
+        for i in range(100):
+            q.put(i)
+        self.assertFalse(q.full())
+        self.assertEqual(q.qsize(), 100)
+
+    def test_blocking_put(self):
+        q = Queue(1)
+        q.put(1)
+
+        def consumer():
+            time.sleep(0.05)
+            q.get()
+
+        t = threading.Thread(target=consumer)
+        t.start()
+        q.put(2, timeout=5)
+        t.join()
+        self.assertEqual(q.get_nowait(), 2)
+
+    def test_join(self):
+        q = Queue()
+        done = []
+
+        def worker():
+            while True:
+                item = q.get()
+                if item is None:
+                    q.task_done()
+                    break
+                done.append(item)
+                q.task_done()
+
+        t = threading.Thread(target=worker)
+        t.start()
+        for i in range(10):
+            q.put(i)
+        q.put(None)
+        q.join()
+        self.assertEqual(q.unfinished_tasks, 0)
+        self.assertEqual(done, list(range(10)))
+        t.join()
+        self.assertRaises(ValueError, q.task_done)
@@ -4,6 +4,7 @@
 # Licensed under the PYTHON SOFTWARE FOUNDATION LICENSE VERSION 2
 import re
 import string
+import threading
 import unittest
 import sys
 
@@ -489,3 +490,64 @@ class ReTests(unittest.TestCase):
             r"(//?| ==?)|([[]]+)")
         for m in regex.finditer(''):
             self.fail()
+
+    def test_backreference_groups(self):
+        compiled = re.compile(r"(?P<word>\w+)\s+(?P=word)")
+        m = compiled.search("this is is a test")
+        self.assertEqual((2, 7), m.span())
+        self.assertEqual("is", m.group("word"))
+        self.assertEqual([("a", "a"), ("b", "b")], re.findall(r"(\w)(\1)", "xaaybbz"))
+        self.assertEqual("x-y-z", re.sub(r"(\w)\1", r"\1", "xx-yy-zz"))
+        self.assertEqual(["aa", "bbb"], [m.group(0) for m in re.finditer(r"(\w)\1+", "aabcbbb")])
+        self.assertIsNone(re.fullmatch(r"(a+)\1", "aaa"))
+        self.assertEqual((0, 4), re.fullmatch(r"(a+)\1", "aaaa").span())
+
+    def test_backreference_ignorecase(self):
+        self.assertTrue(re.match(r"(?i)(abc)\1", "abcABC"))
+        self.assertFalse(re.match(r"(abc)\1", "abcABC"))
+
+    def test_backreference_bytes(self):
+        m = re.search(rb"(\d+)-\1", b"12-13 44-44")
+        self.assertEqual(b"44-44", m.group(0))
+        self.assertEqual(b"44", m.group(1))
+        m = re.search(rb"(.)\1", bytearray(b"abccd"))
+        self.assertEqual((2, 4), m.span())
+
+    def test_conditional_group(self):
+        compiled = re.compile(r"(<)?(\w+)(?(1)>|$)")
+        self.assertEqual("<user>", compiled.match("<user>").group(0))
+        self.assertEqual("user", compiled.match("user").group(0))
+        self.assertIsNone(compiled.fullmatch("<user"))
+        self.assertEqual((None, "user"), compiled.match("user").groups())
+
+    def test_lookbehind_with_backreference(self):
+        m = re.search(r"(\w)(?<=a)\1", "xbbaay")
+        self.assertEqual((3, 5), m.span())
+        self.assertEqual(["bar"], re.findall(r"(?<!foo)(?<=\s)bar", "foobar bar"))
+
+    def test_backreference_long_input(self):
+        text = "ab" * 20000 + "c"
+        m = re.match(r"((?:ab)*)c\1?", text)
+        self.assertEqual(len(text), m.end())
+        self.assertEqual(40000, len(m.group(1)))
+
+    def test_backreference_shared_pattern(self):
+        compiled = re.compile(r"(\w+) \1")
+        failures = []
+
+        def worker(word):
+            text = "x %s %s y" % (word, word)
+            for _ in range(200):
+                m = compiled.search(text)
+                if m is None or m.group(1) != word:
+                    failures.append(word)
+                    return
+
+        threads = [threading.Thread(target=worker, args=("w%d" % i * (i + 1),)) for i in range(4)]
+        for t in threads:
+            t.start()
+        for t in threads:
+            t.join()
+        self.assertEqual([], failures)
+        # re-entering the same pattern from a replacement callback
+        self.assertEqual("<ab ab>", compiled.sub(lambda m: "<%s>" % compiled.search(m.group(0)).group(0), "ab ab"))
@@ -44,3 +44,100 @@ def test_select_raises_on_object_with_no_fileno_func():
     except TypeError:
         raised = True
     assert raised
+
+
+def test_poll():
+    import os
+    import select
+    r, w = os.pipe()
+    try:
+        p = select.poll()
+        p.register(r, select.POLLIN)
+        p.register(w, select.POLLOUT)
+        assert p.poll(0) == [(w, select.POLLOUT)]
+        os.write(w, b"x")
+        assert sorted(p.poll(1000)) == sorted([(r, select.POLLIN), (w, select.POLLOUT)])
+        p.modify(w, select.POLLIN)
+        assert p.poll(0) == [(r, select.POLLIN)]
+        os.read(r, 1)
+        assert p.poll(10) == []
+        p.unregister(w)
+        try:
+            p.unregister(w)
+        except KeyError:
+            pass
+        else:
+            assert False, "KeyError expected"
+        try:
+            p.modify(w, select.POLLIN)
+        except OSError:
+            pass
+        else:
+            assert False, "OSError expected"
+    finally:
+        os.close(r)
+        os.close(w)
+
+
+def test_epoll():
+    import os
+    import select
+    if not hasattr(select, "epoll"):
+        return
+    r, w = os.pipe()
+    try:
+        with select.epoll() as ep:
+            ep.register(r, select.EPOLLIN)
+            ep.register(w, select.EPOLLOUT)
+            try:
+                ep.register(r, select.EPOLLIN)
+            except FileExistsError:
+                pass
+            else:
+                assert False, "FileExistsError expected"
+            assert ep.poll(0) == [(w, select.EPOLLOUT)]
+            os.write(w, b"x")
+            assert len(ep.poll(1, 1)) == 1
+            assert sorted(ep.poll(1)) == sorted([(r, select.EPOLLIN), (w, select.EPOLLOUT)])
+            ep.unregister(w)
+            assert ep.poll(0.01) == [(r, select.EPOLLIN)]
+            try:
+                ep.unregister(w)
+            except FileNotFoundError:
+                pass
+            else:
+                assert False, "FileNotFoundError expected"
+            try:
+                ep.poll(0, 0)
+            except ValueError:
+                pass
+            else:
+                assert False, "ValueError expected"
+        assert ep.closed
+        try:
+            ep.poll(0)
+        except ValueError:
+            pass
+        else:
+            assert False, "ValueError expected"
+    finally:
+        os.close(r)
+        os.close(w)
+
+
+def test_selectors_default():
+    import os
+    import selectors
+    r, w = os.pipe()
+    try:
+        with selectors.DefaultSelector() as sel:
+            sel.register(r, selectors.EVENT_READ, "data")
+            assert sel.select(0) == []
+            os.write(w, b"x")
+            ready = sel.select(1)
+            assert len(ready) == 1
+            assert ready[0][0].data == "data"
+            assert ready[0][1] == selectors.EVENT_READ
+    finally:
+        os.close(r)
+        os.close(w)
@@ -66,3 +66,79 @@ def test_get_name_info():
     except TypeError:
         raised = True
     assert raised
+
+
+class TestTransfer(unittest.TestCase):
+    def setUp(self):
+        self.server = socket.socket(socket.AF_INET, socket.SOCK_STREAM)
+        self.server.bind(("127.0.0.1", 0))
+        self.server.listen(1)
+        self.client = socket.socket(socket.AF_INET, socket.SOCK_STREAM)
+        self.client.connect(self.server.getsockname())
+        self.conn, _ = self.server.accept()
+
+    def tearDown(self):
+        self.conn.close()
+        self.client.close()
+        self.server.close()
+
+    def recv_exactly(self, n):
+        buf = bytearray(n)
+        view = memoryview(buf)
+        received = 0
+        while received < n:
+            count = self.conn.recv_into(view[received:], n - received)
+            self.assertGreater(count, 0)
+            received += count
+        return bytes(buf)
+
+    def test_send_recv(self):
+        self.assertEqual(self.client.send(b"hello"), 5)
+        self.assertEqual(self.recv_exactly(5), b"hello")
+        self.client.sendall(bytearray(b"world"))
+        self.assertEqual(self.conn.recv(5), b"world")
+
+    def test_sendall_large_memoryview_slice(self):
+        data = bytes(range(256)) * 1024
+        self.client.sendall(memoryview(data)[1000:201000])
+        self.assertEqual(self.recv_exactly(200000), data[1000:201000])
+
+    def test_recv_into_nbytes(self):
+        self.client.sendall(b"abcdef")
+        buf = bytearray(10)
+        received = 0
+        while received < 3:
+            received += self.conn.recv_into(memoryview(buf)[received:], 3 - received)
+        self.assertEqual(bytes(buf), b"abc" + bytes(7))
+        self.assertRaises(ValueError, self.conn.recv_into, buf, 11)
+        self.assertRaises(ValueError, self.conn.recv_into, buf, -1)
+
+    def test_sendmsg(self):
+        if not hasattr(self.client, "sendmsg"):
+            return
+        sent = self.client.sendmsg([b"ab", bytearray(b"cd"), memoryview(b"xefx")[1:3]])
+        self.assertEqual(self.recv_exactly(sent), b"abcdef"[:sent])
+
+    def test_eof(self):
+        self.client.close()
+        self.assertEqual(self.conn.recv(10), b"")
+        self.assertEqual(self.conn.recv_into(bytearray(10)), 0)
+
+    def test_concurrent_send_and_recv(self):
+        import threading
+        outgoing = bytes(range(256)) * 800
+        incoming = bytes(reversed(range(256))) * 800
+        threads = [threading.Thread(target=self.conn.sendall, args=(outgoing,)),
+                   threading.Thread(target=self.client.sendall, args=(incoming,))]
+        for t in threads:
+            t.start()
+        self.assertEqual(self.recv_exactly(len(incoming)), incoming)
+        buf = bytearray(len(outgoing))
+        received = 0
+        while received < len(buf):
+            count = self.client.recv_into(memoryview(buf)[received:])
+            self.assertGreater(count, 0)
+            received += count
+        for t in threads:
+            t.join()
+        self.assertEqual(bytes(buf), outgoing)
@@ -3,6 +3,7 @@
 #
 # Licensed under the PYTHON SOFTWARE FOUNDATION LICENSE VERSION 2
 # Test of a sorted() written in Python
+import builtins
 import unittest
 
 def sorted(iterable):
@@ -37,3 +38,72 @@ class TestSorted(unittest.TestCase):
     def test_baddecorator(self):
         data = 'The quick Brown fox Jumped over The lazy Dog'.split()
         self.assertRaises(TypeError, sorted, data, None, lambda x,y: 0)
+
+    def test_primitive_storages(self):
+        import random
+        for data in ([random.randint(-1000, 1000) for i in range(500)],
+                     [random.randint(-2**40, 2**40) for i in range(500)],
+                     [random.random() for i in range(500)]):
+            expected = list(data)
+            # simple insertion sort as reference
+            for i in range(1, len(expected)):
+                j = i
+                while j > 0 and expected[j] < expected[j - 1]:
+                    expected[j], expected[j - 1] = expected[j - 1], expected[j]
+                    j -= 1
+            self.assertEqual(builtins.sorted(data), expected)
+            self.assertEqual(builtins.sorted(data, reverse=True), expected[::-1])
+
+    def test_float_zeros_and_nan(self):
+        data = [0.0, -0.0, 1.0, -0.0, 0.0]
+        self.assertEqual([str(x) for x in builtins.sorted(data)], ['0.0', '-0.0', '-0.0', '0.0', '1.0'])
+        self.assertEqual([str(x) for x in builtins.sorted(data, reverse=True)], ['1.0', '0.0', '-0.0', '-0.0', '0.0'])
+        nan = float('nan')
+        self.assertEqual(len(builtins.sorted([3.0, nan, 1.0, nan, 2.0])), 5)
+
+    def test_stability(self):
+        data = [(i % 7, i) for i in range(200)]
+        result = builtins.sorted(data, key=lambda t: t[0])
+        for i in range(1, len(result)):
+            a, b = result[i - 1], result[i]
+            self.assertTrue(a[0] < b[0] or (a[0] == b[0] and a[1] < b[1]))
+        result = builtins.sorted(data, key=lambda t: t[0], reverse=True)
+        for i in range(1, len(result)):
+            a, b = result[i - 1], result[i]
+            self.assertTrue(a[0] > b[0] or (a[0] == b[0] and a[1] < b[1]))
+
+    def test_strings(self):
+        data = 'The quick Brown fox Jumped over The lazy Dog'.split()
+        self.assertEqual(builtins.sorted(data), ['Brown', 'Dog', 'Jumped', 'The', 'The', 'fox', 'lazy', 'over', 'quick'])
+        self.assertEqual(builtins.sorted(data, key=str.lower), ['Brown', 'Dog', 'fox', 'Jumped', 'lazy', 'over', 'quick', 'The', 'The'])
+
+    def test_mixed_and_runs(self):
+        data = list(range(100)) + list(range(100, 0, -1)) + [x * 0.5 for x in range(100)]
+        result = builtins.sorted(data)
+        for i in range(1, len(result)):
+            self.assertLessEqual(result[i - 1], result[i])
+        self.assertRaises(TypeError, sorted, [1, 'a', 2])
+
+    def test_modified_during_sort(self):
+        lst = [5, 3, 1, 4, 2]
+
+        def key(x):
+            lst.append(x)
+            return x
+
+        self.assertRaises(ValueError, lst.sort, key=key)
+        self.assertEqual(lst, [1, 2, 3, 4, 5])
+
+    def test_exception_keeps_items(self):
+        class Bad:
+            def __init__(self, v):
+                self.v = v
+
+            def __lt__(self, other):
+                if self.v == 13 or other.v == 13:
+                    raise RuntimeError
+                return self.v < other.v
+
+        lst = [Bad(i) for i in range(50, 0, -1)]
+        self.assertRaises(RuntimeError, lst.sort)
+        self.assertEqual(builtins.sorted(b.v for b in lst), list(range(1, 51)))
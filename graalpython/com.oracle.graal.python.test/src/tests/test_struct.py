@@ -145,3 +145,50 @@ def test_pack_unpack():
 def test_pack_nan():
     import math
     assert struct.pack('<d', math.nan) == b'\x00\x00\x00\x00\x00\x00\xf8\x7f'
+
+
+def test_struct_object():
+    s = struct.Struct('<IHQ')
+    assert s.format == '<IHQ'
+    assert s.size == 14
+    data = s.pack(1, 2, 3)
+    assert data == b'\x01\x00\x00\x00\x02\x00\x03\x00\x00\x00\x00\x00\x00\x00'
+    assert s.unpack(data) == (1, 2, 3)
+    assert struct.Struct(b'>h').unpack(b'\xff\xfe') == (-2,)
+    assert struct.unpack('<Q', b'\xff' * 8) == (2 ** 64 - 1,)
+
+
+def test_pack_into_unpack_from():
+    buf = bytearray(16)
+    struct.pack_into('<IH', buf, 2, 0x01020304, 0x0506)
+    assert buf[:8] == bytearray(b'\x00\x00\x04\x03\x02\x01\x06\x05')
+    assert struct.unpack_from('<IH', buf, 2) == (0x01020304, 0x0506)
+    assert struct.unpack_from('<IH', buf, offset=2) == (0x01020304, 0x0506)
+    assert struct.unpack_from('<H', memoryview(buf), -10) == (0x0506,)
+    struct.pack_into('>h', buf, -2, -2)
+    assert buf[-2:] == b'\xff\xfe'
+
+    def assert_error(fn, *args):
+        try:
+            fn(*args)
+        except struct.error:
+            pass
+        else:
+            assert False, "expected struct.error"
+
+    assert_error(struct.unpack_from, '<Q', buf, 10)
+    assert_error(struct.pack_into, '<Q', buf, 10, 1)
+    assert_error(struct.pack, '<I', -1)
+    assert_error(struct.pack, 'b', 128)
+    assert_error(struct.pack, '<I', 'a')
+    assert_error(struct.pack, '3s')
+    assert_error(struct.calcsize, '3')
+    assert_error(struct.calcsize, '<P')
+
+
+def test_iter_unpack():
+    it = struct.iter_unpack('<H', b'\x01\x00\x02\x00\x03\x00')
+    assert it.__length_hint__() == 3
+    assert list(it) == [(1,), (2,), (3,)]
+    assert it.__length_hint__() == 0
+    assert [x for x, y in struct.Struct('bb').iter_unpack(bytearray(b'\x01\x02\x03\x04'))] == [1, 3]
@@ -164,6 +164,81 @@ class CompressTests(BaseCompressTestCase, unittest.TestCase):
         compressed = zlib.compress(data, 1)
         self.assertEqual(zlib.decompress(compressed, 15, CustomInt()), data)
 
+class CompressObjectTests(unittest.TestCase):
+    # Test compression object
+    def test_pair(self):
+        data = HAMLET_SCENE * 16
+        for wbits in (zlib.MAX_WBITS, -zlib.MAX_WBITS, 16 + zlib.MAX_WBITS):
+            co = zlib.compressobj(6, zlib.DEFLATED, wbits)
+            x = co.compress(data[:1000]) + co.compress(data[1000:]) + co.flush()
+            self.assertRaises(zlib.error, co.compress, b"more")
+            dco = zlib.decompressobj(wbits)
+            y = b"".join(dco.decompress(x[i:i + 64]) for i in range(0, len(x), 64))
+            self.assertEqual(data, y + dco.flush())
+            self.assertTrue(dco.eof)
+
+    def test_gzip_auto_detect(self):
+        co = zlib.compressobj(wbits=16 + zlib.MAX_WBITS)
+        gz = co.compress(HAMLET_SCENE) + co.flush()
+        self.assertEqual(gz[:2], b"\x1f\x8b")
+        self.assertEqual(zlib.decompress(gz, 32 + zlib.MAX_WBITS), HAMLET_SCENE)
+        self.assertEqual(zlib.decompress(zlib.compress(HAMLET_SCENE), 32 + zlib.MAX_WBITS), HAMLET_SCENE)
+        import gzip
+        self.assertEqual(gzip.decompress(gz), HAMLET_SCENE)
+        self.assertEqual(zlib.decompress(gzip.compress(HAMLET_SCENE), 16 + zlib.MAX_WBITS), HAMLET_SCENE)
+
+    def test_sync_flush(self):
+        co = zlib.compressobj()
+        dco = zlib.decompressobj()
+        out = b""
+        for i in range(0, len(HAMLET_SCENE), 100):
+            chunk = co.compress(HAMLET_SCENE[i:i + 100]) + co.flush(zlib.Z_SYNC_FLUSH)
+            out += dco.decompress(chunk)
+            # everything compressed so far can be decompressed
+            self.assertEqual(out, HAMLET_SCENE[:i + 100])
+        self.assertEqual(co.flush(zlib.Z_NO_FLUSH), b"")
+
+    def test_max_length(self):
+        data = HAMLET_SCENE * 8
+        x = zlib.compress(data)
+        dco = zlib.decompressobj()
+        out = dco.decompress(x, 100)
+        self.assertEqual(len(out), 100)
+        while dco.unconsumed_tail:
+            chunk = dco.decompress(dco.unconsumed_tail, 100)
+            self.assertLessEqual(len(chunk), 100)
+            out += chunk
+        out += dco.flush()
+        self.assertEqual(out, data)
+        self.assertRaises(ValueError, dco.decompress, x, -1)
+
+    def test_unused_data(self):
+        x = zlib.compress(HAMLET_SCENE)
+        dco = zlib.decompressobj()
+        self.assertEqual(dco.decompress(x + b"tail"), HAMLET_SCENE)
+        self.assertTrue(dco.eof)
+        self.assertEqual(dco.unused_data, b"tail")
+        self.assertEqual(dco.decompress(b"more"), b"")
+        self.assertEqual(dco.unused_data, b"tailmore")
+
+    def test_dictionary(self):
+        zdict = b"LAERTES POLONIUS OPHELIA Farewell blessing"
+        co = zlib.compressobj(zdict=zdict)
+        x = co.compress(HAMLET_SCENE) + co.flush()
+        self.assertEqual(zlib.decompressobj(zdict=zdict).decompress(x), HAMLET_SCENE)
+        self.assertRaises(zlib.error, zlib.decompressobj().decompress, x)
+
+    def test_copy_fresh(self):
+        co = zlib.compressobj().copy()
+        x = co.compress(HAMLET_SCENE) + co.flush()
+        self.assertEqual(zlib.decompressobj().copy().decompress(x), HAMLET_SCENE)
+
+    def test_invalid_options(self):
+        self.assertRaises(ValueError, zlib.compressobj, 1, zlib.DEFLATED, 0)
+        self.assertRaises(ValueError, zlib.decompressobj, 100)
+        self.assertRaises(zlib.error, zlib.decompress, b"garbage")
+
+
 HAMLET_SCENE = b"""
 LAERTES
 
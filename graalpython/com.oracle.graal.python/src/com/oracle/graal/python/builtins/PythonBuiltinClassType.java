@@ -125,8 +125,42 @@ public enum PythonBuiltinClassType implements LazyPythonClass {
     PDirEntry("DirEntry", "posix"),
     PLZMACompressor("LZMACompressor", "_lzma"),
     PLZMADecompressor("LZMADecompressor", "_lzma"),
+    PZLibCompress("Compress", "zlib"),
+    PZLibDecompress("Decompress", "zlib"),
     LsprofProfiler("Profiler", "_lsprof"),
     PStruct("Struct", "_struct"),
+    PStructUnpackIterator("unpack_iterator"),
+    PSRECode("SRE_Code"),
+    PDeque("deque", "_collections"),
+    PDequeIter("_deque_iterator", "_collections"),
+    PDequeRevIter("_deque_reverse_iterator", "_collections"),
+    PPartial("partial", "_functools"),
+    PLruCacheWrapper("_lru_cache_wrapper", "_functools"),
+    JSONScanner("Scanner", "_json"),
+    JSONEncoder("Encoder", "_json"),
+    PPickler("Pickler", "_pickle"),
+    PUnpickler("Unpickler", "_pickle"),
+    PPickleBuffer("PickleBuffer", "_pickle", false),
+    PPoll("poll", "select", false),
+    PEpoll("epoll", "select"),
+    PFuture("Future", "_asyncio"),
+    PTask("Task", "_asyncio"),
+    PFutureIter("FutureIter"),
+    PConcurrentFuture("Future", "_concurrent"),
+    PThreadPoolExecutor("ThreadPoolExecutor", "_concurrent"),
+    PSimpleQueue("SimpleQueue", "_queue"),
+    PQueue("Queue", "_queue"),
+    PAccumulate("accumulate", "itertools"),
+    PChain("chain", "itertools"),
+    PCombinations("combinations", "itertools"),
+    PGroupBy("groupby", "itertools"),
+    PGrouper("_grouper", "itertools"),
+    PIslice("islice", "itertools"),
+    PProduct("product", "itertools"),
+    PFileIO("FileIO", "_io"),
+    PBufferedReader("BufferedReader", "_io"),
+    PBufferedWriter("BufferedWriter", "_io"),
+    PBufferedRandom("BufferedRandom", "_io"),
 
     // Errors and exceptions:
 
@@ -174,6 +208,9 @@ public enum PythonBuiltinClassType implements LazyPythonClass {
     ZLibError("error", "zlib"),
     LZMAError("LZMAError", "_lzma"),
     StructError("StructError", "_struct"),
+    PickleError("PickleError", "_pickle"),
+    PicklingError("PicklingError", "_pickle"),
+    UnpicklingError("UnpicklingError", "_pickle"),
     SocketGAIError("gaierror", "_socket"),
     SocketHError("herror", "_socket"),
     SocketTimeout("timeout", "_socket"),
@@ -301,6 +338,7 @@ public enum PythonBuiltinClassType implements LazyPythonClass {
         PythonObject.base = null;
 
         Boolean.base = PInt;
+        PTask.base = PFuture;
 
         SystemExit.base = PBaseException;
         KeyboardInterrupt.base = PBaseException;
@@ -343,6 +381,10 @@ public enum PythonBuiltinClassType implements LazyPythonClass {
         ZipImportError.base = ImportError;
         ZLibError.base = Exception;
         LZMAError.base = Exception;
+        StructError.base = Exception;
+        PickleError.base = Exception;
+        PicklingError.base = PickleError;
+        UnpicklingError.base = PickleError;
         SocketGAIError.base = OSError;
         SocketHError.base = OSError;
         SocketTimeout.base = OSError;
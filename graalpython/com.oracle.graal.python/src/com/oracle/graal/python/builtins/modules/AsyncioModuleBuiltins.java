@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.modules;
+
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.RuntimeError;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.asyncio.AsyncioUtils;
+import com.oracle.graal.python.builtins.objects.asyncio.PFuture;
+import com.oracle.graal.python.builtins.objects.asyncio.PTask;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.runtime.PythonCore;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+
+@CoreFunctions(defineModule = AsyncioUtils.MODULE_NAME)
+public class AsyncioModuleBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return AsyncioModuleBuiltinsFactory.getFactories();
+    }
+
+    @Override
+    public void postInitialize(PythonCore core) {
+        super.postInitialize(core);
+        core.lookupBuiltinModule(AsyncioUtils.MODULE_NAME).setAttribute(AsyncioUtils.CURRENT_TASKS, core.factory().createDict());
+    }
+
+    @Builtin(name = "Future", minNumOfPositionalArgs = 1, takesVarArgs = true, takesVarKeywordArgs = true, constructsClass = PythonBuiltinClassType.PFuture)
+    @GenerateNodeFactory
+    abstract static class FutureNode extends PythonBuiltinNode {
+        @Specialization
+        PFuture doNew(Object cls, @SuppressWarnings("unused") Object[] args, @SuppressWarnings("unused") PKeyword[] kwargs) {
+            return factory().createFuture(cls);
+        }
+    }
+
+    @Builtin(name = "Task", minNumOfPositionalArgs = 1, takesVarArgs = true, takesVarKeywordArgs = true, constructsClass = PythonBuiltinClassType.PTask)
+    @GenerateNodeFactory
+    abstract static class TaskNode extends PythonBuiltinNode {
+        @Specialization
+        PTask doNew(Object cls, @SuppressWarnings("unused") Object[] args, @SuppressWarnings("unused") PKeyword[] kwargs) {
+            return factory().createTask(cls);
+        }
+    }
+
+    @Builtin(name = "_get_running_loop")
+    @GenerateNodeFactory
+    abstract static class GetRunningLoopOrNoneNode extends PythonBuiltinNode {
+        @Specialization
+        Object get() {
+            Object loop = AsyncioUtils.getRunningLoop(getContext());
+            return loop == null ? PNone.NONE : loop;
+        }
+    }
+
+    @Builtin(name = "_set_running_loop", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class SetRunningLoopNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        Object set(Object loop) {
+            getContext().setRunningAsyncioLoop(loop);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "get_running_loop")
+    @GenerateNodeFactory
+    abstract static class GetRunningLoopNode extends PythonBuiltinNode {
+        @Specialization
+        Object get() {
+            Object loop = AsyncioUtils.getRunningLoop(getContext());
+            if (loop == null) {
+                throw raise(RuntimeError, ErrorMessages.NO_RUNNING_EVENT_LOOP);
+            }
+            return loop;
+        }
+    }
+
+    @Builtin(name = "get_event_loop")
+    @GenerateNodeFactory
+    abstract static class GetEventLoopNode extends PythonBuiltinNode {
+        @Specialization
+        Object get() {
+            return AsyncioUtils.getEventLoop(getContext());
+        }
+    }
+
+    @Builtin(name = "_register_task", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class RegisterTaskNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        Object register(Object task) {
+            AsyncioUtils.registerTask(getContext(), task);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "_unregister_task", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class UnregisterTaskNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        Object unregister(Object task) {
+            AsyncioUtils.unregisterTask(getContext(), task);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "_enter_task", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class EnterTaskNode extends PythonBinaryBuiltinNode {
+        @Specialization
+        Object enter(Object loop, Object task) {
+            AsyncioUtils.enterTask(getContext(), loop, task);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "_leave_task", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class LeaveTaskNode extends PythonBinaryBuiltinNode {
+        @Specialization
+        Object leave(Object loop, Object task) {
+            AsyncioUtils.leaveTask(getContext(), loop, task);
+            return PNone.NONE;
+        }
+    }
+}
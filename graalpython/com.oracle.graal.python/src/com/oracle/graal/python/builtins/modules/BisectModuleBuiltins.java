@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.modules;
+
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.IndexError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.modules.BisectModuleBuiltinsFactory.BisectNodeGen;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes.GetItemScalarNode;
+import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes.InsertItemNode;
+import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes.LenNode;
+import com.oracle.graal.python.builtins.objects.function.PArguments;
+import com.oracle.graal.python.builtins.objects.list.ListSortNodes.LessThanNode;
+import com.oracle.graal.python.builtins.objects.list.PList;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.PNodeWithContext;
+import com.oracle.graal.python.nodes.PRaiseNode;
+import com.oracle.graal.python.nodes.SpecialMethodNames;
+import com.oracle.graal.python.nodes.attributes.GetAttributeNode;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.call.special.LookupAndCallBinaryNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonQuaternaryBuiltinNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.runtime.PythonOptions;
+import com.oracle.graal.python.runtime.sequence.storage.DoubleSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.IntSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.LongSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.ImportStatic;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.library.CachedLibrary;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+
+/**
+ * The binary searches of {@code bisect}. Exact lists are searched on their storage, and lists with
+ * {@code int}, {@code long} or {@code float} storage are compared without calling {@code __lt__}.
+ */
+@CoreFunctions(defineModule = "_bisect")
+public class BisectModuleBuiltins extends PythonBuiltins {
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return BisectModuleBuiltinsFactory.getFactories();
+    }
+
+    /**
+     * Returns the insertion index of {@code x} in {@code a[lo:hi]}, or in {@code a[lo:]} if
+     * {@code hi} is {@code -1}. With {@code right}, the index is after all items equal to
+     * {@code x}, otherwise before them.
+     */
+    @ImportStatic({PGuards.class, PythonOptions.class, SpecialMethodNames.class})
+    abstract static class BisectNode extends PNodeWithContext {
+
+        abstract int execute(VirtualFrame frame, Object a, Object x, int lo, int hi, boolean right);
+
+        @Specialization(guards = {"isExactList(a, profile)", "isIntStorage(a)"})
+        static int doInt(PList a, int x, int lo, int hi, boolean right,
+                        @Cached @SuppressWarnings("unused") IsBuiltinClassProfile profile,
+                        @Cached PRaiseNode raiseNode) {
+            IntSequenceStorage storage = (IntSequenceStorage) a.getSequenceStorage();
+            int[] array = storage.getInternalIntArray();
+            int len = storage.length();
+            int l = lo;
+            int h = hi == -1 ? len : hi;
+            while (l < h) {
+                int mid = (l + h) >>> 1;
+                checkIndex(mid, len, raiseNode);
+                if (right ? x < array[mid] : !(array[mid] < x)) {
+                    h = mid;
+                } else {
+                    l = mid + 1;
+                }
+            }
+            return l;
+        }
+
+        @Specialization(guards = {"isExactList(a, profile)", "isLongStorage(a)"})
+        static int doLong(PList a, long x, int lo, int hi, boolean right,
+                        @Cached @SuppressWarnings("unused") IsBuiltinClassProfile profile,
+                        @Cached PRaiseNode raiseNode) {
+            LongSequenceStorage storage = (LongSequenceStorage) a.getSequenceStorage();
+            long[] array = storage.getInternalLongArray();
+            int len = storage.length();
+            int l = lo;
+            int h = hi == -1 ? len : hi;
+            while (l < h) {
+                int mid = (l + h) >>> 1;
+                checkIndex(mid, len, raiseNode);
+                if (right ? x < array[mid] : !(array[mid] < x)) {
+                    h = mid;
+                } else {
+                    l = mid + 1;
+                }
+            }
+            return l;
+        }
+
+        @Specialization(guards = {"isExactList(a, profile)", "isDoubleStorage(a)"})
+        static int doDouble(PList a, double x, int lo, int hi, boolean right,
+                        @Cached @SuppressWarnings("unused") IsBuiltinClassProfile profile,
+                        @Cached PRaiseNode raiseNode) {
+            DoubleSequenceStorage storage = (DoubleSequenceStorage) a.getSequenceStorage();
+            double[] array = storage.getInternalDoubleArray();
+            int len = storage.length();
+            int l = lo;
+            int h = hi == -1 ? len : hi;
+            while (l < h) {
+                int mid = (l + h) >>> 1;
+                checkIndex(mid, len, raiseNode);
+                if (right ? x < array[mid] : !(array[mid] < x)) {
+                    h = mid;
+                } else {
+                    l = mid + 1;
+                }
+            }
+            return l;
+        }
+
+        @Specialization(replaces = {"doInt", "doLong", "doDouble"}, limit = "getCallSiteInlineCacheMaxDepth()")
+        static int doGeneric(VirtualFrame frame, Object a, Object x, int lo, int hi, boolean right,
+                        @Cached IsBuiltinClassProfile profile,
+                        @Cached LenNode lenNode,
+                        @Cached GetItemScalarNode getItemNode,
+                        @Cached("create(__GETITEM__)") LookupAndCallBinaryNode callGetItemNode,
+                        @Cached LessThanNode lessThanNode,
+                        @CachedLibrary("a") PythonObjectLibrary lib,
+                        @Cached("createBinaryProfile()") ConditionProfile isListProfile,
+                        @Cached PRaiseNode raiseNode) {
+            boolean isList = isListProfile.profile(isExactList(a, profile));
+            int l = lo;
+            int h = hi;
+            if (h == -1) {
+                h = isList ? lenNode.execute(((PList) a).getSequenceStorage()) : lib.lengthWithState(a, PArguments.getThreadState(frame));
+            }
+            while (l < h) {
+                int mid = (l + h) >>> 1;
+                Object item;
+                if (isList) {
+                    // comparisons may run arbitrary code, so the storage is fetched every time
+                    SequenceStorage storage = ((PList) a).getSequenceStorage();
+                    checkIndex(mid, lenNode.execute(storage), raiseNode);
+                    item = getItemNode.execute(storage, mid);
+                } else {
+                    item = callGetItemNode.executeObject(frame, a, mid);
+                }
+                if (right ? lessThanNode.execute(frame, x, item) : !lessThanNode.execute(frame, item, x)) {
+                    h = mid;
+                } else {
+                    l = mid + 1;
+                }
+            }
+            return l;
+        }
+
+        static boolean isExactList(Object a, IsBuiltinClassProfile profile) {
+            return a instanceof PList && profile.profileObject(a, PythonBuiltinClassType.PList);
+        }
+
+        private static void checkIndex(int index, int len, PRaiseNode raiseNode) {
+            if (index >= len) {
+                throw raiseNode.raise(IndexError, ErrorMessages.LIST_INDEX_OUT_OF_RANGE);
+            }
+        }
+
+        static BisectNode create() {
+            return BisectNodeGen.create();
+        }
+    }
+
+    /**
+     * The common argument handling of the {@code bisect_*} and {@code insort_*} functions.
+     */
+    abstract static class BisectBuiltinNode extends PythonQuaternaryBuiltinNode {
+
+        abstract boolean isRight();
+
+        int search(VirtualFrame frame, Object a, Object x, Object lo, Object hi, BisectNode bisectNode, PythonObjectLibrary lib) {
+            int l = 0;
+            if (!PGuards.isNoValue(lo)) {
+                l = lib.asSizeWithState(lo, PArguments.getThreadState(frame));
+                if (l < 0) {
+                    throw raise(ValueError, ErrorMessages.MUST_BE_NON_NEGATIVE, "lo");
+                }
+            }
+            int h = -1;
+            if (!PGuards.isNoValue(hi) && !PGuards.isNone(hi)) {
+                h = lib.asSizeWithState(hi, PArguments.getThreadState(frame));
+            }
+            return bisectNode.execute(frame, a, x, l, h, isRight());
+        }
+    }
+
+    abstract static class BisectSearchNode extends BisectBuiltinNode {
+        @Specialization
+        int bisect(VirtualFrame frame, Object a, Object x, Object lo, Object hi,
+                        @Cached BisectNode bisectNode,
+                        @CachedLibrary(limit = "getCallSiteInlineCacheMaxDepth()") PythonObjectLibrary lib) {
+            return search(frame, a, x, lo, hi, bisectNode, lib);
+        }
+    }
+
+    abstract static class InsortNode extends BisectBuiltinNode {
+        @Specialization
+        PNone insort(VirtualFrame frame, Object a, Object x, Object lo, Object hi,
+                        @Cached BisectNode bisectNode,
+                        @CachedLibrary(limit = "getCallSiteInlineCacheMaxDepth()") PythonObjectLibrary lib,
+                        @Cached IsBuiltinClassProfile profile,
+                        @Cached InsertItemNode insertItemNode,
+                        @Cached("create(INSERT)") GetAttributeNode getInsertNode,
+                        @Cached CallNode callNode) {
+            int index = search(frame, a, x, lo, hi, bisectNode, lib);
+            if (BisectNode.isExactList(a, profile)) {
+                PList list = (PList) a;
+                list.setSequenceStorage(insertItemNode.execute(list.getSequenceStorage(), index, x));
+            } else {
+                callNode.execute(frame, getInsertNode.executeObject(frame, a), index, x);
+            }
+            return PNone.NONE;
+        }
+
+        static final String INSERT = "insert";
+    }
+
+    @Builtin(name = "bisect_right", minNumOfPositionalArgs = 2, parameterNames = {"a", "x", "lo", "hi"})
+    @GenerateNodeFactory
+    abstract static class BisectRightNode extends BisectSearchNode {
+        @Override
+        boolean isRight() {
+            return true;
+        }
+    }
+
+    @Builtin(name = "bisect_left", minNumOfPositionalArgs = 2, parameterNames = {"a", "x", "lo", "hi"})
+    @GenerateNodeFactory
+    abstract static class BisectLeftNode extends BisectSearchNode {
+        @Override
+        boolean isRight() {
+            return false;
+        }
+    }
+
+    @Builtin(name = "insort_right", minNumOfPositionalArgs = 2, parameterNames = {"a", "x", "lo", "hi"})
+    @GenerateNodeFactory
+    abstract static class InsortRightNode extends InsortNode {
+        @Override
+        boolean isRight() {
+            return true;
+        }
+    }
+
+    @Builtin(name = "insort_left", minNumOfPositionalArgs = 2, parameterNames = {"a", "x", "lo", "hi"})
+    @GenerateNodeFactory
+    abstract static class InsortLeftNode extends InsortNode {
+        @Override
+        boolean isRight() {
+            return false;
+        }
+    }
+}
@@ -102,6 +102,7 @@ import com.oracle.graal.python.builtins.PythonBuiltins;
 import com.oracle.graal.python.builtins.objects.PEllipsis;
 import com.oracle.graal.python.builtins.objects.PNone;
 import com.oracle.graal.python.builtins.objects.PNotImplemented;
+import com.oracle.graal.python.builtins.objects.array.PArray;
 import com.oracle.graal.python.builtins.objects.bytes.BytesNodes;
 import com.oracle.graal.python.builtins.objects.bytes.BytesUtils;
 import com.oracle.graal.python.builtins.objects.bytes.PByteArray;
@@ -149,6 +150,7 @@ import com.oracle.graal.python.builtins.objects.object.ObjectBuiltins;
 import com.oracle.graal.python.builtins.objects.object.ObjectBuiltinsFactory;
 import com.oracle.graal.python.builtins.objects.object.PythonObject;
 import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.builtins.objects.pickle.PPickleBuffer;
 import com.oracle.graal.python.builtins.objects.range.PBigRange;
 import com.oracle.graal.python.builtins.objects.range.PIntRange;
 import com.oracle.graal.python.builtins.objects.range.RangeNodes;
@@ -212,7 +214,11 @@ import com.oracle.graal.python.runtime.PythonContext;
 import com.oracle.graal.python.runtime.PythonCore;
 import com.oracle.graal.python.runtime.exception.PException;
 import com.oracle.graal.python.runtime.object.PythonObjectFactory;
+import com.oracle.graal.python.runtime.sequence.PSequence;
 import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.DoubleSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.IntSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.LongSequenceStorage;
 import com.oracle.graal.python.runtime.sequence.storage.ObjectSequenceStorage;
 import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
 import com.oracle.truffle.api.CompilerAsserts;
@@ -3248,9 +3254,76 @@ public final class BuiltinConstructors extends PythonBuiltins {
     @GenerateNodeFactory
     public abstract static class MemoryViewNode extends PythonBuiltinNode {
         @Specialization
+        PMemoryView doBytes(Object cls, PBytes value) {
+            return createManaged(cls, value, "B", true);
+        }
+
+        @Specialization
+        PMemoryView doByteArray(Object cls, PByteArray value) {
+            return createManaged(cls, value, "B", false);
+        }
+
+        @Specialization
+        PMemoryView doArray(Object cls, PArray value) {
+            SequenceStorage storage = value.getSequenceStorage();
+            String format;
+            if (storage instanceof IntSequenceStorage) {
+                format = "i";
+            } else if (storage instanceof LongSequenceStorage) {
+                format = "l";
+            } else if (storage instanceof DoubleSequenceStorage) {
+                format = "d";
+            } else {
+                format = "B";
+            }
+            return createManaged(cls, value, format, false);
+        }
+
+        @Specialization(guards = "value.isManaged()")
+        PMemoryView doManagedMemoryView(Object cls, PMemoryView value) {
+            if (value.isReleased()) {
+                throw raise(ValueError, ErrorMessages.MEMORYVIEW_RELEASED);
+            }
+            return factory().createMemoryView(cls, value.getOwner(), value.getOffset(), value.getLength(), value.getItemSize(), value.getStride(), value.getFormat(), value.isReadonly());
+        }
+
+        @Specialization
+        PMemoryView doPickleBuffer(Object cls, PPickleBuffer value) {
+            if (value.getView() == null) {
+                throw raise(ValueError, ErrorMessages.PICKLE_BUFFER_RELEASED);
+            }
+            return doManagedMemoryView(cls, value.getView());
+        }
+
+        @Specialization(guards = {"!isBytes(value)", "!isPArray(value)", "!isManagedMemoryView(value)", "!isPickleBuffer(value)"})
         public PMemoryView doGeneric(Object cls, Object value) {
             return factory().createMemoryView(cls, value);
         }
+
+        /**
+         * Creates a managed view over the whole storage of the given object if its storage allows
+         * it. Otherwise, the memoryview will be backed by a native memoryview object.
+         */
+        private PMemoryView createManaged(Object cls, PSequence value, String format, boolean readonly) {
+            SequenceStorage storage = value.getSequenceStorage();
+            int itemsize = PMemoryView.getStorageItemSize(storage);
+            if (itemsize < 0) {
+                return factory().createMemoryView(cls, value);
+            }
+            return factory().createMemoryView(cls, value, 0, storage.length(), itemsize, itemsize, format, readonly);
+        }
+
+        protected static boolean isPArray(Object value) {
+            return value instanceof PArray;
+        }
+
+        protected static boolean isManagedMemoryView(Object value) {
+            return value instanceof PMemoryView && ((PMemoryView) value).isManaged();
+        }
+
+        protected static boolean isPickleBuffer(Object value) {
+            return value instanceof PPickleBuffer;
+        }
     }
 
     // super()
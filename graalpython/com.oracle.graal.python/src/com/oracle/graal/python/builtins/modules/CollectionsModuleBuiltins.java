@@ -40,18 +40,76 @@
  */
 package com.oracle.graal.python.builtins.modules;
 
-import java.util.ArrayList;
 import java.util.List;
 
+import com.oracle.graal.python.builtins.Builtin;
 import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
 import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.deque.PDeque;
+import com.oracle.graal.python.builtins.objects.deque.PDequeIterator;
+import com.oracle.graal.python.builtins.objects.function.PArguments;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
 import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.library.CachedLibrary;
+import com.oracle.truffle.api.profiles.ConditionProfile;
 
 @CoreFunctions(defineModule = "_collections")
 public class CollectionsModuleBuiltins extends PythonBuiltins {
     @Override
     protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
-        return new ArrayList<>();
+        return CollectionsModuleBuiltinsFactory.getFactories();
+    }
+
+    @Builtin(name = "deque", minNumOfPositionalArgs = 1, takesVarArgs = true, takesVarKeywordArgs = true, constructsClass = PythonBuiltinClassType.PDeque)
+    @GenerateNodeFactory
+    abstract static class DequeNode extends PythonBuiltinNode {
+        @Specialization
+        PDeque doit(Object cls, @SuppressWarnings("unused") Object[] args, @SuppressWarnings("unused") PKeyword[] kwargs) {
+            return factory().createDeque(cls);
+        }
+    }
+
+    /**
+     * Skips the first {@code index} items of a new deque iterator, like CPython's iterator
+     * constructors that are used when unpickling.
+     */
+    static PDequeIterator skip(VirtualFrame frame, PDequeIterator iterator, Object index, PythonObjectLibrary lib, ConditionProfile hasFrame) {
+        if (!(index instanceof PNone)) {
+            int n = lib.asSizeWithState(index, PArguments.getThreadStateOrNull(frame, hasFrame));
+            iterator.setRemaining(Math.max(iterator.getRemaining() - Math.max(n, 0), 0));
+        }
+        return iterator;
+    }
+
+    @Builtin(name = "_deque_iterator", minNumOfPositionalArgs = 2, parameterNames = {"cls", "deque", "index"}, constructsClass = PythonBuiltinClassType.PDequeIter)
+    @GenerateNodeFactory
+    abstract static class DequeIterNode extends PythonTernaryBuiltinNode {
+        @Specialization(limit = "getCallSiteInlineCacheMaxDepth()")
+        PDequeIterator doit(VirtualFrame frame, Object cls, PDeque deque, Object index,
+                        @CachedLibrary("index") PythonObjectLibrary lib,
+                        @Cached("createBinaryProfile()") ConditionProfile hasFrame) {
+            return skip(frame, factory().createDequeIter(cls, deque), index, lib, hasFrame);
+        }
+    }
+
+    @Builtin(name = "_deque_reverse_iterator", minNumOfPositionalArgs = 2, parameterNames = {"cls", "deque", "index"}, constructsClass = PythonBuiltinClassType.PDequeRevIter)
+    @GenerateNodeFactory
+    abstract static class DequeRevIterNode extends PythonTernaryBuiltinNode {
+        @Specialization(limit = "getCallSiteInlineCacheMaxDepth()")
+        PDequeIterator doit(VirtualFrame frame, Object cls, PDeque deque, Object index,
+                        @CachedLibrary("index") PythonObjectLibrary lib,
+                        @Cached("createBinaryProfile()") ConditionProfile hasFrame) {
+            return skip(frame, factory().createDequeRevIter(cls, deque), index, lib, hasFrame);
+        }
     }
 }
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.modules;
+
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.concurrent.PConcurrentFuture;
+import com.oracle.graal.python.builtins.objects.concurrent.PThreadPoolExecutor;
+import com.oracle.graal.python.builtins.objects.function.PArguments;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.argument.positional.ExecutePositionalStarargsNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.nodes.util.CastToJavaStringNode;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.library.CachedLibrary;
+
+/**
+ * A thread pool executor whose workers are pooled context threads fed from a Java queue, with the
+ * futures completed in Java. The Python {@code map} and {@code __repr__} are added by the
+ * {@code _concurrent} core file.
+ */
+@CoreFunctions(defineModule = "_concurrent")
+public class ConcurrentModuleBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return ConcurrentModuleBuiltinsFactory.getFactories();
+    }
+
+    @Builtin(name = "Future", minNumOfPositionalArgs = 1, parameterNames = {"cls"}, constructsClass = PythonBuiltinClassType.PConcurrentFuture)
+    @GenerateNodeFactory
+    abstract static class FutureNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        PConcurrentFuture doNew(Object cls) {
+            return factory().createConcurrentFuture(cls);
+        }
+    }
+
+    // ThreadPoolExecutor(max_workers=None, thread_name_prefix='', initializer=None, initargs=())
+    @Builtin(name = "ThreadPoolExecutor", minNumOfPositionalArgs = 1, parameterNames = {"cls", "max_workers", "thread_name_prefix", "initializer",
+                    "initargs"}, constructsClass = PythonBuiltinClassType.PThreadPoolExecutor)
+    @GenerateNodeFactory
+    abstract static class ThreadPoolExecutorNode extends PythonBuiltinNode {
+        @Specialization
+        PThreadPoolExecutor doNew(VirtualFrame frame, Object cls, Object maxWorkersObj, Object prefixObj, Object initializerObj, Object initArgsObj,
+                        @CachedLibrary(limit = "3") PythonObjectLibrary lib,
+                        @Cached CastToJavaStringNode castToStringNode,
+                        @Cached ExecutePositionalStarargsNode getInitArgsNode) {
+            int maxWorkers;
+            if (PGuards.isPNone(maxWorkersObj)) {
+                maxWorkers = defaultMaxWorkers();
+            } else {
+                maxWorkers = lib.asSizeWithState(maxWorkersObj, PArguments.getThreadState(frame));
+                if (maxWorkers <= 0) {
+                    throw raise(ValueError, ErrorMessages.MAX_WORKERS_MUST_BE_GREATER_THAN_0);
+                }
+            }
+            String prefix = null;
+            if (!PGuards.isPNone(prefixObj) && lib.isTrue(prefixObj)) {
+                prefix = castToStringNode.execute(prefixObj);
+            }
+            Object initializer = null;
+            Object[] initArgs = PArguments.EMPTY_VARARGS;
+            if (!PGuards.isPNone(initializerObj)) {
+                if (!lib.isCallable(initializerObj)) {
+                    throw raise(TypeError, ErrorMessages.INITIALIZER_MUST_BE_A_CALLABLE);
+                }
+                initializer = initializerObj;
+                if (!PGuards.isNoValue(initArgsObj)) {
+                    initArgs = getInitArgsNode.executeWith(frame, initArgsObj);
+                }
+            }
+            return factory().createThreadPoolExecutor(cls, maxWorkers, prefix, initializer, initArgs);
+        }
+
+        /**
+         * Like CPython: at least 5 and at most 32 workers, so that the pool is usable for I/O bound
+         * work but does not take too many resources on many-core machines.
+         */
+        @TruffleBoundary
+        private static int defaultMaxWorkers() {
+            return Math.min(32, Runtime.getRuntime().availableProcessors() + 4);
+        }
+    }
+}
@@ -40,18 +40,139 @@
  */
 package com.oracle.graal.python.builtins.modules;
 
-import java.util.ArrayList;
+import static com.oracle.graal.python.builtins.PythonBuiltinClassType.TypeError;
+
 import java.util.List;
 
+import com.oracle.graal.python.builtins.Builtin;
 import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
 import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.function.PArguments;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.functools.PLruCacheWrapper;
+import com.oracle.graal.python.builtins.objects.functools.PPartial;
+import com.oracle.graal.python.builtins.objects.functools.PartialBuiltins;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.argument.keywords.ExecuteKeywordStarargsNode.ExpandKeywordStarargsNode;
+import com.oracle.graal.python.nodes.call.special.CallBinaryMethodNode;
+import com.oracle.graal.python.nodes.control.GetIteratorExpressionNode.GetIteratorNode;
+import com.oracle.graal.python.nodes.control.GetNextNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.graal.python.util.PythonUtils;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.library.CachedLibrary;
+import com.oracle.truffle.api.profiles.ConditionProfile;
 
 @CoreFunctions(defineModule = "_functools")
 public class FunctoolsModuleBuiltins extends PythonBuiltins {
     @Override
     protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
-        return new ArrayList<>();
+        return FunctoolsModuleBuiltinsFactory.getFactories();
+    }
+
+    // reduce(function, sequence[, initial])
+    @Builtin(name = "reduce", minNumOfPositionalArgs = 2, parameterNames = {"function", "sequence", "initial"})
+    @GenerateNodeFactory
+    public abstract static class ReduceNode extends PythonTernaryBuiltinNode {
+        @Specialization
+        Object reduce(VirtualFrame frame, Object function, Object sequence, Object initial,
+                        @Cached GetIteratorNode getIteratorNode,
+                        @Cached GetNextNode getNextNode,
+                        @Cached CallBinaryMethodNode callNode,
+                        @Cached IsBuiltinClassProfile stopIterationProfile,
+                        @Cached("createBinaryProfile()") ConditionProfile hasInitialProfile) {
+            Object iterator = getIteratorNode.executeWith(frame, sequence);
+            Object result = initial;
+            if (!hasInitialProfile.profile(!PGuards.isNoValue(initial))) {
+                try {
+                    result = getNextNode.execute(frame, iterator);
+                } catch (PException e) {
+                    e.expectStopIteration(stopIterationProfile);
+                    throw raise(TypeError, ErrorMessages.REDUCE_EMPTY_SEQ);
+                }
+            }
+            while (true) {
+                Object item;
+                try {
+                    item = getNextNode.execute(frame, iterator);
+                } catch (PException e) {
+                    e.expectStopIteration(stopIterationProfile);
+                    return result;
+                }
+                result = callNode.executeObject(frame, function, result, item);
+            }
+        }
+    }
+
+    // partial(func, *args, **keywords)
+    @Builtin(name = "partial", minNumOfPositionalArgs = 1, takesVarArgs = true, takesVarKeywordArgs = true, constructsClass = PythonBuiltinClassType.PPartial)
+    @GenerateNodeFactory
+    public abstract static class PartialNode extends PythonBuiltinNode {
+        @Specialization
+        PPartial doit(Object cls, Object[] args, PKeyword[] keywords,
+                        @CachedLibrary(limit = "3") PythonObjectLibrary lib,
+                        @Cached IsBuiltinClassProfile isPartialTypeProfile,
+                        @Cached IsBuiltinClassProfile isPartialObjectProfile,
+                        @Cached ExpandKeywordStarargsNode expandKeywordsNode) {
+            if (args.length == 0) {
+                throw raise(TypeError, ErrorMessages.TYPE_S_TAKES_AT_LEAST_ONE_ARGUMENT, "partial");
+            }
+            Object function = args[0];
+            Object[] frozenArgs = PArguments.EMPTY_VARARGS;
+            PKeyword[] frozenKeywords = PKeyword.EMPTY_KEYWORDS;
+            // like CPython, flatten nested partials unless subclasses or instance attributes are
+            // involved
+            if (isPartialTypeProfile.profileClass(cls, PythonBuiltinClassType.PPartial) && isPartialObjectProfile.profileObject(function, PythonBuiltinClassType.PPartial) &&
+                            lib.getDict(function) == null) {
+                PPartial inner = (PPartial) function;
+                function = inner.getFunction();
+                frozenArgs = inner.getArgs();
+                frozenKeywords = expandKeywordsNode.executeWith(inner.getKeywords());
+            }
+            if (!lib.isCallable(function)) {
+                throw raise(TypeError, ErrorMessages.THE_FIRST_ARG_MUST_BE_CALLABLE);
+            }
+            Object[] partialArgs = new Object[frozenArgs.length + args.length - 1];
+            PythonUtils.arraycopy(frozenArgs, 0, partialArgs, 0, frozenArgs.length);
+            PythonUtils.arraycopy(args, 1, partialArgs, frozenArgs.length, args.length - 1);
+            PKeyword[] partialKeywords = PartialBuiltins.mergeKeywords(frozenKeywords, keywords);
+            return factory().createPartial(cls, function, partialArgs, factory().createDict(partialKeywords));
+        }
+    }
+
+    // _lru_cache_wrapper(user_function, maxsize, typed, cache_info_type)
+    @Builtin(name = "_lru_cache_wrapper", minNumOfPositionalArgs = 5, parameterNames = {"cls", "user_function", "maxsize", "typed", "cache_info_type"}, constructsClass = PythonBuiltinClassType.PLruCacheWrapper)
+    @GenerateNodeFactory
+    public abstract static class LruCacheWrapperNode extends PythonBuiltinNode {
+        @Specialization(limit = "3")
+        PLruCacheWrapper doit(VirtualFrame frame, Object cls, Object function, Object maxSizeObj, Object typed, Object cacheInfoType,
+                        @CachedLibrary("function") PythonObjectLibrary lib,
+                        @CachedLibrary(limit = "3") PythonObjectLibrary argLib) {
+            if (!lib.isCallable(function)) {
+                throw raise(TypeError, ErrorMessages.THE_FIRST_ARG_MUST_BE_CALLABLE);
+            }
+            int maxSize;
+            if (maxSizeObj == PNone.NONE) {
+                maxSize = PLruCacheWrapper.UNBOUNDED;
+            } else if (PGuards.canBeInteger(maxSizeObj)) {
+                maxSize = Math.max(argLib.asSizeWithState(maxSizeObj, null, PArguments.getThreadState(frame)), 0);
+            } else {
+                throw raise(TypeError, ErrorMessages.MAXSIZE_SHOULD_BE_INTEGER_OR_NONE);
+            }
+            boolean isTyped = argLib.isTrueWithState(typed, PArguments.getThreadState(frame));
+            return factory().createLruCacheWrapper(cls, function, maxSize, isTyped, cacheInfoType);
+        }
     }
 }
@@ -29,12 +29,16 @@ import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
 import java.util.List;
 
+import org.graalvm.collections.EconomicMap;
+
 import com.oracle.graal.python.builtins.Builtin;
 import com.oracle.graal.python.builtins.CoreFunctions;
 import com.oracle.graal.python.builtins.PythonBuiltins;
 import com.oracle.graal.python.builtins.objects.PNone;
 import com.oracle.graal.python.builtins.objects.cext.PythonNativeClass;
 import com.oracle.graal.python.builtins.objects.cext.PythonNativeObject;
+import com.oracle.graal.python.builtins.objects.cext.capi.CApiContext;
+import com.oracle.graal.python.builtins.objects.dict.PDict;
 import com.oracle.graal.python.builtins.objects.list.PList;
 import com.oracle.graal.python.builtins.objects.tuple.PTuple;
 import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
@@ -116,6 +120,52 @@ public final class GcModuleBuiltins extends PythonBuiltins {
         }
     }
 
+    @Builtin(name = "get_stats", minNumOfPositionalArgs = 0)
+    @GenerateNodeFactory
+    abstract static class GcGetStatsNode extends PythonBuiltinNode {
+        @Specialization
+        @TruffleBoundary
+        public PList getStats() {
+            long collections = 0;
+            for (GarbageCollectorMXBean gcbean : ManagementFactory.getGarbageCollectorMXBeans()) {
+                long cc = gcbean.getCollectionCount();
+                if (cc > 0) {
+                    collections += cc;
+                }
+            }
+            long released = 0;
+            long batches = 0;
+            long maxBatchSize = 0;
+            long cleanerTime = 0;
+            if (getContext().hasCApiContext()) {
+                CApiContext cApiContext = getContext().getCApiContext();
+                released = cApiContext.getReleasedReferences();
+                batches = cApiContext.getCleanerBatches();
+                maxBatchSize = cApiContext.getMaxCleanerBatchSize();
+                cleanerTime = cApiContext.getCleanerTime();
+            }
+            // we only have one generation; the native reference cleaner stats are GraalPython
+            // specific
+            EconomicMap<Object, Object> gen0 = EconomicMap.create();
+            gen0.put("collections", collections);
+            gen0.put("collected", released);
+            gen0.put("uncollectable", 0);
+            gen0.put("native_references_released", released);
+            gen0.put("native_reference_batches", batches);
+            gen0.put("native_reference_max_batch_size", maxBatchSize);
+            gen0.put("native_reference_cleaner_time", cleanerTime / 1e9);
+            return factory().createList(new Object[]{factory().createDict(gen0), createEmptyGeneration(), createEmptyGeneration()});
+        }
+
+        private PDict createEmptyGeneration() {
+            EconomicMap<Object, Object> gen = EconomicMap.create();
+            gen.put("collections", 0);
+            gen.put("collected", 0);
+            gen.put("uncollectable", 0);
+            return factory().createDict(gen);
+        }
+    }
+
     @Builtin(name = "is_tracked", minNumOfPositionalArgs = 1)
     @GenerateNodeFactory
     abstract static class GcIsTrackedNode extends PythonBuiltinNode {
@@ -56,6 +56,7 @@ import com.oracle.graal.python.builtins.Builtin;
 import com.oracle.graal.python.builtins.CoreFunctions;
 import com.oracle.graal.python.builtins.PythonBuiltins;
 import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.cext.HandleCache;
 import com.oracle.graal.python.builtins.objects.code.PCode;
 import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes;
 import com.oracle.graal.python.builtins.objects.function.PFunction;
@@ -342,6 +343,23 @@ public class GraalPythonModuleBuiltins extends PythonBuiltins {
         }
     }
 
+    /**
+     * Returns a tuple {@code (hits, misses, size, capacity)} of the C API handle table or
+     * {@code None} if the C API was not loaded.
+     */
+    @Builtin(name = "handle_cache_stats", minNumOfPositionalArgs = 0)
+    @GenerateNodeFactory
+    public abstract static class HandleCacheStatsNode extends PythonBuiltinNode {
+        @Specialization
+        Object doIt() {
+            HandleCache handleCache = getContext().getHandleCache();
+            if (handleCache == null) {
+                return PNone.NONE;
+            }
+            return factory().createTuple(new Object[]{handleCache.getHits(), handleCache.getMisses(), handleCache.getTableSize(), handleCache.getTableCapacity()});
+        }
+    }
+
     @Builtin(name = "tdebug", takesVarArgs = true)
     @GenerateNodeFactory
     public abstract static class DebugNode extends PythonBuiltinNode {
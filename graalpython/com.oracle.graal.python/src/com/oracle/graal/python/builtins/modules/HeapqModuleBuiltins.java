@@ -0,0 +1,474 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.modules;
+
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.IndexError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.RuntimeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.modules.HeapqModuleBuiltinsFactory.SiftNodeGen;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.common.IndexNodes.NormalizeIndexNode;
+import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes;
+import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes.GetItemScalarNode;
+import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes.LenNode;
+import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes.ListGeneralizationNode;
+import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes.SetItemScalarNode;
+import com.oracle.graal.python.builtins.objects.list.ListSortNodes.LessThanNode;
+import com.oracle.graal.python.builtins.objects.list.PList;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.PNodeWithContext;
+import com.oracle.graal.python.nodes.PRaiseNode;
+import com.oracle.graal.python.nodes.builtins.ListNodes.AppendNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.runtime.sequence.storage.DoubleSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.IntSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.LongSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Fallback;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.ImportStatic;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+
+/**
+ * The heap operations of {@code heapq} on lists. The sift loops work directly on the storage arrays
+ * of lists with {@code int}, {@code long} or {@code float} storage. For all other storages, the
+ * items are compared with {@link LessThanNode} and, like in CPython, the list must not change its
+ * size while the items are compared.
+ */
+@CoreFunctions(defineModule = "_heapq")
+public class HeapqModuleBuiltins extends PythonBuiltins {
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return HeapqModuleBuiltinsFactory.getFactories();
+    }
+
+    /**
+     * Restores the heap invariant for the item at {@code pos}. If {@code siftUp} is set, this is
+     * CPython's {@code _siftup(heap, pos)}, which moves the smaller child up until reaching a leaf
+     * and then moves the item up again, otherwise this is {@code _siftdown(heap, 0, pos)}, which
+     * only moves the item towards the root. With {@code max}, the order is reversed as for the
+     * {@code _max} variants.
+     */
+    @ImportStatic(PGuards.class)
+    abstract static class SiftNode extends PNodeWithContext {
+
+        abstract void execute(VirtualFrame frame, PList heap, int pos, boolean siftUp, boolean max);
+
+        @Specialization(guards = "isIntStorage(heap)")
+        static void doInt(PList heap, int pos, boolean siftUp, boolean max) {
+            IntSequenceStorage storage = (IntSequenceStorage) heap.getSequenceStorage();
+            int[] a = storage.getInternalIntArray();
+            int size = storage.length();
+            int item = a[pos];
+            int i = pos;
+            if (siftUp) {
+                int limit = size >> 1;
+                while (i < limit) {
+                    int child = 2 * i + 1;
+                    if (child + 1 < size && !(max ? a[child + 1] < a[child] : a[child] < a[child + 1])) {
+                        child++;
+                    }
+                    a[i] = a[child];
+                    i = child;
+                }
+            }
+            int stop = siftUp ? pos : 0;
+            while (i > stop) {
+                int parent = (i - 1) >> 1;
+                if (!(max ? a[parent] < item : item < a[parent])) {
+                    break;
+                }
+                a[i] = a[parent];
+                i = parent;
+            }
+            a[i] = item;
+        }
+
+        @Specialization(guards = "isLongStorage(heap)")
+        static void doLong(PList heap, int pos, boolean siftUp, boolean max) {
+            LongSequenceStorage storage = (LongSequenceStorage) heap.getSequenceStorage();
+            long[] a = storage.getInternalLongArray();
+            int size = storage.length();
+            long item = a[pos];
+            int i = pos;
+            if (siftUp) {
+                int limit = size >> 1;
+                while (i < limit) {
+                    int child = 2 * i + 1;
+                    if (child + 1 < size && !(max ? a[child + 1] < a[child] : a[child] < a[child + 1])) {
+                        child++;
+                    }
+                    a[i] = a[child];
+                    i = child;
+                }
+            }
+            int stop = siftUp ? pos : 0;
+            while (i > stop) {
+                int parent = (i - 1) >> 1;
+                if (!(max ? a[parent] < item : item < a[parent])) {
+                    break;
+                }
+                a[i] = a[parent];
+                i = parent;
+            }
+            a[i] = item;
+        }
+
+        @Specialization(guards = "isDoubleStorage(heap)")
+        static void doDouble(PList heap, int pos, boolean siftUp, boolean max) {
+            DoubleSequenceStorage storage = (DoubleSequenceStorage) heap.getSequenceStorage();
+            double[] a = storage.getInternalDoubleArray();
+            int size = storage.length();
+            double item = a[pos];
+            int i = pos;
+            if (siftUp) {
+                int limit = size >> 1;
+                while (i < limit) {
+                    int child = 2 * i + 1;
+                    if (child + 1 < size && !(max ? a[child + 1] < a[child] : a[child] < a[child + 1])) {
+                        child++;
+                    }
+                    a[i] = a[child];
+                    i = child;
+                }
+            }
+            int stop = siftUp ? pos : 0;
+            while (i > stop) {
+                int parent = (i - 1) >> 1;
+                if (!(max ? a[parent] < item : item < a[parent])) {
+                    break;
+                }
+                a[i] = a[parent];
+                i = parent;
+            }
+            a[i] = item;
+        }
+
+        @Specialization(guards = {"!isIntStorage(heap)", "!isLongStorage(heap)", "!isDoubleStorage(heap)"})
+        static void doGeneric(VirtualFrame frame, PList heap, int pos, boolean siftUp, boolean max,
+                        @Cached LessThanNode lessThanNode,
+                        @Cached LenNode lenNode,
+                        @Cached GetItemScalarNode getItemNode,
+                        @Cached SetItemScalarNode setItemNode,
+                        @Cached PRaiseNode raiseNode) {
+            SequenceStorage storage = heap.getSequenceStorage();
+            int size = lenNode.execute(storage);
+            int i = pos;
+            if (siftUp) {
+                int limit = size >> 1;
+                while (i < limit) {
+                    int child = 2 * i + 1;
+                    if (child + 1 < size) {
+                        boolean lt = lessThan(frame, lessThanNode, getItemNode.execute(storage, child), getItemNode.execute(storage, child + 1), max);
+                        storage = checkSize(heap, size, lenNode, raiseNode);
+                        if (!lt) {
+                            child++;
+                        }
+                    }
+                    swap(storage, i, child, getItemNode, setItemNode);
+                    i = child;
+                }
+            }
+            int stop = siftUp ? pos : 0;
+            while (i > stop) {
+                int parent = (i - 1) >> 1;
+                boolean lt = lessThan(frame, lessThanNode, getItemNode.execute(storage, i), getItemNode.execute(storage, parent), max);
+                storage = checkSize(heap, size, lenNode, raiseNode);
+                if (!lt) {
+                    break;
+                }
+                swap(storage, i, parent, getItemNode, setItemNode);
+                i = parent;
+            }
+        }
+
+        private static boolean lessThan(VirtualFrame frame, LessThanNode lessThanNode, Object a, Object b, boolean max) {
+            return max ? lessThanNode.execute(frame, b, a) : lessThanNode.execute(frame, a, b);
+        }
+
+        /**
+         * The comparison may have run arbitrary code, so the list's storage is fetched again.
+         */
+        private static SequenceStorage checkSize(PList heap, int size, LenNode lenNode, PRaiseNode raiseNode) {
+            SequenceStorage storage = heap.getSequenceStorage();
+            if (lenNode.execute(storage) != size) {
+                throw raiseNode.raise(RuntimeError, ErrorMessages.CHANGED_SIZE_DURING_ITERATION, "list");
+            }
+            return storage;
+        }
+
+        private static void swap(SequenceStorage storage, int i, int j, GetItemScalarNode getItemNode, SetItemScalarNode setItemNode) {
+            Object tmp = getItemNode.execute(storage, i);
+            setItemNode.execute(storage, i, getItemNode.execute(storage, j));
+            setItemNode.execute(storage, j, tmp);
+        }
+
+        static SiftNode create() {
+            return SiftNodeGen.create();
+        }
+    }
+
+    /**
+     * Removes and returns the first item of the heap, i.e., CPython's {@code heappop_internal}.
+     */
+    static Object pop(VirtualFrame frame, PList heap, boolean max, LenNode lenNode, GetItemScalarNode getItemNode, SetItemScalarNode setItemNode, SiftNode siftNode, PRaiseNode raiseNode) {
+        SequenceStorage storage = heap.getSequenceStorage();
+        int size = lenNode.execute(storage);
+        if (size == 0) {
+            throw raiseNode.raise(IndexError, ErrorMessages.INDEX_OUT_OF_RANGE);
+        }
+        Object last = getItemNode.execute(storage, size - 1);
+        storage.setNewLength(size - 1);
+        if (size == 1) {
+            return last;
+        }
+        Object result = getItemNode.execute(storage, 0);
+        setItemNode.execute(storage, 0, last);
+        siftNode.execute(frame, heap, 0, true, max);
+        return result;
+    }
+
+    /**
+     * Replaces the first item of the heap with {@code item} and returns the old first item, i.e.,
+     * CPython's {@code heapreplace_internal}.
+     */
+    static Object replace(VirtualFrame frame, PList heap, Object item, boolean max, LenNode lenNode, GetItemScalarNode getItemNode, SequenceStorageNodes.SetItemNode setItemNode,
+                    SiftNode siftNode, PRaiseNode raiseNode) {
+        SequenceStorage storage = heap.getSequenceStorage();
+        if (lenNode.execute(storage) == 0) {
+            throw raiseNode.raise(IndexError, ErrorMessages.INDEX_OUT_OF_RANGE);
+        }
+        Object result = getItemNode.execute(storage, 0);
+        heap.setSequenceStorage(setItemNode.executeInt(frame, storage, 0, item));
+        siftNode.execute(frame, heap, 0, true, max);
+        return result;
+    }
+
+    static SequenceStorageNodes.SetItemNode createSetItem() {
+        return SequenceStorageNodes.SetItemNode.create(NormalizeIndexNode.forListAssign(), () -> ListGeneralizationNode.create());
+    }
+
+    static void heapify(VirtualFrame frame, PList heap, boolean max, LenNode lenNode, SiftNode siftNode) {
+        for (int i = (lenNode.execute(heap.getSequenceStorage()) >> 1) - 1; i >= 0; i--) {
+            siftNode.execute(frame, heap, i, true, max);
+        }
+    }
+
+    @Builtin(name = "heappush", minNumOfPositionalArgs = 2, parameterNames = {"heap", "item"})
+    @GenerateNodeFactory
+    abstract static class HeapPushNode extends PythonBinaryBuiltinNode {
+        @Specialization
+        static PNone push(VirtualFrame frame, PList heap, Object item,
+                        @Cached AppendNode appendNode,
+                        @Cached LenNode lenNode,
+                        @Cached SiftNode siftNode) {
+            appendNode.execute(heap, item);
+            siftNode.execute(frame, heap, lenNode.execute(heap.getSequenceStorage()) - 1, false, false);
+            return PNone.NONE;
+        }
+
+        @Fallback
+        Object error(@SuppressWarnings("unused") Object heap, @SuppressWarnings("unused") Object item) {
+            throw raise(TypeError, ErrorMessages.HEAP_ARG_MUST_BE_LIST);
+        }
+    }
+
+    @Builtin(name = "heappop", minNumOfPositionalArgs = 1, parameterNames = {"heap"})
+    @GenerateNodeFactory
+    abstract static class HeapPopNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static Object pop(VirtualFrame frame, PList heap,
+                        @Cached LenNode lenNode,
+                        @Cached GetItemScalarNode getItemNode,
+                        @Cached SetItemScalarNode setItemNode,
+                        @Cached SiftNode siftNode,
+                        @Cached PRaiseNode raiseNode) {
+            return HeapqModuleBuiltins.pop(frame, heap, false, lenNode, getItemNode, setItemNode, siftNode, raiseNode);
+        }
+
+        @Fallback
+        Object error(@SuppressWarnings("unused") Object heap) {
+            throw raise(TypeError, ErrorMessages.HEAP_ARG_MUST_BE_LIST);
+        }
+    }
+
+    @Builtin(name = "_heappop_max", minNumOfPositionalArgs = 1, parameterNames = {"heap"})
+    @GenerateNodeFactory
+    abstract static class HeapPopMaxNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static Object pop(VirtualFrame frame, PList heap,
+                        @Cached LenNode lenNode,
+                        @Cached GetItemScalarNode getItemNode,
+                        @Cached SetItemScalarNode setItemNode,
+                        @Cached SiftNode siftNode,
+                        @Cached PRaiseNode raiseNode) {
+            return HeapqModuleBuiltins.pop(frame, heap, true, lenNode, getItemNode, setItemNode, siftNode, raiseNode);
+        }
+
+        @Fallback
+        Object error(@SuppressWarnings("unused") Object heap) {
+            throw raise(TypeError, ErrorMessages.HEAP_ARG_MUST_BE_LIST);
+        }
+    }
+
+    @Builtin(name = "heapreplace", minNumOfPositionalArgs = 2, parameterNames = {"heap", "item"})
+    @GenerateNodeFactory
+    abstract static class HeapReplaceNode extends PythonBinaryBuiltinNode {
+        @Specialization
+        static Object replace(VirtualFrame frame, PList heap, Object item,
+                        @Cached LenNode lenNode,
+                        @Cached GetItemScalarNode getItemNode,
+                        @Cached("createSetItem()") SequenceStorageNodes.SetItemNode setItemNode,
+                        @Cached SiftNode siftNode,
+                        @Cached PRaiseNode raiseNode) {
+            return HeapqModuleBuiltins.replace(frame, heap, item, false, lenNode, getItemNode, setItemNode, siftNode, raiseNode);
+        }
+
+        @Fallback
+        Object error(@SuppressWarnings("unused") Object heap, @SuppressWarnings("unused") Object item) {
+            throw raise(TypeError, ErrorMessages.HEAP_ARG_MUST_BE_LIST);
+        }
+
+        static SequenceStorageNodes.SetItemNode createSetItem() {
+            return HeapqModuleBuiltins.createSetItem();
+        }
+    }
+
+    @Builtin(name = "_heapreplace_max", minNumOfPositionalArgs = 2, parameterNames = {"heap", "item"})
+    @GenerateNodeFactory
+    abstract static class HeapReplaceMaxNode extends PythonBinaryBuiltinNode {
+        @Specialization
+        static Object replace(VirtualFrame frame, PList heap, Object item,
+                        @Cached LenNode lenNode,
+                        @Cached GetItemScalarNode getItemNode,
+                        @Cached("createSetItem()") SequenceStorageNodes.SetItemNode setItemNode,
+                        @Cached SiftNode siftNode,
+                        @Cached PRaiseNode raiseNode) {
+            return HeapqModuleBuiltins.replace(frame, heap, item, true, lenNode, getItemNode, setItemNode, siftNode, raiseNode);
+        }
+
+        @Fallback
+        Object error(@SuppressWarnings("unused") Object heap, @SuppressWarnings("unused") Object item) {
+            throw raise(TypeError, ErrorMessages.HEAP_ARG_MUST_BE_LIST);
+        }
+
+        static SequenceStorageNodes.SetItemNode createSetItem() {
+            return HeapqModuleBuiltins.createSetItem();
+        }
+    }
+
+    @Builtin(name = "heappushpop", minNumOfPositionalArgs = 2, parameterNames = {"heap", "item"})
+    @GenerateNodeFactory
+    abstract static class HeapPushPopNode extends PythonBinaryBuiltinNode {
+        @Specialization
+        static Object pushPop(VirtualFrame frame, PList heap, Object item,
+                        @Cached LenNode lenNode,
+                        @Cached GetItemScalarNode getItemNode,
+                        @Cached LessThanNode lessThanNode,
+                        @Cached("createSetItem()") SequenceStorageNodes.SetItemNode setItemNode,
+                        @Cached SiftNode siftNode,
+                        @Cached PRaiseNode raiseNode) {
+            if (lenNode.execute(heap.getSequenceStorage()) == 0) {
+                return item;
+            }
+            if (!lessThanNode.execute(frame, getItemNode.execute(heap.getSequenceStorage(), 0), item)) {
+                return item;
+            }
+            // the comparison may have emptied the list
+            return HeapqModuleBuiltins.replace(frame, heap, item, false, lenNode, getItemNode, setItemNode, siftNode, raiseNode);
+        }
+
+        @Fallback
+        Object error(@SuppressWarnings("unused") Object heap, @SuppressWarnings("unused") Object item) {
+            throw raise(TypeError, ErrorMessages.HEAP_ARG_MUST_BE_LIST);
+        }
+
+        static SequenceStorageNodes.SetItemNode createSetItem() {
+            return HeapqModuleBuiltins.createSetItem();
+        }
+    }
+
+    @Builtin(name = "heapify", minNumOfPositionalArgs = 1, parameterNames = {"heap"})
+    @GenerateNodeFactory
+    abstract static class HeapifyNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static PNone heapify(VirtualFrame frame, PList heap,
+                        @Cached LenNode lenNode,
+                        @Cached SiftNode siftNode) {
+            HeapqModuleBuiltins.heapify(frame, heap, false, lenNode, siftNode);
+            return PNone.NONE;
+        }
+
+        @Fallback
+        Object error(@SuppressWarnings("unused") Object heap) {
+            throw raise(TypeError, ErrorMessages.HEAP_ARG_MUST_BE_LIST);
+        }
+    }
+
+    @Builtin(name = "_heapify_max", minNumOfPositionalArgs = 1, parameterNames = {"heap"})
+    @GenerateNodeFactory
+    abstract static class HeapifyMaxNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static PNone heapify(VirtualFrame frame, PList heap,
+                        @Cached LenNode lenNode,
+                        @Cached SiftNode siftNode) {
+            HeapqModuleBuiltins.heapify(frame, heap, true, lenNode, siftNode);
+            return PNone.NONE;
+        }
+
+        @Fallback
+        Object error(@SuppressWarnings("unused") Object heap) {
+            throw raise(TypeError, ErrorMessages.HEAP_ARG_MUST_BE_LIST);
+        }
+    }
+}
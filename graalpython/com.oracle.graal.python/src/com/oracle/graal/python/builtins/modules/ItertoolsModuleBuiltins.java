@@ -26,18 +26,39 @@
 package com.oracle.graal.python.builtins.modules;
 
 import static com.oracle.graal.python.runtime.exception.PythonErrorType.NotImplementedError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
 
 import java.util.List;
 
 import com.oracle.graal.python.builtins.Builtin;
 import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
 import com.oracle.graal.python.builtins.PythonBuiltins;
 import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.common.SequenceNodes.GetObjectArrayNode;
+import com.oracle.graal.python.builtins.objects.function.PArguments;
+import com.oracle.graal.python.builtins.objects.itertools.PAccumulate;
+import com.oracle.graal.python.builtins.objects.itertools.PChain;
+import com.oracle.graal.python.builtins.objects.itertools.PCombinations;
+import com.oracle.graal.python.builtins.objects.itertools.PGroupBy;
+import com.oracle.graal.python.builtins.objects.itertools.PIslice;
+import com.oracle.graal.python.builtins.objects.itertools.PProduct;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.builtins.TupleNodes.ConstructTupleNode;
+import com.oracle.graal.python.nodes.control.GetIteratorExpressionNode.GetIteratorNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonQuaternaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.graal.python.nodes.util.CastToJavaLongExactNode;
+import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.NodeFactory;
 import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.library.CachedLibrary;
+import com.oracle.truffle.api.profiles.ConditionProfile;
 
 @CoreFunctions(defineModule = "itertools")
 public final class ItertoolsModuleBuiltins extends PythonBuiltins {
@@ -58,4 +79,134 @@ public final class ItertoolsModuleBuiltins extends PythonBuiltins {
         }
     }
 
+    // chain(*iterables)
+    @Builtin(name = "chain", minNumOfPositionalArgs = 1, takesVarArgs = true, constructsClass = PythonBuiltinClassType.PChain)
+    @GenerateNodeFactory
+    public abstract static class ChainNode extends PythonBuiltinNode {
+        @Specialization
+        PChain chain(VirtualFrame frame, Object cls, Object[] args,
+                        @Cached GetIteratorNode getIteratorNode) {
+            return factory().createChain(cls, getIteratorNode.executeWith(frame, factory().createTuple(args)));
+        }
+    }
+
+    // islice(iterable, stop) or islice(iterable, start, stop[, step])
+    @Builtin(name = "islice", minNumOfPositionalArgs = 3, parameterNames = {"cls", "iterable", "start", "stop", "step"}, constructsClass = PythonBuiltinClassType.PIslice)
+    @GenerateNodeFactory
+    public abstract static class IsliceNode extends PythonBuiltinNode {
+        @Specialization
+        PIslice islice(VirtualFrame frame, Object cls, Object iterable, Object startObj, Object stopObj, Object stepObj,
+                        @Cached GetIteratorNode getIteratorNode,
+                        @Cached CastToJavaLongExactNode castToLongNode,
+                        @Cached("createBinaryProfile()") ConditionProfile hasFrame,
+                        @CachedLibrary(limit = "getCallSiteInlineCacheMaxDepth()") PythonObjectLibrary lib) {
+            long start = 0;
+            long stop;
+            long step = 1;
+            if (stopObj == PNone.NO_VALUE) {
+                // only the stop argument was given
+                stop = toIndex(frame, startObj, PIslice.NO_STOP, ErrorMessages.ISLICE_STOP_MUST_BE_NONE_OR_INT, castToLongNode, hasFrame, lib);
+            } else {
+                start = toIndex(frame, startObj, 0, ErrorMessages.ISLICE_INDICES_MUST_BE_NONE_OR_INT, castToLongNode, hasFrame, lib);
+                stop = toIndex(frame, stopObj, PIslice.NO_STOP, ErrorMessages.ISLICE_INDICES_MUST_BE_NONE_OR_INT, castToLongNode, hasFrame, lib);
+                if (!(stepObj instanceof PNone)) {
+                    step = toIndex(frame, stepObj, 1, ErrorMessages.ISLICE_STEP_MUST_BE_POSITIVE_INT_OR_NONE, castToLongNode, hasFrame, lib);
+                    if (step == 0) {
+                        throw raise(ValueError, ErrorMessages.ISLICE_STEP_MUST_BE_POSITIVE_INT_OR_NONE);
+                    }
+                }
+            }
+            return factory().createIslice(cls, getIteratorNode.executeWith(frame, iterable), start, stop, step);
+        }
+
+        private long toIndex(VirtualFrame frame, Object value, long defaultValue, String message, CastToJavaLongExactNode castToLongNode, ConditionProfile hasFrame, PythonObjectLibrary lib) {
+            if (value instanceof PNone) {
+                return defaultValue;
+            }
+            if (!lib.canBeIndex(value)) {
+                throw raise(ValueError, message);
+            }
+            long index = castToLongNode.execute(lib.asIndexWithState(value, PArguments.getThreadStateOrNull(frame, hasFrame)));
+            if (index < 0) {
+                throw raise(ValueError, message);
+            }
+            return index;
+        }
+    }
+
+    // product(*iterables, repeat=1)
+    @Builtin(name = "product", minNumOfPositionalArgs = 1, takesVarArgs = true, keywordOnlyNames = {"repeat"}, constructsClass = PythonBuiltinClassType.PProduct)
+    @GenerateNodeFactory
+    public abstract static class ProductNode extends PythonBuiltinNode {
+        @Specialization
+        PProduct product(VirtualFrame frame, Object cls, Object[] args, Object repeatObj,
+                        @Cached ConstructTupleNode constructTupleNode,
+                        @Cached GetObjectArrayNode getObjectArrayNode,
+                        @Cached("createBinaryProfile()") ConditionProfile hasFrame,
+                        @CachedLibrary(limit = "getCallSiteInlineCacheMaxDepth()") PythonObjectLibrary lib) {
+            int repeat = 1;
+            if (!(repeatObj instanceof PNone)) {
+                repeat = lib.asSizeWithState(repeatObj, PArguments.getThreadStateOrNull(frame, hasFrame));
+                if (repeat < 0) {
+                    throw raise(ValueError, ErrorMessages.CANNOT_BE_NEGATIVE, "repeat argument");
+                }
+            }
+            Object[][] pools;
+            try {
+                pools = new Object[Math.multiplyExact(args.length, repeat)][];
+            } catch (ArithmeticException e) {
+                throw raise(PythonBuiltinClassType.OverflowError, ErrorMessages.REPEAT_ARG_TOO_LARGE);
+            }
+            for (int i = 0; i < args.length; i++) {
+                Object[] pool = getObjectArrayNode.execute(constructTupleNode.execute(frame, args[i]));
+                for (int j = 0; j < repeat; j++) {
+                    pools[j * args.length + i] = pool;
+                }
+            }
+            return factory().createProduct(cls, pools);
+        }
+    }
+
+    // groupby(iterable, key=None)
+    @Builtin(name = "groupby", minNumOfPositionalArgs = 2, parameterNames = {"cls", "iterable", "key"}, constructsClass = PythonBuiltinClassType.PGroupBy)
+    @GenerateNodeFactory
+    public abstract static class GroupByNode extends PythonTernaryBuiltinNode {
+        @Specialization
+        PGroupBy groupBy(VirtualFrame frame, Object cls, Object iterable, Object key,
+                        @Cached GetIteratorNode getIteratorNode) {
+            Object keyFunc = key instanceof PNone ? null : key;
+            return factory().createGroupBy(cls, getIteratorNode.executeWith(frame, iterable), keyFunc);
+        }
+    }
+
+    // accumulate(iterable, func=None, *, initial=None)
+    @Builtin(name = "accumulate", minNumOfPositionalArgs = 2, parameterNames = {"cls", "iterable", "func"}, keywordOnlyNames = {"initial"}, constructsClass = PythonBuiltinClassType.PAccumulate)
+    @GenerateNodeFactory
+    public abstract static class AccumulateNode extends PythonQuaternaryBuiltinNode {
+        @Specialization
+        PAccumulate accumulate(VirtualFrame frame, Object cls, Object iterable, Object func, Object initial,
+                        @Cached GetIteratorNode getIteratorNode) {
+            Object iterator = getIteratorNode.executeWith(frame, iterable);
+            return factory().createAccumulate(cls, iterator, func instanceof PNone ? null : func, initial instanceof PNone ? null : initial);
+        }
+    }
+
+    // combinations(iterable, r)
+    @Builtin(name = "combinations", minNumOfPositionalArgs = 3, parameterNames = {"cls", "iterable", "r"}, constructsClass = PythonBuiltinClassType.PCombinations)
+    @GenerateNodeFactory
+    public abstract static class CombinationsNode extends PythonTernaryBuiltinNode {
+        @Specialization
+        PCombinations combinations(VirtualFrame frame, Object cls, Object iterable, Object rObj,
+                        @Cached ConstructTupleNode constructTupleNode,
+                        @Cached GetObjectArrayNode getObjectArrayNode,
+                        @Cached("createBinaryProfile()") ConditionProfile hasFrame,
+                        @CachedLibrary(limit = "getCallSiteInlineCacheMaxDepth()") PythonObjectLibrary lib) {
+            Object[] pool = getObjectArrayNode.execute(constructTupleNode.execute(frame, iterable));
+            int r = lib.asSizeWithState(rObj, PArguments.getThreadStateOrNull(frame, hasFrame));
+            if (r < 0) {
+                throw raise(ValueError, ErrorMessages.MUST_BE_NON_NEGATIVE, "r");
+            }
+            return factory().createCombinations(cls, pool, r);
+        }
+    }
 }
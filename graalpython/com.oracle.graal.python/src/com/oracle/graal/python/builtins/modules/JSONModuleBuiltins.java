@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.modules;
+
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.dict.PDict;
+import com.oracle.graal.python.builtins.objects.function.PArguments;
+import com.oracle.graal.python.builtins.objects.json.JSONUtils;
+import com.oracle.graal.python.builtins.objects.json.PJSONEncoder;
+import com.oracle.graal.python.builtins.objects.json.PJSONEncoder.FastEncode;
+import com.oracle.graal.python.builtins.objects.json.PJSONScanner;
+import com.oracle.graal.python.builtins.objects.method.PBuiltinMethod;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.builtins.objects.tuple.PTuple;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.attributes.GetAttributeNode.GetAnyAttributeNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.nodes.util.CannotCastException;
+import com.oracle.graal.python.nodes.util.CastToJavaStringNode;
+import com.oracle.graal.python.runtime.PythonCore;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.library.CachedLibrary;
+
+/**
+ * The {@code _json} accelerator module. The scanner parses directly from the characters of the
+ * string into dicts and lists, and the encoder writes the whole document into one
+ * {@link StringBuilder}.
+ */
+@CoreFunctions(defineModule = "_json")
+public class JSONModuleBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return JSONModuleBuiltinsFactory.getFactories();
+    }
+
+    @Override
+    public void initialize(PythonCore core) {
+        super.initialize(core);
+        // like in CPython, the types are exposed under the names of their constructor functions
+        builtinConstants.put("make_scanner", PythonBuiltinClassType.JSONScanner);
+        builtinConstants.put("make_encoder", PythonBuiltinClassType.JSONEncoder);
+    }
+
+    static String castToString(Object obj, CastToJavaStringNode castToStringNode, PythonBuiltinBaseNode node) {
+        try {
+            return castToStringNode.execute(obj);
+        } catch (CannotCastException e) {
+            throw node.raise(TypeError, ErrorMessages.ARG_MUST_BE_S_NOT_P, "first", "string", obj);
+        }
+    }
+
+    // scanstring(string, end, strict=True)
+    @Builtin(name = "scanstring", minNumOfPositionalArgs = 2, parameterNames = {"string", "end", "strict"})
+    @GenerateNodeFactory
+    public abstract static class ScanStringNode extends PythonTernaryBuiltinNode {
+
+        @Specialization
+        PTuple call(VirtualFrame frame, Object string, Object endObj, Object strictObj,
+                        @Cached CastToJavaStringNode castToStringNode,
+                        @CachedLibrary(limit = "getCallSiteInlineCacheMaxDepth()") PythonObjectLibrary lib) {
+            String s = castToString(string, castToStringNode, this);
+            int end = lib.asSizeWithState(endObj, PArguments.getThreadState(frame));
+            boolean strict = PGuards.isNoValue(strictObj) || lib.isTrueWithState(strictObj, PArguments.getThreadState(frame));
+            if (end < 0 || end > s.length()) {
+                throw raise(ValueError, ErrorMessages.END_IS_OUT_OF_BOUNDS);
+            }
+            return scan(s, end, strict);
+        }
+
+        @TruffleBoundary
+        private PTuple scan(String s, int end, boolean strict) {
+            StringBuilder builder = new StringBuilder();
+            int next = JSONUtils.scanString(this, s, end, strict, builder);
+            return factory().createTuple(new Object[]{builder.toString(), next});
+        }
+    }
+
+    // encode_basestring_ascii(string)
+    @Builtin(name = "encode_basestring_ascii", minNumOfPositionalArgs = 1, parameterNames = {"string"})
+    @GenerateNodeFactory
+    public abstract static class EncodeBaseStringAsciiNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        String call(Object string,
+                        @Cached CastToJavaStringNode castToStringNode) {
+            return encode(castToString(string, castToStringNode, this), true);
+        }
+    }
+
+    // encode_basestring(string)
+    @Builtin(name = "encode_basestring", minNumOfPositionalArgs = 1, parameterNames = {"string"})
+    @GenerateNodeFactory
+    public abstract static class EncodeBaseStringNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        String call(Object string,
+                        @Cached CastToJavaStringNode castToStringNode) {
+            return encode(castToString(string, castToStringNode, this), false);
+        }
+    }
+
+    @TruffleBoundary
+    static String encode(String s, boolean asciiOnly) {
+        StringBuilder builder = new StringBuilder(s.length() + 2);
+        JSONUtils.appendString(builder, s, asciiOnly);
+        return builder.toString();
+    }
+
+    // make_scanner(context)
+    @Builtin(name = "make_scanner", minNumOfPositionalArgs = 2, parameterNames = {"cls", "context"}, constructsClass = PythonBuiltinClassType.JSONScanner)
+    @GenerateNodeFactory
+    public abstract static class MakeScannerNode extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        PJSONScanner doNew(VirtualFrame frame, Object cls, Object context,
+                        @Cached GetAnyAttributeNode getAttributeNode,
+                        @CachedLibrary(limit = "getCallSiteInlineCacheMaxDepth()") PythonObjectLibrary lib,
+                        @Cached IsBuiltinClassProfile isFloatProfile,
+                        @Cached IsBuiltinClassProfile isIntProfile) {
+            boolean strict = lib.isTrueWithState(getAttributeNode.executeObject(frame, context, "strict"), PArguments.getThreadState(frame));
+            Object objectHook = getAttributeNode.executeObject(frame, context, "object_hook");
+            Object objectPairsHook = getAttributeNode.executeObject(frame, context, "object_pairs_hook");
+            Object parseFloat = getAttributeNode.executeObject(frame, context, "parse_float");
+            Object parseInt = getAttributeNode.executeObject(frame, context, "parse_int");
+            Object parseConstant = getAttributeNode.executeObject(frame, context, "parse_constant");
+            return factory().createJSONScanner(cls, strict, objectHook, objectPairsHook, parseFloat, parseInt, parseConstant,
+                            isFloatProfile.profileClass(parseFloat, PythonBuiltinClassType.PFloat), isIntProfile.profileClass(parseInt, PythonBuiltinClassType.PInt));
+        }
+    }
+
+    // make_encoder(markers, default, encoder, indent, key_separator, item_separator, sort_keys,
+    // skipkeys, allow_nan)
+    @Builtin(name = "make_encoder", minNumOfPositionalArgs = 10, parameterNames = {"cls", "markers", "default", "encoder", "indent", "key_separator", "item_separator", "sort_keys",
+                    "skipkeys", "allow_nan"}, constructsClass = PythonBuiltinClassType.JSONEncoder)
+    @GenerateNodeFactory
+    public abstract static class MakeEncoderNode extends PythonBuiltinNode {
+
+        @Specialization
+        PJSONEncoder doNew(VirtualFrame frame, Object cls, Object markers, Object defaultFn, Object encoder, @SuppressWarnings("unused") Object indent, Object keySeparator,
+                        Object itemSeparator, Object sortKeys, Object skipKeys, Object allowNan,
+                        @Cached CastToJavaStringNode castToStringNode,
+                        @CachedLibrary(limit = "getCallSiteInlineCacheMaxDepth()") PythonObjectLibrary lib) {
+            if (markers != PNone.NONE && !(markers instanceof PDict)) {
+                throw raise(TypeError, ErrorMessages.MAKE_ENCODER_ARG_1_MUST_BE_DICT, markers);
+            }
+            String keySep = castSeparator(keySeparator, 5, castToStringNode);
+            String itemSep = castSeparator(itemSeparator, 6, castToStringNode);
+            return factory().createJSONEncoder(cls, markers != PNone.NONE, defaultFn, encoder, keySep, itemSep, lib.isTrueWithState(sortKeys, PArguments.getThreadState(frame)),
+                            lib.isTrueWithState(skipKeys, PArguments.getThreadState(frame)), lib.isTrueWithState(allowNan, PArguments.getThreadState(frame)), getFastEncode(encoder));
+        }
+
+        private String castSeparator(Object separator, int argNum, CastToJavaStringNode castToStringNode) {
+            try {
+                return castToStringNode.execute(separator);
+            } catch (CannotCastException e) {
+                throw raise(TypeError, ErrorMessages.ARG_D_MUST_BE_S_NOT_P, "make_encoder()", argNum, "str", separator);
+            }
+        }
+
+        private static FastEncode getFastEncode(Object encoder) {
+            if (encoder instanceof PBuiltinMethod) {
+                Class<? extends PythonBuiltinBaseNode> nodeClass = ((PBuiltinMethod) encoder).getFunction().getNodeClass();
+                if (nodeClass == EncodeBaseStringAsciiNode.class) {
+                    return FastEncode.ASCII;
+                } else if (nodeClass == EncodeBaseStringNode.class) {
+                    return FastEncode.Unicode;
+                }
+            }
+            return FastEncode.None;
+        }
+    }
+}
@@ -42,9 +42,11 @@ package com.oracle.graal.python.builtins.modules;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.oracle.graal.python.PythonLanguage;
 import com.oracle.graal.python.builtins.Builtin;
 import com.oracle.graal.python.builtins.CoreFunctions;
 import com.oracle.graal.python.builtins.PythonBuiltinClassType;
@@ -53,16 +55,23 @@ import com.oracle.graal.python.builtins.objects.PNone;
 import com.oracle.graal.python.builtins.objects.function.PKeyword;
 import com.oracle.graal.python.builtins.objects.list.PList;
 import com.oracle.graal.python.builtins.objects.object.PythonBuiltinObject;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.nodes.PRootNode;
 import com.oracle.graal.python.nodes.SpecialMethodNames;
 import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.runtime.instrumentation.CallTracer;
+import com.oracle.graal.python.runtime.instrumentation.CallTracerInstrument;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.InstrumentInfo;
 import com.oracle.truffle.api.TruffleLanguage.Env;
 import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.NodeFactory;
 import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.instrumentation.EventBinding;
 import com.oracle.truffle.api.instrumentation.SourceSectionFilter;
+import com.oracle.truffle.api.instrumentation.StandardTags;
+import com.oracle.truffle.api.nodes.RootNode;
 import com.oracle.truffle.api.object.DynamicObject;
 import com.oracle.truffle.api.source.SourceSection;
 import com.oracle.truffle.tools.profiler.CPUSampler;
@@ -81,14 +90,34 @@ public class LsprofModuleBuiltins extends PythonBuiltins {
         return new ProfilerBuiltins();
     }
 
+    static final String DETERMINISTIC = "deterministic";
+
+    /**
+     * Creates a profiler. With {@code deterministic=True} (the default) every call is recorded by
+     * the call tracer, like CPython's {@code _lsprof}; {@code deterministic=False} selects the
+     * lower-overhead sampling profiler.
+     */
     @Builtin(name = "Profiler", minNumOfPositionalArgs = 1, takesVarArgs = true, takesVarKeywordArgs = true, constructsClass = PythonBuiltinClassType.LsprofProfiler)
     @GenerateNodeFactory
     abstract static class LsprofNew extends PythonBuiltinNode {
         @Specialization
         @TruffleBoundary
-        Profiler doit(Object cls, @SuppressWarnings("unused") Object[] args, @SuppressWarnings("unused") PKeyword[] kwargs) {
+        Profiler doit(Object cls, @SuppressWarnings("unused") Object[] args, PKeyword[] kwargs) {
+            boolean deterministic = true;
+            for (PKeyword kwarg : kwargs) {
+                if (DETERMINISTIC.equals(kwarg.getName())) {
+                    deterministic = PythonObjectLibrary.getUncached().isTrue(kwarg.getValue());
+                }
+            }
             Env env = getContext().getEnv();
             Map<String, InstrumentInfo> instruments = env.getInstruments();
+            InstrumentInfo tracerInfo = deterministic ? instruments.get(CallTracerInstrument.ID) : null;
+            if (tracerInfo != null) {
+                CallTracerInstrument.Service tracerService = env.lookup(tracerInfo, CallTracerInstrument.Service.class);
+                if (tracerService != null) {
+                    return factory().trace(new Profiler(cls, factory().makeStorage(cls), tracerService));
+                }
+            }
             InstrumentInfo instrumentInfo = instruments.get(CPUSamplerInstrument.ID);
             if (instrumentInfo != null) {
                 CPUSampler sampler = env.lookup(instrumentInfo, CPUSampler.class);
@@ -109,12 +138,51 @@ class Profiler extends PythonBuiltinObject {
     double time;
     final CPUSampler sampler;
 
+    /**
+     * Set if the profiler was created with {@code deterministic=True} and the call tracer
+     * instrument is available; it records every call. Otherwise, the sampler is used.
+     */
+    final CallTracerInstrument.Service tracerService;
+    final CallTracer tracer;
+    EventBinding<?> binding;
+
     public Profiler(Object cls, DynamicObject storage, CPUSampler sampler) {
         super(cls, storage);
         this.sampler = sampler;
         this.sampler.setFilter(SourceSectionFilter.newBuilder().includeInternal(true).build());
         this.sampler.setMode(CPUSampler.Mode.ROOTS);
         this.sampler.setPeriod(1);
+        this.tracerService = null;
+        this.tracer = null;
+    }
+
+    public Profiler(Object cls, DynamicObject storage, CallTracerInstrument.Service tracerService) {
+        super(cls, storage);
+        this.sampler = null;
+        this.tracerService = tracerService;
+        this.tracer = new CallTracer(true);
+    }
+
+    boolean isDeterministic() {
+        return tracer != null;
+    }
+
+    @TruffleBoundary
+    void startTracing() {
+        stopTracing();
+        tracer.setSubcalls(subcalls);
+        tracer.resetStacks();
+        // code in internal sources is the closest we have to CPython's C builtins
+        SourceSectionFilter filter = SourceSectionFilter.newBuilder().tagIs(StandardTags.RootTag.class).mimeTypeIs(PythonLanguage.MIME_TYPE).includeInternal(builtins).build();
+        binding = tracerService.attach(filter, tracer);
+    }
+
+    @TruffleBoundary
+    void stopTracing() {
+        if (binding != null) {
+            binding.dispose();
+            binding = null;
+        }
     }
 }
 
@@ -125,11 +193,13 @@ class ProfilerBuiltins extends PythonBuiltins {
         return ProfilerBuiltinsFactory.getFactories();
     }
 
-    @Builtin(name = SpecialMethodNames.__INIT__, minNumOfPositionalArgs = 1, parameterNames = {"$self", "timer", "timeunit", "subcalls", "builtins"})
+    // the deterministic argument is consumed by the constructor
+    @Builtin(name = SpecialMethodNames.__INIT__, minNumOfPositionalArgs = 1, parameterNames = {"$self", "timer", "timeunit", "subcalls", "builtins"}, varArgsMarker = true, keywordOnlyNames = {
+                    LsprofModuleBuiltins.DETERMINISTIC})
     @GenerateNodeFactory
     abstract static class Init extends PythonBuiltinNode {
         @Specialization
-        PNone doit(Profiler self, Object timer, double timeunit, long subcalls, long builtins) {
+        PNone doit(Profiler self, Object timer, double timeunit, long subcalls, long builtins, @SuppressWarnings("unused") Object deterministic) {
             self.subcalls = subcalls > 0;
             self.builtins = builtins > 0;
             self.timeunit = timeunit;
@@ -139,7 +209,7 @@ class ProfilerBuiltins extends PythonBuiltins {
 
         @Specialization
         @SuppressWarnings("unused")
-        PNone doit(Profiler self, Object timer, PNone timeunit, PNone subcalls, PNone builtins) {
+        PNone doit(Profiler self, Object timer, PNone timeunit, PNone subcalls, PNone builtins, Object deterministic) {
             self.subcalls = true;
             self.builtins = true;
             self.timeunit = -1;
@@ -158,7 +228,11 @@ class ProfilerBuiltins extends PythonBuiltins {
             self.builtins = builtins > 0;
             // TODO: deal with any arguments
             self.time = System.currentTimeMillis();
-            self.sampler.setCollecting(true);
+            if (self.isDeterministic()) {
+                self.startTracing();
+            } else {
+                self.sampler.setCollecting(true);
+            }
             return PNone.NONE;
         }
 
@@ -184,7 +258,11 @@ class ProfilerBuiltins extends PythonBuiltins {
         @Specialization
         @TruffleBoundary
         PNone doit(Profiler self) {
-            self.sampler.setCollecting(false);
+            if (self.isDeterministic()) {
+                self.stopTracing();
+            } else {
+                self.sampler.setCollecting(false);
+            }
             self.time = (System.currentTimeMillis() - self.time) / 1000D;
             return PNone.NONE;
         }
@@ -196,7 +274,11 @@ class ProfilerBuiltins extends PythonBuiltins {
         @Specialization
         @TruffleBoundary
         PNone doit(Profiler self) {
-            self.sampler.clearData();
+            if (self.isDeterministic()) {
+                self.tracer.clear();
+            } else {
+                self.sampler.clearData();
+            }
             return PNone.NONE;
         }
     }
@@ -228,6 +310,9 @@ class ProfilerBuiltins extends PythonBuiltins {
         @Specialization
         @TruffleBoundary
         PList doit(Profiler self) {
+            if (self.isDeterministic()) {
+                return getTracerStats(self.tracer);
+            }
             double avgSampleSeconds = self.sampler.getPeriod() / 1000D;
             List<PList> entries = new ArrayList<>();
             for (ProfilerNode<Payload> node : self.sampler.getRootNodes()) {
@@ -237,6 +322,43 @@ class ProfilerBuiltins extends PythonBuiltins {
             return factory().createList(entries.toArray());
         }
 
+        private PList getTracerStats(CallTracer tracer) {
+            Map<Object, Object> codes = new HashMap<>();
+            List<PList> entries = new ArrayList<>();
+            for (CallTracer.Entry entry : tracer.collect().values()) {
+                Object[] profilerEntry = getProfilerEntry(codes, entry);
+                Map<Object, CallTracer.Entry> subEntries = entry.getCalls();
+                if (subEntries != null) {
+                    Object[] calls = new Object[subEntries.size()];
+                    int callIdx = 0;
+                    for (CallTracer.Entry subEntry : subEntries.values()) {
+                        calls[callIdx++] = factory().createList(getProfilerEntry(codes, subEntry));
+                    }
+                    profilerEntry[profilerEntry.length - 1] = factory().createList(calls);
+                }
+                entries.add(factory().createList(profilerEntry));
+            }
+            return factory().createList(entries.toArray());
+        }
+
+        private Object[] getProfilerEntry(Map<Object, Object> codes, CallTracer.Entry entry) {
+            Object code = codes.computeIfAbsent(entry.getKey(), key -> {
+                RootNode root = (RootNode) key;
+                if (root instanceof PRootNode) {
+                    return factory().createCode(root.getCallTarget());
+                }
+                return root.getName();
+            });
+            return new Object[]{
+                            code,
+                            entry.getCallCount(),
+                            entry.getRecursiveCallCount(),
+                            entry.getTotalTime(),
+                            entry.getInlineTime(),
+                            PNone.NONE
+            };
+        }
+
         private void countNode(List<PList> entries, ProfilerNode<Payload> node, double avgSampleTime) {
             Collection<ProfilerNode<Payload>> children = node.getChildren();
             Object[] profilerEntry = getProfilerEntry(node, avgSampleTime);
@@ -44,6 +44,8 @@ import static com.oracle.graal.python.builtins.PythonBuiltinClassType.ValueError
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.StandardOpenOption;
 import java.util.HashSet;
@@ -55,13 +57,13 @@ import com.oracle.graal.python.builtins.CoreFunctions;
 import com.oracle.graal.python.builtins.PythonBuiltinClassType;
 import com.oracle.graal.python.builtins.PythonBuiltins;
 import com.oracle.graal.python.builtins.objects.PNone;
-import com.oracle.graal.python.builtins.objects.exception.OSErrorEnum;
 import com.oracle.graal.python.builtins.objects.ints.PInt;
 import com.oracle.graal.python.builtins.objects.mmap.PMMap;
 import com.oracle.graal.python.nodes.ErrorMessages;
 import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
 import com.oracle.graal.python.nodes.truffle.PythonArithmeticTypes;
+import com.oracle.graal.python.runtime.exception.PException;
 import com.oracle.graal.python.util.OverflowException;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.TruffleFile;
@@ -95,29 +97,40 @@ public class MMapModuleBuiltins extends PythonBuiltins {
     @TypeSystemReference(PythonArithmeticTypes.class)
     public abstract static class MMapNode extends PythonBuiltinNode {
 
-        private final BranchProfile invalidLengthProfile = BranchProfile.create();
+        private final BranchProfile invalidArgumentProfile = BranchProfile.create();
 
         @Specialization(guards = {"isAnonymous(fd)", "isNoValue(access)", "isNoValue(offset)"})
-        PMMap doAnonymous(Object clazz, @SuppressWarnings("unused") long fd, int length, @SuppressWarnings("unused") Object tagname, @SuppressWarnings("unused") PNone access,
-                        @SuppressWarnings("unused") PNone offset) {
+        PMMap doAnonymous(Object clazz, long fd, long length, Object tagname, @SuppressWarnings("unused") PNone access, @SuppressWarnings("unused") PNone offset) {
+            return doAnonymous(clazz, fd, length, tagname, ACCESS_DEFAULT, PNone.NO_VALUE);
+        }
+
+        @Specialization(guards = {"isAnonymous(fd)", "isNoValue(offset)"})
+        PMMap doAnonymous(Object clazz, @SuppressWarnings("unused") long fd, long length, @SuppressWarnings("unused") Object tagname, int access, @SuppressWarnings("unused") PNone offset) {
             checkLength(length);
-            return factory().createMMap(clazz, new AnonymousMap(length), length, 0);
+            checkAccess(access);
+            ByteBuffer[] regions = allocateRegions(length);
+            return factory().createMMap(clazz, null, regions, false, access == ACCESS_READ, length, 0);
         }
 
         @Specialization(guards = {"fd >= 0", "isNoValue(access)", "isNoValue(offset)"})
-        PMMap doFile(Object clazz, long fd, int length, Object tagname, @SuppressWarnings("unused") PNone access, @SuppressWarnings("unused") PNone offset) {
+        PMMap doFile(Object clazz, long fd, long length, Object tagname, @SuppressWarnings("unused") PNone access, @SuppressWarnings("unused") PNone offset) {
             return doFile(clazz, fd, length, tagname, ACCESS_DEFAULT, 0);
         }
 
         @Specialization(guards = {"fd >= 0", "isNoValue(offset)"})
-        PMMap doFile(Object clazz, long fd, int length, Object tagname, int access, @SuppressWarnings("unused") PNone offset) {
+        PMMap doFile(Object clazz, long fd, long length, Object tagname, int access, @SuppressWarnings("unused") PNone offset) {
             return doFile(clazz, fd, length, tagname, access, 0);
         }
 
         // mmap(fileno, length, tagname=None, access=ACCESS_DEFAULT[, offset])
         @Specialization(guards = "fd >= 0")
-        PMMap doFile(Object clazz, long fd, long length, @SuppressWarnings("unused") Object tagname, @SuppressWarnings("unused") int access, long offset) {
+        PMMap doFile(Object clazz, long fd, long length, @SuppressWarnings("unused") Object tagname, int access, long offset) {
             checkLength(length);
+            checkAccess(access);
+            if (offset < 0) {
+                invalidArgumentProfile.enter();
+                throw raise(PythonBuiltinClassType.OverflowError, ErrorMessages.MEM_MAPPED_OFFSET_MUST_BE_POSITIVE);
+            }
             int ifd;
             try {
                 ifd = PInt.intValueExact(fd);
@@ -128,29 +141,51 @@ public class MMapModuleBuiltins extends PythonBuiltins {
             String path = getContext().getResources().getFilePath(ifd);
             TruffleFile truffleFile = getContext().getEnv().getPublicTruffleFile(path);
 
-            // TODO(fa) correctly honor access flags
-            Set<StandardOpenOption> options = set(StandardOpenOption.READ, StandardOpenOption.WRITE);
+            boolean readonly = access == ACCESS_READ;
+            Set<StandardOpenOption> options = readonly ? set(StandardOpenOption.READ) : set(StandardOpenOption.READ, StandardOpenOption.WRITE);
 
             // we create a new channel otherwise we cannot guarantee that the cursor is exclusive
             SeekableByteChannel fileChannel;
             try {
                 fileChannel = truffleFile.newByteChannel(options);
-                position(fileChannel, offset);
+            } catch (IOException e) {
+                throw raise(ValueError, ErrorMessages.CANNOT_MMAP_FILE);
+            }
 
+            try {
+                long fileSize = size(fileChannel);
                 long actualLen;
                 if (length == 0) {
-                    try {
-                        actualLen = PMMap.size(fileChannel) - offset;
-                    } catch (IOException e) {
-                        throw raiseOSError(null, OSErrorEnum.EIO, e);
+                    if (fileSize == 0) {
+                        throw raise(ValueError, ErrorMessages.CANNOT_MMAP_EMPTY_FILE);
+                    } else if (offset >= fileSize) {
+                        throw raise(ValueError, ErrorMessages.MMAP_OFFSET_GREATER_THAN_FILE_SIZE);
                     }
+                    actualLen = fileSize - offset;
                 } else {
+                    if (offset > fileSize || fileSize - offset < length) {
+                        throw raise(ValueError, ErrorMessages.MMAP_LENGTH_GREATER_THAN_FILE_SIZE);
+                    }
                     actualLen = length;
                 }
 
-                return factory().createMMap(clazz, fileChannel, actualLen, offset);
+                ByteBuffer[] regions;
+                boolean writeBack;
+                if (fileChannel instanceof FileChannel) {
+                    regions = mapRegions((FileChannel) fileChannel, mapMode(access), offset, actualLen);
+                    writeBack = false;
+                } else {
+                    // the file system does not support mapping; work on a copy
+                    regions = readRegions(fileChannel, offset, actualLen, readonly);
+                    writeBack = access != ACCESS_COPY;
+                }
+                return factory().createMMap(clazz, fileChannel, regions, writeBack, readonly, actualLen, offset);
             } catch (IOException e) {
+                closeQuietly(fileChannel);
                 throw raise(ValueError, ErrorMessages.CANNOT_MMAP_FILE);
+            } catch (PException e) {
+                closeQuietly(fileChannel);
+                throw e;
             }
         }
 
@@ -179,68 +214,82 @@ public class MMapModuleBuiltins extends PythonBuiltins {
 
         private void checkLength(long length) {
             if (length < 0) {
-                invalidLengthProfile.enter();
+                invalidArgumentProfile.enter();
                 throw raise(PythonBuiltinClassType.OverflowError, ErrorMessages.MEM_MAPPED_LENGTH_MUST_BE_POSITIVE);
             }
         }
 
-        @TruffleBoundary
-        private static void position(SeekableByteChannel ch, long offset) throws IOException {
-            ch.position(offset);
-        }
-    }
-
-    private static class AnonymousMap implements SeekableByteChannel {
-        private final byte[] data;
-
-        private boolean open = true;
-        private int cur;
-
-        public AnonymousMap(int cap) {
-            this.data = new byte[cap];
+        private void checkAccess(int access) {
+            if (access < ACCESS_DEFAULT || access > ACCESS_COPY) {
+                invalidArgumentProfile.enter();
+                throw raise(ValueError, ErrorMessages.MMAP_INVALID_ACCESS_PARAMETER);
+            }
         }
 
-        public boolean isOpen() {
-            return open;
+        private static MapMode mapMode(int access) {
+            switch (access) {
+                case ACCESS_READ:
+                    return MapMode.READ_ONLY;
+                case ACCESS_COPY:
+                    return MapMode.PRIVATE;
+                default:
+                    return MapMode.READ_WRITE;
+            }
         }
 
-        public void close() throws IOException {
-            open = false;
+        private static int regionCount(long length) {
+            return (int) ((length + PMMap.REGION_SIZE - 1) >>> PMMap.REGION_SHIFT);
         }
 
-        public int read(ByteBuffer dst) throws IOException {
-            int nread = Math.min(dst.remaining(), data.length - cur);
-            dst.put(data, cur, nread);
-            return nread;
+        private static long regionLength(long length, int i) {
+            return Math.min(PMMap.REGION_SIZE, length - ((long) i << PMMap.REGION_SHIFT));
         }
 
-        public int write(ByteBuffer src) throws IOException {
-            int nwrite = Math.min(src.remaining(), data.length - cur);
-            src.get(data, cur, nwrite);
-            return nwrite;
+        @TruffleBoundary
+        private static ByteBuffer[] allocateRegions(long length) {
+            ByteBuffer[] regions = new ByteBuffer[regionCount(length)];
+            for (int i = 0; i < regions.length; i++) {
+                regions[i] = ByteBuffer.allocateDirect((int) regionLength(length, i));
+            }
+            return regions;
         }
 
-        public long position() throws IOException {
-            return cur;
+        @TruffleBoundary
+        private static ByteBuffer[] mapRegions(FileChannel channel, MapMode mode, long offset, long length) throws IOException {
+            ByteBuffer[] regions = new ByteBuffer[regionCount(length)];
+            for (int i = 0; i < regions.length; i++) {
+                regions[i] = channel.map(mode, offset + ((long) i << PMMap.REGION_SHIFT), regionLength(length, i));
+            }
+            return regions;
         }
 
-        public SeekableByteChannel position(long newPosition) throws IOException {
-            if (newPosition < 0) {
-                throw new IllegalArgumentException();
+        @TruffleBoundary
+        private static ByteBuffer[] readRegions(SeekableByteChannel channel, long offset, long length, boolean readonly) throws IOException {
+            ByteBuffer[] regions = new ByteBuffer[regionCount(length)];
+            for (int i = 0; i < regions.length; i++) {
+                ByteBuffer region = ByteBuffer.allocate((int) regionLength(length, i));
+                channel.position(offset + ((long) i << PMMap.REGION_SHIFT));
+                while (region.hasRemaining() && channel.read(region) >= 0) {
+                    // keep reading
+                }
+                region.clear();
+                regions[i] = readonly ? region.asReadOnlyBuffer() : region;
             }
-            cur = (int) newPosition;
-            return this;
+            return regions;
         }
 
-        public long size() throws IOException {
-            return data.length;
+        @TruffleBoundary
+        private static long size(SeekableByteChannel channel) throws IOException {
+            return channel.size();
         }
 
-        public SeekableByteChannel truncate(long size) throws IOException {
-            for (int i = 0; i < size; i++) {
-                data[i] = 0;
+        @TruffleBoundary
+        private static void closeQuietly(SeekableByteChannel channel) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // ignore
             }
-            return this;
         }
     }
 }
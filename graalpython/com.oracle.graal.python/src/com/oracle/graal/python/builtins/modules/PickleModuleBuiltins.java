@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.modules;
+
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.bytes.PBytes;
+import com.oracle.graal.python.builtins.objects.function.PArguments;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.memoryview.PMemoryView;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.builtins.objects.pickle.PPickleBuffer;
+import com.oracle.graal.python.builtins.objects.pickle.PPickler;
+import com.oracle.graal.python.builtins.objects.pickle.PUnpickler;
+import com.oracle.graal.python.builtins.objects.pickle.PickleReader;
+import com.oracle.graal.python.builtins.objects.pickle.PickleUtils;
+import com.oracle.graal.python.builtins.objects.pickle.PickleWriter;
+import com.oracle.graal.python.builtins.objects.pickle.PicklerBuiltins;
+import com.oracle.graal.python.builtins.objects.pickle.UnpicklerBuiltins;
+import com.oracle.graal.python.builtins.objects.str.PString;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.runtime.PythonCore;
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.interop.UnsupportedMessageException;
+import com.oracle.truffle.api.library.CachedLibrary;
+
+/**
+ * The {@code _pickle} accelerator module. The pickling and unpickling itself is done by
+ * {@link PickleWriter} and {@link PickleReader}; the functions here only set up a temporary
+ * {@link PPickler} or {@link PUnpickler}.
+ */
+@CoreFunctions(defineModule = "_pickle")
+public class PickleModuleBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return PickleModuleBuiltinsFactory.getFactories();
+    }
+
+    @Override
+    public void initialize(PythonCore core) {
+        super.initialize(core);
+        builtinConstants.put("HIGHEST_PROTOCOL", PickleUtils.HIGHEST_PROTOCOL);
+        builtinConstants.put("DEFAULT_PROTOCOL", PickleUtils.DEFAULT_PROTOCOL);
+    }
+
+    // dump(obj, file, protocol=None, *, fix_imports=True, buffer_callback=None)
+    @Builtin(name = "dump", minNumOfPositionalArgs = 2, parameterNames = {"obj", "file", "protocol"}, varArgsMarker = true, keywordOnlyNames = {"fix_imports", "buffer_callback"})
+    @GenerateNodeFactory
+    public abstract static class DumpNode extends PythonBuiltinNode {
+
+        @Specialization
+        PNone dump(VirtualFrame frame, Object obj, Object file, Object protocol, Object fixImports, Object bufferCallback,
+                        @CachedLibrary(limit = "getCallSiteInlineCacheMaxDepth()") PythonObjectLibrary lib) {
+            PPickler pickler = factory().createPickler(PythonBuiltinClassType.PPickler);
+            PicklerBuiltins.initPickler(this, pickler, file, protocol, fixImports, bufferCallback, lib, PArguments.getThreadState(frame));
+            doDump(pickler, obj);
+            return PNone.NONE;
+        }
+
+        @TruffleBoundary
+        private void doDump(PPickler pickler, Object obj) {
+            new PickleWriter(this, pickler).dump(obj);
+        }
+    }
+
+    // dumps(obj, protocol=None, *, fix_imports=True, buffer_callback=None)
+    @Builtin(name = "dumps", minNumOfPositionalArgs = 1, parameterNames = {"obj", "protocol"}, varArgsMarker = true, keywordOnlyNames = {"fix_imports", "buffer_callback"})
+    @GenerateNodeFactory
+    public abstract static class DumpsNode extends PythonBuiltinNode {
+
+        @Specialization
+        PBytes dumps(VirtualFrame frame, Object obj, Object protocol, Object fixImports, Object bufferCallback,
+                        @CachedLibrary(limit = "getCallSiteInlineCacheMaxDepth()") PythonObjectLibrary lib) {
+            PPickler pickler = factory().createPickler(PythonBuiltinClassType.PPickler);
+            PicklerBuiltins.initPickler(this, pickler, null, protocol, fixImports, bufferCallback, lib, PArguments.getThreadState(frame));
+            return doDumps(pickler, obj);
+        }
+
+        @TruffleBoundary
+        private PBytes doDumps(PPickler pickler, Object obj) {
+            PickleWriter writer = new PickleWriter(this, pickler);
+            writer.dump(obj);
+            return writer.getBytes();
+        }
+    }
+
+    // load(file, *, fix_imports=True, encoding="ASCII", errors="strict", buffers=None)
+    @Builtin(name = "load", minNumOfPositionalArgs = 1, parameterNames = {"file"}, varArgsMarker = true, keywordOnlyNames = {"fix_imports", "encoding", "errors", "buffers"})
+    @GenerateNodeFactory
+    public abstract static class LoadNode extends PythonBuiltinNode {
+
+        @Specialization
+        Object load(Object file, Object fixImports, Object encoding, Object errors, Object buffers) {
+            PUnpickler unpickler = factory().createUnpickler(PythonBuiltinClassType.PUnpickler);
+            UnpicklerBuiltins.initUnpickler(this, unpickler, file, fixImports, encoding, errors, buffers);
+            return doLoad(unpickler);
+        }
+
+        @TruffleBoundary
+        private Object doLoad(PUnpickler unpickler) {
+            return new PickleReader(this, unpickler).load();
+        }
+    }
+
+    // loads(data, /, *, fix_imports=True, encoding="ASCII", errors="strict", buffers=None)
+    @Builtin(name = "loads", minNumOfPositionalArgs = 1, parameterNames = {"data"}, varArgsMarker = true, keywordOnlyNames = {"fix_imports", "encoding", "errors", "buffers"})
+    @GenerateNodeFactory
+    public abstract static class LoadsNode extends PythonBuiltinNode {
+
+        @Specialization
+        Object loads(Object data, Object fixImports, Object encoding, Object errors, Object buffers,
+                        @CachedLibrary(limit = "3") PythonObjectLibrary lib) {
+            byte[] bytes;
+            int length;
+            SequenceStorage storage = data instanceof PBytes ? ((PBytes) data).getSequenceStorage() : null;
+            if (storage instanceof ByteSequenceStorage) {
+                // bytes are immutable, so the unpickler can read from the storage in place
+                bytes = ((ByteSequenceStorage) storage).getInternalByteArray();
+                length = storage.length();
+            } else if (!(data instanceof String || data instanceof PString) && lib.isBuffer(data)) {
+                try {
+                    bytes = lib.getBufferBytes(data);
+                } catch (UnsupportedMessageException e) {
+                    throw raise(TypeError, ErrorMessages.BYTESLIKE_OBJ_REQUIRED, data);
+                }
+                length = bytes.length;
+            } else {
+                throw raise(TypeError, ErrorMessages.BYTESLIKE_OBJ_REQUIRED, data);
+            }
+            PUnpickler unpickler = factory().createUnpickler(PythonBuiltinClassType.PUnpickler);
+            UnpicklerBuiltins.initUnpickler(this, unpickler, null, fixImports, encoding, errors, buffers);
+            return doLoads(unpickler, bytes, length);
+        }
+
+        @TruffleBoundary
+        private Object doLoads(PUnpickler unpickler, byte[] bytes, int length) {
+            return new PickleReader(this, unpickler, bytes, length).load();
+        }
+    }
+
+    @Builtin(name = "Pickler", minNumOfPositionalArgs = 1, takesVarArgs = true, takesVarKeywordArgs = true, constructsClass = PythonBuiltinClassType.PPickler)
+    @GenerateNodeFactory
+    public abstract static class PicklerNode extends PythonBuiltinNode {
+
+        @Specialization
+        PPickler doNew(Object cls, @SuppressWarnings("unused") Object[] args, @SuppressWarnings("unused") PKeyword[] kwargs) {
+            return factory().createPickler(cls);
+        }
+    }
+
+    @Builtin(name = "Unpickler", minNumOfPositionalArgs = 1, takesVarArgs = true, takesVarKeywordArgs = true, constructsClass = PythonBuiltinClassType.PUnpickler)
+    @GenerateNodeFactory
+    public abstract static class UnpicklerNode extends PythonBuiltinNode {
+
+        @Specialization
+        PUnpickler doNew(Object cls, @SuppressWarnings("unused") Object[] args, @SuppressWarnings("unused") PKeyword[] kwargs) {
+            return factory().createUnpickler(cls);
+        }
+    }
+
+    // PickleBuffer(buffer)
+    @Builtin(name = "PickleBuffer", minNumOfPositionalArgs = 2, parameterNames = {"cls", "buffer"}, constructsClass = PythonBuiltinClassType.PPickleBuffer)
+    @GenerateNodeFactory
+    public abstract static class PickleBufferNode extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        PPickleBuffer doNew(Object cls, Object buffer) {
+            Object view = createView(buffer);
+            if (!(view instanceof PMemoryView) || !((PMemoryView) view).isManaged()) {
+                throw raise(TypeError, ErrorMessages.BYTESLIKE_OBJ_REQUIRED, buffer);
+            }
+            return factory().createPickleBuffer(cls, (PMemoryView) view);
+        }
+
+        @TruffleBoundary
+        private Object createView(Object buffer) {
+            return CallNode.getUncached().execute(getCore().lookupType(PythonBuiltinClassType.PMemoryView), buffer);
+        }
+    }
+}
@@ -168,13 +168,13 @@ public class PosixModuleBuiltins extends PythonBuiltins {
     private static final int DSYNC = 4096;
     private static final int NDELAY = 2048;
     private static final int NONBLOCK = 2048;
-    private static final int APPEND = 1024;
-    private static final int TRUNC = 512;
-    private static final int EXCL = 128;
-    private static final int CREAT = 64;
-    private static final int RDWR = 2;
-    private static final int WRONLY = 1;
-    private static final int RDONLY = 0;
+    public static final int APPEND = 1024;
+    public static final int TRUNC = 512;
+    public static final int EXCL = 128;
+    public static final int CREAT = 64;
+    public static final int RDWR = 2;
+    public static final int WRONLY = 1;
+    public static final int RDONLY = 0;
 
     private static final int SEEK_SET = 0;
     private static final int SEEK_CUR = 1;
@@ -219,7 +219,7 @@ public class PosixModuleBuiltins extends PythonBuiltins {
                     new PosixFilePermission[]{PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_EXECUTE},
     };
 
-    private static boolean terminalIsInteractive(PythonContext context) {
+    public static boolean terminalIsInteractive(PythonContext context) {
         return context.getOption(PythonOptions.TerminalIsInteractive);
     }
 
@@ -918,6 +918,8 @@ public class PosixModuleBuiltins extends PythonBuiltins {
     @TypeSystemReference(PythonArithmeticTypes.class)
     public abstract static class OpenNode extends PythonFileNode {
 
+        public abstract Object executeWith(VirtualFrame frame, Object pathname, Object flags, Object fileMode, Object dirFd);
+
         @Specialization(guards = {"isNoValue(mode)", "isNoValue(dir_fd)"}, limit = "1")
         Object open(VirtualFrame frame, Object pathname, long flags, @SuppressWarnings("unused") PNone mode, PNone dir_fd,
                         @CachedLibrary("pathname") PythonObjectLibrary lib) {
@@ -1000,6 +1002,10 @@ public class PosixModuleBuiltins extends PythonBuiltins {
             }
             return options;
         }
+
+        public static OpenNode create() {
+            return PosixModuleBuiltinsFactory.OpenNodeFactory.create(null);
+        }
     }
 
     @Builtin(name = "lseek", minNumOfPositionalArgs = 3)
@@ -2330,8 +2330,10 @@ public class PythonCextBuiltins extends PythonBuiltins {
     @GenerateNodeFactory
     abstract static class PyTruffleHandleCacheCreate extends PythonUnaryBuiltinNode {
         @Specialization
-        static Object createCache(TruffleObject ptrToResolveHandle) {
-            return new HandleCache(ptrToResolveHandle);
+        Object createCache(TruffleObject ptrToResolveHandle) {
+            HandleCache handleCache = new HandleCache(ptrToResolveHandle);
+            getContext().setHandleCache(handleCache);
+            return handleCache;
         }
     }
 
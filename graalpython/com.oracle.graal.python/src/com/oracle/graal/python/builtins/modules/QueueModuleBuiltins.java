@@ -40,18 +40,50 @@
  */
 package com.oracle.graal.python.builtins.modules;
 
-import java.util.ArrayList;
 import java.util.List;
 
+import com.oracle.graal.python.builtins.Builtin;
 import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
 import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.queue.PQueue;
+import com.oracle.graal.python.builtins.objects.queue.PSimpleQueue;
 import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
 
 @CoreFunctions(defineModule = "_queue")
 public class QueueModuleBuiltins extends PythonBuiltins {
     @Override
     protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
-        return new ArrayList<>();
+        return QueueModuleBuiltinsFactory.getFactories();
+    }
+
+    @Builtin(name = "SimpleQueue", minNumOfPositionalArgs = 1, constructsClass = PythonBuiltinClassType.PSimpleQueue)
+    @GenerateNodeFactory
+    abstract static class ConstructSimpleQueueNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        PSimpleQueue construct(Object cls) {
+            return factory().createSimpleQueue(cls);
+        }
+    }
+
+    // Queue(maxsize=0)
+    @Builtin(name = "Queue", minNumOfPositionalArgs = 1, parameterNames = {"cls", "maxsize"}, constructsClass = PythonBuiltinClassType.PQueue)
+    @GenerateNodeFactory
+    abstract static class ConstructQueueNode extends PythonBinaryBuiltinNode {
+        @Specialization
+        PQueue construct(Object cls, @SuppressWarnings("unused") PNone maxsize) {
+            return factory().createQueue(cls, 0);
+        }
+
+        @Specialization
+        PQueue construct(Object cls, int maxsize) {
+            return factory().createQueue(cls, maxsize);
+        }
     }
 }
@@ -40,6 +40,7 @@
  */
 package com.oracle.graal.python.builtins.modules;
 
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.RuntimeError;
 import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
 import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
 
@@ -54,19 +55,28 @@ import com.oracle.graal.python.builtins.objects.PNone;
 import com.oracle.graal.python.builtins.objects.bytes.BytesNodes;
 import com.oracle.graal.python.builtins.objects.bytes.BytesUtils;
 import com.oracle.graal.python.builtins.objects.bytes.PIBytesLike;
+import com.oracle.graal.python.builtins.objects.common.SequenceNodes;
 import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes;
 import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodesFactory.ToByteArrayNodeGen;
 import com.oracle.graal.python.builtins.objects.memoryview.PMemoryView;
+import com.oracle.graal.python.builtins.objects.sre.PSRECode;
 import com.oracle.graal.python.builtins.objects.str.PString;
 import com.oracle.graal.python.nodes.ErrorMessages;
 import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonQuaternaryBuiltinNode;
 import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
 import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
 import com.oracle.graal.python.nodes.truffle.PythonArithmeticTypes;
+import com.oracle.graal.python.nodes.util.CannotCastException;
+import com.oracle.graal.python.nodes.util.CastToJavaLongExactNode;
+import com.oracle.graal.python.nodes.util.CastToJavaStringNode;
 import com.oracle.graal.python.runtime.ExecutionContext.IndirectCallContext;
 import com.oracle.graal.python.runtime.PythonContext;
 import com.oracle.graal.python.runtime.PythonOptions;
 import com.oracle.graal.python.runtime.exception.PythonErrorType;
+import com.oracle.graal.python.runtime.sequence.storage.IntSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
 import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
@@ -253,4 +263,82 @@ public class SREModuleBuiltins extends PythonBuiltins {
             }
         }
     }
+
+    /**
+     * Compiles the opcode list produced by {@code sre_compile._code} for the Java SRE matcher. This
+     * is the fallback for patterns TRegex rejects.
+     */
+    @Builtin(name = "sre_code_compile", minNumOfPositionalArgs = 2)
+    @TypeSystemReference(PythonArithmeticTypes.class)
+    @GenerateNodeFactory
+    abstract static class SRECodeCompile extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        PSRECode compile(Object codeList, int groups,
+                        @Cached SequenceNodes.GetObjectArrayNode getObjectArrayNode,
+                        @Cached CastToJavaLongExactNode castToLongNode) {
+            Object[] items = getObjectArrayNode.execute(codeList);
+            int[] code = new int[items.length];
+            for (int i = 0; i < items.length; i++) {
+                try {
+                    // opcode arguments are unsigned 32-bit values
+                    code[i] = (int) castToLongNode.execute(items[i]);
+                } catch (CannotCastException e) {
+                    throw raise(TypeError, ErrorMessages.INTEGER_REQUIRED_GOT, items[i]);
+                }
+            }
+            return factory().createSRECode(code, groups);
+        }
+    }
+
+    /**
+     * Runs a compiled SRE program on a {@code str} or bytes-like input, starting at {@code pos}.
+     * Returns {@code None} if there is no match, otherwise a tuple with the start and end of every
+     * group ({@code -1} for groups that did not participate).
+     */
+    @Builtin(name = "sre_code_exec", minNumOfPositionalArgs = 4)
+    @TypeSystemReference(PythonArithmeticTypes.class)
+    @GenerateNodeFactory
+    abstract static class SRECodeExec extends PythonQuaternaryBuiltinNode {
+
+        @Specialization
+        Object doString(PSRECode code, String input, int pos, boolean sticky) {
+            try {
+                return toResult(code.createMatcher().exec(input, pos, sticky));
+            } catch (IllegalStateException e) {
+                throw raise(RuntimeError, ErrorMessages.INTERNAL_ERROR_IN_REGEX_ENGINE);
+            }
+        }
+
+        @Specialization
+        Object doPString(PSRECode code, PString input, int pos, boolean sticky,
+                        @Cached CastToJavaStringNode castToStringNode) {
+            return doString(code, castToStringNode.execute(input), pos, sticky);
+        }
+
+        @Specialization
+        Object doBytesLike(PSRECode code, PIBytesLike input, int pos, boolean sticky,
+                        @Cached SequenceStorageNodes.GetInternalByteArrayNode getInternalByteArrayNode,
+                        @Cached SequenceStorageNodes.LenNode lenNode) {
+            SequenceStorage storage = input.getSequenceStorage();
+            try {
+                return toResult(code.createMatcher().exec(getInternalByteArrayNode.execute(storage), lenNode.execute(storage), pos, sticky));
+            } catch (IllegalStateException e) {
+                throw raise(RuntimeError, ErrorMessages.INTERNAL_ERROR_IN_REGEX_ENGINE);
+            }
+        }
+
+        @Fallback
+        @SuppressWarnings("unused")
+        Object doGeneric(Object code, Object input, Object pos, Object sticky) {
+            throw raise(TypeError, ErrorMessages.EXPECTED_STR_OR_BYTESLIKE_OBJ);
+        }
+
+        private Object toResult(int[] spans) {
+            if (spans == null) {
+                return PNone.NONE;
+            }
+            return factory().createTuple(new IntSequenceStorage(spans));
+        }
+    }
 }
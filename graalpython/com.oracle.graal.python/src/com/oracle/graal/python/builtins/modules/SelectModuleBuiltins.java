@@ -57,6 +57,9 @@ import com.oracle.graal.python.builtins.objects.exception.OSErrorEnum;
 import com.oracle.graal.python.builtins.objects.function.PArguments;
 import com.oracle.graal.python.builtins.objects.list.PList;
 import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.builtins.objects.select.PEpoll;
+import com.oracle.graal.python.builtins.objects.select.PPoll;
+import com.oracle.graal.python.builtins.objects.select.PollSet;
 import com.oracle.graal.python.builtins.objects.tuple.PTuple;
 import com.oracle.graal.python.nodes.ErrorMessages;
 import com.oracle.graal.python.nodes.PGuards;
@@ -65,6 +68,8 @@ import com.oracle.graal.python.nodes.builtins.ListNodes.FastConstructListNode;
 import com.oracle.graal.python.nodes.call.special.LookupAndCallBinaryNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
 import com.oracle.graal.python.runtime.exception.PythonErrorType;
 import com.oracle.graal.python.runtime.sequence.PSequence;
 import com.oracle.graal.python.runtime.sequence.storage.IntSequenceStorage;
@@ -83,6 +88,34 @@ public class SelectModuleBuiltins extends PythonBuiltins {
 
     public SelectModuleBuiltins() {
         builtinConstants.put("error", PythonErrorType.OSError);
+        builtinConstants.put("POLLIN", PollSet.POLLIN);
+        builtinConstants.put("POLLPRI", PollSet.POLLPRI);
+        builtinConstants.put("POLLOUT", PollSet.POLLOUT);
+        builtinConstants.put("POLLERR", PollSet.POLLERR);
+        builtinConstants.put("POLLHUP", PollSet.POLLHUP);
+        builtinConstants.put("POLLNVAL", PollSet.POLLNVAL);
+        builtinConstants.put("POLLRDNORM", PollSet.POLLRDNORM);
+        builtinConstants.put("POLLRDBAND", PollSet.POLLRDBAND);
+        builtinConstants.put("POLLWRNORM", PollSet.POLLWRNORM);
+        builtinConstants.put("POLLWRBAND", PollSet.POLLWRBAND);
+        builtinConstants.put("POLLMSG", PollSet.POLLMSG);
+        builtinConstants.put("POLLRDHUP", PollSet.POLLRDHUP);
+        // the epoll event bits are the same as the poll ones
+        builtinConstants.put("EPOLLIN", PollSet.POLLIN);
+        builtinConstants.put("EPOLLPRI", PollSet.POLLPRI);
+        builtinConstants.put("EPOLLOUT", PollSet.POLLOUT);
+        builtinConstants.put("EPOLLERR", PollSet.POLLERR);
+        builtinConstants.put("EPOLLHUP", PollSet.POLLHUP);
+        builtinConstants.put("EPOLLRDNORM", PollSet.POLLRDNORM);
+        builtinConstants.put("EPOLLRDBAND", PollSet.POLLRDBAND);
+        builtinConstants.put("EPOLLWRNORM", PollSet.POLLWRNORM);
+        builtinConstants.put("EPOLLWRBAND", PollSet.POLLWRBAND);
+        builtinConstants.put("EPOLLMSG", PollSet.POLLMSG);
+        builtinConstants.put("EPOLLRDHUP", PollSet.POLLRDHUP);
+        builtinConstants.put("EPOLLEXCLUSIVE", PollSet.EPOLLEXCLUSIVE);
+        builtinConstants.put("EPOLLONESHOT", PollSet.EPOLLONESHOT);
+        builtinConstants.put("EPOLLET", Integer.toUnsignedLong(PollSet.EPOLLET));
+        builtinConstants.put("EPOLL_CLOEXEC", PollSet.EPOLL_CLOEXEC);
     }
 
     @Override
@@ -274,4 +307,34 @@ public class SelectModuleBuiltins extends PythonBuiltins {
         }
 
     }
+
+    // poll()
+    @Builtin(name = "poll", minNumOfPositionalArgs = 1, parameterNames = {"cls"}, constructsClass = PythonBuiltinClassType.PPoll)
+    @GenerateNodeFactory
+    abstract static class PollNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        PPoll doNew(Object cls) {
+            return factory().createPoll(cls);
+        }
+    }
+
+    // epoll(sizehint=-1, flags=0)
+    @Builtin(name = "epoll", minNumOfPositionalArgs = 1, parameterNames = {"cls", "sizehint", "flags"}, constructsClass = PythonBuiltinClassType.PEpoll)
+    @GenerateNodeFactory
+    abstract static class EpollNode extends PythonTernaryBuiltinNode {
+
+        @Specialization
+        PEpoll doNew(VirtualFrame frame, Object cls, Object sizeHintObj, @SuppressWarnings("unused") Object flags,
+                        @CachedLibrary(limit = "1") PythonObjectLibrary lib) {
+            // the size hint is only validated, the selector grows as needed
+            if (!PGuards.isNoValue(sizeHintObj)) {
+                int sizeHint = lib.asSizeWithState(sizeHintObj, PArguments.getThreadState(frame));
+                if (sizeHint == 0 || sizeHint < -1) {
+                    throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.NEGATIVE_SIZEHINT);
+                }
+            }
+            return factory().createEpoll(cls);
+        }
+    }
 }
@@ -43,13 +43,10 @@ package com.oracle.graal.python.builtins.modules;
 
 import static com.oracle.graal.python.runtime.exception.PythonErrorType.ZLibError;
 
-import java.io.ByteArrayOutputStream;
 import java.util.List;
 import java.util.zip.Adler32;
 import java.util.zip.CRC32;
 import java.util.zip.DataFormatException;
-import java.util.zip.Deflater;
-import java.util.zip.Inflater;
 
 import com.oracle.graal.python.builtins.Builtin;
 import com.oracle.graal.python.builtins.CoreFunctions;
@@ -59,18 +56,24 @@ import com.oracle.graal.python.builtins.objects.PNone;
 import com.oracle.graal.python.builtins.objects.bytes.BytesNodes.ToBytesNode;
 import com.oracle.graal.python.builtins.objects.bytes.PBytes;
 import com.oracle.graal.python.builtins.objects.bytes.PIBytesLike;
-import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes;
-import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodesFactory.ToByteArrayNodeGen;
+import com.oracle.graal.python.builtins.objects.function.PArguments;
 import com.oracle.graal.python.builtins.objects.ints.PInt;
 import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.builtins.objects.zlib.PZLibCompress;
+import com.oracle.graal.python.builtins.objects.zlib.PZLibDecompress;
+import com.oracle.graal.python.builtins.objects.zlib.ZLibDecompressBuiltins;
+import com.oracle.graal.python.builtins.objects.zlib.ZLibDeflateStream;
+import com.oracle.graal.python.builtins.objects.zlib.ZLibInflateStream;
+import com.oracle.graal.python.builtins.objects.zlib.ZLibNodes.ToInputStorageNode;
 import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PGuards;
 import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
 import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
 import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
 import com.oracle.graal.python.nodes.truffle.PythonArithmeticTypes;
-import com.oracle.graal.python.nodes.util.CastToJavaIntExactNode;
 import com.oracle.graal.python.runtime.PythonCore;
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Cached;
@@ -79,39 +82,38 @@ import com.oracle.truffle.api.dsl.NodeFactory;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.dsl.TypeSystemReference;
 import com.oracle.truffle.api.frame.VirtualFrame;
-import com.oracle.truffle.api.interop.TruffleObject;
 import com.oracle.truffle.api.library.CachedLibrary;
 import com.oracle.truffle.api.profiles.ConditionProfile;
 
 @CoreFunctions(defineModule = ZLibModuleBuiltins.MODULE_NAME)
 public class ZLibModuleBuiltins extends PythonBuiltins {
 
-    protected static final int MAX_WBITS = 15;
-    protected static final int DEFLATED = 8;
-    protected static final int DEF_MEM_LEVEL = 8;
-    protected static final int DEF_BUF_SIZE = 16 * 1024;
+    public static final int MAX_WBITS = 15;
+    public static final int DEFLATED = 8;
+    public static final int DEF_MEM_LEVEL = 8;
+    public static final int DEF_BUF_SIZE = 16 * 1024;
     // compression levels
-    protected static final int Z_NO_COMPRESSION = 0;
-    protected static final int Z_BEST_SPEED = 1;
-    protected static final int Z_BEST_COMPRESSION = 9;
-    protected static final int Z_DEFAULT_COMPRESSION = -1;
+    public static final int Z_NO_COMPRESSION = 0;
+    public static final int Z_BEST_SPEED = 1;
+    public static final int Z_BEST_COMPRESSION = 9;
+    public static final int Z_DEFAULT_COMPRESSION = -1;
     // compression strategies
-    protected static final int Z_FILTERED = 1;
-    protected static final int Z_HUFFMAN_ONLY = 2;
-    protected static final int Z_RLE = 3;
-    protected static final int Z_FIXED = 4;
-    protected static final int Z_DEFAULT_STRATEGY = 0;
+    public static final int Z_FILTERED = 1;
+    public static final int Z_HUFFMAN_ONLY = 2;
+    public static final int Z_RLE = 3;
+    public static final int Z_FIXED = 4;
+    public static final int Z_DEFAULT_STRATEGY = 0;
     // allowed flush values
-    protected static final int Z_NO_FLUSH = 0;
-    protected static final int Z_PARTIAL_FLUSH = 1;
-    protected static final int Z_SYNC_FLUSH = 2;
-    protected static final int Z_FULL_FLUSH = 3;
-    protected static final int Z_FINISH = 4;
-    protected static final int Z_BLOCK = 5;
-    protected static final int Z_TREES = 6;
+    public static final int Z_NO_FLUSH = 0;
+    public static final int Z_PARTIAL_FLUSH = 1;
+    public static final int Z_SYNC_FLUSH = 2;
+    public static final int Z_FULL_FLUSH = 3;
+    public static final int Z_FINISH = 4;
+    public static final int Z_BLOCK = 5;
+    public static final int Z_TREES = 6;
 
     // errors
-    protected static final int Z_BUF_ERROR = -5;
+    public static final int Z_BUF_ERROR = -5;
 
     protected static final String MODULE_NAME = "zlib";
 
@@ -341,177 +343,67 @@ public class ZLibModuleBuiltins extends PythonBuiltins {
         }
     }
 
-    @Builtin(name = "zlib_deflateInit", minNumOfPositionalArgs = 6)
+    // zlib.compressobj(level=Z_DEFAULT_COMPRESSION, method=DEFLATED, wbits=MAX_WBITS,
+    // memLevel=DEF_MEM_LEVEL, strategy=Z_DEFAULT_STRATEGY, zdict=None)
+    @Builtin(name = "compressobj", parameterNames = {"level", "method", "wbits", "memLevel", "strategy", "zdict"})
     @GenerateNodeFactory
-    abstract static class DeflateInitNode extends PythonBuiltinNode {
+    abstract static class CompressObjNode extends PythonBuiltinNode {
+
         /**
-         * @param memLevel is ignored - it mostly affects performance and compression rate, we trust
-         *            that the Deflater implementation will work well
+         * @param memLevelObj is only validated - it mostly affects performance and compression rate,
+         *            we trust that the Deflater implementation will work well
          */
         @Specialization
-        @TruffleBoundary
-        Object deflateInit(int level, int method, int wbits, int memLevel, int strategy, Object zdict) {
-            Deflater deflater;
-            if (wbits < 0) {
-                // generate a RAW stream, i.e., no wrapping
-                deflater = new Deflater(level, true);
-            } else if (wbits >= 25) {
-                // include gzip container
-                throw raise(PythonBuiltinClassType.NotImplementedError, "gzip containers");
-            } else {
-                // wrap stream with zlib header and trailer
-                deflater = new Deflater(level, false);
-            }
-
+        PZLibCompress compressobj(VirtualFrame frame, Object levelObj, Object methodObj, Object wbitsObj, Object memLevelObj, Object strategyObj, Object zdictObj,
+                        @CachedLibrary(limit = "getCallSiteInlineCacheMaxDepth()") PythonObjectLibrary lib,
+                        @Cached ToBytesNode toBytesNode) {
+            int level = asInt(frame, levelObj, Z_DEFAULT_COMPRESSION, lib);
+            int method = asInt(frame, methodObj, DEFLATED, lib);
+            int wbits = asInt(frame, wbitsObj, MAX_WBITS, lib);
+            int memLevel = asInt(frame, memLevelObj, DEF_MEM_LEVEL, lib);
+            int strategy = asInt(frame, strategyObj, Z_DEFAULT_STRATEGY, lib);
             if (method != DEFLATED) {
                 throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.ONLY_DEFLATED_ALLOWED_AS_METHOD, DEFLATED, method);
             }
-            deflater.setStrategy(strategy);
-            if (zdict instanceof String) {
-                deflater.setDictionary(((String) zdict).getBytes());
-            } else if (!(zdict instanceof PNone)) {
-                throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.MUST_BE_STRINGS_NOT_P, "zdict", zdict);
+            int container = ZLibDeflateStream.getContainer(wbits);
+            if (container < 0 || level < Z_DEFAULT_COMPRESSION || level > Z_BEST_COMPRESSION || memLevel < 1 || memLevel > 9 || strategy < Z_DEFAULT_STRATEGY || strategy > Z_FIXED) {
+                throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.INVALID_INITIALIZATION_OPTION);
             }
-            return new DeflaterWrapper(deflater);
+            byte[] zdict = PGuards.isPNone(zdictObj) ? null : toBytesNode.execute(frame, zdictObj);
+            ZLibDeflateStream stream = new ZLibDeflateStream(container, level, strategy, zdict, null);
+            return factory().createZLibCompress(PythonBuiltinClassType.PZLibCompress, stream, wbits, strategy, zdict);
         }
     }
 
-    static class DeflaterWrapper implements TruffleObject {
-        private final Deflater deflater;
-
-        public DeflaterWrapper(Deflater deflater) {
-            this.deflater = deflater;
-        }
-    }
-
-    @Builtin(name = "zlib_deflateCompress", minNumOfPositionalArgs = 3)
+    // zlib.decompressobj(wbits=MAX_WBITS, zdict=b'')
+    @Builtin(name = "decompressobj", parameterNames = {"wbits", "zdict"})
     @GenerateNodeFactory
-    abstract static class DeflateCompress extends PythonTernaryBuiltinNode {
-        @Child private ToBytesNode toBytes = ToBytesNode.create();
+    abstract static class DecompressObjNode extends PythonBinaryBuiltinNode {
 
         @Specialization
-        Object deflateCompress(VirtualFrame frame, DeflaterWrapper stream, Object pb, int mode) {
-            byte[] data = toBytes.execute(frame, pb);
-            byte[] result = new byte[DEF_BUF_SIZE];
-
-            ByteArrayOutputStream baos = deflate(stream, mode, data, result);
-
-            return factory().createBytes(baos.toByteArray());
-        }
-
-        @TruffleBoundary
-        private static ByteArrayOutputStream deflate(DeflaterWrapper stream, int mode, byte[] data, byte[] result) {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            stream.deflater.setInput(data);
-            int deflateMode = mode;
-            if (mode == Z_FINISH) {
-                deflateMode = Z_SYNC_FLUSH;
-                stream.deflater.finish();
-            }
-
-            int bytesWritten = result.length;
-            while (bytesWritten == result.length) {
-                bytesWritten = stream.deflater.deflate(result, 0, result.length, deflateMode);
-                baos.write(result, 0, bytesWritten);
-            }
-
-            if (mode == Z_FINISH) {
-                stream.deflater.end();
+        PZLibDecompress decompressobj(VirtualFrame frame, Object wbitsObj, Object zdictObj,
+                        @CachedLibrary(limit = "getCallSiteInlineCacheMaxDepth()") PythonObjectLibrary lib,
+                        @Cached ToBytesNode toBytesNode) {
+            int container = ZLibInflateStream.getContainer(asInt(frame, wbitsObj, MAX_WBITS, lib));
+            if (container < 0) {
+                throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.INVALID_INITIALIZATION_OPTION);
             }
-            return baos;
-        }
-    }
-
-    @Builtin(name = "zlib_inflateInit", minNumOfPositionalArgs = 2)
-    @GenerateNodeFactory
-    abstract static class InflateInitNode extends PythonBinaryBuiltinNode {
-        @Child private ToBytesNode toBytes = ToBytesNode.create();
-
-        @Specialization
-        Object init(VirtualFrame frame, int wbits, PBytes zdict) {
-            byte[] bytes = toBytes.execute(frame, zdict);
-            return new InflaterWrapper(inflate(wbits, bytes));
-        }
-
-        @TruffleBoundary
-        private Inflater inflate(int wbits, byte[] bytes) {
-            Inflater inflater;
-            if (wbits < 0) {
-                // generate a RAW stream, i.e., no wrapping
-                inflater = new Inflater(true);
-            } else if (wbits >= 25) {
-                // include gzip container
-                throw raise(PythonBuiltinClassType.NotImplementedError, "gzip containers");
-            } else {
-                // wrap stream with zlib header and trailer
-                inflater = new Inflater(false);
+            byte[] zdict = null;
+            if (!PGuards.isPNone(zdictObj)) {
+                zdict = toBytesNode.execute(frame, zdictObj);
+                if (zdict.length == 0) {
+                    zdict = null;
+                }
             }
-
-            inflater.setDictionary(bytes);
-            return inflater;
+            return factory().createZLibDecompress(PythonBuiltinClassType.PZLibDecompress, new ZLibInflateStream(container, zdict, null));
         }
     }
 
-    static class InflaterWrapper implements TruffleObject {
-        private final Inflater inflater;
-
-        public InflaterWrapper(Inflater inflater) {
-            this.inflater = inflater;
-        }
-
-        @TruffleBoundary(allowInlining = true)
-        private boolean needsInput() {
-            return inflater.needsInput();
-        }
-
-        @TruffleBoundary(allowInlining = true)
-        private int getRemaining() {
-            return inflater.getRemaining();
-        }
-    }
-
-    @Builtin(name = "zlib_inflateDecompress", minNumOfPositionalArgs = 3)
-    @GenerateNodeFactory
-    abstract static class InflaterDecompress extends PythonTernaryBuiltinNode {
-        @Child private ToBytesNode toBytes = ToBytesNode.create();
-
-        @Specialization
-        Object decompress(VirtualFrame frame, InflaterWrapper stream, PIBytesLike pb, int maxLen) {
-            int maxLength = maxLen == 0 ? Integer.MAX_VALUE : maxLen;
-
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            byte[] data = toBytes.execute(frame, pb);
-            byte[] result = new byte[Math.min(maxLen, DEF_BUF_SIZE)];
-            byte[] decompressed = decompress(stream, maxLength, baos, data, result);
-
-            return factory().createTuple(new Object[]{
-                            factory().createBytes(decompressed),
-                            stream.inflater.finished(),
-                            stream.getRemaining()
-            });
-        }
-
-        @Specialization
-        Object decompress(VirtualFrame frame, InflaterWrapper stream, PIBytesLike pb, long maxLen,
-                        @Cached CastToJavaIntExactNode castInt) {
-            return decompress(frame, stream, pb, castInt.execute(maxLen));
-        }
-
-        @TruffleBoundary
-        private byte[] decompress(InflaterWrapper stream, int maxLength, ByteArrayOutputStream baos, byte[] data, byte[] result) {
-            stream.inflater.setInput(data);
-            int bytesWritten = result.length;
-            while (baos.size() < maxLength && bytesWritten == result.length) {
-                try {
-                    bytesWritten = stream.inflater.inflate(result, 0, result.length);
-                } catch (DataFormatException e) {
-                    throw raise(ZLibError, e);
-                }
-                baos.write(result, 0, bytesWritten);
-            }
-            byte[] decompressed = baos.toByteArray();
-            return decompressed;
+    private static int asInt(VirtualFrame frame, Object value, int defaultValue, PythonObjectLibrary lib) {
+        if (PGuards.isNoValue(value)) {
+            return defaultValue;
         }
+        return lib.asSizeWithState(value, PArguments.getThreadState(frame));
     }
 
     // zlib.compress(data, level=-1)
@@ -520,45 +412,34 @@ public class ZLibModuleBuiltins extends PythonBuiltins {
     @GenerateNodeFactory
     public abstract static class CompressNode extends PythonBinaryBuiltinNode {
 
-        @Child private SequenceStorageNodes.ToByteArrayNode toArrayNode;
+        @Child private ToInputStorageNode toInputNode;
 
-        private SequenceStorageNodes.ToByteArrayNode getToArrayNode() {
-            if (toArrayNode == null) {
+        private PBytes compressData(VirtualFrame frame, Object data, int level) {
+            if (toInputNode == null) {
                 CompilerDirectives.transferToInterpreterAndInvalidate();
-                toArrayNode = insert(ToByteArrayNodeGen.create());
+                toInputNode = insert(ToInputStorageNode.create());
             }
-            return toArrayNode;
-        }
-
-        @TruffleBoundary
-        private static byte[] compress(byte[] input, int level) {
-            Deflater compresser = new Deflater(level);
-            compresser.setInput(input);
-            compresser.finish();
-            byte[] resultArray = new byte[DEF_BUF_SIZE];
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            while (!compresser.finished()) {
-                int howmany = compresser.deflate(resultArray);
-                baos.write(resultArray, 0, howmany);
+            ByteSequenceStorage input = toInputNode.execute(frame, data);
+            ZLibDeflateStream stream = new ZLibDeflateStream(ZLibInflateStream.CONTAINER_ZLIB, level, Z_DEFAULT_STRATEGY, null, getContext().getZLibStreamPool());
+            try {
+                return factory().createBytes(stream.compress((byte[]) input.getInternalArrayObject(), 0, input.length(), Z_FINISH));
+            } finally {
+                stream.release();
             }
-            compresser.end();
-            return baos.toByteArray();
         }
 
         @Specialization
-        public PBytes doitNone(PIBytesLike data, @SuppressWarnings("unused") PNone level) {
-            byte[] array = getToArrayNode().execute(data.getSequenceStorage());
-            return factory().createBytes(compress(array, -1));
+        public PBytes doitNone(VirtualFrame frame, PIBytesLike data, @SuppressWarnings("unused") PNone level) {
+            return compressData(frame, data, Z_DEFAULT_COMPRESSION);
         }
 
         @Specialization
-        public PBytes doitLong(PIBytesLike data, long level,
+        public PBytes doitLong(VirtualFrame frame, PIBytesLike data, long level,
                         @Cached("createBinaryProfile()") ConditionProfile wrongLevelProfile) {
             if (wrongLevelProfile.profile(level < -1 || 9 < level)) {
                 throw raise(ZLibError, ErrorMessages.BAD_COMPRESSION_LEVEL);
             }
-            byte[] array = getToArrayNode().execute(data.getSequenceStorage());
-            return factory().createBytes(compress(array, (int) level));
+            return compressData(frame, data, (int) level);
         }
 
     }
@@ -569,60 +450,54 @@ public class ZLibModuleBuiltins extends PythonBuiltins {
     @GenerateNodeFactory
     public abstract static class DecompressNode extends PythonTernaryBuiltinNode {
 
-        @Child private SequenceStorageNodes.ToByteArrayNode toArrayNode;
+        @Child private ToInputStorageNode toInputNode;
 
         private final ConditionProfile bufSizeProfile = ConditionProfile.createBinaryProfile();
 
-        private SequenceStorageNodes.ToByteArrayNode getToArrayNode() {
-            if (toArrayNode == null) {
+        private PBytes decompressData(VirtualFrame frame, Object data, int wbits, int bufsize) {
+            int container = ZLibInflateStream.getContainer(wbits);
+            if (container < 0) {
+                throw raise(ZLibError, ErrorMessages.INVALID_INITIALIZATION_OPTION);
+            }
+            if (toInputNode == null) {
                 CompilerDirectives.transferToInterpreterAndInvalidate();
-                toArrayNode = insert(ToByteArrayNodeGen.create());
+                toInputNode = insert(ToInputStorageNode.create());
             }
-            return toArrayNode;
-        }
-
-        @TruffleBoundary
-        private byte[] decompress(byte[] data, @SuppressWarnings("unused") long wbits, int bufsize) {
-            // decompress
-            // We don't use wbits currently. There is no easy way how to map to java Inflater.
-            Inflater decompresser = new Inflater();
-            decompresser.setInput(data);
-            byte[] resultArray = new byte[bufsize];
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            ByteSequenceStorage input = toInputNode.execute(frame, data);
+            ZLibInflateStream stream = new ZLibInflateStream(container, null, getContext().getZLibStreamPool());
             try {
-                while (!decompresser.finished()) {
-                    int howmany = decompresser.inflate(resultArray);
-                    if (howmany == 0 && decompresser.needsInput()) {
-                        throw raise(ZLibError, ErrorMessages.ERROR_5_WHILE_DECOMPRESSING);
-                    }
-                    baos.write(resultArray, 0, howmany);
+                ByteSequenceStorage result = stream.decompress((byte[]) input.getInternalArrayObject(), 0, input.length(), 0, bufsize);
+                if (!stream.isEof()) {
+                    throw raise(ZLibError, ErrorMessages.ERROR_5_WHILE_DECOMPRESSING);
                 }
+                return factory().createBytes(result);
             } catch (DataFormatException e) {
-                throw raise(ZLibError, ErrorMessages.WHILE_PREPARING_TO_DECOMPRESS_DATA);
+                throw raise(ZLibError, ErrorMessages.ERROR_3_WHILE_DECOMPRESSING, ZLibDecompressBuiltins.getMessage(e));
+            } finally {
+                stream.release();
             }
-            decompresser.end();
-            return baos.toByteArray();
         }
 
         @Specialization
-        public PBytes doit(PIBytesLike data, @SuppressWarnings("unused") PNone wbits, @SuppressWarnings("unused") PNone bufsize) {
-            byte[] array = getToArrayNode().execute(data.getSequenceStorage());
-            return factory().createBytes(decompress(array, MAX_WBITS, DEF_BUF_SIZE));
+        public PBytes doit(VirtualFrame frame, PIBytesLike data, @SuppressWarnings("unused") PNone wbits, @SuppressWarnings("unused") PNone bufsize) {
+            return decompressData(frame, data, MAX_WBITS, DEF_BUF_SIZE);
         }
 
         @Specialization
-        public PBytes decompress(PIBytesLike data, byte wbits, int bufsize) {
-            return decompress(data, (long) wbits, bufsize);
+        public PBytes decompress(VirtualFrame frame, PIBytesLike data, byte wbits, int bufsize) {
+            return decompress(frame, data, (long) wbits, bufsize);
         }
 
         @Specialization
-        public PBytes decompress(PIBytesLike data, long wbits, int bufsize) {
+        public PBytes decompress(VirtualFrame frame, PIBytesLike data, long wbits, int bufsize) {
             // checking bufsize
             if (bufSizeProfile.profile(bufsize < 0)) {
                 throw raise(ZLibError, ErrorMessages.MUST_BE_NON_NEGATIVE, "bufsize");
             }
-            byte[] array = getToArrayNode().execute(data.getSequenceStorage());
-            return factory().createBytes(decompress(array, (int) wbits, bufsize == 0 ? 1 : bufsize));
+            if (wbits < Integer.MIN_VALUE || wbits > Integer.MAX_VALUE) {
+                throw raise(ZLibError, ErrorMessages.INVALID_INITIALIZATION_OPTION);
+            }
+            return decompressData(frame, data, (int) wbits, bufsize == 0 ? 1 : bufsize);
         }
 
         @Specialization(limit = "1")
@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.asyncio;
+
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.AttributeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.RuntimeError;
+
+import com.oracle.graal.python.PythonLanguage;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.common.HashingStorageLibrary;
+import com.oracle.graal.python.builtins.objects.dict.PDict;
+import com.oracle.graal.python.builtins.objects.exception.PBaseException;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.module.PythonModule;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.builtins.objects.type.PythonBuiltinClass;
+import com.oracle.graal.python.nodes.BuiltinNames;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PRaiseNode;
+import com.oracle.graal.python.nodes.SpecialMethodNames;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.call.special.LookupAndCallUnaryNode.LookupAndCallUnaryDynamicNode;
+import com.oracle.graal.python.nodes.classes.IsSubtypeNode;
+import com.oracle.graal.python.nodes.util.CastToJavaStringNode;
+import com.oracle.graal.python.runtime.PythonContext;
+import com.oracle.graal.python.runtime.PythonOptions;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.nodes.Node;
+
+/**
+ * The parts of {@code _asyncio} that call back into the pure-Python {@code asyncio} package: its
+ * exception types, the event loop policy, the loop's {@code call_soon} and the task registries.
+ * Everything here runs behind a {@link TruffleBoundary}; the per-step fast paths stay in the
+ * builtin nodes.
+ */
+public final class AsyncioUtils {
+    public static final String MODULE_NAME = "_asyncio";
+    public static final String CURRENT_TASKS = "_current_tasks";
+    public static final String ALL_TASKS = "_all_tasks";
+
+    private static final String EXCEPTIONS_MODULE = "asyncio.exceptions";
+    private static final String EVENTS_MODULE = "asyncio.events";
+    private static final String COROUTINES_MODULE = "asyncio.coroutines";
+    private static final String FORMAT_HELPERS_MODULE = "asyncio.format_helpers";
+    public static final String BASE_FUTURES_MODULE = "asyncio.base_futures";
+    public static final String BASE_TASKS_MODULE = "asyncio.base_tasks";
+
+    public static final String CANCELLED_ERROR = "CancelledError";
+    public static final String INVALID_STATE_ERROR = "InvalidStateError";
+
+    private AsyncioUtils() {
+    }
+
+    /**
+     * Reads an attribute of the given {@code asyncio} submodule, importing it if necessary.
+     */
+    @TruffleBoundary
+    public static Object getModuleAttribute(String moduleName, String name) {
+        PythonContext context = PythonLanguage.getContext();
+        Object module = context.getSysModules().getItem(moduleName);
+        if (module == null) {
+            CallNode.getUncached().execute(context.getCore().getBuiltins().getAttribute(BuiltinNames.__IMPORT__), moduleName);
+            module = context.getSysModules().getItem(moduleName);
+        }
+        Object value = PythonObjectLibrary.getUncached().lookupAttribute(module, name);
+        if (value == PNone.NO_VALUE) {
+            throw PRaiseNode.getUncached().raise(AttributeError, ErrorMessages.OBJ_P_HAS_NO_ATTR_S, module, name);
+        }
+        return value;
+    }
+
+    @TruffleBoundary
+    public static Object callModuleFunction(String moduleName, String name, Object... args) {
+        return CallNode.getUncached().execute(getModuleAttribute(moduleName, name), args);
+    }
+
+    @TruffleBoundary
+    public static Object callMethod(Object receiver, String name, Object[] args, PKeyword[] keywords) {
+        Object method = PythonObjectLibrary.getUncached().lookupAttribute(receiver, name);
+        if (method == PNone.NO_VALUE) {
+            throw PRaiseNode.getUncached().raise(AttributeError, ErrorMessages.OBJ_P_HAS_NO_ATTR_S, receiver, name);
+        }
+        return CallNode.getUncached().execute(method, args, keywords);
+    }
+
+    @TruffleBoundary
+    public static Object callMethod(Object receiver, String name, Object... args) {
+        return callMethod(receiver, name, args, PKeyword.EMPTY_KEYWORDS);
+    }
+
+    /**
+     * Checks that {@code obj} is a direct instance of the given builtin type, so that its builtin
+     * methods can be used without looking them up.
+     */
+    @TruffleBoundary
+    public static boolean isExactType(Object obj, PythonBuiltinClassType type) {
+        Object cls = PythonObjectLibrary.getUncached().getLazyPythonClass(obj);
+        return cls == type || (cls instanceof PythonBuiltinClass && ((PythonBuiltinClass) cls).getType() == type);
+    }
+
+    @TruffleBoundary
+    public static void setAttribute(Object receiver, String name, Object value) {
+        PythonContext context = PythonLanguage.getContext();
+        CallNode.getUncached().execute(context.getCore().getBuiltins().getAttribute(BuiltinNames.SETATTR), receiver, name, value);
+    }
+
+    @TruffleBoundary
+    public static String repr(Object obj) {
+        return CastToJavaStringNode.getUncached().execute(LookupAndCallUnaryDynamicNode.getUncached().executeObject(obj, SpecialMethodNames.__REPR__));
+    }
+
+    /**
+     * Creates an instance of one of the {@code asyncio.exceptions} types with an optional
+     * message.
+     */
+    @TruffleBoundary
+    public static PBaseException createAsyncioError(String errorName, String format, Object... args) {
+        Object errorType = getModuleAttribute(EXCEPTIONS_MODULE, errorName);
+        Object exception;
+        if (format == null) {
+            exception = CallNode.getUncached().execute(errorType);
+        } else {
+            exception = CallNode.getUncached().execute(errorType, String.format(format, args));
+        }
+        return (PBaseException) exception;
+    }
+
+    @TruffleBoundary
+    public static PException raiseAsyncioError(Node raisingNode, String errorName, String format, Object... args) {
+        PBaseException exception = createAsyncioError(errorName, format, args);
+        throw PRaiseNode.raise(raisingNode, exception, PythonOptions.isPExceptionWithJavaStacktrace(PythonLanguage.getCurrent()));
+    }
+
+    @TruffleBoundary
+    public static boolean isCancelledError(Object exception) {
+        if (exception == null || exception == PNone.NONE) {
+            return false;
+        }
+        Object cancelledError = getModuleAttribute(EXCEPTIONS_MODULE, CANCELLED_ERROR);
+        return IsSubtypeNode.getUncached().execute(PythonObjectLibrary.getUncached().getLazyPythonClass(exception), cancelledError);
+    }
+
+    /**
+     * Returns the loop set by {@code _set_running_loop} in the current thread or {@code null}.
+     */
+    public static Object getRunningLoop(PythonContext context) {
+        Object loop = context.getRunningAsyncioLoop();
+        return loop == PNone.NONE ? null : loop;
+    }
+
+    /**
+     * Implements {@code get_event_loop}: the running loop, otherwise the loop of the current
+     * event loop policy.
+     */
+    @TruffleBoundary
+    public static Object getEventLoop(PythonContext context) {
+        Object loop = getRunningLoop(context);
+        if (loop != null) {
+            return loop;
+        }
+        Object policy = callModuleFunction(EVENTS_MODULE, "get_event_loop_policy");
+        return callMethod(policy, "get_event_loop");
+    }
+
+    @TruffleBoundary
+    public static boolean isCoroutine(Object coro) {
+        return PythonObjectLibrary.getUncached().isTrue(callModuleFunction(COROUTINES_MODULE, "iscoroutine", coro));
+    }
+
+    @TruffleBoundary
+    public static Object extractStack() {
+        return callModuleFunction(FORMAT_HELPERS_MODULE, "extract_stack");
+    }
+
+    @TruffleBoundary
+    public static Object copyContext(PythonContext context) {
+        PythonModule contextvars = context.getCore().lookupBuiltinModule("_contextvars");
+        return callMethod(contextvars, "copy_context");
+    }
+
+    /**
+     * Calls {@code loop.call_soon(callback[, arg], context=context)}. A {@code null} context is
+     * not passed on, so that the loop copies the current one.
+     */
+    @TruffleBoundary
+    public static void callSoon(Object loop, Object callback, Object arg, Object context) {
+        Object[] args = arg == null ? new Object[]{callback} : new Object[]{callback, arg};
+        PKeyword[] keywords = context == null || context == PNone.NONE ? PKeyword.EMPTY_KEYWORDS : new PKeyword[]{new PKeyword("context", context)};
+        callMethod(loop, "call_soon", args, keywords);
+    }
+
+    /**
+     * Hands all done callbacks of the future to its loop and clears them.
+     */
+    @TruffleBoundary
+    public static void scheduleCallbacks(PFuture future) {
+        if (!future.hasCallbacks()) {
+            return;
+        }
+        Object[] callbacks = future.takeCallbacks();
+        for (int i = 0; i < callbacks.length; i += 2) {
+            callSoon(future.getLoop(), callbacks[i], future, callbacks[i + 1]);
+        }
+    }
+
+    /**
+     * The {@code _current_tasks} dict maps each loop to the task it is running. Loops may run on
+     * several threads, so {@link #enterTask} and {@link #leaveTask} check and update the dict while
+     * holding its monitor. The error messages are built after releasing it, since {@code repr}
+     * calls back into Python.
+     */
+    private static PDict getCurrentTasks(PythonContext context) {
+        return (PDict) context.getCore().lookupBuiltinModule(MODULE_NAME).getAttribute(CURRENT_TASKS);
+    }
+
+    @TruffleBoundary
+    public static void enterTask(PythonContext context, Object loop, Object task) {
+        PDict currentTasks = getCurrentTasks(context);
+        HashingStorageLibrary lib = HashingStorageLibrary.getUncached();
+        Object current;
+        synchronized (currentTasks) {
+            current = lib.getItem(currentTasks.getDictStorage(), loop);
+            if (current == null) {
+                currentTasks.setDictStorage(lib.setItem(currentTasks.getDictStorage(), loop, task));
+                return;
+            }
+        }
+        throw PRaiseNode.getUncached().raise(RuntimeError, ErrorMessages.CANNOT_ENTER_INTO_TASK_S_WHILE_ANOTHER_TASK_S_IS_BEING_EXECUTED, repr(task), repr(current));
+    }
+
+    @TruffleBoundary
+    public static void leaveTask(PythonContext context, Object loop, Object task) {
+        PDict currentTasks = getCurrentTasks(context);
+        HashingStorageLibrary lib = HashingStorageLibrary.getUncached();
+        Object current;
+        synchronized (currentTasks) {
+            current = lib.getItem(currentTasks.getDictStorage(), loop);
+            if (current == task) {
+                currentTasks.setDictStorage(lib.delItem(currentTasks.getDictStorage(), loop));
+                return;
+            }
+        }
+        throw PRaiseNode.getUncached().raise(RuntimeError, ErrorMessages.LEAVING_TASK_S_DOES_NOT_MATCH_CURRENT_TASK_S, repr(task), repr(current == null ? PNone.NONE : current));
+    }
+
+    /**
+     * The {@code WeakSet} of all tasks is created by the module's {@code __getattr__} on first
+     * use, because {@code _weakrefset} cannot be imported while the core is initialized.
+     */
+    private static Object getAllTasks(PythonContext context) {
+        return PythonObjectLibrary.getUncached().lookupAttribute(context.getCore().lookupBuiltinModule(MODULE_NAME), ALL_TASKS);
+    }
+
+    @TruffleBoundary
+    public static void registerTask(PythonContext context, Object task) {
+        callMethod(getAllTasks(context), "add", task);
+    }
+
+    @TruffleBoundary
+    public static void unregisterTask(PythonContext context, Object task) {
+        callMethod(getAllTasks(context), "discard", task);
+    }
+}
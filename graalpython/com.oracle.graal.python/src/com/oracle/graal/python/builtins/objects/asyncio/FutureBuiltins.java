@@ -0,0 +1,523 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.asyncio;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__AWAIT__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__INIT__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__ITER__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__REPR__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.RuntimeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.StopIteration;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.exception.PBaseException;
+import com.oracle.graal.python.builtins.objects.function.PArguments;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.builtins.objects.type.TypeNodes;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.PRaiseNode;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.control.GetIteratorExpressionNode.GetIteratorWithoutFrameNode;
+import com.oracle.graal.python.nodes.control.GetNextNode.GetNextWithoutFrameNode;
+import com.oracle.graal.python.nodes.control.GetNextNodeFactory.GetNextWithoutFrameNodeGen;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.nodes.util.CastToJavaStringNode;
+import com.oracle.graal.python.runtime.PythonContext;
+import com.oracle.graal.python.runtime.PythonOptions;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.graal.python.runtime.object.PythonObjectFactory;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.library.CachedLibrary;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PFuture)
+public class FutureBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return FutureBuiltinsFactory.getFactories();
+    }
+
+    static Object getInitializedLoop(PythonBuiltinBaseNode node, PFuture self) {
+        Object loop = self.getLoop();
+        if (loop == null) {
+            throw node.raise(RuntimeError, ErrorMessages.FUTURE_OBJECT_IS_NOT_INITIALIZED);
+        }
+        return loop;
+    }
+
+    static PException raiseException(PythonBuiltinBaseNode node, Object exception) {
+        throw PRaiseNode.raise(node, (PBaseException) exception, PythonOptions.isPExceptionWithJavaStacktrace(node.getContext().getLanguage()));
+    }
+
+    /**
+     * Binds the future to {@code loopObj} or, if that is {@code None}, to the current event loop,
+     * and records the creation stack if the loop is in debug mode.
+     */
+    @TruffleBoundary
+    public static void initFuture(PythonContext context, PFuture self, Object loopObj) {
+        Object loop = PGuards.isPNone(loopObj) ? AsyncioUtils.getEventLoop(context) : loopObj;
+        self.init(loop);
+        if (PythonObjectLibrary.getUncached().isTrue(AsyncioUtils.callMethod(loop, "get_debug"))) {
+            self.setSourceTraceback(AsyncioUtils.extractStack());
+        }
+    }
+
+    /**
+     * The part of {@code Future.cancel} that is shared with tasks: marks the future as cancelled
+     * and schedules its callbacks.
+     */
+    public static boolean cancel(PFuture self) {
+        self.clearLogTraceback();
+        if (self.isDone()) {
+            return false;
+        }
+        self.markCancelled();
+        AsyncioUtils.scheduleCallbacks(self);
+        return true;
+    }
+
+    static void checkPending(PythonBuiltinBaseNode node, PFuture self) {
+        if (self.isDone()) {
+            throw AsyncioUtils.raiseAsyncioError(node, AsyncioUtils.INVALID_STATE_ERROR, ErrorMessages.FUTURE_STATE_S_S, self.getState().name(), AsyncioUtils.repr(self));
+        }
+    }
+
+    public static void setResult(PythonBuiltinBaseNode node, PFuture self, Object result) {
+        getInitializedLoop(node, self);
+        checkPending(node, self);
+        self.finish(result);
+        AsyncioUtils.scheduleCallbacks(self);
+    }
+
+    /**
+     * Sets the exception without the type checks of {@code set_exception}, for exceptions that
+     * were caught while stepping a task.
+     */
+    public static void setException(PFuture self, PBaseException exception) {
+        self.finishWithException(exception);
+        AsyncioUtils.scheduleCallbacks(self);
+    }
+
+    /**
+     * Implements {@code Future.result()}, raising the stored exception if there is one.
+     */
+    public static Object getResult(PythonBuiltinBaseNode node, PFuture self) {
+        getInitializedLoop(node, self);
+        switch (self.getState()) {
+            case CANCELLED:
+                throw AsyncioUtils.raiseAsyncioError(node, AsyncioUtils.CANCELLED_ERROR, null);
+            case PENDING:
+                throw AsyncioUtils.raiseAsyncioError(node, AsyncioUtils.INVALID_STATE_ERROR, ErrorMessages.RESULT_IS_NOT_READY);
+            default:
+                self.clearLogTraceback();
+                if (self.getException() != null) {
+                    throw raiseException(node, self.getException());
+                }
+                return self.getResult();
+        }
+    }
+
+    // Future(*, loop=None)
+    @Builtin(name = __INIT__, minNumOfPositionalArgs = 1, parameterNames = {"$self"}, varArgsMarker = true, keywordOnlyNames = {"loop"})
+    @GenerateNodeFactory
+    public abstract static class InitNode extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        PNone init(PFuture self, Object loop) {
+            initFuture(getContext(), self, loop);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "result", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class ResultNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        Object result(PFuture self) {
+            return getResult(this, self);
+        }
+    }
+
+    @Builtin(name = "exception", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class ExceptionNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        Object exception(PFuture self) {
+            getInitializedLoop(this, self);
+            switch (self.getState()) {
+                case CANCELLED:
+                    throw AsyncioUtils.raiseAsyncioError(this, AsyncioUtils.CANCELLED_ERROR, null);
+                case PENDING:
+                    throw AsyncioUtils.raiseAsyncioError(this, AsyncioUtils.INVALID_STATE_ERROR, ErrorMessages.EXCEPTION_IS_NOT_SET);
+                default:
+                    self.clearLogTraceback();
+                    return self.getException() == null ? PNone.NONE : self.getException();
+            }
+        }
+    }
+
+    @Builtin(name = "set_result", minNumOfPositionalArgs = 2, parameterNames = {"$self", "result"})
+    @GenerateNodeFactory
+    public abstract static class SetResultNode extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        PNone setResult(PFuture self, Object result) {
+            FutureBuiltins.setResult(this, self, result);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "set_exception", minNumOfPositionalArgs = 2, parameterNames = {"$self", "exception"})
+    @GenerateNodeFactory
+    public abstract static class SetExceptionNode extends PythonBinaryBuiltinNode {
+
+        @Specialization(limit = "3")
+        PNone setException(VirtualFrame frame, PFuture self, Object exceptionObj,
+                        @CachedLibrary("exceptionObj") PythonObjectLibrary lib,
+                        @CachedLibrary(limit = "1") PythonObjectLibrary excLib,
+                        @Cached CallNode callNode,
+                        @Cached IsBuiltinClassProfile isStopIteration) {
+            getInitializedLoop(this, self);
+            checkPending(this, self);
+            Object exception = exceptionObj;
+            if (lib.isLazyPythonClass(exceptionObj)) {
+                exception = callNode.execute(frame, exceptionObj);
+            }
+            if (!(exception instanceof PBaseException)) {
+                throw raise(TypeError, ErrorMessages.INVALID_EXCEPTION_OBJECT);
+            }
+            if (isStopIteration.profileClass(excLib.getLazyPythonClass(exception), StopIteration)) {
+                throw raise(TypeError, ErrorMessages.STOP_ITERATION_INTERACTS_BADLY_WITH_GENERATORS);
+            }
+            FutureBuiltins.setException(self, (PBaseException) exception);
+            return PNone.NONE;
+        }
+    }
+
+    // add_done_callback(fn, *, context=None)
+    @Builtin(name = "add_done_callback", minNumOfPositionalArgs = 2, parameterNames = {"$self", "fn"}, varArgsMarker = true, keywordOnlyNames = {"context"})
+    @GenerateNodeFactory
+    public abstract static class AddDoneCallbackNode extends PythonTernaryBuiltinNode {
+
+        @Specialization
+        PNone addDoneCallback(PFuture self, Object fn, Object contextObj) {
+            Object loop = getInitializedLoop(this, self);
+            Object context = PGuards.isPNone(contextObj) ? null : contextObj;
+            if (self.isDone()) {
+                AsyncioUtils.callSoon(loop, fn, self, context);
+            } else {
+                self.addCallback(fn, context);
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "remove_done_callback", minNumOfPositionalArgs = 2, parameterNames = {"$self", "fn"})
+    @GenerateNodeFactory
+    public abstract static class RemoveDoneCallbackNode extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        int removeDoneCallback(PFuture self, Object fn) {
+            getInitializedLoop(this, self);
+            return removeCallbacks(self, fn);
+        }
+
+        @TruffleBoundary
+        private static int removeCallbacks(PFuture self, Object fn) {
+            if (!self.hasCallbacks()) {
+                return 0;
+            }
+            PythonObjectLibrary lib = PythonObjectLibrary.getUncached();
+            Object[] callbacks = self.getCallbacks();
+            int kept = 0;
+            for (int i = 0; i < callbacks.length; i += 2) {
+                if (!lib.equals(callbacks[i], fn, lib)) {
+                    callbacks[kept++] = callbacks[i];
+                    callbacks[kept++] = callbacks[i + 1];
+                }
+            }
+            int removed = (callbacks.length - kept) / 2;
+            if (removed > 0) {
+                self.setCallbacks(callbacks, kept);
+            }
+            return removed;
+        }
+    }
+
+    @Builtin(name = "cancel", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class CancelNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        boolean cancel(PFuture self) {
+            getInitializedLoop(this, self);
+            return FutureBuiltins.cancel(self);
+        }
+    }
+
+    @Builtin(name = "cancelled", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class CancelledNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        boolean cancelled(PFuture self) {
+            getInitializedLoop(this, self);
+            return self.getState() == PFuture.State.CANCELLED;
+        }
+    }
+
+    @Builtin(name = "done", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class DoneNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        boolean done(PFuture self) {
+            getInitializedLoop(this, self);
+            return self.isDone();
+        }
+    }
+
+    @Builtin(name = "get_loop", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class GetLoopNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        Object getLoop(PFuture self) {
+            return getInitializedLoop(this, self);
+        }
+    }
+
+    @Builtin(name = __AWAIT__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class AwaitNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        PFutureIter await(PFuture self) {
+            return factory().createFutureIter(self);
+        }
+    }
+
+    // __iter__ = __await__, to make futures compatible with 'yield from'
+    @Builtin(name = __ITER__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class IterNode extends AwaitNode {
+    }
+
+    @Builtin(name = "_repr_info", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class ReprInfoNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        static Object reprInfo(PFuture self) {
+            return AsyncioUtils.callModuleFunction(AsyncioUtils.BASE_FUTURES_MODULE, "_future_repr_info", self);
+        }
+    }
+
+    @Builtin(name = __REPR__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class ReprNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        static String repr(PFuture self) {
+            return doRepr(self);
+        }
+
+        @TruffleBoundary
+        private static String doRepr(PFuture self) {
+            // '<{} {}>'.format(self.__class__.__name__, ' '.join(self._repr_info()))
+            StringBuilder sb = new StringBuilder("<");
+            sb.append(TypeNodes.GetNameNode.doSlowPath(PythonObjectLibrary.getUncached().getLazyPythonClass(self)));
+            sb.append(' ');
+            Object info = AsyncioUtils.callMethod(self, "_repr_info");
+            Object iterator = GetIteratorWithoutFrameNode.getUncached().executeWithGlobalState(info);
+            GetNextWithoutFrameNode getNext = GetNextWithoutFrameNodeGen.getUncached();
+            boolean first = true;
+            while (true) {
+                Object item;
+                try {
+                    item = getNext.executeWithGlobalState(iterator);
+                } catch (PException e) {
+                    e.expectStopIteration(IsBuiltinClassProfile.getUncached());
+                    break;
+                }
+                if (!first) {
+                    sb.append(' ');
+                }
+                sb.append(CastToJavaStringNode.getUncached().execute(item));
+                first = false;
+            }
+            return sb.append('>').toString();
+        }
+    }
+
+    @Builtin(name = "_state", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class StateNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        static Object state(PFuture self) {
+            if (self.getLoop() == null) {
+                return PNone.NONE;
+            }
+            return self.getState().name();
+        }
+    }
+
+    @Builtin(name = "_loop", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class LoopNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        static Object loop(PFuture self) {
+            return self.getLoop() == null ? PNone.NONE : self.getLoop();
+        }
+    }
+
+    @Builtin(name = "_callbacks", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class CallbacksNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        Object callbacks(PFuture self) {
+            if (!self.hasCallbacks()) {
+                return PNone.NONE;
+            }
+            return createCallbackList(factory(), self.getCallbacks());
+        }
+
+        @TruffleBoundary
+        private static Object createCallbackList(PythonObjectFactory factory, Object[] callbacks) {
+            Object[] pairs = new Object[callbacks.length / 2];
+            for (int i = 0; i < pairs.length; i++) {
+                Object context = callbacks[2 * i + 1];
+                pairs[i] = factory.createTuple(new Object[]{callbacks[2 * i], context == null ? PNone.NONE : context});
+            }
+            return factory.createList(pairs);
+        }
+    }
+
+    @Builtin(name = "_result", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class ResultGetterNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        static Object result(PFuture self) {
+            return self.getResult();
+        }
+    }
+
+    @Builtin(name = "_exception", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class ExceptionGetterNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        static Object exception(PFuture self) {
+            return self.getException() == null ? PNone.NONE : self.getException();
+        }
+    }
+
+    @Builtin(name = "_source_traceback", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class SourceTracebackNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        static Object sourceTraceback(PFuture self) {
+            return self.getSourceTraceback();
+        }
+    }
+
+    @Builtin(name = "_log_traceback", minNumOfPositionalArgs = 1, maxNumOfPositionalArgs = 2, isGetter = true, isSetter = true)
+    @GenerateNodeFactory
+    public abstract static class LogTracebackNode extends PythonBinaryBuiltinNode {
+
+        @Specialization(guards = "isNoValue(value)")
+        static boolean get(PFuture self, @SuppressWarnings("unused") PNone value) {
+            return self.isLogTraceback();
+        }
+
+        @Specialization(guards = "!isNoValue(value)", limit = "3")
+        Object set(VirtualFrame frame, PFuture self, Object value,
+                        @CachedLibrary("value") PythonObjectLibrary lib) {
+            if (lib.isTrueWithState(value, PArguments.getThreadState(frame))) {
+                throw raise(ValueError, ErrorMessages.LOG_TRACEBACK_CAN_ONLY_BE_SET_TO_FALSE);
+            }
+            self.clearLogTraceback();
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "_asyncio_future_blocking", minNumOfPositionalArgs = 1, maxNumOfPositionalArgs = 2, isGetter = true, isSetter = true)
+    @GenerateNodeFactory
+    public abstract static class BlockingNode extends PythonBinaryBuiltinNode {
+
+        @Specialization(guards = "isNoValue(value)")
+        static boolean get(PFuture self, @SuppressWarnings("unused") PNone value) {
+            return self.isBlocking();
+        }
+
+        @Specialization(guards = "!isNoValue(value)", limit = "3")
+        static Object set(VirtualFrame frame, PFuture self, Object value,
+                        @CachedLibrary("value") PythonObjectLibrary lib) {
+            self.setBlocking(lib.isTrueWithState(value, PArguments.getThreadState(frame)));
+            return PNone.NONE;
+        }
+    }
+}
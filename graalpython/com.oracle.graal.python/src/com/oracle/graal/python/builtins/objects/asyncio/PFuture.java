@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.asyncio;
+
+import java.util.ArrayList;
+
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.object.PythonBuiltinObject;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.object.DynamicObject;
+
+/**
+ * An {@code _asyncio.Future}. Like CPython's {@code FutureObj}, the first done callback and its
+ * context are stored inline, since most futures only ever get the wakeup callback of the task
+ * awaiting them, and only further callbacks go into a list.
+ */
+public class PFuture extends PythonBuiltinObject {
+    public enum State {
+        PENDING,
+        CANCELLED,
+        FINISHED
+    }
+
+    private State state = State.PENDING;
+    /** The event loop or {@code null} if {@code __init__} was not called yet. */
+    private Object loop;
+    private Object result = PNone.NONE;
+    /** The exception set by {@code set_exception} or {@code null}. */
+    private Object exception;
+    private Object callback0;
+    private Object context0;
+    /** Alternating callbacks and contexts after the first one. */
+    private ArrayList<Object> callbacks;
+    private boolean blocking;
+    private boolean logTraceback;
+    private Object sourceTraceback = PNone.NONE;
+
+    public PFuture(Object cls, DynamicObject storage) {
+        super(cls, storage);
+    }
+
+    /**
+     * Resets the future for (re-)initialization with the given loop, like {@code future_init}.
+     */
+    public void init(Object newLoop) {
+        state = State.PENDING;
+        loop = newLoop;
+        result = PNone.NONE;
+        exception = null;
+        callback0 = null;
+        context0 = null;
+        callbacks = null;
+        blocking = false;
+        logTraceback = false;
+        sourceTraceback = PNone.NONE;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isDone() {
+        return state != State.PENDING;
+    }
+
+    public Object getLoop() {
+        return loop;
+    }
+
+    public Object getResult() {
+        return result;
+    }
+
+    public Object getException() {
+        return exception;
+    }
+
+    public void finish(Object newResult) {
+        assert state == State.PENDING;
+        result = newResult;
+        state = State.FINISHED;
+    }
+
+    public void finishWithException(Object newException) {
+        assert state == State.PENDING;
+        exception = newException;
+        state = State.FINISHED;
+        logTraceback = true;
+    }
+
+    public void markCancelled() {
+        assert state == State.PENDING;
+        state = State.CANCELLED;
+    }
+
+    public boolean isBlocking() {
+        return blocking;
+    }
+
+    public void setBlocking(boolean blocking) {
+        this.blocking = blocking;
+    }
+
+    public boolean isLogTraceback() {
+        return logTraceback;
+    }
+
+    public void clearLogTraceback() {
+        logTraceback = false;
+    }
+
+    public Object getSourceTraceback() {
+        return sourceTraceback;
+    }
+
+    public void setSourceTraceback(Object sourceTraceback) {
+        this.sourceTraceback = sourceTraceback;
+    }
+
+    public boolean hasCallbacks() {
+        return callback0 != null || callbacks != null;
+    }
+
+    @TruffleBoundary
+    public void addCallback(Object callback, Object context) {
+        if (callback0 == null && callbacks == null) {
+            callback0 = callback;
+            context0 = context;
+        } else {
+            if (callbacks == null) {
+                callbacks = new ArrayList<>(4);
+            }
+            callbacks.add(callback);
+            callbacks.add(context);
+        }
+    }
+
+    /**
+     * Returns the registered callbacks as alternating callbacks and contexts, where a
+     * {@code null} context means that none was given.
+     */
+    @TruffleBoundary
+    public Object[] getCallbacks() {
+        int extra = callbacks == null ? 0 : callbacks.size();
+        int first = callback0 == null ? 0 : 2;
+        Object[] all = new Object[first + extra];
+        if (callback0 != null) {
+            all[0] = callback0;
+            all[1] = context0;
+        }
+        for (int i = 0; i < extra; i++) {
+            all[first + i] = callbacks.get(i);
+        }
+        return all;
+    }
+
+    /**
+     * Like {@link #getCallbacks()}, but also empties the callback list.
+     */
+    public Object[] takeCallbacks() {
+        Object[] all = getCallbacks();
+        clearCallbacks();
+        return all;
+    }
+
+    public void clearCallbacks() {
+        callback0 = null;
+        context0 = null;
+        callbacks = null;
+    }
+
+    /**
+     * Replaces the callbacks by the given alternating callbacks and contexts.
+     */
+    @TruffleBoundary
+    public void setCallbacks(Object[] all, int length) {
+        clearCallbacks();
+        for (int i = 0; i < length; i += 2) {
+            addCallback(all[i], all[i + 1]);
+        }
+    }
+}
@@ -0,0 +1,487 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.asyncio;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__INIT__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.KeyboardInterrupt;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.RuntimeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.StopIteration;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.SystemExit;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.exception.PBaseException;
+import com.oracle.graal.python.builtins.objects.function.PArguments;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.generator.GeneratorBuiltins.ResumeGeneratorNode;
+import com.oracle.graal.python.builtins.objects.generator.PGenerator;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonQuaternaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.runtime.PythonContext;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.graal.python.runtime.object.PythonObjectFactory;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.library.CachedLibrary;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PTask)
+public class TaskBuiltins extends PythonBuiltins {
+    private static final String STEP = "_step";
+    private static final String WAKEUP = "_wakeup";
+
+    /** Like CPython's {@code task_name_counter}, shared by all tasks of the process. */
+    private static final AtomicLong TASK_NAME_COUNTER = new AtomicLong();
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return TaskBuiltinsFactory.getFactories();
+    }
+
+    /**
+     * Schedules {@code task._step(exc)} on the task's loop in the task's context.
+     */
+    @TruffleBoundary
+    static void scheduleStep(PTask task, Object exc) {
+        Object step = PythonObjectLibrary.getUncached().lookupAttribute(task, STEP);
+        AsyncioUtils.callSoon(task.getLoop(), step, exc, task.getContext());
+    }
+
+    @TruffleBoundary
+    private static void scheduleStepWithError(PTask task, String format, Object... args) {
+        scheduleStep(task, PythonObjectFactory.getUncached().createBaseException(RuntimeError, format, args));
+    }
+
+    @TruffleBoundary
+    public static void initTask(PythonBuiltinBaseNode node, PythonContext context, PTask self, Object coro, Object loop, Object nameObj) {
+        FutureBuiltins.initFuture(context, self, loop);
+        if (!(coro instanceof PGenerator) && !AsyncioUtils.isCoroutine(coro)) {
+            // prevent logging for the pending task
+            self.setLogDestroyPending(false);
+            throw node.raise(TypeError, ErrorMessages.A_COROUTINE_WAS_EXPECTED_GOT_S, AsyncioUtils.repr(coro));
+        }
+        Object name;
+        if (PGuards.isPNone(nameObj)) {
+            name = "Task-" + TASK_NAME_COUNTER.incrementAndGet();
+        } else {
+            name = PythonObjectLibrary.getUncached().asPString(nameObj);
+        }
+        self.initTask(coro, AsyncioUtils.copyContext(context), name);
+        scheduleStep(self, null);
+        AsyncioUtils.registerTask(context, self);
+    }
+
+    /**
+     * Cancels the future a task is waiting for; builtin futures are cancelled directly.
+     */
+    @TruffleBoundary
+    private static boolean cancelWaiter(Object waiter) {
+        if (waiter instanceof PFuture && AsyncioUtils.isExactType(waiter, PythonBuiltinClassType.PFuture)) {
+            return FutureBuiltins.cancel((PFuture) waiter);
+        }
+        return PythonObjectLibrary.getUncached().isTrue(AsyncioUtils.callMethod(waiter, "cancel"));
+    }
+
+    /**
+     * The common implementation of {@code _step} and {@code _wakeup}. A step sends {@code None}
+     * or throws {@code exc} into the coroutine and then either finishes the task or arranges for
+     * the next step, like {@code Task.__step} in {@code asyncio/tasks.py}. Generators are resumed
+     * directly; other coroutines through their {@code send} and {@code throw} methods.
+     */
+    abstract static class StepBaseNode extends PythonBinaryBuiltinNode {
+
+        Object step(VirtualFrame frame, PTask task, Object excObj, ResumeGeneratorNode resumeNode, IsBuiltinClassProfile errorProfile, PythonObjectLibrary lib) {
+            Object exc = excObj;
+            if (task.isDone()) {
+                throw AsyncioUtils.raiseAsyncioError(this, AsyncioUtils.INVALID_STATE_ERROR, ErrorMessages.STEP_ALREADY_DONE_S_S, AsyncioUtils.repr(task),
+                                AsyncioUtils.repr(exc == null ? PNone.NONE : exc));
+            }
+            if (task.isMustCancel()) {
+                if (!AsyncioUtils.isCancelledError(exc)) {
+                    exc = AsyncioUtils.createAsyncioError(AsyncioUtils.CANCELLED_ERROR, null);
+                }
+                task.setMustCancel(false);
+            }
+            task.setFutWaiter(null);
+
+            PythonContext context = getContext();
+            Object loop = task.getLoop();
+            AsyncioUtils.enterTask(context, loop, task);
+            try {
+                Object result;
+                try {
+                    result = resume(frame, task.getCoro(), exc, resumeNode);
+                } catch (PException e) {
+                    PBaseException exception = e.setCatchingFrameAndGetEscapedException(frame);
+                    if (errorProfile.profileException(e, StopIteration, lib)) {
+                        if (task.isMustCancel()) {
+                            // the task was cancelled right before the coroutine stopped
+                            task.setMustCancel(false);
+                            FutureBuiltins.cancel(task);
+                        } else {
+                            FutureBuiltins.setResult(this, task, getStopIterationValue(exception));
+                        }
+                    } else if (AsyncioUtils.isCancelledError(exception)) {
+                        FutureBuiltins.cancel(task);
+                    } else {
+                        FutureBuiltins.setException(task, exception);
+                        if (errorProfile.profileException(e, KeyboardInterrupt, lib) || errorProfile.profileException(e, SystemExit, lib)) {
+                            throw e;
+                        }
+                    }
+                    return PNone.NONE;
+                }
+                handleYield(task, result);
+            } finally {
+                AsyncioUtils.leaveTask(context, loop, task);
+            }
+            return PNone.NONE;
+        }
+
+        private Object resume(VirtualFrame frame, Object coro, Object exc, ResumeGeneratorNode resumeNode) {
+            if (exc == null) {
+                if (coro instanceof PGenerator) {
+                    PGenerator generator = (PGenerator) coro;
+                    if (generator.isFinished()) {
+                        throw raise(StopIteration);
+                    }
+                    if (generator.isRunning()) {
+                        throw raise(ValueError, ErrorMessages.GENERATOR_ALREADY_EXECUTING);
+                    }
+                    return resumeNode.execute(frame, generator, null);
+                }
+                return AsyncioUtils.callMethod(coro, "send", PNone.NONE);
+            }
+            return AsyncioUtils.callMethod(coro, "throw", exc);
+        }
+
+        @TruffleBoundary
+        private static Object getStopIterationValue(PBaseException exception) {
+            Object value = PythonObjectLibrary.getUncached().lookupAttribute(exception, "value");
+            return value == PNone.NO_VALUE ? PNone.NONE : value;
+        }
+
+        /**
+         * Decides what to do with a value yielded by the coroutine: wait for a future, give up the
+         * loop for one iteration on a bare {@code yield}, or resume with an error.
+         */
+        @TruffleBoundary
+        private static void handleYield(PTask task, Object result) {
+            PythonObjectLibrary lib = PythonObjectLibrary.getUncached();
+            Object blocking;
+            if (result instanceof PFuture) {
+                blocking = ((PFuture) result).isBlocking();
+            } else {
+                blocking = lib.lookupAttribute(result, "_asyncio_future_blocking");
+            }
+            if (blocking != PNone.NO_VALUE && blocking != PNone.NONE) {
+                Object resultLoop;
+                if (result instanceof PFuture) {
+                    resultLoop = ((PFuture) result).getLoop();
+                } else {
+                    resultLoop = AsyncioUtils.callModuleFunction("asyncio.futures", "_get_loop", result);
+                }
+                if (resultLoop != task.getLoop()) {
+                    scheduleStepWithError(task, ErrorMessages.TASK_S_GOT_FUTURE_S_ATTACHED_TO_DIFFERENT_LOOP, AsyncioUtils.repr(task), AsyncioUtils.repr(result));
+                } else if (lib.isTrue(blocking)) {
+                    if (result == task) {
+                        scheduleStepWithError(task, ErrorMessages.TASK_CANNOT_AWAIT_ON_ITSELF_S, AsyncioUtils.repr(task));
+                    } else {
+                        waitFor(task, (result instanceof PFuture) ? (PFuture) result : null, result);
+                    }
+                } else {
+                    scheduleStepWithError(task, ErrorMessages.YIELD_INSTEAD_OF_YIELD_FROM_IN_TASK_S_WITH_S, AsyncioUtils.repr(task), AsyncioUtils.repr(result));
+                }
+            } else if (result == PNone.NONE) {
+                // a bare yield relinquishes control for one event loop iteration
+                scheduleStep(task, null);
+            } else if (result instanceof PGenerator) {
+                scheduleStepWithError(task, ErrorMessages.YIELD_INSTEAD_OF_YIELD_FROM_FOR_GENERATOR_IN_TASK_S_WITH_S, AsyncioUtils.repr(task), AsyncioUtils.repr(result));
+            } else {
+                scheduleStepWithError(task, ErrorMessages.TASK_GOT_BAD_YIELD_S, AsyncioUtils.repr(result));
+            }
+        }
+
+        private static void waitFor(PTask task, PFuture future, Object result) {
+            Object wakeup = PythonObjectLibrary.getUncached().lookupAttribute(task, WAKEUP);
+            if (future != null && (AsyncioUtils.isExactType(future, PythonBuiltinClassType.PFuture) || AsyncioUtils.isExactType(future, PythonBuiltinClassType.PTask))) {
+                // register the wakeup callback without going through add_done_callback
+                future.setBlocking(false);
+                if (future.isDone()) {
+                    AsyncioUtils.callSoon(future.getLoop(), wakeup, future, task.getContext());
+                } else {
+                    future.addCallback(wakeup, task.getContext());
+                }
+            } else {
+                AsyncioUtils.setAttribute(result, "_asyncio_future_blocking", false);
+                AsyncioUtils.callMethod(result, "add_done_callback", new Object[]{wakeup}, new PKeyword[]{new PKeyword("context", task.getContext())});
+            }
+            task.setFutWaiter(result);
+            if (task.isMustCancel() && cancelWaiter(result)) {
+                task.setMustCancel(false);
+            }
+        }
+    }
+
+    // Task(coro, *, loop=None, name=None)
+    @Builtin(name = __INIT__, minNumOfPositionalArgs = 2, parameterNames = {"$self", "coro"}, varArgsMarker = true, keywordOnlyNames = {"loop", "name"})
+    @GenerateNodeFactory
+    public abstract static class InitNode extends PythonQuaternaryBuiltinNode {
+
+        @Specialization
+        PNone init(PTask self, Object coro, Object loop, Object name) {
+            initTask(this, getContext(), self, coro, loop, name);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = STEP, minNumOfPositionalArgs = 1, parameterNames = {"$self", "exc"})
+    @GenerateNodeFactory
+    public abstract static class StepNode extends StepBaseNode {
+
+        @Specialization
+        Object doStep(VirtualFrame frame, PTask self, Object exc,
+                        @Cached ResumeGeneratorNode resumeNode,
+                        @Cached IsBuiltinClassProfile errorProfile,
+                        @CachedLibrary(limit = "1") PythonObjectLibrary lib) {
+            return step(frame, self, PGuards.isPNone(exc) ? null : exc, resumeNode, errorProfile, lib);
+        }
+    }
+
+    @Builtin(name = WAKEUP, minNumOfPositionalArgs = 2, parameterNames = {"$self", "future"})
+    @GenerateNodeFactory
+    public abstract static class WakeupNode extends StepBaseNode {
+
+        @Specialization
+        Object wakeup(VirtualFrame frame, PTask self, Object future,
+                        @Cached ResumeGeneratorNode resumeNode,
+                        @Cached IsBuiltinClassProfile errorProfile,
+                        @CachedLibrary(limit = "1") PythonObjectLibrary lib,
+                        @Cached("createBinaryProfile()") ConditionProfile builtinFuture) {
+            try {
+                if (builtinFuture.profile(future instanceof PFuture)) {
+                    FutureBuiltins.getResult(this, (PFuture) future);
+                } else {
+                    AsyncioUtils.callMethod(future, "result");
+                }
+            } catch (PException e) {
+                // this may also be a cancellation
+                return step(frame, self, e.setCatchingFrameAndGetEscapedException(frame), resumeNode, errorProfile, lib);
+            }
+            // the result is not passed on, the FutureIter returns it when resumed
+            return step(frame, self, null, resumeNode, errorProfile, lib);
+        }
+    }
+
+    @Builtin(name = "cancel", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class CancelNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        boolean cancel(PTask self) {
+            FutureBuiltins.getInitializedLoop(this, self);
+            self.clearLogTraceback();
+            if (self.isDone()) {
+                return false;
+            }
+            Object waiter = self.getFutWaiter();
+            if (waiter != null && cancelWaiter(waiter)) {
+                // leave the waiter, it may be a task that ignores the cancellation, so that we
+                // have to cancel it again later
+                return true;
+            }
+            // the step must already be scheduled
+            self.setMustCancel(true);
+            return true;
+        }
+    }
+
+    @Builtin(name = "get_coro", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class GetCoroNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        static Object getCoro(PTask self) {
+            return self.getCoro() == null ? PNone.NONE : self.getCoro();
+        }
+    }
+
+    @Builtin(name = "get_name", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class GetNameNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        static Object getName(PTask self) {
+            return self.getName() == null ? PNone.NONE : self.getName();
+        }
+    }
+
+    @Builtin(name = "set_name", minNumOfPositionalArgs = 2, parameterNames = {"$self", "value"})
+    @GenerateNodeFactory
+    public abstract static class SetNameNode extends PythonBinaryBuiltinNode {
+
+        @Specialization(limit = "3")
+        static PNone setName(PTask self, Object value,
+                        @CachedLibrary("value") PythonObjectLibrary lib) {
+            self.setName(lib.asPString(value));
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "set_result", minNumOfPositionalArgs = 2, parameterNames = {"$self", "result"})
+    @GenerateNodeFactory
+    public abstract static class SetResultNode extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        Object setResult(@SuppressWarnings("unused") PTask self, @SuppressWarnings("unused") Object result) {
+            throw raise(RuntimeError, ErrorMessages.TASK_DOES_NOT_SUPPORT_S_OPERATION, "set_result");
+        }
+    }
+
+    @Builtin(name = "set_exception", minNumOfPositionalArgs = 2, parameterNames = {"$self", "exception"})
+    @GenerateNodeFactory
+    public abstract static class SetExceptionNode extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        Object setException(@SuppressWarnings("unused") PTask self, @SuppressWarnings("unused") Object exception) {
+            throw raise(RuntimeError, ErrorMessages.TASK_DOES_NOT_SUPPORT_S_OPERATION, "set_exception");
+        }
+    }
+
+    // get_stack(*, limit=None)
+    @Builtin(name = "get_stack", minNumOfPositionalArgs = 1, parameterNames = {"$self"}, varArgsMarker = true, keywordOnlyNames = {"limit"})
+    @GenerateNodeFactory
+    public abstract static class GetStackNode extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        static Object getStack(PTask self, Object limit) {
+            return AsyncioUtils.callModuleFunction(AsyncioUtils.BASE_TASKS_MODULE, "_task_get_stack", self, PGuards.isNoValue(limit) ? PNone.NONE : limit);
+        }
+    }
+
+    // print_stack(*, limit=None, file=None)
+    @Builtin(name = "print_stack", minNumOfPositionalArgs = 1, parameterNames = {"$self"}, varArgsMarker = true, keywordOnlyNames = {"limit", "file"})
+    @GenerateNodeFactory
+    public abstract static class PrintStackNode extends PythonTernaryBuiltinNode {
+
+        @Specialization
+        static Object printStack(PTask self, Object limit, Object file) {
+            return AsyncioUtils.callModuleFunction(AsyncioUtils.BASE_TASKS_MODULE, "_task_print_stack", self, PGuards.isNoValue(limit) ? PNone.NONE : limit,
+                            PGuards.isNoValue(file) ? PNone.NONE : file);
+        }
+    }
+
+    @Builtin(name = "_repr_info", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class ReprInfoNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        static Object reprInfo(PTask self) {
+            return AsyncioUtils.callModuleFunction(AsyncioUtils.BASE_TASKS_MODULE, "_task_repr_info", self);
+        }
+    }
+
+    @Builtin(name = "_coro", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class CoroNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        static Object coro(PTask self) {
+            return self.getCoro() == null ? PNone.NONE : self.getCoro();
+        }
+    }
+
+    @Builtin(name = "_fut_waiter", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class FutWaiterNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        static Object futWaiter(PTask self) {
+            return self.getFutWaiter() == null ? PNone.NONE : self.getFutWaiter();
+        }
+    }
+
+    @Builtin(name = "_must_cancel", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class MustCancelNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        static boolean mustCancel(PTask self) {
+            return self.isMustCancel();
+        }
+    }
+
+    @Builtin(name = "_log_destroy_pending", minNumOfPositionalArgs = 1, maxNumOfPositionalArgs = 2, isGetter = true, isSetter = true)
+    @GenerateNodeFactory
+    public abstract static class LogDestroyPendingNode extends PythonBinaryBuiltinNode {
+
+        @Specialization(guards = "isNoValue(value)")
+        static boolean get(PTask self, @SuppressWarnings("unused") PNone value) {
+            return self.isLogDestroyPending();
+        }
+
+        @Specialization(guards = "!isNoValue(value)", limit = "3")
+        static Object set(VirtualFrame frame, PTask self, Object value,
+                        @CachedLibrary("value") PythonObjectLibrary lib) {
+            self.setLogDestroyPending(lib.isTrueWithState(value, PArguments.getThreadState(frame)));
+            return PNone.NONE;
+        }
+    }
+}
@@ -129,6 +129,7 @@ import com.oracle.graal.python.nodes.SpecialMethodNames;
 import com.oracle.graal.python.nodes.attributes.LookupAttributeInMRONode;
 import com.oracle.graal.python.nodes.attributes.ReadAttributeFromObjectNode;
 import com.oracle.graal.python.nodes.attributes.WriteAttributeToObjectNode;
+import com.oracle.graal.python.nodes.call.special.LookupAndCallUnaryNode;
 import com.oracle.graal.python.nodes.classes.IsSubtypeNode;
 import com.oracle.graal.python.nodes.object.GetClassNode;
 import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
@@ -281,7 +282,7 @@ public abstract class DynamicObjectNativeWrapper extends PythonNativeWrapper {
         }
     }
 
-    @ImportStatic({NativeMember.class, SpecialMethodNames.class, SpecialAttributeNames.class, PythonOptions.class})
+    @ImportStatic({NativeMember.class, SpecialMethodNames.class, SpecialAttributeNames.class, PythonOptions.class, PMemoryView.class})
     @TypeSystemReference(PythonArithmeticTypes.class)
     abstract static class ReadNativeMemberNode extends Node {
 
@@ -904,8 +905,12 @@ public abstract class DynamicObjectNativeWrapper extends PythonNativeWrapper {
                         @Cached PRaiseNode raise,
                         @Cached ReadAttributeFromObjectNode readAttrNode,
                         @CachedLibrary(limit = "1") InteropLibrary read,
-                        @Cached("createBinaryProfile()") ConditionProfile isNativeObject) {
+                        @Cached("createBinaryProfile()") ConditionProfile isNativeObject,
+                        @Cached("create(MATERIALIZE_NATIVE)") LookupAndCallUnaryNode materializeNode) {
             Object delegateObj = readAttrNode.execute(object, "__c_memoryview");
+            if (!PythonNativeObject.isInstance(delegateObj) && object.isManaged()) {
+                delegateObj = materializeNode.executeObject(null, object);
+            }
             if (isNativeObject.profile(PythonNativeObject.isInstance(delegateObj))) {
                 try {
                     return read.readMember(PythonNativeObject.cast(delegateObj).getPtr(), key);
@@ -991,7 +996,7 @@ public abstract class DynamicObjectNativeWrapper extends PythonNativeWrapper {
 
     // WRITE
     @GenerateUncached
-    @ImportStatic({NativeMember.class, PGuards.class, SpecialMethodNames.class, SpecialAttributeNames.class})
+    @ImportStatic({NativeMember.class, PGuards.class, SpecialMethodNames.class, SpecialAttributeNames.class, PMemoryView.class})
     abstract static class WriteNativeMemberNode extends Node {
         private static final TruffleLogger LOGGER = PythonLanguage.getLogger(WriteNativeMemberNode.class);
 
@@ -1155,10 +1160,15 @@ public abstract class DynamicObjectNativeWrapper extends PythonNativeWrapper {
         static Object doMemoryview(PMemoryView object, @SuppressWarnings("unused") PythonNativeWrapper nativeWrapper, String key, Object value,
                         @Cached ReadAttributeFromObjectNode readAttrNode,
                         @Cached("createBinaryProfile()") ConditionProfile isNativeObject,
-                        @CachedLibrary(limit = "1") InteropLibrary interopLib) throws UnsupportedMessageException, UnknownIdentifierException, UnsupportedTypeException {
+                        @CachedLibrary(limit = "1") InteropLibrary interopLib,
+                        @Cached("create(MATERIALIZE_NATIVE)") LookupAndCallUnaryNode materializeNode) throws UnsupportedMessageException, UnknownIdentifierException, UnsupportedTypeException {
             Object delegateObj = readAttrNode.execute(object, "__c_memoryview");
+            if (!PythonNativeObject.isInstance(delegateObj) && object.isManaged()) {
+                delegateObj = materializeNode.executeObject(null, object);
+            }
             if (isNativeObject.profile(PythonNativeObject.isInstance(delegateObj))) {
                 interopLib.writeMember(PythonNativeObject.cast(delegateObj).getPtr(), key, value);
+                return value;
             }
             CompilerDirectives.transferToInterpreterAndInvalidate();
             throw new IllegalStateException("delegate of memoryview object is not native");
@@ -1285,11 +1295,22 @@ public abstract class DynamicObjectNativeWrapper extends PythonNativeWrapper {
         static void doPythonNativeWrapper(PythonNativeWrapper obj,
                         @Cached ToPyObjectNode toPyObjectNode,
                         @Cached InvalidateNativeObjectsAllManagedNode invalidateNode,
-                        @Cached IsPointerNode isPointerNode) {
+                        @Cached IsPointerNode isPointerNode,
+                        @CachedLibrary(limit = "1") InteropLibrary ptrLib,
+                        @CachedContext(PythonLanguage.class) PythonContext context) {
             invalidateNode.execute();
             if (!isPointerNode.execute(obj)) {
                 Object ptr = toPyObjectNode.execute(obj);
                 obj.setNativePointer(ptr);
+                // register the new handle such that resolving it does not need a native call
+                HandleCache handleCache = context.getHandleCache();
+                if (handleCache != null && ptrLib.isPointer(ptr)) {
+                    try {
+                        handleCache.put(ptrLib.asPointer(ptr), obj);
+                    } catch (UnsupportedMessageException e) {
+                        throw CompilerDirectives.shouldNotReachHere(e);
+                    }
+                }
             }
         }
     }
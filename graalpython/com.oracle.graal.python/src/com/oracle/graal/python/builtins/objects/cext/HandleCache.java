@@ -40,10 +40,13 @@
  */
 package com.oracle.graal.python.builtins.objects.cext;
 
+import java.lang.ref.WeakReference;
+
 import com.oracle.graal.python.PythonLanguage;
 import com.oracle.truffle.api.Assumption;
 import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.GenerateUncached;
 import com.oracle.truffle.api.dsl.ImportStatic;
@@ -58,19 +61,178 @@ import com.oracle.truffle.api.library.ExportLibrary;
 import com.oracle.truffle.api.library.ExportMessage;
 import com.oracle.truffle.api.nodes.InvalidAssumptionException;
 import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.profiles.ConditionProfile;
 
+/**
+ * Resolves native handles (as produced by {@code truffle_deref_handle_for_managed}) back to their
+ * {@link PythonNativeWrapper}. A few handles are cached in the AST of {@link GetOrInsertNode}; all
+ * other handles are looked up in an open-addressing table on the Java side that grows with the
+ * number of live handles. Only handles that were never seen before are resolved by calling
+ * {@code ptrToResolveHandle}.
+ *
+ * The table does not keep the wrappers alive. An entry is only used as long as the handle valid
+ * assumption of the wrapper holds, so handles that are released and later reused by Sulong for
+ * another object are resolved again.
+ *
+ * Lookups come from any thread and do not lock. Both arrays of the table are therefore published
+ * together through a single volatile write of a {@link Table}; updates are serialized by the
+ * monitor of the cache.
+ */
 @ExportLibrary(InteropLibrary.class)
 public final class HandleCache implements TruffleObject {
     public static final int CACHE_SIZE = 3;
 
+    private static final int INITIAL_TABLE_CAPACITY = 256;
+
     final long[] keys;
     private final TruffleObject ptrToResolveHandle;
 
     int pos = 0;
 
+    /** Open-addressing table (linear probing); a key of {@code 0} denotes a free slot. */
+    private static final class Table {
+        final long[] keys;
+        final WeakReference<?>[] values;
+
+        Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new WeakReference<?>[capacity];
+        }
+    }
+
+    private volatile Table table;
+    private int tableSize;
+
+    private long hits;
+    private long misses;
+
     public HandleCache(TruffleObject ptrToResolveHandle) {
         keys = new long[CACHE_SIZE];
         this.ptrToResolveHandle = ptrToResolveHandle;
+        this.table = new Table(INITIAL_TABLE_CAPACITY);
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public synchronized int getTableSize() {
+        return tableSize;
+    }
+
+    public int getTableCapacity() {
+        return table.keys.length;
+    }
+
+    private static int indexFor(long handle, int mask) {
+        long h = handle * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static PythonNativeWrapper getValid(WeakReference<?> ref) {
+        if (ref != null) {
+            PythonNativeWrapper wrapper = (PythonNativeWrapper) ref.get();
+            if (wrapper != null) {
+                Assumption handleValidAssumption = wrapper.getHandleValidAssumption();
+                if (handleValidAssumption != null && handleValidAssumption.isValid()) {
+                    return wrapper;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Looks up the wrapper associated with the given handle in the Java-side table. Returns
+     * {@code null} if the handle is unknown or the association is no longer valid.
+     */
+    @TruffleBoundary
+    PythonNativeWrapper lookup(long handle) {
+        Table t = table;
+        long[] k = t.keys;
+        int mask = k.length - 1;
+        for (int i = indexFor(handle, mask);; i = (i + 1) & mask) {
+            long key = k[i];
+            if (key == handle) {
+                // a concurrent put may not have stored the value yet, which is just a miss
+                PythonNativeWrapper wrapper = getValid(t.values[i]);
+                if (wrapper != null) {
+                    hits++;
+                    return wrapper;
+                }
+                break;
+            } else if (key == 0) {
+                break;
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Associates the handle with the given wrapper. This also ensures that the wrapper has a
+     * handle valid assumption such that a released handle invalidates the association.
+     */
+    @TruffleBoundary
+    public synchronized void put(long handle, PythonNativeWrapper wrapper) {
+        if (handle == 0) {
+            return;
+        }
+        wrapper.ensureHandleValidAssumption();
+        if ((tableSize + 1) * 2 > table.keys.length) {
+            rehash();
+        }
+        Table t = table;
+        long[] k = t.keys;
+        int mask = k.length - 1;
+        int i = indexFor(handle, mask);
+        while (k[i] != 0 && k[i] != handle) {
+            i = (i + 1) & mask;
+        }
+        t.values[i] = new WeakReference<>(wrapper);
+        if (k[i] == 0) {
+            k[i] = handle;
+            tableSize++;
+        }
+    }
+
+    /**
+     * Drops all stale associations and doubles the capacity if the table is still at least half
+     * full afterwards.
+     */
+    private void rehash() {
+        long[] oldKeys = table.keys;
+        WeakReference<?>[] oldValues = table.values;
+        int live = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0 && getValid(oldValues[i]) != null) {
+                live++;
+            }
+        }
+        int capacity = oldKeys.length;
+        while ((live + 1) * 2 > capacity) {
+            capacity <<= 1;
+        }
+        Table newTable = new Table(capacity);
+        long[] newKeys = newTable.keys;
+        WeakReference<?>[] newValues = newTable.values;
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0 && getValid(oldValues[i]) != null) {
+                int j = indexFor(oldKeys[i], mask);
+                while (newKeys[j] != 0) {
+                    j = (j + 1) & mask;
+                }
+                newKeys[j] = oldKeys[i];
+                newValues[j] = oldValues[i];
+            }
+        }
+        table = newTable;
+        tableSize = live;
     }
 
     protected int len() {
@@ -115,29 +277,52 @@ public final class HandleCache implements TruffleObject {
         }
 
         @Specialization(replaces = "doCachedSingleContext", assumptions = "singleContextAssumption()")
-        static Object doGenericSingleContext(@SuppressWarnings("unused") HandleCache cache, long handle,
+        static Object doGenericSingleContext(HandleCache cache, long handle,
                         @Cached(value = "cache.getPtrToResolveHandle()", allowUncached = true) TruffleObject resolveHandleFunction,
-                        @CachedLibrary("resolveHandleFunction") InteropLibrary interopLibrary) throws UnsupportedTypeException, ArityException, UnsupportedMessageException {
-            return resolveHandle(handle, resolveHandleFunction, interopLibrary);
+                        @CachedLibrary("resolveHandleFunction") InteropLibrary interopLibrary,
+                        @Cached("createBinaryProfile()") ConditionProfile hitProfile) throws UnsupportedTypeException, ArityException, UnsupportedMessageException {
+            PythonNativeWrapper cached = cache.lookup(handle);
+            if (hitProfile.profile(cached != null)) {
+                return cached;
+            }
+            return resolveAndInsert(cache, handle, resolveHandleFunction, interopLibrary);
         }
 
         @Specialization(limit = "3", replaces = {"doCachedSingleContext", "doGenericSingleContext"})
-        static Object doGeneric(@SuppressWarnings("unused") HandleCache cache, long handle,
-                        @CachedLibrary("cache.getPtrToResolveHandle()") InteropLibrary interopLibrary) throws UnsupportedTypeException, ArityException, UnsupportedMessageException {
-            return resolveHandle(handle, cache.getPtrToResolveHandle(), interopLibrary);
+        static Object doGeneric(HandleCache cache, long handle,
+                        @CachedLibrary("cache.getPtrToResolveHandle()") InteropLibrary interopLibrary,
+                        @Cached("createBinaryProfile()") ConditionProfile hitProfile) throws UnsupportedTypeException, ArityException, UnsupportedMessageException {
+            PythonNativeWrapper cached = cache.lookup(handle);
+            if (hitProfile.profile(cached != null)) {
+                return cached;
+            }
+            return resolveAndInsert(cache, handle, cache.getPtrToResolveHandle(), interopLibrary);
         }
 
         static PythonNativeWrapper resolveHandleUncached(HandleCache cache, long handle)
                         throws UnsupportedTypeException, ArityException, UnsupportedMessageException {
             CompilerAsserts.neverPartOfCompilation();
+            PythonNativeWrapper cached = cache.lookup(handle);
+            if (cached != null) {
+                return cached;
+            }
             TruffleObject ptrToResolveHandle = cache.getPtrToResolveHandle();
-            Object resolved = resolveHandle(handle, ptrToResolveHandle, InteropLibrary.getFactory().getUncached(ptrToResolveHandle));
+            Object resolved = resolveAndInsert(cache, handle, ptrToResolveHandle, InteropLibrary.getFactory().getUncached(ptrToResolveHandle));
             if (resolved instanceof PythonNativeWrapper) {
                 return (PythonNativeWrapper) resolved;
             }
             return null;
         }
 
+        static Object resolveAndInsert(HandleCache cache, long handle, TruffleObject ptrToResolveHandle, InteropLibrary interopLibrary)
+                        throws UnsupportedTypeException, ArityException, UnsupportedMessageException {
+            Object resolved = resolveHandle(handle, ptrToResolveHandle, interopLibrary);
+            if (resolved instanceof PythonNativeWrapper) {
+                cache.put(handle, (PythonNativeWrapper) resolved);
+            }
+            return resolved;
+        }
+
         static Object resolveHandle(long handle, TruffleObject ptrToResolveHandle, InteropLibrary interopLibrary)
                         throws UnsupportedTypeException, ArityException, UnsupportedMessageException {
             return interopLibrary.execute(ptrToResolveHandle, handle);
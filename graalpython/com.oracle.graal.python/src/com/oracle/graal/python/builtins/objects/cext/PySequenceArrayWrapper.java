@@ -237,23 +237,16 @@ public final class PySequenceArrayWrapper extends PythonNativeWrapper {
             return result;
         }
 
+        /**
+         * Same as for {@code bytes} but reads directly from the mapped memory.
+         */
         @Specialization
-        @ExplodeLoop
-        static long doPMmapI64(PMMap mmap, long byteIdx,
-                        @Exclusive @Cached LookupInheritedAttributeNode.Dynamic lookupGetItemNode,
-                        @Exclusive @Cached CallNode callGetItemNode,
-                        @CachedLibrary(limit = "3") PythonObjectLibrary libItem) {
-
+        static long doPMmapI64(PMMap mmap, long byteIdx) {
             long len = mmap.getLength();
-            Object attrGetItem = lookupGetItemNode.execute(mmap, SpecialMethodNames.__GETITEM__);
-
-            int i = (int) byteIdx;
             long result = 0;
             for (int j = 0; j < Long.BYTES; j++) {
-                if (i + j < len) {
-                    long shift = Byte.SIZE * j;
-                    long mask = 0xFFL << shift;
-                    result |= (libItem.asJavaLong(callGetItemNode.execute(attrGetItem, mmap, byteIdx)) << shift) & mask;
+                if (byteIdx + j < len) {
+                    result |= (mmap.getByte(byteIdx + j) & 0xFFL) << (Byte.SIZE * j);
                 }
             }
             return result;
@@ -352,6 +345,32 @@ public final class PySequenceArrayWrapper extends PythonNativeWrapper {
             }
         }
 
+        @Specialization
+        static void doMMap(PMMap s, long idx, byte value) {
+            s.putByte(idx, value);
+        }
+
+        @Specialization
+        static void doMMap(PMMap s, long idx, short value) {
+            putLittleEndian(s, idx, value, Short.BYTES);
+        }
+
+        @Specialization
+        static void doMMap(PMMap s, long idx, int value) {
+            putLittleEndian(s, idx, value, Integer.BYTES);
+        }
+
+        @Specialization
+        static void doMMap(PMMap s, long idx, long value) {
+            putLittleEndian(s, idx, value, Long.BYTES);
+        }
+
+        private static void putLittleEndian(PMMap s, long idx, long value, int n) {
+            for (int offset = 0; offset < n; offset++) {
+                s.putByte(idx + offset, (byte) (value >> (8 * offset)));
+            }
+        }
+
         @Specialization
         void doList(PList s, long idx, Object value,
                         @Shared("toJavaNode") @Cached CExtNodes.ToJavaStealingNode toJavaNode,
@@ -49,6 +49,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 import org.graalvm.collections.EconomicMap;
@@ -100,6 +102,26 @@ public final class CApiContext extends CExtContext {
     private long allocatedMemory = 0;
 
     private final ReferenceQueue<Object> nativeObjectsQueue;
+
+    /**
+     * Batches of dead native object references prepared by the drainer thread. The batch size is
+     * bounded by {@link PythonOptions#CApiReferenceCleanerBudget}; one async action releases batches
+     * until {@link #CLEANER_TIME_BUDGET_NANOS} are used up.
+     */
+    private final ConcurrentLinkedQueue<ReferenceCleanerBatch> pendingCleanerBatches = new ConcurrentLinkedQueue<>();
+    private final int referenceCleanerBudget;
+
+    /**
+     * The time one execution of the cleaner action may spend releasing batches. It is a part of the
+     * async action period, so a steady allocation rate cannot build up an ever-growing backlog.
+     */
+    private static final long CLEANER_TIME_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /* reference cleaner statistics; only updated by the thread executing the cleaner actions */
+    private long releasedReferences;
+    private long cleanerBatches;
+    private long maxCleanerBatchSize;
+    private long cleanerTime;
     private Map<Object, AllocInfo> allocatedNativeMemory;
     private final NativeReferenceStack nativeObjectWrapperList;
     private TraceMallocDomain[] traceMallocDomains;
@@ -143,15 +165,36 @@ public final class CApiContext extends CExtContext {
             primitiveNativeWrapperCache[i] = nativeWrapper;
         }
 
+        referenceCleanerBudget = Math.max(1, context.getOption(PythonOptions.CApiReferenceCleanerBudget));
+        if (!context.getOption(PythonOptions.NoAsyncActions)) {
+            Thread drainer = new Thread(this::drainReferenceQueue, "python-native-reference-drainer");
+            drainer.setDaemon(true);
+            drainer.start();
+            context.registerShutdownHook(c -> drainer.interrupt());
+        }
+
         context.registerAsyncAction(() -> {
-            Reference<?> reference = null;
+            if (pendingCleanerBatches.isEmpty()) {
+                return null;
+            }
+            return CApiReferenceCleanerAction.INSTANCE;
+        });
+    }
+
+    /**
+     * Body of the drainer thread. Waits for dead native object references and splits them into
+     * batches of at most {@link #referenceCleanerBudget} references. The thread is not entered in
+     * the context, so it must not touch any guest or interop objects.
+     */
+    private void drainReferenceQueue() {
+        ArrayList<NativeObjectReference> refs = new ArrayList<>();
+        while (true) {
+            Reference<?> reference;
             try {
                 reference = nativeObjectsQueue.remove();
             } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+                return;
             }
-
-            ArrayList<NativeObjectReference> refs = new ArrayList<>();
             do {
                 if (reference instanceof NativeObjectReference) {
                     refs.add((NativeObjectReference) reference);
@@ -160,12 +203,29 @@ public final class CApiContext extends CExtContext {
                 reference = nativeObjectsQueue.poll();
             } while (reference != null);
 
-            if (!refs.isEmpty()) {
-                return new CApiReferenceCleanerAction(refs.toArray(new NativeObjectReference[0]));
+            for (int start = 0; start < refs.size(); start += referenceCleanerBudget) {
+                int end = Math.min(refs.size(), start + referenceCleanerBudget);
+                pendingCleanerBatches.add(new ReferenceCleanerBatch(refs.subList(start, end).toArray(new NativeObjectReference[0])));
             }
+            refs.clear();
+        }
+    }
 
-            return null;
-        });
+    public long getReleasedReferences() {
+        return releasedReferences;
+    }
+
+    public long getCleanerBatches() {
+        return cleanerBatches;
+    }
+
+    public long getMaxCleanerBatchSize() {
+        return maxCleanerBatchSize;
+    }
+
+    /** Total time spent in the reference cleaner (in nanoseconds). */
+    public long getCleanerTime() {
+        return cleanerTime;
     }
 
     public int getPyLongBitsInDigit() {
@@ -291,6 +351,43 @@ public final class CApiContext extends CExtContext {
         }
     }
 
+    /**
+     * A batch of references to release in one native call. The cleaner action resolves the native
+     * pointers before the call so that the native side reads them from a primitive array. If any
+     * pointer cannot be resolved, {@link #pointers} is {@code null} and the pointer objects are
+     * used.
+     */
+    static final class ReferenceCleanerBatch {
+        final NativeObjectReference[] references;
+        long[] pointers;
+
+        ReferenceCleanerBatch(NativeObjectReference[] references) {
+            this.references = references;
+        }
+
+        /** Must run on a thread that is entered in the context. */
+        void resolvePointers() {
+            pointers = resolvePointers(references);
+        }
+
+        private static long[] resolvePointers(NativeObjectReference[] references) {
+            InteropLibrary lib = InteropLibrary.getUncached();
+            long[] pointers = new long[references.length];
+            for (int i = 0; i < references.length; i++) {
+                Object ptrObject = references[i].ptrObject;
+                if (!lib.isPointer(ptrObject)) {
+                    return null;
+                }
+                try {
+                    pointers[i] = lib.asPointer(ptrObject);
+                } catch (UnsupportedMessageException e) {
+                    return null;
+                }
+            }
+            return pointers;
+        }
+    }
+
     /**
      * Simple root node that executes a reference decrease.
      */
@@ -316,18 +413,15 @@ public final class CApiContext extends CExtContext {
         public Object execute(VirtualFrame frame) {
             CalleeContext.enter(frame, customLocalsProfile);
             try {
-                NativeObjectReference[] nativeObjectReferences = (NativeObjectReference[]) PArguments.getArgument(frame, 0);
+                ReferenceCleanerBatch batch = (ReferenceCleanerBatch) PArguments.getArgument(frame, 0);
+                NativeObjectReference[] nativeObjectReferences = batch.references;
                 int cleaned = 0;
                 long allocatedNativeMem = cApiContext.allocatedMemory;
-                long startTime = 0;
+                long startTime = System.nanoTime();
                 long middleTime = 0;
                 final int n = nativeObjectReferences.length;
                 boolean loggable = LOGGER.isLoggable(Level.FINE);
 
-                if (loggable) {
-                    startTime = System.currentTimeMillis();
-                }
-
                 if (LOGGER.isLoggable(Level.FINER)) {
                     // it's not an OSR loop, so we do this before the loop
                     if (n > 0 && pointerObjectLib == null) {
@@ -352,19 +446,27 @@ public final class CApiContext extends CExtContext {
                         NativeObjectReference nativeObjectReference = nativeObjectReferences[i];
                         if (!nativeObjectReference.resurrect) {
                             cApiContext.nativeObjectWrapperList.remove(nativeObjectReference.id);
+                            cleaned++;
                         }
                     }
                 }
 
                 if (loggable) {
-                    middleTime = System.currentTimeMillis();
+                    middleTime = System.nanoTime();
                 }
 
-                callBulkSubref.call(NativeCAPISymbols.FUN_BULK_SUBREF, new PointerArrayWrapper(nativeObjectReferences), new RefCountArrayWrapper(nativeObjectReferences), (long) n);
+                callBulkSubref.call(NativeCAPISymbols.FUN_BULK_SUBREF, new PointerArrayWrapper(nativeObjectReferences, batch.pointers), new RefCountArrayWrapper(nativeObjectReferences),
+                                (long) n);
+
+                long endTime = System.nanoTime();
+                cApiContext.releasedReferences += cleaned;
+                cApiContext.cleanerBatches++;
+                cApiContext.maxCleanerBatchSize = Math.max(cApiContext.maxCleanerBatchSize, n);
+                cApiContext.cleanerTime += endTime - startTime;
 
                 if (loggable) {
-                    final long countDuration = middleTime - startTime;
-                    final long duration = System.currentTimeMillis() - middleTime;
+                    final long countDuration = (middleTime - startTime) / 1000000;
+                    final long duration = (endTime - middleTime) / 1000000;
                     final int finalCleaned = cleaned;
                     final long freedNativeMemory = allocatedNativeMem - cApiContext.allocatedMemory;
                     LOGGER.fine(() -> "Total queued references: " + n);
@@ -401,21 +503,27 @@ public final class CApiContext extends CExtContext {
     }
 
     /**
-     * Reference cleaner action that will be executed by the {@link AsyncHandler}.
+     * Reference cleaner action that will be executed by the {@link AsyncHandler}. Each execution
+     * releases pending batches until the queue is empty or {@link #CLEANER_TIME_BUDGET_NANOS} are
+     * used up; the rest is left for the next execution.
      */
     private static final class CApiReferenceCleanerAction implements AsyncHandler.AsyncAction {
-
-        private final NativeObjectReference[] nativeObjectReferences;
-
-        public CApiReferenceCleanerAction(NativeObjectReference[] nativeObjectReferences) {
-            this.nativeObjectReferences = nativeObjectReferences;
-        }
+        static final CApiReferenceCleanerAction INSTANCE = new CApiReferenceCleanerAction();
 
         @Override
         public void execute(PythonContext context) {
-            Object[] pArguments = PArguments.create(1);
-            PArguments.setArgument(pArguments, 0, nativeObjectReferences);
-            GenericInvokeNode.getUncached().execute(context.getCApiContext().getReferenceCleanerCallTarget(), pArguments);
+            CApiContext cApiContext = context.getCApiContext();
+            long deadline = System.nanoTime() + CLEANER_TIME_BUDGET_NANOS;
+            ReferenceCleanerBatch batch;
+            while ((batch = cApiContext.pendingCleanerBatches.poll()) != null) {
+                batch.resolvePointers();
+                Object[] pArguments = PArguments.create(1);
+                PArguments.setArgument(pArguments, 0, batch);
+                GenericInvokeNode.getUncached().execute(cApiContext.getReferenceCleanerCallTarget(), pArguments);
+                if (System.nanoTime() - deadline >= 0) {
+                    break;
+                }
+            }
         }
     }
 
@@ -79,12 +79,20 @@ public abstract class NativeObjectReferenceArrayWrapper implements TruffleObject
 
     @ExportLibrary(InteropLibrary.class)
     static final class PointerArrayWrapper extends NativeObjectReferenceArrayWrapper {
-        PointerArrayWrapper(NativeObjectReference[] data) {
+        /** The already resolved native pointers of the references (may be {@code null}). */
+        private final long[] pointers;
+
+        PointerArrayWrapper(NativeObjectReference[] data, long[] pointers) {
             super(data);
+            assert pointers == null || pointers.length == data.length;
+            this.pointers = pointers;
         }
 
         @Override
         Object get(long i) {
+            if (pointers != null) {
+                return pointers[(int) i];
+            }
             return data[(int) i].ptrObject;
         }
     }
@@ -48,7 +48,6 @@ import static com.oracle.graal.python.builtins.objects.cext.hpy.GraalHPyContextF
 import static com.oracle.graal.python.builtins.objects.cext.hpy.GraalHPyNativeSymbols.GRAAL_HPY_CONTEXT_TO_NATIVE;
 
 import java.lang.reflect.Field;
-import java.util.Arrays;
 import java.util.logging.Level;
 
 import com.oracle.graal.python.PythonLanguage;
@@ -86,7 +85,10 @@ import com.oracle.graal.python.builtins.objects.cext.hpy.GraalHPyContextFunction
 import com.oracle.graal.python.builtins.objects.cext.hpy.GraalHPyContextFunctions.GraalHPyUnicodeFromString;
 import com.oracle.graal.python.builtins.objects.cext.hpy.GraalHPyContextFunctions.GraalHPyUnicodeFromWchar;
 import com.oracle.graal.python.builtins.objects.cext.hpy.GraalHPyNodes.PCallHPyFunction;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PRaiseNode;
 import com.oracle.graal.python.runtime.PythonContext;
+import com.oracle.graal.python.runtime.PythonOptions;
 import com.oracle.graal.python.runtime.exception.PException;
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
@@ -207,8 +209,8 @@ public final class GraalHPyContext extends CExtContext implements TruffleObject
         }
     }
 
-    private GraalHPyHandle[] hpyHandleTable = new GraalHPyHandle[]{GraalHPyHandle.NULL_HANDLE};
-    private final HandleStack freeStack = new HandleStack(16);
+    private final GraalHPyHandleTable handleTable;
+    private final boolean debugHandles;
     Object nativePointer;
 
     @CompilationFinal(dimensions = 1) private final Object[] hpyContextMembers;
@@ -225,6 +227,8 @@ public final class GraalHPyContext extends CExtContext implements TruffleObject
     public GraalHPyContext(PythonContext context, Object hpyLibrary) {
         super(context, hpyLibrary, GraalHPyConversionNodeSupplier.INSTANCE);
         this.hpyContextMembers = createMembers(context);
+        this.debugHandles = context.getOption(PythonOptions.HPyDebugHandles);
+        this.handleTable = new GraalHPyHandleTable(debugHandles);
     }
 
     void setHPyContextNativeType(Object nativeType) {
@@ -409,53 +413,95 @@ public final class GraalHPyContext extends CExtContext implements TruffleObject
         return members;
     }
 
-    @TruffleBoundary(allowInlining = true)
-    private int allocateHandle() {
-        int freeItem = freeStack.pop();
-        if (freeItem != -1) {
-            assert 0 <= freeItem && freeItem < hpyHandleTable.length;
-            assert hpyHandleTable[freeItem] == null;
-            return freeItem;
-        }
-        for (int i = 1; i < hpyHandleTable.length; i++) {
-            if (hpyHandleTable[i] == null) {
-                return i;
-            }
-        }
-        return -1;
+    public GraalHPyHandleTable getHandleTable() {
+        return handleTable;
     }
 
     public int getHPyHandleForObject(GraalHPyHandle object) {
-        // find free association
-        int handle = allocateHandle();
-        if (handle == -1) {
-            // resize
-            int newSize = Math.max(16, hpyHandleTable.length * 2);
-            LOGGER.fine(() -> "resizing HPy handle table to " + newSize);
-            hpyHandleTable = Arrays.copyOf(hpyHandleTable, newSize);
-            handle = allocateHandle();
-        }
-        assert handle > 0;
-        hpyHandleTable[handle] = object;
+        int handle = handleTable.allocate(object);
         if (LOGGER.isLoggable(Level.FINER)) {
-            final int handleID = handle;
-            LOGGER.finer(() -> String.format("allocating HPy handle %d (object: %s)", handleID, object));
+            LOGGER.finer(() -> String.format("allocating HPy handle %d (object: %s)", handle, object));
         }
         return handle;
     }
 
     public GraalHPyHandle getObjectForHPyHandle(int handle) {
-        // find free association
-        return hpyHandleTable[handle];
+        if (debugHandles) {
+            synchronized (handleTable) {
+                if (!handleTable.isValid(handle)) {
+                    throw raiseInvalidHandle(handle);
+                }
+                return handleTable.get(handle);
+            }
+        }
+        return handleTable.get(handle);
     }
 
     public void releaseHPyHandleForObject(int handle) {
-        assert hpyHandleTable[handle] != null : "releasing handle that has already been released: " + handle;
         if (LOGGER.isLoggable(Level.FINER)) {
             LOGGER.finer(() -> "releasing HPy handle " + handle);
         }
-        hpyHandleTable[handle] = null;
-        freeStack.push(handle);
+        if (debugHandles) {
+            synchronized (handleTable) {
+                if (handle == 0 || !handleTable.isValid(handle)) {
+                    throw raiseInvalidHandle(handle);
+                }
+                handleTable.release(handle);
+            }
+        } else {
+            handleTable.release(handle);
+        }
+    }
+
+    /**
+     * Releases the first {@code count} handles of the array at once, e.g., the argument handles of
+     * a call into an HPy extension.
+     */
+    public void releaseHPyHandles(int[] handles, int count) {
+        if (LOGGER.isLoggable(Level.FINER)) {
+            LOGGER.finer(() -> "releasing " + count + " HPy handles");
+        }
+        if (debugHandles) {
+            synchronized (handleTable) {
+                for (int i = 0; i < count; i++) {
+                    if (handles[i] == 0 || !handleTable.isValid(handles[i])) {
+                        throw raiseInvalidHandle(handles[i]);
+                    }
+                }
+                handleTable.releaseAll(handles, count);
+            }
+        } else {
+            handleTable.releaseAll(handles, count);
+        }
+    }
+
+    /**
+     * Closes the handles that were created for the arguments of a call into an HPy extension (see
+     * {@link HPyExternalFunctionNodes}). Argument handles are borrowed by the callee, so they can
+     * all be released in one go once the call returns. Handles that never went to native code
+     * don't have a handle value and are skipped. The handle values are collected in a per-call
+     * array since calls may return on several threads at once.
+     */
+    public void closeArgumentHandles(Object[] arguments, int offset) {
+        int[] handles = new int[arguments.length - offset];
+        int count = 0;
+        for (int i = offset; i < arguments.length; i++) {
+            if (arguments[i] instanceof GraalHPyHandle) {
+                GraalHPyHandle handle = (GraalHPyHandle) arguments[i];
+                if (handle.isPointer() && handle != GraalHPyHandle.NULL_HANDLE) {
+                    handles[count++] = handle.getId();
+                    handle.closeHandle();
+                }
+            }
+        }
+        if (count > 0) {
+            releaseHPyHandles(handles, count);
+        }
+    }
+
+    @TruffleBoundary
+    private static PException raiseInvalidHandle(int handle) {
+        throw PRaiseNode.getUncached().raise(PythonBuiltinClassType.SystemError, ErrorMessages.INVALID_HPY_HANDLE, handle);
     }
 
     // nb. keep in sync with 'meth.h'
@@ -476,27 +522,4 @@ public final class GraalHPyContext extends CExtContext implements TruffleObject
     public GraalHPyHandle getNullHandle() {
         return hpyNullHandle;
     }
-
-    private static final class HandleStack {
-        private int[] handles;
-        private int top = 0;
-
-        public HandleStack(int initialCapacity) {
-            handles = new int[initialCapacity];
-        }
-
-        void push(int i) {
-            if (top >= handles.length) {
-                handles = Arrays.copyOf(handles, handles.length * 2);
-            }
-            handles[top++] = i;
-        }
-
-        int pop() {
-            if (top <= 0) {
-                return -1;
-            }
-            return handles[--top];
-        }
-    }
 }
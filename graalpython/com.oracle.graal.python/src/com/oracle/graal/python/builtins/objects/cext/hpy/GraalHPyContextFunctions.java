@@ -185,15 +185,11 @@ public abstract class GraalHPyContextFunctions {
             }
             GraalHPyContext hpyContext = asContextNode.execute(arguments[0]);
             GraalHPyHandle handle = ensureHandleNode.execute(hpyContext, arguments[1]);
-            if (handle.isNative()) {
-                try {
-                    hpyContext.releaseHPyHandleForObject((int) handle.asPointer());
-                } catch (UnsupportedMessageException e) {
-                    CompilerDirectives.transferToInterpreterAndInvalidate();
-                    throw new IllegalStateException("trying to release non-native handle that claims to be native");
-                }
+            // nothing to do if the handle never got 'toNative'; closing HPy_NULL is a no-op
+            if (handle.isNative() && handle != GraalHPyHandle.NULL_HANDLE) {
+                hpyContext.releaseHPyHandleForObject(handle.getId());
+                handle.closeHandle();
             }
-            // nothing to do if the handle never got 'toNative'
             return 0;
         }
     }
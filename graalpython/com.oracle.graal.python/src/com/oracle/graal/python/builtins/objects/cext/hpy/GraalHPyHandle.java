@@ -172,6 +172,19 @@ public final class GraalHPyHandle implements TruffleObject {
         throw UnknownIdentifierException.create(key);
     }
 
+    int getId() {
+        return id;
+    }
+
+    /**
+     * Called after the handle value was released. If the handle is passed to native code again, it
+     * will get a new handle value.
+     */
+    void closeHandle() {
+        assert this != NULL_HANDLE;
+        id = -1;
+    }
+
     public GraalHPyHandle copy() {
         return new GraalHPyHandle(delegate);
     }
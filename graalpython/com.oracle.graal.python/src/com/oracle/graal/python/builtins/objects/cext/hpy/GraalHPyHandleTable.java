@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.cext.hpy;
+
+import java.util.Arrays;
+
+/**
+ * Maps the integer handles passed to HPy extensions to their {@link GraalHPyHandle} objects.
+ * <p>
+ * Released slots are kept on a primitive free-list, so allocating and releasing a handle is O(1)
+ * and never scans the table. Slots that were never used are handed out from {@link #top}. Slot
+ * {@code 0} is reserved for {@code HPy_NULL}.
+ * </p>
+ * <p>
+ * In debug mode, every slot has a generation counter that is incremented whenever the slot is
+ * released and the generation is encoded in the upper bits of the handle value. A handle that was
+ * already closed (and whose slot may already be reused) then no longer matches its slot and is
+ * detected by {@link #isValid(int)} with a single array load. In non-debug mode, the handle value
+ * is just the index of the slot.
+ * </p>
+ * <p>
+ * All operations synchronize on the table, since extensions may create and close handles from
+ * several threads at once. Callers that need to validate a handle and then act on it (e.g.,
+ * release it) must hold the table's monitor across both steps.
+ * </p>
+ */
+public final class GraalHPyHandleTable {
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Number of low bits of a debug handle that encode the slot index. */
+    static final int INDEX_BITS = 24;
+    static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+    /** Generations are in {@code [1, MAX_GENERATION]}, so a debug handle is always positive. */
+    static final int MAX_GENERATION = 0x7f;
+
+    private final boolean debug;
+
+    private GraalHPyHandle[] table;
+    private byte[] generations;
+
+    private int[] freeList;
+    private int freeTop;
+
+    /** The lowest slot index that has never been handed out. */
+    private int top = 1;
+
+    public GraalHPyHandleTable(boolean debug) {
+        this.debug = debug;
+        this.table = new GraalHPyHandle[INITIAL_CAPACITY];
+        this.table[0] = GraalHPyHandle.NULL_HANDLE;
+        this.freeList = new int[INITIAL_CAPACITY];
+        if (debug) {
+            this.generations = new byte[INITIAL_CAPACITY];
+            Arrays.fill(generations, 1, INITIAL_CAPACITY, (byte) 1);
+        }
+    }
+
+    public boolean isDebug() {
+        return debug;
+    }
+
+    /**
+     * Stores the object in a free slot and returns the handle value for it.
+     */
+    public synchronized int allocate(GraalHPyHandle object) {
+        assert object != null;
+        int index;
+        if (freeTop > 0) {
+            index = freeList[--freeTop];
+            assert table[index] == null : "free-list contains slot in use: " + index;
+        } else {
+            if (top >= table.length) {
+                grow();
+            }
+            index = top++;
+        }
+        table[index] = object;
+        return encode(index);
+    }
+
+    /**
+     * Returns the object for the given handle or {@code null} if the slot is not in use. In debug
+     * mode, callers are expected to check {@link #isValid(int)} first.
+     */
+    public synchronized GraalHPyHandle get(int handle) {
+        return table[debug ? handle & INDEX_MASK : handle];
+    }
+
+    /**
+     * Returns {@code true} if the handle refers to a slot that is in use and, in debug mode, if the
+     * handle was allocated by the current user of the slot. Outside of debug mode, a closed handle
+     * whose slot was reused cannot be detected.
+     */
+    public synchronized boolean isValid(int handle) {
+        if (handle == 0) {
+            return true;
+        }
+        if (handle < 0) {
+            return false;
+        }
+        int index = debug ? handle & INDEX_MASK : handle;
+        if (index >= top || table[index] == null) {
+            return false;
+        }
+        return !debug || generations[index] == handle >>> INDEX_BITS;
+    }
+
+    /**
+     * Clears the slot of the handle and puts it on the free-list.
+     */
+    public synchronized void release(int handle) {
+        assert handle != 0 : "releasing HPy_NULL";
+        int index = debug ? handle & INDEX_MASK : handle;
+        assert table[index] != null : "releasing handle that has already been released: " + handle;
+        table[index] = null;
+        if (debug) {
+            int generation = generations[index] + 1;
+            generations[index] = (byte) (generation > MAX_GENERATION ? 1 : generation);
+        }
+        if (freeTop >= freeList.length) {
+            freeList = Arrays.copyOf(freeList, freeList.length * 2);
+        }
+        freeList[freeTop++] = index;
+    }
+
+    /**
+     * Releases the first {@code count} handles of the array. This is equivalent to calling
+     * {@link #release(int)} for each of them, but makes room on the free-list only once.
+     */
+    public synchronized void releaseAll(int[] handles, int count) {
+        assert count <= handles.length;
+        if (freeTop + count > freeList.length) {
+            freeList = Arrays.copyOf(freeList, Math.max(freeList.length * 2, freeTop + count));
+        }
+        for (int i = 0; i < count; i++) {
+            int handle = handles[i];
+            assert handle != 0 : "releasing HPy_NULL";
+            int index = debug ? handle & INDEX_MASK : handle;
+            assert table[index] != null : "releasing handle that has already been released: " + handle;
+            table[index] = null;
+            if (debug) {
+                int generation = generations[index] + 1;
+                generations[index] = (byte) (generation > MAX_GENERATION ? 1 : generation);
+            }
+            freeList[freeTop++] = index;
+        }
+    }
+
+    /**
+     * Returns the number of handles currently in use (not counting {@code HPy_NULL}).
+     */
+    public synchronized int size() {
+        return top - 1 - freeTop;
+    }
+
+    public synchronized int capacity() {
+        return table.length;
+    }
+
+    private int encode(int index) {
+        if (debug) {
+            return (generations[index] << INDEX_BITS) | index;
+        }
+        return index;
+    }
+
+    private void grow() {
+        int oldCapacity = table.length;
+        int newCapacity = oldCapacity * 2;
+        if (debug && newCapacity - 1 > INDEX_MASK) {
+            newCapacity = INDEX_MASK + 1;
+            if (oldCapacity >= newCapacity) {
+                throw new OutOfMemoryError("too many HPy handles in debug mode");
+            }
+        }
+        table = Arrays.copyOf(table, newCapacity);
+        if (debug) {
+            generations = Arrays.copyOf(generations, newCapacity);
+            Arrays.fill(generations, oldCapacity, newCapacity, (byte) 1);
+        }
+    }
+}
@@ -147,6 +147,7 @@ public abstract class HPyExternalFunctionNodes {
                 // to simulate the global state semantics
                 PArguments.setException(frame, ctx.getCaughtException());
                 ForeignCallContext.exit(frame, ctx, state);
+                hPyContext.closeArgumentHandles(arguments, 1);
             }
         }
 
@@ -0,0 +1,437 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.concurrent;
+
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.AttributeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.RuntimeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+
+import java.util.List;
+
+import com.oracle.graal.python.PythonLanguage;
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.concurrent.PConcurrentFuture.State;
+import com.oracle.graal.python.builtins.objects.exception.PBaseException;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.list.PList;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.nodes.BuiltinNames;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.PRaiseNode;
+import com.oracle.graal.python.nodes.SpecialMethodNames;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.call.special.LookupAndCallUnaryNode.LookupAndCallUnaryDynamicNode;
+import com.oracle.graal.python.nodes.classes.IsSubtypeNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.nodes.util.CastToJavaStringNode;
+import com.oracle.graal.python.runtime.PythonContext;
+import com.oracle.graal.python.runtime.PythonOptions;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.library.CachedLibrary;
+import com.oracle.truffle.api.nodes.Node;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PConcurrentFuture)
+public class ConcurrentFutureBuiltins extends PythonBuiltins {
+    static final String BASE_MODULE = "concurrent.futures._base";
+    static final String THREAD_MODULE = "concurrent.futures.thread";
+
+    private static final String CANCELLED_ERROR = "CancelledError";
+    private static final String TIMEOUT_ERROR = "TimeoutError";
+    private static final String INVALID_STATE_ERROR = "InvalidStateError";
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return ConcurrentFutureBuiltinsFactory.getFactories();
+    }
+
+    /**
+     * Reads an attribute of a {@code concurrent.futures} submodule, importing it if necessary.
+     * The exception types and the logger stay in the pure-Python package.
+     */
+    @TruffleBoundary
+    static Object getModuleAttribute(String moduleName, String name) {
+        PythonContext context = PythonLanguage.getContext();
+        Object module = context.getSysModules().getItem(moduleName);
+        if (module == null) {
+            CallNode.getUncached().execute(context.getCore().getBuiltins().getAttribute(BuiltinNames.__IMPORT__), moduleName);
+            module = context.getSysModules().getItem(moduleName);
+        }
+        Object value = PythonObjectLibrary.getUncached().lookupAttribute(module, name);
+        if (value == PNone.NO_VALUE) {
+            throw PRaiseNode.getUncached().raise(AttributeError, ErrorMessages.OBJ_P_HAS_NO_ATTR_S, module, name);
+        }
+        return value;
+    }
+
+    @TruffleBoundary
+    private static Object callMethod(Object receiver, String name, Object[] args, PKeyword[] keywords) {
+        Object method = PythonObjectLibrary.getUncached().lookupAttribute(receiver, name);
+        if (method == PNone.NO_VALUE) {
+            throw PRaiseNode.getUncached().raise(AttributeError, ErrorMessages.OBJ_P_HAS_NO_ATTR_S, receiver, name);
+        }
+        return CallNode.getUncached().execute(method, args, keywords);
+    }
+
+    @TruffleBoundary
+    static PException raiseModuleError(Node raisingNode, String moduleName, String errorName, Object... args) {
+        Object exception = CallNode.getUncached().execute(getModuleAttribute(moduleName, errorName), args);
+        throw PRaiseNode.raise(raisingNode, (PBaseException) exception, PythonOptions.isPExceptionWithJavaStacktrace(PythonLanguage.getCurrent()));
+    }
+
+    static PException raiseException(PythonBuiltinBaseNode node, Object exception) {
+        if (!(exception instanceof PBaseException)) {
+            throw node.raise(TypeError, ErrorMessages.EXCEPTIONS_MUST_DERIVE_FROM_BASE_EX);
+        }
+        throw PRaiseNode.raise(node, (PBaseException) exception, PythonOptions.isPExceptionWithJavaStacktrace(node.getContext().getLanguage()));
+    }
+
+    /**
+     * Logs like {@code LOGGER.<level>(msg, *args, exc_info=exception)} of
+     * {@code concurrent.futures}.
+     */
+    @TruffleBoundary
+    static void log(String level, Object exception, Object... args) {
+        Object logger = getModuleAttribute(BASE_MODULE, "LOGGER");
+        callMethod(logger, level, args, new PKeyword[]{new PKeyword("exc_info", exception)});
+    }
+
+    /**
+     * Calls {@code waiter.<method>(future)} for each waiter installed by
+     * {@code concurrent.futures.wait} or {@code as_completed}, while holding the condition lock
+     * they use. The state must already be final, so waiters installed later do not need this.
+     */
+    @TruffleBoundary
+    static void notifyWaiters(PConcurrentFuture future, String method) {
+        Object condition = future.getCondition();
+        if (condition == null) {
+            return;
+        }
+        callMethod(condition, "acquire", new Object[0], PKeyword.EMPTY_KEYWORDS);
+        try {
+            PList waiters = future.getWaiters();
+            if (waiters != null) {
+                SequenceStorage storage = waiters.getSequenceStorage();
+                for (int i = 0; i < storage.length(); i++) {
+                    callMethod(storage.getItemNormalized(i), method, new Object[]{future}, PKeyword.EMPTY_KEYWORDS);
+                }
+            }
+        } finally {
+            callMethod(condition, "release", new Object[0], PKeyword.EMPTY_KEYWORDS);
+        }
+    }
+
+    /**
+     * Calls {@code fn(future)}. Like CPython, exceptions are logged, only non-{@code Exception}
+     * ones propagate.
+     */
+    @TruffleBoundary
+    static void invokeCallback(PConcurrentFuture future, Object callback) {
+        try {
+            CallNode.getUncached().execute(callback, future);
+        } catch (PException e) {
+            PBaseException exception = e.getEscapedException();
+            if (!IsSubtypeNode.getUncached().execute(PythonObjectLibrary.getUncached().getLazyPythonClass(exception), PythonBuiltinClassType.Exception)) {
+                throw e;
+            }
+            log("exception", exception, "exception calling callback for %r", future);
+        }
+    }
+
+    @TruffleBoundary
+    static void invokeCallbacks(PConcurrentFuture future) {
+        Object[] callbacks = future.getCallbacks();
+        if (callbacks != null) {
+            for (Object callback : callbacks) {
+                invokeCallback(future, callback);
+            }
+        }
+    }
+
+    /**
+     * Sets the result or the exception and notifies waiters and callbacks. Returns
+     * {@code false} without doing anything if the future was already done.
+     */
+    @TruffleBoundary
+    static boolean finish(PConcurrentFuture future, Object result, Object exception) {
+        State previous = future.finish(result, exception);
+        if (previous.isDone()) {
+            return false;
+        }
+        notifyWaiters(future, exception == null ? "add_result" : "add_exception");
+        invokeCallbacks(future);
+        return true;
+    }
+
+    /**
+     * Implements {@code set_running_or_notify_cancel} and returns {@code null} if the future was
+     * neither pending nor cancelled.
+     */
+    @TruffleBoundary
+    static Boolean setRunningOrNotifyCancel(PConcurrentFuture future) {
+        State previous = future.setRunningOrNotifyCancel();
+        if (previous == State.PENDING) {
+            return true;
+        } else if (previous == State.CANCELLED) {
+            notifyWaiters(future, "add_cancelled");
+            return false;
+        }
+        return null;
+    }
+
+    @TruffleBoundary
+    private static PException raiseInvalidState(Node raisingNode, PConcurrentFuture future) {
+        String repr = CastToJavaStringNode.getUncached().execute(LookupAndCallUnaryDynamicNode.getUncached().executeObject(future, SpecialMethodNames.__REPR__));
+        throw raiseModuleError(raisingNode, BASE_MODULE, INVALID_STATE_ERROR, String.format(ErrorMessages.FUTURE_STATE_S_S, future.getState().name(), repr));
+    }
+
+    /**
+     * Waits for the future like {@code Condition.wait(timeout)} and returns the resulting state.
+     */
+    static State await(PConcurrentFuture self, Object timeout, PythonObjectLibrary lib) {
+        State state = self.getState();
+        if (state.isDone()) {
+            return state;
+        }
+        long timeoutNanos;
+        if (PGuards.isPNone(timeout)) {
+            timeoutNanos = -1;
+        } else {
+            timeoutNanos = Math.max(0, (long) (lib.asJavaDouble(timeout) * 1e9));
+        }
+        return self.await(timeoutNanos);
+    }
+
+    @Builtin(name = "cancel", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class CancelNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static boolean cancel(PConcurrentFuture self) {
+            State previous = self.cancel();
+            if (previous == State.RUNNING || previous == State.FINISHED) {
+                return false;
+            }
+            if (previous == State.PENDING) {
+                invokeCallbacks(self);
+            }
+            return true;
+        }
+    }
+
+    @Builtin(name = "cancelled", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class CancelledNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static boolean cancelled(PConcurrentFuture self) {
+            return self.getState().isCancelled();
+        }
+    }
+
+    @Builtin(name = "running", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class RunningNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static boolean running(PConcurrentFuture self) {
+            return self.getState() == State.RUNNING;
+        }
+    }
+
+    @Builtin(name = "done", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class DoneNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static boolean done(PConcurrentFuture self) {
+            return self.getState().isDone();
+        }
+    }
+
+    @Builtin(name = "result", minNumOfPositionalArgs = 1, parameterNames = {"$self", "timeout"})
+    @GenerateNodeFactory
+    public abstract static class ResultNode extends PythonBinaryBuiltinNode {
+        @Specialization(limit = "1")
+        Object result(PConcurrentFuture self, Object timeout,
+                        @CachedLibrary("timeout") PythonObjectLibrary lib) {
+            State state = await(self, timeout, lib);
+            if (state.isCancelled()) {
+                throw raiseModuleError(this, BASE_MODULE, CANCELLED_ERROR);
+            } else if (state != State.FINISHED) {
+                throw raiseModuleError(this, BASE_MODULE, TIMEOUT_ERROR);
+            }
+            Object exception = self.getException();
+            if (exception != null) {
+                throw raiseException(this, exception);
+            }
+            return self.getResult();
+        }
+    }
+
+    @Builtin(name = "exception", minNumOfPositionalArgs = 1, parameterNames = {"$self", "timeout"})
+    @GenerateNodeFactory
+    public abstract static class ExceptionNode extends PythonBinaryBuiltinNode {
+        @Specialization(limit = "1")
+        Object exception(PConcurrentFuture self, Object timeout,
+                        @CachedLibrary("timeout") PythonObjectLibrary lib) {
+            State state = await(self, timeout, lib);
+            if (state.isCancelled()) {
+                throw raiseModuleError(this, BASE_MODULE, CANCELLED_ERROR);
+            } else if (state != State.FINISHED) {
+                throw raiseModuleError(this, BASE_MODULE, TIMEOUT_ERROR);
+            }
+            Object exception = self.getException();
+            return exception == null ? PNone.NONE : exception;
+        }
+    }
+
+    @Builtin(name = "add_done_callback", minNumOfPositionalArgs = 2, parameterNames = {"$self", "fn"})
+    @GenerateNodeFactory
+    public abstract static class AddDoneCallbackNode extends PythonBinaryBuiltinNode {
+        @Specialization
+        static PNone add(PConcurrentFuture self, Object fn) {
+            if (!self.addCallback(fn)) {
+                invokeCallback(self, fn);
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "set_running_or_notify_cancel", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class SetRunningOrNotifyCancelNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        boolean set(PConcurrentFuture self) {
+            Boolean running = setRunningOrNotifyCancel(self);
+            if (running == null) {
+                throw raise(RuntimeError, ErrorMessages.FUTURE_IN_UNEXPECTED_STATE);
+            }
+            return running;
+        }
+    }
+
+    @Builtin(name = "set_result", minNumOfPositionalArgs = 2, parameterNames = {"$self", "result"})
+    @GenerateNodeFactory
+    public abstract static class SetResultNode extends PythonBinaryBuiltinNode {
+        @Specialization
+        PNone set(PConcurrentFuture self, Object result) {
+            if (!finish(self, result, null)) {
+                throw raiseInvalidState(this, self);
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "set_exception", minNumOfPositionalArgs = 2, parameterNames = {"$self", "exception"})
+    @GenerateNodeFactory
+    public abstract static class SetExceptionNode extends PythonBinaryBuiltinNode {
+        @Specialization
+        PNone set(PConcurrentFuture self, Object exception) {
+            // like CPython, a None exception finishes the future with a None result
+            if (!finish(self, PNone.NONE, exception == PNone.NONE ? null : exception)) {
+                throw raiseInvalidState(this, self);
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "_state", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class StateNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static String get(PConcurrentFuture self) {
+            return self.getState().name();
+        }
+    }
+
+    @Builtin(name = "_result", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class ResultGetterNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static Object get(PConcurrentFuture self) {
+            return self.getResult();
+        }
+    }
+
+    @Builtin(name = "_exception", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class ExceptionGetterNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static Object get(PConcurrentFuture self) {
+            Object exception = self.getException();
+            return exception == null ? PNone.NONE : exception;
+        }
+    }
+
+    @Builtin(name = "_condition", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class ConditionNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        Object get(PConcurrentFuture self) {
+            Object condition = self.getCondition();
+            if (condition == null) {
+                condition = self.initCondition(factory().createRLock());
+            }
+            return condition;
+        }
+    }
+
+    @Builtin(name = "_waiters", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class WaitersNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        Object get(PConcurrentFuture self) {
+            Object waiters = self.getWaiters();
+            if (waiters == null) {
+                waiters = self.initWaiters(factory().createList());
+            }
+            return waiters;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.concurrent;
+
+import java.util.ArrayList;
+
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.list.PList;
+import com.oracle.graal.python.builtins.objects.object.PythonBuiltinObject;
+import com.oracle.graal.python.builtins.objects.thread.PRLock;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.object.DynamicObject;
+
+/**
+ * A {@code _concurrent.Future}. The state is guarded by the Java monitor of the object instead of
+ * a {@code threading.Condition}. The condition lock and the waiter list, which
+ * {@code concurrent.futures.wait} and {@code as_completed} use, are only created when they are
+ * asked for. Once the state is {@link State#FINISHED finished}, the waiters are notified while
+ * holding that lock, so a waiter is either installed before and notified, or it sees the final
+ * state.
+ */
+public final class PConcurrentFuture extends PythonBuiltinObject {
+    /** The states of {@code concurrent.futures._base}, their names are the Python values. */
+    public enum State {
+        PENDING,
+        RUNNING,
+        CANCELLED,
+        CANCELLED_AND_NOTIFIED,
+        FINISHED;
+
+        public boolean isCancelled() {
+            return this == CANCELLED || this == CANCELLED_AND_NOTIFIED;
+        }
+
+        public boolean isDone() {
+            return this == CANCELLED || this == CANCELLED_AND_NOTIFIED || this == FINISHED;
+        }
+    }
+
+    private volatile State state = State.PENDING;
+    private Object result = PNone.NONE;
+    /** The exception set by {@code set_exception} or {@code null}. */
+    private Object exception;
+    private ArrayList<Object> callbacks;
+    private volatile PRLock condition;
+    private volatile PList waiters;
+
+    public PConcurrentFuture(Object cls, DynamicObject storage) {
+        super(cls, storage);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public synchronized Object getResult() {
+        return result;
+    }
+
+    public synchronized Object getException() {
+        return exception;
+    }
+
+    /**
+     * Moves a pending future to {@link State#CANCELLED} and returns the previous state.
+     */
+    @TruffleBoundary
+    public synchronized State cancel() {
+        State previous = state;
+        if (previous == State.PENDING) {
+            state = State.CANCELLED;
+            notifyAll();
+        }
+        return previous;
+    }
+
+    /**
+     * Moves a pending future to {@link State#RUNNING} or a cancelled one to
+     * {@link State#CANCELLED_AND_NOTIFIED}, and returns the previous state.
+     */
+    public synchronized State setRunningOrNotifyCancel() {
+        State previous = state;
+        if (previous == State.PENDING) {
+            state = State.RUNNING;
+        } else if (previous == State.CANCELLED) {
+            state = State.CANCELLED_AND_NOTIFIED;
+        }
+        return previous;
+    }
+
+    /**
+     * Sets the result or the exception unless the future is already done, and returns the
+     * previous state.
+     */
+    @TruffleBoundary
+    public synchronized State finish(Object newResult, Object newException) {
+        State previous = state;
+        if (!previous.isDone()) {
+            result = newResult;
+            exception = newException;
+            state = State.FINISHED;
+            notifyAll();
+        }
+        return previous;
+    }
+
+    /**
+     * Waits until the future is done or the timeout, in nanoseconds, elapsed. A negative timeout
+     * waits without limit. Returns the state at the end of the wait.
+     */
+    @TruffleBoundary
+    public synchronized State await(long timeoutNanos) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        try {
+            while (!state.isDone()) {
+                if (timeoutNanos < 0) {
+                    wait();
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    wait(remaining / 1000000, (int) (remaining % 1000000));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return state;
+    }
+
+    /**
+     * Adds a done callback and returns {@code true}, or returns {@code false} if the future is
+     * already done and the callback has to be called right away.
+     */
+    @TruffleBoundary
+    public synchronized boolean addCallback(Object callback) {
+        if (state.isDone()) {
+            return false;
+        }
+        if (callbacks == null) {
+            callbacks = new ArrayList<>(2);
+        }
+        callbacks.add(callback);
+        return true;
+    }
+
+    /**
+     * Returns the done callbacks once the future is done. Callbacks can only be added before, so
+     * this does not need to clear them.
+     */
+    @TruffleBoundary
+    public synchronized Object[] getCallbacks() {
+        return callbacks == null ? null : callbacks.toArray();
+    }
+
+    public PRLock getCondition() {
+        return condition;
+    }
+
+    public synchronized PRLock initCondition(PRLock lock) {
+        if (condition == null) {
+            condition = lock;
+        }
+        return condition;
+    }
+
+    public PList getWaiters() {
+        return waiters;
+    }
+
+    public synchronized PList initWaiters(PList list) {
+        if (waiters == null) {
+            waiters = list;
+        }
+        return waiters;
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.concurrent;
+
+import java.util.ArrayList;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.object.PythonBuiltinObject;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.object.DynamicObject;
+
+/**
+ * A {@code _concurrent.ThreadPoolExecutor}. Work items go through a {@link LinkedTransferQueue}:
+ * {@code submit} first tries to hand an item directly to an idle worker and only queues it and
+ * starts another worker, up to {@code max_workers}, when no worker is waiting. The workers are
+ * started lazily and live until {@code shutdown}, or until the context shuts its threads down.
+ */
+public final class PThreadPoolExecutor extends PythonBuiltinObject {
+    /** Queued once per worker by {@link #shutdown()}, a worker exits when it takes it. */
+    private static final Object SHUTDOWN = new Object();
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+    public static final class WorkItem {
+        final PConcurrentFuture future;
+        final Object callable;
+        final Object[] arguments;
+        final PKeyword[] keywords;
+
+        public WorkItem(PConcurrentFuture future, Object callable, Object[] arguments, PKeyword[] keywords) {
+            this.future = future;
+            this.callable = callable;
+            this.arguments = arguments;
+            this.keywords = keywords;
+        }
+
+        public PConcurrentFuture getFuture() {
+            return future;
+        }
+
+        public Object getCallable() {
+            return callable;
+        }
+
+        public Object[] getArguments() {
+            return arguments;
+        }
+
+        public PKeyword[] getKeywords() {
+            return keywords;
+        }
+    }
+
+    private final LinkedTransferQueue<Object> queue = new LinkedTransferQueue<>();
+    private final ArrayList<Thread> workers = new ArrayList<>();
+    private final int maxWorkers;
+    private final String threadNamePrefix;
+    private final Object initializer;
+    private final Object[] initArgs;
+    private volatile boolean shutdown;
+    /** Set when an initializer failed, no further work is accepted then. */
+    private volatile boolean broken;
+
+    public PThreadPoolExecutor(Object cls, DynamicObject storage, int maxWorkers, String threadNamePrefix, Object initializer, Object[] initArgs) {
+        super(cls, storage);
+        this.maxWorkers = maxWorkers;
+        this.threadNamePrefix = threadNamePrefix != null ? threadNamePrefix : "ThreadPoolExecutor-" + POOL_COUNTER.getAndIncrement();
+        this.initializer = initializer;
+        this.initArgs = initArgs;
+    }
+
+    public int getMaxWorkers() {
+        return maxWorkers;
+    }
+
+    /** The initializer or {@code null}. */
+    public Object getInitializer() {
+        return initializer;
+    }
+
+    public Object[] getInitArgs() {
+        return initArgs;
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    public boolean isBroken() {
+        return broken;
+    }
+
+    /**
+     * Hands the item to an idle worker without taking any lock.
+     */
+    @TruffleBoundary
+    public boolean tryTransfer(WorkItem item) {
+        return queue.tryTransfer(item);
+    }
+
+    /**
+     * Queues the item and returns {@code true} if the caller has to start another worker. The
+     * caller must have checked that the executor is neither shut down nor broken while holding
+     * the lock of this object.
+     */
+    @TruffleBoundary
+    public boolean enqueue(WorkItem item) {
+        assert Thread.holdsLock(this);
+        queue.offer(item);
+        return workers.size() < maxWorkers;
+    }
+
+    /**
+     * Registers a new worker thread, it is named like CPython's {@code <prefix>_<index>}.
+     */
+    @TruffleBoundary
+    public void addWorker(Thread thread) {
+        assert Thread.holdsLock(this);
+        thread.setName(threadNamePrefix + "_" + workers.size());
+        workers.add(thread);
+    }
+
+    /**
+     * Takes the next work item, or returns {@code null} if the worker should exit.
+     */
+    @TruffleBoundary
+    public WorkItem takeWorkItem() {
+        Object item;
+        try {
+            item = queue.take();
+        } catch (InterruptedException e) {
+            return null;
+        }
+        return item == SHUTDOWN ? null : (WorkItem) item;
+    }
+
+    /**
+     * Marks the executor as broken and returns the work items that have not been started.
+     */
+    @TruffleBoundary
+    public synchronized ArrayList<WorkItem> markBroken() {
+        broken = true;
+        ArrayList<WorkItem> pending = new ArrayList<>();
+        Object item;
+        while ((item = queue.poll()) != null) {
+            if (item != SHUTDOWN) {
+                pending.add((WorkItem) item);
+            }
+        }
+        // other workers may wait for work, they will not get any more
+        for (int i = 0; i < workers.size(); i++) {
+            queue.offer(SHUTDOWN);
+        }
+        return pending;
+    }
+
+    /**
+     * Stops accepting work and lets each worker exit once the queued items are done. Returns
+     * the workers to join.
+     */
+    @TruffleBoundary
+    public synchronized Thread[] shutdown() {
+        if (!shutdown) {
+            shutdown = true;
+            for (int i = 0; i < workers.size(); i++) {
+                queue.offer(SHUTDOWN);
+            }
+        }
+        return workers.toArray(new Thread[workers.size()]);
+    }
+
+    @TruffleBoundary
+    public static void join(Thread[] threads) {
+        for (Thread thread : threads) {
+            if (thread != Thread.currentThread()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.concurrent;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__ENTER__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__EXIT__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.RuntimeError;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.concurrent.PThreadPoolExecutor.WorkItem;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.PRaiseNode;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.runtime.PythonContext;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.TruffleLanguage;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.library.CachedLibrary;
+import com.oracle.truffle.api.nodes.Node;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PThreadPoolExecutor)
+public class ThreadPoolExecutorBuiltins extends PythonBuiltins {
+    private static final String BROKEN_THREAD_POOL = "BrokenThreadPool";
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return ThreadPoolExecutorBuiltinsFactory.getFactories();
+    }
+
+    /**
+     * Queues the item and starts another worker if no idle worker took it. This is the slow
+     * path of {@code submit}, it takes the executor's lock so that {@code shutdown} cannot
+     * interleave.
+     */
+    @TruffleBoundary
+    static void enqueue(Node raisingNode, PythonContext context, PThreadPoolExecutor executor, WorkItem item) {
+        synchronized (executor) {
+            checkAcceptsWork(raisingNode, executor);
+            if (executor.enqueue(item)) {
+                TruffleLanguage.Env env = context.getEnv();
+                // n.b.: like _thread.start_new_thread, the worker calls with a 'null' frame since
+                // it runs on its own stack
+                Thread thread = env.createThread(() -> runWorker(executor), env.getContext(), context.getThreadGroup());
+                executor.addWorker(thread);
+                context.registerThreadPoolExecutor(executor);
+                thread.start();
+            }
+        }
+    }
+
+    private static void checkAcceptsWork(Node raisingNode, PThreadPoolExecutor executor) {
+        if (executor.isBroken()) {
+            throw ConcurrentFutureBuiltins.raiseModuleError(raisingNode, ConcurrentFutureBuiltins.THREAD_MODULE, BROKEN_THREAD_POOL, ErrorMessages.THREAD_INITIALIZER_FAILED);
+        }
+        if (executor.isShutdown()) {
+            throw PRaiseNode.getUncached().raise(RuntimeError, ErrorMessages.CANNOT_SCHEDULE_NEW_FUTURES_AFTER_SHUTDOWN);
+        }
+    }
+
+    @TruffleBoundary
+    private static void runWorker(PThreadPoolExecutor executor) {
+        Object initializer = executor.getInitializer();
+        if (initializer != null) {
+            try {
+                CallNode.getUncached().execute(initializer, executor.getInitArgs(), PKeyword.EMPTY_KEYWORDS);
+            } catch (PException e) {
+                ConcurrentFutureBuiltins.log("critical", e.getEscapedException(), "Exception in initializer:");
+                Object broken = null;
+                for (WorkItem item : executor.markBroken()) {
+                    if (broken == null) {
+                        broken = CallNode.getUncached().execute(ConcurrentFutureBuiltins.getModuleAttribute(ConcurrentFutureBuiltins.THREAD_MODULE, BROKEN_THREAD_POOL),
+                                        ErrorMessages.THREAD_INITIALIZER_FAILED);
+                    }
+                    ConcurrentFutureBuiltins.finish(item.getFuture(), PNone.NONE, broken);
+                }
+                return;
+            }
+        }
+        try {
+            WorkItem item;
+            while ((item = executor.takeWorkItem()) != null) {
+                run(item);
+            }
+        } catch (PException e) {
+            ConcurrentFutureBuiltins.log("critical", e.getEscapedException(), "Exception in worker");
+        }
+    }
+
+    private static void run(WorkItem item) {
+        PConcurrentFuture future = item.getFuture();
+        if (ConcurrentFutureBuiltins.setRunningOrNotifyCancel(future) != Boolean.TRUE) {
+            return;
+        }
+        Object result;
+        try {
+            result = CallNode.getUncached().execute(item.getCallable(), item.getArguments(), item.getKeywords());
+        } catch (PException e) {
+            ConcurrentFutureBuiltins.finish(future, PNone.NONE, e.getEscapedException());
+            return;
+        }
+        ConcurrentFutureBuiltins.finish(future, result, null);
+    }
+
+    // submit(fn, /, *args, **kwargs)
+    @Builtin(name = "submit", minNumOfPositionalArgs = 2, takesVarArgs = true, takesVarKeywordArgs = true)
+    @GenerateNodeFactory
+    public abstract static class SubmitNode extends PythonBuiltinNode {
+        @Specialization
+        PConcurrentFuture submit(PThreadPoolExecutor self, Object fn, Object[] args, PKeyword[] kwargs) {
+            if (self.isShutdown() || self.isBroken()) {
+                checkAcceptsWork(this, self);
+            }
+            PConcurrentFuture future = factory().createConcurrentFuture(PythonBuiltinClassType.PConcurrentFuture);
+            WorkItem item = new WorkItem(future, fn, args, kwargs);
+            if (!self.tryTransfer(item)) {
+                enqueue(this, getContext(), self, item);
+            }
+            return future;
+        }
+    }
+
+    @Builtin(name = "shutdown", minNumOfPositionalArgs = 1, parameterNames = {"$self", "wait"})
+    @GenerateNodeFactory
+    public abstract static class ShutdownNode extends PythonBinaryBuiltinNode {
+        @Specialization(limit = "1")
+        static PNone shutdown(PThreadPoolExecutor self, Object wait,
+                        @CachedLibrary("wait") PythonObjectLibrary lib) {
+            Thread[] workers = self.shutdown();
+            if (PGuards.isNoValue(wait) || lib.isTrue(wait)) {
+                PThreadPoolExecutor.join(workers);
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = __ENTER__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class EnterNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static Object enter(PThreadPoolExecutor self) {
+            return self;
+        }
+    }
+
+    @Builtin(name = __EXIT__, minNumOfPositionalArgs = 4)
+    @GenerateNodeFactory
+    public abstract static class ExitNode extends PythonBuiltinNode {
+        @Specialization
+        static boolean exit(PThreadPoolExecutor self, @SuppressWarnings("unused") Object type, @SuppressWarnings("unused") Object value, @SuppressWarnings("unused") Object traceback) {
+            PThreadPoolExecutor.join(self.shutdown());
+            return false;
+        }
+    }
+
+    @Builtin(name = "_max_workers", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class MaxWorkersNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static int get(PThreadPoolExecutor self) {
+            return self.getMaxWorkers();
+        }
+    }
+}
@@ -0,0 +1,621 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.deque;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__CONTAINS__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__DELITEM__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__GETITEM__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__HASH__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__INIT__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__ITER__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__LEN__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__REVERSED__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__SETITEM__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.IndexError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.RuntimeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.function.PArguments;
+import com.oracle.graal.python.builtins.objects.function.PArguments.ThreadState;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.call.special.LookupAndCallUnaryNode;
+import com.oracle.graal.python.nodes.control.GetIteratorExpressionNode.GetIteratorNode;
+import com.oracle.graal.python.nodes.control.GetNextNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonQuaternaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.nodes.subscript.SliceLiteralNode.CastToSliceComponentNode;
+import com.oracle.graal.python.runtime.PythonCore;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.library.CachedLibrary;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PDeque)
+public class DequeBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return DequeBuiltinsFactory.getFactories();
+    }
+
+    @Override
+    public void initialize(PythonCore core) {
+        super.initialize(core);
+        builtinConstants.put(__HASH__, PNone.NONE);
+    }
+
+    @Builtin(name = __INIT__, minNumOfPositionalArgs = 1, parameterNames = {"self", "iterable", "maxlen"})
+    @GenerateNodeFactory
+    abstract static class InitNode extends PythonTernaryBuiltinNode {
+        @Specialization(limit = "getCallSiteInlineCacheMaxDepth()")
+        PNone init(VirtualFrame frame, PDeque self, Object iterable, Object maxlen,
+                        @CachedLibrary("maxlen") PythonObjectLibrary lib,
+                        @Cached("createBinaryProfile()") ConditionProfile hasFrame,
+                        @Cached ExtendNode extendNode) {
+            int maxLength = PDeque.UNBOUNDED;
+            if (!(maxlen instanceof PNone)) {
+                maxLength = lib.asSizeWithState(maxlen, PArguments.getThreadStateOrNull(frame, hasFrame));
+                if (maxLength < 0) {
+                    throw raise(ValueError, ErrorMessages.MUST_BE_NON_NEGATIVE, "maxlen");
+                }
+            }
+            synchronized (self) {
+                self.setMaxLength(maxLength);
+                if (self.getLength() > 0) {
+                    self.clear();
+                }
+            }
+            if (!(iterable instanceof PNone)) {
+                extendNode.execute(frame, self, iterable);
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "append", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class AppendNode extends PythonBinaryBuiltinNode {
+        @Specialization
+        static PNone append(PDeque self, Object value,
+                        @Cached DequeNodes.AppendNode appendNode) {
+            appendNode.execute(self, value);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "appendleft", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class AppendLeftNode extends PythonBinaryBuiltinNode {
+        @Specialization
+        static PNone appendLeft(PDeque self, Object value,
+                        @Cached DequeNodes.AppendLeftNode appendLeftNode) {
+            appendLeftNode.execute(self, value);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "pop", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class PopNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        Object pop(PDeque self,
+                        @Cached DequeNodes.GetDequeStorageNode getStorageNode) {
+            synchronized (self) {
+                DequeStorage storage = getStorageNode.execute(self);
+                if (storage.length() == 0) {
+                    throw raise(IndexError, ErrorMessages.POP_FROM_EMPTY_DEQUE);
+                }
+                Object result = storage.removeLast();
+                self.incrementState();
+                return result;
+            }
+        }
+    }
+
+    @Builtin(name = "popleft", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class PopLeftNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        Object popLeft(PDeque self,
+                        @Cached DequeNodes.GetDequeStorageNode getStorageNode) {
+            synchronized (self) {
+                DequeStorage storage = getStorageNode.execute(self);
+                if (storage.length() == 0) {
+                    throw raise(IndexError, ErrorMessages.POP_FROM_EMPTY_DEQUE);
+                }
+                Object result = storage.removeFirst();
+                self.incrementState();
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Returns the items of a deque as an array. Used when a deque is extended with itself, where
+     * iterating would observe the deque's own mutation.
+     */
+    static Object[] toArray(PDeque deque) {
+        synchronized (deque) {
+            DequeStorage storage = deque.getStorage();
+            Object[] items = new Object[storage.length()];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = storage.getItem(i);
+            }
+            return items;
+        }
+    }
+
+    /**
+     * Returns the item at {@code index}, or {@code null} if the deque got shorter in the meantime.
+     * Used by the searching methods, which compare the items outside of the monitor.
+     */
+    static Object getItemOrNull(PDeque deque, int index) {
+        synchronized (deque) {
+            return index < deque.getLength() ? deque.getStorage().getItem(index) : null;
+        }
+    }
+
+    @Builtin(name = "extend", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class ExtendNode extends PythonBinaryBuiltinNode {
+
+        public abstract PNone execute(VirtualFrame frame, PDeque self, Object iterable);
+
+        @Specialization(guards = "self == iterable")
+        static PNone extendSelf(PDeque self, @SuppressWarnings("unused") PDeque iterable,
+                        @Cached DequeNodes.AppendNode appendNode) {
+            for (Object item : toArray(self)) {
+                appendNode.execute(self, item);
+            }
+            return PNone.NONE;
+        }
+
+        @Specialization(guards = "self != iterable")
+        static PNone extend(VirtualFrame frame, PDeque self, Object iterable,
+                        @Cached GetIteratorNode getIteratorNode,
+                        @Cached GetNextNode getNextNode,
+                        @Cached IsBuiltinClassProfile errorProfile,
+                        @Cached DequeNodes.AppendNode appendNode) {
+            Object iterator = getIteratorNode.executeWith(frame, iterable);
+            while (true) {
+                Object item;
+                try {
+                    item = getNextNode.execute(frame, iterator);
+                } catch (PException e) {
+                    e.expectStopIteration(errorProfile);
+                    return PNone.NONE;
+                }
+                appendNode.execute(self, item);
+            }
+        }
+
+        public static ExtendNode create() {
+            return DequeBuiltinsFactory.ExtendNodeFactory.create();
+        }
+    }
+
+    @Builtin(name = "extendleft", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class ExtendLeftNode extends PythonBinaryBuiltinNode {
+
+        @Specialization(guards = "self == iterable")
+        static PNone extendSelf(PDeque self, @SuppressWarnings("unused") PDeque iterable,
+                        @Cached DequeNodes.AppendLeftNode appendLeftNode) {
+            for (Object item : toArray(self)) {
+                appendLeftNode.execute(self, item);
+            }
+            return PNone.NONE;
+        }
+
+        @Specialization(guards = "self != iterable")
+        static PNone extendLeft(VirtualFrame frame, PDeque self, Object iterable,
+                        @Cached GetIteratorNode getIteratorNode,
+                        @Cached GetNextNode getNextNode,
+                        @Cached IsBuiltinClassProfile errorProfile,
+                        @Cached DequeNodes.AppendLeftNode appendLeftNode) {
+            Object iterator = getIteratorNode.executeWith(frame, iterable);
+            while (true) {
+                Object item;
+                try {
+                    item = getNextNode.execute(frame, iterator);
+                } catch (PException e) {
+                    e.expectStopIteration(errorProfile);
+                    return PNone.NONE;
+                }
+                appendLeftNode.execute(self, item);
+            }
+        }
+    }
+
+    @Builtin(name = "clear", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class ClearNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static PNone clear(PDeque self) {
+            self.clear();
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "copy", minNumOfPositionalArgs = 1)
+    @Builtin(name = "__copy__", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class CopyNode extends PythonUnaryBuiltinNode {
+        @Specialization(limit = "3")
+        Object copy(VirtualFrame frame, PDeque self,
+                        @CachedLibrary("self") PythonObjectLibrary lib,
+                        @Cached("createBinaryProfile()") ConditionProfile exactProfile,
+                        @Cached CallNode callNode) {
+            Object cls = lib.getLazyPythonClass(self);
+            if (exactProfile.profile(cls == PythonBuiltinClassType.PDeque)) {
+                PDeque copy = factory().createDeque();
+                synchronized (self) {
+                    copy.setStorage(self.getStorage().copy());
+                }
+                copy.setMaxLength(self.getMaxLength());
+                return copy;
+            }
+            if (self.getMaxLength() == PDeque.UNBOUNDED) {
+                return callNode.execute(frame, cls, self);
+            }
+            return callNode.execute(frame, cls, self, self.getMaxLength());
+        }
+    }
+
+    @Builtin(name = "count", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class CountNode extends PythonBinaryBuiltinNode {
+        @Specialization
+        int count(VirtualFrame frame, PDeque self, Object value,
+                        @Cached("createBinaryProfile()") ConditionProfile hasFrame,
+                        @CachedLibrary(limit = "getCallSiteInlineCacheMaxDepth()") PythonObjectLibrary lib) {
+            ThreadState threadState = PArguments.getThreadStateOrNull(frame, hasFrame);
+            int state = self.getState();
+            int count = 0;
+            for (int i = 0;; i++) {
+                Object item = getItemOrNull(self, i);
+                if (item == null) {
+                    break;
+                }
+                if (lib.equalsWithState(item, value, lib, threadState)) {
+                    count++;
+                }
+                if (self.getState() != state) {
+                    throw raise(RuntimeError, ErrorMessages.DEQUE_MUTATED_DURING_ITERATION);
+                }
+            }
+            return count;
+        }
+    }
+
+    @Builtin(name = "index", minNumOfPositionalArgs = 2, parameterNames = {"self", "value", "start", "stop"})
+    @GenerateNodeFactory
+    abstract static class IndexNode extends PythonQuaternaryBuiltinNode {
+        protected static final int MAX_VALUE = Integer.MAX_VALUE;
+
+        @Specialization
+        int index(VirtualFrame frame, PDeque self, Object value, Object startObj, Object stopObj,
+                        @Cached("create(0, MAX_VALUE)") CastToSliceComponentNode castStartNode,
+                        @Cached("create(MAX_VALUE, MAX_VALUE)") CastToSliceComponentNode castStopNode,
+                        @Cached("createBinaryProfile()") ConditionProfile hasFrame,
+                        @CachedLibrary(limit = "getCallSiteInlineCacheMaxDepth()") PythonObjectLibrary lib,
+                        @Cached("create(__REPR__)") LookupAndCallUnaryNode reprNode) {
+            int length = LenNode.len(self);
+            int start = castStartNode.execute(frame, startObj);
+            int stop = castStopNode.execute(frame, stopObj);
+            if (start < 0) {
+                start = Math.max(start + length, 0);
+            }
+            if (stop < 0) {
+                stop = Math.max(stop + length, 0);
+            }
+            ThreadState threadState = PArguments.getThreadStateOrNull(frame, hasFrame);
+            int state = self.getState();
+            for (int i = start; i < stop; i++) {
+                Object item = getItemOrNull(self, i);
+                if (item == null) {
+                    break;
+                }
+                boolean found = lib.equalsWithState(item, value, lib, threadState);
+                if (self.getState() != state) {
+                    throw raise(RuntimeError, ErrorMessages.DEQUE_MUTATED_DURING_ITERATION);
+                }
+                if (found) {
+                    return i;
+                }
+            }
+            throw raise(ValueError, ErrorMessages.S_IS_NOT_IN_DEQUE, reprNode.executeObject(frame, value));
+        }
+    }
+
+    @Builtin(name = "insert", minNumOfPositionalArgs = 3, parameterNames = {"self", "index", "value"})
+    @GenerateNodeFactory
+    abstract static class InsertNode extends PythonTernaryBuiltinNode {
+        @Specialization(limit = "getCallSiteInlineCacheMaxDepth()")
+        PNone insert(VirtualFrame frame, PDeque self, Object indexObj, Object value,
+                        @CachedLibrary("indexObj") PythonObjectLibrary lib,
+                        @Cached("createBinaryProfile()") ConditionProfile hasFrame,
+                        @Cached DequeNodes.EnsureCanStoreNode ensureCanStoreNode) {
+            int index = lib.asSizeWithState(indexObj, PArguments.getThreadStateOrNull(frame, hasFrame));
+            synchronized (self) {
+                int length = self.getLength();
+                if (length == self.getMaxLength()) {
+                    throw raise(IndexError, ErrorMessages.DEQUE_ALREADY_AT_MAX_SIZE);
+                }
+                if (index < 0) {
+                    index = Math.max(index + length, 0);
+                } else if (index > length) {
+                    index = length;
+                }
+                ensureCanStoreNode.execute(self, value).insert(index, value);
+                self.incrementState();
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "remove", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class RemoveNode extends PythonBinaryBuiltinNode {
+        @Specialization
+        PNone remove(VirtualFrame frame, PDeque self, Object value,
+                        @Cached("createBinaryProfile()") ConditionProfile hasFrame,
+                        @CachedLibrary(limit = "getCallSiteInlineCacheMaxDepth()") PythonObjectLibrary lib) {
+            ThreadState threadState = PArguments.getThreadStateOrNull(frame, hasFrame);
+            int state = self.getState();
+            for (int i = 0;; i++) {
+                Object item = getItemOrNull(self, i);
+                if (item == null) {
+                    break;
+                }
+                boolean found = lib.equalsWithState(item, value, lib, threadState);
+                synchronized (self) {
+                    if (self.getState() != state) {
+                        throw raise(IndexError, ErrorMessages.DEQUE_MUTATED_DURING_REMOVE);
+                    }
+                    if (found) {
+                        self.getStorage().delete(i);
+                        self.incrementState();
+                        return PNone.NONE;
+                    }
+                }
+            }
+            throw raise(ValueError, ErrorMessages.DEQUE_REMOVE_X_NOT_IN_DEQUE);
+        }
+    }
+
+    @Builtin(name = "reverse", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class ReverseNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static PNone reverse(PDeque self,
+                        @Cached DequeNodes.GetDequeStorageNode getStorageNode) {
+            synchronized (self) {
+                getStorageNode.execute(self).reverse();
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "rotate", minNumOfPositionalArgs = 1, parameterNames = {"self", "n"})
+    @GenerateNodeFactory
+    abstract static class RotateNode extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        static PNone rotateOne(PDeque self, @SuppressWarnings("unused") PNone n,
+                        @Cached DequeNodes.GetDequeStorageNode getStorageNode) {
+            return rotate(self, 1, getStorageNode);
+        }
+
+        @Specialization
+        static PNone rotate(PDeque self, int n,
+                        @Cached DequeNodes.GetDequeStorageNode getStorageNode) {
+            synchronized (self) {
+                DequeStorage storage = getStorageNode.execute(self);
+                int length = storage.length();
+                if (length <= 1) {
+                    return PNone.NONE;
+                }
+                // rotate by the shortest distance
+                int steps = n;
+                int half = length >> 1;
+                if (steps > half || steps < -half) {
+                    steps %= length;
+                    if (steps > half) {
+                        steps -= length;
+                    } else if (steps < -half) {
+                        steps += length;
+                    }
+                }
+                if (steps > 0) {
+                    for (int i = 0; i < steps; i++) {
+                        storage.rotateRight();
+                    }
+                } else {
+                    for (int i = 0; i < -steps; i++) {
+                        storage.rotateLeft();
+                    }
+                }
+                self.incrementState();
+            }
+            return PNone.NONE;
+        }
+
+        @Specialization(guards = "!isPNone(n)", replaces = "rotate", limit = "getCallSiteInlineCacheMaxDepth()")
+        static PNone rotateGeneric(VirtualFrame frame, PDeque self, Object n,
+                        @CachedLibrary("n") PythonObjectLibrary lib,
+                        @Cached("createBinaryProfile()") ConditionProfile hasFrame,
+                        @Cached DequeNodes.GetDequeStorageNode getStorageNode) {
+            return rotate(self, lib.asSizeWithState(n, PArguments.getThreadStateOrNull(frame, hasFrame)), getStorageNode);
+        }
+    }
+
+    @Builtin(name = __LEN__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class LenNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static int len(PDeque self) {
+            synchronized (self) {
+                return self.getLength();
+            }
+        }
+    }
+
+    @Builtin(name = __ITER__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class IterNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        PDequeIterator iter(PDeque self) {
+            synchronized (self) {
+                return factory().createDequeIter(self);
+            }
+        }
+    }
+
+    @Builtin(name = __REVERSED__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class ReversedNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        PDequeIterator reversed(PDeque self) {
+            synchronized (self) {
+                return factory().createDequeRevIter(self);
+            }
+        }
+    }
+
+    @Builtin(name = __CONTAINS__, minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class ContainsNode extends PythonBinaryBuiltinNode {
+        @Specialization
+        boolean contains(VirtualFrame frame, PDeque self, Object value,
+                        @Cached("createBinaryProfile()") ConditionProfile hasFrame,
+                        @CachedLibrary(limit = "getCallSiteInlineCacheMaxDepth()") PythonObjectLibrary lib) {
+            ThreadState threadState = PArguments.getThreadStateOrNull(frame, hasFrame);
+            int state = self.getState();
+            for (int i = 0;; i++) {
+                Object item = getItemOrNull(self, i);
+                if (item == null) {
+                    break;
+                }
+                boolean found = lib.equalsWithState(item, value, lib, threadState);
+                if (self.getState() != state) {
+                    throw raise(RuntimeError, ErrorMessages.DEQUE_MUTATED_DURING_ITERATION);
+                }
+                if (found) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    @Builtin(name = __GETITEM__, minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class GetItemNode extends PythonBinaryBuiltinNode {
+        @Specialization
+        static Object getItem(VirtualFrame frame, PDeque self, Object index,
+                        @Cached DequeNodes.NormalizeIndexNode normalizeIndexNode,
+                        @Cached DequeNodes.GetDequeStorageNode getStorageNode) {
+            synchronized (self) {
+                int normalized = normalizeIndexNode.execute(frame, self, index);
+                return getStorageNode.execute(self).getItem(normalized);
+            }
+        }
+    }
+
+    @Builtin(name = __SETITEM__, minNumOfPositionalArgs = 3)
+    @GenerateNodeFactory
+    abstract static class SetItemNode extends PythonTernaryBuiltinNode {
+        @Specialization
+        static PNone setItem(VirtualFrame frame, PDeque self, Object index, Object value,
+                        @Cached DequeNodes.NormalizeIndexNode normalizeIndexNode,
+                        @Cached DequeNodes.EnsureCanStoreNode ensureCanStoreNode) {
+            synchronized (self) {
+                int normalized = normalizeIndexNode.execute(frame, self, index);
+                ensureCanStoreNode.execute(self, value).setItem(normalized, value);
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = __DELITEM__, minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class DelItemNode extends PythonBinaryBuiltinNode {
+        @Specialization
+        static PNone delItem(VirtualFrame frame, PDeque self, Object index,
+                        @Cached DequeNodes.NormalizeIndexNode normalizeIndexNode,
+                        @Cached DequeNodes.GetDequeStorageNode getStorageNode) {
+            synchronized (self) {
+                int normalized = normalizeIndexNode.execute(frame, self, index);
+                getStorageNode.execute(self).delete(normalized);
+                self.incrementState();
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "maxlen", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class MaxLenNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static Object maxLen(PDeque self) {
+            int maxLength = self.getMaxLength();
+            return maxLength == PDeque.UNBOUNDED ? PNone.NONE : maxLength;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.deque;
+
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.IndexError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+
+import com.oracle.graal.python.builtins.objects.function.PArguments;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PRaiseNode;
+import com.oracle.graal.python.runtime.PythonOptions;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Cached.Shared;
+import com.oracle.truffle.api.dsl.GenerateUncached;
+import com.oracle.truffle.api.dsl.ImportStatic;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.library.CachedLibrary;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+
+public abstract class DequeNodes {
+
+    /**
+     * Returns the storage of a deque, cast to its exact class so that the ring buffer operations
+     * are devirtualized.
+     */
+    @GenerateUncached
+    public abstract static class GetDequeStorageNode extends Node {
+
+        public abstract DequeStorage execute(PDeque deque);
+
+        @Specialization(guards = "deque.getStorage().getClass() == cachedClass", limit = "5")
+        static DequeStorage doCached(PDeque deque,
+                        @Cached("deque.getStorage().getClass()") Class<? extends DequeStorage> cachedClass) {
+            return CompilerDirectives.castExact(deque.getStorage(), cachedClass);
+        }
+
+        @Specialization(replaces = "doCached")
+        static DequeStorage doGeneric(PDeque deque) {
+            return deque.getStorage();
+        }
+
+        public static GetDequeStorageNode create() {
+            return DequeNodesFactory.GetDequeStorageNodeGen.create();
+        }
+    }
+
+    /**
+     * Returns a storage of {@code deque} that can hold {@code value}, generalizing the current one
+     * if necessary. The caller must hold the monitor of the deque.
+     */
+    @GenerateUncached
+    public abstract static class EnsureCanStoreNode extends Node {
+
+        public abstract DequeStorage execute(PDeque deque, Object value);
+
+        @Specialization
+        static DequeStorage doit(PDeque deque, Object value,
+                        @Cached GetDequeStorageNode getStorageNode,
+                        @Cached("createBinaryProfile()") ConditionProfile generalizeProfile) {
+            DequeStorage storage = getStorageNode.execute(deque);
+            if (generalizeProfile.profile(!storage.canStore(value))) {
+                return generalize(deque, storage, value);
+            }
+            return storage;
+        }
+
+        @TruffleBoundary
+        private static DequeStorage generalize(PDeque deque, DequeStorage storage, Object value) {
+            synchronized (deque) {
+                DequeStorage newStorage = storage.generalizeFor(value);
+                deque.setStorage(newStorage);
+                return newStorage;
+            }
+        }
+
+        public static EnsureCanStoreNode create() {
+            return DequeNodesFactory.EnsureCanStoreNodeGen.create();
+        }
+    }
+
+    /**
+     * Adds an item to the right end of a deque. If the deque is bounded and full, the leftmost item
+     * is discarded.
+     */
+    @GenerateUncached
+    public abstract static class AppendNode extends Node {
+
+        public abstract void execute(PDeque deque, Object value);
+
+        @Specialization
+        static void doit(PDeque deque, Object value,
+                        @Cached EnsureCanStoreNode ensureCanStoreNode,
+                        @Cached("createBinaryProfile()") ConditionProfile fullProfile) {
+            synchronized (deque) {
+                int maxLength = deque.getMaxLength();
+                if (fullProfile.profile(deque.getLength() == maxLength)) {
+                    if (maxLength == 0) {
+                        return;
+                    }
+                    deque.getStorage().removeFirst();
+                }
+                ensureCanStoreNode.execute(deque, value).addLast(value);
+                deque.incrementState();
+            }
+        }
+
+        public static AppendNode create() {
+            return DequeNodesFactory.AppendNodeGen.create();
+        }
+    }
+
+    /**
+     * Adds an item to the left end of a deque. If the deque is bounded and full, the rightmost item
+     * is discarded.
+     */
+    @GenerateUncached
+    public abstract static class AppendLeftNode extends Node {
+
+        public abstract void execute(PDeque deque, Object value);
+
+        @Specialization
+        static void doit(PDeque deque, Object value,
+                        @Cached EnsureCanStoreNode ensureCanStoreNode,
+                        @Cached("createBinaryProfile()") ConditionProfile fullProfile) {
+            synchronized (deque) {
+                int maxLength = deque.getMaxLength();
+                if (fullProfile.profile(deque.getLength() == maxLength)) {
+                    if (maxLength == 0) {
+                        return;
+                    }
+                    deque.getStorage().removeLast();
+                }
+                ensureCanStoreNode.execute(deque, value).addFirst(value);
+                deque.incrementState();
+            }
+        }
+
+        public static AppendLeftNode create() {
+            return DequeNodesFactory.AppendLeftNodeGen.create();
+        }
+    }
+
+    /**
+     * Converts a subscript of a deque to a logical index, raising the same errors as CPython. The
+     * caller must hold the monitor of the deque.
+     */
+    @ImportStatic(PythonOptions.class)
+    public abstract static class NormalizeIndexNode extends Node {
+
+        public abstract int execute(VirtualFrame frame, PDeque deque, Object index);
+
+        @Specialization
+        static int doInt(PDeque deque, int index,
+                        @Shared("raise") @Cached PRaiseNode raiseNode) {
+            int length = deque.getLength();
+            int normalized = index < 0 ? index + length : index;
+            if (normalized < 0 || normalized >= length) {
+                throw raiseNode.raise(IndexError, ErrorMessages.DEQUE_INDEX_OUT_OF_RANGE);
+            }
+            return normalized;
+        }
+
+        @Specialization(replaces = "doInt", limit = "getCallSiteInlineCacheMaxDepth()")
+        static int doGeneric(VirtualFrame frame, PDeque deque, Object index,
+                        @CachedLibrary("index") PythonObjectLibrary lib,
+                        @Cached("createBinaryProfile()") ConditionProfile hasFrame,
+                        @Shared("raise") @Cached PRaiseNode raiseNode) {
+            if (!lib.canBeIndex(index)) {
+                throw raiseNode.raise(TypeError, ErrorMessages.SEQUENCE_INDEX_MUST_BE_INT_NOT_P, index);
+            }
+            return doInt(deque, lib.asSizeWithState(index, IndexError, PArguments.getThreadStateOrNull(frame, hasFrame)), raiseNode);
+        }
+
+        public static NormalizeIndexNode create() {
+            return DequeNodesFactory.NormalizeIndexNodeGen.create();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.deque;
+
+import com.oracle.graal.python.util.PythonUtils;
+
+/**
+ * The items of a {@code collections.deque}, stored in a growable ring buffer. The capacity is always
+ * a power of two, so logical indices map to array slots with a mask. Like
+ * {@link com.oracle.graal.python.runtime.sequence.storage.SequenceStorage}, there are variants for
+ * {@code int}, {@code long} and {@code double} items that avoid boxing; a storage is generalized when
+ * an item is added that it cannot hold.
+ * <p>
+ * All structural operations are implemented here in terms of a few abstract slot operations. Nodes
+ * profile the exact class of the storage, so in compiled code these calls are devirtualized and
+ * operate on the primitive array directly.
+ * </p>
+ */
+public abstract class DequeStorage {
+    static final int INITIAL_CAPACITY = 8;
+    /** Storages with a larger capacity are shrunk when they become less than a quarter full. */
+    private static final int MIN_SHRINK_CAPACITY = 64;
+
+    /** The slot of the leftmost item. */
+    protected int head;
+    protected int length;
+
+    public final int length() {
+        return length;
+    }
+
+    protected abstract int capacity();
+
+    protected final int slot(int index) {
+        return (head + index) & (capacity() - 1);
+    }
+
+    /** Returns {@code true} if this storage can hold {@code value} without generalization. */
+    public abstract boolean canStore(Object value);
+
+    /** Returns a new storage with the same items that can also hold {@code value}. */
+    public abstract DequeStorage generalizeFor(Object value);
+
+    public abstract DequeStorage copy();
+
+    /** Returns the item at the logical index {@code index}. */
+    public abstract Object getItem(int index);
+
+    /** Sets the item at the logical index {@code index}; the value must satisfy {@link #canStore}. */
+    public abstract void setItem(int index, Object value);
+
+    /** Replaces the buffer with one of the given capacity, moving the leftmost item to slot 0. */
+    protected abstract void resize(int newCapacity);
+
+    protected abstract void moveSlot(int from, int to);
+
+    protected abstract void swapSlots(int a, int b);
+
+    /** Drops the reference held by a slot that is no longer in use. */
+    protected abstract void clearSlot(int slot);
+
+    private void ensureCapacity(int newLength) {
+        if (newLength > capacity()) {
+            if (newLength > 1 << 30) {
+                throw new OutOfMemoryError();
+            }
+            resize(Math.max(INITIAL_CAPACITY, Integer.highestOneBit(newLength - 1) << 1));
+        }
+    }
+
+    private void shrinkIfSparse() {
+        int capacity = capacity();
+        if (capacity > MIN_SHRINK_CAPACITY && length < capacity >> 2) {
+            resize(capacity >> 1);
+        }
+    }
+
+    public final void addLast(Object value) {
+        ensureCapacity(length + 1);
+        length++;
+        setItem(length - 1, value);
+    }
+
+    public final void addFirst(Object value) {
+        ensureCapacity(length + 1);
+        head = (head - 1) & (capacity() - 1);
+        length++;
+        setItem(0, value);
+    }
+
+    public final Object removeFirst() {
+        Object result = getItem(0);
+        clearSlot(head);
+        head = (head + 1) & (capacity() - 1);
+        length--;
+        shrinkIfSparse();
+        return result;
+    }
+
+    public final Object removeLast() {
+        Object result = getItem(length - 1);
+        clearSlot(slot(length - 1));
+        length--;
+        shrinkIfSparse();
+        return result;
+    }
+
+    /** Moves the rightmost item to the left end. */
+    public final void rotateRight() {
+        int from = slot(length - 1);
+        head = (head - 1) & (capacity() - 1);
+        if (from != head) {
+            moveSlot(from, head);
+            clearSlot(from);
+        }
+    }
+
+    /** Moves the leftmost item to the right end. */
+    public final void rotateLeft() {
+        int from = head;
+        head = (head + 1) & (capacity() - 1);
+        int to = slot(length - 1);
+        if (from != to) {
+            moveSlot(from, to);
+            clearSlot(from);
+        }
+    }
+
+    /** Removes the item at {@code index}, shifting the shorter side of the deque. */
+    public final void delete(int index) {
+        if (index < length >> 1) {
+            for (int i = index; i > 0; i--) {
+                moveSlot(slot(i - 1), slot(i));
+            }
+            clearSlot(head);
+            head = (head + 1) & (capacity() - 1);
+        } else {
+            for (int i = index; i < length - 1; i++) {
+                moveSlot(slot(i + 1), slot(i));
+            }
+            clearSlot(slot(length - 1));
+        }
+        length--;
+        shrinkIfSparse();
+    }
+
+    /**
+     * Inserts {@code value} before {@code index}, shifting the shorter side of the deque. The value
+     * must satisfy {@link #canStore}.
+     */
+    public final void insert(int index, Object value) {
+        ensureCapacity(length + 1);
+        if (index < length >> 1) {
+            head = (head - 1) & (capacity() - 1);
+            length++;
+            for (int i = 0; i < index; i++) {
+                moveSlot(slot(i + 1), slot(i));
+            }
+        } else {
+            length++;
+            for (int i = length - 1; i > index; i--) {
+                moveSlot(slot(i - 1), slot(i));
+            }
+        }
+        setItem(index, value);
+    }
+
+    public final void reverse() {
+        for (int i = 0, j = length - 1; i < j; i++, j--) {
+            swapSlots(slot(i), slot(j));
+        }
+    }
+
+    /** Copies the items of a ring buffer to the start of {@code dst}. */
+    protected final void copyItemsTo(Object src, Object dst) {
+        int firstPart = Math.min(length, capacity() - head);
+        PythonUtils.arraycopy(src, head, dst, 0, firstPart);
+        PythonUtils.arraycopy(src, 0, dst, firstPart, length - firstPart);
+    }
+
+    protected final ObjectDequeStorage toObjectStorage() {
+        Object[] values = new Object[Math.max(INITIAL_CAPACITY, capacity())];
+        for (int i = 0; i < length; i++) {
+            values[i] = getItem(i);
+        }
+        return new ObjectDequeStorage(values, length);
+    }
+}
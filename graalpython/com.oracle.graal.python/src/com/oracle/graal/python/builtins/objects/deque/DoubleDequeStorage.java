@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.deque;
+
+public final class DoubleDequeStorage extends DequeStorage {
+    private double[] values;
+
+    public DoubleDequeStorage() {
+        this(new double[INITIAL_CAPACITY], 0);
+    }
+
+    DoubleDequeStorage(double[] values, int length) {
+        this.values = values;
+        this.length = length;
+    }
+
+    @Override
+    protected int capacity() {
+        return values.length;
+    }
+
+    @Override
+    public boolean canStore(Object value) {
+        return value instanceof Double;
+    }
+
+    @Override
+    public DequeStorage generalizeFor(Object value) {
+        return toObjectStorage();
+    }
+
+    @Override
+    public DequeStorage copy() {
+        double[] copy = new double[values.length];
+        copyItemsTo(values, copy);
+        return new DoubleDequeStorage(copy, length);
+    }
+
+    @Override
+    public Object getItem(int index) {
+        return values[slot(index)];
+    }
+
+    public double getDoubleItem(int index) {
+        return values[slot(index)];
+    }
+
+    @Override
+    public void setItem(int index, Object value) {
+        values[slot(index)] = (double) value;
+    }
+
+    @Override
+    protected void resize(int newCapacity) {
+        double[] newValues = new double[newCapacity];
+        copyItemsTo(values, newValues);
+        values = newValues;
+        head = 0;
+    }
+
+    @Override
+    protected void moveSlot(int from, int to) {
+        values[to] = values[from];
+    }
+
+    @Override
+    protected void swapSlots(int a, int b) {
+        double tmp = values[a];
+        values[a] = values[b];
+        values[b] = tmp;
+    }
+
+    @Override
+    protected void clearSlot(int slot) {
+        // nothing to release
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.deque;
+
+/**
+ * The storage of a deque that never held any items. The first item determines which storage the
+ * deque is generalized to.
+ */
+public final class EmptyDequeStorage extends DequeStorage {
+    public static final EmptyDequeStorage INSTANCE = new EmptyDequeStorage();
+
+    private EmptyDequeStorage() {
+    }
+
+    @Override
+    protected int capacity() {
+        return 0;
+    }
+
+    @Override
+    public boolean canStore(Object value) {
+        return false;
+    }
+
+    @Override
+    public DequeStorage generalizeFor(Object value) {
+        if (value instanceof Integer) {
+            return new IntDequeStorage();
+        } else if (value instanceof Long) {
+            return new LongDequeStorage();
+        } else if (value instanceof Double) {
+            return new DoubleDequeStorage();
+        }
+        return new ObjectDequeStorage();
+    }
+
+    @Override
+    public DequeStorage copy() {
+        return this;
+    }
+
+    @Override
+    public Object getItem(int index) {
+        throw new IndexOutOfBoundsException();
+    }
+
+    @Override
+    public void setItem(int index, Object value) {
+        throw new IndexOutOfBoundsException();
+    }
+
+    @Override
+    protected void resize(int newCapacity) {
+        throw new IllegalStateException("empty storage cannot be resized");
+    }
+
+    @Override
+    protected void moveSlot(int from, int to) {
+        throw new IndexOutOfBoundsException();
+    }
+
+    @Override
+    protected void swapSlots(int a, int b) {
+        throw new IndexOutOfBoundsException();
+    }
+
+    @Override
+    protected void clearSlot(int slot) {
+        throw new IndexOutOfBoundsException();
+    }
+}
@@ -98,6 +98,7 @@ import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
 import com.oracle.graal.python.nodes.object.GetClassNode;
 import com.oracle.graal.python.nodes.truffle.PythonArithmeticTypes;
 import com.oracle.graal.python.runtime.PythonContext;
+import com.oracle.graal.python.runtime.PythonCore;
 import com.oracle.graal.python.runtime.exception.PythonErrorType;
 import com.oracle.graal.python.runtime.formatting.FloatFormatter;
 import com.oracle.graal.python.runtime.formatting.InternalFormat;
@@ -131,16 +132,25 @@ public final class FloatBuiltins extends PythonBuiltins {
         return right ? 1.0 : 0.0;
     }
 
+    /**
+     * Formats the value like {@code float.__repr__}, i.e., with the shortest representation that
+     * round-trips.
+     */
+    @TruffleBoundary
+    public static String formatRepr(PythonCore core, double d) {
+        Spec spec = new Spec(' ', '>', Spec.NONE, false, Spec.UNSPECIFIED, Spec.NONE, 0, 'r');
+        FloatFormatter f = new FloatFormatter(core, spec);
+        f.setMinFracDigits(1);
+        return f.format(d).getResult();
+    }
+
     @Builtin(name = __STR__, minNumOfPositionalArgs = 1)
     @GenerateNodeFactory
     @TypeSystemReference(PythonArithmeticTypes.class)
     abstract static class StrNode extends PythonUnaryBuiltinNode {
         @Specialization
         String str(double self) {
-            Spec spec = new Spec(' ', '>', Spec.NONE, false, Spec.UNSPECIFIED, Spec.NONE, 0, 'r');
-            FloatFormatter f = new FloatFormatter(getCore(), spec);
-            f.setMinFracDigits(1);
-            return doFormat(self, f);
+            return formatRepr(getCore(), self);
         }
 
         public static StrNode create() {
@@ -155,11 +165,6 @@ public final class FloatBuiltins extends PythonBuiltins {
                         @SuppressWarnings("unused") @Cached FromNativeSubclassNode getFloat) {
             return PFloat.doubleToString(getFloat.execute(frame, object));
         }
-
-        @TruffleBoundary
-        private static String doFormat(double d, FloatFormatter f) {
-            return f.format(d).getResult();
-        }
     }
 
     @Builtin(name = __REPR__, minNumOfPositionalArgs = 1)
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.functools;
+
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+
+/**
+ * The key of an {@code lru_cache} entry, i.e., the equivalent of the tuple built by
+ * {@code functools._make_key}. The items are the positional arguments, followed by alternating
+ * keyword names and values and, for typed caches, by the types of all argument values. The Python
+ * hash of the items is computed once when the key is built, so that the cache can find candidate
+ * entries without calling back into Python. Only {@link #matches}, which compares the items of keys
+ * with the same hash, calls {@code __eq__} of the items.
+ */
+public final class LruCacheKey {
+    private final Object[] items;
+    private final int numPositional;
+    private final long hash;
+
+    public LruCacheKey(Object[] items, int numPositional, long hash) {
+        this.items = items;
+        this.numPositional = numPositional;
+        this.hash = hash;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Returns {@code true} if both keys have equal items. May run arbitrary Python code, so it must
+     * not be called while holding the monitor of the cache.
+     */
+    public boolean matches(LruCacheKey other) {
+        if (this == other) {
+            return true;
+        }
+        if (hash != other.hash || numPositional != other.numPositional || items.length != other.items.length) {
+            return false;
+        }
+        PythonObjectLibrary lib = PythonObjectLibrary.getUncached();
+        for (int i = 0; i < items.length; i++) {
+            Object a = items[i];
+            Object b = other.items[i];
+            if (a != b && !lib.equals(a, b, lib)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.functools;
+
+import static com.oracle.graal.python.builtins.PythonBuiltinClassType.TypeError;
+import static com.oracle.graal.python.nodes.SpecialAttributeNames.__DICT__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__CALL__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__GET__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__REDUCE__;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.common.PHashingCollection;
+import com.oracle.graal.python.builtins.objects.function.PArguments;
+import com.oracle.graal.python.builtins.objects.function.PArguments.ThreadState;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.functools.LruCacheWrapperBuiltinsFactory.MakeKeyNodeGen;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.PNodeWithContext;
+import com.oracle.graal.python.nodes.SpecialAttributeNames;
+import com.oracle.graal.python.nodes.attributes.GetAttributeNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonVarargsBuiltinNode;
+import com.oracle.graal.python.runtime.PythonOptions;
+import com.oracle.graal.python.runtime.object.PythonObjectFactory;
+import com.oracle.graal.python.util.PythonUtils;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.ImportStatic;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.interop.UnsupportedMessageException;
+import com.oracle.truffle.api.library.CachedLibrary;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PLruCacheWrapper)
+public class LruCacheWrapperBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return LruCacheWrapperBuiltinsFactory.getFactories();
+    }
+
+    /**
+     * Builds the cache key of a call like {@code functools._make_key}, hashing the items the same
+     * way as {@code tuple.__hash__}.
+     */
+    @ImportStatic(PythonOptions.class)
+    abstract static class MakeKeyNode extends PNodeWithContext {
+
+        abstract LruCacheKey execute(VirtualFrame frame, boolean typed, Object[] args, PKeyword[] keywords);
+
+        @Specialization
+        static LruCacheKey makeKey(VirtualFrame frame, boolean typed, Object[] args, PKeyword[] keywords,
+                        @Cached("createBinaryProfile()") ConditionProfile hasFrame,
+                        @CachedLibrary(limit = "getCallSiteInlineCacheMaxDepth()") PythonObjectLibrary lib) {
+            int numValues = args.length + keywords.length;
+            Object[] items = new Object[args.length + 2 * keywords.length + (typed ? numValues : 0)];
+            PythonUtils.arraycopy(args, 0, items, 0, args.length);
+            int i = args.length;
+            for (PKeyword keyword : keywords) {
+                items[i++] = keyword.getName();
+                items[i++] = keyword.getValue();
+            }
+            if (typed) {
+                for (Object arg : args) {
+                    items[i++] = lib.getLazyPythonClass(arg);
+                }
+                for (PKeyword keyword : keywords) {
+                    items[i++] = lib.getLazyPythonClass(keyword.getValue());
+                }
+            }
+            ThreadState threadState = PArguments.getThreadStateOrNull(frame, hasFrame);
+            long multiplier = 0xf4243;
+            long hash = 0x345678;
+            for (Object item : items) {
+                long tmp = lib.hashWithState(item, threadState);
+                hash = (hash ^ tmp) * multiplier;
+                multiplier += 82520 + items.length + items.length;
+            }
+            hash += 97531;
+            return new LruCacheKey(items, args.length, hash);
+        }
+
+        static MakeKeyNode create() {
+            return MakeKeyNodeGen.create();
+        }
+    }
+
+    @Builtin(name = __CALL__, minNumOfPositionalArgs = 1, takesVarArgs = true, takesVarKeywordArgs = true)
+    @GenerateNodeFactory
+    public abstract static class CallNode extends PythonVarargsBuiltinNode {
+        @Child private com.oracle.graal.python.nodes.call.CallNode callNode = com.oracle.graal.python.nodes.call.CallNode.create();
+
+        @Specialization(guards = "self.getMaxSize() == 0")
+        protected Object callUncached(VirtualFrame frame, PLruCacheWrapper self, Object[] arguments, PKeyword[] keywords) {
+            self.incrementMisses();
+            return callNode.execute(frame, self.getFunction(), arguments, keywords);
+        }
+
+        @Specialization(guards = "self.getMaxSize() != 0")
+        protected Object callCached(VirtualFrame frame, PLruCacheWrapper self, Object[] arguments, PKeyword[] keywords,
+                        @Cached MakeKeyNode makeKeyNode,
+                        @Cached("createBinaryProfile()") ConditionProfile hitProfile) {
+            LruCacheKey key = makeKeyNode.execute(frame, self.isTyped(), arguments, keywords);
+            Object result = self.lookup(key);
+            if (hitProfile.profile(result != null)) {
+                return result;
+            }
+            result = callNode.execute(frame, self.getFunction(), arguments, keywords);
+            self.store(key, result);
+            return result;
+        }
+
+        @Override
+        public Object varArgExecute(VirtualFrame frame, @SuppressWarnings("unused") Object self, Object[] arguments, PKeyword[] keywords) throws VarargsBuiltinDirectInvocationNotSupported {
+            Object[] argsWithoutSelf = new Object[arguments.length - 1];
+            PythonUtils.arraycopy(arguments, 1, argsWithoutSelf, 0, argsWithoutSelf.length);
+            return execute(frame, arguments[0], argsWithoutSelf, keywords);
+        }
+    }
+
+    @Builtin(name = "cache_info", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class CacheInfoNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static Object cacheInfo(VirtualFrame frame, PLruCacheWrapper self,
+                        @Cached com.oracle.graal.python.nodes.call.CallNode callNode) {
+            Object maxSize = self.getMaxSize() == PLruCacheWrapper.UNBOUNDED ? PNone.NONE : self.getMaxSize();
+            Object[] info = new Object[]{self.getHits(), self.getMisses(), maxSize, self.size()};
+            return callNode.execute(frame, self.getCacheInfoType(), info, PKeyword.EMPTY_KEYWORDS);
+        }
+    }
+
+    @Builtin(name = "cache_clear", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class CacheClearNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static Object cacheClear(PLruCacheWrapper self) {
+            self.clear();
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = __GET__, minNumOfPositionalArgs = 2, maxNumOfPositionalArgs = 3)
+    @GenerateNodeFactory
+    @ImportStatic(PGuards.class)
+    abstract static class GetNode extends PythonTernaryBuiltinNode {
+        @Specialization(guards = "isNone(obj)")
+        static Object getClass(PLruCacheWrapper self, @SuppressWarnings("unused") Object obj, @SuppressWarnings("unused") Object type) {
+            return self;
+        }
+
+        @Specialization(guards = "!isNone(obj)")
+        Object getInstance(PLruCacheWrapper self, Object obj, @SuppressWarnings("unused") Object type) {
+            return factory().createMethod(obj, self);
+        }
+    }
+
+    @Builtin(name = __REDUCE__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class ReduceNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static Object reduce(VirtualFrame frame, PLruCacheWrapper self,
+                        @Cached("createGetAttributeNode()") GetAttributeNode getQualNameNode) {
+            // pickled by reference to the decorated function
+            return getQualNameNode.executeObject(frame, self);
+        }
+
+        static GetAttributeNode createGetAttributeNode() {
+            return GetAttributeNode.create(SpecialAttributeNames.__QUALNAME__, null);
+        }
+    }
+
+    @Builtin(name = "__copy__", minNumOfPositionalArgs = 1)
+    @Builtin(name = "__deepcopy__", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class CopyNode extends PythonBinaryBuiltinNode {
+        @Specialization
+        static Object copy(PLruCacheWrapper self, @SuppressWarnings("unused") Object memo) {
+            return self;
+        }
+    }
+
+    @Builtin(name = __DICT__, minNumOfPositionalArgs = 1, maxNumOfPositionalArgs = 2, isGetter = true, isSetter = true)
+    @GenerateNodeFactory
+    @ImportStatic(PGuards.class)
+    abstract static class DictNode extends PythonBinaryBuiltinNode {
+        @Specialization(limit = "1")
+        static Object getDict(PLruCacheWrapper self, @SuppressWarnings("unused") PNone mapping,
+                        @CachedLibrary("self") PythonObjectLibrary lib,
+                        @Cached PythonObjectFactory factory) {
+            PHashingCollection dict = lib.getDict(self);
+            if (dict == null) {
+                dict = factory.createDictFixedStorage(self);
+                try {
+                    lib.setDict(self, dict);
+                } catch (UnsupportedMessageException e) {
+                    CompilerDirectives.transferToInterpreterAndInvalidate();
+                    throw new IllegalStateException(e);
+                }
+            }
+            return dict;
+        }
+
+        @Specialization(limit = "1")
+        static Object setDict(PLruCacheWrapper self, PHashingCollection mapping,
+                        @CachedLibrary("self") PythonObjectLibrary lib) {
+            try {
+                lib.setDict(self, mapping);
+            } catch (UnsupportedMessageException e) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                throw new IllegalStateException(e);
+            }
+            return PNone.NONE;
+        }
+
+        @Specialization(guards = "!isDict(value)")
+        Object setDict(@SuppressWarnings("unused") PLruCacheWrapper self, Object value) {
+            throw raise(TypeError, ErrorMessages.MUST_BE_SET_TO_S_NOT_P, __DICT__, "dictionary", value);
+        }
+    }
+}
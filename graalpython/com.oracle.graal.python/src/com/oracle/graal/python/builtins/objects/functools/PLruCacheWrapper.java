@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.functools;
+
+import java.util.HashMap;
+
+import com.oracle.graal.python.builtins.objects.object.PythonBuiltinObject;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.object.DynamicObject;
+
+/**
+ * The wrapper object created by {@code functools.lru_cache}. Entries are stored in a Java hash map
+ * keyed on the precomputed hash of their {@link LruCacheKey}; entries with the same hash form a
+ * chain through {@link Entry#sameHash}. For a bounded cache, the entries additionally form an
+ * intrusive circular doubly-linked list in order of recency with {@link #root} as the sentinel, so
+ * that a hit only relinks one entry and an eviction removes the entry after the sentinel.
+ * <p>
+ * The map, the list and the statistics are guarded by the monitor of the wrapper. No Python code
+ * runs while holding it: neither the wrapped function nor the {@code __eq__} of the key items. A
+ * lookup takes a snapshot of the entries with the key's hash, compares the keys outside of the
+ * monitor and then checks that the matching entry is still {@link Entry#cached} before using it.
+ * Concurrent misses on the same key may therefore both call the function, and the first result
+ * stored wins.
+ * </p>
+ */
+public final class PLruCacheWrapper extends PythonBuiltinObject {
+    /** The value of {@link #getMaxSize()} if the cache is unbounded ({@code maxsize=None}). */
+    public static final int UNBOUNDED = -1;
+
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    static final class Entry {
+        final LruCacheKey key;
+        final Object result;
+        Entry prev;
+        Entry next;
+        /** The next entry with the same hash. */
+        Entry sameHash;
+        /** Whether the entry is (still) in the map. */
+        boolean cached;
+
+        Entry(LruCacheKey key, Object result) {
+            this.key = key;
+            this.result = result;
+            this.prev = this;
+            this.next = this;
+        }
+    }
+
+    private final Object function;
+    private final int maxSize;
+    private final boolean typed;
+    private final Object cacheInfoType;
+
+    private final HashMap<Long, Entry> cache = new HashMap<>();
+    private final Entry root = new Entry(null, null);
+    private int size;
+    private long hits;
+    private long misses;
+
+    public PLruCacheWrapper(Object cls, DynamicObject storage, Object function, int maxSize, boolean typed, Object cacheInfoType) {
+        super(cls, storage);
+        this.function = function;
+        this.maxSize = maxSize;
+        this.typed = typed;
+        this.cacheInfoType = cacheInfoType;
+    }
+
+    public Object getFunction() {
+        return function;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public boolean isTyped() {
+        return typed;
+    }
+
+    public Object getCacheInfoType() {
+        return cacheInfoType;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized void incrementMisses() {
+        misses++;
+    }
+
+    /**
+     * Returns the cached result for {@code key} and counts a hit or a miss. A hit moves the entry
+     * to the most recently used end of the list. Returns {@code null} on a miss.
+     */
+    @TruffleBoundary
+    public Object lookup(LruCacheKey key) {
+        Entry match = findMatch(getCandidates(key.getHash()), key);
+        synchronized (this) {
+            if (match == null || !match.cached) {
+                misses++;
+                return null;
+            }
+            hits++;
+            if (maxSize != UNBOUNDED) {
+                unlink(match);
+                linkLast(match);
+            }
+            return match.result;
+        }
+    }
+
+    /**
+     * Stores the result of a call that missed the cache, evicting the least recently used entry if
+     * the cache is full. If the same key was added while the function was running (a reentrant
+     * call), the existing entry is kept.
+     */
+    @TruffleBoundary
+    public void store(LruCacheKey key, Object result) {
+        Long hash = key.getHash();
+        while (true) {
+            Entry[] candidates = getCandidates(hash);
+            Entry match = findMatch(candidates, key);
+            synchronized (this) {
+                if (match != null && match.cached) {
+                    return;
+                }
+                Entry head = cache.get(hash);
+                if (head != (candidates.length > 0 ? candidates[0] : null)) {
+                    // the entries with this hash changed while comparing, compare again
+                    continue;
+                }
+                Entry entry = new Entry(key, result);
+                entry.sameHash = head;
+                entry.cached = true;
+                cache.put(hash, entry);
+                size++;
+                if (maxSize != UNBOUNDED) {
+                    linkLast(entry);
+                    if (size > maxSize) {
+                        Entry oldest = root.next;
+                        unlink(oldest);
+                        remove(oldest);
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    @TruffleBoundary
+    public synchronized void clear() {
+        for (Entry head : cache.values()) {
+            for (Entry e = head; e != null; e = e.sameHash) {
+                e.cached = false;
+            }
+        }
+        cache.clear();
+        size = 0;
+        root.prev = root;
+        root.next = root;
+        hits = 0;
+        misses = 0;
+    }
+
+    private synchronized Entry[] getCandidates(long hash) {
+        Entry head = cache.get(hash);
+        if (head == null) {
+            return NO_ENTRIES;
+        }
+        int count = 0;
+        for (Entry e = head; e != null; e = e.sameHash) {
+            count++;
+        }
+        Entry[] candidates = new Entry[count];
+        int i = 0;
+        for (Entry e = head; e != null; e = e.sameHash) {
+            candidates[i++] = e;
+        }
+        return candidates;
+    }
+
+    /** Compares the keys; must be called without holding the monitor. */
+    private static Entry findMatch(Entry[] candidates, LruCacheKey key) {
+        for (Entry candidate : candidates) {
+            if (key.matches(candidate.key)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private void remove(Entry entry) {
+        Long hash = entry.key.getHash();
+        Entry head = cache.get(hash);
+        if (head == entry) {
+            if (entry.sameHash == null) {
+                cache.remove(hash);
+            } else {
+                cache.put(hash, entry.sameHash);
+            }
+        } else {
+            Entry e = head;
+            while (e.sameHash != entry) {
+                e = e.sameHash;
+            }
+            e.sameHash = entry.sameHash;
+        }
+        entry.cached = false;
+        size--;
+    }
+
+    private void linkLast(Entry entry) {
+        Entry last = root.prev;
+        entry.prev = last;
+        entry.next = root;
+        last.next = entry;
+        root.prev = entry;
+    }
+
+    private static void unlink(Entry entry) {
+        entry.prev.next = entry.next;
+        entry.next.prev = entry.prev;
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.functools;
+
+import static com.oracle.graal.python.builtins.PythonBuiltinClassType.TypeError;
+import static com.oracle.graal.python.nodes.SpecialAttributeNames.__DICT__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__CALL__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__REDUCE__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__REPR__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__SETSTATE__;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.common.PHashingCollection;
+import com.oracle.graal.python.builtins.objects.common.SequenceNodes.GetObjectArrayNode;
+import com.oracle.graal.python.builtins.objects.dict.PDict;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.builtins.objects.str.PString;
+import com.oracle.graal.python.builtins.objects.tuple.PTuple;
+import com.oracle.graal.python.builtins.objects.type.TypeNodes.GetNameNode;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.argument.keywords.ExecuteKeywordStarargsNode.ExpandKeywordStarargsNode;
+import com.oracle.graal.python.nodes.call.special.LookupAndCallUnaryNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonVarargsBuiltinNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.runtime.object.PythonObjectFactory;
+import com.oracle.graal.python.util.PythonUtils;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.ImportStatic;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.interop.UnsupportedMessageException;
+import com.oracle.truffle.api.library.CachedLibrary;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PPartial)
+public class PartialBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return PartialBuiltinsFactory.getFactories();
+    }
+
+    /**
+     * Combines the frozen keywords of a partial with the keywords of a call. Keywords of the call
+     * override frozen keywords with the same name.
+     */
+    public static PKeyword[] mergeKeywords(PKeyword[] frozen, PKeyword[] keywords) {
+        if (keywords.length == 0) {
+            return frozen;
+        } else if (frozen.length == 0) {
+            return keywords;
+        }
+        return mergeKeywordsSlowPath(frozen, keywords);
+    }
+
+    @TruffleBoundary
+    private static PKeyword[] mergeKeywordsSlowPath(PKeyword[] frozen, PKeyword[] keywords) {
+        ArrayList<PKeyword> merged = new ArrayList<>(Arrays.asList(frozen));
+        outer: for (PKeyword keyword : keywords) {
+            for (int i = 0; i < merged.size(); i++) {
+                if (merged.get(i).getName().equals(keyword.getName())) {
+                    merged.set(i, keyword);
+                    continue outer;
+                }
+            }
+            merged.add(keyword);
+        }
+        return merged.toArray(PKeyword.EMPTY_KEYWORDS);
+    }
+
+    @Builtin(name = "func", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class FuncNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static Object func(PPartial self) {
+            return self.getFunction();
+        }
+    }
+
+    @Builtin(name = "args", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class ArgsNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        PTuple args(PPartial self) {
+            return factory().createTuple(self.getArgs());
+        }
+    }
+
+    @Builtin(name = "keywords", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class KeywordsNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static PDict keywords(PPartial self) {
+            return self.getKeywords();
+        }
+    }
+
+    /**
+     * The callee is called through a regular {@link com.oracle.graal.python.nodes.call.CallNode},
+     * so that a call site that always sees partials of the same function can inline it.
+     */
+    @Builtin(name = __CALL__, minNumOfPositionalArgs = 1, takesVarArgs = true, takesVarKeywordArgs = true)
+    @GenerateNodeFactory
+    public abstract static class CallNode extends PythonVarargsBuiltinNode {
+        @Child private com.oracle.graal.python.nodes.call.CallNode callNode = com.oracle.graal.python.nodes.call.CallNode.create();
+
+        @Specialization
+        protected Object call(VirtualFrame frame, PPartial self, Object[] arguments, PKeyword[] keywords,
+                        @Cached ExpandKeywordStarargsNode expandKeywordsNode,
+                        @Cached("createBinaryProfile()") ConditionProfile hasFrozenArgsProfile,
+                        @Cached("createBinaryProfile()") ConditionProfile hasArgsProfile) {
+            Object[] frozenArgs = self.getArgs();
+            Object[] callArgs;
+            if (!hasFrozenArgsProfile.profile(frozenArgs.length != 0)) {
+                callArgs = arguments;
+            } else if (!hasArgsProfile.profile(arguments.length != 0)) {
+                callArgs = frozenArgs;
+            } else {
+                callArgs = new Object[frozenArgs.length + arguments.length];
+                PythonUtils.arraycopy(frozenArgs, 0, callArgs, 0, frozenArgs.length);
+                PythonUtils.arraycopy(arguments, 0, callArgs, frozenArgs.length, arguments.length);
+            }
+            PKeyword[] callKeywords = mergeKeywords(expandKeywordsNode.executeWith(self.getKeywords()), keywords);
+            return callNode.execute(frame, self.getFunction(), callArgs, callKeywords);
+        }
+
+        @Override
+        public Object varArgExecute(VirtualFrame frame, @SuppressWarnings("unused") Object self, Object[] arguments, PKeyword[] keywords) throws VarargsBuiltinDirectInvocationNotSupported {
+            Object[] argsWithoutSelf = new Object[arguments.length - 1];
+            PythonUtils.arraycopy(arguments, 1, argsWithoutSelf, 0, argsWithoutSelf.length);
+            return execute(frame, arguments[0], argsWithoutSelf, keywords);
+        }
+    }
+
+    @Builtin(name = __REPR__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class ReprNode extends PythonUnaryBuiltinNode {
+        @Specialization(limit = "1")
+        Object repr(VirtualFrame frame, PPartial self,
+                        @CachedLibrary("self") PythonObjectLibrary lib,
+                        @Cached IsBuiltinClassProfile isPartialProfile,
+                        @Cached GetNameNode getNameNode,
+                        @Cached ExpandKeywordStarargsNode expandKeywordsNode,
+                        @Cached("create(__REPR__)") LookupAndCallUnaryNode reprNode) {
+            Object cls = lib.getLazyPythonClass(self);
+            // CPython's type name includes the public module of the base type
+            String typeName = isPartialProfile.profileClass(cls, PythonBuiltinClassType.PPartial) ? "functools.partial" : getNameNode.execute(cls);
+            StringBuilder sb = new StringBuilder();
+            append(sb, typeName);
+            append(sb, "(");
+            append(sb, reprString(frame, self.getFunction(), reprNode));
+            for (Object arg : self.getArgs()) {
+                append(sb, ", ");
+                append(sb, reprString(frame, arg, reprNode));
+            }
+            for (PKeyword keyword : expandKeywordsNode.executeWith(self.getKeywords())) {
+                append(sb, ", ");
+                append(sb, keyword.getName());
+                append(sb, "=");
+                append(sb, reprString(frame, keyword.getValue(), reprNode));
+            }
+            append(sb, ")");
+            return toString(sb);
+        }
+
+        private String reprString(VirtualFrame frame, Object value, LookupAndCallUnaryNode reprNode) {
+            Object result = reprNode.executeObject(frame, value);
+            if (result instanceof PString) {
+                return ((PString) result).getValue();
+            } else if (result instanceof String) {
+                return (String) result;
+            }
+            throw raise(TypeError, ErrorMessages.RETURNED_NON_STRING, "__repr__", result);
+        }
+
+        @TruffleBoundary(allowInlining = true)
+        private static void append(StringBuilder sb, String s) {
+            sb.append(s);
+        }
+
+        @TruffleBoundary(allowInlining = true)
+        private static String toString(StringBuilder sb) {
+            return sb.toString();
+        }
+    }
+
+    @Builtin(name = __REDUCE__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class ReduceNode extends PythonUnaryBuiltinNode {
+        @Specialization(limit = "1")
+        Object reduce(PPartial self,
+                        @CachedLibrary("self") PythonObjectLibrary lib) {
+            PHashingCollection dict = lib.getDict(self);
+            Object state = factory().createTuple(new Object[]{self.getFunction(), factory().createTuple(self.getArgs()), self.getKeywords(), dict != null ? dict : PNone.NONE});
+            return factory().createTuple(new Object[]{lib.getLazyPythonClass(self), factory().createTuple(new Object[]{self.getFunction()}), state});
+        }
+    }
+
+    @Builtin(name = __SETSTATE__, minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    @ImportStatic(PGuards.class)
+    abstract static class SetStateNode extends PythonBinaryBuiltinNode {
+        @Specialization(limit = "1")
+        Object setState(PPartial self, PTuple state,
+                        @CachedLibrary("self") PythonObjectLibrary lib,
+                        @CachedLibrary(limit = "3") PythonObjectLibrary functionLib,
+                        @Cached GetObjectArrayNode getObjectArrayNode,
+                        @Cached ExpandKeywordStarargsNode expandKeywordsNode) {
+            Object[] items = getObjectArrayNode.execute(state);
+            if (items.length != 4) {
+                throw raise(TypeError, ErrorMessages.INVALID_PARTIAL_STATE);
+            }
+            Object function = items[0];
+            Object args = items[1];
+            Object keywords = items[2];
+            Object dict = items[3];
+            if (!functionLib.isCallable(function) || !(args instanceof PTuple) || (keywords != PNone.NONE && !(keywords instanceof PDict)) ||
+                            (dict != PNone.NONE && !(dict instanceof PHashingCollection))) {
+                throw raise(TypeError, ErrorMessages.INVALID_PARTIAL_STATE);
+            }
+            PKeyword[] frozenKeywords = keywords == PNone.NONE ? PKeyword.EMPTY_KEYWORDS : expandKeywordsNode.executeWith(keywords);
+            self.setState(function, getObjectArrayNode.execute(args), factory().createDict(frozenKeywords));
+            if (dict != PNone.NONE) {
+                try {
+                    lib.setDict(self, (PHashingCollection) dict);
+                } catch (UnsupportedMessageException e) {
+                    CompilerDirectives.transferToInterpreterAndInvalidate();
+                    throw new IllegalStateException(e);
+                }
+            }
+            return PNone.NONE;
+        }
+
+        @Specialization(guards = "!isPTuple(state)")
+        Object setState(@SuppressWarnings("unused") PPartial self, @SuppressWarnings("unused") Object state) {
+            throw raise(TypeError, ErrorMessages.ARG_TO_SETSTATE_MUST_BE_TUPLE);
+        }
+    }
+
+    @Builtin(name = __DICT__, minNumOfPositionalArgs = 1, maxNumOfPositionalArgs = 2, isGetter = true, isSetter = true)
+    @GenerateNodeFactory
+    @ImportStatic(PGuards.class)
+    abstract static class DictNode extends PythonBinaryBuiltinNode {
+        @Specialization(limit = "1")
+        static Object getDict(PPartial self, @SuppressWarnings("unused") PNone mapping,
+                        @CachedLibrary("self") PythonObjectLibrary lib,
+                        @Cached PythonObjectFactory factory) {
+            PHashingCollection dict = lib.getDict(self);
+            if (dict == null) {
+                dict = factory.createDictFixedStorage(self);
+                try {
+                    lib.setDict(self, dict);
+                } catch (UnsupportedMessageException e) {
+                    CompilerDirectives.transferToInterpreterAndInvalidate();
+                    throw new IllegalStateException(e);
+                }
+            }
+            return dict;
+        }
+
+        @Specialization(limit = "1")
+        static Object setDict(PPartial self, PHashingCollection mapping,
+                        @CachedLibrary("self") PythonObjectLibrary lib) {
+            try {
+                lib.setDict(self, mapping);
+            } catch (UnsupportedMessageException e) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                throw new IllegalStateException(e);
+            }
+            return PNone.NONE;
+        }
+
+        @Specialization(guards = "!isDict(value)")
+        Object setDict(@SuppressWarnings("unused") PPartial self, Object value) {
+            throw raise(TypeError, ErrorMessages.MUST_BE_SET_TO_S_NOT_P, __DICT__, "dictionary", value);
+        }
+    }
+}
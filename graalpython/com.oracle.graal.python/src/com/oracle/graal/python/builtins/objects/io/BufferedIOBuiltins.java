@@ -0,0 +1,425 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.io;
+
+import static com.oracle.graal.python.builtins.PythonBuiltinClassType.RuntimeError;
+import static com.oracle.graal.python.builtins.PythonBuiltinClassType.ValueError;
+import static com.oracle.graal.python.builtins.objects.io.PFileIO.SEEK_CUR;
+import static com.oracle.graal.python.builtins.objects.io.PFileIO.SEEK_END;
+import static com.oracle.graal.python.builtins.objects.io.PFileIO.SEEK_SET;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__INIT__;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.floats.PFloat;
+import com.oracle.graal.python.builtins.objects.function.PArguments;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.attributes.GetAttributeNode;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.ImportStatic;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.library.CachedLibrary;
+
+/**
+ * Methods shared by {@code _io.BufferedReader}, {@code _io.BufferedWriter} and
+ * {@code _io.BufferedRandom}.
+ */
+@CoreFunctions(extendClasses = {PythonBuiltinClassType.PBufferedReader, PythonBuiltinClassType.PBufferedWriter, PythonBuiltinClassType.PBufferedRandom})
+public class BufferedIOBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return BufferedIOBuiltinsFactory.getFactories();
+    }
+
+    static void checkAttached(PythonBuiltinBaseNode node, PBuffered self) {
+        if (self.isDetached()) {
+            throw node.raise(ValueError, ErrorMessages.RAW_STREAM_DETACHED);
+        }
+        if (self.getRaw() == null) {
+            throw node.raise(ValueError, ErrorMessages.IO_UNINIT);
+        }
+    }
+
+    /**
+     * Acquires the lock of {@code self} for one operation; the caller must release it with
+     * {@link PBuffered#leave()} in a {@code finally} block.
+     */
+    static void enterBuffered(PythonBuiltinBaseNode node, PBuffered self) {
+        if (!self.enter()) {
+            throw node.raise(RuntimeError, ErrorMessages.REENTRANT_CALL_INSIDE_R, self);
+        }
+    }
+
+    static void checkRawClosed(VirtualFrame frame, PythonBuiltinBaseNode node, PBuffered self, IONodes.IsRawClosedNode isRawClosedNode, String operation) {
+        if (isRawClosedNode.execute(frame, self)) {
+            throw node.raise(ValueError, ErrorMessages.S_OF_CLOSED_FILE, operation);
+        }
+    }
+
+    @Builtin(name = __INIT__, minNumOfPositionalArgs = 2, parameterNames = {"self", "raw", "buffer_size"})
+    @GenerateNodeFactory
+    @ImportStatic(IONodes.class)
+    abstract static class InitNode extends PythonTernaryBuiltinNode {
+
+        @Specialization
+        PNone init(VirtualFrame frame, PBuffered self, Object raw, Object bufferSizeObj,
+                        @Cached("create(READABLE)") GetAttributeNode getReadableNode,
+                        @Cached("create(WRITABLE)") GetAttributeNode getWritableNode,
+                        @Cached CallNode callNode,
+                        @Cached IONodes.RaiseUnsupportedOperationNode raiseUnsupportedNode,
+                        @Cached IsBuiltinClassProfile isFileIOProfile,
+                        @CachedLibrary(limit = "3") PythonObjectLibrary lib) {
+            Object state = PArguments.getThreadState(frame);
+            if (self.isReadable() && !lib.isTrueWithState(callNode.execute(frame, getReadableNode.executeObject(frame, raw)), state)) {
+                throw raiseUnsupportedNode.execute(frame, ErrorMessages.FILE_OR_STREAM_IS_NOT_READABLE);
+            }
+            if (self.isWritable() && !lib.isTrueWithState(callNode.execute(frame, getWritableNode.executeObject(frame, raw)), state)) {
+                throw raiseUnsupportedNode.execute(frame, ErrorMessages.FILE_OR_STREAM_IS_NOT_WRITABLE);
+            }
+            int bufferSize = PGuards.isNoValue(bufferSizeObj) ? PBuffered.DEFAULT_BUFFER_SIZE : lib.asSizeWithState(bufferSizeObj, state);
+            if (bufferSize <= 0) {
+                throw raise(ValueError, ErrorMessages.BUFFER_SIZE_MUST_BE_POSITIVE);
+            }
+            // subclasses of FileIO may override the I/O methods, so only exact instances take the
+            // direct path to the channel
+            PFileIO fileRaw = isFileIOProfile.profileClass(lib.getLazyPythonClass(raw), PythonBuiltinClassType.PFileIO) ? (PFileIO) raw : null;
+            self.init(raw, fileRaw, bufferSize);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "close", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    @ImportStatic(IONodes.class)
+    abstract static class CloseNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        Object close(VirtualFrame frame, PBuffered self,
+                        @Cached IONodes.IsRawClosedNode isRawClosedNode,
+                        @Cached IONodes.FlushWriteBufferNode flushNode,
+                        @Cached("create(CLOSE)") GetAttributeNode getCloseNode,
+                        @Cached CallNode callNode) {
+            enterBuffered(this, self);
+            try {
+                checkAttached(this, self);
+                if (isRawClosedNode.execute(frame, self)) {
+                    return PNone.NONE;
+                }
+                try {
+                    flushNode.execute(frame, self);
+                } finally {
+                    if (self.isReadable()) {
+                        self.resetRead();
+                    }
+                    callNode.execute(frame, getCloseNode.executeObject(frame, self.getRaw()));
+                }
+                return PNone.NONE;
+            } finally {
+                self.leave();
+            }
+        }
+    }
+
+    @Builtin(name = "flush", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    @ImportStatic(IONodes.class)
+    abstract static class FlushNode extends PythonUnaryBuiltinNode {
+
+        @Specialization(guards = "self.isWritable()")
+        Object flushWriter(VirtualFrame frame, PBuffered self,
+                        @Cached IONodes.IsRawClosedNode isRawClosedNode,
+                        @Cached IONodes.FlushWriteBufferNode flushNode,
+                        @Cached IONodes.RewindReadBufferNode rewindNode) {
+            enterBuffered(this, self);
+            try {
+                checkAttached(this, self);
+                checkRawClosed(frame, this, self, isRawClosedNode, "flush");
+                flushNode.execute(frame, self);
+                rewindNode.execute(frame, self);
+                return PNone.NONE;
+            } finally {
+                self.leave();
+            }
+        }
+
+        @Specialization(guards = "!self.isWritable()")
+        Object flushReader(VirtualFrame frame, PBuffered self,
+                        @Cached("create(FLUSH)") GetAttributeNode getFlushNode,
+                        @Cached CallNode callNode) {
+            checkAttached(this, self);
+            return callNode.execute(frame, getFlushNode.executeObject(frame, self.getRaw()));
+        }
+    }
+
+    @Builtin(name = "detach", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class DetachNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        Object detach(VirtualFrame frame, PBuffered self,
+                        @Cached IONodes.FlushWriteBufferNode flushNode,
+                        @Cached IONodes.RewindReadBufferNode rewindNode) {
+            enterBuffered(this, self);
+            try {
+                checkAttached(this, self);
+                flushNode.execute(frame, self);
+                if (self.isWritable()) {
+                    rewindNode.execute(frame, self);
+                }
+                return self.detach();
+            } finally {
+                self.leave();
+            }
+        }
+    }
+
+    @Builtin(name = "seek", minNumOfPositionalArgs = 2, parameterNames = {"self", "pos", "whence"})
+    @GenerateNodeFactory
+    abstract static class SeekNode extends PythonTernaryBuiltinNode {
+
+        @Specialization
+        Object seek(VirtualFrame frame, PBuffered self, Object posObj, Object whenceObj,
+                        @Cached IONodes.IsRawClosedNode isRawClosedNode,
+                        @Cached IONodes.RawTellNode rawTellNode,
+                        @Cached IONodes.RawSeekNode rawSeekNode,
+                        @Cached IONodes.FlushWriteBufferNode flushNode,
+                        @CachedLibrary(limit = "2") PythonObjectLibrary lib) {
+            checkAttached(this, self);
+            int whence = PGuards.isNoValue(whenceObj) ? SEEK_SET : lib.asSizeWithState(whenceObj, PArguments.getThreadState(frame));
+            if (whence < SEEK_SET || whence > SEEK_END) {
+                throw raise(ValueError, ErrorMessages.WHENCE_VALUE_D_UNSUPPORTED, whence);
+            }
+            checkRawClosed(frame, this, self, isRawClosedNode, "seek");
+            if (posObj instanceof Double || posObj instanceof PFloat) {
+                throw raise(PythonBuiltinClassType.TypeError, ErrorMessages.INTEGER_EXPECTED_GOT_FLOAT);
+            }
+            long pos = lib.asJavaLong(posObj);
+            enterBuffered(this, self);
+            try {
+                checkAttached(this, self);
+                if (whence != SEEK_END && self.isReadable() && self.getReadEnd() > 0) {
+                    // try to stay within the read buffer
+                    long rawPos = rawTellNode.execute(frame, self);
+                    long bufferStart = rawPos - self.getReadEnd();
+                    long target = whence == SEEK_SET ? pos : rawPos - self.getAvailable() + pos;
+                    if (target >= bufferStart && target <= rawPos) {
+                        self.setReadPos((int) (target - bufferStart));
+                        return target;
+                    }
+                }
+                flushNode.execute(frame, self);
+                if (self.isReadable()) {
+                    if (whence == SEEK_CUR) {
+                        pos -= self.getAvailable();
+                    }
+                    self.resetRead();
+                }
+                return rawSeekNode.execute(frame, self, pos, whence);
+            } finally {
+                self.leave();
+            }
+        }
+    }
+
+    @Builtin(name = "tell", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class TellNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        long tell(VirtualFrame frame, PBuffered self,
+                        @Cached IONodes.RawTellNode rawTellNode) {
+            enterBuffered(this, self);
+            try {
+                checkAttached(this, self);
+                long pos = rawTellNode.execute(frame, self);
+                if (self.isReadable()) {
+                    pos -= self.getAvailable();
+                }
+                if (self.isWritable()) {
+                    pos += self.getWriteEnd();
+                }
+                return Math.max(pos, 0);
+            } finally {
+                self.leave();
+            }
+        }
+    }
+
+    @Builtin(name = "raw", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class RawNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        Object raw(PBuffered self) {
+            checkAttached(this, self);
+            return self.getRaw();
+        }
+    }
+
+    @Builtin(name = "closed", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class ClosedNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        boolean closed(VirtualFrame frame, PBuffered self,
+                        @Cached IONodes.IsRawClosedNode isRawClosedNode) {
+            checkAttached(this, self);
+            return isRawClosedNode.execute(frame, self);
+        }
+    }
+
+    /**
+     * Base class for the getters and methods that are simply forwarded to the raw stream.
+     */
+    abstract static class RawDelegateNode extends PythonUnaryBuiltinNode {
+
+        static Object delegate(VirtualFrame frame, PythonBuiltinBaseNode node, PBuffered self, GetAttributeNode getAttributeNode, CallNode callNode) {
+            checkAttached(node, self);
+            Object attr = getAttributeNode.executeObject(frame, self.getRaw());
+            return callNode == null ? attr : callNode.execute(frame, attr);
+        }
+    }
+
+    @Builtin(name = "name", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    @ImportStatic(IONodes.class)
+    abstract static class NameNode extends RawDelegateNode {
+
+        @Specialization
+        Object name(VirtualFrame frame, PBuffered self,
+                        @Cached("create(NAME)") GetAttributeNode getNameNode) {
+            return delegate(frame, this, self, getNameNode, null);
+        }
+    }
+
+    @Builtin(name = "mode", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    @ImportStatic(IONodes.class)
+    abstract static class ModeNode extends RawDelegateNode {
+
+        @Specialization
+        Object mode(VirtualFrame frame, PBuffered self,
+                        @Cached("create(MODE)") GetAttributeNode getModeNode) {
+            return delegate(frame, this, self, getModeNode, null);
+        }
+    }
+
+    @Builtin(name = "fileno", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    @ImportStatic(IONodes.class)
+    abstract static class FilenoNode extends RawDelegateNode {
+
+        @Specialization
+        Object fileno(VirtualFrame frame, PBuffered self,
+                        @Cached("create(FILENO)") GetAttributeNode getFilenoNode,
+                        @Cached CallNode callNode) {
+            return delegate(frame, this, self, getFilenoNode, callNode);
+        }
+    }
+
+    @Builtin(name = "isatty", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    @ImportStatic(IONodes.class)
+    abstract static class IsattyNode extends RawDelegateNode {
+
+        @Specialization
+        Object isatty(VirtualFrame frame, PBuffered self,
+                        @Cached("create(ISATTY)") GetAttributeNode getIsattyNode,
+                        @Cached CallNode callNode) {
+            return delegate(frame, this, self, getIsattyNode, callNode);
+        }
+    }
+
+    @Builtin(name = "readable", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    @ImportStatic(IONodes.class)
+    abstract static class ReadableNode extends RawDelegateNode {
+
+        @Specialization
+        Object readable(VirtualFrame frame, PBuffered self,
+                        @Cached("create(READABLE)") GetAttributeNode getReadableNode,
+                        @Cached CallNode callNode) {
+            return delegate(frame, this, self, getReadableNode, callNode);
+        }
+    }
+
+    @Builtin(name = "writable", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    @ImportStatic(IONodes.class)
+    abstract static class WritableNode extends RawDelegateNode {
+
+        @Specialization
+        Object writable(VirtualFrame frame, PBuffered self,
+                        @Cached("create(WRITABLE)") GetAttributeNode getWritableNode,
+                        @Cached CallNode callNode) {
+            return delegate(frame, this, self, getWritableNode, callNode);
+        }
+    }
+
+    @Builtin(name = "seekable", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    @ImportStatic(IONodes.class)
+    abstract static class SeekableNode extends RawDelegateNode {
+
+        @Specialization
+        Object seekable(VirtualFrame frame, PBuffered self,
+                        @Cached("create(SEEKABLE)") GetAttributeNode getSeekableNode,
+                        @Cached CallNode callNode) {
+            return delegate(frame, this, self, getSeekableNode, callNode);
+        }
+    }
+}
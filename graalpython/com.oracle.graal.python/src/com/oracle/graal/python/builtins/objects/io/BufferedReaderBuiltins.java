@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.io;
+
+import static com.oracle.graal.python.builtins.PythonBuiltinClassType.ValueError;
+import static com.oracle.graal.python.builtins.objects.io.BufferedIOBuiltins.checkAttached;
+import static com.oracle.graal.python.builtins.objects.io.BufferedIOBuiltins.checkRawClosed;
+import static com.oracle.graal.python.builtins.objects.io.BufferedIOBuiltins.enterBuffered;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__ITER__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__NEXT__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.StopIteration;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.function.PArguments;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+import com.oracle.graal.python.util.PythonUtils;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.library.CachedLibrary;
+
+/**
+ * The reading methods of {@code _io.BufferedReader} and {@code _io.BufferedRandom}.
+ */
+@CoreFunctions(extendClasses = {PythonBuiltinClassType.PBufferedReader, PythonBuiltinClassType.PBufferedRandom})
+public class BufferedReaderBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return BufferedReaderBuiltinsFactory.getFactories();
+    }
+
+    /**
+     * Common prologue of all read operations: checks the state, writes out pending data of a
+     * {@code BufferedRandom} and, if nothing is buffered, checks that the raw stream is open.
+     */
+    static void prepareRead(VirtualFrame frame, PythonBuiltinBaseNode node, PBuffered self, IONodes.FlushWriteBufferNode flushNode, IONodes.IsRawClosedNode isRawClosedNode,
+                    String operation) {
+        checkAttached(node, self);
+        flushNode.execute(frame, self);
+        if (self.getAvailable() == 0) {
+            checkRawClosed(frame, node, self, isRawClosedNode, operation);
+        }
+    }
+
+    static int asSize(VirtualFrame frame, Object sizeObj, PythonObjectLibrary lib) {
+        return PGuards.isPNone(sizeObj) ? -1 : lib.asSizeWithState(sizeObj, PArguments.getThreadState(frame));
+    }
+
+    @Builtin(name = "read", minNumOfPositionalArgs = 1, parameterNames = {"self", "size"})
+    @GenerateNodeFactory
+    abstract static class ReadNode extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        Object read(VirtualFrame frame, PBuffered self, Object sizeObj,
+                        @Cached IONodes.FlushWriteBufferNode flushNode,
+                        @Cached IONodes.IsRawClosedNode isRawClosedNode,
+                        @Cached IONodes.BufferedReadNode readNode,
+                        @Cached IONodes.BufferedReadAllNode readAllNode,
+                        @CachedLibrary(limit = "2") PythonObjectLibrary lib) {
+            int size = asSize(frame, sizeObj, lib);
+            if (size < -1) {
+                throw raise(ValueError, ErrorMessages.READ_LENGTH_MUST_BE_NON_NEGATIVE);
+            }
+            enterBuffered(this, self);
+            try {
+                prepareRead(frame, this, self, flushNode, isRawClosedNode, "read");
+                if (size == -1) {
+                    checkRawClosed(frame, this, self, isRawClosedNode, "read");
+                    return readAllNode.execute(frame, self);
+                }
+                return readNode.execute(frame, self, size);
+            } finally {
+                self.leave();
+            }
+        }
+    }
+
+    @Builtin(name = "read1", minNumOfPositionalArgs = 1, parameterNames = {"self", "size"})
+    @GenerateNodeFactory
+    abstract static class Read1Node extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        Object read1(VirtualFrame frame, PBuffered self, Object sizeObj,
+                        @Cached IONodes.FlushWriteBufferNode flushNode,
+                        @Cached IONodes.IsRawClosedNode isRawClosedNode,
+                        @Cached IONodes.RawReadNode rawReadNode,
+                        @Cached IONodes.FillReadBufferNode fillNode,
+                        @CachedLibrary(limit = "2") PythonObjectLibrary lib) {
+            int size = asSize(frame, sizeObj, lib);
+            enterBuffered(this, self);
+            try {
+                prepareRead(frame, this, self, flushNode, isRawClosedNode, "read");
+                if (size < 0) {
+                    size = self.getBufferSize();
+                }
+                if (size == 0) {
+                    return factory().createBytes(new byte[0]);
+                }
+                int available = self.getAvailable();
+                if (available == 0) {
+                    if (size > self.getBufferSize()) {
+                        // a single raw read directly into the result
+                        byte[] result = new byte[size];
+                        int n = rawReadNode.execute(frame, self, result, 0, size);
+                        return factory().createBytes(new ByteSequenceStorage(result, Math.max(n, 0)));
+                    }
+                    available = Math.max(fillNode.execute(frame, self), 0);
+                }
+                int n = Math.min(available, size);
+                byte[] result = new byte[n];
+                self.consume(result, 0, n);
+                return factory().createBytes(result);
+            } finally {
+                self.leave();
+            }
+        }
+    }
+
+    @Builtin(name = "peek", minNumOfPositionalArgs = 1, parameterNames = {"self", "size"})
+    @GenerateNodeFactory
+    abstract static class PeekNode extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        Object peek(VirtualFrame frame, PBuffered self, @SuppressWarnings("unused") Object sizeObj,
+                        @Cached IONodes.FlushWriteBufferNode flushNode,
+                        @Cached IONodes.IsRawClosedNode isRawClosedNode,
+                        @Cached IONodes.FillReadBufferNode fillNode) {
+            enterBuffered(this, self);
+            try {
+                prepareRead(frame, this, self, flushNode, isRawClosedNode, "peek");
+                if (self.getAvailable() == 0) {
+                    fillNode.execute(frame, self);
+                }
+                int n = self.getAvailable();
+                byte[] result = new byte[n];
+                PythonUtils.arraycopy(self.getReadBuffer(), self.getReadPos(), result, 0, n);
+                return factory().createBytes(result);
+            } finally {
+                self.leave();
+            }
+        }
+    }
+
+    abstract static class ReadIntoBaseNode extends PythonBinaryBuiltinNode {
+
+        Object doReadinto(VirtualFrame frame, PBuffered self, Object buffer, boolean single, String operation,
+                        IONodes.FlushWriteBufferNode flushNode,
+                        IONodes.IsRawClosedNode isRawClosedNode,
+                        IONodes.RawReadNode rawReadNode,
+                        IONodes.FillReadBufferNode fillNode,
+                        IONodes.CopyToBufferNode copyToBufferNode,
+                        PythonObjectLibrary lib) {
+            enterBuffered(this, self);
+            try {
+                prepareRead(frame, this, self, flushNode, isRawClosedNode, operation);
+                int len = lib.lengthWithState(buffer, PArguments.getThreadState(frame));
+                byte[] data = new byte[len];
+                int n = Math.min(self.getAvailable(), len);
+                self.consume(data, 0, n);
+                while (n < len && !(single && n > 0)) {
+                    int r;
+                    int remaining = len - n;
+                    if (remaining >= self.getBufferSize()) {
+                        r = rawReadNode.execute(frame, self, data, n, remaining);
+                        if (r > 0) {
+                            n += r;
+                        }
+                    } else {
+                        r = fillNode.execute(frame, self);
+                        if (r > 0) {
+                            int take = Math.min(r, remaining);
+                            self.consume(data, n, take);
+                            n += take;
+                        }
+                    }
+                    if (r <= 0) {
+                        if (r < 0 && n == 0) {
+                            return PNone.NONE;
+                        }
+                        break;
+                    }
+                }
+                copyToBufferNode.execute(frame, buffer, data, n);
+                return n;
+            } finally {
+                self.leave();
+            }
+        }
+    }
+
+    @Builtin(name = "readinto", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class ReadIntoNode extends ReadIntoBaseNode {
+
+        @Specialization
+        Object readinto(VirtualFrame frame, PBuffered self, Object buffer,
+                        @Cached IONodes.FlushWriteBufferNode flushNode,
+                        @Cached IONodes.IsRawClosedNode isRawClosedNode,
+                        @Cached IONodes.RawReadNode rawReadNode,
+                        @Cached IONodes.FillReadBufferNode fillNode,
+                        @Cached IONodes.CopyToBufferNode copyToBufferNode,
+                        @CachedLibrary(limit = "2") PythonObjectLibrary lib) {
+            return doReadinto(frame, self, buffer, false, "readinto", flushNode, isRawClosedNode, rawReadNode, fillNode, copyToBufferNode, lib);
+        }
+    }
+
+    @Builtin(name = "readinto1", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class ReadInto1Node extends ReadIntoBaseNode {
+
+        @Specialization
+        Object readinto1(VirtualFrame frame, PBuffered self, Object buffer,
+                        @Cached IONodes.FlushWriteBufferNode flushNode,
+                        @Cached IONodes.IsRawClosedNode isRawClosedNode,
+                        @Cached IONodes.RawReadNode rawReadNode,
+                        @Cached IONodes.FillReadBufferNode fillNode,
+                        @Cached IONodes.CopyToBufferNode copyToBufferNode,
+                        @CachedLibrary(limit = "2") PythonObjectLibrary lib) {
+            return doReadinto(frame, self, buffer, true, "readinto1", flushNode, isRawClosedNode, rawReadNode, fillNode, copyToBufferNode, lib);
+        }
+    }
+
+    @Builtin(name = "readline", minNumOfPositionalArgs = 1, parameterNames = {"self", "size"})
+    @GenerateNodeFactory
+    abstract static class ReadlineNode extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        Object readline(VirtualFrame frame, PBuffered self, Object sizeObj,
+                        @Cached IONodes.FlushWriteBufferNode flushNode,
+                        @Cached IONodes.IsRawClosedNode isRawClosedNode,
+                        @Cached IONodes.BufferedReadlineNode readlineNode,
+                        @CachedLibrary(limit = "2") PythonObjectLibrary lib) {
+            int limit = asSize(frame, sizeObj, lib);
+            enterBuffered(this, self);
+            try {
+                prepareRead(frame, this, self, flushNode, isRawClosedNode, "readline");
+                return factory().createBytes(readlineNode.execute(frame, self, limit));
+            } finally {
+                self.leave();
+            }
+        }
+    }
+
+    @Builtin(name = __ITER__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class IterNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        Object iter(VirtualFrame frame, PBuffered self,
+                        @Cached IONodes.IsRawClosedNode isRawClosedNode) {
+            checkAttached(this, self);
+            checkRawClosed(frame, this, self, isRawClosedNode, "iteration");
+            return self;
+        }
+    }
+
+    @Builtin(name = __NEXT__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class NextNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        Object next(VirtualFrame frame, PBuffered self,
+                        @Cached IONodes.FlushWriteBufferNode flushNode,
+                        @Cached IONodes.IsRawClosedNode isRawClosedNode,
+                        @Cached IONodes.BufferedReadlineNode readlineNode) {
+            enterBuffered(this, self);
+            try {
+                prepareRead(frame, this, self, flushNode, isRawClosedNode, "readline");
+                byte[] line = readlineNode.execute(frame, self, -1);
+                if (line.length == 0) {
+                    throw raise(StopIteration);
+                }
+                return factory().createBytes(line);
+            } finally {
+                self.leave();
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.io;
+
+import static com.oracle.graal.python.builtins.PythonBuiltinClassType.ValueError;
+import static com.oracle.graal.python.builtins.objects.io.BufferedIOBuiltins.checkAttached;
+import static com.oracle.graal.python.builtins.objects.io.BufferedIOBuiltins.checkRawClosed;
+import static com.oracle.graal.python.builtins.objects.io.BufferedIOBuiltins.enterBuffered;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.bytes.BytesNodes;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.attributes.GetAttributeNode;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.ImportStatic;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+
+/**
+ * The writing methods of {@code _io.BufferedWriter} and {@code _io.BufferedRandom}.
+ */
+@CoreFunctions(extendClasses = {PythonBuiltinClassType.PBufferedWriter, PythonBuiltinClassType.PBufferedRandom})
+public class BufferedWriterBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return BufferedWriterBuiltinsFactory.getFactories();
+    }
+
+    @Builtin(name = "write", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class WriteNode extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        int write(VirtualFrame frame, PBuffered self, Object data,
+                        @Cached IONodes.IsRawClosedNode isRawClosedNode,
+                        @Cached IONodes.RewindReadBufferNode rewindNode,
+                        @Cached IONodes.FlushWriteBufferNode flushNode,
+                        @Cached IONodes.RawWriteNode rawWriteNode,
+                        @Cached BytesNodes.ToBytesNode toBytesNode,
+                        @Cached("createBinaryProfile()") ConditionProfile fitsProfile) {
+            // converting the data may run arbitrary code, so it happens before taking the lock
+            byte[] bytes = toBytesNode.execute(frame, data);
+            enterBuffered(this, self);
+            try {
+                checkAttached(this, self);
+                if (isRawClosedNode.execute(frame, self)) {
+                    throw raise(ValueError, ErrorMessages.WRITE_TO_CLOSED_FILE);
+                }
+                rewindNode.execute(frame, self);
+                int n = bytes.length;
+                if (fitsProfile.profile(self.getWriteEnd() + n <= self.getBufferSize())) {
+                    self.append(bytes, 0, n);
+                    return n;
+                }
+                flushNode.execute(frame, self);
+                if (n >= self.getBufferSize()) {
+                    rawWriteNode.execute(frame, self, bytes, 0, n);
+                } else {
+                    self.append(bytes, 0, n);
+                }
+                return n;
+            } finally {
+                self.leave();
+            }
+        }
+    }
+
+    @Builtin(name = "truncate", minNumOfPositionalArgs = 1, parameterNames = {"self", "pos"})
+    @GenerateNodeFactory
+    @ImportStatic(IONodes.class)
+    abstract static class TruncateNode extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        Object truncate(VirtualFrame frame, PBuffered self, Object pos,
+                        @Cached IONodes.IsRawClosedNode isRawClosedNode,
+                        @Cached IONodes.FlushWriteBufferNode flushNode,
+                        @Cached IONodes.RewindReadBufferNode rewindNode,
+                        @Cached IONodes.RawTellNode rawTellNode,
+                        @Cached("create(TRUNCATE)") GetAttributeNode getTruncateNode,
+                        @Cached CallNode callNode) {
+            enterBuffered(this, self);
+            try {
+                checkAttached(this, self);
+                checkRawClosed(frame, this, self, isRawClosedNode, "truncate");
+                flushNode.execute(frame, self);
+                rewindNode.execute(frame, self);
+                Object size = PGuards.isPNone(pos) ? rawTellNode.execute(frame, self) : pos;
+                return callNode.execute(frame, getTruncateNode.executeObject(frame, self.getRaw()), size);
+            } finally {
+                self.leave();
+            }
+        }
+    }
+}
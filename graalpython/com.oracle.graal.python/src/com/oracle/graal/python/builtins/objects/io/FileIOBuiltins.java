@@ -0,0 +1,563 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.io;
+
+import static com.oracle.graal.python.builtins.PythonBuiltinClassType.TypeError;
+import static com.oracle.graal.python.builtins.PythonBuiltinClassType.ValueError;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__INIT__;
+
+import java.nio.channels.Channel;
+import java.nio.channels.SeekableByteChannel;
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.modules.PosixModuleBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.bytes.BytesNodes;
+import com.oracle.graal.python.builtins.objects.exception.OSErrorEnum;
+import com.oracle.graal.python.builtins.objects.floats.PFloat;
+import com.oracle.graal.python.builtins.objects.function.PArguments;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.attributes.WriteAttributeToObjectNode;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.nodes.util.CannotCastException;
+import com.oracle.graal.python.nodes.util.CastToJavaStringNode;
+import com.oracle.graal.python.nodes.util.ChannelNodes.ReadFromChannelNode;
+import com.oracle.graal.python.runtime.PosixResources;
+import com.oracle.graal.python.runtime.PythonContext;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.TruffleFile;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.interop.UnsupportedMessageException;
+import com.oracle.truffle.api.library.CachedLibrary;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PFileIO)
+public class FileIOBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return FileIOBuiltinsFactory.getFactories();
+    }
+
+    static void checkClosed(PythonBuiltinBaseNode node, PFileIO self) {
+        if (self.isClosed()) {
+            throw node.raise(ValueError, ErrorMessages.IO_CLOSED);
+        }
+    }
+
+    static void checkReadable(VirtualFrame frame, PythonBuiltinBaseNode node, PFileIO self, IONodes.RaiseUnsupportedOperationNode raiseNode) {
+        checkClosed(node, self);
+        if (!self.isReadable()) {
+            throw raiseNode.execute(frame, ErrorMessages.FILE_NOT_OPEN_FOR_READING);
+        }
+    }
+
+    static void checkWritable(VirtualFrame frame, PythonBuiltinBaseNode node, PFileIO self, IONodes.RaiseUnsupportedOperationNode raiseNode) {
+        checkClosed(node, self);
+        if (!self.isWritable()) {
+            throw raiseNode.execute(frame, ErrorMessages.FILE_NOT_OPEN_FOR_WRITING);
+        }
+    }
+
+    @Builtin(name = __INIT__, minNumOfPositionalArgs = 2, parameterNames = {"self", "file", "mode", "closefd", "opener"})
+    @GenerateNodeFactory
+    abstract static class InitNode extends PythonBuiltinNode {
+
+        @Specialization
+        PNone init(VirtualFrame frame, PFileIO self, Object file, Object modeObj, Object closefdObj, Object opener,
+                        @Cached CastToJavaStringNode castModeNode,
+                        @Cached PosixModuleBuiltins.OpenNode openNode,
+                        @Cached CallNode callOpenerNode,
+                        @Cached WriteAttributeToObjectNode writeNameNode,
+                        @CachedLibrary(limit = "3") PythonObjectLibrary lib) {
+            PosixResources resources = getContext().getResources();
+            if (!self.isClosed()) {
+                // re-initialization closes the previously opened file
+                int oldFd = self.markClosed();
+                if (oldFd >= 0) {
+                    resources.close(oldFd);
+                }
+            }
+            if (file instanceof Double || file instanceof PFloat) {
+                throw raise(TypeError, ErrorMessages.INTEGER_EXPECTED_GOT_FLOAT);
+            }
+            String mode;
+            if (PGuards.isNoValue(modeObj)) {
+                mode = "r";
+            } else {
+                try {
+                    mode = castModeNode.execute(modeObj);
+                } catch (CannotCastException e) {
+                    throw raise(TypeError, ErrorMessages.ARG_D_MUST_BE_S_NOT_P, "FileIO()", 2, "str", modeObj);
+                }
+            }
+            int flags = decodeMode(self, mode);
+            boolean closefd = PGuards.isNoValue(closefdObj) || lib.isTrueWithState(closefdObj, PArguments.getThreadState(frame));
+
+            if (lib.canBeIndex(file)) {
+                int fd = lib.asSizeWithState(file, PArguments.getThreadState(frame));
+                if (fd < 0) {
+                    throw raise(ValueError, ErrorMessages.NEGATIVE_FILE_DESCRIPTOR);
+                }
+                if (resources.getFileChannel(fd) == null) {
+                    throw raiseOSError(frame, OSErrorEnum.EBADF);
+                }
+                self.setFd(fd, closefd);
+            } else {
+                if (!closefd) {
+                    throw raise(ValueError, ErrorMessages.CANNOT_USE_CLOSEFD);
+                }
+                int fd;
+                if (PGuards.isPNone(opener)) {
+                    fd = (int) openNode.executeWith(frame, file, (long) flags, 0666L, PNone.NO_VALUE);
+                } else {
+                    Object fdObj = callOpenerNode.execute(frame, opener, file, flags);
+                    if (!lib.canBeIndex(fdObj)) {
+                        throw raise(TypeError, ErrorMessages.EXPECTED_INTEGER_FROM_OPENER);
+                    }
+                    fd = lib.asSizeWithState(fdObj, PArguments.getThreadState(frame));
+                    if (fd < 0) {
+                        throw raise(ValueError, ErrorMessages.OPENER_RETURNED_D, fd);
+                    }
+                }
+                self.setFd(fd, true);
+                String path = resources.getFilePath(fd);
+                if (path != null && isDirectory(getContext(), path)) {
+                    resources.close(self.markClosed());
+                    throw raiseOSError(frame, OSErrorEnum.EISDIR, path);
+                }
+            }
+            if (lib.getDict(self) == null) {
+                // like in CPython, file objects have a __dict__ which holds the name
+                try {
+                    lib.setDict(self, factory().createDictFixedStorage(self));
+                } catch (UnsupportedMessageException e) {
+                    CompilerDirectives.transferToInterpreterAndInvalidate();
+                    throw new IllegalStateException(e);
+                }
+            }
+            writeNameNode.execute(self, "name", file);
+            if (self.isAppending()) {
+                // for consistent behaviour, we explicitly seek to the end of file
+                Channel channel = resources.getFileChannel(self.getFd());
+                if (channel instanceof SeekableByteChannel) {
+                    try {
+                        PFileIO.seek(channel, 0, PFileIO.SEEK_END);
+                    } catch (Exception e) {
+                        throw raiseOSError(frame, e);
+                    }
+                }
+            }
+            return PNone.NONE;
+        }
+
+        private int decodeMode(PFileIO self, String mode) {
+            boolean rwa = false;
+            boolean plus = false;
+            boolean readable = false;
+            boolean writable = false;
+            boolean created = false;
+            boolean appending = false;
+            int flags = 0;
+            for (int i = 0; i < mode.length(); i++) {
+                switch (mode.charAt(i)) {
+                    case 'x':
+                        if (rwa) {
+                            throw raise(ValueError, ErrorMessages.MUST_HAVE_EXACTLY_ONE_OF_MODE);
+                        }
+                        rwa = true;
+                        created = true;
+                        writable = true;
+                        flags |= PosixModuleBuiltins.EXCL | PosixModuleBuiltins.CREAT;
+                        break;
+                    case 'r':
+                        if (rwa) {
+                            throw raise(ValueError, ErrorMessages.MUST_HAVE_EXACTLY_ONE_OF_MODE);
+                        }
+                        rwa = true;
+                        readable = true;
+                        break;
+                    case 'w':
+                        if (rwa) {
+                            throw raise(ValueError, ErrorMessages.MUST_HAVE_EXACTLY_ONE_OF_MODE);
+                        }
+                        rwa = true;
+                        writable = true;
+                        flags |= PosixModuleBuiltins.CREAT | PosixModuleBuiltins.TRUNC;
+                        break;
+                    case 'a':
+                        if (rwa) {
+                            throw raise(ValueError, ErrorMessages.MUST_HAVE_EXACTLY_ONE_OF_MODE);
+                        }
+                        rwa = true;
+                        writable = true;
+                        appending = true;
+                        flags |= PosixModuleBuiltins.APPEND | PosixModuleBuiltins.CREAT;
+                        break;
+                    case 'b':
+                        break;
+                    case '+':
+                        if (plus) {
+                            throw raise(ValueError, ErrorMessages.MUST_HAVE_EXACTLY_ONE_OF_MODE);
+                        }
+                        readable = writable = true;
+                        plus = true;
+                        break;
+                    default:
+                        throw raise(ValueError, ErrorMessages.INVALID_MODE_S, mode);
+                }
+            }
+            if (!rwa) {
+                throw raise(ValueError, ErrorMessages.MUST_HAVE_EXACTLY_ONE_OF_MODE);
+            }
+            if (readable && writable) {
+                flags |= PosixModuleBuiltins.RDWR;
+            } else if (readable) {
+                flags |= PosixModuleBuiltins.RDONLY;
+            } else {
+                flags |= PosixModuleBuiltins.WRONLY;
+            }
+            self.setMode(readable, writable, created, appending);
+            return flags;
+        }
+
+        @TruffleBoundary
+        private static boolean isDirectory(PythonContext context, String path) {
+            TruffleFile file = context.getPublicTruffleFileRelaxed(path);
+            return file.isDirectory();
+        }
+    }
+
+    @Builtin(name = "read", minNumOfPositionalArgs = 1, parameterNames = {"self", "size"})
+    @GenerateNodeFactory
+    abstract static class ReadNode extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        Object read(VirtualFrame frame, PFileIO self, Object sizeObj,
+                        @Cached IONodes.RaiseUnsupportedOperationNode raiseUnsupportedNode,
+                        @Cached IONodes.GetChannelNode getChannelNode,
+                        @Cached ReadFromChannelNode readNode,
+                        @CachedLibrary(limit = "2") PythonObjectLibrary lib) {
+            checkReadable(frame, this, self, raiseUnsupportedNode);
+            int size = PGuards.isPNone(sizeObj) ? -1 : lib.asSizeWithState(sizeObj, PArguments.getThreadState(frame));
+            Channel channel = getChannelNode.execute(frame, self);
+            if (size < 0) {
+                return readAll(frame, this, channel);
+            }
+            return factory().createBytes(readNode.execute(channel, size));
+        }
+    }
+
+    static Object readAll(VirtualFrame frame, PythonBuiltinBaseNode node, Channel channel) {
+        try {
+            return node.factory().createBytes(PFileIO.readAll(channel, PBuffered.DEFAULT_BUFFER_SIZE));
+        } catch (Exception e) {
+            throw node.raiseOSError(frame, e);
+        }
+    }
+
+    @Builtin(name = "readall", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class ReadAllNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        Object readall(VirtualFrame frame, PFileIO self,
+                        @Cached IONodes.RaiseUnsupportedOperationNode raiseUnsupportedNode,
+                        @Cached IONodes.GetChannelNode getChannelNode) {
+            checkReadable(frame, this, self, raiseUnsupportedNode);
+            return readAll(frame, this, getChannelNode.execute(frame, self));
+        }
+    }
+
+    @Builtin(name = "readinto", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class ReadIntoNode extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        Object readinto(VirtualFrame frame, PFileIO self, Object buffer,
+                        @Cached IONodes.RaiseUnsupportedOperationNode raiseUnsupportedNode,
+                        @Cached IONodes.GetChannelNode getChannelNode,
+                        @Cached IONodes.CopyToBufferNode copyToBufferNode,
+                        @CachedLibrary(limit = "2") PythonObjectLibrary lib) {
+            checkReadable(frame, this, self, raiseUnsupportedNode);
+            int len = lib.lengthWithState(buffer, PArguments.getThreadState(frame));
+            Channel channel = getChannelNode.execute(frame, self);
+            byte[] data = new byte[len];
+            int n;
+            try {
+                n = PFileIO.readInto(channel, data, 0, len);
+            } catch (Exception e) {
+                throw raiseOSError(frame, e);
+            }
+            copyToBufferNode.execute(frame, buffer, data, n);
+            return n;
+        }
+    }
+
+    @Builtin(name = "write", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class WriteNode extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        Object write(VirtualFrame frame, PFileIO self, Object data,
+                        @Cached IONodes.RaiseUnsupportedOperationNode raiseUnsupportedNode,
+                        @Cached IONodes.GetChannelNode getChannelNode,
+                        @Cached BytesNodes.ToBytesNode toBytesNode) {
+            checkWritable(frame, this, self, raiseUnsupportedNode);
+            byte[] bytes = toBytesNode.execute(frame, data);
+            Channel channel = getChannelNode.execute(frame, self);
+            try {
+                return PFileIO.write(channel, bytes, 0, bytes.length);
+            } catch (Exception e) {
+                throw raiseOSError(frame, e);
+            }
+        }
+    }
+
+    @Builtin(name = "seek", minNumOfPositionalArgs = 2, parameterNames = {"self", "pos", "whence"})
+    @GenerateNodeFactory
+    abstract static class SeekNode extends PythonTernaryBuiltinNode {
+
+        @Specialization
+        Object seek(VirtualFrame frame, PFileIO self, Object posObj, Object whenceObj,
+                        @Cached IONodes.GetChannelNode getChannelNode,
+                        @CachedLibrary(limit = "2") PythonObjectLibrary lib) {
+            checkClosed(this, self);
+            if (posObj instanceof Double || posObj instanceof PFloat) {
+                throw raise(TypeError, ErrorMessages.INTEGER_EXPECTED_GOT_FLOAT);
+            }
+            long pos = lib.asJavaLong(posObj);
+            int whence = PGuards.isNoValue(whenceObj) ? PFileIO.SEEK_SET : lib.asSizeWithState(whenceObj, PArguments.getThreadState(frame));
+            Channel channel = getChannelNode.execute(frame, self);
+            if (!(channel instanceof SeekableByteChannel)) {
+                throw raiseOSError(frame, OSErrorEnum.ESPIPE);
+            }
+            try {
+                return PFileIO.seek(channel, pos, whence);
+            } catch (Exception e) {
+                throw raiseOSError(frame, e);
+            }
+        }
+    }
+
+    @Builtin(name = "tell", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class TellNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        Object tell(VirtualFrame frame, PFileIO self,
+                        @Cached IONodes.GetChannelNode getChannelNode) {
+            checkClosed(this, self);
+            Channel channel = getChannelNode.execute(frame, self);
+            if (!(channel instanceof SeekableByteChannel)) {
+                throw raiseOSError(frame, OSErrorEnum.ESPIPE);
+            }
+            try {
+                return PFileIO.tell(channel);
+            } catch (Exception e) {
+                throw raiseOSError(frame, e);
+            }
+        }
+    }
+
+    @Builtin(name = "truncate", minNumOfPositionalArgs = 1, parameterNames = {"self", "size"})
+    @GenerateNodeFactory
+    abstract static class TruncateNode extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        Object truncate(VirtualFrame frame, PFileIO self, Object sizeObj,
+                        @Cached IONodes.RaiseUnsupportedOperationNode raiseUnsupportedNode,
+                        @Cached IONodes.GetChannelNode getChannelNode,
+                        @CachedLibrary(limit = "2") PythonObjectLibrary lib) {
+            checkWritable(frame, this, self, raiseUnsupportedNode);
+            Channel channel = getChannelNode.execute(frame, self);
+            if (!(channel instanceof SeekableByteChannel)) {
+                throw raiseOSError(frame, OSErrorEnum.EINVAL);
+            }
+            try {
+                long size = PGuards.isPNone(sizeObj) ? PFileIO.tell(channel) : lib.asJavaLong(sizeObj);
+                PFileIO.truncate(channel, size);
+                return size;
+            } catch (Exception e) {
+                throw raiseOSError(frame, e);
+            }
+        }
+    }
+
+    @Builtin(name = "close", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class CloseNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        PNone close(PFileIO self) {
+            if (!self.isClosed()) {
+                int fd = self.markClosed();
+                if (fd >= 0) {
+                    getContext().getResources().close(fd);
+                }
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "flush", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class FlushNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        PNone flush(PFileIO self) {
+            checkClosed(this, self);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "fileno", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class FilenoNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        int fileno(PFileIO self) {
+            checkClosed(this, self);
+            return self.getFd();
+        }
+    }
+
+    @Builtin(name = "isatty", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class IsattyNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        boolean isatty(PFileIO self) {
+            checkClosed(this, self);
+            int fd = self.getFd();
+            return fd <= 2 && PosixModuleBuiltins.terminalIsInteractive(getContext());
+        }
+    }
+
+    @Builtin(name = "readable", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class ReadableNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        boolean readable(PFileIO self) {
+            checkClosed(this, self);
+            return self.isReadable();
+        }
+    }
+
+    @Builtin(name = "writable", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class WritableNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        boolean writable(PFileIO self) {
+            checkClosed(this, self);
+            return self.isWritable();
+        }
+    }
+
+    @Builtin(name = "seekable", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class SeekableNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        boolean seekable(VirtualFrame frame, PFileIO self,
+                        @Cached IONodes.GetChannelNode getChannelNode) {
+            checkClosed(this, self);
+            return getChannelNode.execute(frame, self) instanceof SeekableByteChannel;
+        }
+    }
+
+    @Builtin(name = "closed", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class ClosedNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        static boolean closed(PFileIO self) {
+            return self.isClosed();
+        }
+    }
+
+    @Builtin(name = "closefd", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class CloseFdNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        static boolean closefd(PFileIO self) {
+            return self.isCloseFd();
+        }
+    }
+
+    @Builtin(name = "mode", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class ModeNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        static String mode(PFileIO self) {
+            return self.getMode();
+        }
+    }
+
+    @Builtin(name = "_blksize", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class BlksizeNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        static int blksize(@SuppressWarnings("unused") PFileIO self) {
+            return PBuffered.DEFAULT_BUFFER_SIZE;
+        }
+    }
+}
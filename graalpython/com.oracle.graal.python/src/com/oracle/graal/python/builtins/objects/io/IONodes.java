@@ -0,0 +1,556 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.io;
+
+import static com.oracle.graal.python.builtins.objects.io.PFileIO.SEEK_CUR;
+
+import java.nio.channels.Channel;
+import java.nio.channels.SeekableByteChannel;
+
+import com.oracle.graal.python.PythonLanguage;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.bytes.BytesNodes;
+import com.oracle.graal.python.builtins.objects.bytes.PByteArray;
+import com.oracle.graal.python.builtins.objects.exception.OSErrorEnum;
+import com.oracle.graal.python.builtins.objects.exception.PBaseException;
+import com.oracle.graal.python.builtins.objects.function.PArguments;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.nodes.PNodeWithContext;
+import com.oracle.graal.python.nodes.PRaiseNode;
+import com.oracle.graal.python.nodes.PRaiseOSErrorNode;
+import com.oracle.graal.python.nodes.SpecialMethodNames;
+import com.oracle.graal.python.nodes.attributes.GetAttributeNode;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.call.special.LookupAndCallTernaryNode;
+import com.oracle.graal.python.runtime.PythonContext;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.graal.python.runtime.object.PythonObjectFactory;
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+import com.oracle.graal.python.util.PythonUtils;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.CachedContext;
+import com.oracle.truffle.api.dsl.CachedLanguage;
+import com.oracle.truffle.api.dsl.ImportStatic;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.library.CachedLibrary;
+import com.oracle.truffle.api.profiles.BranchProfile;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+import com.oracle.truffle.api.profiles.ValueProfile;
+
+/**
+ * Nodes shared by the builtin {@code _io} classes. The raw stream accessors have a fast path for
+ * an exact {@code FileIO} raw stream, which goes straight to the NIO channel of the file
+ * descriptor, and a generic path which calls the raw stream's methods.
+ */
+public abstract class IONodes {
+    public static final String UNSUPPORTED_OPERATION = "UnsupportedOperation";
+
+    public static final String READ = "read";
+    public static final String WRITE = "write";
+    public static final String SEEK = "seek";
+    public static final String TELL = "tell";
+    public static final String CLOSED = "closed";
+    public static final String CLOSE = "close";
+    public static final String FLUSH = "flush";
+    public static final String TRUNCATE = "truncate";
+    public static final String FILENO = "fileno";
+    public static final String ISATTY = "isatty";
+    public static final String READABLE = "readable";
+    public static final String WRITABLE = "writable";
+    public static final String SEEKABLE = "seekable";
+    public static final String NAME = "name";
+    public static final String MODE = "mode";
+
+    /**
+     * Raises {@code io.UnsupportedOperation}, which is defined in {@code _io.py}.
+     */
+    public abstract static class RaiseUnsupportedOperationNode extends PNodeWithContext {
+        public abstract PException execute(VirtualFrame frame, String message);
+
+        @Specialization
+        static PException raise(VirtualFrame frame, String message,
+                        @CachedContext(PythonLanguage.class) PythonContext context,
+                        @CachedLanguage PythonLanguage language,
+                        @Cached CallNode callNode,
+                        @Cached PRaiseNode raiseNode) {
+            Object type = context.getCore().lookupBuiltinModule("_io").getAttribute(UNSUPPORTED_OPERATION);
+            Object exception = callNode.execute(frame, type, message);
+            throw raiseNode.raiseExceptionObject((PBaseException) exception, language);
+        }
+    }
+
+    /**
+     * Returns the channel of a {@code FileIO} object or raises {@code OSError(EBADF)}.
+     */
+    public abstract static class GetChannelNode extends PNodeWithContext {
+        public abstract Channel execute(VirtualFrame frame, PFileIO file);
+
+        @Specialization
+        static Channel get(VirtualFrame frame, PFileIO file,
+                        @Cached("createClassProfile()") ValueProfile channelProfile,
+                        @Cached BranchProfile errorProfile,
+                        @Cached PRaiseOSErrorNode raiseOSErrorNode,
+                        @CachedContext(PythonLanguage.class) PythonContext context) {
+            Channel channel = context.getResources().getFileChannel(file.getFd(), channelProfile);
+            if (channel == null) {
+                errorProfile.enter();
+                throw raiseOSErrorNode.raiseOSError(frame, OSErrorEnum.EBADF);
+            }
+            return channel;
+        }
+    }
+
+    /**
+     * Copies the first {@code n} bytes of {@code data} to the beginning of a writable buffer object
+     * like a {@code bytearray} or a {@code memoryview}.
+     */
+    @ImportStatic(SpecialMethodNames.class)
+    public abstract static class CopyToBufferNode extends PNodeWithContext {
+        public abstract void execute(VirtualFrame frame, Object buffer, byte[] data, int n);
+
+        @Specialization(guards = "isByteStorage(buffer)")
+        static void doByteArray(PByteArray buffer, byte[] data, int n) {
+            PythonUtils.arraycopy(data, 0, ((ByteSequenceStorage) buffer.getSequenceStorage()).getInternalByteArray(), 0, n);
+        }
+
+        @Specialization(guards = "!isByteArrayWithByteStorage(buffer)")
+        static void doGeneric(VirtualFrame frame, Object buffer, byte[] data, int n,
+                        @Cached("create(__SETITEM__)") LookupAndCallTernaryNode setItemNode,
+                        @Cached PythonObjectFactory factory) {
+            setItemNode.execute(frame, buffer, factory.createIntSlice(0, n, 1), factory.createBytes(new ByteSequenceStorage(data, n)));
+        }
+
+        static boolean isByteStorage(PByteArray buffer) {
+            return buffer.getSequenceStorage() instanceof ByteSequenceStorage;
+        }
+
+        static boolean isByteArrayWithByteStorage(Object buffer) {
+            return buffer instanceof PByteArray && isByteStorage((PByteArray) buffer);
+        }
+    }
+
+    /**
+     * Reads at most {@code len} bytes from the raw stream into {@code dst}. Returns the number of
+     * bytes read, {@code 0} at the end of the stream, or {@code -1} if a non-blocking raw stream
+     * has no data available.
+     */
+    @ImportStatic(IONodes.class)
+    public abstract static class RawReadNode extends PNodeWithContext {
+        public abstract int execute(VirtualFrame frame, PBuffered self, byte[] dst, int off, int len);
+
+        @Specialization(guards = "self.getFileRaw() != null")
+        static int doFileIO(VirtualFrame frame, PBuffered self, byte[] dst, int off, int len,
+                        @Cached GetChannelNode getChannelNode,
+                        @Cached PRaiseOSErrorNode raiseOSErrorNode) {
+            Channel channel = getChannelNode.execute(frame, self.getFileRaw());
+            try {
+                return PFileIO.readInto(channel, dst, off, len);
+            } catch (Exception e) {
+                throw raiseOSErrorNode.raiseOSError(frame, e);
+            }
+        }
+
+        @Specialization(guards = "self.getFileRaw() == null")
+        static int doGeneric(VirtualFrame frame, PBuffered self, byte[] dst, int off, int len,
+                        @Cached("create(READ)") GetAttributeNode getReadNode,
+                        @Cached CallNode callNode,
+                        @Cached("createBinaryProfile()") ConditionProfile noneProfile,
+                        @Cached BytesNodes.ToBytesNode toBytesNode) {
+            Object result = callNode.execute(frame, getReadNode.executeObject(frame, self.getRaw()), len);
+            if (noneProfile.profile(result == PNone.NONE)) {
+                return -1;
+            }
+            byte[] data = toBytesNode.execute(frame, result);
+            int n = Math.min(data.length, len);
+            PythonUtils.arraycopy(data, 0, dst, off, n);
+            return n;
+        }
+    }
+
+    /**
+     * Writes all {@code len} bytes from {@code src} to the raw stream.
+     */
+    @ImportStatic(IONodes.class)
+    public abstract static class RawWriteNode extends PNodeWithContext {
+        public abstract void execute(VirtualFrame frame, PBuffered self, byte[] src, int off, int len);
+
+        @Specialization(guards = "self.getFileRaw() != null")
+        static void doFileIO(VirtualFrame frame, PBuffered self, byte[] src, int off, int len,
+                        @Cached GetChannelNode getChannelNode,
+                        @Cached PRaiseOSErrorNode raiseOSErrorNode) {
+            Channel channel = getChannelNode.execute(frame, self.getFileRaw());
+            try {
+                PFileIO.writeFully(channel, src, off, len);
+            } catch (Exception e) {
+                throw raiseOSErrorNode.raiseOSError(frame, e);
+            }
+        }
+
+        @Specialization(guards = "self.getFileRaw() == null")
+        static void doGeneric(VirtualFrame frame, PBuffered self, byte[] src, int off, int len,
+                        @Cached("create(WRITE)") GetAttributeNode getWriteNode,
+                        @Cached CallNode callNode,
+                        @Cached PythonObjectFactory factory,
+                        @Cached PRaiseOSErrorNode raiseOSErrorNode,
+                        @CachedLibrary(limit = "2") PythonObjectLibrary lib) {
+            int written = 0;
+            while (written < len) {
+                byte[] chunk = new byte[len - written];
+                PythonUtils.arraycopy(src, off + written, chunk, 0, chunk.length);
+                Object result = callNode.execute(frame, getWriteNode.executeObject(frame, self.getRaw()), factory.createBytes(chunk));
+                if (result == PNone.NONE) {
+                    throw raiseOSErrorNode.raiseOSError(frame, OSErrorEnum.EAGAIN);
+                }
+                written += lib.asSizeWithState(result, PArguments.getThreadState(frame));
+            }
+        }
+    }
+
+    @ImportStatic(IONodes.class)
+    public abstract static class RawSeekNode extends PNodeWithContext {
+        public abstract long execute(VirtualFrame frame, PBuffered self, long pos, int whence);
+
+        @Specialization(guards = "self.getFileRaw() != null")
+        static long doFileIO(VirtualFrame frame, PBuffered self, long pos, int whence,
+                        @Cached GetChannelNode getChannelNode,
+                        @Cached PRaiseOSErrorNode raiseOSErrorNode) {
+            Channel channel = getChannelNode.execute(frame, self.getFileRaw());
+            if (!(channel instanceof SeekableByteChannel)) {
+                throw raiseOSErrorNode.raiseOSError(frame, OSErrorEnum.ESPIPE);
+            }
+            try {
+                return PFileIO.seek(channel, pos, whence);
+            } catch (Exception e) {
+                throw raiseOSErrorNode.raiseOSError(frame, e);
+            }
+        }
+
+        @Specialization(guards = "self.getFileRaw() == null")
+        static long doGeneric(VirtualFrame frame, PBuffered self, long pos, int whence,
+                        @Cached("create(SEEK)") GetAttributeNode getSeekNode,
+                        @Cached CallNode callNode,
+                        @CachedLibrary(limit = "2") PythonObjectLibrary lib) {
+            Object result = callNode.execute(frame, getSeekNode.executeObject(frame, self.getRaw()), pos, whence);
+            return lib.asJavaLong(result);
+        }
+    }
+
+    @ImportStatic(IONodes.class)
+    public abstract static class RawTellNode extends PNodeWithContext {
+        public abstract long execute(VirtualFrame frame, PBuffered self);
+
+        @Specialization(guards = "self.getFileRaw() != null")
+        static long doFileIO(VirtualFrame frame, PBuffered self,
+                        @Cached GetChannelNode getChannelNode,
+                        @Cached PRaiseOSErrorNode raiseOSErrorNode) {
+            Channel channel = getChannelNode.execute(frame, self.getFileRaw());
+            if (!(channel instanceof SeekableByteChannel)) {
+                throw raiseOSErrorNode.raiseOSError(frame, OSErrorEnum.ESPIPE);
+            }
+            try {
+                return PFileIO.tell(channel);
+            } catch (Exception e) {
+                throw raiseOSErrorNode.raiseOSError(frame, e);
+            }
+        }
+
+        @Specialization(guards = "self.getFileRaw() == null")
+        static long doGeneric(VirtualFrame frame, PBuffered self,
+                        @Cached("create(TELL)") GetAttributeNode getTellNode,
+                        @Cached CallNode callNode,
+                        @CachedLibrary(limit = "2") PythonObjectLibrary lib) {
+            return lib.asJavaLong(callNode.execute(frame, getTellNode.executeObject(frame, self.getRaw())));
+        }
+    }
+
+    /**
+     * Checks whether the raw stream of a buffered object is closed.
+     */
+    @ImportStatic(IONodes.class)
+    public abstract static class IsRawClosedNode extends PNodeWithContext {
+        public abstract boolean execute(VirtualFrame frame, PBuffered self);
+
+        @Specialization(guards = "self.getFileRaw() != null")
+        static boolean doFileIO(PBuffered self) {
+            return self.getFileRaw().isClosed();
+        }
+
+        @Specialization(guards = "self.getFileRaw() == null")
+        static boolean doGeneric(VirtualFrame frame, PBuffered self,
+                        @Cached("create(CLOSED)") GetAttributeNode getClosedNode,
+                        @CachedLibrary(limit = "2") PythonObjectLibrary lib) {
+            return lib.isTrueWithState(getClosedNode.executeObject(frame, self.getRaw()), PArguments.getThreadState(frame));
+        }
+    }
+
+    /**
+     * Writes the pending bytes of the write buffer to the raw stream.
+     */
+    public abstract static class FlushWriteBufferNode extends PNodeWithContext {
+        public abstract void execute(VirtualFrame frame, PBuffered self);
+
+        @Specialization
+        static void flush(VirtualFrame frame, PBuffered self,
+                        @Cached("createBinaryProfile()") ConditionProfile pendingProfile,
+                        @Cached RawWriteNode rawWriteNode) {
+            if (pendingProfile.profile(self.isWritable() && self.getWriteEnd() > 0)) {
+                int n = self.getWriteEnd();
+                // reset first so that a failing write does not leave duplicated data behind
+                self.resetWrite();
+                rawWriteNode.execute(frame, self, self.getWriteBuffer(), 0, n);
+            }
+        }
+    }
+
+    /**
+     * Drops the read-ahead bytes and moves the raw stream back to the logical position. This is
+     * needed before a {@code BufferedRandom} writes.
+     */
+    public abstract static class RewindReadBufferNode extends PNodeWithContext {
+        public abstract void execute(VirtualFrame frame, PBuffered self);
+
+        @Specialization
+        static void rewind(VirtualFrame frame, PBuffered self,
+                        @Cached("createBinaryProfile()") ConditionProfile bufferedProfile,
+                        @Cached RawSeekNode rawSeekNode) {
+            if (bufferedProfile.profile(self.isReadable() && self.getAvailable() > 0)) {
+                int available = self.getAvailable();
+                self.resetRead();
+                rawSeekNode.execute(frame, self, -available, SEEK_CUR);
+            } else if (self.isReadable()) {
+                self.resetRead();
+            }
+        }
+    }
+
+    /**
+     * Refills the read buffer with a single raw read. Returns the result of the raw read.
+     */
+    public abstract static class FillReadBufferNode extends PNodeWithContext {
+        public abstract int execute(VirtualFrame frame, PBuffered self);
+
+        @Specialization
+        static int fill(VirtualFrame frame, PBuffered self,
+                        @Cached RawReadNode rawReadNode) {
+            self.resetRead();
+            int n = rawReadNode.execute(frame, self, self.getReadBuffer(), 0, self.getBufferSize());
+            if (n > 0) {
+                self.setReadRange(0, n);
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Implements {@code read(size)} for {@code size >= 0}. Returns {@code None} if a non-blocking
+     * raw stream has no data and nothing was buffered.
+     */
+    public abstract static class BufferedReadNode extends PNodeWithContext {
+        public abstract Object execute(VirtualFrame frame, PBuffered self, int size);
+
+        @Specialization
+        static Object read(VirtualFrame frame, PBuffered self, int size,
+                        @Cached("createBinaryProfile()") ConditionProfile bufferedProfile,
+                        @Cached RawReadNode rawReadNode,
+                        @Cached FillReadBufferNode fillNode,
+                        @Cached PythonObjectFactory factory) {
+            int available = self.getAvailable();
+            if (bufferedProfile.profile(size <= available)) {
+                byte[] result = new byte[size];
+                self.consume(result, 0, size);
+                return factory.createBytes(result);
+            }
+            byte[] result = new byte[size];
+            self.consume(result, 0, available);
+            int n = available;
+            self.resetRead();
+            while (n < size) {
+                int remaining = size - n;
+                int r;
+                if (remaining >= self.getBufferSize()) {
+                    // large reads go directly into the result
+                    r = rawReadNode.execute(frame, self, result, n, remaining);
+                    if (r > 0) {
+                        n += r;
+                    }
+                } else {
+                    r = fillNode.execute(frame, self);
+                    if (r > 0) {
+                        int take = Math.min(r, remaining);
+                        self.consume(result, n, take);
+                        n += take;
+                    }
+                }
+                if (r <= 0) {
+                    if (r < 0 && n == 0) {
+                        return PNone.NONE;
+                    }
+                    break;
+                }
+            }
+            return factory.createBytes(new ByteSequenceStorage(result, n));
+        }
+    }
+
+    /**
+     * Implements {@code read()} and {@code read(-1)}: returns the buffered bytes followed by
+     * everything the raw stream delivers until the end of the stream.
+     */
+    public abstract static class BufferedReadAllNode extends PNodeWithContext {
+        public abstract Object execute(VirtualFrame frame, PBuffered self);
+
+        @Specialization(guards = "self.getFileRaw() != null")
+        static Object doFileIO(VirtualFrame frame, PBuffered self,
+                        @Cached GetChannelNode getChannelNode,
+                        @Cached PRaiseOSErrorNode raiseOSErrorNode,
+                        @Cached PythonObjectFactory factory) {
+            int available = self.getAvailable();
+            Channel channel = getChannelNode.execute(frame, self.getFileRaw());
+            byte[] rest;
+            try {
+                rest = PFileIO.readAll(channel, self.getBufferSize());
+            } catch (Exception e) {
+                throw raiseOSErrorNode.raiseOSError(frame, e);
+            }
+            if (available == 0) {
+                return factory.createBytes(rest);
+            }
+            byte[] result = new byte[available + rest.length];
+            self.consume(result, 0, available);
+            self.resetRead();
+            PythonUtils.arraycopy(rest, 0, result, available, rest.length);
+            return factory.createBytes(result);
+        }
+
+        @Specialization(guards = "self.getFileRaw() == null")
+        static Object doGeneric(VirtualFrame frame, PBuffered self,
+                        @Cached RawReadNode rawReadNode,
+                        @Cached PythonObjectFactory factory) {
+            int available = self.getAvailable();
+            byte[] result = new byte[Math.max(available * 2, self.getBufferSize())];
+            self.consume(result, 0, available);
+            self.resetRead();
+            int n = available;
+            while (true) {
+                if (n == result.length) {
+                    byte[] bigger = new byte[result.length * 2];
+                    PythonUtils.arraycopy(result, 0, bigger, 0, n);
+                    result = bigger;
+                }
+                int r = rawReadNode.execute(frame, self, result, n, result.length - n);
+                if (r <= 0) {
+                    if (r < 0 && n == 0) {
+                        return PNone.NONE;
+                    }
+                    break;
+                }
+                n += r;
+            }
+            return factory.createBytes(new ByteSequenceStorage(result, n));
+        }
+    }
+
+    /**
+     * Implements {@code readline(limit)}. The buffer is scanned for the line end in compiled code
+     * and complete lines are copied out of the buffer in one step.
+     */
+    public abstract static class BufferedReadlineNode extends PNodeWithContext {
+        public abstract byte[] execute(VirtualFrame frame, PBuffered self, int limit);
+
+        @Specialization
+        static byte[] readline(VirtualFrame frame, PBuffered self, int limit,
+                        @Cached("createBinaryProfile()") ConditionProfile foundInBufferProfile,
+                        @Cached FillReadBufferNode fillNode) {
+            byte[] buffer = self.getReadBuffer();
+            int start = self.getReadPos();
+            int end = Math.min(self.getReadEnd(), limit < 0 ? Integer.MAX_VALUE : start + limit);
+            int idx = indexOfNewline(buffer, start, end);
+            if (foundInBufferProfile.profile(idx >= 0 || (limit >= 0 && end - start >= limit))) {
+                int n = (idx >= 0 ? idx + 1 : end) - start;
+                byte[] line = new byte[n];
+                self.consume(line, 0, n);
+                return line;
+            }
+            // the line spans several buffer fills
+            int available = self.getAvailable();
+            byte[] acc = new byte[Math.max(available * 2, self.getBufferSize())];
+            self.consume(acc, 0, available);
+            int accLen = available;
+            while (limit < 0 || accLen < limit) {
+                if (fillNode.execute(frame, self) <= 0) {
+                    break;
+                }
+                int scanEnd = self.getReadEnd();
+                if (limit >= 0) {
+                    scanEnd = Math.min(scanEnd, limit - accLen);
+                }
+                idx = indexOfNewline(buffer, 0, scanEnd);
+                int take = idx >= 0 ? idx + 1 : scanEnd;
+                if (accLen + take > acc.length) {
+                    byte[] bigger = new byte[Math.max(acc.length * 2, accLen + take)];
+                    PythonUtils.arraycopy(acc, 0, bigger, 0, accLen);
+                    acc = bigger;
+                }
+                self.consume(acc, accLen, take);
+                accLen += take;
+                if (idx >= 0) {
+                    break;
+                }
+            }
+            if (accLen == acc.length) {
+                return acc;
+            }
+            byte[] line = new byte[accLen];
+            PythonUtils.arraycopy(acc, 0, line, 0, accLen);
+            return line;
+        }
+
+        private static int indexOfNewline(byte[] buffer, int start, int end) {
+            for (int i = start; i < end; i++) {
+                if (buffer[i] == '\n') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
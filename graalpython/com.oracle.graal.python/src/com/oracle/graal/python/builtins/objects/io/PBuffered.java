@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.io;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.oracle.graal.python.builtins.objects.object.PythonBuiltinObject;
+import com.oracle.graal.python.util.PythonUtils;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.object.DynamicObject;
+
+/**
+ * Common state of {@code _io.BufferedReader}, {@code _io.BufferedWriter} and
+ * {@code _io.BufferedRandom}. The read buffer holds the bytes {@code [readPos, readEnd)} that were
+ * already read from the raw stream but not yet consumed; the write buffer holds
+ * {@code [0, writeEnd)} bytes that still need to be written to the raw stream. At most one of the
+ * two buffers is non-empty at any time, so the logical position is
+ * {@code rawPosition - (readEnd - readPos) + writeEnd}.
+ * <p>
+ * There is no GIL, so every operation that touches the buffers or the raw stream must run between
+ * {@link #enter()} and {@link #leave()}, like {@code ENTER_BUFFERED}/{@code LEAVE_BUFFERED} in
+ * CPython.
+ */
+public final class PBuffered extends PythonBuiltinObject {
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final boolean readable;
+    private final boolean writable;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Object raw;
+    /** The raw stream if it is an exact {@code FileIO}, which allows to bypass method calls. */
+    private PFileIO fileRaw;
+    private boolean detached;
+
+    private int bufferSize;
+    private byte[] readBuffer;
+    private int readPos;
+    private int readEnd;
+    private byte[] writeBuffer;
+    private int writeEnd;
+
+    public PBuffered(Object cls, DynamicObject storage, boolean readable, boolean writable) {
+        super(cls, storage);
+        this.readable = readable;
+        this.writable = writable;
+    }
+
+    public void init(Object raw, PFileIO fileRaw, int bufferSize) {
+        this.raw = raw;
+        this.fileRaw = fileRaw;
+        this.detached = false;
+        this.bufferSize = bufferSize;
+        this.readBuffer = readable ? new byte[bufferSize] : null;
+        this.writeBuffer = writable ? new byte[bufferSize] : null;
+        this.readPos = 0;
+        this.readEnd = 0;
+        this.writeEnd = 0;
+    }
+
+    /**
+     * Detaches the raw stream and returns it.
+     */
+    public Object detach() {
+        Object result = raw;
+        raw = null;
+        fileRaw = null;
+        detached = true;
+        readBuffer = null;
+        writeBuffer = null;
+        readPos = readEnd = writeEnd = 0;
+        return result;
+    }
+
+    /**
+     * Acquires the lock of this object. Returns {@code false} without acquiring it if the current
+     * thread already holds it, i.e., if the call is reentrant, e.g. from a signal handler that
+     * prints while the main thread is in the middle of a write.
+     */
+    @TruffleBoundary
+    public boolean enter() {
+        if (lock.isHeldByCurrentThread()) {
+            return false;
+        }
+        lock.lock();
+        return true;
+    }
+
+    @TruffleBoundary
+    public void leave() {
+        lock.unlock();
+    }
+
+    public boolean isReadable() {
+        return readable;
+    }
+
+    public boolean isWritable() {
+        return writable;
+    }
+
+    public Object getRaw() {
+        return raw;
+    }
+
+    public PFileIO getFileRaw() {
+        return fileRaw;
+    }
+
+    public boolean isDetached() {
+        return detached;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public byte[] getReadBuffer() {
+        return readBuffer;
+    }
+
+    public int getReadPos() {
+        return readPos;
+    }
+
+    public int getReadEnd() {
+        return readEnd;
+    }
+
+    /**
+     * Number of bytes that are buffered for reading.
+     */
+    public int getAvailable() {
+        return readEnd - readPos;
+    }
+
+    public void setReadPos(int readPos) {
+        this.readPos = readPos;
+    }
+
+    public void setReadRange(int readPos, int readEnd) {
+        this.readPos = readPos;
+        this.readEnd = readEnd;
+    }
+
+    public void resetRead() {
+        readPos = 0;
+        readEnd = 0;
+    }
+
+    /**
+     * Copies {@code n} buffered bytes to {@code dst} and consumes them.
+     */
+    public void consume(byte[] dst, int off, int n) {
+        PythonUtils.arraycopy(readBuffer, readPos, dst, off, n);
+        readPos += n;
+    }
+
+    public byte[] getWriteBuffer() {
+        return writeBuffer;
+    }
+
+    public int getWriteEnd() {
+        return writeEnd;
+    }
+
+    public void resetWrite() {
+        writeEnd = 0;
+    }
+
+    /**
+     * Appends {@code n} bytes to the write buffer. The caller must ensure that they fit.
+     */
+    public void append(byte[] src, int off, int n) {
+        PythonUtils.arraycopy(src, off, writeBuffer, writeEnd, n);
+        writeEnd += n;
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.NonReadableChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import com.oracle.graal.python.builtins.objects.object.PythonBuiltinObject;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.object.DynamicObject;
+
+/**
+ * A raw file object ({@code _io.FileIO}). The object only records the file descriptor and the
+ * mode; the I/O helpers operate on the NIO channel that is registered for the descriptor in
+ * {@link com.oracle.graal.python.runtime.PosixResources} at the time of the call, so that
+ * {@code dup2} and friends are respected.
+ */
+public final class PFileIO extends PythonBuiltinObject {
+    public static final int SEEK_SET = 0;
+    public static final int SEEK_CUR = 1;
+    public static final int SEEK_END = 2;
+
+    private int fd = -1;
+    private boolean readable;
+    private boolean writable;
+    private boolean created;
+    private boolean appending;
+    private boolean closefd = true;
+
+    public PFileIO(Object cls, DynamicObject storage) {
+        super(cls, storage);
+    }
+
+    public void setMode(boolean readable, boolean writable, boolean created, boolean appending) {
+        this.readable = readable;
+        this.writable = writable;
+        this.created = created;
+        this.appending = appending;
+    }
+
+    public void setFd(int fd, boolean closefd) {
+        this.fd = fd;
+        this.closefd = closefd;
+    }
+
+    /**
+     * Marks this file as closed and returns the file descriptor that has to be released, or
+     * {@code -1} if the descriptor is not owned by this object.
+     */
+    public int markClosed() {
+        int result = closefd ? fd : -1;
+        fd = -1;
+        return result;
+    }
+
+    public int getFd() {
+        return fd;
+    }
+
+    public boolean isClosed() {
+        return fd < 0;
+    }
+
+    public boolean isReadable() {
+        return readable;
+    }
+
+    public boolean isWritable() {
+        return writable;
+    }
+
+    public boolean isAppending() {
+        return appending;
+    }
+
+    public boolean isCloseFd() {
+        return closefd;
+    }
+
+    public String getMode() {
+        if (created) {
+            return readable ? "xb+" : "xb";
+        }
+        if (appending) {
+            return readable ? "ab+" : "ab";
+        } else if (readable) {
+            return writable ? "rb+" : "rb";
+        } else {
+            return "wb";
+        }
+    }
+
+    /**
+     * Reads at most {@code len} bytes into {@code dst} starting at {@code off}. Returns the number
+     * of bytes read, which is {@code 0} at the end of the file.
+     */
+    @TruffleBoundary(allowInlining = true, transferToInterpreterOnException = false)
+    public static int readInto(Channel channel, byte[] dst, int off, int len) throws IOException {
+        if (!(channel instanceof ReadableByteChannel)) {
+            throw new NonReadableChannelException();
+        }
+        int n = ((ReadableByteChannel) channel).read(ByteBuffer.wrap(dst, off, len));
+        return n < 0 ? 0 : n;
+    }
+
+    /**
+     * Reads until the end of the file is reached.
+     */
+    @TruffleBoundary
+    public static byte[] readAll(Channel channel, int chunkSize) throws IOException {
+        if (!(channel instanceof ReadableByteChannel)) {
+            throw new NonReadableChannelException();
+        }
+        ReadableByteChannel ch = (ReadableByteChannel) channel;
+        int initial = chunkSize;
+        if (channel instanceof SeekableByteChannel) {
+            SeekableByteChannel sch = (SeekableByteChannel) channel;
+            long remaining = sch.size() - sch.position();
+            if (remaining > 0 && remaining < Integer.MAX_VALUE - 1) {
+                // one extra byte so that we only need a single read to detect EOF
+                initial = (int) remaining + 1;
+            }
+        }
+        ByteBuffer buf = ByteBuffer.allocate(initial);
+        while (true) {
+            if (!buf.hasRemaining()) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(buf.capacity() * 2, chunkSize));
+                buf.flip();
+                bigger.put(buf);
+                buf = bigger;
+            }
+            if (ch.read(buf) <= 0) {
+                break;
+            }
+        }
+        byte[] result = new byte[buf.position()];
+        buf.flip();
+        buf.get(result);
+        return result;
+    }
+
+    @TruffleBoundary(allowInlining = true, transferToInterpreterOnException = false)
+    public static int write(Channel channel, byte[] src, int off, int len) throws IOException {
+        if (!(channel instanceof WritableByteChannel)) {
+            throw new NonWritableChannelException();
+        }
+        return ((WritableByteChannel) channel).write(ByteBuffer.wrap(src, off, len));
+    }
+
+    /**
+     * Writes all {@code len} bytes, retrying on partial writes.
+     */
+    @TruffleBoundary(allowInlining = true, transferToInterpreterOnException = false)
+    public static void writeFully(Channel channel, byte[] src, int off, int len) throws IOException {
+        if (!(channel instanceof WritableByteChannel)) {
+            throw new NonWritableChannelException();
+        }
+        ByteBuffer buf = ByteBuffer.wrap(src, off, len);
+        WritableByteChannel ch = (WritableByteChannel) channel;
+        while (buf.hasRemaining()) {
+            ch.write(buf);
+        }
+    }
+
+    @TruffleBoundary(allowInlining = true, transferToInterpreterOnException = false)
+    public static long seek(Channel channel, long pos, int whence) throws IOException {
+        SeekableByteChannel fc = (SeekableByteChannel) channel;
+        switch (whence) {
+            case SEEK_CUR:
+                fc.position(fc.position() + pos);
+                break;
+            case SEEK_END:
+                fc.position(fc.size() + pos);
+                break;
+            case SEEK_SET:
+                fc.position(pos);
+                break;
+            default:
+                throw new IllegalArgumentException();
+        }
+        return fc.position();
+    }
+
+    @TruffleBoundary(allowInlining = true, transferToInterpreterOnException = false)
+    public static long tell(Channel channel) throws IOException {
+        return ((SeekableByteChannel) channel).position();
+    }
+
+    @TruffleBoundary(allowInlining = true, transferToInterpreterOnException = false)
+    public static void truncate(Channel channel, long size) throws IOException {
+        SeekableByteChannel fc = (SeekableByteChannel) channel;
+        long pos = fc.position();
+        if (size > fc.size()) {
+            // extend the file like ftruncate(2) does
+            fc.position(size - 1);
+            fc.write(ByteBuffer.wrap(new byte[1]));
+        } else {
+            fc.truncate(size);
+        }
+        fc.position(pos);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.itertools;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__ITER__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__NEXT__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__REDUCE__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__SETSTATE__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.StopIteration;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.common.SequenceNodes.GetObjectArrayNode;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.builtins.objects.tuple.PTuple;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.util.PythonUtils;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.library.CachedLibrary;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PProduct)
+public final class ProductBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return ProductBuiltinsFactory.getFactories();
+    }
+
+    @Builtin(name = __ITER__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class IterNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static PProduct iter(PProduct self) {
+            return self;
+        }
+    }
+
+    @Builtin(name = __NEXT__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class NextNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        PTuple next(PProduct self,
+                        @Cached("createBinaryProfile()") ConditionProfile firstProfile) {
+            if (self.isStopped()) {
+                throw raise(StopIteration);
+            }
+            Object[][] pools = self.getPools();
+            Object[] result = self.getResult();
+            if (firstProfile.profile(result == null)) {
+                result = new Object[pools.length];
+                for (int i = 0; i < pools.length; i++) {
+                    result[i] = pools[i][0];
+                }
+                self.setResult(result);
+            } else {
+                int[] indices = self.getIndices();
+                // advance the rightmost pool and carry over to the left like an odometer
+                int i = pools.length - 1;
+                for (; i >= 0; i--) {
+                    Object[] pool = pools[i];
+                    indices[i]++;
+                    if (indices[i] == pool.length) {
+                        indices[i] = 0;
+                        result[i] = pool[0];
+                    } else {
+                        result[i] = pool[indices[i]];
+                        break;
+                    }
+                }
+                if (i < 0) {
+                    self.setStopped(true);
+                    throw raise(StopIteration);
+                }
+            }
+            Object[] items = new Object[result.length];
+            PythonUtils.arraycopy(result, 0, items, 0, result.length);
+            return factory().createTuple(items);
+        }
+    }
+
+    @Builtin(name = __REDUCE__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class ReduceNode extends PythonUnaryBuiltinNode {
+        @Specialization(limit = "1")
+        PTuple reduce(PProduct self,
+                        @CachedLibrary("self") PythonObjectLibrary lib) {
+            Object type = lib.getLazyPythonClass(self);
+            if (self.isStopped()) {
+                return factory().createTuple(new Object[]{type, factory().createTuple(new Object[]{factory().createEmptyTuple()})});
+            }
+            Object[][] pools = self.getPools();
+            Object[] poolTuples = new Object[pools.length];
+            for (int i = 0; i < pools.length; i++) {
+                poolTuples[i] = factory().createTuple(pools[i]);
+            }
+            PTuple args = factory().createTuple(poolTuples);
+            if (self.getResult() == null) {
+                return factory().createTuple(new Object[]{type, args});
+            }
+            int[] indices = self.getIndices();
+            Object[] state = new Object[indices.length];
+            for (int i = 0; i < indices.length; i++) {
+                state[i] = indices[i];
+            }
+            return factory().createTuple(new Object[]{type, args, factory().createTuple(state)});
+        }
+    }
+
+    @Builtin(name = __SETSTATE__, minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    public abstract static class SetStateNode extends PythonBinaryBuiltinNode {
+        @Specialization
+        PNone setState(PProduct self, Object state,
+                        @Cached GetObjectArrayNode getObjectArrayNode,
+                        @CachedLibrary(limit = "getCallSiteInlineCacheMaxDepth()") PythonObjectLibrary lib) {
+            if (!(state instanceof PTuple)) {
+                throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.INVALID_ARGUMENTS);
+            }
+            Object[] stateItems = getObjectArrayNode.execute(state);
+            Object[][] pools = self.getPools();
+            if (stateItems.length != pools.length) {
+                throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.INVALID_ARGUMENTS);
+            }
+            int[] indices = self.getIndices();
+            Object[] result = new Object[pools.length];
+            for (int i = 0; i < pools.length; i++) {
+                Object[] pool = pools[i];
+                if (pool.length == 0) {
+                    self.setStopped(true);
+                    return PNone.NONE;
+                }
+                int index = Math.min(Math.max(lib.asSize(stateItems[i]), 0), pool.length - 1);
+                indices[i] = index;
+                result[i] = pool[index];
+            }
+            self.setResult(result);
+            return PNone.NONE;
+        }
+    }
+}
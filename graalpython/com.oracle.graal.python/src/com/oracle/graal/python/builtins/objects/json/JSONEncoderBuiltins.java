@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.json;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.ITEMS;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__CALL__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.common.HashingStorage;
+import com.oracle.graal.python.builtins.objects.common.HashingStorage.DictEntry;
+import com.oracle.graal.python.builtins.objects.common.HashingStorageLibrary;
+import com.oracle.graal.python.builtins.objects.dict.PDict;
+import com.oracle.graal.python.builtins.objects.floats.FloatBuiltins;
+import com.oracle.graal.python.builtins.objects.floats.PFloat;
+import com.oracle.graal.python.builtins.objects.ints.PInt;
+import com.oracle.graal.python.builtins.objects.list.PList;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.builtins.objects.str.PString;
+import com.oracle.graal.python.builtins.objects.tuple.PTuple;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.nodes.util.CastToJavaStringNode;
+import com.oracle.graal.python.runtime.sequence.PSequence;
+import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.JSONEncoder)
+public class JSONEncoderBuiltins extends PythonBuiltins {
+    private static final String SORT = "sort";
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return JSONEncoderBuiltinsFactory.getFactories();
+    }
+
+    /**
+     * Encodes the whole object into a single string and returns it as the only chunk, instead of
+     * accumulating a list of chunks like CPython's {@code encoder_call}.
+     */
+    @Builtin(name = __CALL__, minNumOfPositionalArgs = 3, parameterNames = {"self", "obj", "_current_indent_level"})
+    @GenerateNodeFactory
+    public abstract static class CallEncoderNode extends PythonTernaryBuiltinNode {
+
+        @Specialization
+        PList call(PJSONEncoder self, Object obj, @SuppressWarnings("unused") Object indentLevel) {
+            return factory().createList(new Object[]{encode(self, obj)});
+        }
+
+        @TruffleBoundary
+        private String encode(PJSONEncoder self, Object obj) {
+            Writer writer = new Writer(self);
+            writer.appendObject(obj);
+            return writer.builder.toString();
+        }
+
+        /**
+         * Streams the encoded object into one {@link StringBuilder}, following CPython's
+         * {@code encoder_listencode_obj}.
+         */
+        private final class Writer {
+            private final PJSONEncoder encoder;
+            private final StringBuilder builder = new StringBuilder();
+            private final Set<Object> markers;
+
+            Writer(PJSONEncoder encoder) {
+                this.encoder = encoder;
+                this.markers = encoder.isCheckCircular() ? Collections.newSetFromMap(new IdentityHashMap<>()) : null;
+            }
+
+            void appendObject(Object obj) {
+                if (obj == PNone.NONE) {
+                    builder.append("null");
+                } else if (obj == Boolean.TRUE || obj == getCore().getTrue()) {
+                    builder.append("true");
+                } else if (obj == Boolean.FALSE || obj == getCore().getFalse()) {
+                    builder.append("false");
+                } else if (obj instanceof String || obj instanceof PString) {
+                    appendString(obj);
+                } else if (obj instanceof Integer || obj instanceof Long || obj instanceof PInt) {
+                    // like int.__repr__, ignoring overrides in subclasses
+                    builder.append(obj.toString());
+                } else if (obj instanceof Double) {
+                    builder.append(floatToString((double) obj));
+                } else if (obj instanceof PFloat) {
+                    builder.append(floatToString(((PFloat) obj).getValue()));
+                } else if (obj instanceof PList || obj instanceof PTuple) {
+                    appendSequence((PSequence) obj);
+                } else if (obj instanceof PDict) {
+                    appendDict((PDict) obj);
+                } else {
+                    enter(obj);
+                    appendObject(CallNode.getUncached().execute(encoder.getDefaultFn(), obj));
+                    leave(obj);
+                }
+            }
+
+            private void appendSequence(PSequence sequence) {
+                if (sequence.getSequenceStorage().length() == 0) {
+                    builder.append("[]");
+                    return;
+                }
+                enter(sequence);
+                builder.append('[');
+                // the storage is read again for each item, since encoding may run arbitrary code
+                for (int i = 0; i < sequence.getSequenceStorage().length(); i++) {
+                    if (i > 0) {
+                        builder.append(encoder.getItemSeparator());
+                    }
+                    appendObject(sequence.getSequenceStorage().getItemNormalized(i));
+                }
+                builder.append(']');
+                leave(sequence);
+            }
+
+            private void appendDict(PDict dict) {
+                HashingStorage storage = dict.getDictStorage();
+                HashingStorageLibrary lib = HashingStorageLibrary.getUncached();
+                int len = lib.length(storage);
+                if (len == 0) {
+                    builder.append("{}");
+                    return;
+                }
+                enter(dict);
+                builder.append('{');
+                Object[] keys;
+                Object[] values;
+                if (!encoder.isSortKeys() && IsBuiltinClassProfile.getUncached().profileObject(dict, PythonBuiltinClassType.PDict)) {
+                    // take a snapshot, since encoding the values may modify the dict
+                    keys = new Object[len];
+                    values = new Object[len];
+                    int i = 0;
+                    for (DictEntry entry : lib.entries(storage)) {
+                        keys[i] = entry.getKey();
+                        values[i] = entry.getValue();
+                        i++;
+                    }
+                } else {
+                    SequenceStorage items = getItems(dict).getSequenceStorage();
+                    len = items.length();
+                    keys = new Object[len];
+                    values = new Object[len];
+                    for (int i = 0; i < len; i++) {
+                        Object item = items.getItemNormalized(i);
+                        if (!(item instanceof PTuple) || ((PTuple) item).getSequenceStorage().length() != 2) {
+                            throw raise(ValueError, ErrorMessages.ITEMS_MUST_RETURN_2_TUPLES);
+                        }
+                        keys[i] = ((PTuple) item).getSequenceStorage().getItemNormalized(0);
+                        values[i] = ((PTuple) item).getSequenceStorage().getItemNormalized(1);
+                    }
+                }
+                boolean first = true;
+                for (int i = 0; i < len; i++) {
+                    Object key = keys[i];
+                    Object keyString;
+                    if (key instanceof String || key instanceof PString) {
+                        keyString = key;
+                    } else if (key instanceof Double) {
+                        keyString = floatToString((double) key);
+                    } else if (key instanceof PFloat) {
+                        keyString = floatToString(((PFloat) key).getValue());
+                    } else if (key == Boolean.TRUE || key == getCore().getTrue()) {
+                        keyString = "true";
+                    } else if (key == Boolean.FALSE || key == getCore().getFalse()) {
+                        keyString = "false";
+                    } else if (key == PNone.NONE) {
+                        keyString = "null";
+                    } else if (key instanceof Integer || key instanceof Long || key instanceof PInt) {
+                        keyString = key.toString();
+                    } else if (encoder.isSkipKeys()) {
+                        continue;
+                    } else {
+                        throw raise(TypeError, ErrorMessages.JSON_KEYS_MUST_BE_S_NOT_P, key);
+                    }
+                    if (!first) {
+                        builder.append(encoder.getItemSeparator());
+                    }
+                    first = false;
+                    appendString(keyString);
+                    builder.append(encoder.getKeySeparator());
+                    appendObject(values[i]);
+                }
+                builder.append('}');
+                leave(dict);
+            }
+
+            /**
+             * Returns {@code list(dict.items())}, sorted if requested, like CPython's
+             * {@code PyMapping_Items}.
+             */
+            private PList getItems(PDict dict) {
+                PythonObjectLibrary lib = PythonObjectLibrary.getUncached();
+                Object itemsView = CallNode.getUncached().execute(lib.lookupAttribute(dict, ITEMS, false));
+                PList items = (PList) CallNode.getUncached().execute(getCore().lookupType(PythonBuiltinClassType.PList), itemsView);
+                if (encoder.isSortKeys()) {
+                    CallNode.getUncached().execute(lib.lookupAttribute(items, SORT, false));
+                }
+                return items;
+            }
+
+            private void appendString(Object obj) {
+                switch (encoder.getFastEncode()) {
+                    case ASCII:
+                        JSONUtils.appendString(builder, CastToJavaStringNode.getUncached().execute(obj), true);
+                        break;
+                    case Unicode:
+                        JSONUtils.appendString(builder, CastToJavaStringNode.getUncached().execute(obj), false);
+                        break;
+                    default:
+                        Object result = CallNode.getUncached().execute(encoder.getEncoder(), obj);
+                        if (!(result instanceof String || result instanceof PString)) {
+                            throw raise(TypeError, ErrorMessages.ENCODER_MUST_RETURN_STR, result);
+                        }
+                        builder.append(CastToJavaStringNode.getUncached().execute(result));
+                }
+            }
+
+            private String floatToString(double value) {
+                if (!Double.isFinite(value)) {
+                    if (!encoder.isAllowNan()) {
+                        throw raise(ValueError, ErrorMessages.OUT_OF_RANGE_FLOAT_NOT_JSON_COMPLIANT);
+                    }
+                    if (value > 0) {
+                        return "Infinity";
+                    } else if (value < 0) {
+                        return "-Infinity";
+                    }
+                    return "NaN";
+                }
+                return FloatBuiltins.formatRepr(getCore(), value);
+            }
+
+            private void enter(Object obj) {
+                if (markers != null && !markers.add(obj)) {
+                    throw raise(ValueError, ErrorMessages.CIRCULAR_REFERENCE_DETECTED);
+                }
+            }
+
+            private void leave(Object obj) {
+                if (markers != null) {
+                    markers.remove(obj);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,361 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.json;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__CALL__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.StopIteration;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.common.EconomicMapStorage;
+import com.oracle.graal.python.builtins.objects.common.HashingStorage;
+import com.oracle.graal.python.builtins.objects.common.HashingStorageLibrary;
+import com.oracle.graal.python.builtins.objects.function.PArguments;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.builtins.objects.tuple.PTuple;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.graal.python.nodes.util.CannotCastException;
+import com.oracle.graal.python.nodes.util.CastToJavaStringNode;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.library.CachedLibrary;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.JSONScanner)
+public class JSONScannerBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return JSONScannerBuiltinsFactory.getFactories();
+    }
+
+    /**
+     * Scans one JSON value starting at {@code idx} and returns the value and the index after it,
+     * like CPython's {@code scanner_call}. If there is no value at {@code idx}, this raises
+     * {@code StopIteration(idx)}, which the decoder turns into an "Expecting value" error.
+     */
+    @Builtin(name = __CALL__, minNumOfPositionalArgs = 3, parameterNames = {"self", "string", "idx"})
+    @GenerateNodeFactory
+    public abstract static class CallScannerNode extends PythonTernaryBuiltinNode {
+
+        @Specialization(limit = "getCallSiteInlineCacheMaxDepth()")
+        PTuple call(VirtualFrame frame, PJSONScanner self, Object string, Object idxObj,
+                        @Cached CastToJavaStringNode castToStringNode,
+                        @CachedLibrary("idxObj") PythonObjectLibrary lib) {
+            String s;
+            try {
+                s = castToStringNode.execute(string);
+            } catch (CannotCastException e) {
+                throw raise(TypeError, ErrorMessages.ARG_MUST_BE_S_NOT_P, "first", "string", string);
+            }
+            int idx = lib.asSizeWithState(idxObj, PArguments.getThreadState(frame));
+            if (idx < 0) {
+                throw raise(ValueError, ErrorMessages.IDX_CANNOT_BE_NEGATIVE);
+            }
+            return scan(self, s, idx);
+        }
+
+        @TruffleBoundary
+        private PTuple scan(PJSONScanner self, String s, int idx) {
+            Parser parser = new Parser(self, s);
+            Object value = parser.scanOnce(idx);
+            return factory().createTuple(new Object[]{value, parser.next});
+        }
+
+        /**
+         * A recursive descent parser over the characters of the string, following CPython's
+         * {@code scan_once_unicode}. Object keys are interned for the duration of one call, so
+         * that a list of objects with the same shape shares the key strings.
+         */
+        private final class Parser {
+            private final PJSONScanner scanner;
+            private final String s;
+            private final HashMap<String, String> memo = new HashMap<>();
+            private final StringBuilder builder = new StringBuilder();
+            /** The index after the last parsed value. */
+            private int next;
+
+            Parser(PJSONScanner scanner, String s) {
+                this.scanner = scanner;
+                this.s = s;
+            }
+
+            Object scanOnce(int idx) {
+                if (idx >= s.length()) {
+                    throw stopIteration(idx);
+                }
+                switch (s.charAt(idx)) {
+                    case '"':
+                        return parseString(idx + 1);
+                    case '{':
+                        return parseObject(idx + 1);
+                    case '[':
+                        return parseArray(idx + 1);
+                    case 'n':
+                        if (s.startsWith("null", idx)) {
+                            next = idx + 4;
+                            return PNone.NONE;
+                        }
+                        break;
+                    case 't':
+                        if (s.startsWith("true", idx)) {
+                            next = idx + 4;
+                            return true;
+                        }
+                        break;
+                    case 'f':
+                        if (s.startsWith("false", idx)) {
+                            next = idx + 5;
+                            return false;
+                        }
+                        break;
+                    case 'N':
+                        if (s.startsWith("NaN", idx)) {
+                            return parseConstant("NaN", idx);
+                        }
+                        break;
+                    case 'I':
+                        if (s.startsWith("Infinity", idx)) {
+                            return parseConstant("Infinity", idx);
+                        }
+                        break;
+                    case '-':
+                        if (s.startsWith("-Infinity", idx)) {
+                            return parseConstant("-Infinity", idx);
+                        }
+                        break;
+                }
+                return parseNumber(idx);
+            }
+
+            private String parseString(int idx) {
+                builder.setLength(0);
+                next = JSONUtils.scanString(CallScannerNode.this, s, idx, scanner.isStrict(), builder);
+                return builder.toString();
+            }
+
+            private Object parseObject(int start) {
+                int len = s.length();
+                int idx = skipWhitespace(start);
+                // keys and values alternate so that the storage can be sized before filling it
+                ArrayList<Object> items = new ArrayList<>();
+                if (idx >= len || s.charAt(idx) != '}') {
+                    while (true) {
+                        if (idx >= len || s.charAt(idx) != '"') {
+                            throw JSONUtils.decodeError(CallScannerNode.this, ErrorMessages.EXPECTING_PROPERTY_NAME, s, idx);
+                        }
+                        String key = parseString(idx + 1);
+                        String memoKey = memo.putIfAbsent(key, key);
+                        if (memoKey != null) {
+                            key = memoKey;
+                        }
+                        idx = skipWhitespace(next);
+                        if (idx >= len || s.charAt(idx) != ':') {
+                            throw JSONUtils.decodeError(CallScannerNode.this, ErrorMessages.EXPECTING_COLON_DELIMITER, s, idx);
+                        }
+                        Object value = scanOnce(skipWhitespace(idx + 1));
+                        items.add(key);
+                        items.add(value);
+                        idx = skipWhitespace(next);
+                        if (idx < len && s.charAt(idx) == '}') {
+                            break;
+                        }
+                        if (idx >= len || s.charAt(idx) != ',') {
+                            throw JSONUtils.decodeError(CallScannerNode.this, ErrorMessages.EXPECTING_COMMA_DELIMITER, s, idx);
+                        }
+                        idx = skipWhitespace(idx + 1);
+                    }
+                }
+                next = idx + 1;
+                int size = items.size() / 2;
+                if (scanner.getObjectPairsHook() != PNone.NONE) {
+                    Object[] pairs = new Object[size];
+                    for (int i = 0; i < size; i++) {
+                        pairs[i] = factory().createTuple(new Object[]{items.get(2 * i), items.get(2 * i + 1)});
+                    }
+                    return CallNode.getUncached().execute(scanner.getObjectPairsHook(), factory().createList(pairs));
+                }
+                HashingStorage storage = EconomicMapStorage.create(size);
+                HashingStorageLibrary lib = HashingStorageLibrary.getUncached();
+                for (int i = 0; i < size; i++) {
+                    storage = lib.setItem(storage, items.get(2 * i), items.get(2 * i + 1));
+                }
+                Object dict = factory().createDict(storage);
+                if (scanner.getObjectHook() != PNone.NONE) {
+                    return CallNode.getUncached().execute(scanner.getObjectHook(), dict);
+                }
+                return dict;
+            }
+
+            private Object parseArray(int start) {
+                int len = s.length();
+                int idx = skipWhitespace(start);
+                ArrayList<Object> items = new ArrayList<>();
+                if (idx >= len || s.charAt(idx) != ']') {
+                    while (true) {
+                        items.add(scanOnce(idx));
+                        idx = skipWhitespace(next);
+                        if (idx < len && s.charAt(idx) == ']') {
+                            break;
+                        }
+                        if (idx >= len || s.charAt(idx) != ',') {
+                            throw JSONUtils.decodeError(CallScannerNode.this, ErrorMessages.EXPECTING_COMMA_DELIMITER, s, idx);
+                        }
+                        idx = skipWhitespace(idx + 1);
+                    }
+                }
+                next = idx + 1;
+                return factory().createList(items.toArray());
+            }
+
+            private Object parseConstant(String constant, int idx) {
+                next = idx + constant.length();
+                return CallNode.getUncached().execute(scanner.getParseConstant(), constant);
+            }
+
+            private Object parseNumber(int start) {
+                int len = s.length();
+                int idx = start;
+                if (s.charAt(idx) == '-') {
+                    idx++;
+                    if (idx >= len) {
+                        throw stopIteration(start);
+                    }
+                }
+                char c = s.charAt(idx);
+                if (c >= '1' && c <= '9') {
+                    idx = skipDigits(idx + 1);
+                } else if (c == '0') {
+                    idx++;
+                } else {
+                    throw stopIteration(start);
+                }
+                boolean isFloat = false;
+                if (idx < len - 1 && s.charAt(idx) == '.' && isDigit(s.charAt(idx + 1))) {
+                    isFloat = true;
+                    idx = skipDigits(idx + 2);
+                }
+                if (idx < len - 1 && (s.charAt(idx) == 'e' || s.charAt(idx) == 'E')) {
+                    int exponentStart = idx;
+                    idx++;
+                    if (idx < len - 1 && (s.charAt(idx) == '-' || s.charAt(idx) == '+')) {
+                        idx++;
+                    }
+                    idx = skipDigits(idx);
+                    if (isDigit(s.charAt(idx - 1))) {
+                        isFloat = true;
+                    } else {
+                        idx = exponentStart;
+                    }
+                }
+                next = idx;
+                String number = s.substring(start, idx);
+                if (isFloat) {
+                    if (scanner.isDefaultParseFloat()) {
+                        return Double.parseDouble(number);
+                    }
+                    return CallNode.getUncached().execute(scanner.getParseFloat(), number);
+                }
+                if (scanner.isDefaultParseInt()) {
+                    return parseInt(number);
+                }
+                return CallNode.getUncached().execute(scanner.getParseInt(), number);
+            }
+
+            private Object parseInt(String number) {
+                // at most 18 digits always fit into a long
+                if (number.length() <= 18) {
+                    long value = Long.parseLong(number);
+                    if (value == (int) value) {
+                        return (int) value;
+                    }
+                    return value;
+                }
+                return factory().createInt(new BigInteger(number));
+            }
+
+            private int skipDigits(int start) {
+                int idx = start;
+                while (idx < s.length() && isDigit(s.charAt(idx))) {
+                    idx++;
+                }
+                return idx;
+            }
+
+            private int skipWhitespace(int start) {
+                int idx = start;
+                while (idx < s.length()) {
+                    char c = s.charAt(idx);
+                    if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                        break;
+                    }
+                    idx++;
+                }
+                return idx;
+            }
+
+            private PException stopIteration(int idx) {
+                throw getRaiseNode().raiseExceptionObject(factory().createBaseException(StopIteration, factory().createTuple(new Object[]{idx})), getCore().getLanguage());
+            }
+        }
+
+        private static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
+    }
+}
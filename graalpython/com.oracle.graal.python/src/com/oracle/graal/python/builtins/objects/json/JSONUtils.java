@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.json;
+
+import com.oracle.graal.python.PythonLanguage;
+import com.oracle.graal.python.builtins.objects.exception.PBaseException;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.nodes.BuiltinNames;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PRaiseNode;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.runtime.PythonContext;
+import com.oracle.graal.python.runtime.PythonOptions;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.nodes.Node;
+
+/**
+ * The string scanning and escaping shared by the {@code _json} module functions, the scanner and
+ * the encoder. Strings are processed on their Java characters, so that surrogate pairs from
+ * {@code \\uXXXX} escapes simply become the corresponding UTF-16 pairs.
+ */
+public final class JSONUtils {
+    private static final String DECODER_MODULE = "json.decoder";
+    private static final String DECODE_ERROR = "JSONDecodeError";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private JSONUtils() {
+    }
+
+    /**
+     * Appends {@code s} as a quoted JSON string. With {@code asciiOnly}, all characters outside
+     * of the printable ASCII range are written as {@code \\uXXXX} escapes, like
+     * {@code encode_basestring_ascii}, otherwise only quotes, backslashes and control characters
+     * are escaped, like {@code encode_basestring}.
+     */
+    @TruffleBoundary
+    public static void appendString(StringBuilder builder, String s, boolean asciiOnly) {
+        builder.append('"');
+        int chunkStart = 0;
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\' || c < ' ' || (asciiOnly && c > '~')) {
+                builder.append(s, chunkStart, i);
+                appendEscape(builder, c);
+                chunkStart = i + 1;
+            }
+        }
+        builder.append(s, chunkStart, len);
+        builder.append('"');
+    }
+
+    private static void appendEscape(StringBuilder builder, char c) {
+        builder.append('\\');
+        switch (c) {
+            case '"':
+            case '\\':
+                builder.append(c);
+                break;
+            case '\b':
+                builder.append('b');
+                break;
+            case '\f':
+                builder.append('f');
+                break;
+            case '\n':
+                builder.append('n');
+                break;
+            case '\r':
+                builder.append('r');
+                break;
+            case '\t':
+                builder.append('t');
+                break;
+            default:
+                builder.append('u');
+                builder.append(HEX_DIGITS[(c >> 12) & 0xf]);
+                builder.append(HEX_DIGITS[(c >> 8) & 0xf]);
+                builder.append(HEX_DIGITS[(c >> 4) & 0xf]);
+                builder.append(HEX_DIGITS[c & 0xf]);
+        }
+    }
+
+    /**
+     * Decodes the JSON string starting after the opening quote at {@code end} into
+     * {@code builder} and returns the index after the closing quote, like CPython's
+     * {@code scanstring_unicode}. Errors are raised as {@code json.decoder.JSONDecodeError}.
+     */
+    @TruffleBoundary
+    public static int scanString(Node raisingNode, String s, int end, boolean strict, StringBuilder builder) {
+        int len = s.length();
+        int begin = end - 1;
+        int idx = end;
+        while (true) {
+            int chunkStart = idx;
+            char c = 0;
+            while (idx < len) {
+                c = s.charAt(idx);
+                if (c == '"' || c == '\\') {
+                    break;
+                }
+                if (c <= 0x1f && strict) {
+                    throw decodeError(raisingNode, ErrorMessages.INVALID_CONTROL_CHARACTER_AT, s, idx);
+                }
+                idx++;
+            }
+            if (idx >= len) {
+                throw decodeError(raisingNode, ErrorMessages.UNTERMINATED_STRING_STARTING_AT, s, begin);
+            }
+            builder.append(s, chunkStart, idx);
+            idx++;
+            if (c == '"') {
+                return idx;
+            }
+            if (idx == len) {
+                throw decodeError(raisingNode, ErrorMessages.UNTERMINATED_STRING_STARTING_AT, s, begin);
+            }
+            c = s.charAt(idx);
+            if (c != 'u') {
+                idx++;
+                switch (c) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        break;
+                    case 'b':
+                        c = '\b';
+                        break;
+                    case 'f':
+                        c = '\f';
+                        break;
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 'r':
+                        c = '\r';
+                        break;
+                    case 't':
+                        c = '\t';
+                        break;
+                    default:
+                        throw decodeError(raisingNode, ErrorMessages.INVALID_ESCAPE, s, idx - 2);
+                }
+                builder.append(c);
+            } else {
+                idx++;
+                int escapeEnd = idx + 4;
+                if (escapeEnd >= len) {
+                    throw decodeError(raisingNode, ErrorMessages.INVALID_UXXXX_ESCAPE, s, idx - 1);
+                }
+                int code = 0;
+                for (; idx < escapeEnd; idx++) {
+                    int digit = hexDigit(s.charAt(idx));
+                    if (digit < 0) {
+                        throw decodeError(raisingNode, ErrorMessages.INVALID_UXXXX_ESCAPE, s, escapeEnd - 5);
+                    }
+                    code = (code << 4) | digit;
+                }
+                builder.append((char) code);
+            }
+        }
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    /**
+     * Creates and raises a {@code json.decoder.JSONDecodeError}, importing {@code json.decoder}
+     * if necessary.
+     */
+    @TruffleBoundary
+    public static PException decodeError(Node raisingNode, String msg, String s, int pos) {
+        PythonContext context = PythonLanguage.getContext();
+        Object module = context.getSysModules().getItem(DECODER_MODULE);
+        if (module == null) {
+            CallNode.getUncached().execute(context.getCore().getBuiltins().getAttribute(BuiltinNames.__IMPORT__), DECODER_MODULE);
+            module = context.getSysModules().getItem(DECODER_MODULE);
+        }
+        Object errorType = PythonObjectLibrary.getUncached().lookupAttribute(module, DECODE_ERROR, false);
+        Object exception = CallNode.getUncached().execute(errorType, msg, s, pos);
+        throw PRaiseNode.raise(raisingNode, (PBaseException) exception, PythonOptions.isPExceptionWithJavaStacktrace(context.getCore().getLanguage()));
+    }
+}
@@ -0,0 +1,948 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.list;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__GT__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__LT__;
+
+import java.util.Arrays;
+
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.list.ListSortNodesFactory.LessThanNodeGen;
+import com.oracle.graal.python.builtins.objects.list.ListSortNodesFactory.SortListNodeGen;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.PNodeWithContext;
+import com.oracle.graal.python.nodes.PRaiseNode;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.expression.BinaryComparisonNode;
+import com.oracle.graal.python.nodes.expression.CoerceToBooleanNode;
+import com.oracle.graal.python.runtime.sequence.storage.DoubleSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.IntSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.LongSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.ObjectSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.SequenceStorageFactory;
+import com.oracle.graal.python.util.PythonUtils;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.ImportStatic;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.profiles.BranchProfile;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+
+/**
+ * Implementation of {@code list.sort}. Lists with primitive storages and no key function are sorted
+ * directly on the storage array. Everything else goes through {@link TimSortNode}, a port of
+ * CPython's {@code listsort} (see {@code lib-graalpython/listsort.txt}).
+ */
+public abstract class ListSortNodes {
+
+    @ImportStatic(PGuards.class)
+    public abstract static class SortListNode extends PNodeWithContext {
+
+        public abstract void execute(VirtualFrame frame, PList list, Object key, boolean reverse);
+
+        @Specialization(guards = {"isPNone(key)", "isIntStorage(list)"})
+        static void doInt(PList list, @SuppressWarnings("unused") Object key, boolean reverse) {
+            IntSequenceStorage storage = (IntSequenceStorage) list.getSequenceStorage();
+            int[] array = storage.getInternalIntArray();
+            int len = storage.length();
+            sort(array, len);
+            if (reverse) {
+                reverse(array, len);
+            }
+        }
+
+        @Specialization(guards = {"isPNone(key)", "isLongStorage(list)"})
+        static void doLong(PList list, @SuppressWarnings("unused") Object key, boolean reverse) {
+            LongSequenceStorage storage = (LongSequenceStorage) list.getSequenceStorage();
+            long[] array = storage.getInternalLongArray();
+            int len = storage.length();
+            sort(array, len);
+            if (reverse) {
+                reverse(array, len);
+            }
+        }
+
+        @Specialization(guards = {"isPNone(key)", "isDoubleStorage(list)"})
+        static void doDouble(VirtualFrame frame, PList list, @SuppressWarnings("unused") Object key, boolean reverse,
+                        @Cached("createBinaryProfile()") ConditionProfile totalOrderProfile,
+                        @Cached TimSortNode timSortNode) {
+            DoubleSequenceStorage storage = (DoubleSequenceStorage) list.getSequenceStorage();
+            double[] array = storage.getInternalDoubleArray();
+            int len = storage.length();
+            if (totalOrderProfile.profile(isTotallyOrdered(array, len))) {
+                sort(array, len);
+                if (reverse) {
+                    reverse(array, len);
+                }
+            } else {
+                // NaNs are not ordered and -0.0 == 0.0 must keep its position, so we need the
+                // stable sort with Python comparison semantics
+                Object[] boxed = new Object[len];
+                for (int i = 0; i < len; i++) {
+                    boxed[i] = array[i];
+                }
+                timSortNode.execute(frame, boxed, null, len, reverse);
+                for (int i = 0; i < len; i++) {
+                    array[i] = (double) boxed[i];
+                }
+            }
+        }
+
+        @Specialization(guards = "!isPrimitiveFastPath(list, key)")
+        static void doGeneric(VirtualFrame frame, PList list, Object key, boolean reverse,
+                        @Cached("createBinaryProfile()") ConditionProfile hasKeyProfile,
+                        @Cached("createBinaryProfile()") ConditionProfile objectStorageProfile,
+                        @Cached SequenceStorageNodes.GetInternalObjectArrayNode getInternalObjectArrayNode,
+                        @Cached CallNode callKeyNode,
+                        @Cached TimSortNode timSortNode,
+                        @Cached PRaiseNode raiseNode) {
+            SequenceStorage storage = list.getSequenceStorage();
+            int len = storage.length();
+            boolean isObjectStorage = objectStorageProfile.profile(storage instanceof ObjectSequenceStorage);
+            Object[] items = isObjectStorage ? ((ObjectSequenceStorage) storage).getInternalArray() : getInternalObjectArrayNode.execute(storage);
+
+            /*
+             * Like CPython, we detach the items from the list while sorting. Any modification of
+             * the list by the key function or a comparison will replace or grow the marker storage
+             * and can be detected afterwards.
+             */
+            SequenceStorage marker = new ObjectSequenceStorage(0);
+            list.setSequenceStorage(marker);
+            boolean modified;
+            try {
+                Object[] keys = items;
+                Object[] values = null;
+                if (hasKeyProfile.profile(!PGuards.isPNone(key))) {
+                    keys = new Object[len];
+                    for (int i = 0; i < len; i++) {
+                        keys[i] = callKeyNode.execute(frame, key, new Object[]{items[i]}, PKeyword.EMPTY_KEYWORDS);
+                    }
+                    values = items;
+                }
+                timSortNode.execute(frame, keys, values, len, reverse);
+            } finally {
+                modified = list.getSequenceStorage() != marker || marker.length() != 0;
+                list.setSequenceStorage(isObjectStorage ? storage : SequenceStorageFactory.createStorage(items));
+            }
+            if (modified) {
+                throw raiseNode.raise(PythonBuiltinClassType.ValueError, ErrorMessages.LIST_MODIFIED_DURING_SORT);
+            }
+        }
+
+        static boolean isPrimitiveFastPath(PList list, Object key) {
+            return PGuards.isPNone(key) && (PGuards.isIntStorage(list) || PGuards.isLongStorage(list) || PGuards.isDoubleStorage(list));
+        }
+
+        private static boolean isTotallyOrdered(double[] array, int len) {
+            for (int i = 0; i < len; i++) {
+                double d = array[i];
+                if (Double.isNaN(d) || (d == 0.0 && Double.doubleToRawLongBits(d) != 0L)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @TruffleBoundary(allowInlining = true)
+        private static void sort(int[] array, int len) {
+            Arrays.sort(array, 0, len);
+        }
+
+        @TruffleBoundary(allowInlining = true)
+        private static void sort(long[] array, int len) {
+            Arrays.sort(array, 0, len);
+        }
+
+        @TruffleBoundary(allowInlining = true)
+        private static void sort(double[] array, int len) {
+            Arrays.sort(array, 0, len);
+        }
+
+        private static void reverse(int[] array, int len) {
+            for (int lo = 0, hi = len - 1; lo < hi; lo++, hi--) {
+                int tmp = array[lo];
+                array[lo] = array[hi];
+                array[hi] = tmp;
+            }
+        }
+
+        private static void reverse(long[] array, int len) {
+            for (int lo = 0, hi = len - 1; lo < hi; lo++, hi--) {
+                long tmp = array[lo];
+                array[lo] = array[hi];
+                array[hi] = tmp;
+            }
+        }
+
+        private static void reverse(double[] array, int len) {
+            for (int lo = 0, hi = len - 1; lo < hi; lo++, hi--) {
+                double tmp = array[lo];
+                array[lo] = array[hi];
+                array[hi] = tmp;
+            }
+        }
+
+        public static SortListNode create() {
+            return SortListNodeGen.create();
+        }
+    }
+
+    /**
+     * The state of a single sort run. Kept separate from the node, because comparisons may call
+     * back into Python code that sorts another list using the same node.
+     */
+    static final class SortState {
+        static final int KIND_GENERIC = 0;
+        static final int KIND_STRING = 1;
+        static final int KIND_LONG = 2;
+        static final int KIND_DOUBLE = 3;
+
+        private static final int MAX_MERGE_PENDING = 85;
+
+        final Object[] keys;
+        final Object[] values;
+        final int kind;
+        int minGallop = TimSortNode.MIN_GALLOP;
+
+        final int[] runBase = new int[MAX_MERGE_PENDING];
+        final int[] runLen = new int[MAX_MERGE_PENDING];
+        int pending;
+
+        SortState(Object[] keys, Object[] values, int kind) {
+            this.keys = keys;
+            this.values = values;
+            this.kind = kind;
+        }
+    }
+
+    /**
+     * A stable, adaptive merge sort over an array of keys and an optional parallel array of values
+     * that is permuted along with the keys. This follows CPython's {@code listsort} closely,
+     * including galloping, and like CPython it leaves the arrays in a valid permutation if a
+     * comparison raises. If all keys are exact {@code str}, {@code int} or {@code float} objects,
+     * comparisons are done directly on the Java values without dispatching to {@code __lt__}.
+     */
+    public static final class TimSortNode extends Node {
+        static final int MIN_GALLOP = 7;
+
+        @Child private BinaryComparisonNode ltNode = BinaryComparisonNode.create(__LT__, __GT__, "<");
+        @Child private CoerceToBooleanNode castToBooleanNode = CoerceToBooleanNode.createIfTrueNode();
+
+        private final BranchProfile gallopProfile = BranchProfile.create();
+        private final BranchProfile mergeHiProfile = BranchProfile.create();
+
+        public void execute(VirtualFrame frame, Object[] keys, Object[] values, int len, boolean reverse) {
+            if (len < 2) {
+                return;
+            }
+            if (reverse) {
+                // reverse, sort stably, and reverse again to keep equal elements in order
+                reverseSlice(keys, values, 0, len);
+            }
+            SortState state = new SortState(keys, values, classifyKeys(keys, len));
+            int minRun = computeMinRun(len);
+            int lo = 0;
+            int remaining = len;
+            while (remaining > 0) {
+                int n = countRun(frame, state, lo, lo + remaining);
+                if (n < 0) {
+                    n = -n;
+                    reverseSlice(keys, values, lo, lo + n);
+                }
+                if (n < minRun) {
+                    int force = remaining <= minRun ? remaining : minRun;
+                    binarySort(frame, state, lo, lo + force, lo + n);
+                    n = force;
+                }
+                state.runBase[state.pending] = lo;
+                state.runLen[state.pending] = n;
+                state.pending++;
+                mergeCollapse(frame, state);
+                lo += n;
+                remaining -= n;
+            }
+            mergeForceCollapse(frame, state);
+            assert state.pending == 1 && state.runBase[0] == 0 && state.runLen[0] == len;
+            if (reverse) {
+                reverseSlice(keys, values, 0, len);
+            }
+        }
+
+        private static int classifyKeys(Object[] keys, int len) {
+            Object first = keys[0];
+            int kind;
+            if (first instanceof String) {
+                kind = SortState.KIND_STRING;
+            } else if (first instanceof Integer || first instanceof Long) {
+                kind = SortState.KIND_LONG;
+            } else if (first instanceof Double) {
+                kind = SortState.KIND_DOUBLE;
+            } else {
+                return SortState.KIND_GENERIC;
+            }
+            for (int i = 1; i < len; i++) {
+                Object k = keys[i];
+                switch (kind) {
+                    case SortState.KIND_STRING:
+                        if (!(k instanceof String)) {
+                            return SortState.KIND_GENERIC;
+                        }
+                        break;
+                    case SortState.KIND_LONG:
+                        if (!(k instanceof Integer || k instanceof Long)) {
+                            return SortState.KIND_GENERIC;
+                        }
+                        break;
+                    default:
+                        if (!(k instanceof Double) || Double.isNaN((double) k)) {
+                            return SortState.KIND_GENERIC;
+                        }
+                        break;
+                }
+            }
+            return kind;
+        }
+
+        private boolean lt(VirtualFrame frame, SortState state, Object a, Object b) {
+            switch (state.kind) {
+                case SortState.KIND_STRING:
+                    return compareStrings((String) a, (String) b) < 0;
+                case SortState.KIND_LONG:
+                    return asLong(a) < asLong(b);
+                case SortState.KIND_DOUBLE:
+                    return (double) a < (double) b;
+                default:
+                    return castToBooleanNode.executeBoolean(frame, ltNode.executeWith(frame, a, b));
+            }
+        }
+
+        private static long asLong(Object o) {
+            return o instanceof Integer ? (int) o : (long) o;
+        }
+
+        @TruffleBoundary(allowInlining = true)
+        private static int compareStrings(String a, String b) {
+            // consistent with str.__lt__
+            return a.compareTo(b);
+        }
+
+        private static int computeMinRun(int len) {
+            int n = len;
+            int r = 0;
+            while (n >= 64) {
+                r |= n & 1;
+                n >>= 1;
+            }
+            return n + r;
+        }
+
+        /**
+         * Returns the length of the run beginning at {@code lo}. A negative result denotes a
+         * strictly descending run.
+         */
+        private int countRun(VirtualFrame frame, SortState state, int lo, int hi) {
+            Object[] keys = state.keys;
+            if (lo + 1 == hi) {
+                return 1;
+            }
+            int n = 2;
+            if (lt(frame, state, keys[lo + 1], keys[lo])) {
+                for (int i = lo + 2; i < hi; i++, n++) {
+                    if (!lt(frame, state, keys[i], keys[i - 1])) {
+                        break;
+                    }
+                }
+                return -n;
+            } else {
+                for (int i = lo + 2; i < hi; i++, n++) {
+                    if (lt(frame, state, keys[i], keys[i - 1])) {
+                        break;
+                    }
+                }
+                return n;
+            }
+        }
+
+        /**
+         * Sorts {@code [lo, hi)} by binary insertion, where {@code [lo, start)} is already sorted.
+         */
+        private void binarySort(VirtualFrame frame, SortState state, int lo, int hi, int start) {
+            Object[] keys = state.keys;
+            Object[] values = state.values;
+            for (int i = start; i < hi; i++) {
+                Object pivot = keys[i];
+                int l = lo;
+                int r = i;
+                while (l < r) {
+                    int p = l + ((r - l) >> 1);
+                    if (lt(frame, state, pivot, keys[p])) {
+                        r = p;
+                    } else {
+                        l = p + 1;
+                    }
+                }
+                PythonUtils.arraycopy(keys, l, keys, l + 1, i - l);
+                keys[l] = pivot;
+                if (values != null) {
+                    Object pivotValue = values[i];
+                    PythonUtils.arraycopy(values, l, values, l + 1, i - l);
+                    values[l] = pivotValue;
+                }
+            }
+        }
+
+        private void mergeCollapse(VirtualFrame frame, SortState state) {
+            int[] len = state.runLen;
+            while (state.pending > 1) {
+                int n = state.pending - 2;
+                if ((n > 0 && len[n - 1] <= len[n] + len[n + 1]) || (n > 1 && len[n - 2] <= len[n - 1] + len[n])) {
+                    if (len[n - 1] < len[n + 1]) {
+                        n--;
+                    }
+                    mergeAt(frame, state, n);
+                } else if (len[n] <= len[n + 1]) {
+                    mergeAt(frame, state, n);
+                } else {
+                    break;
+                }
+            }
+        }
+
+        private void mergeForceCollapse(VirtualFrame frame, SortState state) {
+            int[] len = state.runLen;
+            while (state.pending > 1) {
+                int n = state.pending - 2;
+                if (n > 0 && len[n - 1] < len[n + 1]) {
+                    n--;
+                }
+                mergeAt(frame, state, n);
+            }
+        }
+
+        private void mergeAt(VirtualFrame frame, SortState state, int i) {
+            Object[] keys = state.keys;
+            int base1 = state.runBase[i];
+            int len1 = state.runLen[i];
+            int base2 = state.runBase[i + 1];
+            int len2 = state.runLen[i + 1];
+
+            state.runLen[i] = len1 + len2;
+            if (i == state.pending - 3) {
+                state.runBase[i + 1] = state.runBase[i + 2];
+                state.runLen[i + 1] = state.runLen[i + 2];
+            }
+            state.pending--;
+
+            // elements of run 1 that are already in place can be ignored
+            int k = gallopRight(frame, state, keys[base2], keys, base1, len1, 0);
+            base1 += k;
+            len1 -= k;
+            if (len1 == 0) {
+                return;
+            }
+            // elements of run 2 that are already in place can be ignored as well
+            len2 = gallopLeft(frame, state, keys[base1 + len1 - 1], keys, base2, len2, len2 - 1);
+            if (len2 == 0) {
+                return;
+            }
+            if (len1 <= len2) {
+                mergeLo(frame, state, base1, len1, base2, len2);
+            } else {
+                mergeHi(frame, state, base1, len1, base2, len2);
+            }
+        }
+
+        /**
+         * Locates the position at which to insert {@code key} into the sorted slice
+         * {@code a[base:base+n]}, left of any equal elements. {@code hint} is where to start
+         * searching.
+         */
+        private int gallopLeft(VirtualFrame frame, SortState state, Object key, Object[] a, int base, int n, int hint) {
+            int lastOfs = 0;
+            int ofs = 1;
+            if (lt(frame, state, a[base + hint], key)) {
+                // a[hint] < key: gallop right until a[hint + lastOfs] < key <= a[hint + ofs]
+                int maxOfs = n - hint;
+                while (ofs < maxOfs) {
+                    if (lt(frame, state, a[base + hint + ofs], key)) {
+                        lastOfs = ofs;
+                        ofs = (ofs << 1) + 1;
+                        if (ofs <= 0) {
+                            ofs = maxOfs;
+                        }
+                    } else {
+                        break;
+                    }
+                }
+                if (ofs > maxOfs) {
+                    ofs = maxOfs;
+                }
+                lastOfs += hint;
+                ofs += hint;
+            } else {
+                // key <= a[hint]: gallop left until a[hint - ofs] < key <= a[hint - lastOfs]
+                int maxOfs = hint + 1;
+                while (ofs < maxOfs) {
+                    if (lt(frame, state, a[base + hint - ofs], key)) {
+                        break;
+                    }
+                    lastOfs = ofs;
+                    ofs = (ofs << 1) + 1;
+                    if (ofs <= 0) {
+                        ofs = maxOfs;
+                    }
+                }
+                if (ofs > maxOfs) {
+                    ofs = maxOfs;
+                }
+                int tmp = lastOfs;
+                lastOfs = hint - ofs;
+                ofs = hint - tmp;
+            }
+            // now a[lastOfs] < key <= a[ofs], so key belongs somewhere to the right of lastOfs
+            lastOfs++;
+            while (lastOfs < ofs) {
+                int m = lastOfs + ((ofs - lastOfs) >> 1);
+                if (lt(frame, state, a[base + m], key)) {
+                    lastOfs = m + 1;
+                } else {
+                    ofs = m;
+                }
+            }
+            return ofs;
+        }
+
+        /**
+         * Like {@link #gallopLeft}, but returns the position right of any equal elements.
+         */
+        private int gallopRight(VirtualFrame frame, SortState state, Object key, Object[] a, int base, int n, int hint) {
+            int lastOfs = 0;
+            int ofs = 1;
+            if (lt(frame, state, key, a[base + hint])) {
+                // key < a[hint]: gallop left until a[hint - ofs] <= key < a[hint - lastOfs]
+                int maxOfs = hint + 1;
+                while (ofs < maxOfs) {
+                    if (lt(frame, state, key, a[base + hint - ofs])) {
+                        lastOfs = ofs;
+                        ofs = (ofs << 1) + 1;
+                        if (ofs <= 0) {
+                            ofs = maxOfs;
+                        }
+                    } else {
+                        break;
+                    }
+                }
+                if (ofs > maxOfs) {
+                    ofs = maxOfs;
+                }
+                int tmp = lastOfs;
+                lastOfs = hint - ofs;
+                ofs = hint - tmp;
+            } else {
+                // a[hint] <= key: gallop right until a[hint + lastOfs] <= key < a[hint + ofs]
+                int maxOfs = n - hint;
+                while (ofs < maxOfs) {
+                    if (lt(frame, state, key, a[base + hint + ofs])) {
+                        break;
+                    }
+                    lastOfs = ofs;
+                    ofs = (ofs << 1) + 1;
+                    if (ofs <= 0) {
+                        ofs = maxOfs;
+                    }
+                }
+                if (ofs > maxOfs) {
+                    ofs = maxOfs;
+                }
+                lastOfs += hint;
+                ofs += hint;
+            }
+            // now a[lastOfs] <= key < a[ofs]
+            lastOfs++;
+            while (lastOfs < ofs) {
+                int m = lastOfs + ((ofs - lastOfs) >> 1);
+                if (lt(frame, state, key, a[base + m])) {
+                    ofs = m;
+                } else {
+                    lastOfs = m + 1;
+                }
+            }
+            return ofs;
+        }
+
+        /**
+         * Merges the adjacent runs {@code [base1, base1 + len1)} and {@code [base2, base2 + len2)}
+         * in place, where {@code len1 <= len2}. The first element of run 2 must be smaller than the
+         * first element of run 1, and the last element of run 1 must be larger than all elements
+         * of run 2.
+         */
+        private void mergeLo(VirtualFrame frame, SortState state, int base1, int initialLen1, int base2, int initialLen2) {
+            Object[] keys = state.keys;
+            Object[] values = state.values;
+            int len1 = initialLen1;
+            int len2 = initialLen2;
+            Object[] tmpKeys = copyOfRange(keys, base1, len1);
+            Object[] tmpValues = values != null ? copyOfRange(values, base1, len1) : null;
+            int a = 0;
+            int b = base2;
+            int dest = base1;
+            try {
+                move(keys, values, b++, dest++);
+                if (--len2 == 0) {
+                    return;
+                }
+                if (len1 == 1) {
+                    // the remaining element of run 1 goes after all of run 2
+                    moveRange(keys, values, b, dest, len2);
+                    dest += len2;
+                    return;
+                }
+                int minGallop = state.minGallop;
+                outer: while (true) {
+                    int aCount = 0;
+                    int bCount = 0;
+                    // straight merging until one run appears to win consistently
+                    do {
+                        if (lt(frame, state, keys[b], tmpKeys[a])) {
+                            move(keys, values, b++, dest++);
+                            bCount++;
+                            aCount = 0;
+                            if (--len2 == 0) {
+                                break outer;
+                            }
+                        } else {
+                            copyFromTmp(keys, values, tmpKeys, tmpValues, a++, dest++);
+                            aCount++;
+                            bCount = 0;
+                            if (--len1 == 1) {
+                                moveRange(keys, values, b, dest, len2);
+                                dest += len2;
+                                break outer;
+                            }
+                        }
+                    } while ((aCount | bCount) < minGallop);
+
+                    // galloping may be a huge win, so try that until neither run wins big
+                    gallopProfile.enter();
+                    minGallop++;
+                    do {
+                        minGallop -= minGallop > 1 ? 1 : 0;
+                        state.minGallop = minGallop;
+                        int k = gallopRight(frame, state, keys[b], tmpKeys, a, len1, 0);
+                        aCount = k;
+                        if (k != 0) {
+                            PythonUtils.arraycopy(tmpKeys, a, keys, dest, k);
+                            if (values != null) {
+                                PythonUtils.arraycopy(tmpValues, a, values, dest, k);
+                            }
+                            dest += k;
+                            a += k;
+                            len1 -= k;
+                            if (len1 == 1) {
+                                moveRange(keys, values, b, dest, len2);
+                                dest += len2;
+                                break outer;
+                            }
+                            if (len1 == 0) {
+                                // only possible with an inconsistent comparison function
+                                break outer;
+                            }
+                        }
+                        move(keys, values, b++, dest++);
+                        if (--len2 == 0) {
+                            break outer;
+                        }
+
+                        k = gallopLeft(frame, state, tmpKeys[a], keys, b, len2, 0);
+                        bCount = k;
+                        if (k != 0) {
+                            moveRange(keys, values, b, dest, k);
+                            dest += k;
+                            b += k;
+                            len2 -= k;
+                            if (len2 == 0) {
+                                break outer;
+                            }
+                        }
+                        copyFromTmp(keys, values, tmpKeys, tmpValues, a++, dest++);
+                        if (--len1 == 1) {
+                            moveRange(keys, values, b, dest, len2);
+                            dest += len2;
+                            break outer;
+                        }
+                    } while (aCount >= MIN_GALLOP || bCount >= MIN_GALLOP);
+                    // penalize leaving galloping mode
+                    minGallop++;
+                    state.minGallop = minGallop;
+                }
+            } finally {
+                // the remainder of run 1 (if any) fills the hole left of run 2; this also keeps the
+                // arrays a valid permutation if a comparison raised
+                if (len1 > 0) {
+                    PythonUtils.arraycopy(tmpKeys, a, keys, dest, len1);
+                    if (values != null) {
+                        PythonUtils.arraycopy(tmpValues, a, values, dest, len1);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Like {@link #mergeLo}, but for {@code len1 >= len2}. Merges from the right.
+         */
+        private void mergeHi(VirtualFrame frame, SortState state, int base1, int initialLen1, int base2, int initialLen2) {
+            mergeHiProfile.enter();
+            Object[] keys = state.keys;
+            Object[] values = state.values;
+            int len1 = initialLen1;
+            int len2 = initialLen2;
+            Object[] tmpKeys = copyOfRange(keys, base2, len2);
+            Object[] tmpValues = values != null ? copyOfRange(values, base2, len2) : null;
+            int a = base1 + len1 - 1;
+            int b = len2 - 1;
+            int dest = base2 + len2 - 1;
+            try {
+                move(keys, values, a--, dest--);
+                if (--len1 == 0) {
+                    return;
+                }
+                if (len2 == 1) {
+                    // the remaining element of run 2 goes before all of run 1
+                    dest -= len1;
+                    a -= len1;
+                    moveRange(keys, values, a + 1, dest + 1, len1);
+                    return;
+                }
+                int minGallop = state.minGallop;
+                outer: while (true) {
+                    int aCount = 0;
+                    int bCount = 0;
+                    do {
+                        if (lt(frame, state, tmpKeys[b], keys[a])) {
+                            move(keys, values, a--, dest--);
+                            aCount++;
+                            bCount = 0;
+                            if (--len1 == 0) {
+                                break outer;
+                            }
+                        } else {
+                            copyFromTmp(keys, values, tmpKeys, tmpValues, b--, dest--);
+                            bCount++;
+                            aCount = 0;
+                            if (--len2 == 1) {
+                                dest -= len1;
+                                a -= len1;
+                                moveRange(keys, values, a + 1, dest + 1, len1);
+                                break outer;
+                            }
+                        }
+                    } while ((aCount | bCount) < minGallop);
+
+                    gallopProfile.enter();
+                    minGallop++;
+                    do {
+                        minGallop -= minGallop > 1 ? 1 : 0;
+                        state.minGallop = minGallop;
+                        int k = gallopRight(frame, state, tmpKeys[b], keys, base1, len1, len1 - 1);
+                        k = len1 - k;
+                        aCount = k;
+                        if (k != 0) {
+                            dest -= k;
+                            a -= k;
+                            moveRange(keys, values, a + 1, dest + 1, k);
+                            len1 -= k;
+                            if (len1 == 0) {
+                                break outer;
+                            }
+                        }
+                        copyFromTmp(keys, values, tmpKeys, tmpValues, b--, dest--);
+                        if (--len2 == 1) {
+                            dest -= len1;
+                            a -= len1;
+                            moveRange(keys, values, a + 1, dest + 1, len1);
+                            break outer;
+                        }
+
+                        k = gallopLeft(frame, state, keys[a], tmpKeys, 0, len2, len2 - 1);
+                        k = len2 - k;
+                        bCount = k;
+                        if (k != 0) {
+                            dest -= k;
+                            b -= k;
+                            PythonUtils.arraycopy(tmpKeys, b + 1, keys, dest + 1, k);
+                            if (values != null) {
+                                PythonUtils.arraycopy(tmpValues, b + 1, values, dest + 1, k);
+                            }
+                            len2 -= k;
+                            if (len2 == 1) {
+                                dest -= len1;
+                                a -= len1;
+                                moveRange(keys, values, a + 1, dest + 1, len1);
+                                break outer;
+                            }
+                            if (len2 == 0) {
+                                // only possible with an inconsistent comparison function
+                                break outer;
+                            }
+                        }
+                        move(keys, values, a--, dest--);
+                        if (--len1 == 0) {
+                            break outer;
+                        }
+                    } while (aCount >= MIN_GALLOP || bCount >= MIN_GALLOP);
+                    minGallop++;
+                    state.minGallop = minGallop;
+                }
+            } finally {
+                // the remainder of run 2 (if any) fills the hole right of run 1
+                if (len2 > 0) {
+                    PythonUtils.arraycopy(tmpKeys, 0, keys, dest - (len2 - 1), len2);
+                    if (values != null) {
+                        PythonUtils.arraycopy(tmpValues, 0, values, dest - (len2 - 1), len2);
+                    }
+                }
+            }
+        }
+
+        private static Object[] copyOfRange(Object[] src, int from, int n) {
+            Object[] result = new Object[n];
+            PythonUtils.arraycopy(src, from, result, 0, n);
+            return result;
+        }
+
+        private static void move(Object[] keys, Object[] values, int from, int to) {
+            keys[to] = keys[from];
+            if (values != null) {
+                values[to] = values[from];
+            }
+        }
+
+        private static void moveRange(Object[] keys, Object[] values, int from, int to, int n) {
+            PythonUtils.arraycopy(keys, from, keys, to, n);
+            if (values != null) {
+                PythonUtils.arraycopy(values, from, values, to, n);
+            }
+        }
+
+        private static void copyFromTmp(Object[] keys, Object[] values, Object[] tmpKeys, Object[] tmpValues, int from, int to) {
+            keys[to] = tmpKeys[from];
+            if (values != null) {
+                values[to] = tmpValues[from];
+            }
+        }
+
+        private static void reverseSlice(Object[] keys, Object[] values, int lo, int hi) {
+            for (int l = lo, h = hi - 1; l < h; l++, h--) {
+                Object tmp = keys[l];
+                keys[l] = keys[h];
+                keys[h] = tmp;
+                if (values != null) {
+                    tmp = values[l];
+                    values[l] = values[h];
+                    values[h] = tmp;
+                }
+            }
+        }
+
+        public static TimSortNode create() {
+            return new TimSortNode();
+        }
+    }
+
+    /**
+     * The {@code <} comparison used by {@code heapq} and {@code bisect}. Like the key comparisons
+     * of {@link TimSortNode}, {@code str}, {@code int} and {@code float} operands of the same kind
+     * are compared directly on the Java values without dispatching to {@code __lt__}.
+     */
+    public abstract static class LessThanNode extends PNodeWithContext {
+
+        public abstract boolean execute(VirtualFrame frame, Object left, Object right);
+
+        @Specialization
+        static boolean doInt(int left, int right) {
+            return left < right;
+        }
+
+        @Specialization
+        static boolean doLong(long left, long right) {
+            return left < right;
+        }
+
+        @Specialization
+        static boolean doDouble(double left, double right) {
+            return left < right;
+        }
+
+        @Specialization
+        static boolean doString(String left, String right) {
+            return TimSortNode.compareStrings(left, right) < 0;
+        }
+
+        @Specialization(replaces = {"doInt", "doLong", "doDouble", "doString"})
+        static boolean doGeneric(VirtualFrame frame, Object left, Object right,
+                        @Cached("createLt()") BinaryComparisonNode ltNode,
+                        @Cached("createIfTrueNode()") CoerceToBooleanNode castToBooleanNode) {
+            if (left instanceof String && right instanceof String) {
+                return doString((String) left, (String) right);
+            }
+            return castToBooleanNode.executeBoolean(frame, ltNode.executeWith(frame, left, right));
+        }
+
+        static BinaryComparisonNode createLt() {
+            return BinaryComparisonNode.create(__LT__, __GT__, "<");
+        }
+
+        static CoerceToBooleanNode createIfTrueNode() {
+            return CoerceToBooleanNode.createIfTrueNode();
+        }
+
+        public static LessThanNode create() {
+            return LessThanNodeGen.create();
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2018, 2019, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2018, 2020, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * The Universal Permissive License (UPL), Version 1.0
@@ -40,6 +40,15 @@
  */
 package com.oracle.graal.python.builtins.objects.memoryview;
 
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__ENTER__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__EQ__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__EXIT__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__GETITEM__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__LEN__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__REPR__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__SETITEM__;
+
+import java.math.BigInteger;
 import java.util.List;
 
 import com.oracle.graal.python.builtins.Builtin;
@@ -47,22 +56,861 @@ import com.oracle.graal.python.builtins.CoreFunctions;
 import com.oracle.graal.python.builtins.PythonBuiltinClassType;
 import com.oracle.graal.python.builtins.PythonBuiltins;
 import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.PNotImplemented;
+import com.oracle.graal.python.builtins.objects.PythonAbstractObject;
+import com.oracle.graal.python.builtins.objects.bytes.PBytes;
+import com.oracle.graal.python.builtins.objects.bytes.PIBytesLike;
+import com.oracle.graal.python.builtins.objects.ints.PInt;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.builtins.objects.range.RangeNodes.LenOfRangeNode;
+import com.oracle.graal.python.builtins.objects.slice.PSlice;
+import com.oracle.graal.python.builtins.objects.slice.PSlice.SliceInfo;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.attributes.ReadAttributeFromDynamicObjectNode;
 import com.oracle.graal.python.nodes.attributes.ReadAttributeFromObjectNode;
 import com.oracle.graal.python.nodes.attributes.WriteAttributeToObjectNode;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
 import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.nodes.subscript.SliceLiteralNode.CoerceToIntSlice;
+import com.oracle.graal.python.nodes.subscript.SliceLiteralNode.ComputeIndices;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.graal.python.runtime.sequence.PSequence;
+import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.NodeFactory;
 import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.interop.UnsupportedMessageException;
+import com.oracle.truffle.api.library.CachedLibrary;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.profiles.ConditionProfile;
 
 @CoreFunctions(extendClasses = PythonBuiltinClassType.PMemoryView)
 public class MemoryviewBuiltins extends PythonBuiltins {
 
     @Override
-    protected List<NodeFactory<SetCMemoryviewNode>> getNodeFactories() {
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
         return MemoryviewBuiltinsFactory.getFactories();
     }
 
+    /**
+     * Common checks for operations on managed memoryviews.
+     */
+    protected interface ManagedMemoryViewNode {
+
+        PException raise(PythonBuiltinClassType type, String string);
+
+        PException raise(PythonBuiltinClassType type, String format, Object... arguments);
+
+        default void checkReleased(PMemoryView self) {
+            if (self.isReleased()) {
+                throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.MEMORYVIEW_RELEASED);
+            }
+        }
+
+        /**
+         * Returns the owner's storage after checking that the view can still be used.
+         */
+        default SequenceStorage getStorage(PMemoryView self) {
+            checkReleased(self);
+            SequenceStorage storage = self.getOwner().getSequenceStorage();
+            if (!self.isValidFor(storage)) {
+                throw raise(PythonBuiltinClassType.BufferError, ErrorMessages.MEMORYVIEW_BUFFER_CHANGED);
+            }
+            return storage;
+        }
+
+        default SequenceStorage getWritableStorage(PMemoryView self) {
+            SequenceStorage storage = getStorage(self);
+            if (self.isReadonly()) {
+                throw raise(PythonBuiltinClassType.TypeError, ErrorMessages.MEMORYVIEW_READONLY);
+            }
+            return storage;
+        }
+
+        default int checkIndex(PMemoryView self, int index) {
+            int idx = index < 0 ? index + self.getLength() : index;
+            if (idx < 0 || idx >= self.getLength()) {
+                throw raise(PythonBuiltinClassType.IndexError, ErrorMessages.MEMORYVIEW_INDEX_OUT_OF_BOUNDS);
+            }
+            return idx;
+        }
+    }
+
+    /**
+     * Forwards operations of non-managed memoryviews to the native memoryview object.
+     */
+    static final class NativeMemoryViewNode extends Node {
+        @Child private ReadAttributeFromDynamicObjectNode readNode = ReadAttributeFromDynamicObjectNode.create();
+        @Child private PythonObjectLibrary lib = PythonObjectLibrary.getFactory().createDispatched(2);
+        @Child private CallNode callNode;
+
+        Object getNativeObject(PMemoryView self) {
+            return readNode.execute(self.getStorage(), PMemoryView.C_MEMORYVIEW);
+        }
+
+        Object getAttribute(PMemoryView self, String name) {
+            return lib.lookupAttribute(getNativeObject(self), name);
+        }
+
+        Object call(VirtualFrame frame, PMemoryView self, String name, Object... args) {
+            if (callNode == null) {
+                callNode = insert(CallNode.create());
+            }
+            return callNode.execute(frame, getAttribute(self, name), args);
+        }
+
+        /**
+         * Wraps the result of a native operation into a memoryview if it is a native memoryview.
+         */
+        Object wrapResult(VirtualFrame frame, PMemoryView self, Object result, PythonBuiltinNode node) {
+            if (lib.getLazyPythonClass(result) == lib.getLazyPythonClass(getNativeObject(self))) {
+                if (callNode == null) {
+                    callNode = insert(CallNode.create());
+                }
+                return callNode.execute(frame, node.getCore().lookupType(PythonBuiltinClassType.PMemoryView), result);
+            }
+            return result;
+        }
+
+        static NativeMemoryViewNode create() {
+            return new NativeMemoryViewNode();
+        }
+    }
+
+    /**
+     * Returns the item size of a memoryview format or {@code -1} if the format is not supported.
+     * Only native single character formats with an optional {@code '@'} prefix are supported.
+     */
+    static int getFormatItemSize(String format) {
+        if (format.length() == 2 && format.charAt(0) == '@') {
+            return getFormatItemSize(format.substring(1));
+        }
+        if (format.length() != 1) {
+            return -1;
+        }
+        switch (format.charAt(0)) {
+            case 'B':
+            case 'b':
+            case 'c':
+            case '?':
+                return 1;
+            case 'h':
+            case 'H':
+                return 2;
+            case 'i':
+            case 'I':
+            case 'f':
+                return 4;
+            case 'l':
+            case 'L':
+            case 'q':
+            case 'Q':
+            case 'n':
+            case 'N':
+            case 'd':
+                return 8;
+            default:
+                return -1;
+        }
+    }
+
+    static boolean isByteFormat(String format) {
+        char c = format.charAt(format.length() - 1);
+        return c == 'B' || c == 'b' || c == 'c';
+    }
+
+    abstract static class ItemAccessNode extends PythonBuiltinNode implements ManagedMemoryViewNode {
+
+        Object unpack(PMemoryView self, long bits) {
+            String format = self.getFormat();
+            switch (format.charAt(format.length() - 1)) {
+                case 'B':
+                case 'H':
+                case 'i':
+                    return (int) bits;
+                case 'b':
+                    return (int) (byte) bits;
+                case 'h':
+                    return (int) (short) bits;
+                case 'c':
+                    return factory().createBytes(new byte[]{(byte) bits});
+                case '?':
+                    return bits != 0;
+                case 'I':
+                case 'l':
+                case 'q':
+                case 'n':
+                    return bits;
+                case 'L':
+                case 'Q':
+                case 'N':
+                    if (bits >= 0) {
+                        return bits;
+                    }
+                    return factory().createInt(toUnsignedBigInteger(bits));
+                case 'f':
+                    return (double) Float.intBitsToFloat((int) bits);
+                default:
+                    return Double.longBitsToDouble(bits);
+            }
+        }
+
+        long pack(PMemoryView self, Object value, PythonObjectLibrary lib) {
+            String format = self.getFormat();
+            char c = format.charAt(format.length() - 1);
+            switch (c) {
+                case 'f':
+                    if (!lib.canBeJavaDouble(value)) {
+                        throw raise(PythonBuiltinClassType.TypeError, ErrorMessages.MEMORYVIEW_INVALID_TYPE_FOR_FORMAT, format);
+                    }
+                    return Float.floatToRawIntBits((float) lib.asJavaDouble(value)) & 0xFFFFFFFFL;
+                case 'd':
+                    if (!lib.canBeJavaDouble(value)) {
+                        throw raise(PythonBuiltinClassType.TypeError, ErrorMessages.MEMORYVIEW_INVALID_TYPE_FOR_FORMAT, format);
+                    }
+                    return Double.doubleToRawLongBits(lib.asJavaDouble(value));
+                case '?':
+                    return lib.isTrue(value) ? 1 : 0;
+                case 'c':
+                    if (value instanceof PBytes) {
+                        SequenceStorage storage = ((PBytes) value).getSequenceStorage();
+                        if (storage.length() == 1) {
+                            return PMemoryView.readByte(storage, 0) & 0xFFL;
+                        }
+                        throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.MEMORYVIEW_INVALID_VALUE_FOR_FORMAT, format);
+                    }
+                    throw raise(PythonBuiltinClassType.TypeError, ErrorMessages.MEMORYVIEW_INVALID_TYPE_FOR_FORMAT, format);
+                default:
+                    return packInteger(c, format, value);
+            }
+        }
+
+        private long packInteger(char c, String format, Object value) {
+            long v;
+            boolean unsigned64 = c == 'L' || c == 'Q' || c == 'N';
+            if (value instanceof Integer) {
+                v = (int) value;
+            } else if (value instanceof Long) {
+                v = (long) value;
+            } else if (value instanceof Boolean) {
+                v = (boolean) value ? 1 : 0;
+            } else if (value instanceof PInt) {
+                PInt pint = (PInt) value;
+                if (unsigned64 && !pint.isNegative() && pint.bitLength() <= 64) {
+                    return pint.getValue().longValue();
+                }
+                try {
+                    v = pint.longValueExact();
+                } catch (ArithmeticException e) {
+                    throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.MEMORYVIEW_INVALID_VALUE_FOR_FORMAT, format);
+                }
+            } else {
+                throw raise(PythonBuiltinClassType.TypeError, ErrorMessages.MEMORYVIEW_INVALID_TYPE_FOR_FORMAT, format);
+            }
+            long min;
+            long max;
+            switch (c) {
+                case 'B':
+                    min = 0;
+                    max = 0xFF;
+                    break;
+                case 'b':
+                    min = Byte.MIN_VALUE;
+                    max = Byte.MAX_VALUE;
+                    break;
+                case 'h':
+                    min = Short.MIN_VALUE;
+                    max = Short.MAX_VALUE;
+                    break;
+                case 'H':
+                    min = 0;
+                    max = 0xFFFF;
+                    break;
+                case 'i':
+                    min = Integer.MIN_VALUE;
+                    max = Integer.MAX_VALUE;
+                    break;
+                case 'I':
+                    min = 0;
+                    max = 0xFFFFFFFFL;
+                    break;
+                default:
+                    min = unsigned64 ? 0 : Long.MIN_VALUE;
+                    max = Long.MAX_VALUE;
+                    break;
+            }
+            if (v < min || v > max) {
+                throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.MEMORYVIEW_INVALID_VALUE_FOR_FORMAT, format);
+            }
+            return v;
+        }
+
+        @TruffleBoundary
+        private static BigInteger toUnsignedBigInteger(long bits) {
+            return new BigInteger(Long.toUnsignedString(bits));
+        }
+    }
+
+    @Builtin(name = __GETITEM__, minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class GetItemNode extends ItemAccessNode {
+
+        @Specialization(guards = "self.isManaged()")
+        Object doSlice(PMemoryView self, PSlice key,
+                        @Cached CoerceToIntSlice sliceCast,
+                        @Cached ComputeIndices compute,
+                        @Cached LenOfRangeNode sliceLen) {
+            checkReleased(self);
+            SliceInfo info = compute.execute(sliceCast.execute(key), self.getLength());
+            int n = sliceLen.len(info);
+            int offset = self.getOffset() + info.start * self.getStride();
+            return factory().createMemoryView(PythonBuiltinClassType.PMemoryView, self.getOwner(), offset, n, self.getItemSize(), self.getStride() * info.step, self.getFormat(),
+                            self.isReadonly());
+        }
+
+        @Specialization(guards = {"self.isManaged()", "!isPSlice(key)"}, limit = "3")
+        Object doIndex(PMemoryView self, Object key,
+                        @CachedLibrary("key") PythonObjectLibrary lib) {
+            if (PGuards.isPTuple(key)) {
+                throw raise(PythonBuiltinClassType.TypeError, ErrorMessages.MEMORYVIEW_INVALID_SLICE_KEY);
+            }
+            SequenceStorage storage = getStorage(self);
+            int idx = checkIndex(self, lib.asSize(key, PythonBuiltinClassType.IndexError));
+            return unpack(self, self.readItemBits(storage, self.getOffset() + idx * self.getStride()));
+        }
+
+        @Specialization(guards = "!self.isManaged()")
+        Object doNative(VirtualFrame frame, PMemoryView self, Object key,
+                        @Cached NativeMemoryViewNode nativeNode) {
+            return nativeNode.wrapResult(frame, self, nativeNode.call(frame, self, __GETITEM__, key), this);
+        }
+    }
+
+    @Builtin(name = __SETITEM__, minNumOfPositionalArgs = 3)
+    @GenerateNodeFactory
+    abstract static class SetItemNode extends ItemAccessNode {
+
+        @Specialization(guards = "self.isManaged()", limit = "3")
+        PNone doSlice(PMemoryView self, PSlice key, Object value,
+                        @CachedLibrary("value") PythonObjectLibrary lib,
+                        @Cached CoerceToIntSlice sliceCast,
+                        @Cached ComputeIndices compute,
+                        @Cached LenOfRangeNode sliceLen) {
+            SequenceStorage storage = getWritableStorage(self);
+            SliceInfo info = compute.execute(sliceCast.execute(key), self.getLength());
+            int n = sliceLen.len(info);
+            if (!lib.isBuffer(value)) {
+                throw raise(PythonBuiltinClassType.TypeError, ErrorMessages.MEMORYVIEW_DIFFERENT_STRUCTURES);
+            }
+            byte[] data;
+            try {
+                data = lib.getBufferBytes(value);
+            } catch (UnsupportedMessageException e) {
+                throw raise(PythonBuiltinClassType.TypeError, ErrorMessages.MEMORYVIEW_DIFFERENT_STRUCTURES);
+            }
+            int itemsize = self.getItemSize();
+            if (value instanceof PMemoryView && ((PMemoryView) value).isManaged() && !((PMemoryView) value).getFormat().equals(self.getFormat()) ||
+                            lib.getBufferLength(value) != n * itemsize) {
+                throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.MEMORYVIEW_DIFFERENT_STRUCTURES);
+            }
+            if (value == self.getOwner()) {
+                // the source may be the storage we are writing to
+                data = data.clone();
+            }
+            int stride = self.getStride() * info.step;
+            int pos = self.getOffset() + info.start * self.getStride();
+            for (int i = 0, k = 0; i < n; i++, pos += stride) {
+                for (int j = 0; j < itemsize; j++) {
+                    PMemoryView.writeByte(storage, pos + j, data[k++]);
+                }
+            }
+            return PNone.NONE;
+        }
+
+        @Specialization(guards = {"self.isManaged()", "!isPSlice(key)"}, limit = "3")
+        PNone doIndex(PMemoryView self, Object key, Object value,
+                        @CachedLibrary("key") PythonObjectLibrary keyLib,
+                        @CachedLibrary(limit = "3") PythonObjectLibrary valueLib) {
+            if (PGuards.isPTuple(key)) {
+                throw raise(PythonBuiltinClassType.TypeError, ErrorMessages.MEMORYVIEW_INVALID_SLICE_KEY);
+            }
+            SequenceStorage storage = getWritableStorage(self);
+            int idx = checkIndex(self, keyLib.asSize(key, PythonBuiltinClassType.IndexError));
+            self.writeItemBits(storage, self.getOffset() + idx * self.getStride(), pack(self, value, valueLib));
+            return PNone.NONE;
+        }
+
+        @Specialization(guards = "!self.isManaged()")
+        Object doNative(VirtualFrame frame, PMemoryView self, Object key, Object value,
+                        @Cached NativeMemoryViewNode nativeNode) {
+            return nativeNode.call(frame, self, __SETITEM__, key, value);
+        }
+    }
+
+    @Builtin(name = __LEN__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class LenNode extends PythonUnaryBuiltinNode implements ManagedMemoryViewNode {
+        @Specialization(guards = "self.isManaged()")
+        int doManaged(PMemoryView self) {
+            checkReleased(self);
+            return self.getLength();
+        }
+
+        @Specialization(guards = "!self.isManaged()")
+        Object doNative(VirtualFrame frame, PMemoryView self,
+                        @Cached NativeMemoryViewNode nativeNode) {
+            return nativeNode.call(frame, self, __LEN__);
+        }
+    }
+
+    @Builtin(name = "tobytes", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class ToBytesNode extends PythonUnaryBuiltinNode implements ManagedMemoryViewNode {
+        @Specialization(guards = "self.isManaged()")
+        PBytes doManaged(PMemoryView self,
+                        @Cached("createBinaryProfile()") ConditionProfile fastPathProfile) {
+            return factory().createBytes(self.copyBytes(getStorage(self), fastPathProfile));
+        }
+
+        @Specialization(guards = "!self.isManaged()")
+        Object doNative(VirtualFrame frame, PMemoryView self,
+                        @Cached NativeMemoryViewNode nativeNode) {
+            return nativeNode.call(frame, self, "tobytes");
+        }
+    }
+
+    @Builtin(name = "tolist", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class ToListNode extends ItemAccessNode {
+        @Specialization(guards = "self.isManaged()")
+        Object doManaged(PMemoryView self) {
+            SequenceStorage storage = getStorage(self);
+            Object[] items = new Object[self.getLength()];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = unpack(self, self.readItemBits(storage, self.getOffset() + i * self.getStride()));
+            }
+            return factory().createList(items);
+        }
+
+        @Specialization(guards = "!self.isManaged()")
+        Object doNative(VirtualFrame frame, PMemoryView self,
+                        @Cached NativeMemoryViewNode nativeNode) {
+            return nativeNode.call(frame, self, "tolist");
+        }
+    }
+
+    @Builtin(name = "hex", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class HexNode extends PythonUnaryBuiltinNode implements ManagedMemoryViewNode {
+        private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+        @Specialization(guards = "self.isManaged()")
+        String doManaged(PMemoryView self,
+                        @Cached("createBinaryProfile()") ConditionProfile fastPathProfile) {
+            return toHex(self.copyBytes(getStorage(self), fastPathProfile));
+        }
+
+        @Specialization(guards = "!self.isManaged()")
+        Object doNative(VirtualFrame frame, PMemoryView self,
+                        @Cached NativeMemoryViewNode nativeNode) {
+            return nativeNode.call(frame, self, "hex");
+        }
+
+        @TruffleBoundary
+        private static String toHex(byte[] data) {
+            char[] result = new char[data.length * 2];
+            for (int i = 0; i < data.length; i++) {
+                result[2 * i] = HEX_DIGITS[(data[i] >> 4) & 0xF];
+                result[2 * i + 1] = HEX_DIGITS[data[i] & 0xF];
+            }
+            return new String(result);
+        }
+    }
+
+    @Builtin(name = "cast", minNumOfPositionalArgs = 2, parameterNames = {"$self", "format", "shape"})
+    @GenerateNodeFactory
+    abstract static class CastNode extends PythonTernaryBuiltinNode implements ManagedMemoryViewNode {
+        @Specialization(guards = "self.isManaged()")
+        PMemoryView doManaged(PMemoryView self, String format, Object shape) {
+            checkReleased(self);
+            int itemsize = getFormatItemSize(format);
+            if (itemsize < 0) {
+                throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.MEMORYVIEW_DESTINATION_FORMAT_ERROR);
+            }
+            if (!self.isContiguous()) {
+                throw raise(PythonBuiltinClassType.TypeError, ErrorMessages.MEMORYVIEW_CAST_NOT_C_CONTIGUOUS);
+            }
+            if (!isByteFormat(format) && !isByteFormat(self.getFormat())) {
+                throw raise(PythonBuiltinClassType.TypeError, ErrorMessages.MEMORYVIEW_CAST_NON_BYTE_FORMATS);
+            }
+            int nbytes = self.getNBytes();
+            if (nbytes % itemsize != 0) {
+                throw raise(PythonBuiltinClassType.TypeError, ErrorMessages.MEMORYVIEW_LENGTH_NOT_MULTIPLE_OF_ITEMSIZE);
+            }
+            int length = nbytes / itemsize;
+            if (!(shape instanceof PNone)) {
+                checkShape(shape, length);
+            }
+            return factory().createMemoryView(PythonBuiltinClassType.PMemoryView, self.getOwner(), self.getOffset(), length, itemsize, itemsize, format, self.isReadonly());
+        }
+
+        private void checkShape(Object shape, int length) {
+            if (!(shape instanceof PSequence)) {
+                throw raise(PythonBuiltinClassType.TypeError, ErrorMessages.MEMORYVIEW_SHAPE_MUST_BE_LIST_OR_TUPLE);
+            }
+            SequenceStorage dims = ((PSequence) shape).getSequenceStorage();
+            if (dims.length() != 1) {
+                throw raise(PythonBuiltinClassType.NotImplementedError, ErrorMessages.MEMORYVIEW_MULTIDIM_CAST);
+            }
+            Object dim = dims.getItemNormalized(0);
+            if (!(dim instanceof Integer && (int) dim == length || dim instanceof Long && (long) dim == length)) {
+                throw raise(PythonBuiltinClassType.TypeError, ErrorMessages.MEMORYVIEW_PRODUCT_SHAPE);
+            }
+        }
+
+        @Specialization(guards = "!self.isManaged()")
+        Object doNative(VirtualFrame frame, PMemoryView self, Object format, Object shape,
+                        @Cached NativeMemoryViewNode nativeNode) {
+            Object result;
+            if (shape instanceof PNone) {
+                result = nativeNode.call(frame, self, "cast", format);
+            } else {
+                result = nativeNode.call(frame, self, "cast", format, shape);
+            }
+            return nativeNode.wrapResult(frame, self, result, this);
+        }
+    }
+
+    @Builtin(name = "release", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class ReleaseNode extends PythonUnaryBuiltinNode {
+        @Specialization(guards = "self.isManaged()")
+        static PNone doManaged(PMemoryView self) {
+            self.release();
+            return PNone.NONE;
+        }
+
+        @Specialization(guards = "!self.isManaged()")
+        static Object doNative(VirtualFrame frame, PMemoryView self,
+                        @Cached NativeMemoryViewNode nativeNode) {
+            return nativeNode.call(frame, self, "release");
+        }
+    }
+
+    @Builtin(name = __ENTER__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class EnterNode extends PythonUnaryBuiltinNode implements ManagedMemoryViewNode {
+        @Specialization(guards = "self.isManaged()")
+        Object doManaged(PMemoryView self) {
+            checkReleased(self);
+            return self;
+        }
+
+        @Specialization(guards = "!self.isManaged()")
+        static Object doNative(VirtualFrame frame, PMemoryView self,
+                        @Cached NativeMemoryViewNode nativeNode) {
+            return nativeNode.call(frame, self, __ENTER__);
+        }
+    }
+
+    @Builtin(name = __EXIT__, minNumOfPositionalArgs = 4)
+    @GenerateNodeFactory
+    abstract static class ExitNode extends PythonBuiltinNode {
+        @Specialization(guards = "self.isManaged()")
+        @SuppressWarnings("unused")
+        static PNone doManaged(PMemoryView self, Object type, Object value, Object traceback) {
+            self.release();
+            return PNone.NONE;
+        }
+
+        @Specialization(guards = "!self.isManaged()")
+        static Object doNative(VirtualFrame frame, PMemoryView self, Object type, Object value, Object traceback,
+                        @Cached NativeMemoryViewNode nativeNode) {
+            return nativeNode.call(frame, self, __EXIT__, type, value, traceback);
+        }
+    }
+
+    @Builtin(name = __REPR__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class ReprNode extends PythonUnaryBuiltinNode {
+        @Specialization(guards = "self.isManaged()")
+        @TruffleBoundary
+        static String doManaged(PMemoryView self) {
+            String prefix = self.isReleased() ? "<released memory at 0x" : "<memory at 0x";
+            return prefix + Long.toHexString(PythonAbstractObject.systemHashCode(self)) + ">";
+        }
+
+        @Specialization(guards = "!self.isManaged()")
+        static Object doNative(VirtualFrame frame, PMemoryView self,
+                        @Cached NativeMemoryViewNode nativeNode) {
+            return nativeNode.call(frame, self, __REPR__);
+        }
+    }
+
+    @Builtin(name = __EQ__, minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class EqNode extends PythonBinaryBuiltinNode implements ManagedMemoryViewNode {
+        @Specialization(guards = "self.isManaged()", limit = "3")
+        Object doManaged(PMemoryView self, Object other,
+                        @CachedLibrary("other") PythonObjectLibrary lib,
+                        @Cached("createBinaryProfile()") ConditionProfile fastPathProfile) {
+            if (self == other) {
+                return true;
+            }
+            String otherFormat;
+            if (other instanceof PMemoryView && ((PMemoryView) other).isManaged()) {
+                PMemoryView otherView = (PMemoryView) other;
+                if (self.isReleased() || otherView.isReleased()) {
+                    return false;
+                }
+                otherFormat = otherView.getFormat();
+            } else if (other instanceof PIBytesLike) {
+                if (self.isReleased()) {
+                    return false;
+                }
+                otherFormat = "B";
+            } else {
+                return PNotImplemented.NOT_IMPLEMENTED;
+            }
+            if (!otherFormat.equals(self.getFormat()) || self.getFormat().endsWith("f") || self.getFormat().endsWith("d")) {
+                // different formats or floats (which need value comparison): let the caller fall
+                // back to identity
+                return PNotImplemented.NOT_IMPLEMENTED;
+            }
+            byte[] mine = self.copyBytes(getStorage(self), fastPathProfile);
+            try {
+                return equalBytes(mine, lib.getBufferBytes(other), lib.getBufferLength(other));
+            } catch (UnsupportedMessageException e) {
+                return PNotImplemented.NOT_IMPLEMENTED;
+            }
+        }
+
+        @Specialization(guards = "!self.isManaged()")
+        @SuppressWarnings("unused")
+        static Object doNative(PMemoryView self, Object other) {
+            return PNotImplemented.NOT_IMPLEMENTED;
+        }
+
+        private static boolean equalBytes(byte[] a, byte[] b, int bLength) {
+            if (a.length != bLength) {
+                return false;
+            }
+            for (int i = 0; i < a.length; i++) {
+                if (a[i] != b[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Base class of the memoryview attributes. Native memoryviews read the attribute from the
+     * native object.
+     */
+    abstract static class AttributeNode extends PythonUnaryBuiltinNode implements ManagedMemoryViewNode {
+        abstract String getName();
+
+        abstract Object getManaged(PMemoryView self);
+
+        @Specialization(guards = "self.isManaged()")
+        Object doManaged(PMemoryView self) {
+            checkReleased(self);
+            return getManaged(self);
+        }
+
+        @Specialization(guards = "!self.isManaged()")
+        Object doNative(PMemoryView self,
+                        @Cached NativeMemoryViewNode nativeNode) {
+            return nativeNode.getAttribute(self, getName());
+        }
+    }
+
+    @Builtin(name = "nbytes", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class NBytesNode extends AttributeNode {
+        @Override
+        String getName() {
+            return "nbytes";
+        }
+
+        @Override
+        Object getManaged(PMemoryView self) {
+            return self.getNBytes();
+        }
+    }
+
+    @Builtin(name = "readonly", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class ReadonlyNode extends AttributeNode {
+        @Override
+        String getName() {
+            return "readonly";
+        }
+
+        @Override
+        Object getManaged(PMemoryView self) {
+            return self.isReadonly();
+        }
+    }
+
+    @Builtin(name = "itemsize", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class ItemSizeNode extends AttributeNode {
+        @Override
+        String getName() {
+            return "itemsize";
+        }
+
+        @Override
+        Object getManaged(PMemoryView self) {
+            return self.getItemSize();
+        }
+    }
+
+    @Builtin(name = "format", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class FormatNode extends AttributeNode {
+        @Override
+        String getName() {
+            return "format";
+        }
+
+        @Override
+        Object getManaged(PMemoryView self) {
+            return self.getFormat();
+        }
+    }
+
+    @Builtin(name = "ndim", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class NDimNode extends AttributeNode {
+        @Override
+        String getName() {
+            return "ndim";
+        }
+
+        @Override
+        Object getManaged(PMemoryView self) {
+            return 1;
+        }
+    }
+
+    @Builtin(name = "shape", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class ShapeNode extends AttributeNode {
+        @Override
+        String getName() {
+            return "shape";
+        }
+
+        @Override
+        Object getManaged(PMemoryView self) {
+            return factory().createTuple(new Object[]{self.getLength()});
+        }
+    }
+
+    @Builtin(name = "strides", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class StridesNode extends AttributeNode {
+        @Override
+        String getName() {
+            return "strides";
+        }
+
+        @Override
+        Object getManaged(PMemoryView self) {
+            return factory().createTuple(new Object[]{self.getStride()});
+        }
+    }
+
+    @Builtin(name = "suboffsets", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class SubOffsetsNode extends AttributeNode {
+        @Override
+        String getName() {
+            return "suboffsets";
+        }
+
+        @Override
+        Object getManaged(PMemoryView self) {
+            return factory().createTuple(new Object[0]);
+        }
+    }
+
+    @Builtin(name = "c_contiguous", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class CContiguousNode extends AttributeNode {
+        @Override
+        String getName() {
+            return "c_contiguous";
+        }
+
+        @Override
+        Object getManaged(PMemoryView self) {
+            return self.isContiguous();
+        }
+    }
+
+    @Builtin(name = "f_contiguous", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class FContiguousNode extends AttributeNode {
+        @Override
+        String getName() {
+            return "f_contiguous";
+        }
+
+        @Override
+        Object getManaged(PMemoryView self) {
+            return self.isContiguous();
+        }
+    }
+
+    @Builtin(name = "contiguous", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class ContiguousNode extends AttributeNode {
+        @Override
+        String getName() {
+            return "contiguous";
+        }
+
+        @Override
+        Object getManaged(PMemoryView self) {
+            return self.isContiguous();
+        }
+    }
+
+    @Builtin(name = "obj", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class ObjNode extends AttributeNode {
+        @Override
+        String getName() {
+            return "obj";
+        }
+
+        @Override
+        Object getManaged(PMemoryView self) {
+            return self.getOwner();
+        }
+    }
+
+    @Builtin(name = PMemoryView.MANAGED, minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class ManagedNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static boolean isManaged(PMemoryView self) {
+            return self.isManaged();
+        }
+    }
+
     @Builtin(name = PMemoryView.C_MEMORYVIEW, minNumOfPositionalArgs = 1, maxNumOfPositionalArgs = 2, isGetter = true, isSetter = true)
     @GenerateNodeFactory
     abstract static class SetCMemoryviewNode extends PythonBinaryBuiltinNode {
@@ -74,7 +922,8 @@ public class MemoryviewBuiltins extends PythonBuiltins {
         @Specialization(guards = "isNoValue(value)")
         Object set(Object self, @SuppressWarnings("unused") PNone value,
                         @Cached("create()") ReadAttributeFromObjectNode readNode) {
-            return readNode.execute(self, PMemoryView.C_MEMORYVIEW);
+            Object result = readNode.execute(self, PMemoryView.C_MEMORYVIEW);
+            return result == PNone.NO_VALUE ? PNone.NONE : result;
         }
 
         @Specialization(guards = "!isNoValue(cmemoryview)")
@@ -40,24 +40,254 @@
  */
 package com.oracle.graal.python.builtins.objects.memoryview;
 
+import java.nio.ByteOrder;
+
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
 import com.oracle.graal.python.builtins.objects.object.PythonBuiltinObject;
 import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PRaiseNode;
 import com.oracle.graal.python.nodes.attributes.ReadAttributeFromDynamicObjectNode;
 import com.oracle.graal.python.nodes.util.CastToByteNode;
+import com.oracle.graal.python.runtime.sequence.PSequence;
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.DoubleSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.IntSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.LongSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
+import com.oracle.graal.python.util.PythonUtils;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Cached.Shared;
 import com.oracle.truffle.api.library.CachedLibrary;
 import com.oracle.truffle.api.library.ExportLibrary;
 import com.oracle.truffle.api.library.ExportMessage;
 import com.oracle.truffle.api.object.DynamicObject;
+import com.oracle.truffle.api.profiles.ConditionProfile;
 
+/**
+ * A memoryview is either backed by a native {@code memoryview} object (stored in attribute
+ * {@value #C_MEMORYVIEW}) or it is <em>managed</em>. Managed memoryviews are one-dimensional views
+ * onto the storage of a {@code bytes}, {@code bytearray} or {@code array} object. They never copy
+ * the owner's data; slicing and casting just create a new view with a different offset, stride or
+ * format onto the same owner.
+ */
 @ExportLibrary(PythonObjectLibrary.class)
 public class PMemoryView extends PythonBuiltinObject {
 
     static final String C_MEMORYVIEW = "__c_memoryview";
+    /** Name of the attribute telling if a memoryview is managed (used by memoryview.py). */
+    static final String MANAGED = "__managed_memoryview";
+    /** Method (defined in memoryview.py) that creates the native delegate of a managed view. */
+    public static final String MATERIALIZE_NATIVE = "__materialize_native__";
+
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    /** The exporting object of a managed view or {@code null} if this view is native. */
+    private final PSequence owner;
+    /** Offset of the first item in bytes. */
+    private final int offset;
+    /** Number of items. */
+    private final int length;
+    private final int itemsize;
+    /** Distance between two items in bytes (may be negative). */
+    private final int stride;
+    private final String format;
+    private final boolean readonly;
+    private boolean released;
 
     public PMemoryView(Object cls, DynamicObject storage, @SuppressWarnings("unused") Object obj) {
         super(cls, storage);
+        this.owner = null;
+        this.offset = 0;
+        this.length = 0;
+        this.itemsize = 0;
+        this.stride = 0;
+        this.format = null;
+        this.readonly = false;
+    }
+
+    public PMemoryView(Object cls, DynamicObject storage, PSequence owner, int offset, int length, int itemsize, int stride, String format, boolean readonly) {
+        super(cls, storage);
+        this.owner = owner;
+        this.offset = offset;
+        this.length = length;
+        this.itemsize = itemsize;
+        this.stride = stride;
+        this.format = format;
+        this.readonly = readonly;
+    }
+
+    public boolean isManaged() {
+        return owner != null;
+    }
+
+    public PSequence getOwner() {
+        return owner;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getItemSize() {
+        return itemsize;
+    }
+
+    public int getStride() {
+        return stride;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public boolean isReadonly() {
+        return readonly;
+    }
+
+    public boolean isReleased() {
+        return released;
+    }
+
+    public void release() {
+        released = true;
+    }
+
+    public int getNBytes() {
+        return length * itemsize;
+    }
+
+    public boolean isContiguous() {
+        return stride == itemsize || length <= 1;
+    }
+
+    /**
+     * Returns the size in bytes of the elements of a storage that can back a managed view or
+     * {@code -1} if the storage cannot be viewed.
+     */
+    public static int getStorageItemSize(SequenceStorage storage) {
+        if (storage instanceof ByteSequenceStorage) {
+            return 1;
+        } else if (storage instanceof IntSequenceStorage) {
+            return Integer.BYTES;
+        } else if (storage instanceof LongSequenceStorage) {
+            return Long.BYTES;
+        } else if (storage instanceof DoubleSequenceStorage) {
+            return Double.BYTES;
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the byte at the given absolute byte index of a storage accepted by
+     * {@link #getStorageItemSize(SequenceStorage)}. Multi-byte elements are laid out in native
+     * byte order, as they would be in CPython.
+     */
+    public static byte readByte(SequenceStorage storage, int byteIndex) {
+        if (storage instanceof ByteSequenceStorage) {
+            return ((ByteSequenceStorage) storage).getByteItemNormalized(byteIndex);
+        }
+        int elementSize = getStorageItemSize(storage);
+        long element = readElementBits(storage, byteIndex / elementSize);
+        int shift = byteShift(byteIndex % elementSize, elementSize);
+        return (byte) (element >>> shift);
+    }
+
+    public static void writeByte(SequenceStorage storage, int byteIndex, byte value) {
+        if (storage instanceof ByteSequenceStorage) {
+            ((ByteSequenceStorage) storage).setByteItemNormalized(byteIndex, value);
+            return;
+        }
+        int elementSize = getStorageItemSize(storage);
+        int elementIndex = byteIndex / elementSize;
+        int shift = byteShift(byteIndex % elementSize, elementSize);
+        long element = readElementBits(storage, elementIndex);
+        element = (element & ~(0xFFL << shift)) | ((value & 0xFFL) << shift);
+        if (storage instanceof IntSequenceStorage) {
+            ((IntSequenceStorage) storage).setIntItemNormalized(elementIndex, (int) element);
+        } else if (storage instanceof LongSequenceStorage) {
+            ((LongSequenceStorage) storage).setLongItemNormalized(elementIndex, element);
+        } else {
+            ((DoubleSequenceStorage) storage).setDoubleItemNormalized(elementIndex, Double.longBitsToDouble(element));
+        }
+    }
+
+    private static long readElementBits(SequenceStorage storage, int elementIndex) {
+        if (storage instanceof IntSequenceStorage) {
+            return ((IntSequenceStorage) storage).getIntItemNormalized(elementIndex);
+        } else if (storage instanceof LongSequenceStorage) {
+            return ((LongSequenceStorage) storage).getLongItemNormalized(elementIndex);
+        } else {
+            return Double.doubleToRawLongBits(((DoubleSequenceStorage) storage).getDoubleItemNormalized(elementIndex));
+        }
+    }
+
+    private static int byteShift(int byteInElement, int elementSize) {
+        return (LITTLE_ENDIAN ? byteInElement : elementSize - 1 - byteInElement) * 8;
+    }
+
+    /**
+     * Reads {@link #getItemSize() itemsize} bytes starting at the given absolute byte index and
+     * assembles them in native byte order.
+     */
+    public long readItemBits(SequenceStorage storage, int byteIndex) {
+        if (itemsize == 1) {
+            return readByte(storage, byteIndex) & 0xFFL;
+        }
+        long bits = 0;
+        for (int i = 0; i < itemsize; i++) {
+            bits |= (readByte(storage, byteIndex + i) & 0xFFL) << byteShift(i, itemsize);
+        }
+        return bits;
+    }
+
+    public void writeItemBits(SequenceStorage storage, int byteIndex, long bits) {
+        for (int i = 0; i < itemsize; i++) {
+            writeByte(storage, byteIndex + i, (byte) (bits >>> byteShift(i, itemsize)));
+        }
+    }
+
+    /**
+     * Copies the viewed bytes in logical order. This is the only operation that copies the data
+     * of a managed view.
+     */
+    public byte[] copyBytes(SequenceStorage storage, ConditionProfile fastPathProfile) {
+        int nbytes = getNBytes();
+        byte[] result = new byte[nbytes];
+        if (fastPathProfile.profile(storage instanceof ByteSequenceStorage && isContiguous())) {
+            PythonUtils.arraycopy((byte[]) storage.getInternalArrayObject(), offset, result, 0, nbytes);
+        } else {
+            int pos = 0;
+            for (int i = 0; i < length; i++) {
+                int itemStart = offset + i * stride;
+                for (int j = 0; j < itemsize; j++) {
+                    result[pos++] = readByte(storage, itemStart + j);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns {@code true} if the view still fits into the owner's storage. Owners like
+     * {@code bytearray} may shrink or change their storage while being viewed.
+     */
+    public boolean isValidFor(SequenceStorage storage) {
+        int storageItemSize = getStorageItemSize(storage);
+        if (storageItemSize < 0) {
+            return false;
+        }
+        int storageBytes = storage.length() * storageItemSize;
+        if (length == 0) {
+            return true;
+        }
+        int first = offset;
+        int last = offset + (length - 1) * stride;
+        return Math.min(first, last) >= 0 && Math.max(first, last) + itemsize <= storageBytes;
     }
 
     @ExportMessage
@@ -68,7 +298,11 @@ public class PMemoryView extends PythonBuiltinObject {
     @ExportMessage
     int getBufferLength(
                     @Shared("readNativeMemoryViewNode") @Cached ReadAttributeFromDynamicObjectNode readNativeMemoryViewNode,
-                    @CachedLibrary(limit = "1") PythonObjectLibrary lib) {
+                    @CachedLibrary(limit = "1") PythonObjectLibrary lib,
+                    @Shared("managedProfile") @Cached("createBinaryProfile()") ConditionProfile managedProfile) {
+        if (managedProfile.profile(isManaged())) {
+            return getNBytes();
+        }
         Object nativeMemoryViewObject = readNativeMemoryViewNode.execute(getStorage(), C_MEMORYVIEW);
         return lib.length(nativeMemoryViewObject);
     }
@@ -78,7 +312,17 @@ public class PMemoryView extends PythonBuiltinObject {
                     @Shared("readNativeMemoryViewNode") @Cached ReadAttributeFromDynamicObjectNode readNativeMemoryViewNode,
                     @CachedLibrary(limit = "1") PythonObjectLibrary lib,
                     @Cached PInteropSubscriptNode subscriptNode,
-                    @Cached CastToByteNode castToByteNode) {
+                    @Cached CastToByteNode castToByteNode,
+                    @Shared("managedProfile") @Cached("createBinaryProfile()") ConditionProfile managedProfile,
+                    @Cached("createBinaryProfile()") ConditionProfile fastPathProfile,
+                    @Cached PRaiseNode raiseNode) {
+        if (managedProfile.profile(isManaged())) {
+            SequenceStorage storage = owner.getSequenceStorage();
+            if (!isValidFor(storage)) {
+                throw raiseNode.raise(PythonBuiltinClassType.BufferError, ErrorMessages.MEMORYVIEW_BUFFER_CHANGED);
+            }
+            return copyBytes(storage, fastPathProfile);
+        }
         Object nativeMemoryViewObject = readNativeMemoryViewNode.execute(getStorage(), C_MEMORYVIEW);
         int len = lib.length(nativeMemoryViewObject);
         byte[] data = new byte[len];
@@ -58,9 +58,6 @@ import static com.oracle.graal.python.nodes.SpecialMethodNames.__RMUL__;
 import static com.oracle.graal.python.nodes.SpecialMethodNames.__STR__;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.channels.Channel;
-import java.nio.channels.SeekableByteChannel;
 import java.util.List;
 
 import com.oracle.graal.python.builtins.Builtin;
@@ -68,11 +65,9 @@ import com.oracle.graal.python.builtins.CoreFunctions;
 import com.oracle.graal.python.builtins.PythonBuiltinClassType;
 import com.oracle.graal.python.builtins.PythonBuiltins;
 import com.oracle.graal.python.builtins.objects.PNone;
-import com.oracle.graal.python.builtins.objects.bytes.BytesBuiltins.BytesLikeNoGeneralizationNode;
 import com.oracle.graal.python.builtins.objects.bytes.BytesNodes;
 import com.oracle.graal.python.builtins.objects.bytes.PBytes;
 import com.oracle.graal.python.builtins.objects.bytes.PIBytesLike;
-import com.oracle.graal.python.builtins.objects.common.SequenceNodes;
 import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes;
 import com.oracle.graal.python.builtins.objects.exception.OSErrorEnum;
 import com.oracle.graal.python.builtins.objects.function.PArguments;
@@ -83,7 +78,6 @@ import com.oracle.graal.python.builtins.objects.range.RangeNodes.LenOfRangeNode;
 import com.oracle.graal.python.builtins.objects.slice.PSlice;
 import com.oracle.graal.python.builtins.objects.slice.PSlice.SliceInfo;
 import com.oracle.graal.python.nodes.ErrorMessages;
-import com.oracle.graal.python.nodes.PRaiseNode;
 import com.oracle.graal.python.nodes.SpecialMethodNames;
 import com.oracle.graal.python.nodes.call.special.LookupAndCallUnaryNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
@@ -97,17 +91,8 @@ import com.oracle.graal.python.nodes.truffle.PythonArithmeticTypes;
 import com.oracle.graal.python.nodes.util.CannotCastException;
 import com.oracle.graal.python.nodes.util.CastToByteNode;
 import com.oracle.graal.python.nodes.util.CastToJavaLongLossyNode;
-import com.oracle.graal.python.nodes.util.ChannelNodes;
-import com.oracle.graal.python.nodes.util.ChannelNodes.ReadByteFromChannelNode;
-import com.oracle.graal.python.nodes.util.ChannelNodes.ReadFromChannelNode;
-import com.oracle.graal.python.nodes.util.ChannelNodes.WriteByteToChannelNode;
-import com.oracle.graal.python.nodes.util.ChannelNodes.WriteToChannelNode;
-import com.oracle.graal.python.runtime.exception.PythonErrorType;
-import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
-import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
+import com.oracle.graal.python.runtime.exception.PException;
 import com.oracle.graal.python.util.OverflowException;
-import com.oracle.truffle.api.CompilerDirectives;
-import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Cached.Shared;
 import com.oracle.truffle.api.dsl.GenerateNodeFactory;
@@ -123,53 +108,20 @@ import com.oracle.truffle.api.profiles.ConditionProfile;
 public class MMapBuiltins extends PythonBuiltins {
 
     protected interface MMapBaseNode {
-    }
-
-    protected interface ByteReadingNode extends MMapBaseNode {
-
-        default ReadByteFromChannelNode createValueError(PRaiseNode raise) {
-            return ReadByteFromChannelNode.create(() -> new ChannelNodes.ReadByteErrorHandler() {
 
-                @Override
-                public int execute(Channel channel) {
-                    throw raise.raise(PythonBuiltinClassType.ValueError, ErrorMessages.READ_BYTE_OUT_OF_RANGE);
-                }
-            });
-        }
+        PException raise(PythonBuiltinClassType type, String string);
 
-        default ReadByteFromChannelNode createIndexError(PRaiseNode raise) {
-            return ReadByteFromChannelNode.create(() -> new ChannelNodes.ReadByteErrorHandler() {
-
-                @Override
-                public int execute(Channel channel) {
-                    throw raise.raise(PythonBuiltinClassType.IndexError, ErrorMessages.MMAP_INDEX_OUT_OF_RANGE);
-                }
-            });
-
-        }
-    }
-
-    protected interface ByteWritingNode extends MMapBaseNode {
-
-        default WriteByteToChannelNode createValueError(PRaiseNode raise) {
-            return WriteByteToChannelNode.create(() -> new ChannelNodes.WriteByteErrorHandler() {
-
-                @Override
-                public void execute(Channel channel, byte b) {
-                    throw raise.raise(PythonBuiltinClassType.ValueError, ErrorMessages.WRITE_BYTE_OUT_OF_RANGE);
-                }
-            });
+        default void checkValid(PMMap self) {
+            if (self.isClosed()) {
+                throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.MMAP_CLOSED_OR_INVALID);
+            }
         }
 
-        default WriteByteToChannelNode createIndexError(PRaiseNode raise) {
-            return WriteByteToChannelNode.create(() -> new ChannelNodes.WriteByteErrorHandler() {
-
-                @Override
-                public void execute(Channel channel, byte b) {
-                    throw raise.raise(PythonBuiltinClassType.IndexError, ErrorMessages.MMAP_INDEX_OUT_OF_RANGE);
-                }
-            });
-
+        default void checkWritable(PMMap self) {
+            checkValid(self);
+            if (self.isReadonly()) {
+                throw raise(PythonBuiltinClassType.TypeError, ErrorMessages.MMAP_CANT_MODIFY_READONLY);
+            }
         }
     }
 
@@ -236,7 +188,7 @@ public class MMapBuiltins extends PythonBuiltins {
 
     @Builtin(name = __GETITEM__, minNumOfPositionalArgs = 2)
     @GenerateNodeFactory
-    public abstract static class GetItemNode extends PythonBinaryBuiltinNode implements ByteReadingNode {
+    public abstract static class GetItemNode extends PythonBinaryBuiltinNode implements MMapBaseNode {
 
         public abstract Object executeObject(PMMap self, Object idxObj);
 
@@ -246,55 +198,37 @@ public class MMapBuiltins extends PythonBuiltins {
 
         @Specialization(guards = "!isPSlice(idxObj)", limit = "1")
         int doSingle(PMMap self, Object idxObj,
-                        @SuppressWarnings("unused") @Cached PRaiseNode raise,
-                        @Cached("createIndexError(raise)") ReadByteFromChannelNode readByteNode,
-                        @CachedLibrary("idxObj") PythonObjectLibrary libIdx) {
-
-            try {
-                long i = libIdx.asJavaLong(idxObj);
-                long len = self.getLength();
-                SeekableByteChannel channel = self.getChannel();
-                long idx = i < 0 ? i + len : i;
-
-                // save current position
-                long oldPos = PMMap.position(channel);
-
-                PMMap.position(channel, idx);
-                int res = readByteNode.execute(channel) & 0xFF;
-
-                // restore position
-                PMMap.position(channel, oldPos);
-
-                return res;
-
-            } catch (IOException e) {
-                throw raise(PythonBuiltinClassType.OSError, e);
+                        @CachedLibrary("idxObj") PythonObjectLibrary libIdx,
+                        @Cached("createBinaryProfile()") ConditionProfile outOfRangeProfile) {
+            checkValid(self);
+            long i = libIdx.asJavaLong(idxObj);
+            long len = self.getLength();
+            long idx = i < 0 ? i + len : i;
+            if (outOfRangeProfile.profile(idx < 0 || idx >= len)) {
+                throw raise(PythonBuiltinClassType.IndexError, ErrorMessages.MMAP_INDEX_OUT_OF_RANGE);
             }
+            return self.getByte(idx) & 0xFF;
         }
 
         @Specialization
         Object doSlice(PMMap self, PSlice idx,
-                        @Cached("create()") ReadFromChannelNode readNode,
                         @Cached CoerceToIntSlice sliceCast,
                         @Cached ComputeIndices compute,
-                        @Cached LenOfRangeNode sliceLen) {
+                        @Cached LenOfRangeNode sliceLen,
+                        @Cached("createBinaryProfile()") ConditionProfile stepOneProfile) {
+            checkValid(self);
             try {
-                long len = self.getLength();
-                SliceInfo info = compute.execute(sliceCast.execute(idx), PInt.intValueExact(len));
-                SeekableByteChannel channel = self.getChannel();
-
-                // save current position
-                long oldPos = PMMap.position(channel);
-
-                PMMap.position(channel, info.start);
-                ByteSequenceStorage s = readNode.execute(channel, sliceLen.len(info));
-
-                // restore position
-                PMMap.position(channel, oldPos);
-
-                return factory().createBytes(s);
-            } catch (IOException e) {
-                throw raise(PythonBuiltinClassType.OSError, e);
+                SliceInfo info = compute.execute(sliceCast.execute(idx), PInt.intValueExact(self.getLength()));
+                int n = sliceLen.len(info);
+                byte[] result = new byte[n];
+                if (stepOneProfile.profile(info.step == 1)) {
+                    self.getBytes(info.start, result, 0, n);
+                } else {
+                    for (int i = 0, j = info.start; i < n; i++, j += info.step) {
+                        result[i] = self.getByte(j);
+                    }
+                }
+                return factory().createBytes(result);
             } catch (OverflowException e) {
                 throw raise(PythonBuiltinClassType.OverflowError, e);
             }
@@ -303,73 +237,49 @@ public class MMapBuiltins extends PythonBuiltins {
 
     @Builtin(name = SpecialMethodNames.__SETITEM__, minNumOfPositionalArgs = 3)
     @GenerateNodeFactory
-    abstract static class SetItemNode extends PythonTernaryBuiltinNode implements ByteWritingNode {
+    abstract static class SetItemNode extends PythonTernaryBuiltinNode implements MMapBaseNode {
 
         @Specialization(guards = "!isPSlice(idxObj)", limit = "1")
         PNone doSingle(PMMap self, Object idxObj, Object val,
-                        @SuppressWarnings("unused") @Cached PRaiseNode raise,
-                        @Cached("createIndexError(raise)") WriteByteToChannelNode writeByteNode,
                         @CachedLibrary("idxObj") PythonObjectLibrary libIdx,
                         @Cached("createCoerce()") CastToByteNode castToByteNode,
                         @Cached("createBinaryProfile()") ConditionProfile outOfRangeProfile) {
+            checkWritable(self);
+            long i = libIdx.asJavaLong(idxObj);
+            long len = self.getLength();
+            long idx = i < 0 ? i + len : i;
 
-            try {
-                long i = libIdx.asJavaLong(idxObj);
-                long len = self.getLength();
-                SeekableByteChannel channel = self.getChannel();
-                long idx = i < 0 ? i + len : i;
-
-                if (outOfRangeProfile.profile(idx < 0 || idx >= len)) {
-                    throw raise(PythonBuiltinClassType.IndexError, ErrorMessages.MMAP_INDEX_OUT_OF_RANGE);
-                }
-
-                // save current position
-                long oldPos = PMMap.position(channel);
-
-                PMMap.position(channel, idx);
-                writeByteNode.execute(channel, castToByteNode.execute(null, val));
-
-                // restore position
-                PMMap.position(channel, oldPos);
-
-                return PNone.NONE;
-
-            } catch (IOException e) {
-                throw raise(PythonBuiltinClassType.OSError, e);
+            if (outOfRangeProfile.profile(idx < 0 || idx >= len)) {
+                throw raise(PythonBuiltinClassType.IndexError, ErrorMessages.MMAP_INDEX_OUT_OF_RANGE);
             }
+            self.putByte(idx, castToByteNode.execute(null, val));
+            return PNone.NONE;
         }
 
         @Specialization
         PNone doSlice(PMMap self, PSlice idx, PIBytesLike val,
-                        @Cached("create()") WriteToChannelNode writeNode,
-                        @Cached("create()") SequenceNodes.GetSequenceStorageNode getStorageNode,
-                        @Cached("createBinaryProfile()") ConditionProfile invalidStepProfile,
+                        @Cached SequenceStorageNodes.GetInternalByteArrayNode getBytesNode,
+                        @Cached SequenceStorageNodes.LenNode lenNode,
                         @Cached CoerceToIntSlice sliceCast,
                         @Cached ComputeIndices compute,
-                        @Cached LenOfRangeNode sliceLen) {
-
+                        @Cached LenOfRangeNode sliceLen,
+                        @Cached("createBinaryProfile()") ConditionProfile stepOneProfile) {
+            checkWritable(self);
             try {
-                long len = self.getLength();
-                SliceInfo info = compute.execute(sliceCast.execute(idx), PInt.intValueExact(len));
-                SeekableByteChannel channel = self.getChannel();
-
-                if (invalidStepProfile.profile(info.step != 1)) {
-                    throw raise(PythonBuiltinClassType.SystemError, ErrorMessages.STEP_1_NOT_SUPPORTED);
+                SliceInfo info = compute.execute(sliceCast.execute(idx), PInt.intValueExact(self.getLength()));
+                int n = sliceLen.len(info);
+                if (n != lenNode.execute(val.getSequenceStorage())) {
+                    throw raise(PythonBuiltinClassType.IndexError, ErrorMessages.MMAP_SLICE_ASSIGNMENT_WRONG_SIZE);
+                }
+                byte[] data = getBytesNode.execute(val.getSequenceStorage());
+                if (stepOneProfile.profile(info.step == 1)) {
+                    self.putBytes(info.start, data, 0, n);
+                } else {
+                    for (int i = 0, j = info.start; i < n; i++, j += info.step) {
+                        self.putByte(j, data[i]);
+                    }
                 }
-
-                // save current position
-                long oldPos = PMMap.position(channel);
-
-                PMMap.position(channel, info.start);
-                writeNode.execute(channel, getStorageNode.execute(val), sliceLen.len(info));
-
-                // restore position
-                PMMap.position(channel, oldPos);
-
                 return PNone.NONE;
-
-            } catch (IOException e) {
-                throw raise(PythonBuiltinClassType.OSError, e);
             } catch (OverflowException e) {
                 throw raise(PythonBuiltinClassType.OverflowError, e);
             }
@@ -415,20 +325,14 @@ public class MMapBuiltins extends PythonBuiltins {
     abstract static class CloseNode extends PythonUnaryBuiltinNode {
 
         @Specialization
-        PNone doClose(PMMap self,
-                        @Cached PRaiseNode raiseNode) {
+        PNone doClose(VirtualFrame frame, PMMap self) {
             try {
-                close(self);
+                self.close();
             } catch (IOException e) {
-                throw raiseNode.raise(PythonErrorType.BufferError, ErrorMessages.CANNOT_CLOSE_EXPORTED_PTRS_EXIST);
+                throw raiseOSError(frame, OSErrorEnum.EIO, e);
             }
             return PNone.NONE;
         }
-
-        @TruffleBoundary
-        private static void close(PMMap self) throws IOException {
-            self.getChannel().close();
-        }
     }
 
     @Builtin(name = "closed", minNumOfPositionalArgs = 1, isGetter = true)
@@ -436,9 +340,8 @@ public class MMapBuiltins extends PythonBuiltins {
     abstract static class ClosedNode extends PythonUnaryBuiltinNode {
 
         @Specialization
-        @TruffleBoundary
-        boolean close(PMMap self) {
-            return !self.getChannel().isOpen();
+        static boolean close(PMMap self) {
+            return self.isClosed();
         }
     }
 
@@ -454,118 +357,151 @@ public class MMapBuiltins extends PythonBuiltins {
 
     @Builtin(name = "tell", minNumOfPositionalArgs = 1)
     @GenerateNodeFactory
-    abstract static class TellNode extends PythonBuiltinNode implements ByteReadingNode {
+    abstract static class TellNode extends PythonBuiltinNode implements MMapBaseNode {
         @Specialization
-        long readline(VirtualFrame frame, PMMap self) {
-            try {
-                SeekableByteChannel channel = self.getChannel();
-                return PMMap.position(channel) - self.getOffset();
-            } catch (IOException e) {
-                throw raiseOSError(frame, OSErrorEnum.EIO, e);
-            }
+        long tell(PMMap self) {
+            checkValid(self);
+            return self.getPos();
         }
     }
 
     @Builtin(name = "read_byte", minNumOfPositionalArgs = 1)
     @GenerateNodeFactory
     @TypeSystemReference(PythonArithmeticTypes.class)
-    abstract static class ReadByteNode extends PythonUnaryBuiltinNode implements ByteReadingNode {
+    abstract static class ReadByteNode extends PythonUnaryBuiltinNode implements MMapBaseNode {
 
         @Specialization
         int readByte(PMMap self,
-                        @SuppressWarnings("unused") @Cached PRaiseNode raise,
-                        @Cached("createValueError(raise)") ReadByteFromChannelNode readByteNode) {
-            return readByteNode.execute(self.getChannel());
+                        @Cached BranchProfile outOfRangeProfile) {
+            checkValid(self);
+            long pos = self.getPos();
+            if (pos >= self.getLength()) {
+                outOfRangeProfile.enter();
+                throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.READ_BYTE_OUT_OF_RANGE);
+            }
+            self.setPos(pos + 1);
+            return self.getByte(pos) & 0xFF;
+        }
+    }
+
+    @Builtin(name = "write_byte", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class WriteByteNode extends PythonBinaryBuiltinNode implements MMapBaseNode {
+
+        @Specialization
+        PNone writeByte(PMMap self, Object val,
+                        @Cached("createCoerce()") CastToByteNode castToByteNode,
+                        @Cached BranchProfile outOfRangeProfile) {
+            checkWritable(self);
+            long pos = self.getPos();
+            if (pos >= self.getLength()) {
+                outOfRangeProfile.enter();
+                throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.WRITE_BYTE_OUT_OF_RANGE);
+            }
+            self.putByte(pos, castToByteNode.execute(null, val));
+            self.setPos(pos + 1);
+            return PNone.NONE;
+        }
+
+        protected static CastToByteNode createCoerce() {
+            return CastToByteNode.create(true);
         }
     }
 
     @Builtin(name = "read", minNumOfPositionalArgs = 1, maxNumOfPositionalArgs = 2)
     @GenerateNodeFactory
     @TypeSystemReference(PythonArithmeticTypes.class)
-    abstract static class ReadNode extends PythonBuiltinNode {
+    abstract static class ReadNode extends PythonBuiltinNode implements MMapBaseNode {
 
         @Specialization
-        PBytes readUnlimited(PMMap self, @SuppressWarnings("unused") PNone n,
-                        @Cached("create()") ReadFromChannelNode readChannelNode) {
+        PBytes readUnlimited(PMMap self, @SuppressWarnings("unused") PNone n) {
             // intentionally accept NO_VALUE and NONE; both mean that we read unlimited amount of
             // bytes
-            ByteSequenceStorage res = readChannelNode.execute(self.getChannel(), ReadFromChannelNode.MAX_READ);
-            return factory().createBytes(res);
+            return doRead(self, self.remaining());
         }
 
         @Specialization(guards = "!isNoValue(n)", limit = "getCallSiteInlineCacheMaxDepth()")
         PBytes read(VirtualFrame frame, PMMap self, Object n,
-                        @Cached("create()") ReadFromChannelNode readChannelNode,
                         @CachedLibrary("n") PythonObjectLibrary lib,
                         @Cached("createBinaryProfile()") ConditionProfile negativeProfile) {
             int nread = lib.asSizeWithState(n, PArguments.getThreadState(frame));
-            if (negativeProfile.profile(nread < 0)) {
-                return readUnlimited(self, PNone.NO_VALUE, readChannelNode);
+            long remaining = self.remaining();
+            if (negativeProfile.profile(nread < 0 || nread > remaining)) {
+                return doRead(self, remaining);
             }
-            ByteSequenceStorage res = readChannelNode.execute(self.getChannel(), nread);
-            return factory().createBytes(res);
+            return doRead(self, nread);
         }
 
+        private PBytes doRead(PMMap self, long n) {
+            checkValid(self);
+            int len;
+            try {
+                len = PInt.intValueExact(n);
+            } catch (OverflowException e) {
+                throw raise(PythonBuiltinClassType.OverflowError, e);
+            }
+            long pos = self.getPos();
+            byte[] result = new byte[len];
+            self.getBytes(pos, result, 0, len);
+            self.setPos(pos + len);
+            return factory().createBytes(result);
+        }
     }
 
     @Builtin(name = "readline", minNumOfPositionalArgs = 1)
     @GenerateNodeFactory
-    abstract static class ReadlineNode extends PythonUnaryBuiltinNode implements ByteReadingNode {
+    abstract static class ReadlineNode extends PythonUnaryBuiltinNode implements MMapBaseNode {
+        private static final byte[] NEWLINE = new byte[]{'\n'};
 
         @Specialization
-        Object readline(PMMap self,
-                        @Cached SequenceStorageNodes.AppendNode appendNode) {
-
+        Object readline(PMMap self) {
+            checkValid(self);
+            long pos = self.getPos();
+            long len = self.getLength();
+            // CPython really tests for '\n' only
+            long nl = self.find(NEWLINE, 1, pos, len);
+            long end = nl < 0 ? len : nl + 1;
+            int n;
             try {
-                ByteBuffer buf = ByteBuffer.allocate(4096);
-                SeekableByteChannel channel = self.getChannel();
-                ByteSequenceStorage res = new ByteSequenceStorage(16);
-                // search for newline char
-                outer: while (readIntoBuffer(channel, buf) > 0) {
-                    buf.flip();
-                    while (buf.hasRemaining()) {
-                        byte b = buf.get();
-                        // CPython really tests for '\n' only
-                        if (b != (byte) '\n') {
-                            appendNode.execute(res, b, BytesLikeNoGeneralizationNode.SUPPLIER);
-                        } else {
-                            // recover correct position (i.e. number of remaining bytes in buffer)
-                            PMMap.position(channel, PMMap.position(channel) - buf.remaining() - 1);
-                            break outer;
-                        }
-                    }
-                    buf.clear();
-                }
-                return factory().createBytes(res);
-            } catch (IOException e) {
-                throw raise(PythonBuiltinClassType.OSError, e);
+                n = PInt.intValueExact(end - pos);
+            } catch (OverflowException e) {
+                throw raise(PythonBuiltinClassType.OverflowError, e);
             }
-        }
-
-        @TruffleBoundary(allowInlining = true)
-        private static int readIntoBuffer(SeekableByteChannel ch, ByteBuffer dst) throws IOException {
-            return ch.read(dst);
+            byte[] result = new byte[n];
+            self.getBytes(pos, result, 0, n);
+            self.setPos(end);
+            return factory().createBytes(result);
         }
     }
 
     @Builtin(name = "write", minNumOfPositionalArgs = 2)
     @GenerateNodeFactory
-    abstract static class WriteNode extends PythonBinaryBuiltinNode {
+    abstract static class WriteNode extends PythonBinaryBuiltinNode implements MMapBaseNode {
 
         @Specialization
         int writeBytesLike(PMMap self, PIBytesLike bytesLike,
-                        @Cached("create()") WriteToChannelNode writeNode,
-                        @Cached("create()") SequenceNodes.GetSequenceStorageNode getStorageNode) {
-            SeekableByteChannel channel = self.getChannel();
-            return writeNode.execute(channel, getStorageNode.execute(bytesLike), Integer.MAX_VALUE);
+                        @Cached SequenceStorageNodes.GetInternalByteArrayNode getBytesNode,
+                        @Cached SequenceStorageNodes.LenNode lenNode) {
+            int n = lenNode.execute(bytesLike.getSequenceStorage());
+            return write(self, getBytesNode.execute(bytesLike.getSequenceStorage()), n);
         }
 
         @Specialization
         int writeMemoryview(VirtualFrame frame, PMMap self, PMemoryView memoryView,
-                        @Cached("create()") WriteToChannelNode writeNode,
                         @Cached("create()") BytesNodes.ToBytesNode toBytesNode) {
             byte[] data = toBytesNode.execute(frame, memoryView);
-            return writeNode.execute(self.getChannel(), new ByteSequenceStorage(data), Integer.MAX_VALUE);
+            return write(self, data, data.length);
+        }
+
+        private int write(PMMap self, byte[] data, int n) {
+            checkWritable(self);
+            long pos = self.getPos();
+            if (n > self.remaining()) {
+                throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.DATA_OUT_OF_RANGE);
+            }
+            self.putBytes(pos, data, 0, n);
+            self.setPos(pos + n);
+            return n;
         }
     }
 
@@ -584,122 +520,70 @@ public class MMapBuiltins extends PythonBuiltins {
         Object seek(VirtualFrame frame, PMMap self, long dist, Object how,
                         @Shared("errorProfile") @Cached BranchProfile errorProfile,
                         @Shared("library") @CachedLibrary(limit = "getCallSiteInlineCacheMaxDepth()") PythonObjectLibrary lib) {
-            try {
-                SeekableByteChannel channel = self.getChannel();
-                long size;
-                if (self.getLength() == 0) {
-                    size = PMMap.size(channel) - self.getOffset();
-                } else {
-                    size = self.getLength();
-                }
-                long where;
-                int ihow = lib.asSizeWithState(how, PArguments.getThreadState(frame));
-                switch (ihow) {
-                    case 0: /* relative to start */
-                        where = dist;
-                        break;
-                    case 1: /* relative to current position */
-                        where = PMMap.position(channel) + dist;
-                        break;
-                    case 2: /* relative to end */
-                        where = size + dist;
-                        break;
-                    default:
-                        errorProfile.enter();
-                        throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.UNKNOWN_S_TYPE, "seek");
-                }
-                if (where > size || where < 0) {
+            checkValid(self);
+            long size = self.getLength();
+            long where;
+            int ihow = lib.asSizeWithState(how, PArguments.getThreadState(frame));
+            switch (ihow) {
+                case 0: /* relative to start */
+                    where = dist;
+                    break;
+                case 1: /* relative to current position */
+                    where = self.getPos() + dist;
+                    break;
+                case 2: /* relative to end */
+                    where = size + dist;
+                    break;
+                default:
                     errorProfile.enter();
-                    throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.SEEK_OUT_OF_RANGE);
-                }
-                PMMap.position(channel, where);
-                return PNone.NONE;
-            } catch (IOException e) {
+                    throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.UNKNOWN_S_TYPE, "seek");
+            }
+            if (where > size || where < 0) {
                 errorProfile.enter();
-                throw raiseOSError(frame, OSErrorEnum.EIO, e);
+                throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.SEEK_OUT_OF_RANGE);
             }
+            self.setPos(where);
+            return PNone.NONE;
         }
     }
 
     @Builtin(name = "find", minNumOfPositionalArgs = 2, maxNumOfPositionalArgs = 4)
     @GenerateNodeFactory
     @TypeSystemReference(PythonArithmeticTypes.class)
-    public abstract static class FindNode extends PythonBuiltinNode implements ByteReadingNode {
-
-        @Child private SequenceStorageNodes.GetItemNode getRightItemNode;
+    public abstract static class FindNode extends PythonBuiltinNode implements MMapBaseNode {
 
         public abstract long execute(VirtualFrame frame, PMMap bytes, Object sub, Object starting, Object ending);
 
         @Specialization
-        long find(VirtualFrame frame, PMMap primary, PIBytesLike sub, Object starting, Object ending,
+        long find(PMMap primary, PIBytesLike sub, Object starting, Object ending,
                         @Shared("castLong") @Cached CastToJavaLongLossyNode castLong,
-                        @SuppressWarnings("unused") @Cached PRaiseNode raise,
-                        @Cached("createValueError(raise)") ReadByteFromChannelNode readByteNode) {
-            try {
-                SeekableByteChannel channel = primary.getChannel();
-                long len1 = PMMap.size(channel);
-
-                SequenceStorage needle = sub.getSequenceStorage();
-                int len2 = needle.length();
-
-                long s = castToLong(castLong, starting, 0);
-                long e = castToLong(castLong, ending, len1);
-
-                long start = s < 0 ? s + len1 : s;
-                long end = e < 0 ? e + len1 : e;
-
-                if (start >= len1 || len1 < len2) {
-                    return -1;
-                } else if (end > len1) {
-                    end = len1;
-                }
-
-                // TODO implement a more efficient algorithm
-                outer: for (long i = start; i < end; i++) {
-                    // TODO(fa) don't seek but use circular buffer
-                    PMMap.position(channel, i);
-                    for (int j = 0; j < len2; j++) {
-                        int hb = readByteNode.execute(channel);
-                        int nb = getGetRightItemNode().executeInt(frame, needle, j);
-                        if (nb != hb || i + j >= end) {
-                            continue outer;
-                        }
-                    }
-                    return i;
-                }
-                return -1;
-            } catch (IOException e) {
-                throw raise(PythonBuiltinClassType.OSError, e);
-            }
+                        @Cached SequenceStorageNodes.GetInternalByteArrayNode getBytesNode,
+                        @Cached SequenceStorageNodes.LenNode lenNode) {
+            checkValid(primary);
+            byte[] needle = getBytesNode.execute(sub.getSequenceStorage());
+            int needleLen = lenNode.execute(sub.getSequenceStorage());
+            return find(primary, needle, needleLen, starting, ending, castLong);
         }
 
         @Specialization
-        long find(PMMap primary, int sub, Object starting, @SuppressWarnings("unused") Object ending,
-                        @Shared("castLong") @Cached CastToJavaLongLossyNode castLong,
-                        @SuppressWarnings("unused") @Cached PRaiseNode raise,
-                        @Cached("createValueError(raise)") ReadByteFromChannelNode readByteNode) {
-            try {
-                SeekableByteChannel channel = primary.getChannel();
-                long len1 = PMMap.size(channel);
-
-                long s = castToLong(castLong, starting, 0);
-                long e = castToLong(castLong, ending, len1);
-
-                long start = s < 0 ? s + len1 : s;
-                long end = Math.max(e < 0 ? e + len1 : e, len1);
+        long find(PMMap primary, int sub, Object starting, Object ending,
+                        @Shared("castLong") @Cached CastToJavaLongLossyNode castLong) {
+            checkValid(primary);
+            return find(primary, new byte[]{(byte) sub}, 1, starting, ending, castLong);
+        }
 
-                PMMap.position(channel, start);
+        private static long find(PMMap primary, byte[] needle, int needleLen, Object starting, Object ending, CastToJavaLongLossyNode castLong) {
+            long len = primary.getLength();
+            long start = adjust(castToLong(castLong, starting, primary.getPos()), len);
+            long end = adjust(castToLong(castLong, ending, len), len);
+            return primary.find(needle, needleLen, start, end);
+        }
 
-                for (long i = start; i < end; i++) {
-                    int hb = readByteNode.execute(channel);
-                    if (hb == sub) {
-                        return i;
-                    }
-                }
-                return -1;
-            } catch (IOException e) {
-                throw raise(PythonBuiltinClassType.OSError, e);
+        private static long adjust(long idx, long len) {
+            if (idx < 0) {
+                return Math.max(idx + len, 0);
             }
+            return Math.min(idx, len);
         }
 
         private static long castToLong(CastToJavaLongLossyNode castLong, Object obj, long defaultVal) {
@@ -709,25 +593,21 @@ public class MMapBuiltins extends PythonBuiltins {
                 return defaultVal;
             }
         }
-
-        private SequenceStorageNodes.GetItemNode getGetRightItemNode() {
-            if (getRightItemNode == null) {
-                CompilerDirectives.transferToInterpreterAndInvalidate();
-                getRightItemNode = insert(SequenceStorageNodes.GetItemNode.create());
-            }
-            return getRightItemNode;
-        }
     }
 
     @Builtin(name = "flush", minNumOfPositionalArgs = 1)
     @GenerateNodeFactory
-    abstract static class FlushNode extends PythonUnaryBuiltinNode {
+    abstract static class FlushNode extends PythonUnaryBuiltinNode implements MMapBaseNode {
 
         @Specialization
-        static Object seek(@SuppressWarnings("unused") PMMap self) {
+        Object flush(VirtualFrame frame, PMMap self) {
+            checkValid(self);
+            try {
+                self.flush();
+            } catch (IOException e) {
+                throw raiseOSError(frame, OSErrorEnum.EIO, e);
+            }
             return PNone.NONE;
         }
-
     }
-
 }
@@ -41,13 +41,13 @@
 package com.oracle.graal.python.builtins.objects.mmap;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.SeekableByteChannel;
 
 import com.oracle.graal.python.builtins.objects.object.PythonObject;
 import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
 import com.oracle.graal.python.nodes.util.CastToJavaIntExactNode;
-import com.oracle.graal.python.nodes.util.ChannelNodes.ReadFromChannelNode;
-import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Cached.Shared;
@@ -55,22 +55,45 @@ import com.oracle.truffle.api.library.ExportLibrary;
 import com.oracle.truffle.api.library.ExportMessage;
 import com.oracle.truffle.api.object.DynamicObject;
 
+/**
+ * A memory map. The mapped memory is held in one or more {@link ByteBuffer regions} (a single
+ * {@link ByteBuffer} can only address 2 GiB) that are either {@link MappedByteBuffer mapped} from
+ * a file, direct buffers (anonymous maps), or heap copies of the file content if the file system
+ * does not support mapping. In the last case, the content is written back to the channel on
+ * {@link #flush()} and {@link #close()}.
+ */
 @ExportLibrary(PythonObjectLibrary.class)
 public final class PMMap extends PythonObject {
 
-    private final SeekableByteChannel mappedByteBuffer;
+    public static final int REGION_SHIFT = 30;
+    public static final long REGION_SIZE = 1L << REGION_SHIFT;
+    private static final long REGION_MASK = REGION_SIZE - 1;
+
+    private final SeekableByteChannel channel;
+    private ByteBuffer[] regions;
+    private final boolean writeBack;
+    private final boolean readonly;
     private final long length;
     private final long offset;
 
-    public PMMap(Object pythonClass, DynamicObject storage, SeekableByteChannel mappedByteBuffer, long length, long offset) {
+    /** The current position (relative to the start of the map) for file-like operations. */
+    private long pos;
+
+    public PMMap(Object pythonClass, DynamicObject storage, SeekableByteChannel channel, ByteBuffer[] regions, boolean writeBack, boolean readonly, long length, long offset) {
         super(pythonClass, storage);
-        this.mappedByteBuffer = mappedByteBuffer;
+        this.channel = channel;
+        this.regions = regions;
+        this.writeBack = writeBack;
+        this.readonly = readonly;
         this.length = length;
         this.offset = offset;
     }
 
+    /**
+     * Returns the file channel or {@code null} for anonymous maps.
+     */
     public SeekableByteChannel getChannel() {
-        return mappedByteBuffer;
+        return channel;
     }
 
     public long getLength() {
@@ -81,53 +104,174 @@ public final class PMMap extends PythonObject {
         return offset;
     }
 
-    @ExportMessage
-    @SuppressWarnings("static-method")
-    boolean isBuffer() {
-        return true;
+    public boolean isReadonly() {
+        return readonly;
     }
 
-    @ExportMessage
-    int getBufferLength(
-                    @Shared("castToIntNode") @Cached CastToJavaIntExactNode castToIntNode) {
-        return castToIntNode.execute(length);
+    public boolean isClosed() {
+        return regions == null;
     }
 
-    @ExportMessage
-    byte[] getBufferBytes(
-                    @Shared("castToIntNode") @Cached CastToJavaIntExactNode castToIntNode,
-                    @Cached ReadFromChannelNode readNode) {
+    public long getPos() {
+        return pos;
+    }
 
-        try {
-            int len = castToIntNode.execute(length);
-
-            // save current position
-            // TODO: restore in case of failure
-            @SuppressWarnings("unused")
-            long oldPos = PMMap.position(mappedByteBuffer);
-
-            PMMap.position(mappedByteBuffer, 0);
-            ByteSequenceStorage s = readNode.execute(mappedByteBuffer, len);
-            return s.getInternalByteArray();
-        } catch (IOException e) {
-            // TODO(fa) how to handle?
-            return null;
+    public void setPos(long pos) {
+        assert 0 <= pos && pos <= length;
+        this.pos = pos;
+    }
+
+    /**
+     * Returns the number of bytes between the current position and the end of the map.
+     */
+    public long remaining() {
+        return length - pos;
+    }
+
+    @TruffleBoundary(allowInlining = true)
+    public byte getByte(long idx) {
+        assert 0 <= idx && idx < length;
+        return regions[(int) (idx >>> REGION_SHIFT)].get((int) (idx & REGION_MASK));
+    }
+
+    @TruffleBoundary(allowInlining = true)
+    public void putByte(long idx, byte b) {
+        assert 0 <= idx && idx < length;
+        regions[(int) (idx >>> REGION_SHIFT)].put((int) (idx & REGION_MASK), b);
+    }
+
+    /**
+     * Copies {@code len} bytes starting at map index {@code idx} into {@code dst}.
+     */
+    @TruffleBoundary
+    public void getBytes(long idx, byte[] dst, int dstOffset, int len) {
+        assert 0 <= idx && idx + len <= length;
+        long cur = idx;
+        int done = 0;
+        while (done < len) {
+            // use a duplicate because the buffer position is not thread-safe
+            ByteBuffer region = regions[(int) (cur >>> REGION_SHIFT)].duplicate();
+            int regionPos = (int) (cur & REGION_MASK);
+            int n = Math.min(len - done, region.limit() - regionPos);
+            region.position(regionPos);
+            region.get(dst, dstOffset + done, n);
+            done += n;
+            cur += n;
+        }
+    }
+
+    /**
+     * Copies {@code len} bytes from {@code src} to the map starting at map index {@code idx}.
+     */
+    @TruffleBoundary
+    public void putBytes(long idx, byte[] src, int srcOffset, int len) {
+        assert 0 <= idx && idx + len <= length;
+        long cur = idx;
+        int done = 0;
+        while (done < len) {
+            ByteBuffer region = regions[(int) (cur >>> REGION_SHIFT)].duplicate();
+            int regionPos = (int) (cur & REGION_MASK);
+            int n = Math.min(len - done, region.limit() - regionPos);
+            region.position(regionPos);
+            region.put(src, srcOffset + done, n);
+            done += n;
+            cur += n;
         }
     }
 
+    /**
+     * Returns the index of the first occurrence of the first {@code n} bytes of {@code needle} in
+     * the range {@code [start, end)} or {@code -1}.
+     */
     @TruffleBoundary
-    static long position(SeekableByteChannel ch) throws IOException {
-        return ch.position();
+    public long find(byte[] needle, int n, long start, long end) {
+        if (n == 0) {
+            return start <= end ? start : -1;
+        }
+        byte first = needle[0];
+        outer: for (long i = start; i <= end - n; i++) {
+            if (getByte(i) != first) {
+                continue;
+            }
+            for (int j = 1; j < n; j++) {
+                if (getByte(i + j) != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
     }
 
+    /**
+     * Writes modifications back to the file.
+     */
     @TruffleBoundary
-    static void position(SeekableByteChannel ch, long offset) throws IOException {
-        ch.position(offset);
+    public void flush() throws IOException {
+        if (readonly || regions == null) {
+            return;
+        }
+        if (writeBack) {
+            long filePos = offset;
+            for (ByteBuffer region : regions) {
+                ByteBuffer src = region.duplicate();
+                src.clear();
+                channel.position(filePos);
+                while (src.hasRemaining()) {
+                    channel.write(src);
+                }
+                filePos += region.capacity();
+            }
+        } else {
+            for (ByteBuffer region : regions) {
+                if (region instanceof MappedByteBuffer) {
+                    ((MappedByteBuffer) region).force();
+                }
+            }
+        }
     }
 
+    /**
+     * Releases the regions (mapped memory is unmapped once the buffers are collected) and closes
+     * the channel.
+     */
     @TruffleBoundary
-    public static long size(SeekableByteChannel ch) throws IOException {
-        return ch.size();
+    public void close() throws IOException {
+        if (regions == null) {
+            return;
+        }
+        try {
+            if (writeBack) {
+                flush();
+            }
+        } finally {
+            regions = null;
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+
+    @ExportMessage
+    @SuppressWarnings("static-method")
+    boolean isBuffer() {
+        return true;
     }
 
+    @ExportMessage
+    int getBufferLength(
+                    @Shared("castToIntNode") @Cached CastToJavaIntExactNode castToIntNode) {
+        return castToIntNode.execute(length);
+    }
+
+    @ExportMessage
+    byte[] getBufferBytes(
+                    @Shared("castToIntNode") @Cached CastToJavaIntExactNode castToIntNode) {
+        int len = castToIntNode.execute(length);
+        byte[] result = new byte[len];
+        if (regions != null) {
+            getBytes(0, result, 0, len);
+        }
+        return result;
+    }
 }
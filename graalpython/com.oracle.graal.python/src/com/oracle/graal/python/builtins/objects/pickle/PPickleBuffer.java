@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.pickle;
+
+import com.oracle.graal.python.builtins.objects.memoryview.PMemoryView;
+import com.oracle.graal.python.builtins.objects.object.PythonBuiltinObject;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.interop.UnsupportedMessageException;
+import com.oracle.truffle.api.library.ExportLibrary;
+import com.oracle.truffle.api.library.ExportMessage;
+import com.oracle.truffle.api.object.DynamicObject;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+
+/**
+ * A {@code pickle.PickleBuffer} wraps a managed {@link PMemoryView}, so the pickler can write the
+ * data of a {@code bytes} or {@code bytearray} straight out of the owner's storage and
+ * out-of-band consumers get a view onto that same storage.
+ */
+@ExportLibrary(PythonObjectLibrary.class)
+public final class PPickleBuffer extends PythonBuiltinObject {
+    /** The view onto the exporting object or {@code null} once released. */
+    private PMemoryView view;
+
+    public PPickleBuffer(Object cls, DynamicObject storage, PMemoryView view) {
+        super(cls, storage);
+        this.view = view;
+    }
+
+    public PMemoryView getView() {
+        return view;
+    }
+
+    public void release() {
+        if (view != null) {
+            view.release();
+            view = null;
+        }
+    }
+
+    @ExportMessage
+    boolean isBuffer() {
+        return view != null;
+    }
+
+    @ExportMessage
+    int getBufferLength() throws UnsupportedMessageException {
+        if (view == null) {
+            throw UnsupportedMessageException.create();
+        }
+        return view.getNBytes();
+    }
+
+    @ExportMessage
+    byte[] getBufferBytes(
+                    @Cached("createBinaryProfile()") ConditionProfile fastPathProfile) throws UnsupportedMessageException {
+        if (view == null || !view.isValidFor(view.getOwner().getSequenceStorage())) {
+            throw UnsupportedMessageException.create();
+        }
+        return view.copyBytes(view.getOwner().getSequenceStorage(), fastPathProfile);
+    }
+}
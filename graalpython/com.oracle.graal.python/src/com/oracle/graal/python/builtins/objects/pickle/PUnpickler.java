@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.pickle;
+
+import java.util.Arrays;
+
+import com.oracle.graal.python.builtins.objects.object.PythonBuiltinObject;
+import com.oracle.truffle.api.object.DynamicObject;
+
+/**
+ * A {@code _pickle.Unpickler}. The memo is a plain array indexed by the memo keys, which are
+ * assigned densely by the pickler.
+ */
+public final class PUnpickler extends PythonBuiltinObject {
+    private static final Object[] EMPTY_MEMO = new Object[0];
+
+    private Object[] memo = EMPTY_MEMO;
+    /** The number of memo entries, which is the index used by {@code MEMOIZE}. */
+    private int memoLen;
+    private boolean initialized;
+    /** The protocol of the pickle that is currently being loaded. */
+    private int proto;
+    private boolean fixImports;
+    private String encoding;
+    private String errors;
+    private Object read;
+    private Object readline;
+    /** An iterator over the out-of-band buffers or {@code null} if none were given. */
+    private Object buffers;
+    private Object persistentLoad;
+
+    public PUnpickler(Object cls, DynamicObject storage) {
+        super(cls, storage);
+    }
+
+    public void init(boolean fixImportsFlag, String encodingName, String errorsName, Object readMethod, Object readlineMethod, Object buffersIterator) {
+        this.fixImports = fixImportsFlag;
+        this.encoding = encodingName;
+        this.errors = errorsName;
+        this.read = readMethod;
+        this.readline = readlineMethod;
+        this.buffers = buffersIterator;
+        this.memo = EMPTY_MEMO;
+        this.memoLen = 0;
+        this.initialized = true;
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    public int getProto() {
+        return proto;
+    }
+
+    public void setProto(int proto) {
+        this.proto = proto;
+    }
+
+    public boolean isFixImports() {
+        return fixImports;
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public String getErrors() {
+        return errors;
+    }
+
+    public Object getRead() {
+        return read;
+    }
+
+    public Object getReadline() {
+        return readline;
+    }
+
+    public Object getBuffers() {
+        return buffers;
+    }
+
+    public Object getPersistentLoad() {
+        return persistentLoad;
+    }
+
+    public void setPersistentLoad(Object persistentLoad) {
+        this.persistentLoad = persistentLoad;
+    }
+
+    Object getMemo(int index) {
+        return index >= 0 && index < memo.length ? memo[index] : null;
+    }
+
+    void putMemo(int index, Object value) {
+        if (index >= memo.length) {
+            memo = Arrays.copyOf(memo, Math.max(index + 1, memo.length * 2));
+        }
+        if (memo[index] == null) {
+            memoLen++;
+        }
+        memo[index] = value;
+    }
+
+    int getMemoLen() {
+        return memoLen;
+    }
+}
@@ -0,0 +1,1177 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.pickle;
+
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.ADDITEMS;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.APPEND;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.APPENDS;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINBYTES;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINBYTES8;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINFLOAT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINGET;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BININT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BININT1;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BININT2;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINPERSID;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINPUT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINSTRING;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINUNICODE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINUNICODE8;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BUILD;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BYTEARRAY8;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.CODECS;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.COPYREG;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.DICT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.DUP;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EMPTY_DICT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EMPTY_LIST;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EMPTY_SET;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EMPTY_TUPLE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EXT1;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EXT2;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EXT4;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.FLOAT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.FRAME;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.FRAME_SIZE_TARGET;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.FROZENSET;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.GET;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.GLOBAL;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.HIGHEST_PROTOCOL;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.INST;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.INT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.LIST;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.LONG;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.LONG1;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.LONG4;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.LONG_BINGET;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.LONG_BINPUT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.MARK;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.MEMOIZE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.NEWFALSE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.NEWOBJ;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.NEWOBJ_EX;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.NEWTRUE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.NEXT_BUFFER;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.NONE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.OBJ;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.PERSID;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.POP;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.POP_MARK;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.PROTO;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.PUT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.READONLY_BUFFER;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.REDUCE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.SETITEM;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.SETITEMS;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.SHORT_BINBYTES;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.SHORT_BINSTRING;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.SHORT_BINUNICODE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.STACK_GLOBAL;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.STOP;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.STRING;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.TUPLE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.TUPLE1;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.TUPLE2;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.TUPLE3;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.UNICODE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.asString;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.callMethod;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.getCompatMapping;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.getDeepAttribute;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.getModule;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.getModuleAttribute;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.isAscii;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.bytes.PBytes;
+import com.oracle.graal.python.builtins.objects.common.EconomicMapStorage;
+import com.oracle.graal.python.builtins.objects.common.HashingStorage;
+import com.oracle.graal.python.builtins.objects.common.HashingStorage.DictEntry;
+import com.oracle.graal.python.builtins.objects.common.HashingStorageLibrary;
+import com.oracle.graal.python.builtins.objects.dict.PDict;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.list.PList;
+import com.oracle.graal.python.builtins.objects.memoryview.PMemoryView;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.builtins.objects.set.PSet;
+import com.oracle.graal.python.builtins.objects.tuple.PTuple;
+import com.oracle.graal.python.builtins.objects.type.TypeNodes;
+import com.oracle.graal.python.nodes.BuiltinNames;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.SpecialAttributeNames;
+import com.oracle.graal.python.nodes.SpecialMethodNames;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.control.GetNextNodeFactory.GetNextWithoutFrameNodeGen;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.runtime.PythonCore;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.graal.python.runtime.object.PythonObjectFactory;
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.SequenceStoreException;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.interop.UnsupportedMessageException;
+
+/**
+ * Reads one pickle, following CPython's {@code _pickle.c}. Data passed to {@code loads} as
+ * {@code bytes} is read in place. When reading from a file, each {@code FRAME} is fetched with a
+ * single {@code read} call and large payloads outside of frames are read directly into the
+ * resulting object. Nothing is read beyond the {@code STOP} opcode, so a file may contain several
+ * pickles.
+ */
+public final class PickleReader {
+    private static final byte[] EMPTY = new byte[0];
+
+    private final PythonBuiltinBaseNode node;
+    private final PUnpickler unpickler;
+    private final PythonCore core;
+    private final PythonObjectLibrary lib = PythonObjectLibrary.getUncached();
+    private final PythonObjectFactory factory = PythonObjectFactory.getUncached();
+    private final CallNode callNode = CallNode.getUncached();
+    /** The bound {@code read} and {@code readline} methods or {@code null} for {@code loads}. */
+    private final Object read;
+    private final Object readline;
+    private final Object persistentLoad;
+
+    private byte[] input;
+    private int pos;
+    private int limit;
+
+    private Object[] stack = new Object[16];
+    private int sp;
+    private int[] marks = new int[8];
+    private int numMarks;
+    /** The stack index below which no item may be popped, i.e., the position of the last mark. */
+    private int fence;
+
+    /** Creates a reader for a file. */
+    public PickleReader(PythonBuiltinBaseNode node, PUnpickler unpickler) {
+        this(node, unpickler, EMPTY, 0, unpickler.getRead(), unpickler.getReadline());
+    }
+
+    /** Creates a reader for the first {@code length} bytes of {@code data}. */
+    public PickleReader(PythonBuiltinBaseNode node, PUnpickler unpickler, byte[] data, int length) {
+        this(node, unpickler, data, length, null, null);
+    }
+
+    private PickleReader(PythonBuiltinBaseNode node, PUnpickler unpickler, byte[] data, int length, Object read, Object readline) {
+        this.node = node;
+        this.unpickler = unpickler;
+        this.core = node.getCore();
+        this.input = data;
+        this.limit = length;
+        this.read = read;
+        this.readline = readline;
+        this.persistentLoad = unpickler.getPersistentLoad();
+    }
+
+    // input
+
+    private PException truncated() {
+        return node.raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.PICKLE_DATA_TRUNCATED);
+    }
+
+    private byte[] toByteArray(Object data) {
+        if (data instanceof PBytes) {
+            SequenceStorage storage = ((PBytes) data).getSequenceStorage();
+            if (storage instanceof ByteSequenceStorage) {
+                byte[] bytes = ((ByteSequenceStorage) storage).getInternalByteArray();
+                return bytes.length == storage.length() ? bytes : Arrays.copyOf(bytes, storage.length());
+            }
+        }
+        try {
+            return lib.getBufferBytes(data);
+        } catch (UnsupportedMessageException e) {
+            throw node.raise(TypeError, ErrorMessages.BYTESLIKE_OBJ_REQUIRED, data);
+        }
+    }
+
+    /**
+     * Makes sure that at least {@code n} unread bytes are available, reading the missing ones from
+     * the file in one call.
+     */
+    private void fill(int n) {
+        int available = limit - pos;
+        if (available >= n) {
+            return;
+        }
+        if (read == null) {
+            throw truncated();
+        }
+        byte[] data = toByteArray(callNode.execute(read, n - available));
+        if (data.length < n - available) {
+            throw truncated();
+        }
+        if (available == 0) {
+            input = data;
+            limit = data.length;
+        } else {
+            byte[] joined = new byte[available + data.length];
+            System.arraycopy(input, pos, joined, 0, available);
+            System.arraycopy(data, 0, joined, available, data.length);
+            input = joined;
+            limit = joined.length;
+        }
+        pos = 0;
+    }
+
+    /** Returns the position of {@code n} bytes in {@link #input} and consumes them. */
+    private int readBytes(int n) {
+        fill(n);
+        int p = pos;
+        pos += n;
+        return p;
+    }
+
+    /** Reads {@code n} bytes into a new array that may be handed to a new object. */
+    private byte[] readPayload(int n) {
+        int available = limit - pos;
+        if (available == 0 && read != null && n > 0) {
+            // outside of frames, large payloads are read directly
+            byte[] data = toByteArray(callNode.execute(read, n));
+            if (data.length != n) {
+                throw truncated();
+            }
+            return data;
+        }
+        int p = readBytes(n);
+        return Arrays.copyOfRange(input, p, p + n);
+    }
+
+    private int readByte() {
+        return input[readBytes(1)] & 0xff;
+    }
+
+    private long readLE(int nbytes) {
+        int p = readBytes(nbytes);
+        long value = 0;
+        for (int i = 0; i < nbytes; i++) {
+            value |= (input[p + i] & 0xffL) << (8 * i);
+        }
+        return value;
+    }
+
+    /** Reads a size argument and checks that it fits into a Java array. */
+    private int readSize(int nbytes, String opname) {
+        long size = readLE(nbytes);
+        if (nbytes == 4 && opname != null && (int) size < 0) {
+            throw node.raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.S_PICKLE_HAS_NEGATIVE_BYTE_COUNT, opname);
+        }
+        if (size < 0 || size > Integer.MAX_VALUE - 8) {
+            throw node.raise(PythonBuiltinClassType.OverflowError, ErrorMessages.S_EXCEEDS_MAXIMUM_SIZE, opname != null ? opname : "pickle data", Integer.MAX_VALUE - 8);
+        }
+        return (int) size;
+    }
+
+    /** Reads a line and returns it without the trailing newline, decoded as Latin-1. */
+    private String readLine() {
+        for (int i = pos; i < limit; i++) {
+            if (input[i] == '\n') {
+                String line = new String(input, pos, i - pos, StandardCharsets.ISO_8859_1);
+                pos = i + 1;
+                return line;
+            }
+        }
+        String prefix = new String(input, pos, limit - pos, StandardCharsets.ISO_8859_1);
+        pos = limit;
+        if (readline == null) {
+            return prefix;
+        }
+        byte[] data = toByteArray(callNode.execute(readline));
+        if (data.length == 0) {
+            throw truncated();
+        }
+        int n = data[data.length - 1] == '\n' ? data.length - 1 : data.length;
+        return prefix + new String(data, 0, n, StandardCharsets.ISO_8859_1);
+    }
+
+    private String readUtf8Line() {
+        byte[] line = readLine().getBytes(StandardCharsets.ISO_8859_1);
+        return decodeUtf8OrRaise(line, 0, line.length);
+    }
+
+    private String decodeUtf8OrRaise(byte[] data, int off, int n) {
+        String s = PickleUtils.decodeUtf8(data, off, n);
+        if (s == null) {
+            // let the codec raise the appropriate error
+            PBytes bytes = factory.createBytes(Arrays.copyOfRange(data, off, off + n));
+            return asString(callMethod(bytes, "decode", "utf-8", "surrogatepass"));
+        }
+        return s;
+    }
+
+    // stack
+
+    private void push(Object obj) {
+        if (sp == stack.length) {
+            stack = Arrays.copyOf(stack, sp * 2);
+        }
+        stack[sp++] = obj;
+    }
+
+    private PException stackUnderflow() {
+        if (numMarks > 0) {
+            return node.raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.UNEXPECTED_MARK_FOUND);
+        }
+        return node.raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.UNPICKLING_STACK_UNDERFLOW);
+    }
+
+    private Object pop() {
+        if (sp <= fence) {
+            throw stackUnderflow();
+        }
+        Object obj = stack[--sp];
+        stack[sp] = null;
+        return obj;
+    }
+
+    private Object peek() {
+        if (sp <= fence) {
+            throw stackUnderflow();
+        }
+        return stack[sp - 1];
+    }
+
+    private void pushMark() {
+        if (numMarks == marks.length) {
+            marks = Arrays.copyOf(marks, numMarks * 2);
+        }
+        marks[numMarks++] = sp;
+        fence = sp;
+    }
+
+    private int marker() {
+        if (numMarks == 0) {
+            throw node.raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.COULD_NOT_FIND_MARK);
+        }
+        int mark = marks[--numMarks];
+        fence = numMarks > 0 ? marks[numMarks - 1] : 0;
+        return mark;
+    }
+
+    private Object[] popFrom(int start) {
+        if (start < fence) {
+            throw stackUnderflow();
+        }
+        Object[] items = Arrays.copyOfRange(stack, start, sp);
+        Arrays.fill(stack, start, sp, null);
+        sp = start;
+        return items;
+    }
+
+    // load
+
+    @TruffleBoundary
+    public Object load() {
+        unpickler.setProto(0);
+        while (true) {
+            if (pos == limit) {
+                if (read == null) {
+                    throw node.raise(PythonBuiltinClassType.EOFError, ErrorMessages.RAN_OUT_OF_INPUT);
+                }
+                byte[] data = toByteArray(callNode.execute(read, 1));
+                if (data.length == 0) {
+                    throw node.raise(PythonBuiltinClassType.EOFError, ErrorMessages.RAN_OUT_OF_INPUT);
+                }
+                input = data;
+                pos = 0;
+                limit = data.length;
+            }
+            byte opcode = input[pos++];
+            if (opcode == STOP) {
+                return pop();
+            }
+            dispatch(opcode);
+        }
+    }
+
+    private void dispatch(byte opcode) {
+        switch (opcode) {
+            case PROTO:
+                loadProto();
+                break;
+            case FRAME:
+                loadFrame();
+                break;
+            case NONE:
+                push(PNone.NONE);
+                break;
+            case NEWTRUE:
+                push(true);
+                break;
+            case NEWFALSE:
+                push(false);
+                break;
+            case INT:
+                loadInt();
+                break;
+            case BININT:
+                push((int) readLE(4));
+                break;
+            case BININT1:
+                push(readByte());
+                break;
+            case BININT2:
+                push((int) readLE(2));
+                break;
+            case LONG:
+                loadLong();
+                break;
+            case LONG1:
+                loadCountedLong(1);
+                break;
+            case LONG4:
+                loadCountedLong(4);
+                break;
+            case FLOAT:
+                push(callNode.execute(core.lookupType(PythonBuiltinClassType.PFloat), readLine()));
+                break;
+            case BINFLOAT:
+                loadBinFloat();
+                break;
+            case STRING:
+                loadString();
+                break;
+            case BINSTRING:
+                push(decodeString(readPayload(readSize(4, "BINSTRING"))));
+                break;
+            case SHORT_BINSTRING:
+                push(decodeString(readPayload(readByte())));
+                break;
+            case BINBYTES:
+                push(factory.createBytes(readPayload(readSize(4, "BINBYTES"))));
+                break;
+            case SHORT_BINBYTES:
+                push(factory.createBytes(readPayload(readByte())));
+                break;
+            case BINBYTES8:
+                push(factory.createBytes(readPayload(readSize(8, "BINBYTES8"))));
+                break;
+            case BYTEARRAY8:
+                push(factory.createByteArray(readPayload(readSize(8, "BYTEARRAY8"))));
+                break;
+            case NEXT_BUFFER:
+                loadNextBuffer();
+                break;
+            case READONLY_BUFFER:
+                loadReadonlyBuffer();
+                break;
+            case UNICODE:
+                loadUnicode();
+                break;
+            case BINUNICODE:
+                loadBinUnicode(readSize(4, null));
+                break;
+            case SHORT_BINUNICODE:
+                loadBinUnicode(readByte());
+                break;
+            case BINUNICODE8:
+                loadBinUnicode(readSize(8, "BINUNICODE8"));
+                break;
+            case EMPTY_TUPLE:
+                push(factory.createEmptyTuple());
+                break;
+            case TUPLE:
+                push(factory.createTuple(popFrom(marker())));
+                break;
+            case TUPLE1:
+                loadCountedTuple(1);
+                break;
+            case TUPLE2:
+                loadCountedTuple(2);
+                break;
+            case TUPLE3:
+                loadCountedTuple(3);
+                break;
+            case EMPTY_LIST:
+                push(factory.createList());
+                break;
+            case LIST:
+                push(factory.createList(popFrom(marker())));
+                break;
+            case EMPTY_DICT:
+                push(factory.createDict());
+                break;
+            case DICT:
+                loadDict();
+                break;
+            case EMPTY_SET:
+                push(factory.createSet(EconomicMapStorage.create()));
+                break;
+            case FROZENSET:
+                loadFrozenSet();
+                break;
+            case ADDITEMS:
+                loadAddItems();
+                break;
+            case APPEND:
+                doAppend(sp - 1);
+                break;
+            case APPENDS:
+                doAppend(marker());
+                break;
+            case SETITEM:
+                doSetItems(sp - 2);
+                break;
+            case SETITEMS:
+                doSetItems(marker());
+                break;
+            case BUILD:
+                loadBuild();
+                break;
+            case MARK:
+                pushMark();
+                break;
+            case POP:
+                loadPop();
+                break;
+            case POP_MARK:
+                popFrom(marker());
+                break;
+            case DUP:
+                push(peek());
+                break;
+            case GET:
+                loadGet(parseIndex(readLine(), "GET"));
+                break;
+            case BINGET:
+                loadGet(readByte());
+                break;
+            case LONG_BINGET:
+                loadGet(readSize(4, null));
+                break;
+            case PUT:
+                unpickler.putMemo(parseIndex(readLine(), "PUT"), peek());
+                break;
+            case BINPUT:
+                unpickler.putMemo(readByte(), peek());
+                break;
+            case LONG_BINPUT:
+                unpickler.putMemo(readSize(4, null), peek());
+                break;
+            case MEMOIZE:
+                unpickler.putMemo(unpickler.getMemoLen(), peek());
+                break;
+            case GLOBAL:
+                loadGlobal();
+                break;
+            case STACK_GLOBAL:
+                loadStackGlobal();
+                break;
+            case EXT1:
+                loadExtension(readByte());
+                break;
+            case EXT2:
+                loadExtension((int) readLE(2));
+                break;
+            case EXT4:
+                loadExtension((int) readLE(4));
+                break;
+            case REDUCE:
+                loadReduce();
+                break;
+            case NEWOBJ:
+                loadNewObj();
+                break;
+            case NEWOBJ_EX:
+                loadNewObjEx();
+                break;
+            case OBJ:
+                loadObj();
+                break;
+            case INST:
+                loadInst();
+                break;
+            case PERSID:
+                loadPersId();
+                break;
+            case BINPERSID:
+                push(callPersistentLoad(pop()));
+                break;
+            default:
+                throw node.raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.INVALID_LOAD_KEY, opcodeRepr(opcode));
+        }
+    }
+
+    private static String opcodeRepr(byte opcode) {
+        int c = opcode & 0xff;
+        if (c >= 0x20 && c < 0x7f) {
+            return String.valueOf((char) c);
+        }
+        return String.format("\\x%02x", c);
+    }
+
+    private void loadProto() {
+        int protocol = readByte();
+        if (protocol > HIGHEST_PROTOCOL) {
+            throw node.raise(ValueError, ErrorMessages.UNSUPPORTED_PICKLE_PROTOCOL, protocol);
+        }
+        unpickler.setProto(protocol);
+    }
+
+    private void loadFrame() {
+        int frameLen = readSize(8, "FRAME");
+        // fetch the whole frame at once, the opcodes in it are then read from memory
+        fill(frameLen);
+    }
+
+    private static Object toPythonInt(BigInteger value) {
+        if (value.bitLength() < 32) {
+            return value.intValue();
+        } else if (value.bitLength() < 64) {
+            return value.longValue();
+        }
+        return PythonObjectFactory.getUncached().createInt(value);
+    }
+
+    private Object parseInt(String s) {
+        String trimmed = s.trim();
+        try {
+            return toPythonInt(new BigInteger(trimmed));
+        } catch (NumberFormatException e) {
+            // the int constructor handles prefixes and underscores or raises the proper error
+            return callNode.execute(core.lookupType(PythonBuiltinClassType.PInt), trimmed, 0);
+        }
+    }
+
+    private void loadInt() {
+        String s = readLine();
+        if (s.equals("00")) {
+            push(false);
+        } else if (s.equals("01")) {
+            push(true);
+        } else {
+            push(parseInt(s));
+        }
+    }
+
+    private void loadLong() {
+        String s = readLine();
+        if (s.endsWith("L")) {
+            s = s.substring(0, s.length() - 1);
+        }
+        push(parseInt(s));
+    }
+
+    private void loadCountedLong(int nbytes) {
+        int n = nbytes == 1 ? readByte() : (int) readLE(4);
+        if (n < 0) {
+            throw node.raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.S_PICKLE_HAS_NEGATIVE_BYTE_COUNT, "LONG");
+        }
+        if (n == 0) {
+            push(0);
+            return;
+        }
+        int p = readBytes(n);
+        byte[] bigEndian = new byte[n];
+        for (int i = 0; i < n; i++) {
+            bigEndian[i] = input[p + n - 1 - i];
+        }
+        push(toPythonInt(new BigInteger(bigEndian)));
+    }
+
+    private void loadBinFloat() {
+        int p = readBytes(8);
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits = (bits << 8) | (input[p + i] & 0xffL);
+        }
+        push(Double.longBitsToDouble(bits));
+    }
+
+    private void loadString() {
+        String s = readLine();
+        int n = s.length();
+        // strip trailing whitespace, then the quotes
+        while (n > 0 && s.charAt(n - 1) <= ' ') {
+            n--;
+        }
+        if (n < 2 || s.charAt(0) != s.charAt(n - 1) || (s.charAt(0) != '\'' && s.charAt(0) != '"')) {
+            throw node.raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.STRING_OPCODE_ARG_MUST_BE_QUOTED);
+        }
+        PBytes escaped = factory.createBytes(s.substring(1, n - 1).getBytes(StandardCharsets.ISO_8859_1));
+        Object decoded = callNode.execute(getModuleAttribute(CODECS, "escape_decode"), escaped);
+        push(decodeString(toByteArray(((PTuple) decoded).getSequenceStorage().getItemNormalized(0))));
+    }
+
+    /** Decodes a Python 2 {@code str} with the unpickler's encoding and errors. */
+    private Object decodeString(byte[] data) {
+        String encoding = unpickler.getEncoding();
+        if (encoding.equals("bytes")) {
+            return factory.createBytes(data);
+        }
+        if (encoding.equalsIgnoreCase("ascii")) {
+            boolean ascii = true;
+            for (byte b : data) {
+                if (b < 0) {
+                    ascii = false;
+                    break;
+                }
+            }
+            if (ascii) {
+                return new String(data, StandardCharsets.ISO_8859_1);
+            }
+        }
+        return callMethod(factory.createBytes(data), "decode", encoding, unpickler.getErrors());
+    }
+
+    private void loadUnicode() {
+        PBytes line = factory.createBytes(readLine().getBytes(StandardCharsets.ISO_8859_1));
+        push(callMethod(line, "decode", "raw-unicode-escape"));
+    }
+
+    private void loadBinUnicode(int n) {
+        if (n >= FRAME_SIZE_TARGET && limit - pos < n) {
+            byte[] data = readPayload(n);
+            push(decodeUtf8OrRaise(data, 0, n));
+        } else {
+            int p = readBytes(n);
+            push(decodeUtf8OrRaise(input, p, n));
+        }
+    }
+
+    private void loadNextBuffer() {
+        Object buffers = unpickler.getBuffers();
+        if (buffers == null) {
+            throw node.raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.NO_BUFFERS_ARGUMENT_GIVEN);
+        }
+        try {
+            push(GetNextWithoutFrameNodeGen.getUncached().executeWithGlobalState(buffers));
+        } catch (PException e) {
+            e.expectStopIteration(IsBuiltinClassProfile.getUncached());
+            throw node.raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.NOT_ENOUGH_OUT_OF_BAND_BUFFERS);
+        }
+    }
+
+    private void loadReadonlyBuffer() {
+        Object obj = peek();
+        Object view = callNode.execute(core.lookupType(PythonBuiltinClassType.PMemoryView), obj);
+        if (view instanceof PMemoryView) {
+            PMemoryView mv = (PMemoryView) view;
+            if (mv.isManaged() && !mv.isReadonly()) {
+                view = factory.createMemoryView(PythonBuiltinClassType.PMemoryView, mv.getOwner(), mv.getOffset(), mv.getLength(), mv.getItemSize(), mv.getStride(), mv.getFormat(), true);
+            }
+        }
+        stack[sp - 1] = view;
+    }
+
+    private void loadCountedTuple(int n) {
+        if (sp - n < fence) {
+            throw stackUnderflow();
+        }
+        push(factory.createTuple(popFrom(sp - n)));
+    }
+
+    private void loadDict() {
+        Object[] items = popFrom(marker());
+        if (items.length % 2 != 0) {
+            throw node.raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.ODD_NUMBER_OF_ITEMS_FOR_S, "DICT");
+        }
+        PDict dict = factory.createDict();
+        for (int i = 0; i < items.length; i += 2) {
+            dict.setItem(items[i], items[i + 1]);
+        }
+        push(dict);
+    }
+
+    private static HashingStorage addAll(HashingStorage storage, Object[] items) {
+        HashingStorageLibrary hlib = HashingStorageLibrary.getUncached();
+        HashingStorage result = storage;
+        for (Object item : items) {
+            result = hlib.setItem(result, item, PNone.NONE);
+        }
+        return result;
+    }
+
+    private void loadFrozenSet() {
+        Object[] items = popFrom(marker());
+        push(factory.createFrozenSet(addAll(EconomicMapStorage.create(items.length), items)));
+    }
+
+    private void loadAddItems() {
+        int mark = marker();
+        if (mark == 0) {
+            throw stackUnderflow();
+        }
+        Object set = stack[mark - 1];
+        Object[] items = popFrom(mark);
+        if (set instanceof PSet) {
+            ((PSet) set).setDictStorage(addAll(((PSet) set).getDictStorage(), items));
+        } else {
+            Object add = lib.lookupAttribute(set, "add");
+            for (Object item : items) {
+                callNode.execute(add, item);
+            }
+        }
+    }
+
+    /** Appends the items above stack index {@code x} to the list at {@code x - 1}. */
+    private void doAppend(int x) {
+        if (x > sp || x <= fence) {
+            throw stackUnderflow();
+        }
+        if (x == sp) {
+            return;
+        }
+        Object list = stack[x - 1];
+        Object[] items = popFrom(x);
+        if (list instanceof PList && IsBuiltinClassProfile.profileClassSlowPath(lib.getLazyPythonClass(list), PythonBuiltinClassType.PList)) {
+            appendToList((PList) list, items);
+            return;
+        }
+        Object extend = lib.lookupAttribute(list, "extend");
+        if (extend != PNone.NO_VALUE) {
+            callNode.execute(extend, factory.createList(items));
+        } else {
+            Object append = lib.lookupAttribute(list, "append");
+            for (Object item : items) {
+                callNode.execute(append, item);
+            }
+        }
+    }
+
+    private void appendToList(PList list, Object[] items) {
+        SequenceStorage storage = list.getSequenceStorage();
+        int base = storage.length();
+        if (base == 0) {
+            // let the factory pick the most specific storage for the items
+            list.setSequenceStorage(factory.createList(items).getSequenceStorage());
+            return;
+        }
+        storage.ensureCapacity(base + items.length);
+        try {
+            for (int i = 0; i < items.length; i++) {
+                storage.setItemNormalized(base + i, items[i]);
+            }
+            storage.setNewLength(base + items.length);
+        } catch (SequenceStoreException e) {
+            Object[] all = new Object[base + items.length];
+            for (int i = 0; i < base; i++) {
+                all[i] = storage.getItemNormalized(i);
+            }
+            System.arraycopy(items, 0, all, base, items.length);
+            list.setSequenceStorage(factory.createList(all).getSequenceStorage());
+        }
+    }
+
+    /** Sets the key/value pairs above stack index {@code x} on the mapping at {@code x - 1}. */
+    private void doSetItems(int x) {
+        if (x > sp || x <= fence) {
+            throw stackUnderflow();
+        }
+        if (x == sp) {
+            return;
+        }
+        if ((sp - x) % 2 != 0) {
+            throw node.raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.ODD_NUMBER_OF_ITEMS_FOR_S, "SETITEMS");
+        }
+        Object dict = stack[x - 1];
+        Object[] items = popFrom(x);
+        if (dict instanceof PDict && IsBuiltinClassProfile.profileClassSlowPath(lib.getLazyPythonClass(dict), PythonBuiltinClassType.PDict)) {
+            for (int i = 0; i < items.length; i += 2) {
+                ((PDict) dict).setItem(items[i], items[i + 1]);
+            }
+        } else {
+            Object setItem = lib.lookupAttribute(dict, SpecialMethodNames.__SETITEM__);
+            for (int i = 0; i < items.length; i += 2) {
+                callNode.execute(setItem, items[i], items[i + 1]);
+            }
+        }
+    }
+
+    private void loadBuild() {
+        Object state = pop();
+        Object inst = peek();
+        Object setState = lib.lookupAttribute(inst, SpecialMethodNames.__SETSTATE__);
+        if (setState != PNone.NO_VALUE) {
+            callNode.execute(setState, state);
+            return;
+        }
+        Object slotState = null;
+        if (state instanceof PTuple && ((PTuple) state).getSequenceStorage().length() == 2) {
+            SequenceStorage pair = ((PTuple) state).getSequenceStorage();
+            state = pair.getItemNormalized(0);
+            slotState = pair.getItemNormalized(1);
+        }
+        if (state != PNone.NONE) {
+            if (!(state instanceof PDict)) {
+                throw node.raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.STATE_IS_NOT_DICT);
+            }
+            Object instDict = lib.lookupAttribute(inst, SpecialAttributeNames.__DICT__);
+            if (instDict == PNone.NO_VALUE) {
+                throw node.raise(PythonBuiltinClassType.AttributeError, ErrorMessages.OBJ_P_HAS_NO_ATTR_S, inst, SpecialAttributeNames.__DICT__);
+            }
+            Object setItem = instDict instanceof PDict ? null : lib.lookupAttribute(instDict, SpecialMethodNames.__SETITEM__);
+            for (DictEntry entry : ((PDict) state).entries()) {
+                if (setItem == null) {
+                    ((PDict) instDict).setItem(entry.getKey(), entry.getValue());
+                } else {
+                    callNode.execute(setItem, entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        if (slotState != null && slotState != PNone.NONE) {
+            if (!(slotState instanceof PDict)) {
+                throw node.raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.SLOT_STATE_IS_NOT_DICT);
+            }
+            Object setattr = core.getBuiltins().getAttribute(BuiltinNames.SETATTR);
+            for (DictEntry entry : ((PDict) slotState).entries()) {
+                callNode.execute(setattr, inst, entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void loadPop() {
+        if (numMarks > 0 && marks[numMarks - 1] == sp) {
+            marker();
+        } else {
+            pop();
+        }
+    }
+
+    private int parseIndex(String line, String opname) {
+        long idx;
+        try {
+            idx = Long.parseLong(line.trim());
+        } catch (NumberFormatException e) {
+            Object value = parseInt(line);
+            idx = lib.asJavaLong(value);
+        }
+        if (idx < 0) {
+            throw node.raise(ValueError, ErrorMessages.NEGATIVE_S_ARGUMENT, opname);
+        }
+        if (idx > Integer.MAX_VALUE) {
+            throw node.raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.MEMO_VALUE_NOT_FOUND_AT_INDEX, idx);
+        }
+        return (int) idx;
+    }
+
+    private void loadGet(int idx) {
+        Object value = unpickler.getMemo(idx);
+        if (value == null) {
+            throw node.raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.MEMO_VALUE_NOT_FOUND_AT_INDEX, idx);
+        }
+        push(value);
+    }
+
+    // globals and objects
+
+    private Object findClass(Object moduleName, Object name) {
+        if (IsBuiltinClassProfile.profileClassSlowPath(lib.getLazyPythonClass(unpickler), PythonBuiltinClassType.PUnpickler)) {
+            return findClass(node, unpickler, moduleName, name);
+        }
+        return callMethod(unpickler, "find_class", moduleName, name);
+    }
+
+    /**
+     * The implementation of {@code Unpickler.find_class}, applying the Python 2 name mappings of
+     * {@code _compat_pickle} for protocols below 3.
+     */
+    @TruffleBoundary
+    static Object findClass(PythonBuiltinBaseNode node, PUnpickler unpickler, Object moduleNameObj, Object nameObj) {
+        int proto = unpickler.getProto();
+        String moduleName = asString(moduleNameObj);
+        String name = asString(nameObj);
+        if (moduleName == null || name == null) {
+            throw node.raise(TypeError, ErrorMessages.MUST_BE_STRINGS_NOT_P, "module and name", moduleName == null ? moduleNameObj : nameObj);
+        }
+        if (proto < 3 && unpickler.isFixImports()) {
+            PythonObjectFactory factory = PythonObjectFactory.getUncached();
+            Object mapped = getCompatMapping("NAME_MAPPING", factory.createTuple(new Object[]{moduleName, name}));
+            if (mapped instanceof PTuple && ((PTuple) mapped).getSequenceStorage().length() == 2) {
+                SequenceStorage pair = ((PTuple) mapped).getSequenceStorage();
+                moduleName = asString(pair.getItemNormalized(0));
+                name = asString(pair.getItemNormalized(1));
+            } else {
+                Object mappedModule = getCompatMapping("IMPORT_MAPPING", moduleName);
+                if (mappedModule != null) {
+                    moduleName = asString(mappedModule);
+                }
+            }
+        }
+        Object module = getModule(moduleName);
+        return getDeepAttribute(node, module, name, proto >= 4);
+    }
+
+    private void loadGlobal() {
+        String moduleName = readUtf8Line();
+        String name = readUtf8Line();
+        push(findClass(moduleName, name));
+    }
+
+    private void loadStackGlobal() {
+        Object name = pop();
+        Object moduleName = pop();
+        if (!isExactString(name) || !isExactString(moduleName)) {
+            throw node.raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.STACK_GLOBAL_REQUIRES_STR);
+        }
+        push(findClass(moduleName, name));
+    }
+
+    private boolean isExactString(Object obj) {
+        return obj instanceof String || IsBuiltinClassProfile.profileClassSlowPath(lib.getLazyPythonClass(obj), PythonBuiltinClassType.PString);
+    }
+
+    private void loadExtension(int code) {
+        if (code <= 0) {
+            throw node.raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.EXT_SPECIFIES_CODE_LE_ZERO);
+        }
+        Object cache = getModuleAttribute(COPYREG, "_extension_cache");
+        Object obj = cache instanceof PDict ? ((PDict) cache).getItem(code) : null;
+        if (obj != null) {
+            push(obj);
+            return;
+        }
+        Object registry = getModuleAttribute(COPYREG, "_inverted_registry");
+        Object key = registry instanceof PDict ? ((PDict) registry).getItem(code) : null;
+        if (!(key instanceof PTuple) || ((PTuple) key).getSequenceStorage().length() != 2) {
+            throw node.raise(ValueError, ErrorMessages.UNREGISTERED_EXTENSION_CODE, code);
+        }
+        SequenceStorage pair = ((PTuple) key).getSequenceStorage();
+        obj = findClass(pair.getItemNormalized(0), pair.getItemNormalized(1));
+        if (cache instanceof PDict) {
+            ((PDict) cache).setItem(code, obj);
+        }
+        push(obj);
+    }
+
+    private void loadReduce() {
+        Object argtup = pop();
+        Object callable = pop();
+        if (!(argtup instanceof PTuple)) {
+            throw node.raise(TypeError, ErrorMessages.ARGUMENT_LIST_MUST_BE_TUPLE);
+        }
+        push(callNode.execute(callable, ((PTuple) argtup).getSequenceStorage().getCopyOfInternalArray(), PKeyword.EMPTY_KEYWORDS));
+    }
+
+    private Object callNew(Object cls, Object[] args, PKeyword[] kwargs) {
+        Object[] newArgs = new Object[args.length + 1];
+        newArgs[0] = cls;
+        System.arraycopy(args, 0, newArgs, 1, args.length);
+        return callNode.execute(lib.lookupAttribute(cls, SpecialMethodNames.__NEW__), newArgs, kwargs);
+    }
+
+    private void loadNewObj() {
+        Object args = pop();
+        Object cls = pop();
+        if (!TypeNodes.IsTypeNode.getUncached().execute(cls)) {
+            throw node.raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.S_CLASS_MUST_BE_TYPE, "NEWOBJ", cls);
+        }
+        if (!(args instanceof PTuple)) {
+            throw node.raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.S_ARGS_MUST_BE_TUPLE, "NEWOBJ", args);
+        }
+        push(callNew(cls, ((PTuple) args).getSequenceStorage().getCopyOfInternalArray(), PKeyword.EMPTY_KEYWORDS));
+    }
+
+    private void loadNewObjEx() {
+        Object kwargs = pop();
+        Object args = pop();
+        Object cls = pop();
+        if (!TypeNodes.IsTypeNode.getUncached().execute(cls)) {
+            throw node.raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.S_CLASS_MUST_BE_TYPE, "NEWOBJ_EX", cls);
+        }
+        if (!(args instanceof PTuple)) {
+            throw node.raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.S_ARGS_MUST_BE_TUPLE, "NEWOBJ_EX", args);
+        }
+        if (!(kwargs instanceof PDict)) {
+            throw node.raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.S_KWARGS_MUST_BE_DICT, "NEWOBJ_EX", kwargs);
+        }
+        PDict kwDict = (PDict) kwargs;
+        PKeyword[] keywords = new PKeyword[kwDict.size()];
+        int i = 0;
+        for (DictEntry entry : kwDict.entries()) {
+            String key = asString(entry.getKey());
+            if (key == null) {
+                throw node.raise(TypeError, ErrorMessages.KEYWORD_NAMES_MUST_BE_STR_GOT_P, entry.getKey());
+            }
+            keywords[i++] = new PKeyword(key, entry.getValue());
+        }
+        push(callNew(cls, ((PTuple) args).getSequenceStorage().getCopyOfInternalArray(), keywords));
+    }
+
+    /** Creates an instance for {@code OBJ} and {@code INST} like {@code pickle._instantiate}. */
+    private void instantiate(Object cls, Object[] args) {
+        if (args.length == 0 && TypeNodes.IsTypeNode.getUncached().execute(cls) && lib.lookupAttribute(cls, SpecialMethodNames.__GETINITARGS__) == PNone.NO_VALUE) {
+            push(callNew(cls, args, PKeyword.EMPTY_KEYWORDS));
+        } else {
+            push(callNode.execute(cls, args, PKeyword.EMPTY_KEYWORDS));
+        }
+    }
+
+    private void loadObj() {
+        int mark = marker();
+        if (sp == mark) {
+            throw stackUnderflow();
+        }
+        Object[] items = popFrom(mark);
+        instantiate(items[0], Arrays.copyOfRange(items, 1, items.length));
+    }
+
+    private void loadInst() {
+        String moduleName = readLine();
+        String name = readLine();
+        Object cls = findClass(moduleName, name);
+        instantiate(cls, popFrom(marker()));
+    }
+
+    private Object callPersistentLoad(Object pid) {
+        if (persistentLoad == null) {
+            throw node.raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.NO_PERSISTENT_LOAD_FUNCTION);
+        }
+        return callNode.execute(persistentLoad, pid);
+    }
+
+    private void loadPersId() {
+        String pid = readLine();
+        if (!isAscii(pid)) {
+            throw node.raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.PERSISTENT_IDS_MUST_BE_ASCII);
+        }
+        push(callPersistentLoad(pid));
+    }
+}
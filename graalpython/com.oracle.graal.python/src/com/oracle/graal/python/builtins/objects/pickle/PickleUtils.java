@@ -0,0 +1,376 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.pickle;
+
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.AttributeError;
+
+import java.nio.charset.StandardCharsets;
+
+import com.oracle.graal.python.PythonLanguage;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.dict.PDict;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.nodes.BuiltinNames;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.util.CannotCastException;
+import com.oracle.graal.python.nodes.util.CastToJavaStringNode;
+import com.oracle.graal.python.runtime.PythonContext;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * Opcodes and helpers shared by the {@code _pickle} pickler and unpickler. The opcode names and
+ * values are the ones of {@code Lib/pickle.py}.
+ */
+public final class PickleUtils {
+    public static final int HIGHEST_PROTOCOL = 5;
+    public static final int DEFAULT_PROTOCOL = 4;
+
+    /** Frames smaller than this are not worth their 9 byte header and are dropped again. */
+    static final int FRAME_SIZE_MIN = 4;
+    static final int FRAME_SIZE_TARGET = 64 * 1024;
+    static final int FRAME_HEADER_SIZE = 9;
+    /** Number of items written per {@code APPENDS}, {@code SETITEMS} and {@code ADDITEMS}. */
+    static final int BATCHSIZE = 1000;
+
+    static final byte MARK = '(';
+    static final byte STOP = '.';
+    static final byte POP = '0';
+    static final byte POP_MARK = '1';
+    static final byte DUP = '2';
+    static final byte FLOAT = 'F';
+    static final byte INT = 'I';
+    static final byte BININT = 'J';
+    static final byte BININT1 = 'K';
+    static final byte LONG = 'L';
+    static final byte BININT2 = 'M';
+    static final byte NONE = 'N';
+    static final byte PERSID = 'P';
+    static final byte BINPERSID = 'Q';
+    static final byte REDUCE = 'R';
+    static final byte STRING = 'S';
+    static final byte BINSTRING = 'T';
+    static final byte SHORT_BINSTRING = 'U';
+    static final byte UNICODE = 'V';
+    static final byte BINUNICODE = 'X';
+    static final byte APPEND = 'a';
+    static final byte BUILD = 'b';
+    static final byte GLOBAL = 'c';
+    static final byte DICT = 'd';
+    static final byte EMPTY_DICT = '}';
+    static final byte APPENDS = 'e';
+    static final byte GET = 'g';
+    static final byte BINGET = 'h';
+    static final byte INST = 'i';
+    static final byte LONG_BINGET = 'j';
+    static final byte LIST = 'l';
+    static final byte EMPTY_LIST = ']';
+    static final byte OBJ = 'o';
+    static final byte PUT = 'p';
+    static final byte BINPUT = 'q';
+    static final byte LONG_BINPUT = 'r';
+    static final byte SETITEM = 's';
+    static final byte TUPLE = 't';
+    static final byte EMPTY_TUPLE = ')';
+    static final byte SETITEMS = 'u';
+    static final byte BINFLOAT = 'G';
+
+    // protocol 2
+    static final byte PROTO = (byte) 0x80;
+    static final byte NEWOBJ = (byte) 0x81;
+    static final byte EXT1 = (byte) 0x82;
+    static final byte EXT2 = (byte) 0x83;
+    static final byte EXT4 = (byte) 0x84;
+    static final byte TUPLE1 = (byte) 0x85;
+    static final byte TUPLE2 = (byte) 0x86;
+    static final byte TUPLE3 = (byte) 0x87;
+    static final byte NEWTRUE = (byte) 0x88;
+    static final byte NEWFALSE = (byte) 0x89;
+    static final byte LONG1 = (byte) 0x8a;
+    static final byte LONG4 = (byte) 0x8b;
+
+    // protocol 3
+    static final byte BINBYTES = 'B';
+    static final byte SHORT_BINBYTES = 'C';
+
+    // protocol 4
+    static final byte SHORT_BINUNICODE = (byte) 0x8c;
+    static final byte BINUNICODE8 = (byte) 0x8d;
+    static final byte BINBYTES8 = (byte) 0x8e;
+    static final byte EMPTY_SET = (byte) 0x8f;
+    static final byte ADDITEMS = (byte) 0x90;
+    static final byte FROZENSET = (byte) 0x91;
+    static final byte NEWOBJ_EX = (byte) 0x92;
+    static final byte STACK_GLOBAL = (byte) 0x93;
+    static final byte MEMOIZE = (byte) 0x94;
+    static final byte FRAME = (byte) 0x95;
+
+    // protocol 5
+    static final byte BYTEARRAY8 = (byte) 0x96;
+    static final byte NEXT_BUFFER = (byte) 0x97;
+    static final byte READONLY_BUFFER = (byte) 0x98;
+
+    static final String COPYREG = "copyreg";
+    static final String COMPAT_PICKLE = "_compat_pickle";
+    static final String CODECS = "codecs";
+    static final String LOCALS = "<locals>";
+
+    private PickleUtils() {
+    }
+
+    /**
+     * Imports the module with the given (possibly dotted) name and returns it from
+     * {@code sys.modules}, like {@code PyImport_Import}.
+     */
+    @TruffleBoundary
+    static Object getModule(String name) {
+        PythonContext context = PythonLanguage.getContext();
+        Object module = context.getSysModules().getItem(name);
+        if (module == null) {
+            CallNode.getUncached().execute(context.getCore().getBuiltins().getAttribute(BuiltinNames.__IMPORT__), name);
+            module = context.getSysModules().getItem(name);
+        }
+        return module;
+    }
+
+    /**
+     * Returns the attribute of a module that is only used by the pickle machinery, e.g.
+     * {@code copyreg.dispatch_table}.
+     */
+    @TruffleBoundary
+    static Object getModuleAttribute(String moduleName, String attribute) {
+        return PythonObjectLibrary.getUncached().lookupAttribute(getModule(moduleName), attribute);
+    }
+
+    @TruffleBoundary
+    static Object getAttribute(Object obj, String name) {
+        return PythonObjectLibrary.getUncached().lookupAttribute(obj, name);
+    }
+
+    @TruffleBoundary
+    static Object callMethod(Object obj, String name, Object... args) {
+        return CallNode.getUncached().execute(PythonObjectLibrary.getUncached().lookupAttribute(obj, name), args);
+    }
+
+    /**
+     * Resolves the dotted path {@code name} starting at {@code obj}, like CPython's
+     * {@code get_deep_attribute}. Attributes of {@code <locals>} can never be resolved.
+     */
+    @TruffleBoundary
+    static Object getDeepAttribute(PythonBuiltinBaseNode node, Object obj, String name, boolean dotted) {
+        if (!dotted) {
+            Object attr = getAttribute(obj, name);
+            if (attr == PNone.NO_VALUE) {
+                throw node.raise(AttributeError, ErrorMessages.CANT_GET_ATTRIBUTE_ON, repr(name), repr(obj));
+            }
+            return attr;
+        }
+        Object current = obj;
+        for (String part : name.split("\\.", -1)) {
+            if (part.equals(LOCALS)) {
+                throw node.raise(AttributeError, ErrorMessages.CANT_GET_LOCAL_ATTRIBUTE_ON, repr(name), repr(obj));
+            }
+            current = getAttribute(current, part);
+            if (current == PNone.NO_VALUE) {
+                throw node.raise(AttributeError, ErrorMessages.CANT_GET_ATTRIBUTE_ON, repr(name), repr(obj));
+            }
+        }
+        return current;
+    }
+
+    @TruffleBoundary
+    static String repr(Object obj) {
+        Object builtins = PythonLanguage.getCore().getBuiltins();
+        Object reprFn = PythonObjectLibrary.getUncached().lookupAttribute(builtins, BuiltinNames.REPR);
+        return CastToJavaStringNode.getUncached().execute(CallNode.getUncached().execute(reprFn, obj));
+    }
+
+    /**
+     * Returns the Java string of a {@code str} object or {@code null} if {@code obj} is not a
+     * string.
+     */
+    static String asString(Object obj) {
+        if (obj instanceof String) {
+            return (String) obj;
+        }
+        try {
+            return CastToJavaStringNode.getUncached().execute(obj);
+        } catch (CannotCastException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the number of bytes the UTF-8 encoding of {@code s} with error handler
+     * {@code surrogatepass} needs.
+     */
+    static long utf8Length(String s) {
+        long n = 0;
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                n++;
+            } else if (c < 0x800) {
+                n += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                n += 4;
+                i++;
+            } else {
+                n += 3;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Encodes {@code s} into {@code dst} starting at {@code pos} as UTF-8 with error handler
+     * {@code surrogatepass}, i.e., lone surrogates are encoded like any other BMP character. The
+     * destination must have room for {@link #utf8Length(String)} bytes.
+     */
+    static int encodeUtf8(String s, byte[] dst, int pos) {
+        int p = pos;
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                dst[p++] = (byte) c;
+            } else if (c < 0x800) {
+                dst[p++] = (byte) (0xC0 | (c >> 6));
+                dst[p++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                dst[p++] = (byte) (0xF0 | (cp >> 18));
+                dst[p++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                dst[p++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                dst[p++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                dst[p++] = (byte) (0xE0 | (c >> 12));
+                dst[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                dst[p++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Decodes UTF-8 (with error handler {@code surrogatepass}) or returns {@code null} if the
+     * data is malformed, so that the caller can let the codec raise the proper error.
+     */
+    static String decodeUtf8(byte[] src, int off, int len) {
+        int end = off + len;
+        int i = off;
+        // fast path for ASCII
+        while (i < end && src[i] >= 0) {
+            i++;
+        }
+        if (i == end) {
+            return new String(src, off, len, StandardCharsets.ISO_8859_1);
+        }
+        StringBuilder sb = new StringBuilder(len);
+        for (int j = off; j < i; j++) {
+            sb.append((char) src[j]);
+        }
+        while (i < end) {
+            int b = src[i] & 0xFF;
+            if (b < 0x80) {
+                sb.append((char) b);
+                i++;
+            } else if (b >= 0xC2 && b < 0xE0) {
+                if (i + 1 >= end || !isContinuation(src[i + 1])) {
+                    return null;
+                }
+                sb.append((char) (((b & 0x1F) << 6) | (src[i + 1] & 0x3F)));
+                i += 2;
+            } else if (b >= 0xE0 && b < 0xF0) {
+                if (i + 2 >= end || !isContinuation(src[i + 1]) || !isContinuation(src[i + 2])) {
+                    return null;
+                }
+                int c = ((b & 0x0F) << 12) | ((src[i + 1] & 0x3F) << 6) | (src[i + 2] & 0x3F);
+                if (c < 0x800) {
+                    return null;
+                }
+                sb.append((char) c);
+                i += 3;
+            } else if (b >= 0xF0 && b < 0xF5) {
+                if (i + 3 >= end || !isContinuation(src[i + 1]) || !isContinuation(src[i + 2]) || !isContinuation(src[i + 3])) {
+                    return null;
+                }
+                int cp = ((b & 0x07) << 18) | ((src[i + 1] & 0x3F) << 12) | ((src[i + 2] & 0x3F) << 6) | (src[i + 3] & 0x3F);
+                if (cp < 0x10000 || cp > Character.MAX_CODE_POINT) {
+                    return null;
+                }
+                sb.appendCodePoint(cp);
+                i += 4;
+            } else {
+                return null;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isContinuation(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Looks up {@code key} in a dict of {@code _compat_pickle} and returns {@code null} if there
+     * is no mapping.
+     */
+    @TruffleBoundary
+    static Object getCompatMapping(String mappingName, Object key) {
+        Object mapping = getModuleAttribute(COMPAT_PICKLE, mappingName);
+        if (mapping instanceof PDict) {
+            return ((PDict) mapping).getItem(key);
+        }
+        return null;
+    }
+}
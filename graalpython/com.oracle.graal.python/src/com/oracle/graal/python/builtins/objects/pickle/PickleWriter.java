@@ -0,0 +1,1371 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.pickle;
+
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.ADDITEMS;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.APPEND;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.APPENDS;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BATCHSIZE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINBYTES;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINBYTES8;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINFLOAT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINGET;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BININT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BININT1;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BININT2;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINPERSID;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINPUT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINUNICODE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINUNICODE8;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BUILD;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BYTEARRAY8;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.CODECS;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.COPYREG;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.DICT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EMPTY_DICT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EMPTY_LIST;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EMPTY_SET;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EMPTY_TUPLE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EXT1;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EXT2;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EXT4;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.FLOAT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.FRAME;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.FRAME_HEADER_SIZE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.FRAME_SIZE_MIN;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.FRAME_SIZE_TARGET;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.FROZENSET;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.GET;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.GLOBAL;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.INT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.LIST;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.LOCALS;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.LONG;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.LONG1;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.LONG4;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.LONG_BINGET;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.LONG_BINPUT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.MARK;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.MEMOIZE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.NEWFALSE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.NEWOBJ;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.NEWOBJ_EX;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.NEWTRUE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.NEXT_BUFFER;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.NONE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.PERSID;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.POP;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.POP_MARK;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.PROTO;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.PUT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.READONLY_BUFFER;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.REDUCE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.SETITEM;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.SETITEMS;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.SHORT_BINBYTES;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.SHORT_BINUNICODE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.STACK_GLOBAL;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.STOP;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.TUPLE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.TUPLE1;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.TUPLE2;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.TUPLE3;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.UNICODE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.asString;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.callMethod;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.encodeUtf8;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.getAttribute;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.getCompatMapping;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.getModule;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.getModuleAttribute;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.isAscii;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.repr;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.utf8Length;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.objects.PEllipsis;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.PNotImplemented;
+import com.oracle.graal.python.builtins.objects.bytes.PByteArray;
+import com.oracle.graal.python.builtins.objects.bytes.PBytes;
+import com.oracle.graal.python.builtins.objects.common.HashingStorage.DictEntry;
+import com.oracle.graal.python.builtins.objects.dict.PDict;
+import com.oracle.graal.python.builtins.objects.floats.FloatBuiltins;
+import com.oracle.graal.python.builtins.objects.floats.PFloat;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.ints.PInt;
+import com.oracle.graal.python.builtins.objects.list.PList;
+import com.oracle.graal.python.builtins.objects.memoryview.PMemoryView;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.builtins.objects.set.PBaseSet;
+import com.oracle.graal.python.builtins.objects.tuple.PTuple;
+import com.oracle.graal.python.builtins.objects.type.TypeNodes;
+import com.oracle.graal.python.builtins.objects.type.TypeNodesFactory.IsSameTypeNodeGen;
+import com.oracle.graal.python.nodes.BuiltinNames;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.SpecialAttributeNames;
+import com.oracle.graal.python.nodes.SpecialMethodNames;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.control.GetNextNode.GetNextWithoutFrameNode;
+import com.oracle.graal.python.nodes.control.GetNextNodeFactory.GetNextWithoutFrameNodeGen;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.object.GetClassNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.runtime.PythonCore;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.graal.python.runtime.object.PythonObjectFactory;
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.interop.UnsupportedMessageException;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+
+/**
+ * Writes one pickle, following CPython's {@code _pickle.c}. The output is accumulated in a single
+ * growable array. With protocol 4 and higher, opcodes are grouped into frames of about
+ * {@link PickleUtils#FRAME_SIZE_TARGET} bytes: the frame header is reserved when the frame is
+ * opened and filled in (or dropped again for tiny frames) when it is committed, so the data never
+ * has to be copied into a separate frame buffer. When writing to a file, committed frames are
+ * flushed at opcode boundaries, and large {@code bytes}, {@code bytearray} and
+ * {@code PickleBuffer} payloads are handed to {@code write} directly instead of being copied.
+ */
+public final class PickleWriter {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final PythonBuiltinBaseNode node;
+    private final PPickler pickler;
+    private final PythonCore core;
+    private final PythonObjectLibrary lib = PythonObjectLibrary.getUncached();
+    private final PythonObjectFactory factory = PythonObjectFactory.getUncached();
+    private final CallNode callNode = CallNode.getUncached();
+    private final int proto;
+    private final boolean bin;
+    private final boolean fast;
+    private final IdentityHashMap<Object, Integer> memo;
+    private final Object write;
+    private final Object persistentId;
+    private Object reducerOverride;
+
+    private byte[] buf = new byte[INITIAL_CAPACITY];
+    private int len;
+    private boolean framing;
+    /** Start of the reserved header of the current frame or {@code -1} if no frame is open. */
+    private int frameStart = -1;
+
+    public PickleWriter(PythonBuiltinBaseNode node, PPickler pickler) {
+        this.node = node;
+        this.pickler = pickler;
+        this.core = node.getCore();
+        this.proto = pickler.getProto();
+        this.bin = pickler.isBin();
+        this.fast = pickler.isFast();
+        this.memo = pickler.getMemo();
+        this.write = pickler.getWrite();
+        this.persistentId = pickler.getPersistentId();
+    }
+
+    @TruffleBoundary
+    public void dump(Object obj) {
+        reducerOverride = getAttribute(pickler, "reducer_override");
+        if (reducerOverride == PNone.NO_VALUE) {
+            reducerOverride = null;
+        }
+        if (proto >= 2) {
+            writeByte(PROTO);
+            writeByte((byte) proto);
+            if (proto >= 4) {
+                framing = true;
+            }
+        }
+        save(obj, false);
+        writeByte(STOP);
+        commitFrame();
+        if (write != null) {
+            flushToFile();
+        }
+    }
+
+    /**
+     * Returns the pickle as {@code bytes}, handing over the output array without trimming it.
+     */
+    public PBytes getBytes() {
+        return factory.createBytes(new ByteSequenceStorage(buf, len));
+    }
+
+    // output buffer and framing
+
+    private void ensureCapacity(int n) {
+        int required = len + n;
+        if (required < 0) {
+            throw new OutOfMemoryError();
+        }
+        if (required > buf.length) {
+            int newCapacity = Math.max(buf.length * 2, required);
+            if (newCapacity < 0) {
+                newCapacity = required;
+            }
+            buf = Arrays.copyOf(buf, newCapacity);
+        }
+    }
+
+    /** Reserves room for {@code n} more bytes, opening a new frame first if necessary. */
+    private void reserve(int n) {
+        if (framing && frameStart < 0) {
+            ensureCapacity(FRAME_HEADER_SIZE + n);
+            frameStart = len;
+            len += FRAME_HEADER_SIZE;
+        } else {
+            ensureCapacity(n);
+        }
+    }
+
+    private void writeByte(byte b) {
+        reserve(1);
+        buf[len++] = b;
+    }
+
+    private void writeBytes(byte[] data, int off, int n) {
+        reserve(n);
+        System.arraycopy(data, off, buf, len, n);
+        len += n;
+    }
+
+    private void writeAscii(String s) {
+        int n = s.length();
+        reserve(n);
+        for (int i = 0; i < n; i++) {
+            buf[len++] = (byte) s.charAt(i);
+        }
+    }
+
+    private void writeOpcodeWithLine(byte opcode, String line) {
+        writeByte(opcode);
+        writeAscii(line);
+        writeByte((byte) '\n');
+    }
+
+    private void writeIntLE(long value, int nbytes) {
+        reserve(nbytes);
+        for (int i = 0; i < nbytes; i++) {
+            buf[len++] = (byte) (value >>> (8 * i));
+        }
+    }
+
+    private void commitFrame() {
+        if (frameStart < 0) {
+            return;
+        }
+        int frameLen = len - frameStart - FRAME_HEADER_SIZE;
+        if (frameLen >= FRAME_SIZE_MIN) {
+            buf[frameStart] = FRAME;
+            for (int i = 0; i < 8; i++) {
+                buf[frameStart + 1 + i] = (byte) ((long) frameLen >>> (8 * i));
+            }
+        } else {
+            System.arraycopy(buf, frameStart + FRAME_HEADER_SIZE, buf, frameStart, frameLen);
+            len -= FRAME_HEADER_SIZE;
+        }
+        frameStart = -1;
+    }
+
+    private void flushToFile() {
+        if (len > 0) {
+            callNode.execute(write, factory.createBytes(Arrays.copyOf(buf, len)));
+            len = 0;
+        }
+    }
+
+    /**
+     * Called after each object has been saved. Commits the current frame once it reached the
+     * target size and, when pickling to a file, writes it out.
+     */
+    private void opcodeBoundary() {
+        if (frameStart >= 0 && len - frameStart - FRAME_HEADER_SIZE >= FRAME_SIZE_TARGET) {
+            commitFrame();
+            if (write != null) {
+                flushToFile();
+            }
+        }
+    }
+
+    /**
+     * Writes an opcode header followed by a payload. Payloads larger than a frame are written
+     * outside of any frame and, when pickling to a file, {@code payloadObj} is passed to
+     * {@code write} as it is.
+     */
+    private void writePayload(byte[] header, int headerLen, byte[] data, int off, int n, Object payloadObj) {
+        if (framing && n >= FRAME_SIZE_TARGET) {
+            commitFrame();
+            framing = false;
+            writeBytes(header, 0, headerLen);
+            if (write != null && payloadObj != null) {
+                flushToFile();
+                callNode.execute(write, payloadObj);
+            } else {
+                writeBytes(data, off, n);
+            }
+            framing = true;
+        } else {
+            writeBytes(header, 0, headerLen);
+            writeBytes(data, off, n);
+        }
+    }
+
+    private static int makeSizedHeader(byte[] header, byte op1, byte op4, byte op8, long size) {
+        int nbytes;
+        if (op1 != 0 && size <= 0xff) {
+            header[0] = op1;
+            nbytes = 1;
+        } else if (size <= 0xffffffffL) {
+            header[0] = op4;
+            nbytes = 4;
+        } else {
+            header[0] = op8;
+            nbytes = 8;
+        }
+        for (int i = 0; i < nbytes; i++) {
+            header[1 + i] = (byte) (size >>> (8 * i));
+        }
+        return 1 + nbytes;
+    }
+
+    // memo
+
+    private void memoize(Object obj) {
+        if (fast) {
+            return;
+        }
+        int idx = memo.size();
+        memo.put(obj, idx);
+        if (proto >= 4) {
+            writeByte(MEMOIZE);
+        } else if (bin) {
+            if (idx < 256) {
+                writeByte(BINPUT);
+                writeByte((byte) idx);
+            } else {
+                writeByte(LONG_BINPUT);
+                writeIntLE(idx, 4);
+            }
+        } else {
+            writeOpcodeWithLine(PUT, Integer.toString(idx));
+        }
+    }
+
+    private void memoGet(int idx) {
+        if (bin) {
+            if (idx < 256) {
+                writeByte(BINGET);
+                writeByte((byte) idx);
+            } else {
+                writeByte(LONG_BINGET);
+                writeIntLE(idx, 4);
+            }
+        } else {
+            writeOpcodeWithLine(GET, Integer.toString(idx));
+        }
+    }
+
+    private Integer memoLookup(Object obj) {
+        return fast ? null : memo.get(obj);
+    }
+
+    // save
+
+    private boolean isExact(Object obj, PythonBuiltinClassType type) {
+        return IsBuiltinClassProfile.profileClassSlowPath(lib.getLazyPythonClass(obj), type);
+    }
+
+    private void save(Object obj, boolean persSave) {
+        saveObject(obj, persSave);
+        opcodeBoundary();
+    }
+
+    private void saveObject(Object obj, boolean persSave) {
+        if (!persSave && persistentId != null && savePers(obj)) {
+            return;
+        }
+        // atoms
+        if (obj == PNone.NONE) {
+            writeByte(NONE);
+            return;
+        } else if (obj instanceof Boolean) {
+            saveBool((boolean) obj);
+            return;
+        } else if (obj == core.getTrue() || obj == core.getFalse()) {
+            saveBool(obj == core.getTrue());
+            return;
+        } else if (obj instanceof Integer || obj instanceof Long) {
+            saveLong(((Number) obj).longValue());
+            return;
+        } else if (obj instanceof PInt && isExact(obj, PythonBuiltinClassType.PInt)) {
+            BigInteger value = ((PInt) obj).getValue();
+            if (value.bitLength() < 64) {
+                saveLong(value.longValue());
+            } else {
+                saveBigInteger(value);
+            }
+            return;
+        } else if (obj instanceof Double) {
+            saveFloat((double) obj);
+            return;
+        } else if (obj instanceof PFloat && isExact(obj, PythonBuiltinClassType.PFloat)) {
+            saveFloat(((PFloat) obj).getValue());
+            return;
+        }
+
+        Integer memoIdx = memoLookup(obj);
+        if (memoIdx != null) {
+            memoGet(memoIdx);
+            return;
+        }
+
+        if (obj instanceof String) {
+            saveUnicode(obj, (String) obj);
+            return;
+        } else if (isExact(obj, PythonBuiltinClassType.PString)) {
+            saveUnicode(obj, asString(obj));
+            return;
+        } else if (obj instanceof PBytes && isExact(obj, PythonBuiltinClassType.PBytes)) {
+            saveBytes((PBytes) obj);
+            return;
+        }
+
+        Object reduceValue = null;
+        if (reducerOverride != null) {
+            reduceValue = callNode.execute(reducerOverride, obj);
+            if (reduceValue == PNotImplemented.NOT_IMPLEMENTED) {
+                reduceValue = null;
+            }
+        }
+        if (reduceValue == null) {
+            Object cls = lib.getLazyPythonClass(obj);
+            if (obj instanceof PDict && IsBuiltinClassProfile.profileClassSlowPath(cls, PythonBuiltinClassType.PDict)) {
+                saveDict((PDict) obj);
+                return;
+            } else if (obj instanceof PBaseSet && proto >= 4 && IsBuiltinClassProfile.profileClassSlowPath(cls, PythonBuiltinClassType.PSet)) {
+                saveSet((PBaseSet) obj);
+                return;
+            } else if (obj instanceof PBaseSet && proto >= 4 && IsBuiltinClassProfile.profileClassSlowPath(cls, PythonBuiltinClassType.PFrozenSet)) {
+                saveFrozenSet((PBaseSet) obj);
+                return;
+            } else if (obj instanceof PList && IsBuiltinClassProfile.profileClassSlowPath(cls, PythonBuiltinClassType.PList)) {
+                saveList((PList) obj);
+                return;
+            } else if (obj instanceof PTuple && IsBuiltinClassProfile.profileClassSlowPath(cls, PythonBuiltinClassType.PTuple)) {
+                saveTuple((PTuple) obj);
+                return;
+            } else if (obj instanceof PByteArray && IsBuiltinClassProfile.profileClassSlowPath(cls, PythonBuiltinClassType.PByteArray)) {
+                saveByteArray((PByteArray) obj);
+                return;
+            } else if (obj instanceof PPickleBuffer) {
+                savePickleBuffer((PPickleBuffer) obj);
+                return;
+            } else if (IsBuiltinClassProfile.profileClassSlowPath(cls, PythonBuiltinClassType.PythonClass)) {
+                saveType(obj);
+                return;
+            } else if (IsBuiltinClassProfile.profileClassSlowPath(cls, PythonBuiltinClassType.PFunction)) {
+                saveGlobal(obj, null);
+                return;
+            }
+            reduceValue = getReduceValue(obj);
+            if (reduceValue == null) {
+                // a type found via the reduce protocol's type check
+                saveGlobal(obj, null);
+                return;
+            }
+        }
+        String globalName = reduceValue instanceof PTuple ? null : asString(reduceValue);
+        if (globalName != null) {
+            saveGlobal(obj, globalName);
+        } else if (!(reduceValue instanceof PTuple)) {
+            throw node.raise(PythonBuiltinClassType.PicklingError, ErrorMessages.REDUCE_MUST_RETURN_STR_OR_TUPLE);
+        } else {
+            saveReduce(((PTuple) reduceValue).getSequenceStorage().getCopyOfInternalArray(), obj);
+        }
+    }
+
+    /**
+     * Returns the result of the reduce protocol or {@code null} if the object is a type that
+     * must be saved as a global.
+     */
+    private Object getReduceValue(Object obj) {
+        Object cls = GetClassNode.getUncached().execute(obj);
+        Object dispatchTable = pickler.getDispatchTable();
+        if (dispatchTable == null) {
+            dispatchTable = getModuleAttribute(COPYREG, "dispatch_table");
+        }
+        Object reduceFunc = lookupDispatchTable(dispatchTable, cls);
+        if (reduceFunc != null) {
+            return callNode.execute(reduceFunc, obj);
+        }
+        if (TypeNodes.IsTypeNode.getUncached().execute(obj)) {
+            return null;
+        }
+        Object reduceEx = getAttribute(obj, SpecialMethodNames.__REDUCE_EX__);
+        if (reduceEx != PNone.NO_VALUE) {
+            return callNode.execute(reduceEx, proto);
+        }
+        Object reduce = getAttribute(obj, SpecialMethodNames.__REDUCE__);
+        if (reduce == PNone.NO_VALUE) {
+            throw node.raise(PythonBuiltinClassType.PicklingError, ErrorMessages.CANT_PICKLE_P_OBJECT, obj, repr(obj));
+        }
+        return callNode.execute(reduce);
+    }
+
+    private Object lookupDispatchTable(Object dispatchTable, Object cls) {
+        if (dispatchTable instanceof PDict) {
+            return ((PDict) dispatchTable).getItem(cls);
+        } else if (dispatchTable == PNone.NO_VALUE || dispatchTable == PNone.NONE) {
+            return null;
+        }
+        try {
+            return callMethod(dispatchTable, SpecialMethodNames.__GETITEM__, cls);
+        } catch (PException e) {
+            e.expect(PythonBuiltinClassType.KeyError, IsBuiltinClassProfile.getUncached());
+            return null;
+        }
+    }
+
+    private boolean savePers(Object obj) {
+        Object pid = callNode.execute(persistentId, obj);
+        if (pid == PNone.NONE) {
+            return false;
+        }
+        if (bin) {
+            save(pid, true);
+            writeByte(BINPERSID);
+        } else {
+            String s = asString(pid);
+            if (s == null || !isAscii(s)) {
+                throw node.raise(PythonBuiltinClassType.PicklingError, ErrorMessages.PERSISTENT_IDS_MUST_BE_ASCII);
+            }
+            writeOpcodeWithLine(PERSID, s);
+        }
+        return true;
+    }
+
+    private void saveBool(boolean value) {
+        if (proto >= 2) {
+            writeByte(value ? NEWTRUE : NEWFALSE);
+        } else {
+            writeOpcodeWithLine(INT, value ? "01" : "00");
+        }
+    }
+
+    private void saveLong(long value) {
+        if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            if (bin) {
+                if (value >= 0 && value <= 0xff) {
+                    writeByte(BININT1);
+                    writeByte((byte) value);
+                } else if (value >= 0 && value <= 0xffff) {
+                    writeByte(BININT2);
+                    writeIntLE(value, 2);
+                } else {
+                    writeByte(BININT);
+                    writeIntLE(value, 4);
+                }
+            } else {
+                writeOpcodeWithLine(INT, Long.toString(value));
+            }
+        } else {
+            saveBigInteger(BigInteger.valueOf(value));
+        }
+    }
+
+    private void saveBigInteger(BigInteger value) {
+        if (proto >= 2) {
+            byte[] bytes;
+            if (value.signum() == 0) {
+                bytes = new byte[0];
+            } else {
+                // two's complement, big-endian and minimal like pickle.encode_long
+                bytes = value.toByteArray();
+            }
+            int n = bytes.length;
+            if (n <= 0xff) {
+                writeByte(LONG1);
+                writeByte((byte) n);
+            } else {
+                writeByte(LONG4);
+                writeIntLE(n, 4);
+            }
+            reserve(n);
+            for (int i = 0; i < n; i++) {
+                buf[len++] = bytes[n - 1 - i];
+            }
+        } else {
+            writeOpcodeWithLine(LONG, value.toString() + "L");
+        }
+    }
+
+    private void saveFloat(double value) {
+        if (bin) {
+            writeByte(BINFLOAT);
+            long bits = Double.doubleToRawLongBits(value);
+            reserve(8);
+            for (int i = 7; i >= 0; i--) {
+                buf[len++] = (byte) (bits >>> (8 * i));
+            }
+        } else {
+            writeOpcodeWithLine(FLOAT, FloatBuiltins.formatRepr(core, value));
+        }
+    }
+
+    private void saveBytes(PBytes obj) {
+        SequenceStorage storage = obj.getSequenceStorage();
+        if (proto < 3) {
+            // there is no bytes opcode before protocol 3
+            Object[] reduceValue;
+            if (storage.length() == 0) {
+                reduceValue = new Object[]{PythonBuiltinClassType.PBytes, factory.createEmptyTuple()};
+            } else {
+                byte[] data = getBytes(obj, storage);
+                String latin1 = new String(data, 0, storage.length(), StandardCharsets.ISO_8859_1);
+                Object encode = getModuleAttribute(CODECS, "encode");
+                reduceValue = new Object[]{encode, factory.createTuple(new Object[]{latin1, "latin1"})};
+            }
+            saveReduce(reduceValue, obj);
+            return;
+        }
+        saveBytesData(obj, getBytes(obj, storage), 0, storage.length(), obj);
+    }
+
+    private byte[] getBytes(Object obj, SequenceStorage storage) {
+        if (storage instanceof ByteSequenceStorage) {
+            return ((ByteSequenceStorage) storage).getInternalByteArray();
+        }
+        try {
+            return lib.getBufferBytes(obj);
+        } catch (UnsupportedMessageException e) {
+            throw node.raise(TypeError, ErrorMessages.BYTESLIKE_OBJ_REQUIRED, obj);
+        }
+    }
+
+    private void saveBytesData(Object obj, byte[] data, int off, int n, Object payloadObj) {
+        byte[] header = new byte[9];
+        int headerLen = makeSizedHeader(header, SHORT_BINBYTES, BINBYTES, BINBYTES8, n);
+        writePayload(header, headerLen, data, off, n, payloadObj);
+        memoize(obj);
+    }
+
+    private void saveByteArrayData(Object obj, byte[] data, int off, int n, Object payloadObj) {
+        byte[] header = new byte[9];
+        int headerLen = makeSizedHeader(header, (byte) 0, BYTEARRAY8, BYTEARRAY8, n);
+        if (headerLen != 9) {
+            // BYTEARRAY8 always has an 8 byte length
+            header[0] = BYTEARRAY8;
+            for (int i = 0; i < 8; i++) {
+                header[1 + i] = (byte) ((long) n >>> (8 * i));
+            }
+            headerLen = 9;
+        }
+        writePayload(header, headerLen, data, off, n, payloadObj);
+        memoize(obj);
+    }
+
+    private void saveByteArray(PByteArray obj) {
+        SequenceStorage storage = obj.getSequenceStorage();
+        if (proto < 5) {
+            Object[] reduceValue;
+            if (storage.length() == 0) {
+                reduceValue = new Object[]{PythonBuiltinClassType.PByteArray, factory.createEmptyTuple()};
+            } else {
+                byte[] data = Arrays.copyOf(getBytes(obj, storage), storage.length());
+                reduceValue = new Object[]{PythonBuiltinClassType.PByteArray, factory.createTuple(new Object[]{factory.createBytes(data)})};
+            }
+            saveReduce(reduceValue, obj);
+            return;
+        }
+        saveByteArrayData(obj, getBytes(obj, storage), 0, storage.length(), obj);
+    }
+
+    private void savePickleBuffer(PPickleBuffer obj) {
+        if (proto < 5) {
+            throw node.raise(PythonBuiltinClassType.PicklingError, ErrorMessages.PICKLE_BUFFER_NEEDS_PROTOCOL_5);
+        }
+        PMemoryView view = obj.getView();
+        if (view == null) {
+            throw node.raise(ValueError, ErrorMessages.PICKLE_BUFFER_RELEASED);
+        }
+        if (!view.isContiguous()) {
+            throw node.raise(PythonBuiltinClassType.PicklingError, ErrorMessages.PICKLE_BUFFER_NOT_CONTIGUOUS);
+        }
+        boolean inBand = true;
+        Object bufferCallback = pickler.getBufferCallback();
+        if (bufferCallback != null) {
+            inBand = lib.isTrue(callNode.execute(bufferCallback, obj));
+        }
+        if (inBand) {
+            SequenceStorage storage = view.getOwner().getSequenceStorage();
+            byte[] data;
+            int off;
+            if (storage instanceof ByteSequenceStorage && view.isValidFor(storage)) {
+                // written straight from the exporter's storage
+                data = ((ByteSequenceStorage) storage).getInternalByteArray();
+                off = view.getOffset();
+            } else {
+                data = view.copyBytes(storage, ConditionProfile.getUncached());
+                off = 0;
+            }
+            int n = view.getNBytes();
+            Object payload = factory.createMemoryView(PythonBuiltinClassType.PMemoryView, view.getOwner(), view.getOffset(), view.getLength(), view.getItemSize(), view.getStride(),
+                            view.getFormat(), view.isReadonly());
+            if (view.isReadonly()) {
+                saveBytesData(obj, data, off, n, payload);
+            } else {
+                saveByteArrayData(obj, data, off, n, payload);
+            }
+        } else {
+            writeByte(NEXT_BUFFER);
+            if (view.isReadonly()) {
+                writeByte(READONLY_BUFFER);
+            }
+        }
+    }
+
+    private void saveUnicode(Object obj, String s) {
+        if (bin) {
+            long size = utf8Length(s);
+            byte[] header = new byte[9];
+            int headerLen;
+            if (size <= 0xff && proto >= 4) {
+                headerLen = makeSizedHeader(header, SHORT_BINUNICODE, BINUNICODE, BINUNICODE8, size);
+            } else if (size > 0xffffffffL && proto >= 4) {
+                headerLen = makeSizedHeader(header, (byte) 0, BINUNICODE8, BINUNICODE8, size);
+            } else {
+                headerLen = makeSizedHeader(header, (byte) 0, BINUNICODE, BINUNICODE8, size);
+            }
+            if (size > Integer.MAX_VALUE - 16) {
+                throw node.raise(PythonBuiltinClassType.OverflowError, ErrorMessages.S_EXCEEDS_MAXIMUM_SIZE, "serializing a string larger than 4 GiB", Integer.MAX_VALUE);
+            }
+            int n = (int) size;
+            if (framing && n >= FRAME_SIZE_TARGET) {
+                byte[] data = new byte[n];
+                encodeUtf8(s, data, 0);
+                writePayload(header, headerLen, data, 0, n, factory.createBytes(data));
+            } else {
+                writeBytes(header, 0, headerLen);
+                reserve(n);
+                len = encodeUtf8(s, buf, len);
+            }
+        } else {
+            writeByte(UNICODE);
+            writeRawUnicodeEscape(s);
+            writeByte((byte) '\n');
+        }
+        memoize(obj);
+    }
+
+    /**
+     * Writes {@code s} encoded with {@code raw-unicode-escape}, additionally escaping the
+     * characters that would break the line based protocol 0 format.
+     */
+    private void writeRawUnicodeEscape(String s) {
+        int n = s.length();
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                writeAscii(String.format("\\U%08x", cp));
+            } else if (c >= 256 || c == '\\' || c == 0 || c == '\n' || c == '\r' || c == 0x1a) {
+                writeAscii(String.format("\\u%04x", (int) c));
+            } else {
+                writeByte((byte) c);
+            }
+        }
+    }
+
+    private void saveTuple(PTuple obj) {
+        SequenceStorage storage = obj.getSequenceStorage();
+        int n = storage.length();
+        if (n == 0) {
+            if (bin) {
+                writeByte(EMPTY_TUPLE);
+            } else {
+                writeByte(MARK);
+                writeByte(TUPLE);
+            }
+            return;
+        }
+        if (n <= 3 && proto >= 2) {
+            for (int i = 0; i < n; i++) {
+                save(storage.getItemNormalized(i), false);
+            }
+            Integer memoIdx = memoLookup(obj);
+            if (memoIdx != null) {
+                // the tuple is recursive, so it was memoized while saving its items
+                for (int i = 0; i < n; i++) {
+                    writeByte(POP);
+                }
+                memoGet(memoIdx);
+                return;
+            }
+            writeByte(n == 1 ? TUPLE1 : n == 2 ? TUPLE2 : TUPLE3);
+        } else {
+            writeByte(MARK);
+            for (int i = 0; i < n; i++) {
+                save(storage.getItemNormalized(i), false);
+            }
+            Integer memoIdx = memoLookup(obj);
+            if (memoIdx != null) {
+                if (bin) {
+                    writeByte(POP_MARK);
+                } else {
+                    for (int i = 0; i <= n; i++) {
+                        writeByte(POP);
+                    }
+                }
+                memoGet(memoIdx);
+                return;
+            }
+            writeByte(TUPLE);
+        }
+        memoize(obj);
+    }
+
+    private void saveList(PList obj) {
+        if (bin) {
+            writeByte(EMPTY_LIST);
+        } else {
+            writeByte(MARK);
+            writeByte(LIST);
+        }
+        memoize(obj);
+        // the list may change while its items are saved, so always go by its current length
+        if (!bin) {
+            for (int i = 0; i < obj.getSequenceStorage().length(); i++) {
+                save(obj.getSequenceStorage().getItemNormalized(i), false);
+                writeByte(APPEND);
+            }
+            return;
+        }
+        int total = 0;
+        while (total < obj.getSequenceStorage().length()) {
+            SequenceStorage storage = obj.getSequenceStorage();
+            if (storage.length() - total == 1) {
+                save(storage.getItemNormalized(total), false);
+                writeByte(APPEND);
+                return;
+            }
+            writeByte(MARK);
+            int batch = 0;
+            while (batch < BATCHSIZE && total < obj.getSequenceStorage().length()) {
+                save(obj.getSequenceStorage().getItemNormalized(total), false);
+                total++;
+                batch++;
+            }
+            writeByte(APPENDS);
+        }
+    }
+
+    private void saveDict(PDict obj) {
+        if (bin) {
+            writeByte(EMPTY_DICT);
+        } else {
+            writeByte(MARK);
+            writeByte(DICT);
+        }
+        memoize(obj);
+        if (obj.size() > 0) {
+            ArrayList<Object> items = new ArrayList<>(obj.size() * 2);
+            for (DictEntry entry : obj.entries()) {
+                items.add(entry.getKey());
+                items.add(entry.getValue());
+            }
+            batchSetItems(items);
+        }
+    }
+
+    /** Writes {@code SETITEM(S)} for a flat list of keys and values. */
+    private void batchSetItems(ArrayList<Object> items) {
+        int n = items.size() / 2;
+        if (!bin) {
+            for (int i = 0; i < n; i++) {
+                save(items.get(2 * i), false);
+                save(items.get(2 * i + 1), false);
+                writeByte(SETITEM);
+            }
+            return;
+        }
+        int i = 0;
+        while (i < n) {
+            if (n - i == 1) {
+                save(items.get(2 * i), false);
+                save(items.get(2 * i + 1), false);
+                writeByte(SETITEM);
+                return;
+            }
+            writeByte(MARK);
+            int end = Math.min(n, i + BATCHSIZE);
+            for (; i < end; i++) {
+                save(items.get(2 * i), false);
+                save(items.get(2 * i + 1), false);
+            }
+            writeByte(SETITEMS);
+        }
+    }
+
+    private static ArrayList<Object> snapshotKeys(PBaseSet obj) {
+        ArrayList<Object> items = new ArrayList<>(obj.size());
+        for (Object key : obj.keys()) {
+            items.add(key);
+        }
+        return items;
+    }
+
+    private void saveSet(PBaseSet obj) {
+        writeByte(EMPTY_SET);
+        memoize(obj);
+        ArrayList<Object> items = snapshotKeys(obj);
+        int i = 0;
+        while (i < items.size()) {
+            writeByte(MARK);
+            int end = Math.min(items.size(), i + BATCHSIZE);
+            for (; i < end; i++) {
+                save(items.get(i), false);
+            }
+            writeByte(ADDITEMS);
+        }
+    }
+
+    private void saveFrozenSet(PBaseSet obj) {
+        writeByte(MARK);
+        for (Object item : snapshotKeys(obj)) {
+            save(item, false);
+        }
+        Integer memoIdx = memoLookup(obj);
+        if (memoIdx != null) {
+            // the frozenset is recursive, so it was memoized while saving its items
+            writeByte(POP_MARK);
+            memoGet(memoIdx);
+            return;
+        }
+        writeByte(FROZENSET);
+        memoize(obj);
+    }
+
+    private void saveType(Object obj) {
+        Object singleton = null;
+        if (IsBuiltinClassProfile.profileClassSlowPath(obj, PythonBuiltinClassType.PNone)) {
+            singleton = PNone.NONE;
+        } else if (IsBuiltinClassProfile.profileClassSlowPath(obj, PythonBuiltinClassType.PNotImplemented)) {
+            singleton = PNotImplemented.NOT_IMPLEMENTED;
+        } else if (IsBuiltinClassProfile.profileClassSlowPath(obj, PythonBuiltinClassType.PEllipsis)) {
+            singleton = PEllipsis.INSTANCE;
+        }
+        if (singleton != null) {
+            saveReduce(new Object[]{PythonBuiltinClassType.PythonClass, factory.createTuple(new Object[]{singleton})}, obj);
+        } else {
+            saveGlobal(obj, null);
+        }
+    }
+
+    // globals
+
+    private void saveGlobal(Object obj, String name) {
+        String globalName = name;
+        if (globalName == null) {
+            Object qualname = getAttribute(obj, SpecialAttributeNames.__QUALNAME__);
+            if (qualname == PNone.NO_VALUE) {
+                qualname = lib.lookupAttribute(obj, SpecialAttributeNames.__NAME__);
+                if (qualname == PNone.NO_VALUE) {
+                    throw node.raise(PythonBuiltinClassType.AttributeError, ErrorMessages.OBJ_P_HAS_NO_ATTR_S, obj, SpecialAttributeNames.__NAME__);
+                }
+            }
+            globalName = asString(qualname);
+            if (globalName == null) {
+                throw node.raise(TypeError, ErrorMessages.ATTR_NAME_MUST_BE_STRING, qualname);
+            }
+        }
+        String[] dottedPath = globalName.split("\\.", -1);
+        for (String part : dottedPath) {
+            if (part.equals(LOCALS)) {
+                throw node.raise(PythonBuiltinClassType.AttributeError, ErrorMessages.CANT_GET_LOCAL_ATTRIBUTE_ON, repr(globalName), repr(obj));
+            }
+        }
+        String moduleName = whichModule(obj, dottedPath);
+        Object module;
+        Object parent = null;
+        Object found;
+        try {
+            module = getModule(moduleName);
+            found = module;
+            for (String part : dottedPath) {
+                parent = found;
+                found = getAttribute(found, part);
+                if (found == PNone.NO_VALUE) {
+                    break;
+                }
+            }
+        } catch (PException e) {
+            e.expect(PythonBuiltinClassType.ImportError, IsBuiltinClassProfile.getUncached());
+            found = PNone.NO_VALUE;
+            module = null;
+        }
+        if (module == null || found == PNone.NO_VALUE) {
+            throw node.raise(PythonBuiltinClassType.PicklingError, ErrorMessages.CANT_PICKLE_NOT_FOUND_AS, repr(obj), moduleName, globalName);
+        }
+        if (!lib.isSame(found, obj)) {
+            throw node.raise(PythonBuiltinClassType.PicklingError, ErrorMessages.CANT_PICKLE_NOT_SAME_OBJECT, repr(obj), moduleName, globalName);
+        }
+        if (proto >= 2 && saveExtension(moduleName, globalName)) {
+            return;
+        }
+        String lastName = dottedPath[dottedPath.length - 1];
+        if (parent == module) {
+            globalName = lastName;
+        }
+        if (proto >= 4) {
+            save(moduleName, false);
+            save(globalName, false);
+            writeByte(STACK_GLOBAL);
+        } else if (parent != module) {
+            Object getattr = core.getBuiltins().getAttribute(BuiltinNames.GETATTR);
+            saveReduce(new Object[]{getattr, factory.createTuple(new Object[]{parent, lastName})}, null);
+        } else if (proto >= 3) {
+            writeByte(GLOBAL);
+            writeUtf8Line(moduleName);
+            writeUtf8Line(globalName);
+        } else {
+            if (pickler.isFixImports()) {
+                Object mapped = getCompatMapping("REVERSE_NAME_MAPPING", factory.createTuple(new Object[]{moduleName, globalName}));
+                if (mapped instanceof PTuple && ((PTuple) mapped).getSequenceStorage().length() == 2) {
+                    SequenceStorage pair = ((PTuple) mapped).getSequenceStorage();
+                    moduleName = asString(pair.getItemNormalized(0));
+                    globalName = asString(pair.getItemNormalized(1));
+                } else {
+                    Object mappedModule = getCompatMapping("REVERSE_IMPORT_MAPPING", moduleName);
+                    if (mappedModule != null) {
+                        moduleName = asString(mappedModule);
+                    }
+                }
+            }
+            if (moduleName == null || globalName == null || !isAscii(moduleName) || !isAscii(globalName)) {
+                throw node.raise(PythonBuiltinClassType.PicklingError, ErrorMessages.CANT_PICKLE_GLOBAL_IDENTIFIER, moduleName, globalName, proto);
+            }
+            writeByte(GLOBAL);
+            writeOpcodeWithLineNoOp(moduleName);
+            writeOpcodeWithLineNoOp(globalName);
+        }
+        memoize(obj);
+    }
+
+    private void writeOpcodeWithLineNoOp(String asciiLine) {
+        writeAscii(asciiLine);
+        writeByte((byte) '\n');
+    }
+
+    private void writeUtf8Line(String s) {
+        int n = (int) utf8Length(s);
+        reserve(n + 1);
+        len = encodeUtf8(s, buf, len);
+        buf[len++] = '\n';
+    }
+
+    /** Like {@code pickle.whichmodule}. */
+    private String whichModule(Object obj, String[] dottedPath) {
+        Object moduleName = getAttribute(obj, SpecialAttributeNames.__MODULE__);
+        if (moduleName != PNone.NO_VALUE && moduleName != PNone.NONE) {
+            String s = asString(moduleName);
+            if (s != null) {
+                return s;
+            }
+        }
+        PDict sysModules = core.getContext().getSysModules();
+        ArrayList<DictEntry> modules = new ArrayList<>();
+        for (DictEntry entry : sysModules.entries()) {
+            modules.add(entry);
+        }
+        for (DictEntry entry : modules) {
+            String name = asString(entry.getKey());
+            Object module = entry.getValue();
+            if (name == null || name.equals("__main__") || name.equals("__mp_main__") || module == PNone.NONE) {
+                continue;
+            }
+            Object found = module;
+            for (String part : dottedPath) {
+                found = getAttribute(found, part);
+                if (found == PNone.NO_VALUE) {
+                    break;
+                }
+            }
+            if (found != PNone.NO_VALUE && lib.isSame(found, obj)) {
+                return name;
+            }
+        }
+        return "__main__";
+    }
+
+    private boolean saveExtension(String moduleName, String globalName) {
+        Object registry = getModuleAttribute(COPYREG, "_extension_registry");
+        if (!(registry instanceof PDict)) {
+            return false;
+        }
+        Object code = ((PDict) registry).getItem(factory.createTuple(new Object[]{moduleName, globalName}));
+        if (code == null) {
+            return false;
+        }
+        long value = lib.asJavaLong(code);
+        if (value <= 0 || value > 0x7fffffffL) {
+            throw node.raise(PythonBuiltinClassType.PicklingError, ErrorMessages.EXT_SPECIFIES_CODE_LE_ZERO);
+        }
+        if (value <= 0xff) {
+            writeByte(EXT1);
+            writeByte((byte) value);
+        } else if (value <= 0xffff) {
+            writeByte(EXT2);
+            writeIntLE(value, 2);
+        } else {
+            writeByte(EXT4);
+            writeIntLE(value, 4);
+        }
+        return true;
+    }
+
+    // reduce
+
+    private boolean isIterator(Object obj) {
+        return lib.lookupAttribute(obj, SpecialMethodNames.__NEXT__, true) != PNone.NO_VALUE;
+    }
+
+    private void saveReduce(Object[] args, Object obj) {
+        int size = args.length;
+        if (size < 2 || size > 6) {
+            throw node.raise(PythonBuiltinClassType.PicklingError, ErrorMessages.REDUCE_TUPLE_MUST_HAVE_2_TO_6_ITEMS);
+        }
+        Object callable = args[0];
+        Object argtup = args[1];
+        Object state = size > 2 && args[2] != PNone.NONE ? args[2] : null;
+        Object listItems = size > 3 && args[3] != PNone.NONE ? args[3] : null;
+        Object dictItems = size > 4 && args[4] != PNone.NONE ? args[4] : null;
+        Object stateSetter = size > 5 && args[5] != PNone.NONE ? args[5] : null;
+
+        if (!lib.isCallable(callable)) {
+            throw node.raise(PythonBuiltinClassType.PicklingError, ErrorMessages.REDUCE_FIRST_ITEM_MUST_BE_CALLABLE);
+        }
+        if (!(argtup instanceof PTuple)) {
+            throw node.raise(PythonBuiltinClassType.PicklingError, ErrorMessages.REDUCE_SECOND_ITEM_MUST_BE_TUPLE);
+        }
+        if (listItems != null && !isIterator(listItems)) {
+            throw node.raise(PythonBuiltinClassType.PicklingError, ErrorMessages.REDUCE_FOURTH_ITEM_MUST_BE_ITERATOR, listItems);
+        }
+        if (dictItems != null && !isIterator(dictItems)) {
+            throw node.raise(PythonBuiltinClassType.PicklingError, ErrorMessages.REDUCE_FIFTH_ITEM_MUST_BE_ITERATOR, dictItems);
+        }
+        if (stateSetter != null && !lib.isCallable(stateSetter)) {
+            throw node.raise(PythonBuiltinClassType.PicklingError, ErrorMessages.REDUCE_SIXTH_ITEM_MUST_BE_FUNCTION, stateSetter);
+        }
+
+        boolean useNewobj = false;
+        boolean useNewobjEx = false;
+        if (proto >= 2) {
+            String name = asString(getAttribute(callable, SpecialAttributeNames.__NAME__));
+            useNewobjEx = "__newobj_ex__".equals(name);
+            useNewobj = "__newobj__".equals(name);
+        }
+        SequenceStorage argStorage = ((PTuple) argtup).getSequenceStorage();
+        if (useNewobjEx) {
+            if (argStorage.length() != 3) {
+                throw node.raise(PythonBuiltinClassType.PicklingError, ErrorMessages.NEWOBJ_EX_ARGS_MUST_HAVE_3_ITEMS, argStorage.length());
+            }
+            Object cls = argStorage.getItemNormalized(0);
+            Object clsArgs = argStorage.getItemNormalized(1);
+            Object clsKwargs = argStorage.getItemNormalized(2);
+            if (!TypeNodes.IsTypeNode.getUncached().execute(cls)) {
+                throw node.raise(PythonBuiltinClassType.PicklingError, ErrorMessages.NEWOBJ_EX_FIRST_ITEM_MUST_BE_CLASS, cls);
+            }
+            if (!(clsArgs instanceof PTuple)) {
+                throw node.raise(PythonBuiltinClassType.PicklingError, ErrorMessages.NEWOBJ_EX_SECOND_ITEM_MUST_BE_TUPLE, clsArgs);
+            }
+            if (!(clsKwargs instanceof PDict)) {
+                throw node.raise(PythonBuiltinClassType.PicklingError, ErrorMessages.NEWOBJ_EX_THIRD_ITEM_MUST_BE_DICT, clsKwargs);
+            }
+            if (proto >= 4) {
+                save(cls, false);
+                save(clsArgs, false);
+                save(clsKwargs, false);
+                writeByte(NEWOBJ_EX);
+            } else {
+                // functools.partial(cls.__new__, cls, *args, **kwargs)()
+                SequenceStorage clsArgsStorage = ((PTuple) clsArgs).getSequenceStorage();
+                Object[] partialArgs = new Object[clsArgsStorage.length() + 2];
+                partialArgs[0] = lib.lookupAttribute(cls, SpecialMethodNames.__NEW__);
+                partialArgs[1] = cls;
+                for (int i = 0; i < clsArgsStorage.length(); i++) {
+                    partialArgs[i + 2] = clsArgsStorage.getItemNormalized(i);
+                }
+                Object partial = callNode.execute(getModuleAttribute("functools", "partial"), partialArgs, toKeywords((PDict) clsKwargs));
+                save(partial, false);
+                save(factory.createEmptyTuple(), false);
+                writeByte(REDUCE);
+            }
+        } else if (useNewobj) {
+            if (argStorage.length() < 1) {
+                throw node.raise(PythonBuiltinClassType.PicklingError, ErrorMessages.NEWOBJ_ARGLIST_EMPTY);
+            }
+            Object cls = argStorage.getItemNormalized(0);
+            if (!TypeNodes.IsTypeNode.getUncached().execute(cls)) {
+                throw node.raise(PythonBuiltinClassType.PicklingError, ErrorMessages.NEWOBJ_ARGS0_IS_NOT_TYPE);
+            }
+            if (obj != null) {
+                Object objClass = getAttribute(obj, SpecialAttributeNames.__CLASS__);
+                if (!lib.isSame(objClass, cls) && !IsSameTypeNodeGen.getUncached().execute(objClass, cls)) {
+                    throw node.raise(PythonBuiltinClassType.PicklingError, ErrorMessages.NEWOBJ_ARGS0_HAS_WRONG_CLASS);
+                }
+            }
+            save(cls, false);
+            Object[] newArgs = new Object[argStorage.length() - 1];
+            for (int i = 0; i < newArgs.length; i++) {
+                newArgs[i] = argStorage.getItemNormalized(i + 1);
+            }
+            save(factory.createTuple(newArgs), false);
+            writeByte(NEWOBJ);
+        } else {
+            save(callable, false);
+            save(argtup, false);
+            writeByte(REDUCE);
+        }
+
+        if (obj != null) {
+            Integer memoIdx = memoLookup(obj);
+            if (memoIdx != null) {
+                // the object is recursive, so it was memoized while saving the arguments
+                writeByte(POP);
+                memoGet(memoIdx);
+            } else {
+                memoize(obj);
+            }
+        }
+        if (listItems != null) {
+            batchAppends(listItems);
+        }
+        if (dictItems != null) {
+            batchDictItems(dictItems);
+        }
+        if (state != null) {
+            if (stateSetter == null) {
+                save(state, false);
+                writeByte(BUILD);
+            } else {
+                // state_setter(obj, state) is called and its result discarded
+                save(stateSetter, false);
+                save(obj, false);
+                save(state, false);
+                writeByte(TUPLE2);
+                writeByte(REDUCE);
+                writeByte(POP);
+            }
+        }
+    }
+
+    private static PKeyword[] toKeywords(PDict kwargs) {
+        PKeyword[] keywords = new PKeyword[kwargs.size()];
+        int i = 0;
+        for (DictEntry entry : kwargs.entries()) {
+            keywords[i++] = new PKeyword(asString(entry.getKey()), entry.getValue());
+        }
+        return keywords;
+    }
+
+    /**
+     * Fetches up to {@link PickleUtils#BATCHSIZE} items from the iterator and returns
+     * {@code null} once the iterator is exhausted.
+     */
+    private static ArrayList<Object> nextBatch(Object iterator) {
+        GetNextWithoutFrameNode getNext = GetNextWithoutFrameNodeGen.getUncached();
+        ArrayList<Object> batch = new ArrayList<>();
+        while (batch.size() < BATCHSIZE) {
+            try {
+                batch.add(getNext.executeWithGlobalState(iterator));
+            } catch (PException e) {
+                e.expectStopIteration(IsBuiltinClassProfile.getUncached());
+                break;
+            }
+        }
+        return batch.isEmpty() ? null : batch;
+    }
+
+    private void batchAppends(Object iterator) {
+        ArrayList<Object> batch;
+        while ((batch = nextBatch(iterator)) != null) {
+            if (!bin) {
+                for (Object item : batch) {
+                    save(item, false);
+                    writeByte(APPEND);
+                }
+            } else if (batch.size() == 1) {
+                save(batch.get(0), false);
+                writeByte(APPEND);
+            } else {
+                writeByte(MARK);
+                for (Object item : batch) {
+                    save(item, false);
+                }
+                writeByte(APPENDS);
+            }
+        }
+    }
+
+    private void batchDictItems(Object iterator) {
+        ArrayList<Object> batch;
+        while ((batch = nextBatch(iterator)) != null) {
+            ArrayList<Object> items = new ArrayList<>(batch.size() * 2);
+            for (Object item : batch) {
+                if (!(item instanceof PTuple) || ((PTuple) item).getSequenceStorage().length() != 2) {
+                    throw node.raise(TypeError, ErrorMessages.DICT_ITEMS_MUST_RETURN_2_TUPLES);
+                }
+                items.add(((PTuple) item).getSequenceStorage().getItemNormalized(0));
+                items.add(((PTuple) item).getSequenceStorage().getItemNormalized(1));
+            }
+            batchSetItems(items);
+        }
+    }
+}
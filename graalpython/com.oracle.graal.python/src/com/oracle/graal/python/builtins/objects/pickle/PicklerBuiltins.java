@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.pickle;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__INIT__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.AttributeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.function.PArguments;
+import com.oracle.graal.python.builtins.objects.function.PArguments.ThreadState;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.builtins.objects.type.TypeNodes;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.library.CachedLibrary;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PPickler)
+public class PicklerBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return PicklerBuiltinsFactory.getFactories();
+    }
+
+    /**
+     * Converts the {@code protocol} argument of {@code Pickler} and {@code dumps}. A negative
+     * protocol selects the highest one.
+     */
+    static int getProtocol(PythonBuiltinBaseNode node, Object protocolObj, PythonObjectLibrary lib, ThreadState state) {
+        if (PGuards.isPNone(protocolObj)) {
+            return PickleUtils.DEFAULT_PROTOCOL;
+        }
+        int protocol = lib.asSizeWithState(protocolObj, state);
+        if (protocol < 0) {
+            return PickleUtils.HIGHEST_PROTOCOL;
+        } else if (protocol > PickleUtils.HIGHEST_PROTOCOL) {
+            throw node.raise(ValueError, ErrorMessages.PICKLE_PROTOCOL_MUST_BE_LE, PickleUtils.HIGHEST_PROTOCOL);
+        }
+        return protocol;
+    }
+
+    /**
+     * Initializes the pickler's options. {@code file} may be {@code null} when pickling into a
+     * {@code bytes} object.
+     */
+    public static void initPickler(PythonBuiltinBaseNode node, PPickler self, Object file, Object protocolObj, Object fixImportsObj, Object bufferCallbackObj, PythonObjectLibrary lib,
+                    ThreadState state) {
+        int protocol = getProtocol(node, protocolObj, lib, state);
+        boolean fixImports = PGuards.isNoValue(fixImportsObj) || lib.isTrueWithState(fixImportsObj, state);
+        Object write = null;
+        if (file != null) {
+            write = lib.lookupAttribute(file, "write");
+            if (write == PNone.NO_VALUE) {
+                throw node.raise(TypeError, ErrorMessages.FILE_MUST_HAVE_WRITE_ATTR);
+            }
+        }
+        Object bufferCallback = PGuards.isPNone(bufferCallbackObj) ? null : bufferCallbackObj;
+        if (bufferCallback != null && protocol < 5) {
+            throw node.raise(ValueError, ErrorMessages.BUFFER_CALLBACK_NEEDS_PROTOCOL_5);
+        }
+        self.init(protocol, fixImports, write, bufferCallback);
+        // like CPython, the hooks are looked up once, so that they can be methods of subclasses
+        Object persistentId = lib.lookupAttribute(self, "persistent_id");
+        self.setPersistentId(persistentId == PNone.NO_VALUE ? null : persistentId);
+        Object dispatchTable = lib.lookupAttribute(self, "dispatch_table");
+        self.setDispatchTable(dispatchTable == PNone.NO_VALUE ? null : dispatchTable);
+    }
+
+    // Pickler.__init__(file, protocol=None, fix_imports=True, buffer_callback=None)
+    @Builtin(name = __INIT__, minNumOfPositionalArgs = 2, parameterNames = {"self", "file", "protocol", "fix_imports", "buffer_callback"})
+    @GenerateNodeFactory
+    public abstract static class InitNode extends PythonBuiltinNode {
+
+        @Specialization
+        PNone init(VirtualFrame frame, PPickler self, Object file, Object protocol, Object fixImports, Object bufferCallback,
+                        @CachedLibrary(limit = "getCallSiteInlineCacheMaxDepth()") PythonObjectLibrary lib) {
+            initPickler(this, self, file, protocol, fixImports, bufferCallback, lib, PArguments.getThreadState(frame));
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "dump", minNumOfPositionalArgs = 2, parameterNames = {"self", "obj"})
+    @GenerateNodeFactory
+    public abstract static class DumpNode extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        PNone dump(PPickler self, Object obj) {
+            doDump(self, obj);
+            return PNone.NONE;
+        }
+
+        @TruffleBoundary
+        private void doDump(PPickler self, Object obj) {
+            if (!self.isInitialized()) {
+                throw raise(PythonBuiltinClassType.PicklingError, ErrorMessages.PICKLER_INIT_NOT_CALLED, TypeNodes.GetNameNode.doSlowPath(PythonObjectLibrary.getUncached().getLazyPythonClass(self)));
+            }
+            new PickleWriter(this, self).dump(obj);
+        }
+    }
+
+    @Builtin(name = "clear_memo", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class ClearMemoNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        static PNone clear(PPickler self) {
+            self.clearMemo();
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "fast", minNumOfPositionalArgs = 1, maxNumOfPositionalArgs = 2, isGetter = true, isSetter = true)
+    @GenerateNodeFactory
+    public abstract static class FastNode extends PythonBinaryBuiltinNode {
+
+        @Specialization(guards = "isNoValue(value)")
+        static boolean get(PPickler self, @SuppressWarnings("unused") PNone value) {
+            return self.isFast();
+        }
+
+        @Specialization(guards = "!isNoValue(value)")
+        static PNone set(VirtualFrame frame, PPickler self, Object value,
+                        @CachedLibrary(limit = "getCallSiteInlineCacheMaxDepth()") PythonObjectLibrary lib) {
+            self.setFast(lib.isTrueWithState(value, PArguments.getThreadState(frame)));
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "persistent_id", minNumOfPositionalArgs = 1, maxNumOfPositionalArgs = 2, isGetter = true, isSetter = true)
+    @GenerateNodeFactory
+    public abstract static class PersistentIdNode extends PythonBinaryBuiltinNode {
+
+        @Specialization(guards = "isNoValue(value)")
+        Object get(PPickler self, @SuppressWarnings("unused") PNone value) {
+            if (self.getPersistentId() == null) {
+                throw raise(AttributeError, ErrorMessages.OBJ_P_HAS_NO_ATTR_S, self, "persistent_id");
+            }
+            return self.getPersistentId();
+        }
+
+        @Specialization(guards = "!isNoValue(value)")
+        static PNone set(PPickler self, Object value) {
+            self.setPersistentId(value);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "dispatch_table", minNumOfPositionalArgs = 1, maxNumOfPositionalArgs = 2, isGetter = true, isSetter = true)
+    @GenerateNodeFactory
+    public abstract static class DispatchTableNode extends PythonBinaryBuiltinNode {
+
+        @Specialization(guards = "isNoValue(value)")
+        Object get(PPickler self, @SuppressWarnings("unused") PNone value) {
+            if (self.getDispatchTable() == null) {
+                throw raise(AttributeError, ErrorMessages.OBJ_P_HAS_NO_ATTR_S, self, "dispatch_table");
+            }
+            return self.getDispatchTable();
+        }
+
+        @Specialization(guards = "!isNoValue(value)")
+        static PNone set(PPickler self, Object value) {
+            self.setDispatchTable(value);
+            return PNone.NONE;
+        }
+    }
+}
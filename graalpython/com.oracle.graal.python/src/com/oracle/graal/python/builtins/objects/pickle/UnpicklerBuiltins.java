@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.pickle;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__INIT__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.AttributeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.builtins.objects.type.TypeNodes;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.control.GetIteratorExpressionNode.GetIteratorWithoutFrameNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PUnpickler)
+public class UnpicklerBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return UnpicklerBuiltinsFactory.getFactories();
+    }
+
+    /**
+     * Initializes the unpickler's options. {@code file} may be {@code null} when unpickling from
+     * a bytes-like object.
+     */
+    @TruffleBoundary
+    public static void initUnpickler(PythonBuiltinBaseNode node, PUnpickler self, Object file, Object fixImportsObj, Object encodingObj, Object errorsObj, Object buffersObj) {
+        PythonObjectLibrary lib = PythonObjectLibrary.getUncached();
+        Object read = null;
+        Object readline = null;
+        if (file != null) {
+            read = lib.lookupAttribute(file, "read");
+            readline = lib.lookupAttribute(file, "readline");
+            if (read == PNone.NO_VALUE || readline == PNone.NO_VALUE) {
+                throw node.raise(TypeError, ErrorMessages.FILE_MUST_HAVE_READ_AND_READLINE);
+            }
+        }
+        boolean fixImports = PGuards.isNoValue(fixImportsObj) || lib.isTrue(fixImportsObj);
+        String encoding = PGuards.isNoValue(encodingObj) ? "ASCII" : PickleUtils.asString(encodingObj);
+        String errors = PGuards.isNoValue(errorsObj) ? "strict" : PickleUtils.asString(errorsObj);
+        if (encoding == null || errors == null) {
+            throw node.raise(TypeError, ErrorMessages.MUST_BE_STRINGS_NOT_P, "encoding and errors", encoding == null ? encodingObj : errorsObj);
+        }
+        Object buffers = PGuards.isPNone(buffersObj) ? null : GetIteratorWithoutFrameNode.getUncached().executeWithGlobalState(buffersObj);
+        self.init(fixImports, encoding, errors, read, readline, buffers);
+        Object persistentLoad = lib.lookupAttribute(self, "persistent_load");
+        self.setPersistentLoad(persistentLoad == PNone.NO_VALUE ? null : persistentLoad);
+    }
+
+    // Unpickler.__init__(file, *, fix_imports=True, encoding="ASCII", errors="strict", buffers=())
+    @Builtin(name = __INIT__, minNumOfPositionalArgs = 2, parameterNames = {"self", "file"}, varArgsMarker = true, keywordOnlyNames = {"fix_imports", "encoding", "errors", "buffers"})
+    @GenerateNodeFactory
+    public abstract static class InitNode extends PythonBuiltinNode {
+
+        @Specialization
+        PNone init(PUnpickler self, Object file, Object fixImports, Object encoding, Object errors, Object buffers) {
+            initUnpickler(this, self, file, fixImports, encoding, errors, buffers);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "load", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class LoadNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        Object load(PUnpickler self) {
+            return doLoad(self);
+        }
+
+        @TruffleBoundary
+        private Object doLoad(PUnpickler self) {
+            if (!self.isInitialized()) {
+                throw raise(PythonBuiltinClassType.UnpicklingError, ErrorMessages.UNPICKLER_INIT_NOT_CALLED,
+                                TypeNodes.GetNameNode.doSlowPath(PythonObjectLibrary.getUncached().getLazyPythonClass(self)));
+            }
+            return new PickleReader(this, self).load();
+        }
+    }
+
+    @Builtin(name = "find_class", minNumOfPositionalArgs = 3, parameterNames = {"self", "module_name", "global_name"})
+    @GenerateNodeFactory
+    public abstract static class FindClassNode extends PythonTernaryBuiltinNode {
+
+        @Specialization
+        Object findClass(PUnpickler self, Object moduleName, Object globalName) {
+            return PickleReader.findClass(this, self, moduleName, globalName);
+        }
+    }
+
+    @Builtin(name = "persistent_load", minNumOfPositionalArgs = 1, maxNumOfPositionalArgs = 2, isGetter = true, isSetter = true)
+    @GenerateNodeFactory
+    public abstract static class PersistentLoadNode extends PythonBinaryBuiltinNode {
+
+        @Specialization(guards = "isNoValue(value)")
+        Object get(PUnpickler self, @SuppressWarnings("unused") PNone value) {
+            if (self.getPersistentLoad() == null) {
+                throw raise(AttributeError, ErrorMessages.OBJ_P_HAS_NO_ATTR_S, self, "persistent_load");
+            }
+            return self.getPersistentLoad();
+        }
+
+        @Specialization(guards = "!isNoValue(value)")
+        static PNone set(PUnpickler self, Object value) {
+            self.setPersistentLoad(value);
+            return PNone.NONE;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.queue;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.object.DynamicObject;
+
+/**
+ * A {@code _queue.Queue}: the FIFO of {@code queue.Queue} with {@code task_done} and
+ * {@code join}. A positive {@code maxsize} bounds it with a {@link LinkedBlockingQueue},
+ * otherwise it is as unbounded as a {@link PSimpleQueue}.
+ */
+public final class PQueue extends PSimpleQueue {
+    private final int maxsize;
+    private final AtomicLong unfinishedTasks = new AtomicLong();
+
+    public PQueue(Object cls, DynamicObject storage, int maxsize) {
+        super(cls, storage, maxsize > 0 ? new LinkedBlockingQueue<>(maxsize) : new LinkedTransferQueue<>());
+        this.maxsize = maxsize;
+    }
+
+    public int getMaxsize() {
+        return maxsize;
+    }
+
+    public long getUnfinishedTasks() {
+        return unfinishedTasks.get();
+    }
+
+    public boolean isFull() {
+        return maxsize > 0 && size() >= maxsize;
+    }
+
+    // the task is counted before the item is visible, so that a consumer's task_done cannot
+    // run ahead of it
+
+    @Override
+    @TruffleBoundary
+    public boolean offer(Object item) {
+        unfinishedTasks.incrementAndGet();
+        if (super.offer(item)) {
+            return true;
+        }
+        taskDone();
+        return false;
+    }
+
+    @Override
+    @TruffleBoundary
+    public boolean offer(Object item, long timeoutNanos) {
+        unfinishedTasks.incrementAndGet();
+        if (super.offer(item, timeoutNanos)) {
+            return true;
+        }
+        taskDone();
+        return false;
+    }
+
+    /**
+     * Marks a task as done and returns {@code false} if there was none. The counter never becomes
+     * negative, not even temporarily, so {@code join} cannot see a wrong zero. Wakes up threads in
+     * {@code join} when the last task is done.
+     */
+    @TruffleBoundary
+    public boolean taskDone() {
+        long previous = unfinishedTasks.getAndUpdate(n -> n > 0 ? n - 1 : n);
+        if (previous <= 0) {
+            return false;
+        }
+        if (previous == 1) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Waits at most {@code timeoutNanos} for all tasks to be done and returns whether they are.
+     */
+    @TruffleBoundary
+    public synchronized boolean awaitTasks(long timeoutNanos) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        try {
+            long remaining = timeoutNanos;
+            while (unfinishedTasks.get() > 0 && remaining > 0) {
+                wait(remaining / 1000000, (int) (remaining % 1000000));
+                remaining = deadline - System.nanoTime();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return unfinishedTasks.get() == 0;
+    }
+}
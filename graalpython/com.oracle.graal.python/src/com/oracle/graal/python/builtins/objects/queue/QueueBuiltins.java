@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.queue;
+
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.profiles.BranchProfile;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PQueue)
+public class QueueBuiltins extends PythonBuiltins {
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return QueueBuiltinsFactory.getFactories();
+    }
+
+    @Builtin(name = "full", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class FullNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static boolean full(PQueue self) {
+            return self.isFull();
+        }
+    }
+
+    @Builtin(name = "task_done", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class TaskDoneNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        PNone taskDone(PQueue self) {
+            if (!self.taskDone()) {
+                throw raise(ValueError, ErrorMessages.TASK_DONE_CALLED_TOO_MANY_TIMES);
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "join", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class JoinNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        PNone join(VirtualFrame frame, PQueue self,
+                        @Cached BranchProfile asyncProfile) {
+            while (!self.awaitTasks(SimpleQueueBuiltins.WAIT_SLICE_NANOS)) {
+                getContext().triggerAsyncActions(frame, asyncProfile);
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "maxsize", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class MaxsizeNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static int maxsize(PQueue self) {
+            return self.getMaxsize();
+        }
+    }
+
+    @Builtin(name = "unfinished_tasks", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class UnfinishedTasksNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static long unfinishedTasks(PQueue self) {
+            return self.getUnfinishedTasks();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.queue;
+
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.function.PArguments;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.nodes.BuiltinNames;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonQuaternaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.runtime.PythonContext;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.library.CachedLibrary;
+import com.oracle.truffle.api.profiles.BranchProfile;
+
+@CoreFunctions(extendClasses = {PythonBuiltinClassType.PSimpleQueue, PythonBuiltinClassType.PQueue})
+public class SimpleQueueBuiltins extends PythonBuiltins {
+    private static final String QUEUE_MODULE = "queue";
+    private static final String EMPTY = "Empty";
+    private static final String FULL = "Full";
+
+    /**
+     * Blocking operations wait in slices of this length and run the pending async actions, e.g.
+     * signal handlers, in between. That is what a lock acquire interrupted by a signal does in
+     * CPython.
+     */
+    static final long WAIT_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return SimpleQueueBuiltinsFactory.getFactories();
+    }
+
+    @TruffleBoundary
+    static long nanoTime() {
+        return System.nanoTime();
+    }
+
+    static PException raiseEmpty(PythonBuiltinBaseNode node) {
+        throw node.raise(node.getCore().lookupBuiltinModule("_queue").getAttribute(EMPTY));
+    }
+
+    /**
+     * Raises {@code queue.Full}, which, unlike {@code Empty}, is defined by the pure-Python
+     * {@code queue} module.
+     */
+    static PException raiseFull(PythonBuiltinBaseNode node) {
+        throw node.raise(getFullType(node.getContext()));
+    }
+
+    @TruffleBoundary
+    private static Object getFullType(PythonContext context) {
+        Object module = context.getSysModules().getItem(QUEUE_MODULE);
+        if (module == null) {
+            CallNode.getUncached().execute(context.getCore().getBuiltins().getAttribute(BuiltinNames.__IMPORT__), QUEUE_MODULE);
+            module = context.getSysModules().getItem(QUEUE_MODULE);
+        }
+        return PythonObjectLibrary.getUncached().lookupAttribute(module, FULL);
+    }
+
+    static boolean isBlocking(VirtualFrame frame, Object block, PythonObjectLibrary lib) {
+        return PGuards.isNoValue(block) || lib.isTrueWithState(block, PArguments.getThreadState(frame));
+    }
+
+    /**
+     * Converts the {@code timeout} argument of a blocking call to nanoseconds, {@code -1} means
+     * no timeout.
+     */
+    static long getTimeoutNanos(PythonBuiltinBaseNode node, Object timeout, PythonObjectLibrary lib) {
+        if (PGuards.isPNone(timeout)) {
+            return -1;
+        }
+        double seconds = lib.asJavaDouble(timeout);
+        if (seconds < 0) {
+            throw node.raise(ValueError, ErrorMessages.TIMEOUT_MUST_BE_NON_NEG_NUMBER);
+        }
+        return (long) (seconds * 1e9);
+    }
+
+    static Object waitForItem(VirtualFrame frame, PythonBuiltinBaseNode node, PSimpleQueue self, long timeoutNanos, BranchProfile asyncProfile) {
+        long deadline = nanoTime() + timeoutNanos;
+        while (true) {
+            long slice = WAIT_SLICE_NANOS;
+            if (timeoutNanos >= 0) {
+                long remaining = deadline - nanoTime();
+                if (remaining <= 0) {
+                    throw raiseEmpty(node);
+                }
+                slice = Math.min(slice, remaining);
+            }
+            Object item = self.poll(slice);
+            if (item != null) {
+                return item;
+            }
+            node.getContext().triggerAsyncActions(frame, asyncProfile);
+        }
+    }
+
+    static void waitForSpace(VirtualFrame frame, PythonBuiltinBaseNode node, PSimpleQueue self, Object item, long timeoutNanos, BranchProfile asyncProfile) {
+        long deadline = nanoTime() + timeoutNanos;
+        while (true) {
+            long slice = WAIT_SLICE_NANOS;
+            if (timeoutNanos >= 0) {
+                long remaining = deadline - nanoTime();
+                if (remaining <= 0) {
+                    throw raiseFull(node);
+                }
+                slice = Math.min(slice, remaining);
+            }
+            if (self.offer(item, slice)) {
+                return;
+            }
+            node.getContext().triggerAsyncActions(frame, asyncProfile);
+        }
+    }
+
+    // put(item, block=True, timeout=None)
+    @Builtin(name = "put", minNumOfPositionalArgs = 2, parameterNames = {"$self", "item", "block", "timeout"})
+    @GenerateNodeFactory
+    public abstract static class PutNode extends PythonQuaternaryBuiltinNode {
+        @Specialization(limit = "3")
+        PNone put(VirtualFrame frame, PSimpleQueue self, Object item, Object block, Object timeout,
+                        @CachedLibrary("block") PythonObjectLibrary blockLib,
+                        @CachedLibrary("timeout") PythonObjectLibrary timeoutLib,
+                        @Cached BranchProfile asyncProfile) {
+            // only bounded queues can be full, a SimpleQueue never gets past this
+            if (!self.offer(item)) {
+                if (!isBlocking(frame, block, blockLib)) {
+                    throw raiseFull(this);
+                }
+                waitForSpace(frame, this, self, item, getTimeoutNanos(this, timeout, timeoutLib), asyncProfile);
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "put_nowait", minNumOfPositionalArgs = 2, parameterNames = {"$self", "item"})
+    @GenerateNodeFactory
+    public abstract static class PutNowaitNode extends PythonBinaryBuiltinNode {
+        @Specialization
+        PNone put(PSimpleQueue self, Object item) {
+            if (!self.offer(item)) {
+                throw raiseFull(this);
+            }
+            return PNone.NONE;
+        }
+    }
+
+    // get(block=True, timeout=None)
+    @Builtin(name = "get", minNumOfPositionalArgs = 1, parameterNames = {"$self", "block", "timeout"})
+    @GenerateNodeFactory
+    public abstract static class GetNode extends PythonTernaryBuiltinNode {
+        @Specialization(limit = "3")
+        Object get(VirtualFrame frame, PSimpleQueue self, Object block, Object timeout,
+                        @CachedLibrary("block") PythonObjectLibrary blockLib,
+                        @CachedLibrary("timeout") PythonObjectLibrary timeoutLib,
+                        @Cached BranchProfile asyncProfile) {
+            boolean blocking = isBlocking(frame, block, blockLib);
+            long timeoutNanos = blocking ? getTimeoutNanos(this, timeout, timeoutLib) : 0;
+            Object item = self.poll();
+            if (item != null) {
+                return item;
+            }
+            if (!blocking) {
+                throw raiseEmpty(this);
+            }
+            return waitForItem(frame, this, self, timeoutNanos, asyncProfile);
+        }
+    }
+
+    @Builtin(name = "get_nowait", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class GetNowaitNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        Object get(PSimpleQueue self) {
+            Object item = self.poll();
+            if (item == null) {
+                throw raiseEmpty(this);
+            }
+            return item;
+        }
+    }
+
+    @Builtin(name = "empty", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class EmptyNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static boolean empty(PSimpleQueue self) {
+            return self.size() == 0;
+        }
+    }
+
+    @Builtin(name = "qsize", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class QSizeNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static int qsize(PSimpleQueue self) {
+            return self.size();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.select;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__ENTER__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__EXIT__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.exception.OSErrorEnum;
+import com.oracle.graal.python.builtins.objects.function.PArguments;
+import com.oracle.graal.python.builtins.objects.function.PArguments.ThreadState;
+import com.oracle.graal.python.builtins.objects.list.PList;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.call.special.LookupAndCallUnaryNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.library.CachedLibrary;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PEpoll)
+public class EpollBuiltins extends PythonBuiltins {
+
+    /** CPython uses {@code FD_SETSIZE - 1} if no {@code maxevents} are given. */
+    private static final int DEFAULT_MAXEVENTS = 1023;
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return EpollBuiltinsFactory.getFactories();
+    }
+
+    static PollSet getOpenPollSet(PythonBuiltinBaseNode node, PEpoll self) {
+        PollSet pollSet = self.getPollSet();
+        if (pollSet == null) {
+            throw node.raise(ValueError, ErrorMessages.IO_OPERATION_ON_CLOSED_EPOLL);
+        }
+        return pollSet;
+    }
+
+    // epoll.register(fd, eventmask=EPOLLIN|EPOLLPRI|EPOLLOUT)
+    @Builtin(name = "register", minNumOfPositionalArgs = 2, parameterNames = {"$self", "fd", "eventmask"})
+    @GenerateNodeFactory
+    public abstract static class RegisterNode extends PythonTernaryBuiltinNode {
+
+        @Specialization(limit = "3")
+        PNone register(VirtualFrame frame, PEpoll self, Object fdObj, Object eventMask,
+                        @CachedLibrary("fdObj") PythonObjectLibrary fdLib,
+                        @CachedLibrary(limit = "1") PythonObjectLibrary eventLib) {
+            PollSet pollSet = getOpenPollSet(this, self);
+            ThreadState state = PArguments.getThreadState(frame);
+            int fd = fdLib.asFileDescriptorWithState(fdObj, state);
+            int events = PollBuiltins.getEvents(eventMask, PollBuiltins.DEFAULT_EVENTS, eventLib, state);
+            int status;
+            try {
+                status = pollSet.register(getContext().getResources(), fd, events, false);
+            } catch (IOException e) {
+                throw raiseOSError(frame, e);
+            }
+            if (status == PollSet.ALREADY_REGISTERED) {
+                throw raiseOSError(frame, OSErrorEnum.EEXIST);
+            } else if (status == PollSet.BAD_FILE_DESCRIPTOR) {
+                throw raiseOSError(frame, OSErrorEnum.EBADF);
+            }
+            return PNone.NONE;
+        }
+    }
+
+    // epoll.modify(fd, eventmask)
+    @Builtin(name = "modify", minNumOfPositionalArgs = 3, parameterNames = {"$self", "fd", "eventmask"})
+    @GenerateNodeFactory
+    public abstract static class ModifyNode extends PythonTernaryBuiltinNode {
+
+        @Specialization(limit = "3")
+        PNone modify(VirtualFrame frame, PEpoll self, Object fdObj, Object eventMask,
+                        @CachedLibrary("fdObj") PythonObjectLibrary fdLib,
+                        @CachedLibrary(limit = "1") PythonObjectLibrary eventLib) {
+            PollSet pollSet = getOpenPollSet(this, self);
+            ThreadState state = PArguments.getThreadState(frame);
+            int fd = fdLib.asFileDescriptorWithState(fdObj, state);
+            int events = PollBuiltins.getEvents(eventMask, PollBuiltins.DEFAULT_EVENTS, eventLib, state);
+            int status;
+            try {
+                status = pollSet.modify(fd, events);
+            } catch (IOException e) {
+                throw raiseOSError(frame, e);
+            }
+            if (status == PollSet.NOT_REGISTERED) {
+                throw raiseOSError(frame, OSErrorEnum.ENOENT);
+            }
+            return PNone.NONE;
+        }
+    }
+
+    // epoll.unregister(fd)
+    @Builtin(name = "unregister", minNumOfPositionalArgs = 2, parameterNames = {"$self", "fd"})
+    @GenerateNodeFactory
+    public abstract static class UnregisterNode extends PythonBinaryBuiltinNode {
+
+        @Specialization(limit = "3")
+        PNone unregister(VirtualFrame frame, PEpoll self, Object fdObj,
+                        @CachedLibrary("fdObj") PythonObjectLibrary fdLib) {
+            PollSet pollSet = getOpenPollSet(this, self);
+            int fd = fdLib.asFileDescriptorWithState(fdObj, PArguments.getThreadState(frame));
+            int status;
+            try {
+                status = pollSet.unregister(fd);
+            } catch (IOException e) {
+                throw raiseOSError(frame, e);
+            }
+            if (status == PollSet.NOT_REGISTERED) {
+                throw raiseOSError(frame, OSErrorEnum.ENOENT);
+            }
+            return PNone.NONE;
+        }
+    }
+
+    // epoll.poll(timeout=None, maxevents=-1)
+    @Builtin(name = "poll", minNumOfPositionalArgs = 1, parameterNames = {"$self", "timeout", "maxevents"})
+    @GenerateNodeFactory
+    public abstract static class PollNode extends PythonTernaryBuiltinNode {
+
+        @Specialization
+        PList poll(VirtualFrame frame, PEpoll self, Object timeoutObj, Object maxEventsObj,
+                        @CachedLibrary(limit = "2") PythonObjectLibrary lib) {
+            PollSet pollSet = getOpenPollSet(this, self);
+            ThreadState state = PArguments.getThreadState(frame);
+            // the timeout is given in seconds; None or a negative value wait forever
+            long timeoutMillis = -1;
+            if (!PGuards.isPNone(timeoutObj)) {
+                double timeout = lib.asJavaDoubleWithState(timeoutObj, state);
+                timeoutMillis = timeout < 0 ? -1 : (long) Math.ceil(timeout * 1000.0);
+            }
+            int maxEvents = PGuards.isNoValue(maxEventsObj) ? -1 : lib.asSizeWithState(maxEventsObj, state);
+            if (maxEvents == -1) {
+                maxEvents = DEFAULT_MAXEVENTS;
+            } else if (maxEvents < 1) {
+                throw raise(ValueError, ErrorMessages.MAXEVENTS_MUST_BE_GREATER_THAN_0, maxEvents);
+            }
+            int count;
+            try {
+                count = pollSet.poll(timeoutMillis, maxEvents);
+            } catch (IOException e) {
+                throw raiseOSError(frame, e);
+            }
+            return PollBuiltins.createResult(factory(), pollSet, count);
+        }
+    }
+
+    @Builtin(name = "close", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class CloseNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        PNone close(VirtualFrame frame, PEpoll self) {
+            PollSet pollSet = self.getPollSet();
+            if (pollSet != null) {
+                self.markClosed();
+                try {
+                    pollSet.close();
+                } catch (IOException e) {
+                    throw raiseOSError(frame, e);
+                }
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "closed", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class ClosedNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        static boolean closed(PEpoll self) {
+            return self.isClosed();
+        }
+    }
+
+    @Builtin(name = __ENTER__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class EnterNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        PEpoll enter(PEpoll self) {
+            getOpenPollSet(this, self);
+            return self;
+        }
+    }
+
+    @Builtin(name = __EXIT__, minNumOfPositionalArgs = 4)
+    @GenerateNodeFactory
+    public abstract static class ExitNode extends PythonBuiltinNode {
+        protected static final String CLOSE = "close";
+
+        @Specialization
+        static Object exit(VirtualFrame frame, PEpoll self, @SuppressWarnings("unused") Object typ, @SuppressWarnings("unused") Object val, @SuppressWarnings("unused") Object tb,
+                        @Cached("create(CLOSE)") LookupAndCallUnaryNode callCloseNode) {
+            return callCloseNode.executeObject(frame, self);
+        }
+    }
+}
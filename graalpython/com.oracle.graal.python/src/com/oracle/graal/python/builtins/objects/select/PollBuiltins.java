@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.select;
+
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.KeyError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.RuntimeError;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.exception.OSErrorEnum;
+import com.oracle.graal.python.builtins.objects.function.PArguments;
+import com.oracle.graal.python.builtins.objects.function.PArguments.ThreadState;
+import com.oracle.graal.python.builtins.objects.list.PList;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.graal.python.runtime.PosixResources;
+import com.oracle.graal.python.runtime.object.PythonObjectFactory;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.library.CachedLibrary;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PPoll)
+public class PollBuiltins extends PythonBuiltins {
+
+    static final int DEFAULT_EVENTS = PollSet.POLLIN | PollSet.POLLPRI | PollSet.POLLOUT;
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return PollBuiltinsFactory.getFactories();
+    }
+
+    static int getEvents(Object eventMask, int defaultEvents, PythonObjectLibrary lib, ThreadState state) {
+        if (PGuards.isNoValue(eventMask)) {
+            return defaultEvents;
+        }
+        return (int) lib.asJavaLongWithState(eventMask, state);
+    }
+
+    /**
+     * Creates the result list of {@code poll} directly from the ready pairs of the
+     * {@link PollSet}.
+     */
+    @TruffleBoundary
+    static PList createResult(PythonObjectFactory factory, PollSet pollSet, int count) {
+        int[] ready = pollSet.getReady();
+        Object[] result = new Object[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = factory.createTuple(new Object[]{ready[2 * i], ready[2 * i + 1]});
+        }
+        return factory.createList(result);
+    }
+
+    // poll.register(fd, eventmask=POLLIN|POLLPRI|POLLOUT)
+    @Builtin(name = "register", minNumOfPositionalArgs = 2, parameterNames = {"$self", "fd", "eventmask"})
+    @GenerateNodeFactory
+    public abstract static class RegisterNode extends PythonTernaryBuiltinNode {
+
+        @Specialization(limit = "3")
+        PNone register(VirtualFrame frame, PPoll self, Object fdObj, Object eventMask,
+                        @CachedLibrary("fdObj") PythonObjectLibrary fdLib,
+                        @CachedLibrary(limit = "1") PythonObjectLibrary eventLib) {
+            ThreadState state = PArguments.getThreadState(frame);
+            int fd = fdLib.asFileDescriptorWithState(fdObj, state);
+            int events = getEvents(eventMask, DEFAULT_EVENTS, eventLib, state);
+            try {
+                // like CPython, registering a descriptor again replaces its event mask
+                self.getPollSet().register(getResources(), fd, events, true);
+            } catch (IOException e) {
+                throw raiseOSError(frame, e);
+            }
+            return PNone.NONE;
+        }
+
+        private PosixResources getResources() {
+            return getContext().getResources();
+        }
+    }
+
+    // poll.modify(fd, eventmask)
+    @Builtin(name = "modify", minNumOfPositionalArgs = 3, parameterNames = {"$self", "fd", "eventmask"})
+    @GenerateNodeFactory
+    public abstract static class ModifyNode extends PythonTernaryBuiltinNode {
+
+        @Specialization(limit = "3")
+        PNone modify(VirtualFrame frame, PPoll self, Object fdObj, Object eventMask,
+                        @CachedLibrary("fdObj") PythonObjectLibrary fdLib,
+                        @CachedLibrary(limit = "1") PythonObjectLibrary eventLib) {
+            ThreadState state = PArguments.getThreadState(frame);
+            int fd = fdLib.asFileDescriptorWithState(fdObj, state);
+            int events = getEvents(eventMask, DEFAULT_EVENTS, eventLib, state);
+            int status;
+            try {
+                status = self.getPollSet().modify(fd, events);
+            } catch (IOException e) {
+                throw raiseOSError(frame, e);
+            }
+            if (status == PollSet.NOT_REGISTERED) {
+                throw raiseOSError(frame, OSErrorEnum.ENOENT);
+            }
+            return PNone.NONE;
+        }
+    }
+
+    // poll.unregister(fd)
+    @Builtin(name = "unregister", minNumOfPositionalArgs = 2, parameterNames = {"$self", "fd"})
+    @GenerateNodeFactory
+    public abstract static class UnregisterNode extends PythonBinaryBuiltinNode {
+
+        @Specialization(limit = "3")
+        PNone unregister(VirtualFrame frame, PPoll self, Object fdObj,
+                        @CachedLibrary("fdObj") PythonObjectLibrary fdLib) {
+            int fd = fdLib.asFileDescriptorWithState(fdObj, PArguments.getThreadState(frame));
+            int status;
+            try {
+                status = self.getPollSet().unregister(fd);
+            } catch (IOException e) {
+                throw raiseOSError(frame, e);
+            }
+            if (status == PollSet.NOT_REGISTERED) {
+                throw raise(KeyError, new Object[]{fdObj});
+            }
+            return PNone.NONE;
+        }
+    }
+
+    // poll.poll(timeout=None)
+    @Builtin(name = "poll", minNumOfPositionalArgs = 1, parameterNames = {"$self", "timeout"})
+    @GenerateNodeFactory
+    public abstract static class PollNode extends PythonBinaryBuiltinNode {
+
+        @Specialization(limit = "1")
+        PList poll(VirtualFrame frame, PPoll self, Object timeoutObj,
+                        @CachedLibrary("timeoutObj") PythonObjectLibrary lib) {
+            // the timeout is given in milliseconds; None or a negative value wait forever
+            long timeoutMillis = -1;
+            if (!PGuards.isPNone(timeoutObj)) {
+                double timeout = lib.asJavaDoubleWithState(timeoutObj, PArguments.getThreadState(frame));
+                timeoutMillis = timeout < 0 ? -1 : (long) Math.ceil(timeout);
+            }
+            if (self.isPolling()) {
+                throw raise(RuntimeError, ErrorMessages.CONCURRENT_POLL_INVOCATION);
+            }
+            PollSet pollSet = self.getPollSet();
+            int count;
+            self.setPolling(true);
+            try {
+                count = pollSet.poll(timeoutMillis, Integer.MAX_VALUE);
+            } catch (IOException e) {
+                throw raiseOSError(frame, e);
+            } finally {
+                self.setPolling(false);
+            }
+            return createResult(factory(), pollSet, count);
+        }
+    }
+}
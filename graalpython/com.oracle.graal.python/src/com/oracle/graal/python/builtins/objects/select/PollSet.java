@@ -0,0 +1,390 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.select;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.Channel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import com.oracle.graal.python.builtins.objects.socket.PSocket;
+import com.oracle.graal.python.runtime.PosixResources;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * The registrations of a {@code select.poll} or {@code select.epoll} object. All selectable
+ * channels are registered with one long-lived {@link Selector}, and each file descriptor maps to
+ * its {@link SelectionKey}, so registering, modifying and unregistering a descriptor are
+ * constant-time operations and {@link #poll} only has to walk the keys that are actually ready.
+ * <p>
+ * Channels stay in non-blocking mode while they are registered, because the NIO selector requires
+ * it, and are switched back when they are unregistered. Channels that cannot be selected (e.g.,
+ * regular files) are always ready, like with the POSIX {@code poll}. Sockets that have no
+ * underlying channel yet, because they are not connected or listening, are resolved again on
+ * every {@link #poll}.
+ */
+public final class PollSet {
+    public static final int POLLIN = 0x1;
+    public static final int POLLPRI = 0x2;
+    public static final int POLLOUT = 0x4;
+    public static final int POLLERR = 0x8;
+    public static final int POLLHUP = 0x10;
+    public static final int POLLNVAL = 0x20;
+    public static final int POLLRDNORM = 0x40;
+    public static final int POLLRDBAND = 0x80;
+    public static final int POLLWRNORM = 0x100;
+    public static final int POLLWRBAND = 0x200;
+    public static final int POLLMSG = 0x400;
+    public static final int POLLRDHUP = 0x2000;
+
+    public static final int EPOLLEXCLUSIVE = 1 << 28;
+    public static final int EPOLLWAKEUP = 1 << 29;
+    public static final int EPOLLONESHOT = 1 << 30;
+    public static final int EPOLLET = 1 << 31;
+    public static final int EPOLL_CLOEXEC = 0x80000;
+
+    private static final int READ_EVENTS = POLLIN | POLLPRI | POLLRDNORM | POLLRDBAND;
+    private static final int WRITE_EVENTS = POLLOUT | POLLWRNORM | POLLWRBAND;
+
+    /** Result of {@link #register}, {@link #modify} and {@link #unregister}. */
+    public static final int OK = 0;
+    public static final int NOT_REGISTERED = 1;
+    public static final int ALREADY_REGISTERED = 2;
+    public static final int BAD_FILE_DESCRIPTOR = 3;
+
+    private static final class Registration {
+        private final int fd;
+        private final Channel source;
+        private int events;
+        /** The selectable channel of {@link #source} or {@code null} if it has none (yet). */
+        private SelectableChannel channel;
+        private SelectionKey key;
+        private boolean wasBlocking;
+
+        Registration(int fd, Channel source, int events) {
+            this.fd = fd;
+            this.source = source;
+            this.events = events;
+        }
+    }
+
+    /** {@code true} for {@code select.poll}, which reports closed descriptors as POLLNVAL. */
+    private final boolean reportInvalid;
+    private final HashMap<Integer, Registration> registrations = new HashMap<>();
+    /** Number of registrations that have no selection key and are checked on every poll. */
+    private int unselectable;
+    private Selector selector;
+    /** Pairs of file descriptor and event mask filled by {@link #poll}. */
+    private int[] ready = new int[16];
+
+    public PollSet(boolean reportInvalid) {
+        this.reportInvalid = reportInvalid;
+    }
+
+    public int size() {
+        return registrations.size();
+    }
+
+    public int[] getReady() {
+        return ready;
+    }
+
+    /**
+     * Registers {@code fd}, or, if {@code allowModify} is set and {@code fd} is already
+     * registered, replaces its event mask.
+     */
+    @TruffleBoundary
+    public int register(PosixResources resources, int fd, int events, boolean allowModify) throws IOException {
+        Registration registration = registrations.get(fd);
+        if (registration != null) {
+            if (!allowModify) {
+                return ALREADY_REGISTERED;
+            }
+            return modify(fd, events);
+        }
+        Channel source = resources.getFileChannel(fd);
+        if (source == null && !reportInvalid) {
+            return BAD_FILE_DESCRIPTOR;
+        }
+        registration = new Registration(fd, source, events);
+        registrations.put(fd, registration);
+        if (!attach(registration)) {
+            unselectable++;
+        }
+        return OK;
+    }
+
+    @TruffleBoundary
+    public int modify(int fd, int events) throws IOException {
+        Registration registration = registrations.get(fd);
+        if (registration == null) {
+            return NOT_REGISTERED;
+        }
+        registration.events = events;
+        if (registration.key != null && registration.key.isValid()) {
+            registration.key.interestOps(interestOps(registration.channel, events));
+        }
+        return OK;
+    }
+
+    @TruffleBoundary
+    public int unregister(int fd) throws IOException {
+        Registration registration = registrations.remove(fd);
+        if (registration == null) {
+            return NOT_REGISTERED;
+        }
+        if (registration.key == null) {
+            unselectable--;
+        } else {
+            detach(registration);
+        }
+        if (registrations.isEmpty() && selector != null) {
+            // don't keep the selector's file descriptors open while there is nothing to wait for
+            selector.close();
+            selector = null;
+        }
+        return OK;
+    }
+
+    /**
+     * Waits for at most {@code timeoutMillis} milliseconds (forever if negative) until at least
+     * one of the registered descriptors is ready and returns the number of ready descriptors. The
+     * descriptors and their events are stored in pairs in {@link #getReady()}.
+     */
+    @TruffleBoundary
+    public int poll(long timeoutMillis, int maxEvents) throws IOException {
+        int count = 0;
+        if (unselectable > 0) {
+            count = pollUnselectable(maxEvents);
+        }
+        if (selector == null) {
+            if (count > 0 || timeoutMillis == 0) {
+                return count;
+            }
+            // nothing is registered, but the caller still expects to wait for the timeout
+            selector = Selector.open();
+        }
+        selector.selectedKeys().clear();
+        if (count > 0 || timeoutMillis == 0) {
+            selector.selectNow();
+        } else {
+            // Selector.select(0) blocks indefinitely, so a positive timeout must not round to 0
+            selector.select(timeoutMillis < 0 ? 0 : timeoutMillis);
+        }
+        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+        while (it.hasNext() && count < maxEvents) {
+            SelectionKey key = it.next();
+            it.remove();
+            Registration registration = (Registration) key.attachment();
+            int events;
+            try {
+                events = readyEvents(registration.events, key.readyOps());
+            } catch (CancelledKeyException e) {
+                events = reportInvalid ? POLLNVAL : 0;
+            }
+            if (events != 0) {
+                count = addReady(count, registration.fd, events);
+                if ((registration.events & EPOLLONESHOT) != 0 && key.isValid()) {
+                    registration.events = 0;
+                    key.interestOps(0);
+                }
+            }
+        }
+        if (registrations.isEmpty()) {
+            selector.close();
+            selector = null;
+        }
+        return count;
+    }
+
+    /** Deregisters all channels and closes the selector. */
+    @TruffleBoundary
+    public void close() throws IOException {
+        for (Registration registration : registrations.values()) {
+            if (registration.key != null) {
+                registration.key.cancel();
+            }
+        }
+        if (selector != null) {
+            selector.close();
+            selector = null;
+        }
+        for (Registration registration : registrations.values()) {
+            if (registration.key != null) {
+                restoreBlocking(registration);
+            }
+        }
+        registrations.clear();
+        unselectable = 0;
+    }
+
+    private int pollUnselectable(int maxEvents) throws IOException {
+        int count = 0;
+        for (Registration registration : registrations.values()) {
+            if (count >= maxEvents) {
+                break;
+            }
+            if (registration.key != null) {
+                continue;
+            }
+            if (registration.source instanceof PSocket) {
+                // the socket may have been connected or bound since it was registered
+                if (attach(registration)) {
+                    unselectable--;
+                }
+            } else if (registration.source == null || !registration.source.isOpen()) {
+                if (reportInvalid) {
+                    count = addReady(count, registration.fd, POLLNVAL);
+                }
+            } else {
+                int events = registration.events & (POLLIN | POLLRDNORM | POLLOUT | POLLWRNORM);
+                if (events != 0) {
+                    count = addReady(count, registration.fd, events);
+                }
+            }
+        }
+        return count;
+    }
+
+    private int addReady(int count, int fd, int events) {
+        int idx = count * 2;
+        if (idx + 1 >= ready.length) {
+            int[] newReady = new int[ready.length * 2];
+            System.arraycopy(ready, 0, newReady, 0, idx);
+            ready = newReady;
+        }
+        ready[idx] = fd;
+        ready[idx + 1] = events;
+        return count + 1;
+    }
+
+    /**
+     * Registers the channel of {@code registration} with the selector, if it has a selectable
+     * one, and returns whether it did.
+     */
+    private boolean attach(Registration registration) throws IOException {
+        SelectableChannel channel = getSelectableChannel(registration.source);
+        if (channel == null) {
+            return false;
+        }
+        if (selector == null) {
+            selector = Selector.open();
+        }
+        SelectionKey existing = channel.keyFor(selector);
+        if (existing != null && !existing.isValid()) {
+            // a cancelled key is only removed by the next selection operation
+            selector.selectNow();
+            selector.selectedKeys().clear();
+        }
+        registration.wasBlocking = channel.isBlocking();
+        if (registration.wasBlocking) {
+            channel.configureBlocking(false);
+        }
+        registration.channel = channel;
+        registration.key = channel.register(selector, interestOps(channel, registration.events), registration);
+        return true;
+    }
+
+    private void detach(Registration registration) throws IOException {
+        registration.key.cancel();
+        if (needsBlocking(registration) && registration.channel.isOpen()) {
+            // the channel can only be switched back once the cancelled key has been removed
+            selector.selectNow();
+            selector.selectedKeys().clear();
+            registration.channel.configureBlocking(true);
+        }
+    }
+
+    private static void restoreBlocking(Registration registration) throws IOException {
+        if (needsBlocking(registration) && registration.channel.isOpen()) {
+            registration.channel.configureBlocking(true);
+        }
+    }
+
+    private static boolean needsBlocking(Registration registration) {
+        if (registration.source instanceof PSocket) {
+            return ((PSocket) registration.source).isBlocking();
+        }
+        return registration.wasBlocking;
+    }
+
+    private static SelectableChannel getSelectableChannel(Channel source) {
+        if (source instanceof PSocket) {
+            PSocket socket = (PSocket) source;
+            return socket.getSocket() != null ? socket.getSocket() : socket.getServerSocket();
+        } else if (source instanceof SelectableChannel) {
+            return (SelectableChannel) source;
+        }
+        return null;
+    }
+
+    private static int interestOps(SelectableChannel channel, int events) {
+        int validOps = channel.validOps();
+        int ops = 0;
+        if ((events & READ_EVENTS) != 0) {
+            ops |= validOps & (SelectionKey.OP_READ | SelectionKey.OP_ACCEPT);
+        }
+        if ((events & WRITE_EVENTS) != 0) {
+            ops |= validOps & SelectionKey.OP_WRITE;
+            if (channel instanceof SocketChannel && ((SocketChannel) channel).isConnectionPending()) {
+                // like POSIX, a socket becomes writable when its connection is established
+                ops |= SelectionKey.OP_CONNECT;
+            }
+        }
+        return ops;
+    }
+
+    private static int readyEvents(int events, int readyOps) {
+        int result = 0;
+        if ((readyOps & (SelectionKey.OP_READ | SelectionKey.OP_ACCEPT)) != 0) {
+            result |= events & (POLLIN | POLLRDNORM);
+        }
+        if ((readyOps & (SelectionKey.OP_WRITE | SelectionKey.OP_CONNECT)) != 0) {
+            result |= events & (POLLOUT | POLLWRNORM);
+        }
+        return result;
+    }
+}
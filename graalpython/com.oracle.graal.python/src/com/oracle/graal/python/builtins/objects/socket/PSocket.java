@@ -42,10 +42,12 @@ package com.oracle.graal.python.builtins.objects.socket;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channel;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.oracle.graal.python.builtins.objects.PNone;
 import com.oracle.graal.python.builtins.objects.object.PythonBuiltinObject;
@@ -83,6 +85,8 @@ public class PSocket extends PythonBuiltinObject implements Channel {
 
     public static final int IPPROTO_TCP = 6;
 
+    private static final int DIRECT_BUFFER_SIZE = 64 * 1024;
+
     @CompilationFinal private static InetSocketAddress EPHEMERAL_ADDRESS;
 
     private static InetSocketAddress getEphemeralAddress() {
@@ -113,6 +117,14 @@ public class PSocket extends PythonBuiltinObject implements Channel {
 
     private HashMap<Object, Object> options;
 
+    /**
+     * Cached direct buffers for reads and writes, allocated on first use. A transfer takes the
+     * buffer out of its slot for the duration of the call, so a reader and a writer never share a
+     * buffer and a second concurrent transfer in the same direction just allocates its own.
+     */
+    private final AtomicReference<ByteBuffer> readBuffer = new AtomicReference<>();
+    private final AtomicReference<ByteBuffer> writeBuffer = new AtomicReference<>();
+
     public PSocket(Object cls, DynamicObject storage, int family, int type, int proto) {
         super(cls, storage);
         this.family = family;
@@ -198,8 +210,63 @@ public class PSocket extends PythonBuiltinObject implements Channel {
         return (getSocket() != null && getSocket().isOpen()) || (getServerSocket() != null && getServerSocket().isOpen());
     }
 
+    /**
+     * Takes the socket's direct read buffer, cleared and limited to at most {@code n} bytes. Reading
+     * and writing through a direct buffer lets the channel transfer the data without its own
+     * temporary copy. The buffer must be given back with {@link #releaseReadBuffer}.
+     */
+    @TruffleBoundary
+    public ByteBuffer acquireReadBuffer(int n) {
+        return acquire(readBuffer, n);
+    }
+
+    @TruffleBoundary
+    public void releaseReadBuffer(ByteBuffer buffer) {
+        release(readBuffer, buffer);
+    }
+
+    /**
+     * Like {@link #acquireReadBuffer} but for writes. The buffer must be given back with
+     * {@link #releaseWriteBuffer}.
+     */
+    @TruffleBoundary
+    public ByteBuffer acquireWriteBuffer(int n) {
+        return acquire(writeBuffer, n);
+    }
+
+    @TruffleBoundary
+    public void releaseWriteBuffer(ByteBuffer buffer) {
+        release(writeBuffer, buffer);
+    }
+
+    private static ByteBuffer acquire(AtomicReference<ByteBuffer> slot, int n) {
+        ByteBuffer buffer = slot.getAndSet(null);
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(DIRECT_BUFFER_SIZE);
+        }
+        buffer.clear();
+        buffer.limit(Math.min(n, DIRECT_BUFFER_SIZE));
+        return buffer;
+    }
+
+    private void release(AtomicReference<ByteBuffer> slot, ByteBuffer buffer) {
+        if (isOpen()) {
+            slot.compareAndSet(null, buffer);
+        }
+    }
+
+    /**
+     * Drops the cached buffers. Transfers that are still in progress keep using the buffer they
+     * took and do not put it back once the socket is closed.
+     */
+    public void releaseDirectBuffers() {
+        readBuffer.set(null);
+        writeBuffer.set(null);
+    }
+
     @TruffleBoundary
     public void close() throws IOException {
+        releaseDirectBuffers();
         if (getSocket() != null) {
             getSocket().close();
         } else if (getServerSocket() != null) {
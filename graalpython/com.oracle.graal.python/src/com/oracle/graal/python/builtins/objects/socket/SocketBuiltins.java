@@ -64,20 +64,26 @@ import com.oracle.graal.python.builtins.objects.bytes.PByteArray;
 import com.oracle.graal.python.builtins.objects.bytes.PBytes;
 import com.oracle.graal.python.builtins.objects.bytes.PIBytesLike;
 import com.oracle.graal.python.builtins.objects.common.SequenceNodes.GetObjectArrayNode;
-import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes;
 import com.oracle.graal.python.builtins.objects.exception.OSErrorEnum;
 import com.oracle.graal.python.builtins.objects.function.PArguments;
 import com.oracle.graal.python.builtins.objects.memoryview.PMemoryView;
 import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.builtins.objects.str.PString;
 import com.oracle.graal.python.builtins.objects.tuple.PTuple;
 import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PGuards;
 import com.oracle.graal.python.nodes.call.special.LookupAndCallTernaryNode;
 import com.oracle.graal.python.nodes.call.special.LookupAndCallUnaryNode;
+import com.oracle.graal.python.nodes.control.GetIteratorExpressionNode.GetIteratorNode;
+import com.oracle.graal.python.nodes.control.GetNextNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
 import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonQuaternaryBuiltinNode;
 import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
 import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.runtime.exception.PException;
 import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
 import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
@@ -86,6 +92,7 @@ import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.NodeFactory;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.interop.UnsupportedMessageException;
 import com.oracle.truffle.api.library.CachedLibrary;
 import com.oracle.truffle.api.profiles.ConditionProfile;
 
@@ -185,6 +192,7 @@ public class SocketBuiltins extends PythonBuiltins {
                     throw raise(PythonBuiltinClassType.OSError, ErrorMessages.BAD_FILE_DESCRIPTOR);
                 }
             }
+            socket.releaseDirectBuffers();
             getContext().getResources().close(socket.getFileno());
             return PNone.NONE;
         }
@@ -341,26 +349,184 @@ public class SocketBuiltins extends PythonBuiltins {
         }
     }
 
+    static void checkConnected(VirtualFrame frame, PythonBuiltinBaseNode node, PSocket socket) {
+        if (socket.getSocket() == null) {
+            throw node.raiseOSError(frame, OSErrorEnum.ENOTCONN);
+        }
+    }
+
+    /**
+     * Reads at most {@code n} bytes with a single read call through the socket's direct read
+     * buffer. Returns {@code null} if a non-blocking socket has no data and an empty array at the
+     * end of the stream.
+     */
+    @TruffleBoundary
+    static byte[] readBytes(PSocket socket, int n) throws IOException {
+        SocketChannel channel = socket.getSocket();
+        ByteBuffer direct = socket.acquireReadBuffer(n);
+        try {
+            int length = channel.read(direct);
+            if (length == 0 && n > 0 && !channel.isBlocking()) {
+                return null;
+            }
+            byte[] result = new byte[Math.max(length, 0)];
+            direct.flip();
+            direct.get(result);
+            return result;
+        } finally {
+            socket.releaseReadBuffer(direct);
+        }
+    }
+
+    /**
+     * Reads at most {@code target.remaining()} bytes with a single read call through the socket's
+     * direct read buffer into {@code target}. Returns {@code -1} if a non-blocking socket has no
+     * data and {@code 0} at the end of the stream.
+     */
+    @TruffleBoundary
+    static int readInto(PSocket socket, ByteBuffer target) throws IOException {
+        SocketChannel channel = socket.getSocket();
+        ByteBuffer direct = socket.acquireReadBuffer(target.remaining());
+        try {
+            int length = channel.read(direct);
+            if (length < 0) {
+                return 0;
+            } else if (length == 0 && target.hasRemaining() && !channel.isBlocking()) {
+                return -1;
+            }
+            direct.flip();
+            target.put(direct);
+            return length;
+        } finally {
+            socket.releaseReadBuffer(direct);
+        }
+    }
+
+    /**
+     * Copies as much of {@code source} as fits into the socket's direct write buffer, writes it
+     * with a single write call, advances {@code source} by the number of bytes written and returns
+     * that number.
+     */
+    @TruffleBoundary
+    static int writeFrom(PSocket socket, ByteBuffer source) throws IOException {
+        ByteBuffer direct = socket.acquireWriteBuffer(source.remaining());
+        try {
+            int start = source.position();
+            ByteBuffer chunk = source.duplicate();
+            chunk.limit(start + direct.remaining());
+            direct.put(chunk);
+            direct.flip();
+            int written = socket.getSocket().write(direct);
+            source.position(start + written);
+            return written;
+        } finally {
+            socket.releaseWriteBuffer(direct);
+        }
+    }
+
+    /** Writes the first {@code count} buffers with one gathering write call. */
+    @TruffleBoundary
+    static long gatheringWrite(PSocket socket, ByteBuffer[] sources, int count) throws IOException {
+        return socket.getSocket().write(sources, 0, count);
+    }
+
+    @TruffleBoundary
+    static boolean hasRemaining(ByteBuffer[] buffers, int count) {
+        for (int i = 0; i < count; i++) {
+            if (buffers[i].hasRemaining()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Wraps the data of a bytes-like object. {@code bytes}, {@code bytearray} and contiguous
+     * managed memoryviews over them are wrapped in place, so slicing a memoryview does not copy
+     * the data; other buffers are copied.
+     */
+    @TruffleBoundary
+    static ByteBuffer wrapSource(PythonBuiltinBaseNode node, Object obj) {
+        if (obj instanceof PIBytesLike) {
+            SequenceStorage storage = ((PIBytesLike) obj).getSequenceStorage();
+            if (storage instanceof ByteSequenceStorage) {
+                return ByteBuffer.wrap(((ByteSequenceStorage) storage).getInternalByteArray(), 0, storage.length());
+            }
+        } else if (obj instanceof PMemoryView && ((PMemoryView) obj).isManaged()) {
+            PMemoryView view = (PMemoryView) obj;
+            if (view.isReleased()) {
+                throw node.raise(PythonBuiltinClassType.ValueError, ErrorMessages.MEMORYVIEW_RELEASED);
+            }
+            SequenceStorage storage = view.getOwner().getSequenceStorage();
+            if (storage instanceof ByteSequenceStorage && view.isContiguous() && view.isValidFor(storage)) {
+                return ByteBuffer.wrap(((ByteSequenceStorage) storage).getInternalByteArray(), view.getOffset(), view.getNBytes());
+            }
+        }
+        PythonObjectLibrary lib = PythonObjectLibrary.getUncached();
+        if (!(obj instanceof String || obj instanceof PString) && lib.isBuffer(obj)) {
+            try {
+                return ByteBuffer.wrap(lib.getBufferBytes(obj));
+            } catch (UnsupportedMessageException e) {
+                // fall through
+            }
+        }
+        throw node.raise(PythonBuiltinClassType.TypeError, ErrorMessages.BYTESLIKE_OBJ_REQUIRED, obj);
+    }
+
+    /**
+     * Wraps the first {@code n} bytes of a writable {@code bytearray} or contiguous managed
+     * memoryview over one in place, or returns {@code null} if the target has to be written item by
+     * item.
+     */
+    @TruffleBoundary
+    static ByteBuffer wrapTarget(Object obj, int n) {
+        SequenceStorage storage;
+        int offset = 0;
+        if (obj instanceof PByteArray) {
+            storage = ((PByteArray) obj).getSequenceStorage();
+        } else if (obj instanceof PMemoryView && ((PMemoryView) obj).isManaged()) {
+            PMemoryView view = (PMemoryView) obj;
+            storage = view.getOwner().getSequenceStorage();
+            if (view.isReleased() || view.isReadonly() || !view.isContiguous() || !view.isValidFor(storage) || view.getNBytes() < n) {
+                return null;
+            }
+            offset = view.getOffset();
+        } else {
+            return null;
+        }
+        if (!(storage instanceof ByteSequenceStorage) || offset + n > storage.length()) {
+            return null;
+        }
+        return ByteBuffer.wrap(((ByteSequenceStorage) storage).getInternalByteArray(), offset, n);
+    }
+
     // recv(bufsize[, flags])
     @Builtin(name = "recv", minNumOfPositionalArgs = 2, maxNumOfPositionalArgs = 3)
     @GenerateNodeFactory
     abstract static class RecvNode extends PythonTernaryBuiltinNode {
         @Specialization
-        Object recv(PSocket socket, int bufsize, int flags) {
-            return recv(socket, bufsize, PNone.NONE);
+        Object recv(VirtualFrame frame, PSocket socket, int bufsize, int flags) {
+            return recv(frame, socket, bufsize, PNone.NONE);
         }
 
         @Specialization
-        @TruffleBoundary
-        PBytes recv(PSocket socket, int bufsize, PNone flags) {
-            SocketChannel nativeSocket = socket.getSocket();
-            ByteBuffer readBytes = ByteBuffer.allocate(bufsize);
+        PBytes recv(VirtualFrame frame, PSocket socket, int bufsize, PNone flags) {
+            if (bufsize < 0) {
+                throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.NEGATIVE_BUFFERSIZE_IN_S, "recv");
+            }
+            checkConnected(frame, this, socket);
+            byte[] data;
             try {
-                int length = nativeSocket.read(readBytes);
-                return factory().createBytes(Arrays.copyOfRange(readBytes.array(), 0, length));
-            } catch (IOException | NullPointerException e) {
-                throw raise(PythonBuiltinClassType.OSError);
+                data = readBytes(socket, bufsize);
+            } catch (NotYetConnectedException e) {
+                throw raiseOSError(frame, OSErrorEnum.ENOTCONN, e);
+            } catch (IOException e) {
+                throw raiseOSError(frame, e);
+            }
+            if (data == null) {
+                throw raiseOSError(frame, OSErrorEnum.EAGAIN);
             }
+            return factory().createBytes(data);
         }
     }
 
@@ -379,81 +545,53 @@ public class SocketBuiltins extends PythonBuiltins {
         }
     }
 
-    // recv_into(bufsize[, flags])
-    @Builtin(name = "recv_into", minNumOfPositionalArgs = 1, maxNumOfPositionalArgs = 3, needsFrame = true)
+    // recv_into(buffer[, nbytes[, flags]])
+    @Builtin(name = "recv_into", minNumOfPositionalArgs = 2, parameterNames = {"$self", "buffer", "nbytes", "flags"})
     @GenerateNodeFactory
-    abstract static class RecvIntoNode extends PythonTernaryBuiltinNode {
-        protected static SequenceStorageNodes.SetItemNode createSetItem() {
-            return SequenceStorageNodes.SetItemNode.create("cannot happen: non-byte store in socket.recv_into");
-        }
+    abstract static class RecvIntoNode extends PythonQuaternaryBuiltinNode {
 
         @Specialization
-        Object recvInto(VirtualFrame frame, PSocket socket, PMemoryView buffer, Object flags,
-                        @Cached("createBinaryProfile()") ConditionProfile byteStorage,
+        Object recvInto(VirtualFrame frame, PSocket socket, Object buffer, Object nbytesObj, Object flags,
+                        @Cached("createBinaryProfile()") ConditionProfile directTarget,
                         @CachedLibrary(limit = "getCallSiteInlineCacheMaxDepth()") PythonObjectLibrary lib,
                         @Cached("create(__LEN__)") LookupAndCallUnaryNode callLen,
                         @Cached("create(__SETITEM__)") LookupAndCallTernaryNode setItem) {
             int bufferLen = lib.asSizeWithState(callLen.executeObject(frame, buffer), PArguments.getThreadState(frame));
-            byte[] targetBuffer = new byte[bufferLen];
-            ByteBuffer byteBuffer = ByteBuffer.wrap(targetBuffer);
+            int nbytes = bufferLen;
+            if (!PGuards.isNoValue(nbytesObj)) {
+                nbytes = lib.asSizeWithState(nbytesObj, PArguments.getThreadState(frame));
+                if (nbytes < 0) {
+                    throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.NEGATIVE_BUFFERSIZE_IN_S, "recv_into");
+                } else if (nbytes > bufferLen) {
+                    throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.BUFFER_TOO_SMALL_FOR_REQUESTED_BYTES);
+                } else if (nbytes == 0) {
+                    nbytes = bufferLen;
+                }
+            }
+            checkConnected(frame, this, socket);
+            ByteBuffer target = wrapTarget(buffer, nbytes);
             int length;
             try {
-                length = fillBuffer(socket, byteBuffer);
+                if (directTarget.profile(target != null)) {
+                    // the data is copied from the socket's direct buffer straight into the storage
+                    length = readInto(socket, target);
+                } else {
+                    byte[] data = readBytes(socket, nbytes);
+                    length = data == null ? -1 : data.length;
+                    for (int i = 0; i < length; i++) {
+                        setItem.execute(frame, buffer, i, data[i] & 0xFF);
+                    }
+                }
             } catch (NotYetConnectedException e) {
                 throw raiseOSError(frame, OSErrorEnum.ENOTCONN, e);
             } catch (IOException e) {
                 throw raiseOSError(frame, OSErrorEnum.EBADF, e);
             }
-            for (int i = 0; i < length; i++) {
-                int b = targetBuffer[i];
-                if (b < 0) {
-                    b += 256;
-                }
-                setItem.execute(frame, buffer, i, (Object) b);
+            if (length < 0) {
+                throw raiseOSError(frame, OSErrorEnum.EAGAIN);
             }
             return length;
         }
-
-        @Specialization
-        Object recvInto(VirtualFrame frame, PSocket socket, PByteArray buffer, Object flags,
-                        @Cached("createBinaryProfile()") ConditionProfile byteStorage,
-                        @Cached SequenceStorageNodes.LenNode lenNode,
-                        @Cached("createSetItem()") SequenceStorageNodes.SetItemNode setItem) {
-            SequenceStorage storage = buffer.getSequenceStorage();
-            int bufferLen = lenNode.execute(storage);
-            if (byteStorage.profile(storage instanceof ByteSequenceStorage)) {
-                ByteBuffer byteBuffer = ((ByteSequenceStorage) storage).getBufferView();
-                try {
-                    return fillBuffer(socket, byteBuffer);
-                } catch (NotYetConnectedException e) {
-                    throw raiseOSError(frame, OSErrorEnum.ENOTCONN, e);
-                } catch (IOException e) {
-                    throw raiseOSError(frame, OSErrorEnum.EBADF, e);
-                }
-            } else {
-                byte[] targetBuffer = new byte[bufferLen];
-                ByteBuffer byteBuffer = ByteBuffer.wrap(targetBuffer);
-                int length;
-                try {
-                    length = fillBuffer(socket, byteBuffer);
-                } catch (NotYetConnectedException e) {
-                    throw raiseOSError(frame, OSErrorEnum.ENOTCONN, e);
-                } catch (IOException e) {
-                    throw raiseOSError(frame, OSErrorEnum.EBADF, e);
-                }
-                for (int i = 0; i < length; i++) {
-                    // we don't allow generalization
-                    setItem.execute(frame, storage, i, targetBuffer[i]);
-                }
-                return length;
-            }
-        }
-
-        @TruffleBoundary
-        private static int fillBuffer(PSocket socket, ByteBuffer byteBuffer) throws IOException {
-            SocketChannel nativeSocket = socket.getSocket();
-            return nativeSocket.read(byteBuffer);
-        }
     }
 
     // recvmsg(bufsize[, ancbufsize[, flags]])
@@ -481,48 +619,42 @@ public class SocketBuiltins extends PythonBuiltins {
     @GenerateNodeFactory
     abstract static class SendNode extends PythonTernaryBuiltinNode {
         @Specialization
-        Object send(VirtualFrame frame, PSocket socket, PBytes bytes, Object flags,
-                        @Cached SequenceStorageNodes.ToByteArrayNode toBytes) {
+        Object send(VirtualFrame frame, PSocket socket, Object bytes, Object flags) {
             // TODO: do not ignore flags
-            if (socket.getSocket() == null) {
-                throw raise(PythonBuiltinClassType.OSError);
-            }
-
-            if (!socket.isOpen()) {
-                throw raise(PythonBuiltinClassType.OSError);
-            }
-
+            checkConnected(frame, this, socket);
+            ByteBuffer source = wrapSource(this, bytes);
+            int written;
             try {
-                byte[] storageArray = toBytes.execute(bytes.getSequenceStorage());
-                ByteBuffer buffer = ByteBuffer.wrap(storageArray);
-                doWrite(socket, buffer);
-                return PNone.NONE;
+                written = writeFrom(socket, source);
             } catch (IOException e) {
-                throw raise(PythonBuiltinClassType.OSError);
+                throw raiseOSError(frame, e);
             }
+            if (written == 0 && source.hasRemaining()) {
+                throw raiseOSError(frame, OSErrorEnum.EAGAIN);
+            }
+            return written;
         }
     }
 
-    @TruffleBoundary
-    private static void doWrite(PSocket socket, ByteBuffer buffer) throws IOException {
-        socket.getSocket().write(buffer);
-    }
-
     // sendall(bytes[, flags])
     @Builtin(name = "sendall", minNumOfPositionalArgs = 2, maxNumOfPositionalArgs = 3)
     @GenerateNodeFactory
     abstract static class SendAllNode extends PythonTernaryBuiltinNode {
         @Specialization
-        Object sendAll(VirtualFrame frame, PSocket socket, PIBytesLike bytes, Object flags,
-                        @Cached SequenceStorageNodes.ToByteArrayNode toBytes) {
+        Object sendAll(VirtualFrame frame, PSocket socket, Object bytes, Object flags) {
             // TODO: do not ignore flags
+            checkConnected(frame, this, socket);
+            ByteBuffer source = wrapSource(this, bytes);
             try {
-                ByteBuffer buffer = ByteBuffer.wrap(toBytes.execute(bytes.getSequenceStorage()));
-                doWrite(socket, buffer);
-                return PNone.NONE;
+                while (source.hasRemaining()) {
+                    if (writeFrom(socket, source) == 0) {
+                        throw raiseOSError(frame, OSErrorEnum.EAGAIN);
+                    }
+                }
             } catch (IOException e) {
-                throw raise(PythonBuiltinClassType.OSError);
+                throw raiseOSError(frame, e);
             }
+            return PNone.NONE;
         }
     }
 
@@ -546,8 +678,43 @@ public class SocketBuiltins extends PythonBuiltins {
     @Builtin(name = "sendmsg", minNumOfPositionalArgs = 2, maxNumOfPositionalArgs = 5)
     @GenerateNodeFactory
     abstract static class SendMsgNode extends PythonBuiltinNode {
-        @Specialization
-        Object sendMsg(PSocket socket, Object buffers, Object ancdata, int flags, Object address) {
+        @Specialization(guards = {"isNoValue(ancdata)", "isNoValue(address)"})
+        Object sendMsg(VirtualFrame frame, PSocket socket, Object buffers, PNone ancdata, Object flags, PNone address,
+                        @Cached GetIteratorNode getIteratorNode,
+                        @Cached("create()") GetNextNode getNextNode,
+                        @Cached IsBuiltinClassProfile stopIterationProfile) {
+            // TODO: do not ignore flags
+            checkConnected(frame, this, socket);
+            Object iterator = getIteratorNode.executeWith(frame, buffers);
+            ByteBuffer[] sources = new ByteBuffer[4];
+            int count = 0;
+            while (true) {
+                Object item;
+                try {
+                    item = getNextNode.execute(frame, iterator);
+                } catch (PException e) {
+                    e.expectStopIteration(stopIterationProfile);
+                    break;
+                }
+                if (count == sources.length) {
+                    sources = Arrays.copyOf(sources, count * 2);
+                }
+                sources[count++] = wrapSource(this, item);
+            }
+            long written;
+            try {
+                written = gatheringWrite(socket, sources, count);
+            } catch (IOException e) {
+                throw raiseOSError(frame, e);
+            }
+            if (written == 0 && hasRemaining(sources, count)) {
+                throw raiseOSError(frame, OSErrorEnum.EAGAIN);
+            }
+            return written;
+        }
+
+        @Specialization(guards = "!isNoValue(ancdata) || !isNoValue(address)")
+        Object sendMsg(PSocket socket, Object buffers, Object ancdata, Object flags, Object address) {
             return PNotImplemented.NOT_IMPLEMENTED;
         }
     }
@@ -0,0 +1,1215 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.sre;
+
+import java.util.Arrays;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * A backtracking matcher that directly executes the opcode format produced by
+ * {@code sre_compile._code}. This is a port of the matching loop in CPython's {@code sre_lib.h}:
+ * instead of recursing, every {@code DO_JUMP} pushes a {@link Context} and the continuation after
+ * the jump is selected by {@link Context#jump} once the callee returns. It is used for patterns
+ * TRegex cannot handle (e.g. backreferences and conditional groups).
+ * <p>
+ * A matcher holds the mutable state of a single match attempt, so it must not be shared between
+ * threads or reused while a match is in progress; {@link PSRECode#createMatcher()} creates one per
+ * call.
+ */
+public final class SREMatcher {
+    // opcodes, see sre_constants.py (MAGIC 20171005)
+    static final int FAILURE = 0;
+    static final int SUCCESS = 1;
+    static final int ANY = 2;
+    static final int ANY_ALL = 3;
+    static final int ASSERT = 4;
+    static final int ASSERT_NOT = 5;
+    static final int AT = 6;
+    static final int BRANCH = 7;
+    static final int CATEGORY = 9;
+    static final int CHARSET = 10;
+    static final int BIGCHARSET = 11;
+    static final int GROUPREF = 12;
+    static final int GROUPREF_EXISTS = 13;
+    static final int IN = 14;
+    static final int INFO = 15;
+    static final int JUMP = 16;
+    static final int LITERAL = 17;
+    static final int MARK = 18;
+    static final int MAX_UNTIL = 19;
+    static final int MIN_UNTIL = 20;
+    static final int NOT_LITERAL = 21;
+    static final int NEGATE = 22;
+    static final int RANGE = 23;
+    static final int REPEAT = 24;
+    static final int REPEAT_ONE = 25;
+    static final int MIN_REPEAT_ONE = 27;
+    static final int GROUPREF_IGNORE = 28;
+    static final int IN_IGNORE = 29;
+    static final int LITERAL_IGNORE = 30;
+    static final int NOT_LITERAL_IGNORE = 31;
+    static final int GROUPREF_LOC_IGNORE = 32;
+    static final int IN_LOC_IGNORE = 33;
+    static final int LITERAL_LOC_IGNORE = 34;
+    static final int NOT_LITERAL_LOC_IGNORE = 35;
+    static final int GROUPREF_UNI_IGNORE = 36;
+    static final int IN_UNI_IGNORE = 37;
+    static final int LITERAL_UNI_IGNORE = 38;
+    static final int NOT_LITERAL_UNI_IGNORE = 39;
+    static final int RANGE_UNI_IGNORE = 40;
+
+    // at codes
+    static final int AT_BEGINNING = 0;
+    static final int AT_BEGINNING_LINE = 1;
+    static final int AT_BEGINNING_STRING = 2;
+    static final int AT_BOUNDARY = 3;
+    static final int AT_NON_BOUNDARY = 4;
+    static final int AT_END = 5;
+    static final int AT_END_LINE = 6;
+    static final int AT_END_STRING = 7;
+    static final int AT_LOC_BOUNDARY = 8;
+    static final int AT_LOC_NON_BOUNDARY = 9;
+    static final int AT_UNI_BOUNDARY = 10;
+    static final int AT_UNI_NON_BOUNDARY = 11;
+
+    // category codes
+    static final int CATEGORY_DIGIT = 0;
+    static final int CATEGORY_NOT_DIGIT = 1;
+    static final int CATEGORY_SPACE = 2;
+    static final int CATEGORY_NOT_SPACE = 3;
+    static final int CATEGORY_WORD = 4;
+    static final int CATEGORY_NOT_WORD = 5;
+    static final int CATEGORY_LINEBREAK = 6;
+    static final int CATEGORY_NOT_LINEBREAK = 7;
+    static final int CATEGORY_LOC_WORD = 8;
+    static final int CATEGORY_LOC_NOT_WORD = 9;
+    static final int CATEGORY_UNI_DIGIT = 10;
+    static final int CATEGORY_UNI_NOT_DIGIT = 11;
+    static final int CATEGORY_UNI_SPACE = 12;
+    static final int CATEGORY_UNI_NOT_SPACE = 13;
+    static final int CATEGORY_UNI_WORD = 14;
+    static final int CATEGORY_UNI_NOT_WORD = 15;
+    static final int CATEGORY_UNI_LINEBREAK = 16;
+    static final int CATEGORY_UNI_NOT_LINEBREAK = 17;
+
+    static final int INFO_PREFIX = 1;
+    static final int INFO_CHARSET = 4;
+
+    /** {@code MAXREPEAT} (4294967295) as stored in the {@code int} code array. */
+    static final int MAXREPEAT = -1;
+
+    // continuation points after a jump
+    private static final int JUMP_NONE = 0;
+    private static final int JUMP_MAX_UNTIL_1 = 1;
+    private static final int JUMP_MAX_UNTIL_2 = 2;
+    private static final int JUMP_MAX_UNTIL_3 = 3;
+    private static final int JUMP_MIN_UNTIL_1 = 4;
+    private static final int JUMP_MIN_UNTIL_2 = 5;
+    private static final int JUMP_MIN_UNTIL_3 = 6;
+    private static final int JUMP_REPEAT = 7;
+    private static final int JUMP_REPEAT_ONE_1 = 8;
+    private static final int JUMP_REPEAT_ONE_2 = 9;
+    private static final int JUMP_MIN_REPEAT_ONE = 10;
+    private static final int JUMP_BRANCH = 11;
+    private static final int JUMP_ASSERT = 12;
+    private static final int JUMP_ASSERT_NOT = 13;
+
+    // results of a single step of the matching loop
+    private static final int RESULT_FAILURE = 0;
+    private static final int RESULT_SUCCESS = 1;
+    private static final int RESULT_JUMP = 2;
+    private static final int RESULT_CONTINUE = 3;
+
+    private final int[] code;
+    private final int groups;
+
+    // match state
+    private String str;
+    private byte[] bytes;
+    private int end;
+    private int start;
+    private int ptr;
+    private int[] marks;
+    private int lastmark;
+    private Repeat repeat;
+    private int[] markStack;
+    private int markStackTop;
+
+    /** Bookkeeping of a {@code REPEAT} opcode (CPython's {@code SRE_REPEAT}). */
+    private static final class Repeat {
+        final int pc;
+        final Repeat prev;
+        int count = -1;
+        int lastPtr = -1;
+
+        Repeat(int pc, Repeat prev) {
+            this.pc = pc;
+            this.prev = prev;
+        }
+    }
+
+    /** One activation of the matching loop (CPython's {@code SRE(match_context)}). */
+    private static final class Context {
+        final Context parent;
+        final boolean toplevel;
+        int pc;
+        int ptr;
+        int count;
+        int lastmark;
+        int chr;
+        int savedLastPtr;
+        Repeat rep;
+        int jump = JUMP_NONE;
+        int childPc;
+        boolean childToplevel;
+
+        Context(Context parent, int pc, int ptr, boolean toplevel) {
+            this.parent = parent;
+            this.pc = pc;
+            this.ptr = ptr;
+            this.toplevel = toplevel;
+        }
+    }
+
+    public SREMatcher(int[] code, int groups) {
+        this.code = code;
+        this.groups = groups;
+    }
+
+    public int getGroups() {
+        return groups;
+    }
+
+    /**
+     * Matches a {@code str} input. Returns the spans of all groups as {@code [start0, end0, start1,
+     * end1, ...]} with {@code -1} for unset groups, or {@code null} if there is no match.
+     */
+    @TruffleBoundary
+    public int[] exec(String input, int pos, boolean sticky) {
+        this.str = input;
+        this.bytes = null;
+        return exec(input.length(), pos, sticky);
+    }
+
+    /** Like {@link #exec(String, int, boolean)}, but for a bytes-like input. */
+    @TruffleBoundary
+    public int[] exec(byte[] input, int length, int pos, boolean sticky) {
+        this.str = null;
+        this.bytes = input;
+        return exec(length, pos, sticky);
+    }
+
+    private int[] exec(int length, int pos, boolean sticky) {
+        end = length;
+        if (marks == null) {
+            marks = new int[2 * (groups + 1)];
+            markStack = new int[16];
+        }
+        try {
+            int from = Math.min(Math.max(pos, 0), end);
+            if (sticky) {
+                return matchAt(from) ? result() : null;
+            }
+            for (int s = from; s <= end; s++) {
+                if (s < end && !canStartAt(s)) {
+                    continue;
+                }
+                if (matchAt(s)) {
+                    return result();
+                }
+            }
+            return null;
+        } finally {
+            str = null;
+            bytes = null;
+            repeat = null;
+        }
+    }
+
+    /**
+     * Uses the prefix or charset of the leading {@code INFO} block to skip positions where no match
+     * can start.
+     */
+    private boolean canStartAt(int s) {
+        if (code[0] != INFO) {
+            return true;
+        }
+        int flags = code[2];
+        if ((flags & INFO_PREFIX) != 0) {
+            return code[5] == 0 || charAt(s) == code[7];
+        } else if ((flags & INFO_CHARSET) != 0) {
+            return charset(5, charAt(s));
+        }
+        return true;
+    }
+
+    private boolean matchAt(int s) {
+        start = s;
+        ptr = s;
+        lastmark = -1;
+        repeat = null;
+        markStackTop = 0;
+        return match(0, true);
+    }
+
+    private int[] result() {
+        int[] spans = new int[2 * (groups + 1)];
+        spans[0] = start;
+        spans[1] = ptr;
+        for (int i = 0, j = 0; i < groups; i++, j += 2) {
+            if (j + 1 <= lastmark && marks[j] >= 0 && marks[j + 1] >= 0) {
+                spans[j + 2] = marks[j];
+                spans[j + 3] = marks[j + 1];
+            } else {
+                spans[j + 2] = -1;
+                spans[j + 3] = -1;
+            }
+        }
+        return spans;
+    }
+
+    private int charAt(int i) {
+        return str != null ? str.charAt(i) : bytes[i] & 0xFF;
+    }
+
+    private static long unsigned(int value) {
+        return value & 0xFFFFFFFFL;
+    }
+
+    private static boolean isMaxRepeat(int value) {
+        return value == MAXREPEAT;
+    }
+
+    /*
+     * The matching loop.
+     */
+
+    private boolean match(int startPc, boolean toplevel) {
+        Context ctx = enter(null, startPc, ptr, toplevel);
+        int result = ctx == null ? RESULT_FAILURE : RESULT_CONTINUE;
+        boolean ret = false;
+        for (;;) {
+            if (result == RESULT_CONTINUE) {
+                result = dispatch(ctx);
+            } else if (result == RESULT_JUMP) {
+                Context child = enter(ctx, ctx.childPc, ptr, ctx.childToplevel);
+                if (child == null) {
+                    ret = false;
+                    result = resume(ctx, false);
+                } else {
+                    ctx = child;
+                    result = RESULT_CONTINUE;
+                }
+            } else {
+                ret = result == RESULT_SUCCESS;
+                if (ctx == null || ctx.parent == null) {
+                    return ret;
+                }
+                ctx = ctx.parent;
+                result = resume(ctx, ret);
+            }
+        }
+    }
+
+    /**
+     * Creates the context for a jump target, skipping a leading {@code INFO} block. Returns
+     * {@code null} if the block's minimal width already rules out a match.
+     */
+    private Context enter(Context parent, int pc, int at, boolean toplevel) {
+        int target = pc;
+        if (code[target] == INFO) {
+            if (code[target + 3] != 0 && unsigned(end - at) < unsigned(code[target + 3])) {
+                return null;
+            }
+            target += code[target + 1] + 1;
+        }
+        return new Context(parent, target, at, toplevel);
+    }
+
+    private static int jump(Context ctx, int kind, int pc, boolean toplevel) {
+        ctx.jump = kind;
+        ctx.childPc = pc;
+        ctx.childToplevel = toplevel;
+        return RESULT_JUMP;
+    }
+
+    private int dispatch(Context ctx) {
+        for (;;) {
+            int op = code[ctx.pc++];
+            switch (op) {
+                case MARK: {
+                    int i = code[ctx.pc];
+                    if (i >= marks.length) {
+                        marks = Arrays.copyOf(marks, i + 2);
+                    }
+                    if (i > lastmark) {
+                        for (int j = lastmark + 1; j < i; j++) {
+                            marks[j] = -1;
+                        }
+                        lastmark = i;
+                    }
+                    marks[i] = ctx.ptr;
+                    ctx.pc++;
+                    break;
+                }
+                case LITERAL:
+                    if (ctx.ptr >= end || charAt(ctx.ptr) != code[ctx.pc]) {
+                        return RESULT_FAILURE;
+                    }
+                    ctx.pc++;
+                    ctx.ptr++;
+                    break;
+                case NOT_LITERAL:
+                    if (ctx.ptr >= end || charAt(ctx.ptr) == code[ctx.pc]) {
+                        return RESULT_FAILURE;
+                    }
+                    ctx.pc++;
+                    ctx.ptr++;
+                    break;
+                case SUCCESS:
+                    ptr = ctx.ptr;
+                    return RESULT_SUCCESS;
+                case AT:
+                    if (!at(ctx.ptr, code[ctx.pc])) {
+                        return RESULT_FAILURE;
+                    }
+                    ctx.pc++;
+                    break;
+                case CATEGORY:
+                    if (ctx.ptr >= end || !category(code[ctx.pc], charAt(ctx.ptr))) {
+                        return RESULT_FAILURE;
+                    }
+                    ctx.pc++;
+                    ctx.ptr++;
+                    break;
+                case ANY:
+                    if (ctx.ptr >= end || isLinebreak(charAt(ctx.ptr))) {
+                        return RESULT_FAILURE;
+                    }
+                    ctx.ptr++;
+                    break;
+                case ANY_ALL:
+                    if (ctx.ptr >= end) {
+                        return RESULT_FAILURE;
+                    }
+                    ctx.ptr++;
+                    break;
+                case IN:
+                    if (ctx.ptr >= end || !charset(ctx.pc + 1, charAt(ctx.ptr))) {
+                        return RESULT_FAILURE;
+                    }
+                    ctx.pc += code[ctx.pc];
+                    ctx.ptr++;
+                    break;
+                case LITERAL_IGNORE:
+                    if (ctx.ptr >= end || lowerAscii(charAt(ctx.ptr)) != code[ctx.pc]) {
+                        return RESULT_FAILURE;
+                    }
+                    ctx.pc++;
+                    ctx.ptr++;
+                    break;
+                case LITERAL_UNI_IGNORE:
+                    if (ctx.ptr >= end || lowerUnicode(charAt(ctx.ptr)) != code[ctx.pc]) {
+                        return RESULT_FAILURE;
+                    }
+                    ctx.pc++;
+                    ctx.ptr++;
+                    break;
+                case LITERAL_LOC_IGNORE:
+                    if (ctx.ptr >= end || !charLocIgnore(code[ctx.pc], charAt(ctx.ptr))) {
+                        return RESULT_FAILURE;
+                    }
+                    ctx.pc++;
+                    ctx.ptr++;
+                    break;
+                case NOT_LITERAL_IGNORE:
+                    if (ctx.ptr >= end || lowerAscii(charAt(ctx.ptr)) == code[ctx.pc]) {
+                        return RESULT_FAILURE;
+                    }
+                    ctx.pc++;
+                    ctx.ptr++;
+                    break;
+                case NOT_LITERAL_UNI_IGNORE:
+                    if (ctx.ptr >= end || lowerUnicode(charAt(ctx.ptr)) == code[ctx.pc]) {
+                        return RESULT_FAILURE;
+                    }
+                    ctx.pc++;
+                    ctx.ptr++;
+                    break;
+                case NOT_LITERAL_LOC_IGNORE:
+                    if (ctx.ptr >= end || charLocIgnore(code[ctx.pc], charAt(ctx.ptr))) {
+                        return RESULT_FAILURE;
+                    }
+                    ctx.pc++;
+                    ctx.ptr++;
+                    break;
+                case IN_IGNORE:
+                    if (ctx.ptr >= end || !charset(ctx.pc + 1, lowerAscii(charAt(ctx.ptr)))) {
+                        return RESULT_FAILURE;
+                    }
+                    ctx.pc += code[ctx.pc];
+                    ctx.ptr++;
+                    break;
+                case IN_UNI_IGNORE:
+                    if (ctx.ptr >= end || !charset(ctx.pc + 1, lowerUnicode(charAt(ctx.ptr)))) {
+                        return RESULT_FAILURE;
+                    }
+                    ctx.pc += code[ctx.pc];
+                    ctx.ptr++;
+                    break;
+                case IN_LOC_IGNORE:
+                    if (ctx.ptr >= end || !charsetLocIgnore(ctx.pc + 1, charAt(ctx.ptr))) {
+                        return RESULT_FAILURE;
+                    }
+                    ctx.pc += code[ctx.pc];
+                    ctx.ptr++;
+                    break;
+                case JUMP:
+                case INFO:
+                    ctx.pc += code[ctx.pc];
+                    break;
+                case BRANCH:
+                    // <BRANCH> <0=skip> code <JUMP> ... <NULL>
+                    ctx.lastmark = lastmark;
+                    ctx.rep = repeat;
+                    if (ctx.rep != null) {
+                        markPush(ctx.lastmark);
+                    }
+                    return branchNext(ctx);
+                case REPEAT_ONE: {
+                    // <REPEAT_ONE> <skip> <1=min> <2=max> item <SUCCESS> tail
+                    long min = unsigned(code[ctx.pc + 1]);
+                    if (min > end - ctx.ptr) {
+                        return RESULT_FAILURE;
+                    }
+                    ptr = ctx.ptr;
+                    ctx.count = count(ctx.pc + 3, code[ctx.pc + 2]);
+                    ctx.ptr += ctx.count;
+                    if (ctx.count < min) {
+                        return RESULT_FAILURE;
+                    }
+                    int tail = ctx.pc + code[ctx.pc];
+                    if (code[tail] == SUCCESS && ctx.ptr == end) {
+                        // tail is empty. we're finished
+                        ptr = ctx.ptr;
+                        return RESULT_SUCCESS;
+                    }
+                    ctx.lastmark = lastmark;
+                    if (code[tail] == LITERAL) {
+                        // tail starts with a literal. skip positions where the rest of the pattern
+                        // cannot possibly match
+                        ctx.chr = code[tail + 1];
+                        return repeatOneLiteral(ctx);
+                    }
+                    return repeatOneGeneral(ctx);
+                }
+                case MIN_REPEAT_ONE: {
+                    // <MIN_REPEAT_ONE> <skip> <1=min> <2=max> item <SUCCESS> tail
+                    long min = unsigned(code[ctx.pc + 1]);
+                    if (min > end - ctx.ptr) {
+                        return RESULT_FAILURE;
+                    }
+                    ptr = ctx.ptr;
+                    if (min == 0) {
+                        ctx.count = 0;
+                    } else {
+                        int n = count(ctx.pc + 3, code[ctx.pc + 1]);
+                        if (n < min) {
+                            return RESULT_FAILURE;
+                        }
+                        ctx.count = n;
+                        ctx.ptr += n;
+                    }
+                    if (code[ctx.pc + code[ctx.pc]] == SUCCESS) {
+                        // tail is empty. we're finished
+                        ptr = ctx.ptr;
+                        return RESULT_SUCCESS;
+                    }
+                    ctx.lastmark = lastmark;
+                    return minRepeatOneNext(ctx);
+                }
+                case REPEAT:
+                    // <REPEAT> <skip> <1=min> <2=max> item <UNTIL> tail
+                    ctx.rep = new Repeat(ctx.pc, repeat);
+                    repeat = ctx.rep;
+                    ptr = ctx.ptr;
+                    return jump(ctx, JUMP_REPEAT, ctx.pc + code[ctx.pc], ctx.toplevel);
+                case MAX_UNTIL: {
+                    // <REPEAT> <skip> <1=min> <2=max> item <MAX_UNTIL> tail
+                    ctx.rep = repeat;
+                    if (ctx.rep == null) {
+                        throw new IllegalStateException("MAX_UNTIL without REPEAT");
+                    }
+                    ptr = ctx.ptr;
+                    ctx.count = ctx.rep.count + 1;
+                    if (ctx.count < unsigned(code[ctx.rep.pc + 1])) {
+                        // not enough matches
+                        ctx.rep.count = ctx.count;
+                        return jump(ctx, JUMP_MAX_UNTIL_1, ctx.rep.pc + 3, ctx.toplevel);
+                    }
+                    int max = code[ctx.rep.pc + 2];
+                    if ((ctx.count < unsigned(max) || isMaxRepeat(max)) && ptr != ctx.rep.lastPtr) {
+                        // we may have enough matches, but if we can match another item, do so
+                        ctx.rep.count = ctx.count;
+                        ctx.lastmark = lastmark;
+                        markPush(ctx.lastmark);
+                        // zero-width match protection
+                        ctx.savedLastPtr = ctx.rep.lastPtr;
+                        ctx.rep.lastPtr = ptr;
+                        return jump(ctx, JUMP_MAX_UNTIL_2, ctx.rep.pc + 3, ctx.toplevel);
+                    }
+                    return maxUntilTail(ctx);
+                }
+                case MIN_UNTIL:
+                    // <REPEAT> <skip> <1=min> <2=max> item <MIN_UNTIL> tail
+                    ctx.rep = repeat;
+                    if (ctx.rep == null) {
+                        throw new IllegalStateException("MIN_UNTIL without REPEAT");
+                    }
+                    ptr = ctx.ptr;
+                    ctx.count = ctx.rep.count + 1;
+                    if (ctx.count < unsigned(code[ctx.rep.pc + 1])) {
+                        // not enough matches
+                        ctx.rep.count = ctx.count;
+                        return jump(ctx, JUMP_MIN_UNTIL_1, ctx.rep.pc + 3, ctx.toplevel);
+                    }
+                    ctx.lastmark = lastmark;
+                    // see if the tail matches
+                    repeat = ctx.rep.prev;
+                    return jump(ctx, JUMP_MIN_UNTIL_2, ctx.pc, ctx.toplevel);
+                case GROUPREF:
+                case GROUPREF_IGNORE:
+                case GROUPREF_UNI_IGNORE:
+                case GROUPREF_LOC_IGNORE: {
+                    // <GROUPREF> <group>
+                    int groupref = code[ctx.pc] * 2;
+                    if (groupref >= lastmark) {
+                        return RESULT_FAILURE;
+                    }
+                    int p = marks[groupref];
+                    int e = marks[groupref + 1];
+                    if (p < 0 || e < 0 || e < p) {
+                        return RESULT_FAILURE;
+                    }
+                    while (p < e) {
+                        if (ctx.ptr >= end || !sameChar(op, charAt(ctx.ptr), charAt(p))) {
+                            return RESULT_FAILURE;
+                        }
+                        p++;
+                        ctx.ptr++;
+                    }
+                    ctx.pc++;
+                    break;
+                }
+                case GROUPREF_EXISTS: {
+                    // <GROUPREF_EXISTS> <group> <skip> codeyes <JUMP> codeno ...
+                    int groupref = code[ctx.pc] * 2;
+                    if (groupref >= lastmark) {
+                        ctx.pc += code[ctx.pc + 1];
+                        break;
+                    }
+                    int p = marks[groupref];
+                    int e = marks[groupref + 1];
+                    if (p < 0 || e < 0 || e < p) {
+                        ctx.pc += code[ctx.pc + 1];
+                        break;
+                    }
+                    ctx.pc += 2;
+                    break;
+                }
+                case ASSERT:
+                    // <ASSERT> <skip> <back> <pattern>
+                    if (ctx.ptr < code[ctx.pc + 1]) {
+                        return RESULT_FAILURE;
+                    }
+                    ptr = ctx.ptr - code[ctx.pc + 1];
+                    return jump(ctx, JUMP_ASSERT, ctx.pc + 2, false);
+                case ASSERT_NOT:
+                    // <ASSERT_NOT> <skip> <back> <pattern>
+                    if (ctx.ptr >= code[ctx.pc + 1]) {
+                        ptr = ctx.ptr - code[ctx.pc + 1];
+                        ctx.lastmark = lastmark;
+                        markPush(ctx.lastmark);
+                        return jump(ctx, JUMP_ASSERT_NOT, ctx.pc + 2, false);
+                    }
+                    ctx.pc += code[ctx.pc];
+                    break;
+                case FAILURE:
+                    return RESULT_FAILURE;
+                default:
+                    throw new IllegalStateException("unknown opcode " + op);
+            }
+        }
+    }
+
+    private int resume(Context ctx, boolean ret) {
+        switch (ctx.jump) {
+            case JUMP_BRANCH:
+                if (ret) {
+                    if (ctx.rep != null) {
+                        markPopDiscard();
+                    }
+                    return RESULT_SUCCESS;
+                }
+                if (ctx.rep != null) {
+                    markPopKeep();
+                }
+                lastmark = ctx.lastmark;
+                ctx.pc += code[ctx.pc];
+                return branchNext(ctx);
+            case JUMP_REPEAT_ONE_1:
+                if (ret) {
+                    return RESULT_SUCCESS;
+                }
+                lastmark = ctx.lastmark;
+                ctx.ptr--;
+                ctx.count--;
+                return repeatOneLiteral(ctx);
+            case JUMP_REPEAT_ONE_2:
+                if (ret) {
+                    return RESULT_SUCCESS;
+                }
+                ctx.ptr--;
+                ctx.count--;
+                lastmark = ctx.lastmark;
+                return repeatOneGeneral(ctx);
+            case JUMP_MIN_REPEAT_ONE:
+                if (ret) {
+                    return RESULT_SUCCESS;
+                }
+                ptr = ctx.ptr;
+                if (count(ctx.pc + 3, 1) == 0) {
+                    return RESULT_FAILURE;
+                }
+                ctx.ptr++;
+                ctx.count++;
+                lastmark = ctx.lastmark;
+                return minRepeatOneNext(ctx);
+            case JUMP_REPEAT:
+                repeat = ctx.rep.prev;
+                return ret ? RESULT_SUCCESS : RESULT_FAILURE;
+            case JUMP_MAX_UNTIL_1:
+            case JUMP_MIN_UNTIL_1:
+                if (ret) {
+                    return RESULT_SUCCESS;
+                }
+                ctx.rep.count = ctx.count - 1;
+                ptr = ctx.ptr;
+                return RESULT_FAILURE;
+            case JUMP_MAX_UNTIL_2:
+                ctx.rep.lastPtr = ctx.savedLastPtr;
+                if (ret) {
+                    markPopDiscard();
+                    return RESULT_SUCCESS;
+                }
+                markPop();
+                lastmark = ctx.lastmark;
+                ctx.rep.count = ctx.count - 1;
+                ptr = ctx.ptr;
+                return maxUntilTail(ctx);
+            case JUMP_MAX_UNTIL_3:
+                if (ret) {
+                    return RESULT_SUCCESS;
+                }
+                repeat = ctx.rep;
+                ptr = ctx.ptr;
+                return RESULT_FAILURE;
+            case JUMP_MIN_UNTIL_2: {
+                if (ret) {
+                    return RESULT_SUCCESS;
+                }
+                repeat = ctx.rep;
+                ptr = ctx.ptr;
+                lastmark = ctx.lastmark;
+                int max = code[ctx.rep.pc + 2];
+                if ((ctx.count >= unsigned(max) && !isMaxRepeat(max)) || ptr == ctx.rep.lastPtr) {
+                    return RESULT_FAILURE;
+                }
+                ctx.rep.count = ctx.count;
+                // zero-width match protection
+                ctx.savedLastPtr = ctx.rep.lastPtr;
+                ctx.rep.lastPtr = ptr;
+                return jump(ctx, JUMP_MIN_UNTIL_3, ctx.rep.pc + 3, ctx.toplevel);
+            }
+            case JUMP_MIN_UNTIL_3:
+                ctx.rep.lastPtr = ctx.savedLastPtr;
+                if (ret) {
+                    return RESULT_SUCCESS;
+                }
+                ctx.rep.count = ctx.count - 1;
+                ptr = ctx.ptr;
+                return RESULT_FAILURE;
+            case JUMP_ASSERT:
+                if (!ret) {
+                    return RESULT_FAILURE;
+                }
+                ctx.pc += code[ctx.pc];
+                return RESULT_CONTINUE;
+            case JUMP_ASSERT_NOT:
+                if (ret) {
+                    markPopDiscard();
+                    return RESULT_FAILURE;
+                }
+                markPop();
+                lastmark = ctx.lastmark;
+                ctx.pc += code[ctx.pc];
+                return RESULT_CONTINUE;
+            default:
+                throw new IllegalStateException("unknown jump " + ctx.jump);
+        }
+    }
+
+    private int branchNext(Context ctx) {
+        for (; code[ctx.pc] != 0; ctx.pc += code[ctx.pc]) {
+            int first = code[ctx.pc + 1];
+            if (first == LITERAL && (ctx.ptr >= end || charAt(ctx.ptr) != code[ctx.pc + 2])) {
+                continue;
+            }
+            if (first == IN && (ctx.ptr >= end || !charset(ctx.pc + 3, charAt(ctx.ptr)))) {
+                continue;
+            }
+            ptr = ctx.ptr;
+            return jump(ctx, JUMP_BRANCH, ctx.pc + 1, ctx.toplevel);
+        }
+        if (ctx.rep != null) {
+            markPopDiscard();
+        }
+        return RESULT_FAILURE;
+    }
+
+    private int repeatOneLiteral(Context ctx) {
+        long min = unsigned(code[ctx.pc + 1]);
+        while (ctx.count >= min && (ctx.ptr >= end || charAt(ctx.ptr) != ctx.chr)) {
+            ctx.ptr--;
+            ctx.count--;
+        }
+        if (ctx.count < min) {
+            return RESULT_FAILURE;
+        }
+        ptr = ctx.ptr;
+        return jump(ctx, JUMP_REPEAT_ONE_1, ctx.pc + code[ctx.pc], ctx.toplevel);
+    }
+
+    private int repeatOneGeneral(Context ctx) {
+        if (ctx.count < unsigned(code[ctx.pc + 1])) {
+            return RESULT_FAILURE;
+        }
+        ptr = ctx.ptr;
+        return jump(ctx, JUMP_REPEAT_ONE_2, ctx.pc + code[ctx.pc], ctx.toplevel);
+    }
+
+    private int minRepeatOneNext(Context ctx) {
+        int max = code[ctx.pc + 2];
+        if (!isMaxRepeat(max) && ctx.count > unsigned(max)) {
+            return RESULT_FAILURE;
+        }
+        ptr = ctx.ptr;
+        return jump(ctx, JUMP_MIN_REPEAT_ONE, ctx.pc + code[ctx.pc], ctx.toplevel);
+    }
+
+    private int maxUntilTail(Context ctx) {
+        // cannot match more repeated items here. make sure the tail matches
+        repeat = ctx.rep.prev;
+        return jump(ctx, JUMP_MAX_UNTIL_3, ctx.pc, ctx.toplevel);
+    }
+
+    /**
+     * Counts how often the single character item at {@code pc} matches, starting at {@link #ptr}
+     * and consuming at most {@code maxcount} characters.
+     */
+    private int count(int pc, int maxcount) {
+        int from = ptr;
+        int limit = end;
+        if (!isMaxRepeat(maxcount) && unsigned(maxcount) < limit - from) {
+            limit = from + maxcount;
+        }
+        int p = from;
+        int chr;
+        switch (code[pc]) {
+            case IN:
+                while (p < limit && charset(pc + 2, charAt(p))) {
+                    p++;
+                }
+                break;
+            case ANY:
+                while (p < limit && !isLinebreak(charAt(p))) {
+                    p++;
+                }
+                break;
+            case ANY_ALL:
+                p = limit;
+                break;
+            case LITERAL:
+                chr = code[pc + 1];
+                while (p < limit && charAt(p) == chr) {
+                    p++;
+                }
+                break;
+            case LITERAL_IGNORE:
+                chr = code[pc + 1];
+                while (p < limit && lowerAscii(charAt(p)) == chr) {
+                    p++;
+                }
+                break;
+            case LITERAL_UNI_IGNORE:
+                chr = code[pc + 1];
+                while (p < limit && lowerUnicode(charAt(p)) == chr) {
+                    p++;
+                }
+                break;
+            case LITERAL_LOC_IGNORE:
+                chr = code[pc + 1];
+                while (p < limit && charLocIgnore(chr, charAt(p))) {
+                    p++;
+                }
+                break;
+            case NOT_LITERAL:
+                chr = code[pc + 1];
+                while (p < limit && charAt(p) != chr) {
+                    p++;
+                }
+                break;
+            case NOT_LITERAL_IGNORE:
+                chr = code[pc + 1];
+                while (p < limit && lowerAscii(charAt(p)) != chr) {
+                    p++;
+                }
+                break;
+            case NOT_LITERAL_UNI_IGNORE:
+                chr = code[pc + 1];
+                while (p < limit && lowerUnicode(charAt(p)) != chr) {
+                    p++;
+                }
+                break;
+            case NOT_LITERAL_LOC_IGNORE:
+                chr = code[pc + 1];
+                while (p < limit && !charLocIgnore(chr, charAt(p))) {
+                    p++;
+                }
+                break;
+            default:
+                // repeated single character pattern
+                while (ptr < limit) {
+                    int before = ptr;
+                    if (!match(pc, false)) {
+                        ptr = before;
+                        break;
+                    }
+                }
+                return ptr - from;
+        }
+        return p - from;
+    }
+
+    /*
+     * Saving and restoring marks (CPython's MARK_PUSH and friends).
+     */
+
+    private void markPush(int last) {
+        int n = last + 1;
+        if (markStackTop + n + 1 > markStack.length) {
+            markStack = Arrays.copyOf(markStack, Math.max(markStack.length * 2, markStackTop + n + 1));
+        }
+        if (n > 0) {
+            System.arraycopy(marks, 0, markStack, markStackTop, n);
+        }
+        markStackTop += n;
+        markStack[markStackTop++] = n;
+    }
+
+    private void markPop() {
+        markPopKeep();
+        markPopDiscard();
+    }
+
+    private void markPopKeep() {
+        int n = markStack[markStackTop - 1];
+        if (n > 0) {
+            System.arraycopy(markStack, markStackTop - 1 - n, marks, 0, n);
+        }
+    }
+
+    private void markPopDiscard() {
+        int n = markStack[markStackTop - 1];
+        markStackTop -= n + 1;
+    }
+
+    /*
+     * Character predicates.
+     */
+
+    private boolean at(int p, int atcode) {
+        switch (atcode) {
+            case AT_BEGINNING:
+            case AT_BEGINNING_STRING:
+                return p == 0;
+            case AT_BEGINNING_LINE:
+                return p == 0 || isLinebreak(charAt(p - 1));
+            case AT_END:
+                return (p + 1 == end && isLinebreak(charAt(p))) || p == end;
+            case AT_END_LINE:
+                return p == end || isLinebreak(charAt(p));
+            case AT_END_STRING:
+                return p == end;
+            case AT_BOUNDARY:
+            case AT_NON_BOUNDARY:
+            case AT_LOC_BOUNDARY:
+            case AT_LOC_NON_BOUNDARY:
+            case AT_UNI_BOUNDARY:
+            case AT_UNI_NON_BOUNDARY: {
+                if (end == 0) {
+                    return false;
+                }
+                int word = atcode == AT_BOUNDARY || atcode == AT_NON_BOUNDARY ? CATEGORY_WORD : atcode == AT_LOC_BOUNDARY || atcode == AT_LOC_NON_BOUNDARY ? CATEGORY_LOC_WORD : CATEGORY_UNI_WORD;
+                boolean thatp = p > 0 && category(word, charAt(p - 1));
+                boolean thisp = p < end && category(word, charAt(p));
+                boolean boundary = atcode == AT_BOUNDARY || atcode == AT_LOC_BOUNDARY || atcode == AT_UNI_BOUNDARY;
+                return boundary ? thisp != thatp : thisp == thatp;
+            }
+            default:
+                return false;
+        }
+    }
+
+    private boolean charset(int setStart, int ch) {
+        boolean ok = true;
+        int set = setStart;
+        for (;;) {
+            switch (code[set++]) {
+                case FAILURE:
+                    return !ok;
+                case LITERAL:
+                    // <LITERAL> <code>
+                    if (ch == code[set]) {
+                        return ok;
+                    }
+                    set++;
+                    break;
+                case CATEGORY:
+                    // <CATEGORY> <code>
+                    if (category(code[set], ch)) {
+                        return ok;
+                    }
+                    set++;
+                    break;
+                case CHARSET:
+                    // <CHARSET> <bitmap> (256 bits in 8 words)
+                    if (ch < 256 && (code[set + (ch >> 5)] & (1 << (ch & 31))) != 0) {
+                        return ok;
+                    }
+                    set += 8;
+                    break;
+                case RANGE:
+                    // <RANGE> <lower> <upper>
+                    if (code[set] <= ch && ch <= code[set + 1]) {
+                        return ok;
+                    }
+                    set += 2;
+                    break;
+                case RANGE_UNI_IGNORE: {
+                    // <RANGE_UNI_IGNORE> <lower> <upper>
+                    if (code[set] <= ch && ch <= code[set + 1]) {
+                        return ok;
+                    }
+                    int uch = Character.toUpperCase(ch);
+                    if (code[set] <= uch && uch <= code[set + 1]) {
+                        return ok;
+                    }
+                    set += 2;
+                    break;
+                }
+                case NEGATE:
+                    ok = !ok;
+                    break;
+                case BIGCHARSET: {
+                    // <BIGCHARSET> <blockcount> <256 blockindices> <blocks>
+                    int count = code[set++];
+                    int block = -1;
+                    if (ch < 0x10000) {
+                        int index = ch >> 8;
+                        block = (code[set + (index >> 2)] >>> ((index & 3) * 8)) & 0xFF;
+                    }
+                    set += 64;
+                    if (block >= 0) {
+                        int bit = block * 256 + (ch & 255);
+                        if ((code[set + (bit >> 5)] & (1 << (ch & 31))) != 0) {
+                            return ok;
+                        }
+                    }
+                    set += count * 8;
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("unknown charset opcode " + code[set - 1]);
+            }
+        }
+    }
+
+    private boolean charsetLocIgnore(int set, int ch) {
+        int lo = lowerLocale(ch);
+        if (charset(set, lo)) {
+            return true;
+        }
+        int up = upperLocale(ch);
+        return up != lo && charset(set, up);
+    }
+
+    private boolean sameChar(int op, int a, int b) {
+        switch (op) {
+            case GROUPREF_IGNORE:
+                return lowerAscii(a) == lowerAscii(b);
+            case GROUPREF_UNI_IGNORE:
+                return lowerUnicode(a) == lowerUnicode(b);
+            case GROUPREF_LOC_IGNORE:
+                return lowerLocale(a) == lowerLocale(b);
+            default:
+                return a == b;
+        }
+    }
+
+    private static boolean category(int category, int ch) {
+        switch (category) {
+            case CATEGORY_DIGIT:
+                return isAsciiDigit(ch);
+            case CATEGORY_NOT_DIGIT:
+                return !isAsciiDigit(ch);
+            case CATEGORY_SPACE:
+                return isAsciiSpace(ch);
+            case CATEGORY_NOT_SPACE:
+                return !isAsciiSpace(ch);
+            case CATEGORY_WORD:
+            case CATEGORY_LOC_WORD:
+                return isAsciiWord(ch);
+            case CATEGORY_NOT_WORD:
+            case CATEGORY_LOC_NOT_WORD:
+                return !isAsciiWord(ch);
+            case CATEGORY_LINEBREAK:
+                return isLinebreak(ch);
+            case CATEGORY_NOT_LINEBREAK:
+                return !isLinebreak(ch);
+            case CATEGORY_UNI_DIGIT:
+                return Character.getType(ch) == Character.DECIMAL_DIGIT_NUMBER;
+            case CATEGORY_UNI_NOT_DIGIT:
+                return Character.getType(ch) != Character.DECIMAL_DIGIT_NUMBER;
+            case CATEGORY_UNI_SPACE:
+                return isUnicodeSpace(ch);
+            case CATEGORY_UNI_NOT_SPACE:
+                return !isUnicodeSpace(ch);
+            case CATEGORY_UNI_WORD:
+                return isUnicodeWord(ch);
+            case CATEGORY_UNI_NOT_WORD:
+                return !isUnicodeWord(ch);
+            case CATEGORY_UNI_LINEBREAK:
+                return isUnicodeLinebreak(ch);
+            case CATEGORY_UNI_NOT_LINEBREAK:
+                return !isUnicodeLinebreak(ch);
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isAsciiDigit(int ch) {
+        return ch >= '0' && ch <= '9';
+    }
+
+    private static boolean isAsciiSpace(int ch) {
+        return ch == ' ' || (ch >= '\t' && ch <= '\r');
+    }
+
+    private static boolean isAsciiWord(int ch) {
+        return ch < 128 && (Character.isLetterOrDigit(ch) || ch == '_');
+    }
+
+    private static boolean isLinebreak(int ch) {
+        return ch == '\n';
+    }
+
+    private static boolean isUnicodeSpace(int ch) {
+        return (ch >= '\t' && ch <= '\r') || (ch >= 0x1C && ch <= 0x1F) || ch == 0x85 || Character.isSpaceChar(ch);
+    }
+
+    private static boolean isUnicodeWord(int ch) {
+        if (ch == '_' || Character.isLetterOrDigit(ch)) {
+            return true;
+        }
+        int type = Character.getType(ch);
+        return type == Character.LETTER_NUMBER || type == Character.OTHER_NUMBER;
+    }
+
+    private static boolean isUnicodeLinebreak(int ch) {
+        switch (ch) {
+            case '\n':
+            case 0x0B:
+            case 0x0C:
+            case '\r':
+            case 0x1C:
+            case 0x1D:
+            case 0x1E:
+            case 0x85:
+            case 0x2028:
+            case 0x2029:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static int lowerAscii(int ch) {
+        return ch >= 'A' && ch <= 'Z' ? ch + ('a' - 'A') : ch;
+    }
+
+    private static int lowerLocale(int ch) {
+        return ch < 256 ? lowerAscii(ch) : ch;
+    }
+
+    private static int upperLocale(int ch) {
+        return ch >= 'a' && ch <= 'z' ? ch - ('a' - 'A') : ch;
+    }
+
+    private static int lowerUnicode(int ch) {
+        return Character.toLowerCase(ch);
+    }
+
+    private static boolean charLocIgnore(int pattern, int ch) {
+        return ch == pattern || lowerLocale(ch) == pattern || upperLocale(ch) == pattern;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.struct;
+
+import com.oracle.graal.python.nodes.ErrorMessages;
+
+/**
+ * A single field of a compiled struct format. Every code except padding consumes exactly one value;
+ * repeat counts are expanded at compile time, except for {@code 's'} and {@code 'p'} where the
+ * count is the length of the string field.
+ */
+public final class FormatCode {
+    final char code;
+    /** The byte offset of this field relative to the start of the struct. */
+    final int offset;
+    /** The number of bytes occupied by this field. */
+    final int size;
+    /** Whether the field holds a signed integer (only meaningful for integer codes). */
+    final boolean signed;
+
+    /*
+     * The accepted range for integer codes. Values outside of [min, max] raise 'rangeError', values
+     * that don't even fit into 64 bits (or negative values for codes that convert with C's
+     * 'unsigned long') raise 'overflowError'.
+     */
+    final long min;
+    final long max;
+    final String rangeErrorName;
+    final String overflowError;
+    final boolean negativeOverflows;
+
+    private FormatCode(char code, int offset, int size, boolean signed, long min, long max, String rangeErrorName, String overflowError, boolean negativeOverflows) {
+        this.code = code;
+        this.offset = offset;
+        this.size = size;
+        this.signed = signed;
+        this.min = min;
+        this.max = max;
+        this.rangeErrorName = rangeErrorName;
+        this.overflowError = overflowError;
+        this.negativeOverflows = negativeOverflows;
+    }
+
+    static FormatCode create(char code, int offset, int size, boolean nativeMode) {
+        switch (code) {
+            case 'b':
+                return integer(code, offset, size, true, "byte", ErrorMessages.ARG_OUT_OF_RANGE, false);
+            case 'B':
+                return integer(code, offset, size, false, "ubyte", ErrorMessages.ARG_OUT_OF_RANGE, false);
+            case 'h':
+                return integer(code, offset, size, true, nativeMode ? "short" : "'h'", ErrorMessages.ARG_OUT_OF_RANGE, false);
+            case 'H':
+                return integer(code, offset, size, false, nativeMode ? "ushort" : "'H'", ErrorMessages.ARG_OUT_OF_RANGE, !nativeMode);
+            case 'i':
+            case 'l':
+            case 'q':
+            case 'n':
+                return integer(code, offset, size, true, "'" + code + "'", size == 8 && !nativeMode ? ErrorMessages.INT_TOO_LARGE_TO_CONVERT : ErrorMessages.ARG_OUT_OF_RANGE, false);
+            case 'I':
+            case 'L':
+            case 'Q':
+            case 'N':
+                return integer(code, offset, size, false, "'" + code + "'", size == 8 && !nativeMode ? ErrorMessages.INT_TOO_LARGE_TO_CONVERT : ErrorMessages.ARG_OUT_OF_RANGE, true);
+            case 'P':
+                return integer(code, offset, size, false, "'P'", ErrorMessages.INT_TOO_LARGE_TO_CONVERT, false);
+            default:
+                return new FormatCode(code, offset, size, false, 0, 0, null, null, false);
+        }
+    }
+
+    private static FormatCode integer(char code, int offset, int size, boolean signed, String rangeErrorName, String overflowError, boolean negativeOverflows) {
+        long min;
+        long max;
+        if (size == 8) {
+            // pointers are converted like C's PyLong_AsVoidPtr, which accepts negative values
+            min = signed || code == 'P' ? Long.MIN_VALUE : 0;
+            max = Long.MAX_VALUE;
+        } else if (signed) {
+            max = (1L << (size * 8 - 1)) - 1;
+            min = -max - 1;
+        } else {
+            min = 0;
+            max = (1L << (size * 8)) - 1;
+        }
+        return new FormatCode(code, offset, size, signed, min, max, rangeErrorName, overflowError, negativeOverflows);
+    }
+
+    public char getCode() {
+        return code;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    boolean isInteger() {
+        return rangeErrorName != null;
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.struct;
+
+import static com.oracle.graal.python.builtins.PythonBuiltinClassType.StructError;
+
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PRaiseNode;
+import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * An immutable, compiled struct format. The format string is parsed once into an array of
+ * {@link FormatCode field codes} with precomputed offsets, so packing and unpacking only need to
+ * walk the array. Since the compiled format does not depend on the context, compiled formats are
+ * shared in a small global cache keyed by the format string.
+ */
+public final class StructFormat {
+    /** Formats with more fields than this are packed and unpacked by a loop in compiled code. */
+    public static final int MAX_UNROLLED_CODES = 32;
+
+    private static final int MAX_CACHE_SIZE = 100;
+    private static final HashMap<String, StructFormat> CACHE = new HashMap<>();
+
+    private static final boolean NATIVE_LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    private final String format;
+    @CompilationFinal(dimensions = 1) private final FormatCode[] codes;
+    private final int size;
+    private final boolean littleEndian;
+
+    private StructFormat(String format, FormatCode[] codes, int size, boolean littleEndian) {
+        this.format = format;
+        this.codes = codes;
+        this.size = size;
+        this.littleEndian = littleEndian;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public FormatCode[] getCodes() {
+        return codes;
+    }
+
+    /** The number of bytes of a packed struct. */
+    public int getSize() {
+        return size;
+    }
+
+    /** The number of values of a packed struct. */
+    public int getLength() {
+        return codes.length;
+    }
+
+    public boolean isLittleEndian() {
+        return littleEndian;
+    }
+
+    public boolean isUnrollable() {
+        return codes.length <= MAX_UNROLLED_CODES;
+    }
+
+    /**
+     * Returns the compiled format for the given format string, compiling and caching it if
+     * necessary. Raises {@code struct.error} if the format is invalid.
+     */
+    @TruffleBoundary
+    public static StructFormat get(String format) {
+        synchronized (CACHE) {
+            StructFormat result = CACHE.get(format);
+            if (result != null) {
+                return result;
+            }
+        }
+        StructFormat result = compile(format);
+        synchronized (CACHE) {
+            if (CACHE.size() >= MAX_CACHE_SIZE) {
+                CACHE.clear();
+            }
+            CACHE.put(format, result);
+        }
+        return result;
+    }
+
+    @TruffleBoundary
+    public static void clearCache() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    private static StructFormat compile(String format) {
+        int len = format.length();
+        int i = 0;
+        boolean nativeMode = false;
+        boolean littleEndian = NATIVE_LITTLE_ENDIAN;
+        switch (len > 0 ? format.charAt(0) : '\0') {
+            case '@':
+                nativeMode = true;
+                i++;
+                break;
+            case '=':
+                i++;
+                break;
+            case '<':
+                littleEndian = true;
+                i++;
+                break;
+            case '>':
+            case '!':
+                littleEndian = false;
+                i++;
+                break;
+            default:
+                nativeMode = true;
+                break;
+        }
+
+        ArrayList<FormatCode> codes = new ArrayList<>();
+        long size = 0;
+        while (i < len) {
+            char c = format.charAt(i++);
+            if (isSpace(c)) {
+                continue;
+            }
+            int num = 1;
+            if (isDigit(c)) {
+                num = c - '0';
+                while (i < len && isDigit(c = format.charAt(i))) {
+                    if (num > (Integer.MAX_VALUE - (c - '0')) / 10) {
+                        throw PRaiseNode.getUncached().raise(StructError, ErrorMessages.TOTAL_STRUCT_SIZE_TOO_LONG);
+                    }
+                    num = num * 10 + (c - '0');
+                    i++;
+                }
+                if (i >= len) {
+                    throw PRaiseNode.getUncached().raise(StructError, ErrorMessages.REPEAT_COUNT_WITHOUT_FMT);
+                }
+                c = format.charAt(i++);
+            }
+            int itemSize = itemSize(c, nativeMode);
+            if (nativeMode && itemSize > 1) {
+                size = (size + itemSize - 1) / itemSize * itemSize;
+            }
+            if (size + (long) num * itemSize > Integer.MAX_VALUE) {
+                throw PRaiseNode.getUncached().raise(StructError, ErrorMessages.TOTAL_STRUCT_SIZE_TOO_LONG);
+            }
+            if (c == 's' || c == 'p') {
+                codes.add(FormatCode.create(c, (int) size, num, nativeMode));
+            } else if (c != 'x') {
+                for (int j = 0; j < num; j++) {
+                    codes.add(FormatCode.create(c, (int) size + j * itemSize, itemSize, nativeMode));
+                }
+            }
+            size += (long) num * itemSize;
+        }
+        return new StructFormat(format, codes.toArray(new FormatCode[codes.size()]), (int) size, littleEndian);
+    }
+
+    /**
+     * The size of a format character in the native or standard table. In native mode, the alignment
+     * of a field is equal to its size.
+     */
+    private static int itemSize(char c, boolean nativeMode) {
+        switch (c) {
+            case 'x':
+            case 'b':
+            case 'B':
+            case 'c':
+            case '?':
+            case 's':
+            case 'p':
+                return 1;
+            case 'h':
+            case 'H':
+            case 'e':
+                return 2;
+            case 'i':
+            case 'I':
+            case 'f':
+                return 4;
+            case 'l':
+            case 'L':
+                return nativeMode ? 8 : 4;
+            case 'q':
+            case 'Q':
+            case 'd':
+                return 8;
+            case 'n':
+            case 'N':
+            case 'P':
+                if (nativeMode) {
+                    return 8;
+                }
+                break;
+        }
+        throw PRaiseNode.getUncached().raise(StructError, ErrorMessages.BAD_CHAR_IN_STRUCT_FMT);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\u000b' || c == '\f';
+    }
+}
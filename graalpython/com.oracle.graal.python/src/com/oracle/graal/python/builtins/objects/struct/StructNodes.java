@@ -0,0 +1,763 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.struct;
+
+import static com.oracle.graal.python.builtins.PythonBuiltinClassType.IndexError;
+import static com.oracle.graal.python.builtins.PythonBuiltinClassType.OverflowError;
+import static com.oracle.graal.python.builtins.PythonBuiltinClassType.StructError;
+import static com.oracle.graal.python.builtins.PythonBuiltinClassType.TypeError;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.oracle.graal.python.builtins.objects.bytes.PByteArray;
+import com.oracle.graal.python.builtins.objects.bytes.PBytes;
+import com.oracle.graal.python.builtins.objects.bytes.PIBytesLike;
+import com.oracle.graal.python.builtins.objects.function.PArguments;
+import com.oracle.graal.python.builtins.objects.ints.PInt;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.builtins.objects.tuple.PTuple;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.PNodeWithContext;
+import com.oracle.graal.python.nodes.PRaiseNode;
+import com.oracle.graal.python.nodes.SpecialMethodNames;
+import com.oracle.graal.python.nodes.call.special.LookupAndCallTernaryNode;
+import com.oracle.graal.python.nodes.util.CannotCastException;
+import com.oracle.graal.python.nodes.util.CastToJavaStringNode;
+import com.oracle.graal.python.runtime.object.PythonObjectFactory;
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+import com.oracle.graal.python.util.PythonUtils;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.ImportStatic;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.interop.UnsupportedMessageException;
+import com.oracle.truffle.api.library.CachedLibrary;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
+
+public abstract class StructNodes {
+
+    /**
+     * Returns the compiled format for a {@code str} or {@code bytes} format argument. Constant
+     * format strings at a call site resolve to a constant {@link StructFormat}.
+     */
+    @ImportStatic(PGuards.class)
+    public abstract static class GetFormatNode extends PNodeWithContext {
+        public abstract StructFormat execute(Object format);
+
+        @Specialization(guards = "cachedString.equals(format)", limit = "4")
+        static StructFormat doCached(@SuppressWarnings("unused") String format,
+                        @Cached("format") @SuppressWarnings("unused") String cachedString,
+                        @Cached("get(format)") StructFormat cachedFormat) {
+            return cachedFormat;
+        }
+
+        @Specialization(replaces = "doCached")
+        static StructFormat doString(String format) {
+            return StructFormat.get(format);
+        }
+
+        @Specialization
+        static StructFormat doBytes(PBytes format,
+                        @CachedLibrary(limit = "1") PythonObjectLibrary lib) {
+            try {
+                return StructFormat.get(decode(lib.getBufferBytes(format)));
+            } catch (UnsupportedMessageException e) {
+                throw CompilerDirectives.shouldNotReachHere(e);
+            }
+        }
+
+        @Specialization(guards = "!isBytes(format)")
+        static StructFormat doGeneric(Object format,
+                        @Cached CastToJavaStringNode castToStringNode,
+                        @Cached PRaiseNode raiseNode) {
+            try {
+                return StructFormat.get(castToStringNode.execute(format));
+            } catch (CannotCastException e) {
+                throw raiseNode.raise(TypeError, ErrorMessages.STRUCT_ARG_MUST_BE_STR_OR_BYTES, format);
+            }
+        }
+
+        static StructFormat get(String format) {
+            return StructFormat.get(format);
+        }
+
+        @TruffleBoundary
+        private static String decode(byte[] bytes) {
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+
+        public static GetFormatNode create() {
+            return StructNodesFactory.GetFormatNodeGen.create();
+        }
+    }
+
+    /**
+     * Returns the storage of a bytes-like object that is read by an unpack operation. The storage
+     * of {@code bytes} and {@code bytearray} objects is used directly, other objects supporting the
+     * buffer protocol are copied.
+     */
+    public abstract static class GetByteStorageNode extends PNodeWithContext {
+        public abstract ByteSequenceStorage execute(Object buffer);
+
+        @Specialization(guards = "isByteStorage(buffer)")
+        static ByteSequenceStorage doBytesLike(PIBytesLike buffer) {
+            return (ByteSequenceStorage) buffer.getSequenceStorage();
+        }
+
+        @Specialization(guards = "!isBytesLikeWithByteStorage(buffer)", limit = "3")
+        static ByteSequenceStorage doBuffer(Object buffer,
+                        @CachedLibrary("buffer") PythonObjectLibrary lib,
+                        @Cached PRaiseNode raiseNode) {
+            if (lib.isBuffer(buffer)) {
+                try {
+                    return new ByteSequenceStorage(lib.getBufferBytes(buffer));
+                } catch (UnsupportedMessageException e) {
+                    throw CompilerDirectives.shouldNotReachHere(e);
+                }
+            }
+            throw raiseNode.raise(TypeError, ErrorMessages.BYTESLIKE_OBJ_REQUIRED, buffer);
+        }
+
+        static boolean isByteStorage(PIBytesLike buffer) {
+            return buffer.getSequenceStorage() instanceof ByteSequenceStorage;
+        }
+
+        static boolean isBytesLikeWithByteStorage(Object buffer) {
+            return buffer instanceof PIBytesLike && isByteStorage((PIBytesLike) buffer);
+        }
+
+        public static GetByteStorageNode create() {
+            return StructNodesFactory.GetByteStorageNodeGen.create();
+        }
+    }
+
+    /**
+     * Packs {@code format.getLength()} values starting at {@code args[argsOffset]} into
+     * {@code dst} at {@code dstOffset}. Padding bytes are not written, so the destination range
+     * must already be zeroed. For formats used at a call site, the loop over the fields is unrolled
+     * so that each field compiles to a type check of the value and a few stores.
+     */
+    public abstract static class PackValuesNode extends PNodeWithContext {
+        public abstract void execute(VirtualFrame frame, StructFormat format, Object[] args, int argsOffset, byte[] dst, int dstOffset);
+
+        @Specialization(guards = {"format == cachedFormat", "cachedFormat.isUnrollable()"}, limit = "4")
+        @ExplodeLoop
+        static void doCached(VirtualFrame frame, @SuppressWarnings("unused") StructFormat format, Object[] args, int argsOffset, byte[] dst, int dstOffset,
+                        @Cached("format") StructFormat cachedFormat,
+                        @CachedLibrary(limit = "3") PythonObjectLibrary lib,
+                        @Cached PRaiseNode raiseNode) {
+            FormatCode[] codes = cachedFormat.getCodes();
+            boolean littleEndian = cachedFormat.isLittleEndian();
+            for (int i = 0; i < codes.length; i++) {
+                packCode(frame, codes[i], args[argsOffset + i], dst, dstOffset, littleEndian, lib, raiseNode);
+            }
+        }
+
+        @Specialization(replaces = "doCached")
+        static void doGeneric(VirtualFrame frame, StructFormat format, Object[] args, int argsOffset, byte[] dst, int dstOffset,
+                        @CachedLibrary(limit = "3") PythonObjectLibrary lib,
+                        @Cached PRaiseNode raiseNode) {
+            FormatCode[] codes = format.getCodes();
+            boolean littleEndian = format.isLittleEndian();
+            for (int i = 0; i < codes.length; i++) {
+                packCode(frame, codes[i], args[argsOffset + i], dst, dstOffset, littleEndian, lib, raiseNode);
+            }
+        }
+
+        private static void packCode(VirtualFrame frame, FormatCode code, Object value, byte[] dst, int base, boolean littleEndian, PythonObjectLibrary lib, PRaiseNode raiseNode) {
+            int offset = base + code.offset;
+            switch (code.code) {
+                case 'c':
+                    dst[offset] = packChar(value, lib, raiseNode);
+                    break;
+                case '?':
+                    dst[offset] = (byte) (lib.isTrueWithState(value, PArguments.getThreadState(frame)) ? 1 : 0);
+                    break;
+                case 'e':
+                    writeLong(dst, offset, 2, littleEndian, packHalfFloat(toDouble(frame, value, lib, raiseNode), raiseNode));
+                    break;
+                case 'f': {
+                    double d = toDouble(frame, value, lib, raiseNode);
+                    float f = (float) d;
+                    if (Float.isInfinite(f) && !Double.isInfinite(d)) {
+                        throw raiseNode.raise(OverflowError, ErrorMessages.FLOAT_TOO_LARGE_TO_PACK_WITH_S_FMT, "f");
+                    }
+                    writeLong(dst, offset, 4, littleEndian, Float.floatToRawIntBits(f));
+                    break;
+                }
+                case 'd':
+                    writeLong(dst, offset, 8, littleEndian, Double.doubleToRawLongBits(toDouble(frame, value, lib, raiseNode)));
+                    break;
+                case 's':
+                case 'p':
+                    packString(code, value, dst, offset, lib, raiseNode);
+                    break;
+                default:
+                    writeLong(dst, offset, code.size, littleEndian, toLong(frame, code, value, lib, raiseNode));
+                    break;
+            }
+        }
+
+        private static long toLong(VirtualFrame frame, FormatCode code, Object value, PythonObjectLibrary lib, PRaiseNode raiseNode) {
+            Object index = value;
+            if (!(index instanceof Integer || index instanceof Long || index instanceof Boolean || index instanceof PInt)) {
+                if (!lib.canBeIndex(index)) {
+                    throw raiseNode.raise(StructError, ErrorMessages.REQUIRED_ARG_NOT_INTEGER);
+                }
+                index = lib.asIndexWithState(index, PArguments.getThreadState(frame));
+            }
+            long x;
+            if (index instanceof Integer) {
+                x = (int) index;
+            } else if (index instanceof Long) {
+                x = (long) index;
+            } else if (index instanceof Boolean) {
+                x = (boolean) index ? 1 : 0;
+            } else {
+                BigInteger big = ((PInt) index).getValue();
+                if (!fitsInLong(big)) {
+                    if (code.size == 8 && !code.signed && fitsInUnsignedLong(big)) {
+                        return longValue(big);
+                    }
+                    throw raiseNode.raise(StructError, code.overflowError);
+                }
+                x = longValue(big);
+            }
+            if (x < 0 && code.negativeOverflows) {
+                throw raiseNode.raise(StructError, code.overflowError);
+            }
+            if (x < code.min || x > code.max) {
+                throw raiseNode.raise(StructError, ErrorMessages.S_FMT_REQUIRES_D_LE_NUMBER_LE_D, code.rangeErrorName, code.min, code.max);
+            }
+            return x;
+        }
+
+        private static double toDouble(VirtualFrame frame, Object value, PythonObjectLibrary lib, PRaiseNode raiseNode) {
+            if (value instanceof Double) {
+                return (double) value;
+            } else if (value instanceof Integer) {
+                return (int) value;
+            } else if (value instanceof Long) {
+                return (long) value;
+            } else if (!lib.canBeJavaDouble(value)) {
+                throw raiseNode.raise(StructError, ErrorMessages.REQUIRED_ARG_NOT_FLOAT);
+            }
+            return lib.asJavaDoubleWithState(value, PArguments.getThreadState(frame));
+        }
+
+        private static byte packChar(Object value, PythonObjectLibrary lib, PRaiseNode raiseNode) {
+            if (value instanceof PBytes) {
+                try {
+                    if (lib.getBufferLength(value) == 1) {
+                        return lib.getBufferBytes(value)[0];
+                    }
+                } catch (UnsupportedMessageException e) {
+                    throw CompilerDirectives.shouldNotReachHere(e);
+                }
+            }
+            throw raiseNode.raise(StructError, ErrorMessages.CHAR_FMT_REQUIRES_BYTES_OF_LENGTH_1);
+        }
+
+        private static void packString(FormatCode code, Object value, byte[] dst, int offset, PythonObjectLibrary lib, PRaiseNode raiseNode) {
+            if (!(value instanceof PBytes || value instanceof PByteArray)) {
+                throw raiseNode.raise(StructError, ErrorMessages.ARG_FOR_S_MUST_BE_BYTES, String.valueOf(code.code));
+            }
+            byte[] bytes;
+            int len;
+            PIBytesLike bytesLike = (PIBytesLike) value;
+            if (bytesLike.getSequenceStorage() instanceof ByteSequenceStorage) {
+                ByteSequenceStorage storage = (ByteSequenceStorage) bytesLike.getSequenceStorage();
+                bytes = storage.getInternalByteArray();
+                len = storage.length();
+            } else {
+                try {
+                    bytes = lib.getBufferBytes(value);
+                } catch (UnsupportedMessageException e) {
+                    throw CompilerDirectives.shouldNotReachHere(e);
+                }
+                len = bytes.length;
+            }
+            if (code.code == 's') {
+                PythonUtils.arraycopy(bytes, 0, dst, offset, Math.min(len, code.size));
+            } else if (code.size > 0) {
+                int n = Math.min(len, code.size - 1);
+                PythonUtils.arraycopy(bytes, 0, dst, offset + 1, n);
+                dst[offset] = (byte) Math.min(n, 255);
+            }
+        }
+
+        public static PackValuesNode create() {
+            return StructNodesFactory.PackValuesNodeGen.create();
+        }
+    }
+
+    /**
+     * Unpacks the values of one struct from {@code src} at {@code srcOffset}. As for packing, the
+     * loop over the fields is unrolled for formats used at a call site, so that unpacking a
+     * constant format compiles to a sequence of loads.
+     */
+    public abstract static class UnpackValuesNode extends PNodeWithContext {
+        public abstract Object[] execute(StructFormat format, byte[] src, int srcOffset);
+
+        @Specialization(guards = {"format == cachedFormat", "cachedFormat.isUnrollable()"}, limit = "4")
+        @ExplodeLoop
+        static Object[] doCached(@SuppressWarnings("unused") StructFormat format, byte[] src, int srcOffset,
+                        @Cached("format") StructFormat cachedFormat,
+                        @Cached PythonObjectFactory factory) {
+            FormatCode[] codes = cachedFormat.getCodes();
+            boolean littleEndian = cachedFormat.isLittleEndian();
+            Object[] result = new Object[codes.length];
+            for (int i = 0; i < codes.length; i++) {
+                result[i] = unpackCode(codes[i], src, srcOffset, littleEndian, factory);
+            }
+            return result;
+        }
+
+        @Specialization(replaces = "doCached")
+        static Object[] doGeneric(StructFormat format, byte[] src, int srcOffset,
+                        @Cached PythonObjectFactory factory) {
+            FormatCode[] codes = format.getCodes();
+            boolean littleEndian = format.isLittleEndian();
+            Object[] result = new Object[codes.length];
+            for (int i = 0; i < codes.length; i++) {
+                result[i] = unpackCode(codes[i], src, srcOffset, littleEndian, factory);
+            }
+            return result;
+        }
+
+        private static Object unpackCode(FormatCode code, byte[] src, int base, boolean littleEndian, PythonObjectFactory factory) {
+            int offset = base + code.offset;
+            switch (code.code) {
+                case 'c':
+                    return factory.createBytes(new byte[]{src[offset]});
+                case '?':
+                    return src[offset] != 0;
+                case 'e':
+                    return unpackHalfFloat((int) readLong(src, offset, 2, littleEndian));
+                case 'f':
+                    return (double) Float.intBitsToFloat((int) readLong(src, offset, 4, littleEndian));
+                case 'd':
+                    return Double.longBitsToDouble(readLong(src, offset, 8, littleEndian));
+                case 's': {
+                    byte[] bytes = new byte[code.size];
+                    PythonUtils.arraycopy(src, offset, bytes, 0, code.size);
+                    return factory.createBytes(bytes);
+                }
+                case 'p': {
+                    int n = code.size == 0 ? 0 : Math.min(src[offset] & 0xFF, code.size - 1);
+                    byte[] bytes = new byte[n];
+                    PythonUtils.arraycopy(src, offset + 1, bytes, 0, n);
+                    return factory.createBytes(bytes);
+                }
+                default:
+                    return unpackInteger(code, readLong(src, offset, code.size, littleEndian), factory);
+            }
+        }
+
+        private static Object unpackInteger(FormatCode code, long x, PythonObjectFactory factory) {
+            if (code.size == 8) {
+                if (code.signed || x >= 0) {
+                    return x;
+                }
+                return factory.createInt(unsignedToBigInteger(x));
+            } else if (code.signed) {
+                int shift = 64 - code.size * 8;
+                return (int) ((x << shift) >> shift);
+            } else if (code.size < 4) {
+                return (int) x;
+            }
+            return x;
+        }
+
+        public static UnpackValuesNode create() {
+            return StructNodesFactory.UnpackValuesNodeGen.create();
+        }
+    }
+
+    /** Implements {@code pack}: checks the number of values and packs them into a new bytes. */
+    public abstract static class PackNode extends PNodeWithContext {
+        public abstract PBytes execute(VirtualFrame frame, StructFormat format, Object[] args);
+
+        @Specialization
+        static PBytes pack(VirtualFrame frame, StructFormat format, Object[] args,
+                        @Cached PackValuesNode packValuesNode,
+                        @Cached PythonObjectFactory factory,
+                        @Cached PRaiseNode raiseNode) {
+            if (args.length != format.getLength()) {
+                throw raiseNode.raise(StructError, ErrorMessages.S_EXPECTED_D_ITEMS_FOR_PACKING_GOT_D, "pack", format.getLength(), args.length);
+            }
+            byte[] result = new byte[format.getSize()];
+            packValuesNode.execute(frame, format, args, 0, result, 0);
+            return factory.createBytes(result);
+        }
+
+        public static PackNode create() {
+            return StructNodesFactory.PackNodeGen.create();
+        }
+    }
+
+    /**
+     * Implements {@code pack_into}. The arguments are the buffer, the offset and the values. A
+     * {@code bytearray} is written in place; other writable buffers get the packed bytes assigned
+     * to the corresponding slice.
+     */
+    @ImportStatic(SpecialMethodNames.class)
+    public abstract static class PackIntoNode extends PNodeWithContext {
+        public abstract void execute(VirtualFrame frame, StructFormat format, Object[] args);
+
+        @Specialization
+        static void packInto(VirtualFrame frame, StructFormat format, Object[] args,
+                        @Cached PackValuesNode packValuesNode,
+                        @Cached("create(__SETITEM__)") LookupAndCallTernaryNode setItemNode,
+                        @CachedLibrary(limit = "3") PythonObjectLibrary lib,
+                        @Cached PythonObjectFactory factory,
+                        @Cached PRaiseNode raiseNode) {
+            int size = format.getSize();
+            if (args.length != format.getLength() + 2) {
+                if (args.length == 0) {
+                    throw raiseNode.raise(StructError, ErrorMessages.PACK_INTO_EXPECTED_BUFFER_ARG);
+                } else if (args.length == 1) {
+                    throw raiseNode.raise(StructError, ErrorMessages.PACK_INTO_EXPECTED_OFFSET_ARG);
+                }
+                throw raiseNode.raise(StructError, ErrorMessages.S_EXPECTED_D_ITEMS_FOR_PACKING_GOT_D, "pack_into", format.getLength(), args.length - 2);
+            }
+            Object buffer = args[0];
+            ByteSequenceStorage storage = null;
+            if (buffer instanceof PByteArray && ((PByteArray) buffer).getSequenceStorage() instanceof ByteSequenceStorage) {
+                storage = (ByteSequenceStorage) ((PByteArray) buffer).getSequenceStorage();
+            } else if (buffer instanceof PBytes || !lib.isBuffer(buffer)) {
+                throw raiseNode.raise(TypeError, ErrorMessages.ARG_MUST_BE_READ_WRITE_BYTESLIKE, buffer);
+            }
+            int bufferLength;
+            try {
+                bufferLength = storage != null ? storage.length() : lib.getBufferLength(buffer);
+            } catch (UnsupportedMessageException e) {
+                throw CompilerDirectives.shouldNotReachHere(e);
+            }
+            int offset = lib.asSizeWithState(args[1], IndexError, PArguments.getThreadState(frame));
+            if (offset < 0) {
+                if (offset + size > 0) {
+                    throw raiseNode.raise(StructError, ErrorMessages.NO_SPACE_TO_PACK_D_BYTES_AT_OFFSET_D, size, offset);
+                }
+                if (offset + bufferLength < 0) {
+                    throw raiseNode.raise(StructError, ErrorMessages.OFFSET_D_OUT_OF_RANGE_FOR_D_BYTE_BUFFER, offset, bufferLength);
+                }
+                offset += bufferLength;
+            }
+            if (bufferLength - offset < size) {
+                throw raiseNode.raise(StructError, ErrorMessages.PACK_INTO_REQUIRES_BUFFER_OF_AT_LEAST, (long) size + offset, size, offset, bufferLength);
+            }
+            if (storage != null) {
+                byte[] dst = storage.getInternalByteArray();
+                Arrays.fill(dst, offset, offset + size, (byte) 0);
+                packValuesNode.execute(frame, format, args, 2, dst, offset);
+            } else {
+                byte[] packed = new byte[size];
+                packValuesNode.execute(frame, format, args, 2, packed, 0);
+                setItemNode.execute(frame, buffer, factory.createIntSlice(offset, offset + size, 1), factory.createBytes(packed));
+            }
+        }
+
+        public static PackIntoNode create() {
+            return StructNodesFactory.PackIntoNodeGen.create();
+        }
+    }
+
+    /** Implements {@code unpack}: the buffer must have exactly the size of the struct. */
+    public abstract static class UnpackNode extends PNodeWithContext {
+        public abstract PTuple execute(StructFormat format, Object buffer);
+
+        @Specialization
+        static PTuple unpack(StructFormat format, Object buffer,
+                        @Cached GetByteStorageNode getByteStorageNode,
+                        @Cached UnpackValuesNode unpackValuesNode,
+                        @Cached PythonObjectFactory factory,
+                        @Cached PRaiseNode raiseNode) {
+            ByteSequenceStorage storage = getByteStorageNode.execute(buffer);
+            if (storage.length() != format.getSize()) {
+                throw raiseNode.raise(StructError, ErrorMessages.UNPACK_REQUIRES_BUFFER_OF_D_BYTES, format.getSize());
+            }
+            return factory.createTuple(unpackValuesNode.execute(format, storage.getInternalByteArray(), 0));
+        }
+
+        public static UnpackNode create() {
+            return StructNodesFactory.UnpackNodeGen.create();
+        }
+    }
+
+    /** Implements {@code unpack_from}, which reads the struct at an offset into a larger buffer. */
+    public abstract static class UnpackFromNode extends PNodeWithContext {
+        public abstract PTuple execute(VirtualFrame frame, StructFormat format, Object buffer, Object offset);
+
+        @Specialization
+        static PTuple unpackFrom(StructFormat format, Object buffer, int offset,
+                        @Cached GetByteStorageNode getByteStorageNode,
+                        @Cached UnpackValuesNode unpackValuesNode,
+                        @Cached PythonObjectFactory factory,
+                        @Cached PRaiseNode raiseNode) {
+            int size = format.getSize();
+            ByteSequenceStorage storage = getByteStorageNode.execute(buffer);
+            int bufferLength = storage.length();
+            int start = offset;
+            if (start < 0) {
+                if (start + size > 0) {
+                    throw raiseNode.raise(StructError, ErrorMessages.NOT_ENOUGH_DATA_TO_UNPACK_D_BYTES_AT_OFFSET_D, size, start);
+                }
+                if (start + bufferLength < 0) {
+                    throw raiseNode.raise(StructError, ErrorMessages.OFFSET_D_OUT_OF_RANGE_FOR_D_BYTE_BUFFER, start, bufferLength);
+                }
+                start += bufferLength;
+            }
+            if (bufferLength - start < size) {
+                throw raiseNode.raise(StructError, ErrorMessages.UNPACK_FROM_REQUIRES_BUFFER_OF_AT_LEAST, (long) size + start, size, start, bufferLength);
+            }
+            return factory.createTuple(unpackValuesNode.execute(format, storage.getInternalByteArray(), start));
+        }
+
+        @Specialization(replaces = "unpackFrom")
+        static PTuple unpackFromGeneric(VirtualFrame frame, StructFormat format, Object buffer, Object offset,
+                        @CachedLibrary(limit = "2") PythonObjectLibrary lib,
+                        @Cached GetByteStorageNode getByteStorageNode,
+                        @Cached UnpackValuesNode unpackValuesNode,
+                        @Cached PythonObjectFactory factory,
+                        @Cached PRaiseNode raiseNode) {
+            int intOffset = PGuards.isNoValue(offset) ? 0 : lib.asSizeWithState(offset, PArguments.getThreadState(frame));
+            return unpackFrom(format, buffer, intOffset, getByteStorageNode, unpackValuesNode, factory, raiseNode);
+        }
+
+        public static UnpackFromNode create() {
+            return StructNodesFactory.UnpackFromNodeGen.create();
+        }
+    }
+
+    /** Implements {@code iter_unpack}. */
+    public abstract static class IterUnpackNode extends PNodeWithContext {
+        public abstract PStructUnpackIterator execute(StructFormat format, Object buffer);
+
+        @Specialization
+        static PStructUnpackIterator iterUnpack(StructFormat format, Object buffer,
+                        @Cached GetByteStorageNode getByteStorageNode,
+                        @Cached PythonObjectFactory factory,
+                        @Cached PRaiseNode raiseNode) {
+            int size = format.getSize();
+            if (size == 0) {
+                throw raiseNode.raise(StructError, ErrorMessages.CANNOT_ITERATIVELY_UNPACK_WITH_STRUCT_OF_LENGTH_0);
+            }
+            ByteSequenceStorage storage = getByteStorageNode.execute(buffer);
+            if (storage.length() % size != 0) {
+                throw raiseNode.raise(StructError, ErrorMessages.ITERATIVE_UNPACKING_REQUIRES_MULTIPLE_OF_D, size);
+            }
+            return factory.createStructUnpackIterator(format, storage.getInternalByteArray(), storage.length());
+        }
+
+        public static IterUnpackNode create() {
+            return StructNodesFactory.IterUnpackNodeGen.create();
+        }
+    }
+
+    /** Reads an unsigned integer of {@code size} bytes. */
+    static long readLong(byte[] src, int offset, int size, boolean littleEndian) {
+        switch (size) {
+            case 1:
+                return src[offset] & 0xFFL;
+            case 2:
+                if (littleEndian) {
+                    return (src[offset] & 0xFFL) | (src[offset + 1] & 0xFFL) << 8;
+                }
+                return (src[offset] & 0xFFL) << 8 | (src[offset + 1] & 0xFFL);
+            case 4:
+                if (littleEndian) {
+                    return (src[offset] & 0xFFL) | (src[offset + 1] & 0xFFL) << 8 | (src[offset + 2] & 0xFFL) << 16 | (src[offset + 3] & 0xFFL) << 24;
+                }
+                return (src[offset] & 0xFFL) << 24 | (src[offset + 1] & 0xFFL) << 16 | (src[offset + 2] & 0xFFL) << 8 | (src[offset + 3] & 0xFFL);
+            case 8:
+                if (littleEndian) {
+                    return readLong(src, offset, 4, true) | readLong(src, offset + 4, 4, true) << 32;
+                }
+                return readLong(src, offset, 4, false) << 32 | readLong(src, offset + 4, 4, false);
+            default:
+                throw CompilerDirectives.shouldNotReachHere();
+        }
+    }
+
+    /** Writes the lower {@code size} bytes of {@code value}. */
+    static void writeLong(byte[] dst, int offset, int size, boolean littleEndian, long value) {
+        switch (size) {
+            case 1:
+                dst[offset] = (byte) value;
+                break;
+            case 2:
+                if (littleEndian) {
+                    dst[offset] = (byte) value;
+                    dst[offset + 1] = (byte) (value >> 8);
+                } else {
+                    dst[offset] = (byte) (value >> 8);
+                    dst[offset + 1] = (byte) value;
+                }
+                break;
+            case 4:
+                if (littleEndian) {
+                    dst[offset] = (byte) value;
+                    dst[offset + 1] = (byte) (value >> 8);
+                    dst[offset + 2] = (byte) (value >> 16);
+                    dst[offset + 3] = (byte) (value >> 24);
+                } else {
+                    dst[offset] = (byte) (value >> 24);
+                    dst[offset + 1] = (byte) (value >> 16);
+                    dst[offset + 2] = (byte) (value >> 8);
+                    dst[offset + 3] = (byte) value;
+                }
+                break;
+            case 8:
+                if (littleEndian) {
+                    writeLong(dst, offset, 4, true, value);
+                    writeLong(dst, offset + 4, 4, true, value >> 32);
+                } else {
+                    writeLong(dst, offset, 4, false, value >> 32);
+                    writeLong(dst, offset + 4, 4, false, value);
+                }
+                break;
+            default:
+                throw CompilerDirectives.shouldNotReachHere();
+        }
+    }
+
+    /** Converts a double to IEEE 754 binary16 like CPython's {@code _PyFloat_Pack2}. */
+    static long packHalfFloat(double value, PRaiseNode raiseNode) {
+        int sign;
+        int e;
+        int bits;
+        if (value == 0.0) {
+            sign = Math.copySign(1.0, value) == -1.0 ? 1 : 0;
+            e = 0;
+            bits = 0;
+        } else if (Double.isInfinite(value)) {
+            sign = value < 0.0 ? 1 : 0;
+            e = 0x1f;
+            bits = 0;
+        } else if (Double.isNaN(value)) {
+            sign = Math.copySign(1.0, value) == -1.0 ? 1 : 0;
+            e = 0x1f;
+            bits = 512;
+        } else {
+            sign = value < 0.0 ? 1 : 0;
+            double x = Math.abs(value);
+            // normalize to 1.0 <= f < 2.0
+            e = Math.getExponent(x);
+            double f = Math.scalb(x, -e);
+            if (e >= 16) {
+                throw raiseNode.raise(OverflowError, ErrorMessages.FLOAT_TOO_LARGE_TO_PACK_WITH_S_FMT, "e");
+            } else if (e < -25) {
+                // |x| < 2**-25, underflow to zero
+                f = 0.0;
+                e = 0;
+            } else if (e < -14) {
+                // |x| < 2**-14, gradual underflow
+                f = Math.scalb(f, 14 + e);
+                e = 0;
+            } else {
+                e += 15;
+                f -= 1.0;
+            }
+            f *= 1024.0;
+            bits = (int) f;
+            // round half to even
+            if (f - bits > 0.5 || (f - bits == 0.5 && bits % 2 == 1)) {
+                bits++;
+                if (bits == 1024) {
+                    bits = 0;
+                    e++;
+                    if (e == 31) {
+                        throw raiseNode.raise(OverflowError, ErrorMessages.FLOAT_TOO_LARGE_TO_PACK_WITH_S_FMT, "e");
+                    }
+                }
+            }
+        }
+        return bits | (e << 10) | (sign << 15);
+    }
+
+    /** Converts IEEE 754 binary16 bits to a double like CPython's {@code _PyFloat_Unpack2}. */
+    static double unpackHalfFloat(int bits) {
+        boolean negative = (bits & 0x8000) != 0;
+        int e = (bits >> 10) & 0x1f;
+        int f = bits & 0x3ff;
+        if (e == 0x1f) {
+            if (f == 0) {
+                return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+            }
+            return Math.copySign(Double.NaN, negative ? -1.0 : 1.0);
+        }
+        double x = f / 1024.0;
+        if (e == 0) {
+            e = -14;
+        } else {
+            x += 1.0;
+            e -= 15;
+        }
+        x = Math.scalb(x, e);
+        return negative ? -x : x;
+    }
+
+    @TruffleBoundary
+    private static boolean fitsInLong(BigInteger value) {
+        return value.bitLength() <= 63;
+    }
+
+    @TruffleBoundary
+    private static boolean fitsInUnsignedLong(BigInteger value) {
+        return value.signum() >= 0 && value.bitLength() <= 64;
+    }
+
+    @TruffleBoundary
+    private static long longValue(BigInteger value) {
+        return value.longValue();
+    }
+
+    @TruffleBoundary
+    private static BigInteger unsignedToBigInteger(long value) {
+        return BigInteger.valueOf(value).add(BigInteger.ONE.shiftLeft(64));
+    }
+}
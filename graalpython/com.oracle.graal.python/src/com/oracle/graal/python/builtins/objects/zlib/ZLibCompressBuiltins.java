@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.zlib;
+
+import static com.oracle.graal.python.builtins.modules.ZLibModuleBuiltins.Z_FINISH;
+import static com.oracle.graal.python.builtins.modules.ZLibModuleBuiltins.Z_NO_FLUSH;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ZLibError;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.bytes.PBytes;
+import com.oracle.graal.python.builtins.objects.function.PArguments;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.builtins.objects.zlib.ZLibNodes.ToInputStorageNode;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.runtime.object.PythonObjectFactory;
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.library.CachedLibrary;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PZLibCompress)
+public class ZLibCompressBuiltins extends PythonBuiltins {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return ZLibCompressBuiltinsFactory.getFactories();
+    }
+
+    @Builtin(name = "compress", minNumOfPositionalArgs = 2, parameterNames = {"self", "data"})
+    @GenerateNodeFactory
+    abstract static class CompressNode extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        PBytes compress(VirtualFrame frame, PZLibCompress self, Object data,
+                        @Cached ToInputStorageNode toInputNode) {
+            ZLibDeflateStream stream = self.getStream();
+            if (stream.isFinished()) {
+                throw raise(ZLibError, ErrorMessages.ERROR_2_WHILE_COMPRESSING);
+            }
+            ByteSequenceStorage input = toInputNode.execute(frame, data);
+            return factory().createBytes(stream.compress((byte[]) input.getInternalArrayObject(), 0, input.length(), Z_NO_FLUSH));
+        }
+    }
+
+    @Builtin(name = "flush", minNumOfPositionalArgs = 1, parameterNames = {"self", "mode"})
+    @GenerateNodeFactory
+    abstract static class FlushNode extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        PBytes flush(PZLibCompress self, int mode) {
+            if (mode == Z_NO_FLUSH) {
+                return factory().createBytes(EMPTY);
+            }
+            ZLibDeflateStream stream = self.getStream();
+            if (stream.isFinished()) {
+                throw raise(ZLibError, ErrorMessages.ERROR_2_WHILE_COMPRESSING);
+            }
+            return factory().createBytes(stream.compress(EMPTY, 0, 0, mode));
+        }
+
+        @Specialization
+        PBytes flush(PZLibCompress self, @SuppressWarnings("unused") PNone mode) {
+            return flush(self, Z_FINISH);
+        }
+
+        @Specialization(guards = "!isNoValue(mode)", limit = "getCallSiteInlineCacheMaxDepth()")
+        PBytes flush(VirtualFrame frame, PZLibCompress self, Object mode,
+                        @CachedLibrary("mode") PythonObjectLibrary lib) {
+            return flush(self, lib.asSizeWithState(mode, PArguments.getThreadState(frame)));
+        }
+    }
+
+    @Builtin(name = "copy", minNumOfPositionalArgs = 1)
+    @Builtin(name = "__copy__", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class CopyNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        PZLibCompress copy(PZLibCompress self) {
+            return copy(this, factory(), self);
+        }
+
+        /**
+         * {@link java.util.zip.Deflater} cannot copy its state, so only a stream that did not
+         * process any data can be copied.
+         */
+        static PZLibCompress copy(PythonBuiltinBaseNode node, PythonObjectFactory factory, PZLibCompress self) {
+            ZLibDeflateStream stream = self.getStream();
+            if (stream.isUsed()) {
+                throw node.raise(PythonBuiltinClassType.NotImplementedError, ErrorMessages.CANNOT_COPY_USED_ZLIB_STREAM);
+            }
+            ZLibDeflateStream copy = new ZLibDeflateStream(stream.getContainer(), stream.getLevel(), self.getStrategy(), self.getZdict(), null);
+            return factory.createZLibCompress(PythonBuiltinClassType.PZLibCompress, copy, self.getWbits(), self.getStrategy(), self.getZdict());
+        }
+    }
+
+    @Builtin(name = "__deepcopy__", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class DeepCopyNode extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        PZLibCompress deepcopy(PZLibCompress self, @SuppressWarnings("unused") Object memo) {
+            return CopyNode.copy(this, factory(), self);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.zlib;
+
+import static com.oracle.graal.python.builtins.modules.ZLibModuleBuiltins.DEF_BUF_SIZE;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ZLibError;
+
+import java.util.List;
+import java.util.zip.DataFormatException;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.bytes.PBytes;
+import com.oracle.graal.python.builtins.objects.function.PArguments;
+import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
+import com.oracle.graal.python.builtins.objects.zlib.ZLibNodes.ToInputStorageNode;
+import com.oracle.graal.python.nodes.ErrorMessages;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.runtime.object.PythonObjectFactory;
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.library.CachedLibrary;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PZLibDecompress)
+public class ZLibDecompressBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return ZLibDecompressBuiltinsFactory.getFactories();
+    }
+
+    @Builtin(name = "decompress", minNumOfPositionalArgs = 2, parameterNames = {"self", "data", "max_length"})
+    @GenerateNodeFactory
+    abstract static class DecompressNode extends PythonTernaryBuiltinNode {
+
+        @Specialization
+        PBytes decompress(VirtualFrame frame, PZLibDecompress self, Object data, int maxLength,
+                        @Cached ToInputStorageNode toInputNode) {
+            if (maxLength < 0) {
+                throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.MUST_BE_NON_NEGATIVE, "max_length");
+            }
+            ByteSequenceStorage input = toInputNode.execute(frame, data);
+            try {
+                return factory().createBytes(self.getStream().decompress((byte[]) input.getInternalArrayObject(), 0, input.length(), maxLength, DEF_BUF_SIZE));
+            } catch (DataFormatException e) {
+                throw raise(ZLibError, ErrorMessages.ERROR_3_WHILE_DECOMPRESSING, getMessage(e));
+            }
+        }
+
+        @Specialization
+        PBytes decompress(VirtualFrame frame, PZLibDecompress self, Object data, @SuppressWarnings("unused") PNone maxLength,
+                        @Cached ToInputStorageNode toInputNode) {
+            return decompress(frame, self, data, 0, toInputNode);
+        }
+
+        @Specialization(guards = "!isNoValue(maxLength)", limit = "getCallSiteInlineCacheMaxDepth()")
+        PBytes decompress(VirtualFrame frame, PZLibDecompress self, Object data, Object maxLength,
+                        @CachedLibrary("maxLength") PythonObjectLibrary lib,
+                        @Cached ToInputStorageNode toInputNode) {
+            return decompress(frame, self, data, lib.asSizeWithState(maxLength, PArguments.getThreadState(frame)), toInputNode);
+        }
+    }
+
+    @Builtin(name = "flush", minNumOfPositionalArgs = 1, parameterNames = {"self", "length"})
+    @GenerateNodeFactory
+    abstract static class FlushNode extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        PBytes flush(PZLibDecompress self, int length) {
+            if (length <= 0) {
+                throw raise(PythonBuiltinClassType.ValueError, ErrorMessages.LENGTH_MUST_BE_GREATER_THAN_ZERO);
+            }
+            ZLibInflateStream stream = self.getStream();
+            byte[] tail = stream.getUnconsumedTail();
+            try {
+                return factory().createBytes(stream.decompress(tail, 0, tail.length, 0, length));
+            } catch (DataFormatException e) {
+                throw raise(ZLibError, ErrorMessages.ERROR_3_WHILE_DECOMPRESSING, getMessage(e));
+            }
+        }
+
+        @Specialization
+        PBytes flush(PZLibDecompress self, @SuppressWarnings("unused") PNone length) {
+            return flush(self, DEF_BUF_SIZE);
+        }
+
+        @Specialization(guards = "!isNoValue(length)", limit = "getCallSiteInlineCacheMaxDepth()")
+        PBytes flush(VirtualFrame frame, PZLibDecompress self, Object length,
+                        @CachedLibrary("length") PythonObjectLibrary lib) {
+            return flush(self, lib.asSizeWithState(length, PArguments.getThreadState(frame)));
+        }
+    }
+
+    @Builtin(name = "unused_data", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class UnusedDataNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        PBytes doit(PZLibDecompress self) {
+            return factory().createBytes(self.getStream().getUnusedData());
+        }
+    }
+
+    @Builtin(name = "unconsumed_tail", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class UnconsumedTailNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        PBytes doit(PZLibDecompress self) {
+            return factory().createBytes(self.getStream().getUnconsumedTail());
+        }
+    }
+
+    @Builtin(name = "eof", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class EofNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        static boolean doit(PZLibDecompress self) {
+            return self.getStream().isEof();
+        }
+    }
+
+    @Builtin(name = "copy", minNumOfPositionalArgs = 1)
+    @Builtin(name = "__copy__", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class CopyNode extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        PZLibDecompress copy(PZLibDecompress self) {
+            return copy(this, factory(), self);
+        }
+
+        /**
+         * {@link java.util.zip.Inflater} cannot copy its state, so only a stream that did not
+         * process any data can be copied.
+         */
+        static PZLibDecompress copy(PythonBuiltinBaseNode node, PythonObjectFactory factory, PZLibDecompress self) {
+            ZLibInflateStream stream = self.getStream();
+            if (stream.isUsed()) {
+                throw node.raise(PythonBuiltinClassType.NotImplementedError, ErrorMessages.CANNOT_COPY_USED_ZLIB_STREAM);
+            }
+            return factory.createZLibDecompress(PythonBuiltinClassType.PZLibDecompress, new ZLibInflateStream(stream.getContainer(), stream.getZdict(), null));
+        }
+    }
+
+    @Builtin(name = "__deepcopy__", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class DeepCopyNode extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        PZLibDecompress deepcopy(PZLibDecompress self, @SuppressWarnings("unused") Object memo) {
+            return CopyNode.copy(this, factory(), self);
+        }
+    }
+
+    @TruffleBoundary
+    public static String getMessage(DataFormatException e) {
+        return e.getMessage();
+    }
+}
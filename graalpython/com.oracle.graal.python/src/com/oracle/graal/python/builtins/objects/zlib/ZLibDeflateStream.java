@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.zlib;
+
+import static com.oracle.graal.python.builtins.modules.ZLibModuleBuiltins.Z_FINISH;
+import static com.oracle.graal.python.builtins.modules.ZLibModuleBuiltins.Z_FULL_FLUSH;
+import static com.oracle.graal.python.builtins.modules.ZLibModuleBuiltins.Z_NO_FLUSH;
+
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import com.oracle.graal.python.builtins.modules.ZLibModuleBuiltins;
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * A compression stream on top of a {@link Deflater}. Besides the zlib container and raw streams
+ * supported by {@link Deflater}, this also writes the gzip container (header and CRC-32/size
+ * trailer) for {@code wbits} in {@code 25..31}.
+ */
+public final class ZLibDeflateStream {
+
+    private static final int GZIP_OS_UNIX = 3;
+
+    private final Deflater deflater;
+    private final ZLibStreamPool pool;
+    private final int container;
+    private final int level;
+    private final CRC32 crc;
+
+    private boolean used;
+    private boolean finished;
+    private boolean released;
+
+    /**
+     * @param pool if not {@code null}, a pooled deflater is used for zlib containers and has to be
+     *            given back with {@link #release()}
+     */
+    @TruffleBoundary
+    public ZLibDeflateStream(int container, int level, int strategy, byte[] zdict, ZLibStreamPool pool) {
+        this.container = container;
+        this.level = level;
+        if (pool != null && container == ZLibInflateStream.CONTAINER_ZLIB) {
+            this.deflater = pool.takeDeflater(level);
+            this.pool = pool;
+        } else {
+            this.deflater = new Deflater(level, container != ZLibInflateStream.CONTAINER_ZLIB);
+            this.pool = null;
+        }
+        // Z_RLE and Z_FIXED are not supported by Deflater
+        if (strategy == Deflater.FILTERED || strategy == Deflater.HUFFMAN_ONLY) {
+            deflater.setStrategy(strategy);
+        }
+        if (zdict != null) {
+            deflater.setDictionary(zdict);
+        }
+        this.crc = container == ZLibInflateStream.CONTAINER_GZIP ? new CRC32() : null;
+    }
+
+    /**
+     * Returns the container for the given {@code wbits} or {@code -1} if they are invalid for
+     * compression.
+     */
+    public static int getContainer(int wbits) {
+        if (9 <= wbits && wbits <= ZLibModuleBuiltins.MAX_WBITS) {
+            return ZLibInflateStream.CONTAINER_ZLIB;
+        } else if (-ZLibModuleBuiltins.MAX_WBITS <= wbits && wbits <= -9) {
+            return ZLibInflateStream.CONTAINER_RAW;
+        } else if (25 <= wbits && wbits <= 16 + ZLibModuleBuiltins.MAX_WBITS) {
+            return ZLibInflateStream.CONTAINER_GZIP;
+        }
+        return -1;
+    }
+
+    public int getContainer() {
+        return container;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns {@code true} if data was already passed to this stream.
+     */
+    public boolean isUsed() {
+        return used;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Compresses {@code len} bytes of {@code data} starting at {@code off} and returns the output
+     * that is available according to the zlib flush {@code mode}. After {@link
+     * ZLibModuleBuiltins#Z_FINISH}, the stream is complete and the deflater is released.
+     */
+    @TruffleBoundary
+    public ByteSequenceStorage compress(byte[] data, int off, int len, int mode) {
+        assert !finished;
+        ZLibOutputBuffer out = new ZLibOutputBuffer(mode == Z_FINISH ? len / 2 + 32 : len / 4);
+        if (crc != null) {
+            if (!used) {
+                writeGzipHeader(out);
+            }
+            crc.update(data, off, len);
+        }
+        used = true;
+        deflater.setInput(data, off, len);
+        if (mode == Z_FINISH) {
+            deflater.finish();
+            while (!deflater.finished()) {
+                int space = out.ensureSpace();
+                out.len += deflater.deflate(out.buf, out.len, space, Deflater.NO_FLUSH);
+            }
+            if (crc != null) {
+                out.writeIntLE((int) crc.getValue());
+                out.writeIntLE((int) deflater.getBytesRead());
+            }
+            finished = true;
+            release();
+        } else {
+            int javaMode = toDeflaterFlush(mode);
+            int space;
+            int n;
+            // zlib only stops early if the output buffer is full
+            do {
+                space = out.ensureSpace();
+                n = deflater.deflate(out.buf, out.len, space, javaMode);
+                out.len += n;
+            } while (n == space);
+        }
+        return out.toStorage();
+    }
+
+    /**
+     * Gives the deflater back to the pool or frees its native memory.
+     */
+    @TruffleBoundary
+    public void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        if (pool != null) {
+            pool.returnDeflater(deflater);
+        } else {
+            deflater.end();
+        }
+    }
+
+    private static int toDeflaterFlush(int mode) {
+        switch (mode) {
+            case Z_NO_FLUSH:
+                return Deflater.NO_FLUSH;
+            case Z_FULL_FLUSH:
+                return Deflater.FULL_FLUSH;
+            default:
+                // Deflater does not support Z_PARTIAL_FLUSH, Z_BLOCK, and Z_TREES
+                return Deflater.SYNC_FLUSH;
+        }
+    }
+
+    private void writeGzipHeader(ZLibOutputBuffer out) {
+        int xfl = level == Deflater.BEST_COMPRESSION ? 2 : level == Deflater.BEST_SPEED ? 4 : 0;
+        byte[] header = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, (byte) xfl, GZIP_OS_UNIX};
+        out.write(header, 0, header.length);
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.zlib;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.oracle.graal.python.builtins.modules.ZLibModuleBuiltins;
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * A decompression stream on top of an {@link Inflater}. Besides the zlib container and raw streams
+ * supported by {@link Inflater}, this also reads gzip containers ({@code wbits} in {@code 24..31})
+ * and detects the container automatically ({@code wbits} in {@code 40..47}). The gzip header and
+ * trailer may be split across several calls to {@link #decompress}.
+ */
+public final class ZLibInflateStream {
+
+    public static final int CONTAINER_ZLIB = 0;
+    public static final int CONTAINER_RAW = 1;
+    public static final int CONTAINER_GZIP = 2;
+    public static final int CONTAINER_AUTO = 3;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private static final int STATE_DETECT = 0;
+    private static final int STATE_GZIP_HEADER = 1;
+    private static final int STATE_BODY = 2;
+    private static final int STATE_GZIP_TRAILER = 3;
+    private static final int STATE_DONE = 4;
+
+    private static final int GZIP_TRAILER_SIZE = 8;
+    private static final int FHCRC = 0x02;
+    private static final int FEXTRA = 0x04;
+    private static final int FNAME = 0x08;
+    private static final int FCOMMENT = 0x10;
+
+    private final int container;
+    private final byte[] zdict;
+    private final ZLibStreamPool pool;
+
+    private Inflater inflater;
+    private boolean nowrap;
+    private int state;
+    private boolean used;
+
+    /* gzip only */
+    private CRC32 crc;
+    private long outputSize;
+    private byte[] pendingHeader;
+    private byte[] trailer;
+    private int trailerLength;
+
+    private byte[] unusedData = EMPTY;
+    private byte[] unconsumedTail = EMPTY;
+
+    /**
+     * @param pool if not {@code null}, a pooled inflater is used and has to be given back with
+     *            {@link #release()}
+     */
+    @TruffleBoundary
+    public ZLibInflateStream(int container, byte[] zdict, ZLibStreamPool pool) {
+        this.container = container;
+        this.zdict = zdict;
+        this.pool = pool;
+        switch (container) {
+            case CONTAINER_ZLIB:
+                startBody(false);
+                break;
+            case CONTAINER_RAW:
+                startBody(true);
+                break;
+            case CONTAINER_GZIP:
+                startGzip();
+                break;
+            default:
+                state = STATE_DETECT;
+                break;
+        }
+    }
+
+    /**
+     * Returns the container for the given {@code wbits} or {@code -1} if they are invalid for
+     * decompression.
+     */
+    public static int getContainer(int wbits) {
+        if (wbits == 0 || 8 <= wbits && wbits <= ZLibModuleBuiltins.MAX_WBITS) {
+            return CONTAINER_ZLIB;
+        } else if (-ZLibModuleBuiltins.MAX_WBITS <= wbits && wbits <= -8) {
+            return CONTAINER_RAW;
+        } else if (24 <= wbits && wbits <= 16 + ZLibModuleBuiltins.MAX_WBITS) {
+            return CONTAINER_GZIP;
+        } else if (40 <= wbits && wbits <= 32 + ZLibModuleBuiltins.MAX_WBITS) {
+            return CONTAINER_AUTO;
+        }
+        return -1;
+    }
+
+    public int getContainer() {
+        return container;
+    }
+
+    public byte[] getZdict() {
+        return zdict;
+    }
+
+    /**
+     * Returns {@code true} if data was already passed to this stream.
+     */
+    public boolean isUsed() {
+        return used;
+    }
+
+    public boolean isEof() {
+        return state == STATE_DONE;
+    }
+
+    public byte[] getUnusedData() {
+        return unusedData;
+    }
+
+    public byte[] getUnconsumedTail() {
+        return unconsumedTail;
+    }
+
+    /**
+     * Decompresses {@code len} bytes of {@code data} starting at {@code off}. If {@code maxLength}
+     * is positive, at most that many bytes are returned and the input that was not consumed yet is
+     * stored in the {@link #getUnconsumedTail() unconsumed tail}. Input following the end of the
+     * compressed stream is appended to the {@link #getUnusedData() unused data}.
+     */
+    @TruffleBoundary
+    public ByteSequenceStorage decompress(byte[] data, int off, int len, int maxLength, int bufSize) throws DataFormatException {
+        used = true;
+        ZLibOutputBuffer out = new ZLibOutputBuffer(maxLength > 0 ? Math.min(bufSize, maxLength) : bufSize);
+        unconsumedTail = EMPTY;
+        byte[] in = data;
+        int pos = off;
+        int end = off + len;
+        loop: while (true) {
+            switch (state) {
+                case STATE_DETECT:
+                    if (pos == end) {
+                        break loop;
+                    }
+                    if ((in[pos] & 0xff) == 0x1f) {
+                        startGzip();
+                    } else {
+                        startBody(false);
+                    }
+                    break;
+                case STATE_GZIP_HEADER:
+                    if (pendingHeader != null) {
+                        byte[] joined = Arrays.copyOf(pendingHeader, pendingHeader.length + end - pos);
+                        System.arraycopy(in, pos, joined, pendingHeader.length, end - pos);
+                        pendingHeader = null;
+                        in = joined;
+                        pos = 0;
+                        end = joined.length;
+                    }
+                    int headerEnd = parseGzipHeader(in, pos, end);
+                    if (headerEnd < 0) {
+                        pendingHeader = Arrays.copyOfRange(in, pos, end);
+                        break loop;
+                    }
+                    pos = headerEnd;
+                    startBody(true);
+                    break;
+                case STATE_BODY:
+                    inflater.setInput(in, pos, end - pos);
+                    inflate(out, maxLength);
+                    pos = end - inflater.getRemaining();
+                    if (inflater.finished()) {
+                        if (crc != null) {
+                            trailer = new byte[GZIP_TRAILER_SIZE];
+                            state = STATE_GZIP_TRAILER;
+                        } else {
+                            finish();
+                        }
+                        break;
+                    }
+                    if (pos < end) {
+                        // the output limit was reached
+                        unconsumedTail = Arrays.copyOfRange(in, pos, end);
+                    }
+                    break loop;
+                case STATE_GZIP_TRAILER:
+                    int n = Math.min(GZIP_TRAILER_SIZE - trailerLength, end - pos);
+                    System.arraycopy(in, pos, trailer, trailerLength, n);
+                    trailerLength += n;
+                    pos += n;
+                    if (trailerLength < GZIP_TRAILER_SIZE) {
+                        break loop;
+                    }
+                    if (readIntLE(trailer, 0) != (int) crc.getValue()) {
+                        throw new DataFormatException("incorrect data check");
+                    }
+                    if (readIntLE(trailer, 4) != (int) outputSize) {
+                        throw new DataFormatException("incorrect length check");
+                    }
+                    finish();
+                    break;
+                default:
+                    assert state == STATE_DONE;
+                    if (pos < end) {
+                        byte[] joined = Arrays.copyOf(unusedData, unusedData.length + end - pos);
+                        System.arraycopy(in, pos, joined, unusedData.length, end - pos);
+                        unusedData = joined;
+                    }
+                    break loop;
+            }
+        }
+        return out.toStorage();
+    }
+
+    /**
+     * Gives the inflater back to the pool or frees its native memory.
+     */
+    @TruffleBoundary
+    public void release() {
+        if (inflater != null) {
+            if (pool != null) {
+                pool.returnInflater(inflater, nowrap);
+            } else {
+                inflater.end();
+            }
+            inflater = null;
+        }
+    }
+
+    private void inflate(ZLibOutputBuffer out, int maxLength) throws DataFormatException {
+        int start = out.len;
+        while (!inflater.finished() && (maxLength <= 0 || out.len < maxLength)) {
+            int space = out.ensureSpace();
+            if (maxLength > 0) {
+                space = Math.min(space, maxLength - out.len);
+            }
+            int n = inflater.inflate(out.buf, out.len, space);
+            out.len += n;
+            if (n == 0) {
+                if (inflater.needsDictionary()) {
+                    if (zdict == null) {
+                        throw new DataFormatException("need dictionary");
+                    }
+                    inflater.setDictionary(zdict);
+                    continue;
+                }
+                // zlib only stops with free output space if the input is exhausted
+                break;
+            }
+        }
+        if (crc != null) {
+            crc.update(out.buf, start, out.len - start);
+            outputSize += out.len - start;
+        }
+    }
+
+    private void startGzip() {
+        crc = new CRC32();
+        state = STATE_GZIP_HEADER;
+    }
+
+    private void startBody(boolean raw) {
+        nowrap = raw;
+        inflater = pool != null ? pool.takeInflater(raw) : new Inflater(raw);
+        if (raw && zdict != null) {
+            inflater.setDictionary(zdict);
+        }
+        state = STATE_BODY;
+    }
+
+    private void finish() {
+        state = STATE_DONE;
+        pendingHeader = null;
+        trailer = null;
+        release();
+    }
+
+    /**
+     * Returns the offset after the gzip header starting at {@code pos} or {@code -1} if the header
+     * is incomplete.
+     */
+    private static int parseGzipHeader(byte[] b, int pos, int end) throws DataFormatException {
+        if (end - pos >= 1 && (b[pos] & 0xff) != 0x1f || end - pos >= 2 && (b[pos + 1] & 0xff) != 0x8b) {
+            throw new DataFormatException("incorrect header check");
+        }
+        if (end - pos < 10) {
+            return -1;
+        }
+        if (b[pos + 2] != 8) {
+            throw new DataFormatException("unknown compression method");
+        }
+        int flags = b[pos + 3] & 0xff;
+        int p = pos + 10;
+        if ((flags & FEXTRA) != 0) {
+            if (end - p < 2) {
+                return -1;
+            }
+            p += 2 + ((b[p] & 0xff) | (b[p + 1] & 0xff) << 8);
+        }
+        if ((flags & FNAME) != 0) {
+            p = skipZeroTerminated(b, p, end);
+        }
+        if ((flags & FCOMMENT) != 0) {
+            p = skipZeroTerminated(b, p, end);
+        }
+        if ((flags & FHCRC) != 0) {
+            p += 2;
+        }
+        return p <= end ? p : -1;
+    }
+
+    private static int skipZeroTerminated(byte[] b, int pos, int end) {
+        for (int i = pos; i < end; i++) {
+            if (b[i] == 0) {
+                return i + 1;
+            }
+        }
+        // incomplete, make sure the caller sees an offset past the end
+        return end + 1;
+    }
+
+    private static int readIntLE(byte[] b, int off) {
+        return (b[off] & 0xff) | (b[off + 1] & 0xff) << 8 | (b[off + 2] & 0xff) << 16 | (b[off + 3] & 0xff) << 24;
+    }
+}
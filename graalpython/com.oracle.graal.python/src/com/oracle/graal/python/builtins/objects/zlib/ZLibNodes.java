@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.zlib;
+
+import com.oracle.graal.python.builtins.objects.bytes.BytesNodes.ToBytesNode;
+import com.oracle.graal.python.builtins.objects.bytes.PIBytesLike;
+import com.oracle.graal.python.nodes.PNodeWithContext;
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+
+public abstract class ZLibNodes {
+
+    /**
+     * Returns the input of a (de)compression function as byte storage. For {@code bytes} and
+     * {@code bytearray}, this is the object's own storage, so the data is passed to the
+     * (de)compressor without copying it. Only the first {@link ByteSequenceStorage#length()}
+     * bytes of the {@link ByteSequenceStorage#getInternalArrayObject() internal array} are valid.
+     */
+    public abstract static class ToInputStorageNode extends PNodeWithContext {
+
+        public abstract ByteSequenceStorage execute(VirtualFrame frame, Object data);
+
+        @Specialization(guards = "hasByteStorage(data)")
+        static ByteSequenceStorage doBytesLike(PIBytesLike data) {
+            return (ByteSequenceStorage) data.getSequenceStorage();
+        }
+
+        @Specialization(guards = "!hasByteStorage(data)")
+        static ByteSequenceStorage doOther(VirtualFrame frame, Object data,
+                        @Cached ToBytesNode toBytesNode) {
+            return new ByteSequenceStorage(toBytesNode.execute(frame, data));
+        }
+
+        static boolean hasByteStorage(Object data) {
+            return data instanceof PIBytesLike && ((PIBytesLike) data).getSequenceStorage() instanceof ByteSequenceStorage;
+        }
+
+        public static ToInputStorageNode create() {
+            return ZLibNodesFactory.ToInputStorageNodeGen.create();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.zlib;
+
+import java.util.Arrays;
+
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+
+/**
+ * A growable output buffer for the (de)compression loops. The array is handed over to the resulting
+ * {@code bytes} object without trimming it to the final length.
+ */
+final class ZLibOutputBuffer {
+    private static final int MIN_CAPACITY = 64;
+
+    byte[] buf;
+    int len;
+
+    ZLibOutputBuffer(int initialCapacity) {
+        buf = new byte[Math.max(MIN_CAPACITY, initialCapacity)];
+    }
+
+    /**
+     * Makes sure that there is room for at least one more byte and returns the number of free
+     * bytes.
+     */
+    int ensureSpace() {
+        if (len == buf.length) {
+            int newCapacity = buf.length * 2;
+            if (newCapacity < 0) {
+                newCapacity = Integer.MAX_VALUE - 8;
+                if (len >= newCapacity) {
+                    throw new OutOfMemoryError();
+                }
+            }
+            buf = Arrays.copyOf(buf, newCapacity);
+        }
+        return buf.length - len;
+    }
+
+    void write(byte[] data, int off, int n) {
+        if (buf.length - len < n) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + n));
+        }
+        System.arraycopy(data, off, buf, len, n);
+        len += n;
+    }
+
+    void writeIntLE(int value) {
+        byte[] b = {(byte) value, (byte) (value >>> 8), (byte) (value >>> 16), (byte) (value >>> 24)};
+        write(b, 0, 4);
+    }
+
+    ByteSequenceStorage toStorage() {
+        return new ByteSequenceStorage(buf, len);
+    }
+}
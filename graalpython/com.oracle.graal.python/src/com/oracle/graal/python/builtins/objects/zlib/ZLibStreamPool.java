@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.zlib;
+
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * A per-context pool of {@link Deflater} and {@link Inflater} instances for the one-shot functions
+ * {@code zlib.compress} and {@code zlib.decompress}. Creating a new instance allocates the native
+ * zlib state (about 256 KiB for a deflater), so reusing reset instances makes compressing or
+ * decompressing many small payloads considerably cheaper. The pool keeps at most
+ * {@link #MAX_POOLED} instances of each kind, additional ones are ended when they are returned.
+ */
+public final class ZLibStreamPool {
+    private static final int MAX_POOLED = 4;
+
+    /* deflaters producing a zlib container; the level is set when taking one */
+    private final Deflater[] deflaters = new Deflater[MAX_POOLED];
+    private int deflaterCount;
+
+    /* inflaters indexed by 'nowrap' */
+    private final Inflater[][] inflaters = new Inflater[2][MAX_POOLED];
+    private final int[] inflaterCount = new int[2];
+
+    @TruffleBoundary
+    public synchronized Deflater takeDeflater(int level) {
+        if (deflaterCount > 0) {
+            Deflater deflater = deflaters[--deflaterCount];
+            deflaters[deflaterCount] = null;
+            deflater.setLevel(level);
+            return deflater;
+        }
+        return new Deflater(level);
+    }
+
+    @TruffleBoundary
+    public synchronized void returnDeflater(Deflater deflater) {
+        if (deflaterCount < MAX_POOLED) {
+            deflater.reset();
+            deflater.setStrategy(Deflater.DEFAULT_STRATEGY);
+            deflaters[deflaterCount++] = deflater;
+        } else {
+            deflater.end();
+        }
+    }
+
+    @TruffleBoundary
+    public synchronized Inflater takeInflater(boolean nowrap) {
+        int kind = nowrap ? 1 : 0;
+        if (inflaterCount[kind] > 0) {
+            Inflater inflater = inflaters[kind][--inflaterCount[kind]];
+            inflaters[kind][inflaterCount[kind]] = null;
+            return inflater;
+        }
+        return new Inflater(nowrap);
+    }
+
+    @TruffleBoundary
+    public synchronized void returnInflater(Inflater inflater, boolean nowrap) {
+        int kind = nowrap ? 1 : 0;
+        if (inflaterCount[kind] < MAX_POOLED) {
+            inflater.reset();
+            inflaters[kind][inflaterCount[kind]++] = inflater;
+        } else {
+            inflater.end();
+        }
+    }
+}
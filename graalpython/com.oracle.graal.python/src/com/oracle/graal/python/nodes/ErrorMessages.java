@@ -42,10 +42,14 @@ package com.oracle.graal.python.nodes;
 
 public abstract class ErrorMessages {
     public static final String ABSOLUTE_VALUE_TOO_LARGE = "absolute value too large";
+    public static final String ARGUMENT_LIST_MUST_BE_TUPLE = "argument list must be a tuple";
     public static final String ARG_AFTER_MUST_BE_ITERABLE = "argument after * must be an iterable, not %p";
     public static final String ARG_CONVERTED_NOT_EXECUTABLE = "argument converted is not executable";
     public static final String ARG_D_MUST_BE_S = "%s arg %d must be a %s";
     public static final String ARG_D_MUST_BE_S_NOT_P = "%s argument %d must be %s, not %p";
+    public static final String ARG_FOR_S_MUST_BE_BYTES = "argument for '%s' must be a bytes object";
+    public static final String ARG_MUST_BE_READ_WRITE_BYTESLIKE = "argument must be read-write bytes-like object, not %p";
+    public static final String ARG_OUT_OF_RANGE = "argument out of range";
     public static final String ARG_S_MUST_BE_S_NOT_P = "%s argument %s must be %s, not %p";
     public static final String ARG_D_MUST_BE_S_OR_S = "%s argument %d must be '%s' or '%s'";
     public static final String ARG_D_MUST_NOT_BE_EMPTY = "arg %d must not be empty";
@@ -61,6 +65,7 @@ public abstract class ErrorMessages {
     public static final String ARG_NOT_IN_RANGE = "%s arg not in range(%s)";
     public static final String ARG_SHOULD_NOT_EXCEED = "%s argument should not exceed %d";
     public static final String ARGS_MUST_HAVE_SAME_LENGTH = "%s arguments must have same length";
+    public static final String ARG_TO_SETSTATE_MUST_BE_TUPLE = "argument to __setstate__ must be a tuple";
     public static final String ARRAY_ASSIGN_OUT_OF_BOUNDS = "array assignment index out of range";
     public static final String ARRAY_OUT_OF_BOUNDS = "array index out of range";
     public static final String ARRAY_SIZE_TOO_LARGE = "array size too large";
@@ -72,6 +77,11 @@ public abstract class ErrorMessages {
     public static final String ATTR_S_OF_S_OBJ_IS_NOT_WRITABLE = "attribute %s of %s object is not writable";
     public static final String ATTR_S_READONLY = "attribute %s is read-only";
     public static final String ATTR_VALUE_MUST_BE_BOOL = "attribute value type must be bool";
+    public static final String A_COROUTINE_WAS_EXPECTED_GOT_S = "a coroutine was expected, got %s";
+    public static final String BAD_CHAR_IN_STRUCT_FMT = "bad char in struct format";
+    public static final String BUFFER_CALLBACK_NEEDS_PROTOCOL_5 = "buffer_callback needs protocol >= 5";
+    public static final String BUFFER_SIZE_MUST_BE_POSITIVE = "buffer size must be strictly positive";
+    public static final String BUFFER_TOO_SMALL_FOR_REQUESTED_BYTES = "buffer too small for requested bytes";
     public static final String B_REQUIRES_BYTES_OR_OBJ_THAT_IMPLEMENTS_S_NOT_P = "%%b requires a bytes-like object, or an object that implements __bytes__, not '%p'";
     public static final String BAD_ARG_TO_INTERNAL_FUNC = "bad argument to internal function";
     public static final String BAD_ARG_TO_INTERNAL_FUNC_P = "bad argument to internal function %p";
@@ -91,6 +101,24 @@ public abstract class ErrorMessages {
     public static final String BYTEARRAY_OUT_OF_BOUNDS = "bytearray index out of range";
     public static final String BYTEORDER_MUST_BE_LITTLE_OR_BIG = "byteorder must be either 'little' or 'big'";
     public static final String BYTESLIKE_OBJ_REQUIRED = "a bytes-like object is required, not '%p'";
+    public static final String CANNOT_COPY_USED_ZLIB_STREAM = "copying a zlib stream that already processed data is not supported";
+    public static final String CANNOT_ENTER_INTO_TASK_S_WHILE_ANOTHER_TASK_S_IS_BEING_EXECUTED = "Cannot enter into task %s while another task %s is being executed.";
+    public static final String CANNOT_EXTRACT_RAW_BUFFER = "cannot extract raw buffer from non-contiguous buffer";
+    public static final String CANNOT_ITERATIVELY_UNPACK_WITH_STRUCT_OF_LENGTH_0 = "cannot iteratively unpack with a struct of length 0";
+    public static final String CANNOT_MMAP_EMPTY_FILE = "cannot mmap an empty file";
+    public static final String CANNOT_SCHEDULE_NEW_FUTURES_AFTER_SHUTDOWN = "cannot schedule new futures after shutdown";
+    public static final String CANNOT_USE_CLOSEFD = "Cannot use closefd=False with file name";
+    public static final String CANT_GET_ATTRIBUTE_ON = "Can't get attribute %s on %s";
+    public static final String CANT_GET_LOCAL_ATTRIBUTE_ON = "Can't get local attribute %s on %s";
+    public static final String CANT_PICKLE_GLOBAL_IDENTIFIER = "can't pickle global identifier '%s.%s' using pickle protocol %d";
+    public static final String CANT_PICKLE_NOT_FOUND_AS = "Can't pickle %s: it's not found as %s.%s";
+    public static final String CANT_PICKLE_NOT_SAME_OBJECT = "Can't pickle %s: it's not the same object as %s.%s";
+    public static final String CANT_PICKLE_P_OBJECT = "can't pickle '%p' object: %s";
+    public static final String CANT_SEND_NON_NONE_VALUE_TO_FUTUREITER = "can't send non-None value to a FutureIter";
+    public static final String CHAR_FMT_REQUIRES_BYTES_OF_LENGTH_1 = "char format requires a bytes object of length 1";
+    public static final String CIRCULAR_REFERENCE_DETECTED = "Circular reference detected";
+    public static final String CONCURRENT_POLL_INVOCATION = "concurrent poll() invocation";
+    public static final String COULD_NOT_FIND_MARK = "could not find MARK";
     public static final String C_ARG_NOT_IN_RANGE = "%%c arg not in range(0x%s)";
     public static final String CALL_STACK_NOT_DEEP_ENOUGH = "call stack is not deep enough";
     public static final String CALLING_ARG_CONVERTER_FAIL_EXPECTED_D_GOT_P = "calling argument converter failed; expected %d but got %d parameters.";
@@ -156,6 +184,89 @@ public abstract class ErrorMessages {
     public static final String CLASS_ASIGMENT_S_LAYOUT_DIFFERS_FROM_S = "__class__ assignment: '%s' object layout differs from '%s'";
     public static final String CLASS_ASSIGMENT_ONLY_SUPPORTED_FOR_HEAP_TYPES_OR_MODTYPE_SUBCLASSES = "__class__ assignment only supported for heap types or ModuleType subclasses, not '%p'";
     public static final String CLASS_MUST_BE_SET_TO_CLASS = "__class__ must be set to a class, not '%p' object";
+    public static final String DATA_OUT_OF_RANGE = "data out of range";
+    public static final String DEQUE_ALREADY_AT_MAX_SIZE = "deque already at its maximum size";
+    public static final String DEQUE_INDEX_OUT_OF_RANGE = "deque index out of range";
+    public static final String DEQUE_MUTATED_DURING_ITERATION = "deque mutated during iteration";
+    public static final String DEQUE_MUTATED_DURING_REMOVE = "deque mutated during remove().";
+    public static final String DEQUE_REMOVE_X_NOT_IN_DEQUE = "deque.remove(x): x not in deque";
+    public static final String DICT_ITEMS_MUST_RETURN_2_TUPLES = "dict items iterator must return 2-tuples";
+    public static final String ENCODER_MUST_RETURN_STR = "encoder() must return a string, not %p";
+    public static final String END_IS_OUT_OF_BOUNDS = "end is out of bounds";
+    public static final String ERROR_2_WHILE_COMPRESSING = "Error -2 while compressing data: inconsistent stream state";
+    public static final String ERROR_3_WHILE_DECOMPRESSING = "Error -3 while decompressing data: %s";
+    public static final String EXCEPTION_IS_NOT_SET = "Exception is not set.";
+    public static final String EXPECTED_INTEGER_FROM_OPENER = "expected integer from opener";
+    public static final String EXPECTED_STR_OR_BYTESLIKE_OBJ = "expected string or bytes-like object";
+    public static final String EXPECTING_COLON_DELIMITER = "Expecting ':' delimiter";
+    public static final String EXPECTING_COMMA_DELIMITER = "Expecting ',' delimiter";
+    public static final String EXPECTING_PROPERTY_NAME = "Expecting property name enclosed in double quotes";
+    public static final String EXPECTING_VALUE = "Expecting value";
+    public static final String EXT_SPECIFIES_CODE_LE_ZERO = "EXT specifies code <= 0";
+    public static final String FILE_MUST_HAVE_READ_AND_READLINE = "file must have 'read' and 'readline' attributes";
+    public static final String FILE_MUST_HAVE_WRITE_ATTR = "file must have a 'write' attribute";
+    public static final String FILE_NOT_OPEN_FOR_READING = "File not open for reading";
+    public static final String FILE_NOT_OPEN_FOR_WRITING = "File not open for writing";
+    public static final String FILE_OR_STREAM_IS_NOT_READABLE = "File or stream is not readable.";
+    public static final String FILE_OR_STREAM_IS_NOT_WRITABLE = "File or stream is not writable.";
+    public static final String FLOAT_TOO_LARGE_TO_PACK_WITH_S_FMT = "float too large to pack with %s format";
+    public static final String FUTURE_IN_UNEXPECTED_STATE = "Future in unexpected state";
+    public static final String FUTURE_OBJECT_IS_NOT_INITIALIZED = "Future object is not initialized.";
+    public static final String FUTURE_STATE_S_S = "%s: %s";
+    public static final String HEAP_ARG_MUST_BE_LIST = "heap argument must be a list";
+    public static final String IDX_CANNOT_BE_NEGATIVE = "idx cannot be negative";
+    public static final String INITIALIZER_MUST_BE_A_CALLABLE = "initializer must be a callable";
+    public static final String INTERNAL_ERROR_IN_REGEX_ENGINE = "internal error in regular expression engine";
+    public static final String INT_TOO_LARGE_TO_CONVERT = "int too large to convert";
+    public static final String INVALID_ARGUMENTS = "invalid arguments";
+    public static final String INVALID_CONTROL_CHARACTER_AT = "Invalid control character at";
+    public static final String INVALID_ESCAPE = "Invalid \\escape";
+    public static final String INVALID_EXCEPTION_OBJECT = "invalid exception object";
+    public static final String INVALID_HPY_HANDLE = "invalid or already closed HPy handle: %d";
+    public static final String INVALID_INITIALIZATION_OPTION = "Invalid initialization option";
+    public static final String INVALID_LOAD_KEY = "invalid load key, '%s'.";
+    public static final String INVALID_MODE_S = "invalid mode: %s";
+    public static final String INVALID_PARTIAL_STATE = "invalid partial state";
+    public static final String INVALID_UXXXX_ESCAPE = "Invalid \\uXXXX escape";
+    public static final String IO_CLOSED = "I/O operation on closed file";
+    public static final String IO_OPERATION_ON_CLOSED_EPOLL = "I/O operation on closed epoll object";
+    public static final String IO_UNINIT = "I/O operation on uninitialized object";
+    public static final String ISLICE_INDICES_MUST_BE_NONE_OR_INT = "Indices for islice() must be None or an integer: 0 <= x <= sys.maxsize.";
+    public static final String ISLICE_STEP_MUST_BE_POSITIVE_INT_OR_NONE = "Step for islice() must be a positive integer or None.";
+    public static final String ISLICE_STOP_MUST_BE_NONE_OR_INT = "Stop argument for islice() must be None or an integer: 0 <= x <= sys.maxsize.";
+    public static final String ITEMS_MUST_RETURN_2_TUPLES = "items must return 2-tuples";
+    public static final String ITERATIVE_UNPACKING_REQUIRES_MULTIPLE_OF_D = "iterative unpacking requires a buffer of a multiple of %d bytes";
+    public static final String JSON_KEYS_MUST_BE_S_NOT_P = "keys must be str, int, float, bool or None, not %p";
+    public static final String LEAVING_TASK_S_DOES_NOT_MATCH_CURRENT_TASK_S = "Leaving task %s does not match the current task %s.";
+    public static final String LENGTH_MUST_BE_GREATER_THAN_ZERO = "length must be greater than zero";
+    public static final String LOG_TRACEBACK_CAN_ONLY_BE_SET_TO_FALSE = "_log_traceback can only be set to False";
+    public static final String MAKE_ENCODER_ARG_1_MUST_BE_DICT = "make_encoder() argument 1 must be dict or None, not %p";
+    public static final String MAXEVENTS_MUST_BE_GREATER_THAN_0 = "maxevents must be greater than 0, got %d";
+    public static final String MAXSIZE_SHOULD_BE_INTEGER_OR_NONE = "maxsize should be integer or None";
+    public static final String MAX_WORKERS_MUST_BE_GREATER_THAN_0 = "max_workers must be greater than 0";
+    public static final String MEMORYVIEW_BUFFER_CHANGED = "memoryview: underlying buffer has changed its size or storage";
+    public static final String MEMORYVIEW_CAST_NON_BYTE_FORMATS = "memoryview: cannot cast between two non-byte formats";
+    public static final String MEMORYVIEW_CAST_NOT_C_CONTIGUOUS = "memoryview: casts are restricted to C-contiguous views";
+    public static final String MEMORYVIEW_DESTINATION_FORMAT_ERROR = "memoryview: destination format must be a native single character format prefixed with an optional '@'";
+    public static final String MEMORYVIEW_DIFFERENT_STRUCTURES = "memoryview assignment: lvalue and rvalue have different structures";
+    public static final String MEMORYVIEW_INDEX_OUT_OF_BOUNDS = "index out of bounds on dimension 1";
+    public static final String MEMORYVIEW_INVALID_SLICE_KEY = "memoryview: invalid slice key";
+    public static final String MEMORYVIEW_INVALID_TYPE_FOR_FORMAT = "memoryview: invalid type for format '%s'";
+    public static final String MEMORYVIEW_INVALID_VALUE_FOR_FORMAT = "memoryview: invalid value for format '%s'";
+    public static final String MEMORYVIEW_LENGTH_NOT_MULTIPLE_OF_ITEMSIZE = "memoryview: length is not a multiple of itemsize";
+    public static final String MEMORYVIEW_MULTIDIM_CAST = "memoryview: casts to multi-dimensional views are not supported for views of managed objects";
+    public static final String MEMORYVIEW_PRODUCT_SHAPE = "memoryview: product(shape) * itemsize != buffer size";
+    public static final String MEMORYVIEW_READONLY = "cannot modify read-only memory";
+    public static final String MEMORYVIEW_RELEASED = "operation forbidden on released memoryview object";
+    public static final String MEMORYVIEW_SHAPE_MUST_BE_LIST_OR_TUPLE = "shape must be a list or a tuple";
+    public static final String MEMO_VALUE_NOT_FOUND_AT_INDEX = "Memo value not found at index %d";
+    public static final String MEM_MAPPED_OFFSET_MUST_BE_POSITIVE = "memory mapped offset must be positive";
+    public static final String MMAP_CANT_MODIFY_READONLY = "mmap can't modify a readonly memory map.";
+    public static final String MMAP_CLOSED_OR_INVALID = "mmap closed or invalid";
+    public static final String MMAP_INVALID_ACCESS_PARAMETER = "mmap invalid access parameter.";
+    public static final String MMAP_LENGTH_GREATER_THAN_FILE_SIZE = "mmap length is greater than file size";
+    public static final String MMAP_OFFSET_GREATER_THAN_FILE_SIZE = "mmap offset is greater than file size";
+    public static final String MMAP_SLICE_ASSIGNMENT_WRONG_SIZE = "mmap slice assignment is wrong size";
     public static final String MUST_BE_SET_TO_S_NOT_P = "%s must be set to a %s, not a '%p'";
     public static final String CLASSPATH_ARG_MUST_BE_STRING = "classpath argument %d must be string, not %p";
     public static final String CODE_OBJ_NO_FREE_VARIABLES = "code object passed to %s may not contain free variables";
@@ -184,6 +295,66 @@ public abstract class ErrorMessages {
     public static final String DICT_OF_P_OBJECTS_HAS_NO_ATTR = "'%p' dict of '%p' object has no attribute '__setitem__'";
     public static final String DICT_UPDATE_SEQ_ELEM_HAS_LENGTH_2_REQUIRED = "dictionary update sequence element #%d has length %d; 2 is required";
     public static final String DIVISION_BY_ZERO = "division by zero";
+    public static final String MUST_HAVE_EXACTLY_ONE_OF_MODE = "Must have exactly one of create/read/write/append mode and at most one plus";
+    public static final String NEGATIVE_BUFFERSIZE_IN_S = "negative buffersize in %s";
+    public static final String NEGATIVE_FILE_DESCRIPTOR = "negative file descriptor";
+    public static final String NEGATIVE_SIZEHINT = "negative sizehint";
+    public static final String NEGATIVE_S_ARGUMENT = "negative %s argument";
+    public static final String NEWOBJ_ARGLIST_EMPTY = "__newobj__ arglist is empty";
+    public static final String NEWOBJ_ARGS0_HAS_WRONG_CLASS = "args[0] from __newobj__ args has the wrong class";
+    public static final String NEWOBJ_ARGS0_IS_NOT_TYPE = "args[0] from __newobj__ args is not a type";
+    public static final String NEWOBJ_EX_ARGS_MUST_HAVE_3_ITEMS = "length of the NEWOBJ_EX argument tuple must be exactly 3, not %d";
+    public static final String NEWOBJ_EX_FIRST_ITEM_MUST_BE_CLASS = "first item from NEWOBJ_EX argument tuple must be a class, not %p";
+    public static final String NEWOBJ_EX_SECOND_ITEM_MUST_BE_TUPLE = "second item from NEWOBJ_EX argument tuple must be a tuple, not %p";
+    public static final String NEWOBJ_EX_THIRD_ITEM_MUST_BE_DICT = "third item from NEWOBJ_EX argument tuple must be a dict, not %p";
+    public static final String NOT_ENOUGH_DATA_TO_UNPACK_D_BYTES_AT_OFFSET_D = "not enough data to unpack %d bytes at offset %d";
+    public static final String NOT_ENOUGH_OUT_OF_BAND_BUFFERS = "not enough out-of-band buffers";
+    public static final String NO_BUFFERS_ARGUMENT_GIVEN = "pickle stream refers to out-of-band data but no *buffers* argument was given";
+    public static final String NO_PERSISTENT_LOAD_FUNCTION = "A load persistent id instruction was encountered,\nbut no persistent_load function was specified.";
+    public static final String NO_RUNNING_EVENT_LOOP = "no running event loop";
+    public static final String NO_SPACE_TO_PACK_D_BYTES_AT_OFFSET_D = "no space to pack %d bytes at offset %d";
+    public static final String ODD_NUMBER_OF_ITEMS_FOR_S = "odd number of items for %s";
+    public static final String OFFSET_D_OUT_OF_RANGE_FOR_D_BYTE_BUFFER = "offset %d out of range for %d-byte buffer";
+    public static final String OPENER_RETURNED_D = "opener returned %d";
+    public static final String OUT_OF_RANGE_FLOAT_NOT_JSON_COMPLIANT = "Out of range float values are not JSON compliant";
+    public static final String PACK_INTO_EXPECTED_BUFFER_ARG = "pack_into expected buffer argument";
+    public static final String PACK_INTO_EXPECTED_OFFSET_ARG = "pack_into expected offset argument";
+    public static final String PACK_INTO_REQUIRES_BUFFER_OF_AT_LEAST = "pack_into requires a buffer of at least %d bytes for packing %d bytes at offset %d (actual buffer size is %d)";
+    public static final String PERSISTENT_IDS_MUST_BE_ASCII = "persistent IDs in protocol 0 must be ASCII strings";
+    public static final String PICKLER_INIT_NOT_CALLED = "Pickler.__init__() was not called by %s.__init__()";
+    public static final String PICKLE_BUFFER_NEEDS_PROTOCOL_5 = "PickleBuffer can only pickled with protocol >= 5";
+    public static final String PICKLE_BUFFER_NOT_CONTIGUOUS = "PickleBuffer can not be pickled when pointing to a non-contiguous buffer";
+    public static final String PICKLE_BUFFER_RELEASED = "operation forbidden on released PickleBuffer object";
+    public static final String PICKLE_DATA_TRUNCATED = "pickle data was truncated";
+    public static final String PICKLE_PROTOCOL_MUST_BE_LE = "pickle protocol must be <= %d";
+    public static final String POP_FROM_EMPTY_DEQUE = "pop from an empty deque";
+    public static final String RAN_OUT_OF_INPUT = "Ran out of input";
+    public static final String RAW_STREAM_DETACHED = "raw stream has been detached";
+    public static final String READ_LENGTH_MUST_BE_NON_NEGATIVE = "read length must be non-negative or -1";
+    public static final String REDUCE_EMPTY_SEQ = "reduce() of empty sequence with no initial value";
+    public static final String REDUCE_FIFTH_ITEM_MUST_BE_ITERATOR = "fifth element of the tuple returned by __reduce__ must be an iterator, not %p";
+    public static final String REDUCE_FIRST_ITEM_MUST_BE_CALLABLE = "first item of the tuple returned by __reduce__ must be callable";
+    public static final String REDUCE_FOURTH_ITEM_MUST_BE_ITERATOR = "fourth element of the tuple returned by __reduce__ must be an iterator, not %p";
+    public static final String REDUCE_MUST_RETURN_STR_OR_TUPLE = "__reduce__ must return a string or tuple";
+    public static final String REDUCE_SECOND_ITEM_MUST_BE_TUPLE = "second item of the tuple returned by __reduce__ must be a tuple";
+    public static final String REDUCE_SIXTH_ITEM_MUST_BE_FUNCTION = "sixth element of the tuple returned by __reduce__ must be a function, not %p";
+    public static final String REDUCE_TUPLE_MUST_HAVE_2_TO_6_ITEMS = "tuple returned by __reduce__ must contain 2 through 6 elements";
+    public static final String REENTRANT_CALL_INSIDE_R = "reentrant call inside %r";
+    public static final String REPEAT_ARG_TOO_LARGE = "repeat argument too large";
+    public static final String REPEAT_COUNT_WITHOUT_FMT = "repeat count given without format specifier";
+    public static final String REQUIRED_ARG_NOT_FLOAT = "required argument is not a float";
+    public static final String REQUIRED_ARG_NOT_INTEGER = "required argument is not an integer";
+    public static final String RESULT_IS_NOT_READY = "Result is not ready.";
+    public static final String SEQUENCE_INDEX_MUST_BE_INT_NOT_P = "sequence index must be integer, not '%p'";
+    public static final String SLOT_STATE_IS_NOT_DICT = "slot state is not a dictionary";
+    public static final String STACK_GLOBAL_REQUIRES_STR = "STACK_GLOBAL requires str";
+    public static final String STATE_IS_NOT_DICT = "state is not a dictionary";
+    public static final String STEP_ALREADY_DONE_S_S = "_step(): already done: %s, %s";
+    public static final String STOP_ITERATION_INTERACTS_BADLY_WITH_GENERATORS = "StopIteration interacts badly with generators and cannot be raised into a Future";
+    public static final String STRING_OPCODE_ARG_MUST_BE_QUOTED = "the STRING opcode argument must be quoted";
+    public static final String STRUCT_ARG_MUST_BE_STR_OR_BYTES = "Struct() argument 1 must be a str or bytes object, not %p";
+    public static final String S_ARGS_MUST_BE_TUPLE = "%s args argument must be a tuple, not %p";
+    public static final String S_CLASS_MUST_BE_TYPE = "%s class argument must be a type, not %p";
     public static final String S_DIVISION_BY_ZERO = "%s division by zero";
     public static final String SUPER_NO_CLASS = "super(): no arguments";
     public static final String EMPTY_SEPARATOR = "empty separator";
@@ -316,6 +487,7 @@ public abstract class ErrorMessages {
     public static final String LIST_ASSIGMENT_INDEX_OUT_OF_RANGE = "list assignment index out of range";
     public static final String LIST_INDEX_OUT_OF_RANGE = "list index out of range";
     public static final String LIST_LENGTH_OUT_OF_RANGE = "list length out of range";
+    public static final String LIST_MODIFIED_DURING_SORT = "list modified during sort";
     public static final String LOCAL_VAR_REFERENCED_BEFORE_ASSIGMENT = "local variable '%s' referenced before assignment";
     public static final String LOCALS_MUST_BE_MAPPING = "%s() locals must be a mapping or None, not %p";
     public static final String LOST_SYSBREAKPOINTHOOK = "lost sys.breakpointhook";
@@ -418,6 +590,9 @@ public abstract class ErrorMessages {
     public static final String REQUIRES_CODE_OBJ = "%s() requires a code object with %d free vars, not %d";
     public static final String REQUIRES_INT_OR_CHAR = "%%%c requires int or char";
     public static final String ROUNDED_VALUE_TOO_LARGE = "rounded value too large to represent";
+    public static final String S_EXCEEDS_MAXIMUM_SIZE = "%s exceeds system's maximum size of %d bytes";
+    public static final String S_EXPECTED_D_ITEMS_FOR_PACKING_GOT_D = "%s expected %d items for packing (got %d)";
+    public static final String S_FMT_REQUIRES_D_LE_NUMBER_LE_D = "%s format requires %d <= number <= %d";
     public static final String S_FORMAT_NUMBER_IS_REQUIRED_NOT_S = "%%%s format: a number is required, not %p";
     public static final String S_FORMAT_INTEGER_IS_REQUIRED_NOT_S = "%%%s format: an integer is required, not %p";
     public static final String C_ARG_NOT_IN_RANGE256_DECIMAL = "%%c arg not in range(256)";
@@ -438,6 +613,10 @@ public abstract class ErrorMessages {
     public static final String RETURNED_NULL_WO_SETTING_ERROR = "%s returned NULL without setting an error";
     public static final String RETURNED_RESULT_WITH_ERROR_SET = "%s returned a result with an error set";
     public static final String RETURNED_UNEXPECTE_RET_CODE_EXPECTED_INT_BUT_WAS_S = "%s returned an unexpected return code; expected 'int' but was %s";
+    public static final String S_IS_NOT_IN_DEQUE = "%s is not in deque";
+    public static final String S_KWARGS_MUST_BE_DICT = "%s kwargs argument must be a dict, not %p";
+    public static final String S_OF_CLOSED_FILE = "%s of closed file";
+    public static final String S_PICKLE_HAS_NEGATIVE_BYTE_COUNT = "%s pickle has negative byte count";
     public static final String S_S_CONFLICTS_WITH_CLASS_VARIABLE = "%s in %s conflicts with class variable";
     public static final String SECURITY_EX_WHILE_READING = "security exception while reading: '%s'";
     public static final String SEEK_OUT_OF_RANGE = "seek out of range";
@@ -470,13 +649,22 @@ public abstract class ErrorMessages {
     public static final String TAKES_FROM_D_TO_D_POS_ARG_S_BUT_D_POS_ARG_S = "%s() takes from %d to %d positional argument%s but %d positional argument%s (and %d keyword-only argument%s) were given%s";
     public static final String TAKES_FROM_D_TO_D_POS_ARG_S_BUT_D_S_GIVEN_S = "%s() takes from %d to %d positional argument%s but %d %s given%s";
     public static final String TAKES_NO_KEYWORD_ARGS = "%s takes no keyword arguments";
+    public static final String TASK_CANNOT_AWAIT_ON_ITSELF_S = "Task cannot await on itself: %s";
+    public static final String TASK_DOES_NOT_SUPPORT_S_OPERATION = "Task does not support %s operation";
+    public static final String TASK_DONE_CALLED_TOO_MANY_TIMES = "task_done() called too many times";
+    public static final String TASK_GOT_BAD_YIELD_S = "Task got bad yield: %s";
+    public static final String TASK_S_GOT_FUTURE_S_ATTACHED_TO_DIFFERENT_LOOP = "Task %s got Future %s attached to a different loop";
+    public static final String THE_FIRST_ARG_MUST_BE_CALLABLE = "the first argument must be callable";
+    public static final String THREAD_INITIALIZER_FAILED = "A thread initializer failed, the thread pool is not usable anymore";
     public static final String THROW_THIRD_ARG_MUST_BE_TRACEBACK = "throw() third argument must be a traceback object";
+    public static final String TIMEOUT_MUST_BE_NON_NEG_NUMBER = "'timeout' must be a non-negative number";
     public static final String TIMEOUT_VALUE_MUST_BE_POSITIVE = "timeout value must be positive";
     public static final String TIMEOUT_VALUE_TOO_LARGE = "timeout value is too large";
     public static final String TOLERANCE_MUST_NON_NEGATIVE = "tolerances must be non-negative";
     public static final String TOO_LARGE_TO_CONVERT_TO = "%s too large to convert to %s";
     public static final String TOO_MANY_ARG = "%s: too many arguments";
     public static final String TOO_MANY_VALUES_TO_UNPACK = "too many values to unpack (expected %d)";
+    public static final String TOTAL_STRUCT_SIZE_TOO_LONG = "total struct size too long";
     public static final String TRAILING_S_IN_STR = "Trailing %s in string";
     public static final String TRANS_TABLE_MUST_BE_256 = "translation table must be 256 characters long";
     public static final String TUPLE_ASSIGN_OUT_OF_BOUNDS = "tuple assignment index out of range";
@@ -488,7 +676,9 @@ public abstract class ErrorMessages {
     public static final String TYPE_IS_NOT_ACCEPTABLE_BASE_TYPE = "type '%p' is not an acceptable base type";
     public static final String TYPE_NAME_NO_NULL_CHARS = "type name must not contain null characters";
     public static final String TYPE_P_NOT_SUPPORTED_BY_FOREIGN_OBJ = "type '%p' is not supported by the foreign object";
+    public static final String TYPE_S_TAKES_AT_LEAST_ONE_ARGUMENT = "type '%s' takes at least one argument";
     public static final String UNEXPECTED_KEYWORD_ARGS = "%s: unexpected keyword arguments";
+    public static final String UNEXPECTED_MARK_FOUND = "unexpected MARK found";
     public static final String UNHASHABLE_TYPE = "unhashable type: '%p'";
     public static final String UNINITIALIZED_S_OBJECT = "uninitialized classmethod object";
     public static final String UNKNOWN_ADDR_FAMILY = "unknown address family %d";
@@ -498,8 +688,13 @@ public abstract class ErrorMessages {
     public static final String UNKNOWN_FORMAT_CODE = "Unknown format code '%c' for object of type '%s'";
     public static final String UNKNOWN_S_TYPE = "unknown %s type";
     public static final String UNOPERABLE_TYPES_P_P = "unorderable types: %p < %p";
+    public static final String UNPACK_FROM_REQUIRES_BUFFER_OF_AT_LEAST = "unpack_from requires a buffer of at least %d bytes for unpacking %d bytes at offset %d (actual buffer size is %d)";
+    public static final String UNPACK_REQUIRES_BUFFER_OF_D_BYTES = "unpack requires a buffer of %d bytes";
+    public static final String UNPICKLER_INIT_NOT_CALLED = "Unpickler.__init__() was not called by %s.__init__()";
+    public static final String UNPICKLING_STACK_UNDERFLOW = "unpickling stack underflow";
     public static final String UNRECOGNIZED_FORMAT_CHAR = "unrecognized format char in arguments parsing: %c";
     public static final String UNRECOGNIZED_KIND = "unrecognized kind";
+    public static final String UNREGISTERED_EXTENSION_CODE = "unregistered extension code %d";
     public static final String UNSIGNED_BYTE_INT_GREATER_THAN_MAX = "unsigned byte integer is greater than maximum";
     public static final String UNSIGNED_BYTE_INT_LESS_THAN_MIN = "unsigned byte integer is less than minimum";
     public static final String UNSUPPORTED_FORMAT_CHAR_AT_INDEX = "unsupported format character '%c' (0x%x) at index %d";
@@ -510,19 +705,25 @@ public abstract class ErrorMessages {
     public static final String UNSUPPORTED_OPERAND_TYPES_FOR_S_P_AND_P = "unsupported operand type(s) for %s: '%p' and '%p'";
     public static final String UNSUPPORTED_OPERAND_TYPES_FOR_S_P_P_P = "unsupported operand type(s) for %s(): '%p', '%p', '%p'";
     public static final String UNSUPPORTED_OPERAND_TYPES_FOR_S_PR_S_P_AND_P = "unsupported operand type(s) for %s or %s(): '%p' and '%p'";
+    public static final String UNSUPPORTED_PICKLE_PROTOCOL = "unsupported pickle protocol: %d";
     public static final String UNSUPPORTED_SIZE_WAS = "unsupported %s size; was: %d";
     public static final String UNSUPPORTED_STR_TYPE = "unsupported string type: %s";
     public static final String UNSUPPORTED_TARGET_SIZE = "Unsupported target size: %d";
+    public static final String UNTERMINATED_STRING_STARTING_AT = "Unterminated string starting at";
     public static final String VALUE_EXPECTED = "%s value expected";
     public static final String VALUE_TOO_LARGE_TO_FIT_INTO_INDEX = "value too large to fit into index-sized integer";
     public static final String WAS_NOT_POSSIBLE_TO_MARSHAL = "Was not possible to marshal";
     public static final String WAS_NOT_POSSIBLE_TO_MARSHAL_P = "Was not possible to marshal %p";
     public static final String WEAK_OBJ_GONE_AWAY = "weak object has gone away";
+    public static final String WHENCE_VALUE_D_UNSUPPORTED = "whence value %d unsupported";
     public static final String WHILE_PREPARING_TO_DECOMPRESS_DATA = "while preparing to decompress data";
     public static final String WORK_DIR_NOT_ACCESSIBLE = "working directory %s is not accessible";
     public static final String WRITE_BYTE_OUT_OF_RANGE = "write byte out of range";
+    public static final String WRITE_TO_CLOSED_FILE = "write to closed file";
     public static final String X_NOT_IN_LIST = "x not in list";
     public static final String X_NOT_IN_TUPLE = "tuple.index(x): x not in tuple";
+    public static final String YIELD_INSTEAD_OF_YIELD_FROM_FOR_GENERATOR_IN_TASK_S_WITH_S = "yield was used instead of yield from for generator in task %s with %s";
+    public static final String YIELD_INSTEAD_OF_YIELD_FROM_IN_TASK_S_WITH_S = "yield was used instead of yield from in task %s with %s";
     public static final String YOU_MAY_SPECIFY_EITHER_OR_BUT_NOT_BOTH = "%s: you may specify either '%s' or '%s' but not both";
     public static final String ZIPIMPORT_CANNOT_REWAD_ARCH_MEMBERS = "zipimport: cannot read archive members large than 2GB";
     public static final String ZIPIMPORT_CANT_READ_DATA = "zipimport: can't read data";
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.parser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.logging.Level;
+
+import com.oracle.graal.python.PythonLanguage;
+import com.oracle.graal.python.parser.sst.SerializationUtils;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.TruffleFile;
+import com.oracle.truffle.api.TruffleLanguage.Env;
+import com.oracle.truffle.api.TruffleLogger;
+
+/**
+ * On-disk store for serialized module SSTs that survives process restarts. Entries are keyed by a
+ * SHA-256 hash of the source text, the interpreter version and the SST serialization version, so a
+ * changed source or a different interpreter simply misses the cache. Any I/O problem is treated as
+ * a miss; the cache never makes parsing fail.
+ */
+public final class PersistentCodeCache {
+    private static final TruffleLogger LOGGER = PythonLanguage.getLogger(PersistentCodeCache.class);
+    private static final String SUFFIX = ".sst";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final Env env;
+    private final TruffleFile directory;
+
+    private PersistentCodeCache(Env env, TruffleFile directory) {
+        this.env = env;
+        this.directory = directory;
+    }
+
+    /**
+     * Creates the cache rooted in a version specific subdirectory of {@code prefix}, or returns
+     * {@code null} if the directory cannot be used.
+     */
+    @TruffleBoundary
+    public static PersistentCodeCache create(Env env, String prefix) {
+        if (prefix.isEmpty()) {
+            LOGGER.fine("PersistentCodeCache is enabled, but PyCachePrefix is not set; not caching");
+            return null;
+        }
+        try {
+            TruffleFile dir = env.getPublicTruffleFile(prefix).resolve("graalpython-" + PythonLanguage.VERSION + "-sst" + SerializationUtils.VERSION);
+            if (!dir.isDirectory()) {
+                dir.createDirectories();
+            }
+            return new PersistentCodeCache(env, dir);
+        } catch (IOException | SecurityException | UnsupportedOperationException e) {
+            LOGGER.log(Level.FINE, e, () -> "Cannot use persistent code cache in " + prefix);
+            return null;
+        }
+    }
+
+    @TruffleBoundary
+    public static String computeKey(String sourceText) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(PythonLanguage.VERSION.getBytes(StandardCharsets.US_ASCII));
+        digest.update(SerializationUtils.VERSION);
+        digest.update(sourceText.getBytes(StandardCharsets.UTF_8));
+        byte[] hash = digest.digest();
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Returns the data stored for {@code key}, or {@code null} on a miss.
+     */
+    @TruffleBoundary
+    public byte[] load(String key) {
+        try {
+            TruffleFile file = directory.resolve(key + SUFFIX);
+            if (!file.isRegularFile()) {
+                return null;
+            }
+            return file.readAllBytes();
+        } catch (IOException | SecurityException e) {
+            LOGGER.log(Level.FINE, e, () -> "Cannot read persistent code cache entry " + key);
+            return null;
+        }
+    }
+
+    /**
+     * Stores {@code data} for {@code key}. The data is written to a temporary file first and then
+     * moved in place, so concurrent processes never observe a partially written entry.
+     */
+    @TruffleBoundary
+    public void store(String key, byte[] data) {
+        TruffleFile tmp = null;
+        try {
+            tmp = env.createTempFile(directory, key, ".tmp");
+            try (OutputStream out = tmp.newOutputStream()) {
+                out.write(data);
+            }
+            tmp.move(directory.resolve(key + SUFFIX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tmp = null;
+        } catch (IOException | SecurityException | UnsupportedOperationException e) {
+            LOGGER.log(Level.FINE, e, () -> "Cannot write persistent code cache entry " + key);
+        } finally {
+            if (tmp != null) {
+                try {
+                    tmp.delete();
+                } catch (IOException | SecurityException e) {
+                    // ignore, the entry is just not cached
+                }
+            }
+        }
+    }
+}
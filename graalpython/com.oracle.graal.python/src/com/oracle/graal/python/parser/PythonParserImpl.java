@@ -77,6 +77,7 @@ public final class PythonParserImpl implements PythonParser, PythonCodeSerialize
     private final int timeStatistics;
     private long timeInParser = 0;
     private long numberOfFiles = 0;
+    private final PersistentCodeCache persistentCache;
     private static final boolean IN_IMAGE_BUILD_TIME = ImageInfo.inImageBuildtimeCode();
 
     private static final Pattern START_INDENT_REGEX = Pattern.compile("^([ \t]+)[^#\r\n\f\t ]");
@@ -86,6 +87,11 @@ public final class PythonParserImpl implements PythonParser, PythonCodeSerialize
     public PythonParserImpl(Env env) {
         this.logFiles = env.getOptions().get(PythonOptions.ParserLogFiles);
         this.timeStatistics = env.getOptions().get(PythonOptions.ParserStatistics);
+        if (!IN_IMAGE_BUILD_TIME && env.getOptions().get(PythonOptions.PersistentCodeCache)) {
+            this.persistentCache = PersistentCodeCache.create(env, env.getOptions().get(PythonOptions.PyCachePrefix));
+        } else {
+            this.persistentCache = null;
+        }
     }
 
     private static Python3Parser getPython3Parser(Source source, String sourceText, ParserErrorCallback errors) {
@@ -345,6 +351,9 @@ public final class PythonParserImpl implements PythonParser, PythonCodeSerialize
     @TruffleBoundary
     public Node parseN(ParserMode mode, ParserErrorCallback errors, Source source, Frame currentFrame, String[] argumentNames) {
         PythonSSTNodeFactory sstFactory = new PythonSSTNodeFactory(errors, source);
+        if (persistentCache != null && mode == ParserMode.File && source.getPath() != null) {
+            return parseWithPersistentCache(errors, sstFactory, source);
+        }
         CacheItem parserSSTResult = parseWithANTLR(mode, errors, sstFactory, source, currentFrame, argumentNames);
         try {
             return sstFactory.createParserResult(parserSSTResult.antlrResult, mode, currentFrame);
@@ -353,6 +362,51 @@ public final class PythonParserImpl implements PythonParser, PythonCodeSerialize
         }
     }
 
+    /**
+     * Parses a module, reusing the SST stored in the persistent code cache when the same source was
+     * parsed before by this interpreter version. A miss parses with ANTLR and stores the result.
+     */
+    private Node parseWithPersistentCache(ParserErrorCallback errors, PythonSSTNodeFactory sstFactory, Source source) {
+        String key = PersistentCodeCache.computeKey(source.getCharacters().toString());
+        SSTNode sstNode = null;
+        byte[] data = persistentCache.load(key);
+        if (data != null) {
+            try {
+                DataInputStream dis = new DataInputStream(new ByteArrayInputStream(data));
+                if (dis.readByte() == SerializationUtils.VERSION) {
+                    ScopeInfo globalScope = ScopeInfo.read(dis, null);
+                    int offset = dis.readInt();
+                    sstNode = new SSTDeserializer(dis, globalScope, offset).readNode();
+                    sstFactory.getScopeEnvironment().setGlobalScope(globalScope);
+                }
+            } catch (IOException | RuntimeException e) {
+                // a damaged entry is treated as a miss
+                sstNode = null;
+            }
+        }
+        if (sstNode == null) {
+            CacheItem parserSSTResult = parseWithANTLR(ParserMode.File, errors, sstFactory, source, null, null);
+            sstNode = parserSSTResult.antlrResult;
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(source.getLength() * 2);
+            try (DataOutputStream dos = new DataOutputStream(baos)) {
+                dos.writeByte(SerializationUtils.VERSION);
+                ScopeInfo.write(dos, parserSSTResult.globalScope);
+                dos.writeInt(0);
+                sstNode.accept(new SSTSerializerVisitor(dos));
+            } catch (IOException e) {
+                baos = null;
+            }
+            if (baos != null) {
+                persistentCache.store(key, baos.toByteArray());
+            }
+        }
+        try {
+            return sstFactory.createParserResult(sstNode, ParserMode.File, null);
+        } catch (Exception e) {
+            throw handleParserError(errors, source, e);
+        }
+    }
+
     @Override
     @TruffleBoundary
     public boolean isIdentifier(PythonCore core, String snippet) {
@@ -41,10 +41,14 @@ import java.nio.file.LinkOption;
 import java.text.MessageFormat;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
@@ -55,6 +59,7 @@ import org.graalvm.options.OptionKey;
 import com.oracle.graal.python.PythonLanguage;
 import com.oracle.graal.python.builtins.objects.PNone;
 import com.oracle.graal.python.builtins.objects.PythonAbstractObject;
+import com.oracle.graal.python.builtins.objects.cext.HandleCache;
 import com.oracle.graal.python.builtins.objects.cext.PThreadState;
 import com.oracle.graal.python.builtins.objects.cext.PythonNativeClass;
 import com.oracle.graal.python.builtins.objects.cext.PythonNativeWrapper;
@@ -63,6 +68,7 @@ import com.oracle.graal.python.builtins.objects.cext.hpy.GraalHPyContext;
 import com.oracle.graal.python.builtins.objects.common.HashingCollectionNodes.GetDictStorageNode;
 import com.oracle.graal.python.builtins.objects.common.HashingStorage;
 import com.oracle.graal.python.builtins.objects.common.HashingStorageLibrary;
+import com.oracle.graal.python.builtins.objects.concurrent.PThreadPoolExecutor;
 import com.oracle.graal.python.builtins.objects.dict.PDict;
 import com.oracle.graal.python.builtins.objects.frame.PFrame;
 import com.oracle.graal.python.builtins.objects.frame.PFrame.Reference;
@@ -71,6 +77,7 @@ import com.oracle.graal.python.builtins.objects.module.PythonModule;
 import com.oracle.graal.python.builtins.objects.object.PythonObjectLibrary;
 import com.oracle.graal.python.builtins.objects.str.PString;
 import com.oracle.graal.python.builtins.objects.thread.PLock;
+import com.oracle.graal.python.builtins.objects.zlib.ZLibStreamPool;
 import com.oracle.graal.python.nodes.SpecialAttributeNames;
 import com.oracle.graal.python.nodes.SpecialMethodNames;
 import com.oracle.graal.python.nodes.attributes.ReadAttributeFromObjectNode;
@@ -106,7 +113,8 @@ public final class PythonContext {
 
         /*
          * A thread state may be owned by multiple threads if we know that these threads won't run
-         * concurrently.
+         * concurrently. The list is copy-on-write because threads sharing the single thread state
+         * may detach concurrently once the context went multi-threaded.
          */
         final List<WeakReference<Thread>> owners;
 
@@ -124,8 +132,11 @@ public final class PythonContext {
         /* corresponds to 'PyThreadState.exc_*' */
         PException caughtException;
 
+        /* corresponds to 'PyThreadState.dict["__asyncio_running_event_loop__"]' */
+        Object runningAsyncioLoop;
+
         PythonThreadState() {
-            owners = new LinkedList<>();
+            owners = new CopyOnWriteArrayList<>();
         }
 
         PythonThreadState(Thread owner) {
@@ -180,6 +191,9 @@ public final class PythonContext {
     private final AtomicLong globalId = new AtomicLong(Integer.MAX_VALUE * 2L + 4L);
     private final ThreadGroup threadGroup = new ThreadGroup(GRAALPYTHON_THREADS);
 
+    /** The thread pools whose workers have to be stopped before the threads are joined. */
+    private final Set<PThreadPoolExecutor> threadPoolExecutors = Collections.newSetFromMap(new WeakHashMap<>());
+
     // if set to 0 the VM will set it to whatever it likes
     private final AtomicLong pythonThreadStackSize = new AtomicLong(0);
     private final Assumption nativeObjectsAllManagedAssumption = Truffle.getRuntime().createAssumption("all C API objects are managed");
@@ -192,8 +206,11 @@ public final class PythonContext {
     /* for fast access to the PythonThreadState object by the owning thread */
     private ThreadLocal<PythonThreadState> threadState;
 
-    /* map of thread IDs to indices for array 'threadStates' */
-    private Map<Long, PythonThreadState> threadStateMapping;
+    /*
+     * Map of thread IDs to thread states; only used if running multi-threaded. Lookups and updates
+     * don't take the context's monitor, the owning thread caches its state in 'threadState'.
+     */
+    private volatile ConcurrentHashMap<Long, PythonThreadState> threadStateMapping;
 
     private final ReentrantLock importLock = new ReentrantLock();
     @CompilationFinal private boolean isInitialized = false;
@@ -205,6 +222,8 @@ public final class PythonContext {
     private OutputStream err;
     private InputStream in;
     @CompilationFinal private CApiContext cApiContext;
+    /* Created by the C API library's initializer, i.e., before the C API context exists. */
+    @CompilationFinal private HandleCache handleCache;
     @CompilationFinal private GraalHPyContext hPyContext;
     private final Assumption singleThreaded = Truffle.getRuntime().createAssumption("single Threaded");
 
@@ -222,6 +241,7 @@ public final class PythonContext {
     // The context-local resources
     private final PosixResources resources;
     private final AsyncHandler handler;
+    private final ZLibStreamPool zlibStreamPool = new ZLibStreamPool();
 
     // A thread-local to store the full path to the currently active import statement, for Jython
     // compat
@@ -246,6 +266,13 @@ public final class PythonContext {
         return threadGroup;
     }
 
+    @TruffleBoundary
+    public void registerThreadPoolExecutor(PThreadPoolExecutor executor) {
+        synchronized (threadPoolExecutors) {
+            threadPoolExecutors.add(executor);
+        }
+    }
+
     @TruffleBoundary(allowInlining = true)
     public long getPythonThreadStackSize() {
         return pythonThreadStackSize.get();
@@ -353,6 +380,14 @@ public final class PythonContext {
         return getThreadState().caughtException;
     }
 
+    public void setRunningAsyncioLoop(Object loop) {
+        getThreadState().runningAsyncioLoop = loop;
+    }
+
+    public Object getRunningAsyncioLoop() {
+        return getThreadState().runningAsyncioLoop;
+    }
+
     public void setTopFrameInfo(PFrame.Reference topframeref) {
         getThreadState().topframeref = topframeref;
     }
@@ -695,19 +730,26 @@ public final class PythonContext {
         }
         LOGGER.fine("successfully shut down all threads");
 
+        // like the atexit hook of concurrent.futures.thread, let the pool workers finish the
+        // queued work and exit, otherwise they would wait for work forever
+        PThreadPoolExecutor[] executors;
+        synchronized (threadPoolExecutors) {
+            executors = threadPoolExecutors.toArray(new PThreadPoolExecutor[0]);
+        }
+        for (PThreadPoolExecutor executor : executors) {
+            PThreadPoolExecutor.join(executor.shutdown());
+        }
+
         if (!singleThreaded.isValid()) {
             // collect list of threads to join in synchronized block
             LinkedList<WeakReference<Thread>> threadList = new LinkedList<>();
-            synchronized (this) {
-                for (PythonThreadState ts : threadStateMapping.values()) {
-                    // do not join the initial thread; this could cause a dead lock
-                    if (ts != singleThreadState) {
-                        threadList.addAll(ts.getOwners());
-                    }
+            for (PythonThreadState ts : threadStateMapping.values()) {
+                // do not join the initial thread; this could cause a dead lock
+                if (ts != singleThreadState) {
+                    threadList.addAll(ts.getOwners());
                 }
             }
 
-            // join threads outside the synchronized block otherwise we could run into a dead lock
             try {
                 for (WeakReference<Thread> threadRef : threadList) {
                     Thread thread = threadRef.get();
@@ -758,6 +800,10 @@ public final class PythonContext {
         return resources;
     }
 
+    public ZLibStreamPool getZLibStreamPool() {
+        return zlibStreamPool;
+    }
+
     /**
      * Trigger any pending asynchronous actions
      */
@@ -908,16 +954,14 @@ public final class PythonContext {
         if (singleThreaded.isValid()) {
             action.accept(singleThreadState);
         } else {
-            synchronized (this) {
-                for (PythonThreadState ts : threadStateMapping.values()) {
-                    action.accept(ts);
-                }
+            for (PythonThreadState ts : threadStateMapping.values()) {
+                action.accept(ts);
             }
         }
     }
 
     @TruffleBoundary
-    private synchronized PythonThreadState getThreadStateFullLookup() {
+    private PythonThreadState getThreadStateFullLookup() {
         return threadStateMapping.get(Thread.currentThread().getId());
     }
 
@@ -928,54 +972,63 @@ public final class PythonContext {
     @TruffleBoundary
     public void initializeMultiThreading() {
         interopLock = new ReentrantLock();
-        singleThreaded.invalidate();
         threadState = new ThreadLocal<>();
+        // The monitor only guards the switch from single- to multi-threaded mode; afterwards,
+        // attaching, detaching and looking up thread states is lock-free.
         synchronized (this) {
-            threadStateMapping = new HashMap<>();
+            ConcurrentHashMap<Long, PythonThreadState> mapping = new ConcurrentHashMap<>();
             for (WeakReference<Thread> ownerRef : singleThreadState.getOwners()) {
                 Thread owner = ownerRef.get();
                 if (owner != null) {
-                    threadStateMapping.put(owner.getId(), singleThreadState);
+                    mapping.put(owner.getId(), singleThreadState);
                 }
             }
+            threadStateMapping = mapping;
+            singleThreaded.invalidate();
         }
     }
 
-    public synchronized void attachThread(Thread thread) {
+    public void attachThread(Thread thread) {
         CompilerAsserts.neverPartOfCompilation();
         if (singleThreaded.isValid()) {
-            assert threadStateMapping == null;
-
-            // n.b.: Several threads may be attached to the context but we may still be in the
-            // 'singleThreaded' mode because the threads won't run concurrently. For this case, we
-            // map each attached thread to index 0.
-            singleThreadState.addOwner(thread);
-        } else {
-            assert threadStateMapping != null;
-            threadStateMapping.put(thread.getId(), new PythonThreadState(thread));
+            synchronized (this) {
+                if (singleThreaded.isValid()) {
+                    assert threadStateMapping == null;
+
+                    // n.b.: Several threads may be attached to the context but we may still be in
+                    // the 'singleThreaded' mode because the threads won't run concurrently. For
+                    // this case, we map each attached thread to the single thread state.
+                    singleThreadState.addOwner(thread);
+                    return;
+                }
+            }
         }
+        assert threadStateMapping != null;
+        threadStateMapping.put(thread.getId(), new PythonThreadState(thread));
     }
 
-    public synchronized void disposeThread(Thread thread) {
+    public void disposeThread(Thread thread) {
         CompilerAsserts.neverPartOfCompilation();
-        long threadId = thread.getId();
-        // check if there is a live sentinel lock
         if (singleThreaded.isValid()) {
-            assert threadStateMapping == null;
-            singleThreadState.removeOwner(thread);
-            // only release sentinel lock if all owners are gone
-            if (!singleThreadState.hasOwners()) {
-                releaseSentinelLock(singleThreadState.sentinelLock);
-            }
-        } else {
-            PythonThreadState ts = threadStateMapping.get(threadId);
-            assert ts != null : "thread was not attached to this context";
-            ts.removeOwner(thread);
-            threadStateMapping.remove(threadId);
-            if (!ts.hasOwners()) {
-                releaseSentinelLock(ts.sentinelLock);
+            synchronized (this) {
+                if (singleThreaded.isValid()) {
+                    assert threadStateMapping == null;
+                    singleThreadState.removeOwner(thread);
+                    // only release sentinel lock if all owners are gone
+                    if (!singleThreadState.hasOwners()) {
+                        releaseSentinelLock(singleThreadState.sentinelLock);
+                    }
+                    return;
+                }
             }
         }
+        PythonThreadState ts = threadStateMapping.remove(thread.getId());
+        assert ts != null : "thread was not attached to this context";
+        ts.removeOwner(thread);
+        // check if there is a live sentinel lock; only release it if all owners are gone
+        if (!ts.hasOwners()) {
+            releaseSentinelLock(ts.sentinelLock);
+        }
     }
 
     private static void releaseSentinelLock(WeakReference<PLock> sentinelLockWeakref) {
@@ -996,6 +1049,15 @@ public final class PythonContext {
         return cApiContext;
     }
 
+    public HandleCache getHandleCache() {
+        return handleCache;
+    }
+
+    public void setHandleCache(HandleCache handleCache) {
+        CompilerAsserts.neverPartOfCompilation();
+        this.handleCache = handleCache;
+    }
+
     public void setCapiWasLoaded(Object capiLibrary) {
         assert cApiContext == null : "tried to create new C API context but it was already created";
         cApiContext = new CApiContext(this, capiLibrary);
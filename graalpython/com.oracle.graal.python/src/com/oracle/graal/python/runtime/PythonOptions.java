@@ -114,6 +114,10 @@ public final class PythonOptions {
                     "Equivalent to setting the PYTHONPYCACHEPREFIX environment variable for the standard launcher.", stability = OptionStability.STABLE) //
     public static final OptionKey<String> PyCachePrefix = new OptionKey<>("");
 
+    @Option(category = OptionCategory.EXPERT, help = "Store the parsed form of every imported module on disk, keyed by a hash of its source and the interpreter version, " +
+                    "and reuse it in later processes instead of parsing the source again. The cache is kept in the PyCachePrefix directory, which must be set.") //
+    public static final OptionKey<Boolean> PersistentCodeCache = new OptionKey<>(false);
+
     @Option(category = OptionCategory.INTERNAL, help = "Set the location of C API home. Overrides any environment variables or Java options.", stability = OptionStability.STABLE) //
     public static final OptionKey<String> CAPI = new OptionKey<>("");
 
@@ -218,6 +222,12 @@ public final class PythonOptions {
     @Option(category = OptionCategory.EXPERT, help = "Max native memory heap size (default: 2 GB).") //
     public static final OptionKey<Long> MaxNativeMemory = new OptionKey<>(1L << 31);
 
+    @Option(category = OptionCategory.EXPERT, help = "Maximum number of dead native object references released by one reference cleaner action. Larger values release memory faster but cause longer pauses.") //
+    public static final OptionKey<Integer> CApiReferenceCleanerBudget = new OptionKey<>(10000);
+
+    @Option(category = OptionCategory.EXPERT, help = "Tag HPy handles with a generation counter to detect the use of closed handles. Limits the number of live HPy handles to 2^24.") //
+    public static final OptionKey<Boolean> HPyDebugHandles = new OptionKey<>(false);
+
     public static final OptionDescriptors DESCRIPTORS = new PythonOptionsOptionDescriptors();
 
     @CompilationFinal(dimensions = 1) private static final OptionKey<?>[] ENGINE_OPTION_KEYS;
@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.runtime.instrumentation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * Collects exact call counts and timings of roots, following the algorithm of CPython's
+ * {@code _lsprof}. The tracer receives entry and exit events from the {@link CallTracerInstrument}.
+ * Each thread records into its own table and the tables are merged by {@link #collect()}. A thread
+ * holds the monitor of its table while it records an event, so {@link #collect()} and
+ * {@link #clear()} can run while other threads are still being traced.
+ */
+public final class CallTracer {
+    private final ThreadLocal<ThreadState> threadState = ThreadLocal.withInitial(this::createThreadState);
+    private final List<ThreadState> threadStates = new ArrayList<>();
+    private volatile boolean subcalls;
+
+    /**
+     * Incremented when the tracer is (re-)enabled or cleared. Threads notice a changed epoch on
+     * their next event and drop call contexts that were entered before.
+     */
+    private volatile int epoch;
+
+    public CallTracer(boolean subcalls) {
+        this.subcalls = subcalls;
+    }
+
+    public void setSubcalls(boolean subcalls) {
+        this.subcalls = subcalls;
+    }
+
+    public static final class Entry {
+        private final Object key;
+        private long callCount;
+        private long recursiveCallCount;
+        private long totalTime;
+        private long inlineTime;
+        private int recursionLevel;
+        private Map<Object, Entry> calls;
+
+        Entry(Object key) {
+            this.key = key;
+        }
+
+        public Object getKey() {
+            return key;
+        }
+
+        public long getCallCount() {
+            return callCount;
+        }
+
+        public long getRecursiveCallCount() {
+            return recursiveCallCount;
+        }
+
+        /** Total time in seconds. */
+        public double getTotalTime() {
+            return totalTime * 1e-9;
+        }
+
+        /** Time in seconds spent in this entry, excluding sub-calls. */
+        public double getInlineTime() {
+            return inlineTime * 1e-9;
+        }
+
+        /** The sub-entries by callee key, or {@code null} if no sub-calls were recorded. */
+        public Map<Object, Entry> getCalls() {
+            return calls;
+        }
+
+        void stop(long tt, long it) {
+            if (--recursionLevel == 0) {
+                totalTime += tt;
+            } else {
+                recursiveCallCount++;
+            }
+            inlineTime += it;
+            callCount++;
+        }
+
+        void merge(Entry other) {
+            callCount += other.callCount;
+            recursiveCallCount += other.recursiveCallCount;
+            totalTime += other.totalTime;
+            inlineTime += other.inlineTime;
+            if (other.calls != null) {
+                for (Entry sub : other.calls.values()) {
+                    getSubEntry(sub.key).merge(sub);
+                }
+            }
+        }
+
+        Entry getSubEntry(Object callee) {
+            if (calls == null) {
+                calls = new HashMap<>();
+            }
+            return calls.computeIfAbsent(callee, Entry::new);
+        }
+    }
+
+    private static final class Context {
+        long t0;
+        long subt;
+        Entry entry;
+        Context previous;
+    }
+
+    private final class ThreadState {
+        final Map<Object, Entry> entries = new HashMap<>();
+        Context current;
+        Context free;
+        int seenEpoch = epoch;
+
+        void checkEpoch() {
+            int e = epoch;
+            if (seenEpoch != e) {
+                seenEpoch = e;
+                while (current != null) {
+                    current.entry.recursionLevel = 0;
+                    if (current.previous != null && current.previous.entry.calls != null) {
+                        Entry sub = current.previous.entry.calls.get(current.entry.key);
+                        if (sub != null) {
+                            sub.recursionLevel = 0;
+                        }
+                    }
+                    current = release(current);
+                }
+            }
+        }
+
+        Context release(Context ctx) {
+            Context previous = ctx.previous;
+            ctx.previous = free;
+            ctx.entry = null;
+            free = ctx;
+            return previous;
+        }
+
+        synchronized void enter(Object key) {
+            checkEpoch();
+            Entry entry = entries.computeIfAbsent(key, Entry::new);
+            Context ctx = free;
+            if (ctx == null) {
+                ctx = new Context();
+            } else {
+                free = ctx.previous;
+            }
+            ctx.entry = entry;
+            ctx.subt = 0;
+            ctx.previous = current;
+            current = ctx;
+            entry.recursionLevel++;
+            if (subcalls && ctx.previous != null) {
+                ctx.previous.entry.getSubEntry(key).recursionLevel++;
+            }
+            ctx.t0 = System.nanoTime();
+        }
+
+        synchronized void exit() {
+            long now = System.nanoTime();
+            checkEpoch();
+            Context ctx = current;
+            if (ctx == null) {
+                // the call was entered before tracing started
+                return;
+            }
+            long tt = now - ctx.t0;
+            long it = tt - ctx.subt;
+            Context previous = ctx.previous;
+            if (previous != null) {
+                previous.subt += tt;
+            }
+            ctx.entry.stop(tt, it);
+            if (subcalls && previous != null) {
+                previous.entry.getSubEntry(ctx.entry.key).stop(tt, it);
+            }
+            current = release(ctx);
+        }
+    }
+
+    private ThreadState createThreadState() {
+        ThreadState state = new ThreadState();
+        synchronized (threadStates) {
+            threadStates.add(state);
+        }
+        return state;
+    }
+
+    @TruffleBoundary
+    void enter(Object key) {
+        threadState.get().enter(key);
+    }
+
+    @TruffleBoundary
+    void exit() {
+        threadState.get().exit();
+    }
+
+    /**
+     * Makes all threads discard call contexts that are still open. Must be called whenever tracing
+     * (re-)starts, since exit events of calls entered while tracing was off would otherwise be
+     * attributed to the wrong entries.
+     */
+    public void resetStacks() {
+        epoch++;
+    }
+
+    /**
+     * Drops all collected data. Calls that are in progress are not recorded when they return.
+     */
+    @TruffleBoundary
+    public void clear() {
+        epoch++;
+        synchronized (threadStates) {
+            for (ThreadState state : threadStates) {
+                synchronized (state) {
+                    state.entries.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the entries of all threads merged by key.
+     */
+    @TruffleBoundary
+    public Map<Object, Entry> collect() {
+        Map<Object, Entry> result = new HashMap<>();
+        synchronized (threadStates) {
+            for (ThreadState state : threadStates) {
+                synchronized (state) {
+                    for (Entry entry : state.entries.values()) {
+                        result.computeIfAbsent(entry.key, Entry::new).merge(entry);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.runtime.instrumentation;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.instrumentation.EventBinding;
+import com.oracle.truffle.api.instrumentation.EventContext;
+import com.oracle.truffle.api.instrumentation.ExecutionEventNode;
+import com.oracle.truffle.api.instrumentation.Instrumenter;
+import com.oracle.truffle.api.instrumentation.SourceSectionFilter;
+import com.oracle.truffle.api.instrumentation.TruffleInstrument;
+
+/**
+ * Gives the language access to root entry and exit events. The {@code _lsprof} module uses this to
+ * implement a deterministic profiler.
+ */
+@TruffleInstrument.Registration(id = CallTracerInstrument.ID, name = "Python Call Tracer", internal = true, services = CallTracerInstrument.Service.class)
+public final class CallTracerInstrument extends TruffleInstrument {
+    public static final String ID = "python-call-tracer";
+
+    @Override
+    protected void onCreate(Env env) {
+        env.registerService(new Service(env.getInstrumenter()));
+    }
+
+    public static final class Service {
+        private final Instrumenter instrumenter;
+
+        private Service(Instrumenter instrumenter) {
+            this.instrumenter = instrumenter;
+        }
+
+        /**
+         * Starts reporting entry and exit of all roots matching the filter (which should select
+         * {@link com.oracle.truffle.api.instrumentation.StandardTags.RootTag root tags}) to the
+         * given tracer. Disposing the returned binding stops it.
+         */
+        public EventBinding<?> attach(SourceSectionFilter filter, CallTracer tracer) {
+            return instrumenter.attachExecutionEventFactory(filter, context -> new TracingNode(tracer, context));
+        }
+    }
+
+    private static final class TracingNode extends ExecutionEventNode {
+        private final CallTracer tracer;
+        private final Object key;
+
+        TracingNode(CallTracer tracer, EventContext context) {
+            this.tracer = tracer;
+            this.key = context.getInstrumentedNode().getRootNode();
+        }
+
+        @Override
+        protected void onEnter(VirtualFrame frame) {
+            tracer.enter(key);
+        }
+
+        @Override
+        protected void onReturnValue(VirtualFrame frame, Object result) {
+            tracer.exit();
+        }
+
+        @Override
+        protected void onReturnExceptional(VirtualFrame frame, Throwable exception) {
+            tracer.exit();
+        }
+    }
+}
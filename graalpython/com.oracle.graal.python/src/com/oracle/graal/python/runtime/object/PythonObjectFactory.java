@@ -28,6 +28,7 @@ package com.oracle.graal.python.runtime.object;
 import java.io.ByteArrayOutputStream;
 import java.lang.ref.ReferenceQueue;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.DirectoryStream;
 import java.util.concurrent.Semaphore;
@@ -38,6 +39,9 @@ import org.tukaani.xz.FinishableOutputStream;
 import com.oracle.graal.python.PythonLanguage;
 import com.oracle.graal.python.builtins.PythonBuiltinClassType;
 import com.oracle.graal.python.builtins.objects.array.PArray;
+import com.oracle.graal.python.builtins.objects.asyncio.PFuture;
+import com.oracle.graal.python.builtins.objects.asyncio.PFutureIter;
+import com.oracle.graal.python.builtins.objects.asyncio.PTask;
 import com.oracle.graal.python.builtins.objects.bytes.PByteArray;
 import com.oracle.graal.python.builtins.objects.bytes.PBytes;
 import com.oracle.graal.python.builtins.objects.cell.PCell;
@@ -51,6 +55,10 @@ import com.oracle.graal.python.builtins.objects.common.HashingStorageLibrary.Has
 import com.oracle.graal.python.builtins.objects.common.LocalsStorage;
 import com.oracle.graal.python.builtins.objects.common.PHashingCollection;
 import com.oracle.graal.python.builtins.objects.complex.PComplex;
+import com.oracle.graal.python.builtins.objects.concurrent.PConcurrentFuture;
+import com.oracle.graal.python.builtins.objects.concurrent.PThreadPoolExecutor;
+import com.oracle.graal.python.builtins.objects.deque.PDeque;
+import com.oracle.graal.python.builtins.objects.deque.PDequeIterator;
 import com.oracle.graal.python.builtins.objects.dict.PDict;
 import com.oracle.graal.python.builtins.objects.dict.PDictView;
 import com.oracle.graal.python.builtins.objects.dict.PDictView.PDictItemIterator;
@@ -67,10 +75,14 @@ import com.oracle.graal.python.builtins.objects.function.PBuiltinFunction;
 import com.oracle.graal.python.builtins.objects.function.PFunction;
 import com.oracle.graal.python.builtins.objects.function.PKeyword;
 import com.oracle.graal.python.builtins.objects.function.Signature;
+import com.oracle.graal.python.builtins.objects.functools.PLruCacheWrapper;
+import com.oracle.graal.python.builtins.objects.functools.PPartial;
 import com.oracle.graal.python.builtins.objects.generator.PGenerator;
 import com.oracle.graal.python.builtins.objects.getsetdescriptor.GetSetDescriptor;
 import com.oracle.graal.python.builtins.objects.getsetdescriptor.HiddenKeyDescriptor;
 import com.oracle.graal.python.builtins.objects.ints.PInt;
+import com.oracle.graal.python.builtins.objects.io.PBuffered;
+import com.oracle.graal.python.builtins.objects.io.PFileIO;
 import com.oracle.graal.python.builtins.objects.iterator.PArrayIterator;
 import com.oracle.graal.python.builtins.objects.iterator.PBaseSetIterator;
 import com.oracle.graal.python.builtins.objects.iterator.PBigRangeIterator;
@@ -83,6 +95,16 @@ import com.oracle.graal.python.builtins.objects.iterator.PSentinelIterator;
 import com.oracle.graal.python.builtins.objects.iterator.PSequenceIterator;
 import com.oracle.graal.python.builtins.objects.iterator.PStringIterator;
 import com.oracle.graal.python.builtins.objects.iterator.PZip;
+import com.oracle.graal.python.builtins.objects.itertools.PAccumulate;
+import com.oracle.graal.python.builtins.objects.itertools.PChain;
+import com.oracle.graal.python.builtins.objects.itertools.PCombinations;
+import com.oracle.graal.python.builtins.objects.itertools.PGroupBy;
+import com.oracle.graal.python.builtins.objects.itertools.PGrouper;
+import com.oracle.graal.python.builtins.objects.itertools.PIslice;
+import com.oracle.graal.python.builtins.objects.itertools.PProduct;
+import com.oracle.graal.python.builtins.objects.json.PJSONEncoder;
+import com.oracle.graal.python.builtins.objects.json.PJSONEncoder.FastEncode;
+import com.oracle.graal.python.builtins.objects.json.PJSONScanner;
 import com.oracle.graal.python.builtins.objects.list.PList;
 import com.oracle.graal.python.builtins.objects.lzma.PLZMACompressor;
 import com.oracle.graal.python.builtins.objects.lzma.PLZMADecompressor;
@@ -96,21 +118,32 @@ import com.oracle.graal.python.builtins.objects.method.PMethod;
 import com.oracle.graal.python.builtins.objects.mmap.PMMap;
 import com.oracle.graal.python.builtins.objects.module.PythonModule;
 import com.oracle.graal.python.builtins.objects.object.PythonObject;
+import com.oracle.graal.python.builtins.objects.pickle.PPickleBuffer;
+import com.oracle.graal.python.builtins.objects.pickle.PPickler;
+import com.oracle.graal.python.builtins.objects.pickle.PUnpickler;
 import com.oracle.graal.python.builtins.objects.posix.PDirEntry;
 import com.oracle.graal.python.builtins.objects.posix.PScandirIterator;
+import com.oracle.graal.python.builtins.objects.queue.PQueue;
+import com.oracle.graal.python.builtins.objects.queue.PSimpleQueue;
 import com.oracle.graal.python.builtins.objects.random.PRandom;
 import com.oracle.graal.python.builtins.objects.range.PBigRange;
 import com.oracle.graal.python.builtins.objects.range.PIntRange;
 import com.oracle.graal.python.builtins.objects.referencetype.PReferenceType;
 import com.oracle.graal.python.builtins.objects.reversed.PSequenceReverseIterator;
 import com.oracle.graal.python.builtins.objects.reversed.PStringReverseIterator;
+import com.oracle.graal.python.builtins.objects.select.PEpoll;
+import com.oracle.graal.python.builtins.objects.select.PPoll;
 import com.oracle.graal.python.builtins.objects.set.PBaseSet;
 import com.oracle.graal.python.builtins.objects.set.PFrozenSet;
 import com.oracle.graal.python.builtins.objects.set.PSet;
 import com.oracle.graal.python.builtins.objects.slice.PIntSlice;
 import com.oracle.graal.python.builtins.objects.slice.PObjectSlice;
 import com.oracle.graal.python.builtins.objects.socket.PSocket;
+import com.oracle.graal.python.builtins.objects.sre.PSRECode;
 import com.oracle.graal.python.builtins.objects.str.PString;
+import com.oracle.graal.python.builtins.objects.struct.PStruct;
+import com.oracle.graal.python.builtins.objects.struct.PStructUnpackIterator;
+import com.oracle.graal.python.builtins.objects.struct.StructFormat;
 import com.oracle.graal.python.builtins.objects.superobject.SuperObject;
 import com.oracle.graal.python.builtins.objects.thread.PLock;
 import com.oracle.graal.python.builtins.objects.thread.PRLock;
@@ -123,11 +156,16 @@ import com.oracle.graal.python.builtins.objects.type.PythonAbstractClass;
 import com.oracle.graal.python.builtins.objects.type.PythonClass;
 import com.oracle.graal.python.builtins.objects.type.TypeNodes;
 import com.oracle.graal.python.builtins.objects.zipimporter.PZipImporter;
+import com.oracle.graal.python.builtins.objects.zlib.PZLibCompress;
+import com.oracle.graal.python.builtins.objects.zlib.PZLibDecompress;
+import com.oracle.graal.python.builtins.objects.zlib.ZLibDeflateStream;
+import com.oracle.graal.python.builtins.objects.zlib.ZLibInflateStream;
 import com.oracle.graal.python.nodes.literal.ListLiteralNode;
 import com.oracle.graal.python.parser.ExecutionCellSlots;
 import com.oracle.graal.python.parser.GeneratorInfo;
 import com.oracle.graal.python.runtime.PythonContext;
 import com.oracle.graal.python.runtime.PythonOptions;
+import com.oracle.graal.python.runtime.sequence.PSequence;
 import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
 import com.oracle.graal.python.runtime.sequence.storage.CharSequenceStorage;
 import com.oracle.graal.python.runtime.sequence.storage.DoubleSequenceStorage;
@@ -405,6 +443,10 @@ public abstract class PythonObjectFactory extends Node {
         return trace(new PMemoryView(cls, makeStorage(cls), value));
     }
 
+    public PMemoryView createMemoryView(Object cls, PSequence owner, int offset, int length, int itemsize, int stride, String format, boolean readonly) {
+        return trace(new PMemoryView(cls, makeStorage(cls), owner, offset, length, itemsize, stride, format, readonly));
+    }
+
     public final PMethod createMethod(Object cls, Object self, Object function) {
         return trace(new PMethod(cls, makeStorage(cls), self, function));
     }
@@ -926,12 +968,8 @@ public abstract class PythonObjectFactory extends Node {
         return trace(new PDirEntry(cls, makeStorage(cls), name, file));
     }
 
-    public PMMap createMMap(SeekableByteChannel channel, long length, long offset) {
-        return trace(new PMMap(PythonBuiltinClassType.PMMap, PythonBuiltinClassType.PMMap.newInstance(), channel, length, offset));
-    }
-
-    public PMMap createMMap(Object clazz, SeekableByteChannel channel, long length, long offset) {
-        return trace(new PMMap(clazz, makeStorage(clazz), channel, length, offset));
+    public PMMap createMMap(Object clazz, SeekableByteChannel channel, ByteBuffer[] regions, boolean writeBack, boolean readonly, long length, long offset) {
+        return trace(new PMMap(clazz, makeStorage(clazz), channel, regions, writeBack, readonly, length, offset));
     }
 
     public PLZMACompressor createLZMACompressor(Object clazz, FinishableOutputStream lzmaStream, ByteArrayOutputStream bos) {
@@ -941,4 +979,160 @@ public abstract class PythonObjectFactory extends Node {
     public PLZMADecompressor createLZMADecompressor(Object clazz, int format, int memlimit) {
         return trace(new PLZMADecompressor(clazz, makeStorage(clazz), format, memlimit));
     }
+
+    public PZLibCompress createZLibCompress(Object clazz, ZLibDeflateStream stream, int wbits, int strategy, byte[] zdict) {
+        return trace(new PZLibCompress(clazz, makeStorage(clazz), stream, wbits, strategy, zdict));
+    }
+
+    public PZLibDecompress createZLibDecompress(Object clazz, ZLibInflateStream stream) {
+        return trace(new PZLibDecompress(clazz, makeStorage(clazz), stream));
+    }
+
+    public PFileIO createFileIO(Object clazz) {
+        return trace(new PFileIO(clazz, makeStorage(clazz)));
+    }
+
+    public PBuffered createBufferedReader(Object clazz) {
+        return trace(new PBuffered(clazz, makeStorage(clazz), true, false));
+    }
+
+    public PBuffered createBufferedWriter(Object clazz) {
+        return trace(new PBuffered(clazz, makeStorage(clazz), false, true));
+    }
+
+    public PBuffered createBufferedRandom(Object clazz) {
+        return trace(new PBuffered(clazz, makeStorage(clazz), true, true));
+    }
+
+    public PStruct createStruct(Object clazz, StructFormat format) {
+        PStruct struct = trace(new PStruct(clazz, makeStorage(clazz)));
+        struct.setFormat(format);
+        return struct;
+    }
+
+    public PStructUnpackIterator createStructUnpackIterator(StructFormat format, byte[] bytes, int length) {
+        return trace(new PStructUnpackIterator(PythonBuiltinClassType.PStructUnpackIterator, makeStorage(PythonBuiltinClassType.PStructUnpackIterator), format, bytes, length));
+    }
+
+    public PSRECode createSRECode(int[] code, int groups) {
+        return trace(new PSRECode(PythonBuiltinClassType.PSRECode, makeStorage(PythonBuiltinClassType.PSRECode), code, groups));
+    }
+
+    public PDeque createDeque() {
+        return createDeque(PythonBuiltinClassType.PDeque);
+    }
+
+    public PDeque createDeque(Object cls) {
+        return trace(new PDeque(cls, makeStorage(cls)));
+    }
+
+    public PDequeIterator createDequeIter(PDeque deque) {
+        return createDequeIter(PythonBuiltinClassType.PDequeIter, deque);
+    }
+
+    public PDequeIterator createDequeIter(Object cls, PDeque deque) {
+        return trace(new PDequeIterator(cls, makeStorage(cls), deque, false));
+    }
+
+    public PDequeIterator createDequeRevIter(PDeque deque) {
+        return createDequeRevIter(PythonBuiltinClassType.PDequeRevIter, deque);
+    }
+
+    public PDequeIterator createDequeRevIter(Object cls, PDeque deque) {
+        return trace(new PDequeIterator(cls, makeStorage(cls), deque, true));
+    }
+
+    public PPartial createPartial(Object cls, Object function, Object[] args, PDict keywords) {
+        return trace(new PPartial(cls, makeStorage(cls), function, args, keywords));
+    }
+
+    public PLruCacheWrapper createLruCacheWrapper(Object cls, Object function, int maxSize, boolean typed, Object cacheInfoType) {
+        return trace(new PLruCacheWrapper(cls, makeStorage(cls), function, maxSize, typed, cacheInfoType));
+    }
+
+    public PJSONScanner createJSONScanner(Object cls, boolean strict, Object objectHook, Object objectPairsHook, Object parseFloat, Object parseInt, Object parseConstant,
+                    boolean defaultParseFloat, boolean defaultParseInt) {
+        return trace(new PJSONScanner(cls, makeStorage(cls), strict, objectHook, objectPairsHook, parseFloat, parseInt, parseConstant, defaultParseFloat, defaultParseInt));
+    }
+
+    public PJSONEncoder createJSONEncoder(Object cls, boolean checkCircular, Object defaultFn, Object encoder, String keySeparator, String itemSeparator, boolean sortKeys,
+                    boolean skipKeys, boolean allowNan, FastEncode fastEncode) {
+        return trace(new PJSONEncoder(cls, makeStorage(cls), checkCircular, defaultFn, encoder, keySeparator, itemSeparator, sortKeys, skipKeys, allowNan, fastEncode));
+    }
+
+    public PPickler createPickler(Object cls) {
+        return trace(new PPickler(cls, makeStorage(cls)));
+    }
+
+    public PUnpickler createUnpickler(Object cls) {
+        return trace(new PUnpickler(cls, makeStorage(cls)));
+    }
+
+    public PPickleBuffer createPickleBuffer(Object cls, PMemoryView view) {
+        return trace(new PPickleBuffer(cls, makeStorage(cls), view));
+    }
+
+    public PPoll createPoll(Object cls) {
+        return trace(new PPoll(cls, makeStorage(cls)));
+    }
+
+    public PEpoll createEpoll(Object cls) {
+        return trace(new PEpoll(cls, makeStorage(cls)));
+    }
+
+    public PFuture createFuture(Object cls) {
+        return trace(new PFuture(cls, makeStorage(cls)));
+    }
+
+    public PTask createTask(Object cls) {
+        return trace(new PTask(cls, makeStorage(cls)));
+    }
+
+    public PFutureIter createFutureIter(PFuture future) {
+        return trace(new PFutureIter(PythonBuiltinClassType.PFutureIter, PythonBuiltinClassType.PFutureIter.newInstance(), future));
+    }
+
+    public PConcurrentFuture createConcurrentFuture(Object cls) {
+        return trace(new PConcurrentFuture(cls, makeStorage(cls)));
+    }
+
+    public PThreadPoolExecutor createThreadPoolExecutor(Object cls, int maxWorkers, String threadNamePrefix, Object initializer, Object[] initArgs) {
+        return trace(new PThreadPoolExecutor(cls, makeStorage(cls), maxWorkers, threadNamePrefix, initializer, initArgs));
+    }
+
+    public PSimpleQueue createSimpleQueue(Object cls) {
+        return trace(new PSimpleQueue(cls, makeStorage(cls)));
+    }
+
+    public PQueue createQueue(Object cls, int maxsize) {
+        return trace(new PQueue(cls, makeStorage(cls), maxsize));
+    }
+
+    public PChain createChain(Object cls, Object source) {
+        return trace(new PChain(cls, makeStorage(cls), source));
+    }
+
+    public PIslice createIslice(Object cls, Object iterator, long start, long stop, long step) {
+        return trace(new PIslice(cls, makeStorage(cls), iterator, start, stop, step));
+    }
+
+    public PProduct createProduct(Object cls, Object[][] pools) {
+        return trace(new PProduct(cls, makeStorage(cls), pools));
+    }
+
+    public PGroupBy createGroupBy(Object cls, Object iterator, Object keyFunc) {
+        return trace(new PGroupBy(cls, makeStorage(cls), iterator, keyFunc));
+    }
+
+    public PGrouper createGrouper(PGroupBy parent, Object targetKey) {
+        return trace(new PGrouper(PythonBuiltinClassType.PGrouper, makeStorage(PythonBuiltinClassType.PGrouper), parent, targetKey));
+    }
+
+    public PAccumulate createAccumulate(Object cls, Object iterator, Object func, Object initial) {
+        return trace(new PAccumulate(cls, makeStorage(cls), iterator, func, initial));
+    }
+
+    public PCombinations createCombinations(Object cls, Object[] pool, int r) {
+        return trace(new PCombinations(cls, makeStorage(cls), pool, r));
+    }
 }
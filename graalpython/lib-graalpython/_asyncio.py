@@ -37,10 +37,12 @@
 # OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
 # SOFTWARE.
 
-
-__graalpython__.import_current_as_named_module_with_delegate(
-    module_name="_struct",
-    delegate_name="_cpython_struct",
-    delegate_attributes=['Struct', 'StructError', '_clearcache', 'calcsize', 'error', 'iter_unpack', 'pack',
-                         'pack_into', 'unpack', 'unpack_from'],
-    owner_globals=globals())
+def __getattr__(name):
+    # the set of all tasks is created lazily, the stdlib is not importable while the core
+    # files are loaded
+    if name == "_all_tasks":
+        from _weakrefset import WeakSet
+        global _all_tasks
+        _all_tasks = WeakSet()
+        return _all_tasks
+    raise AttributeError("module '_asyncio' has no attribute '%s'" % name)
@@ -0,0 +1,101 @@
+# Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+# DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+#
+# The Universal Permissive License (UPL), Version 1.0
+#
+# Subject to the condition set forth below, permission is hereby granted to any
+# person obtaining a copy of this software, associated documentation and/or
+# data (collectively the "Software"), free of charge and under any and all
+# copyright rights in the Software, and any and all patent rights owned or
+# freely licensable by each licensor hereunder covering either (i) the
+# unmodified Software as contributed to or provided by such licensor, or (ii)
+# the Larger Works (as defined below), to deal in both
+#
+# (a) the Software, and
+#
+# (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+# one is included with the Software each a "Larger Work" to which the Software
+# is contributed by such licensors),
+#
+# without restriction, including without limitation the rights to copy, create
+# derivative works of, display, perform, and distribute the Software and make,
+# use, sell, offer for sale, import, export, have made, and have sold the
+# Software and the Larger Work(s), and to sublicense the foregoing rights on
+# either these or other terms.
+#
+# This license is subject to the following condition:
+#
+# The above copyright notice and either this complete permission notice or at a
+# minimum a reference to the UPL must be included in all copies or substantial
+# portions of the Software.
+#
+# THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+# IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+# FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+# AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+# LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+# OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+# SOFTWARE.
+
+_STATE_TO_DESCRIPTION_MAP = {
+    'PENDING': "pending",
+    'RUNNING': "running",
+    'CANCELLED': "cancelled",
+    'CANCELLED_AND_NOTIFIED': "cancelled",
+    'FINISHED': "finished"
+}
+
+
+def _future_repr(self):
+    state = self._state
+    description = _STATE_TO_DESCRIPTION_MAP[state]
+    if state == 'FINISHED':
+        if self._exception:
+            return '<%s at %#x state=%s raised %s>' % (
+                type(self).__name__, id(self), description, self._exception.__class__.__name__)
+        return '<%s at %#x state=%s returned %s>' % (
+            type(self).__name__, id(self), description, self._result.__class__.__name__)
+    return '<%s at %#x state=%s>' % (type(self).__name__, id(self), description)
+
+
+Future.__repr__ = _future_repr
+
+
+def _result_or_cancel(fut, timeout=None):
+    try:
+        try:
+            return fut.result(timeout)
+        finally:
+            fut.cancel()
+    finally:
+        del fut
+
+
+def map(self, fn, *iterables, timeout=None, chunksize=1):
+    """Returns an iterator equivalent to map(fn, iter), like concurrent.futures.Executor.map."""
+    import time
+    if timeout is not None:
+        end_time = timeout + time.monotonic()
+
+    fs = [self.submit(fn, *args) for args in zip(*iterables)]
+
+    # Yield must be hidden in closure so that the futures are submitted
+    # before the first iterator value is required.
+    def result_iterator():
+        try:
+            # reverse to keep finishing order
+            fs.reverse()
+            while fs:
+                # Careful not to keep a reference to the popped future
+                if timeout is None:
+                    yield _result_or_cancel(fs.pop())
+                else:
+                    yield _result_or_cancel(fs.pop(), end_time - time.monotonic())
+        finally:
+            for future in fs:
+                future.cancel()
+    return result_iterator()
+
+
+ThreadPoolExecutor.map = map
+del map
@@ -38,7 +38,12 @@
 # SOFTWARE.
 
 class Context:
-    pass
+    # context variables are not isolated yet, so running in a context is a plain call
+    def run(self, callable, *args, **kwargs):
+        return callable(*args, **kwargs)
+
+    def copy(self):
+        return Context()
 
 
 class ContextVar:
@@ -63,5 +68,5 @@ class Token:
 
 
 def copy_context():
-    raise NotImplementedError
+    return Context()
 
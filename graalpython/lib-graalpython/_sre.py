@@ -79,11 +79,11 @@ def setup(sre_compiler, error_class, flags_table):
     FLAGS = flags_table
 
     def configure_fallback_compiler(mode):
-        # wraps a native 're.Pattern' object
+        # wraps an SRE program executed by the Java matcher
         class ExecutablePattern:
-            def __init__(self, sticky, compiled_pattern):
+            def __init__(self, sticky, compiled_code):
                 self.__sticky__ = sticky
-                self.__compiled_pattern__ = compiled_pattern
+                self.__compiled_code__ = compiled_code
 
             def __call__(self, *args):
                 # deprecated
@@ -99,18 +99,17 @@ def setup(sre_compiler, error_class, flags_table):
                     _, pattern_input, from_index = args
                 else:
                     raise TypeError("invalid arguments: " + repr(args))
-                if self.__sticky__:
-                    result = self.__compiled_pattern__.match(pattern_input, from_index)
-                else:
-                    result = self.__compiled_pattern__.search(pattern_input, from_index)
-                is_match = result is not None
-                group_count = 1 + self.__compiled_pattern__.groups
+                if not isinstance(pattern_input, (str, bytes, bytearray)):
+                    pattern_input = bytes(pattern_input)
+                spans = sre_code_exec(self.__compiled_code__, pattern_input, from_index, self.__sticky__)
+                if spans is None:
+                    return _RegexResult(pattern_input=pattern_input, isMatch=False, groupCount=0, start=[], end=[])
                 return _RegexResult(
                     pattern_input = pattern_input,
-                    isMatch = is_match,
-                    groupCount = group_count if is_match else 0,
-                    start = [result.start(i) for i in range(group_count)] if is_match else [],
-                    end = [result.end(i) for i in range(group_count)] if is_match else []
+                    isMatch = True,
+                    groupCount = len(spans) // 2,
+                    start = spans[0::2],
+                    end = spans[1::2]
                 )
 
         def fallback_compiler(pattern, flags):
@@ -123,9 +122,11 @@ def setup(sre_compiler, error_class, flags_table):
                 else:
                     bit_flags = bit_flags | FLAGS[flag]
 
-            compiled_pattern = sre_compiler(pattern if mode == "str" else _str_to_bytes(pattern), bit_flags)
-
-            return ExecutablePattern(sticky, compiled_pattern)
+            import sre_parse
+            import sre_compile
+            parsed = sre_parse.parse(pattern if mode == "str" else _str_to_bytes(pattern), bit_flags)
+            code = sre_compile._code(parsed, bit_flags)
+            return ExecutablePattern(sticky, sre_code_compile(code, parsed.state.groups - 1))
 
         return fallback_compiler
 
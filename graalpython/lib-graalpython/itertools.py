@@ -21,7 +21,6 @@
 # LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
 # FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
 # DEALINGS IN THE SOFTWARE.
-import sys
 
 
 class repeat():
@@ -47,39 +46,6 @@ class repeat():
         return "{}({})".format(type(self).__name__, self.obj)
 
 
-class chain():
-    """
-    Return a chain object whose .__next__() method returns elements from the
-    first iterable until it is exhausted, then elements from the next
-    iterable, until all of the iterables are exhausted.
-    """
-    def __init__(self, *iterables):
-        self._iterables = iterables
-        self._len = len(iterables)
-        if self._len > 0:
-            self._current = iter(self._iterables[0])
-        self._idx = 0
-
-    def __iter__(self):
-        return self
-
-    def __next__(self):
-        if self._idx >= self._len:
-            raise StopIteration
-        try:
-            return next(self._current)
-        except (StopIteration, IndexError):
-            self._idx += 1
-            if self._idx >= self._len:
-                raise StopIteration
-            self._current = iter(self._iterables[self._idx])
-            return self.__next__()
-
-    @classmethod
-    def from_iterable(cls, arg):
-        return cls(*iter(arg))
-
-
 class starmap():
     """starmap(function, sequence) --> starmap object
 
@@ -98,25 +64,6 @@ class starmap():
         return self.fun(*obj)
 
 
-class islice(object):
-    def __init__(self, iterable, *args):
-        self._iterable = enumerate(iter(iterable))
-        slice = list(args)
-        if len(slice) >= 2 and slice[1] is None:
-             slice[1] = sys.maxsize
-        self._indexes = iter(range(*slice))
-
-    def __iter__(self):
-        return self
-
-    def __next__(self):
-        index = next(self._indexes) # may raise StopIteration
-        while True:
-            i, element = next(self._iterable) # may raise StopIteration
-            if i == index:
-                return element
-
-
 class count(object):
     def __init__(self, start=0, step=1):
         if not isinstance(start, (int, float)) or \
@@ -249,163 +196,6 @@ class permutations():
             self.cycles[i] = index
 
 
-class product():
-    """Cartesian product of input iterables.
-
-       Equivalent to nested for-loops in a generator expression. For example,
-        ``product(A, B)`` returns the same as ``((x,y) for x in A for y in B)``.
-
-       The nested loops cycle like an odometer with the rightmost element advancing
-        on every iteration.  This pattern creates a lexicographic ordering so that if
-        the input's iterables are sorted, the product tuples are emitted in sorted
-        order.
-
-       To compute the product of an iterable with itself, specify the number of
-        repetitions with the optional *repeat* keyword argument.  For example,
-        ``product(A, repeat=4)`` means the same as ``product(A, A, A, A)``.
-
-       This function is equivalent to the following code, except that the
-        actual implementation does not build up intermediate results in memory::
-
-           def product(*args, **kwds):
-               # product('ABCD', 'xy') --> Ax Ay Bx By Cx Cy Dx Dy
-               # product(range(2), repeat=3) --> 000 001 010 011 100 101 110 111
-               pools = map(tuple, args) * kwds.get('repeat', 1)
-               result = [[]]
-               for pool in pools:
-                   result = [x+[y] for x in result for y in pool]
-               for prod in result:
-                   yield tuple(prod)
-    """
-    def __init__(self, *args, repeat=1):
-        self.gears = [list(arg) for arg in args] * repeat
-        for gear in self.gears:
-            if len(gear) == 0:
-                self.indices = None
-                self.lst = None
-                self.stopped = True
-                break
-        else:
-            self.indices = [0] * len(self.gears)
-            self.lst = None
-            self.stopped = False
-
-    def _rotate_previous_gears(self):
-        lst = self.lst
-        x = len(self.gears) - 1
-        lst[x] = self.gears[x][0]
-        self.indices[x] = 0
-        x -= 1
-        # the outer loop runs as long as a we have a carry
-        while x >= 0:
-            gear = self.gears[x]
-            index = self.indices[x] + 1
-            if index < len(gear):
-                # no carry: done
-                lst[x] = gear[index]
-                self.indices[x] = index
-                return
-            lst[x] = gear[0]
-            self.indices[x] = 0
-            x -= 1
-        else:
-            self.lst = None
-            self.stopped = True
-
-    def fill_next_result(self):
-        # the last gear is done here, in a function with no loop,
-        # to allow the JIT to look inside
-        if self.lst is None:
-            self.lst = [None for gear in self.gears]
-            for index, gear in enumerate(self.gears):
-                self.lst[index] = gear[0]
-            return
-        lst = self.lst
-        x = len(self.gears) - 1
-        if x >= 0:
-            gear = self.gears[x]
-            index = self.indices[x] + 1
-            if index < len(gear):
-                # no carry: done
-                lst[x] = gear[index]
-                self.indices[x] = index
-            else:
-                self._rotate_previous_gears()
-        else:
-            self.stopped = True
-
-    def __iter__(self):
-        return self
-
-    def __next__(self):
-        if not self.stopped:
-            self.fill_next_result()
-        if self.stopped:
-            raise StopIteration
-        return tuple(self.lst)
-
-    def __reduce__(self):
-        if not self.stopped:
-            gears = [tuple(gear) for gear in self.gears]
-            result = [
-                type(self),
-                tuple(gears)
-            ]
-            if self.lst is not None:
-                result = result + [tuple(self.indices)]
-        else:
-            result = [
-                type(self),
-                tuple([tuple([])])
-            ]
-        return tuple(result)
-
-    def __setstate__(self, state):
-        gear_count = len(self.gears)
-        indices = list(state)
-        lst = []
-        for i, gear in enumerate(self.gears):
-            index = indices[i]
-            gear_size = len(gear)
-            if self.indices is None or gear_size == 0:
-                self.stopped = True
-                return
-            if index < 0:
-                index = 0
-            if index > gear_size - 1:
-                index = gear_size - 1
-            self.indices[i] = index
-            lst.append(gear[index])
-        self.lst = lst
-
-
-class accumulate(object):
-    """
-    "accumulate(iterable) --> accumulate object
-
-    Return series of accumulated sums."""
-
-    def __init__(self, iterable, func=None):
-        self.iterable = iter(iterable)
-        self.func = func
-        self.total = None
-
-    def __iter__(self):
-        return self
-
-    def __next__(self):
-        value = next(self.iterable)
-        if self.total is None:
-            self.total = value
-            return value
-
-        if self.func is None:
-            self.total += value
-        else:
-            self.total = self.func(total, value)
-        return self.total
-
-
 class dropwhile(object):
     """
     dropwhile(predicate, iterable) --> dropwhile object
@@ -483,111 +273,23 @@ class takewhile(object):
         return value
 
 
-class groupby(object):
-    """Make an iterator that returns consecutive keys and groups from the
-    iterable. The key is a function computing a key value for each
-    element. If not specified or is None, key defaults to an identity
-    function and returns the element unchanged. Generally, the
-    iterable needs to already be sorted on the same key function.
-
-    The returned group is itself an iterator that shares the
-    underlying iterable with groupby(). Because the source is shared,
-    when the groupby object is advanced, the previous group is no
-    longer visible. So, if that data is needed later, it should be
-    stored as a list:
-
-       groups = []
-       uniquekeys = []
-       for k, g in groupby(data, keyfunc):
-           groups.append(list(g))      # Store group iterator as a list
-           uniquekeys.append(k)
-    """
-    def __init__(self, iterable, key=None):
-        self._iterator = iter(iterable)
-        self._keyfunc = key
-        self._tgtkey = self._currkey = self._currvalue = None
-
-    def __iter__(self):
-        return self
-
-    def __next__(self):
-        self._skip_to_next_iteration_group()
-        key = self._tgtkey = self._currkey
-        grouper = _groupby(self, key)
-        return (key, grouper)
-
-    def _skip_to_next_iteration_group(self):
-        while True:
-            if self._currkey is None:
-                pass
-            elif self._tgtkey is None:
-                break
-            else:
-                if not self._tgtkey == self._currkey:
-                    break
-
-            newvalue = next(self._iterator)
-            if self._keyfunc is None:
-                newkey = newvalue
-            else:
-                newkey = self._keyfunc(newvalue)
-
-            self._currkey = newkey
-            self._currvalue = newvalue
-
-
-class _groupby():
-    def __init__(self, groupby, tgtkey):
-        self.groupby = groupby
-        self.tgtkey = tgtkey
-
-    def __iter__(self):
-        return self
-
-    def __next__(self):
-        groupby = self.groupby
-        if groupby._currvalue is None:
-            newvalue = next(groupby._iterator)
-            if groupby._keyfunc is None:
-                newkey = newvalue
-            else:
-                newkey = groupby._keyfunc(newvalue)
-            assert groupby._currvalue is None
-            groupby._currkey = newkey
-            groupby._currvalue = newvalue
-
-        assert groupby._currkey is not None
-        if not self.tgtkey == groupby._currkey:
-            raise StopIteration(None)
-        result = groupby._currvalue
-        groupby._currvalue = None
-        groupby._currkey = None
-        return result
-
-
-class combinations():
+class combinations_with_replacement():
     """
-    combinations(iterable, r) --> combinations object
-
-    Return successive r-length combinations of elements in the iterable.
+    combinations_with_replacement(iterable, r) --> combinations_with_replacement object
 
-    combinations(range(4), 3) --> (0,1,2), (0,1,3), (0,2,3), (1,2,3)
+    Return successive r-length combinations of elements in the iterable
+    allowing individual elements to have successive repeats.
+    combinations_with_replacement('ABC', 2) --> AA AB AC BB BC CC
     """
-
-    def __init__(self, pool, indices, r):
-        self.pool = pool
-        self.indices = indices
+    def __init__(self, iterable, r):
+        pool = list(iterable)
         if r < 0:
             raise ValueError("r must be non-negative")
+        self.pool = pool
+        self.indices = [0] * r
         self.r = r
         self.last_result = None
-        self.stopped = r > len(pool)
-
-    def get_maximum(self, i):
-        return i + len(self.pool) - self.r
-
-    def max_index(self, j):
-        return self.indices[j - 1] + 1
+        self.stopped = len(pool) == 0 and r > 0
 
     def __iter__(self):
         return self
@@ -597,17 +299,14 @@ class combinations():
             raise StopIteration
         if self.last_result is None:
             # On the first pass, initialize result tuple using the indices
-            result = [None] * self.r
-            for i in range(self.r):
-                index = self.indices[i]
-                result[i] = self.pool[index]
+            result = [self.pool[index] for index in self.indices]
         else:
             # Copy the previous result
             result = self.last_result[:]
             # Scan indices right-to-left until finding one that is not at its
             # maximum
             i = self.r - 1
-            while i >= 0 and self.indices[i] == self.get_maximum(i):
+            while i >= 0 and self.indices[i] == len(self.pool) - 1:
                 i -= 1
 
             # If i is negative, then the indices are all at their maximum value
@@ -621,41 +320,16 @@ class combinations():
             # possible value
             self.indices[i] += 1
             for j in range(i + 1, self.r):
-                self.indices[j] = self.max_index(j)
+                self.indices[j] = self.indices[j - 1]
 
             # Update the result for the new indices starting with i, the
             # leftmost index that changed
             for i in range(i, self.r):
-                index = self.indices[i]
-                elem = self.pool[index]
-                result[i] = elem
+                result[i] = self.pool[self.indices[i]]
         self.last_result = result
         return tuple(result)
 
 
-class combinations_with_replacement(combinations):
-    """
-    combinations_with_replacement(iterable, r) --> combinations_with_replacement object
-
-    Return successive r-length combinations of elements in the iterable
-    allowing individual elements to have successive repeats.
-    combinations_with_replacement('ABC', 2) --> AA AB AC BB BC CC
-    """
-    def __init__(self, iterable, r):
-        pool = list(iterable)
-        if r < 0:
-            raise ValueError("r must be non-negative")
-        indices = [0] * r
-        super().__init__(pool, indices, r)
-        self.stopped = len(pool) == 0 and r > 0
-
-    def get_maximum(self, i):
-        return len(self.pool) - 1
-
-    def max_index(self, j):
-        return self.indices[j - 1]
-
-
 class zip_longest():
     """
     zip_longest(iter1 [,iter2 [...]], [fillvalue=None]) --> zip_longest object
@@ -65,19 +65,97 @@ def open(*args, **kwargs):
     return _pyio.open(*args, **kwargs)
 
 
+# FileIO and the buffered streams are implemented in Java. They only implement
+# the core methods, the remaining ones are taken from the _pyio base classes.
+def _copy_missing_methods(target, *sources):
+    function_type = type(_copy_missing_methods)
+    for source in sources:
+        for klass in source.__mro__:
+            for name, value in klass.__dict__.items():
+                if name in ('__init__', '__new__', '__del__') or name in target.__dict__:
+                    continue
+                if isinstance(value, function_type):
+                    setattr(target, name, value)
+
+
+_copy_missing_methods(_io.FileIO, _pyio.RawIOBase)
+for klass in [_io.BufferedReader, _io.BufferedWriter, _io.BufferedRandom]:
+    for name in ['__repr__', '_dealloc_warn', '__getstate__']:
+        setattr(klass, name, _pyio._BufferedIOMixin.__dict__[name])
+    _copy_missing_methods(klass, _pyio.BufferedIOBase)
+del _copy_missing_methods
+
+
+_pyio.RawIOBase.register(_io.FileIO)
+for klass in [_io.BufferedReader, _io.BufferedWriter, _io.BufferedRandom]:
+    _pyio.BufferedIOBase.register(klass)
+_pyio.FileIO = _io.FileIO
+_pyio.BufferedReader = _io.BufferedReader
+_pyio.BufferedWriter = _io.BufferedWriter
+_pyio.BufferedRandom = _io.BufferedRandom
+
+
+# TextIOWrapper.readline for the common case of a Java buffered reader and an
+# encoding in which the byte '\n' always is a line feed: the buffer does the
+# line splitting and the line is decoded at once.
+_readline_fast_encodings = {}
+
+
+def _has_fast_readline_encoding(encoding):
+    result = _readline_fast_encodings.get(encoding)
+    if result is None:
+        import codecs
+        result = codecs.lookup(encoding).name in ('utf-8', 'iso8859-1', 'ascii')
+        _readline_fast_encodings[encoding] = result
+    return result
+
+
+def _make_text_readline(generic_readline):
+    java_readers = (_io.BufferedReader, _io.BufferedRandom)
+
+    def readline(self, size=None):
+        if ((size is not None and size >= 0) or type(self.buffer) not in java_readers or
+                self._decoded_chars_used != len(self._decoded_chars) or self.closed or
+                not (self._readtranslate or self._readnl == '\n') or
+                not _has_fast_readline_encoding(self._encoding)):
+            return generic_readline(self, size)
+        decoder = self._decoder or self._get_decoder()
+        if self._telling:
+            dec_buffer, dec_flags = decoder.getstate()
+        line = self.buffer.readline()
+        if not line:
+            return generic_readline(self, size)
+        text = decoder.decode(line)
+        if (text.endswith('\n') and text.find('\n') == len(text) - 1 and
+                (self._readtranslate or '\r' not in text)):
+            self._set_decoded_chars('')
+            if self._telling:
+                dec_buffer, dec_flags = decoder.getstate()
+                self._snapshot = (dec_flags, dec_buffer)
+            return text
+        # let the generic implementation deal with the decoded text, just like
+        # with a chunk from _read_chunk
+        self._set_decoded_chars(text)
+        if self._telling:
+            self._snapshot = (dec_flags, dec_buffer + line)
+        return generic_readline(self, size)
+
+    return readline
+
+
+_pyio.TextIOWrapper.readline = _make_text_readline(_pyio.TextIOWrapper.readline)
+del _make_text_readline
+
+
 for module in [_io, io]:
     setattr(module, 'open', open)
     setattr(module, 'TextIOWrapper', _pyio.TextIOWrapper)
     setattr(module, 'IncrementalNewlineDecoder', _pyio.IncrementalNewlineDecoder)
-    setattr(module, 'BufferedRandom', _pyio.BufferedRandom)
     setattr(module, 'BufferedRWPair', _pyio.BufferedRWPair)
-    setattr(module, 'BufferedWriter', _pyio.BufferedWriter)
-    setattr(module, 'BufferedReader', _pyio.BufferedReader)
     setattr(module, 'StringIO', _pyio.StringIO)
     setattr(module, '_IOBase', _pyio.IOBase)
     setattr(module, 'BufferedIOBase', _pyio.BufferedIOBase)
     setattr(module, 'RawIOBase', _pyio.RawIOBase)
-    setattr(module, 'FileIO', _pyio.FileIO)
     setattr(module, 'BytesIO', _pyio.BytesIO)
     setattr(module, '_TextIOBase', _pyio.TextIOBase)
 
@@ -85,20 +163,12 @@ for module in [_io, io]:
 setattr(builtins, 'open', open)
 
 
-sys.stdin = _pyio.TextIOWrapper(_pyio.BufferedReader(sys.stdin), encoding="utf-8", line_buffering=True)
+sys.stdin = _pyio.TextIOWrapper(_io.BufferedReader(sys.stdin), encoding="utf-8", line_buffering=True)
 sys.stdin.mode = "r"
 sys.__stdin__ = sys.stdin
-sys.stdout = _pyio.TextIOWrapper(_pyio.BufferedWriter(sys.stdout), encoding="utf-8", line_buffering=True)
+sys.stdout = _pyio.TextIOWrapper(_io.BufferedWriter(sys.stdout), encoding="utf-8", line_buffering=True)
 sys.stdout.mode = "w"
 sys.__stdout__ = sys.stdout
-sys.stderr = _pyio.TextIOWrapper(_pyio.BufferedWriter(sys.stderr), encoding="utf-8", line_buffering=True)
+sys.stderr = _pyio.TextIOWrapper(_io.BufferedWriter(sys.stderr), encoding="utf-8", line_buffering=True)
 sys.stderr.mode = "w"
 sys.__stderr__ = sys.stderr
-
-
-# See comment in _pyio.py. This method isn't strictly necessary and is provided
-# on CPython for performance. Because it goes through memoryview, it is slower
-# for us due to the overhead of memoryview being in C and the warmup cost
-# associated with that. We remove it and rely on the (for us faster) base
-# implementation.
-del _pyio.BufferedReader._readinto
@@ -64,6 +64,7 @@ MICRO_BENCHMARKS = {
     'class-access': ITER_15 + ['10_000'],
     'call-method-polymorphic': ITER_10 + ['1000'],
     'for-range': ITER_15 + ['50000'],
+    'functools-lru-cache-sized': ITER_10 + ['10_000_000'],
     'function-call-sized': ITER_10 + ['2_000_000_000'],
     'generator-expression-sized': ITER_10 + ['30_000'],
     'generator-notaligned-sized': ITER_10 + ['30_000'],
@@ -91,6 +92,8 @@ MICRO_BENCHMARKS = {
     'call-classmethod-sized': ITER_10 + ['500_000_000'],
     'mmap-anonymous-sized': ITER_10 + ['20_000'],
     'mmap-file': ITER_10 + ['1000'],
+    'mmap-random-access': ITER_10 + ['1_000_000'],
+    'socket-throughput': ITER_10 + ['20_000'],
     'generate-functions-sized': ITER_15 + ['500_000_000'],
     'try-except-simple': ITER_10 + ['500_000_000'],
     'try-except-store-simple': ITER_10 + ['500_000_000'],
@@ -197,6 +200,7 @@ INTEROP_JAVA_BENCHMARKS = {
     'euler11': [_INTEROP_JAVA_PACKAGE + 'PyEuler11'] + MESO_BENCHMARKS['euler11'],
     'nbody3': [_INTEROP_JAVA_PACKAGE + 'PyNbody'] + MESO_BENCHMARKS['nbody3'],
     'fannkuchredux3': [_INTEROP_JAVA_PACKAGE + 'PyFannkuchredux'] + MESO_BENCHMARKS['fannkuchredux3'],
+    'thread-state-lookup': [_INTEROP_JAVA_PACKAGE + 'PyThreadStateLookup'] + ITER_10,
 }
 
 